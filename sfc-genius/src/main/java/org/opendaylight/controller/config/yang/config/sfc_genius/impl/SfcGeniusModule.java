@@ -15,7 +15,6 @@ import org.opendaylight.controller.config.api.ModuleIdentifier;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
-import org.opendaylight.sfc.genius.impl.handlers.ISfcGeniusInterfaceServiceHandler;
 import org.opendaylight.sfc.genius.impl.handlers.SfcGeniusInterfaceServiceManager;
 import org.opendaylight.sfc.genius.impl.listeners.SfcGeniusInterfaceStateListener;
 import org.opendaylight.sfc.genius.impl.listeners.SfcGeniusSfStateListener;
@@ -60,7 +59,7 @@ public class SfcGeniusModule
         ExecutorService handlerExecutor = Executors.newSingleThreadExecutor();
 
         // Main handler of data store events
-        ISfcGeniusInterfaceServiceHandler interfaceManager;
+        SfcGeniusInterfaceServiceManager interfaceManager;
         interfaceManager = new SfcGeniusInterfaceServiceManager(dataBroker, rpcProviderRegistry, handlerExecutor);
 
         // Listeners to data store events
@@ -81,6 +80,7 @@ public class SfcGeniusModule
 
                 sfStateListener.close();
                 interfaceStateListener.close();
+                interfaceManager.close();
 
                 LOG.info("SFC Genius module instance {} closed", this);
             }
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.genius.impl.handlers;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the SFC service binding requests of service functions and the
+ * state changes of interfaces during a short window, and hands them over
+ * as a single batch.
+ *
+ * - A binding request supersedes any previous request of the same service
+ *   function still pending.
+ * - Interface state changes are kept in the order they were received.
+ * - Batches are processed one after the other through the provided
+ *   {@link Executor}, the next one starting once the previous one
+ *   completes, so that the binding operations of a service function are
+ *   never reordered. Nobody waits for a batch to complete.
+ * - An unbinding request carries the interfaces of the service function
+ *   known when it was made, if any, since the service function may be gone
+ *   by the time the batch is processed.
+ * - Once closed, new requests are ignored; the pending ones are still
+ *   processed.
+ */
+class SfcGeniusBindingCoordinator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcGeniusBindingCoordinator.class);
+
+    // How long closing waits for the pending requests to be processed
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final long windowMillis;
+    private final Function<Batch, CompletableFuture<Void>> batchProcessor;
+
+    // Guarded by this
+    private Map<String, ServiceFunctionRequest> serviceFunctions = new LinkedHashMap<>();
+    private List<InterfaceStateChange> interfaceStateChanges = new ArrayList<>();
+    private boolean flushScheduled = false;
+    private boolean closed = false;
+    private CompletableFuture<Void> lastBatch = CompletableFuture.completedFuture(null);
+
+    /**
+     * Constructs a {@code SfcGeniusBindingCoordinator}.
+     *
+     * @param scheduler the scheduler of the end of the collection windows.
+     * @param executor the executor where batches are processed.
+     * @param windowMillis how long requests are collected before being
+     *                     processed.
+     * @param batchProcessor processes a batch, returns a future signaling
+     *                       its completion.
+     */
+    SfcGeniusBindingCoordinator(ScheduledExecutorService scheduler,
+                                Executor executor,
+                                long windowMillis,
+                                Function<Batch, CompletableFuture<Void>> batchProcessor) {
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.windowMillis = windowMillis;
+        this.batchProcessor = batchProcessor;
+    }
+
+    /**
+     * Request the interfaces of a service function to be bound to SFC
+     * service.
+     *
+     * @param sfName the name of the service function.
+     */
+    synchronized void bindServiceFunction(String sfName) {
+        if (closed) {
+            LOG.debug("Closed, binding request of service function {} ignored", sfName);
+            return;
+        }
+        serviceFunctions.put(sfName, new ServiceFunctionRequest(true, null));
+        scheduleFlush();
+    }
+
+    /**
+     * Request the interfaces of a service function to be unbound from SFC
+     * service.
+     *
+     * @param sfName the name of the service function.
+     * @param interfaceNames the interfaces of the service function when
+     *                       the request is made, null if not known.
+     */
+    synchronized void unbindServiceFunction(String sfName, List<String> interfaceNames) {
+        if (closed) {
+            LOG.debug("Closed, unbinding request of service function {} ignored", sfName);
+            return;
+        }
+        serviceFunctions.put(sfName, new ServiceFunctionRequest(false, interfaceNames));
+        scheduleFlush();
+    }
+
+    /**
+     * Notify that an interface became available or unavailable on a data
+     * plane node.
+     *
+     * @param interfaceName the name of the interface.
+     * @param dpnId the data plane node identifier.
+     * @param up true if the interface became available.
+     */
+    synchronized void interfaceStateChanged(String interfaceName, BigInteger dpnId, boolean up) {
+        if (closed) {
+            LOG.debug("Closed, state change of interface {} ignored", interfaceName);
+            return;
+        }
+        interfaceStateChanges.add(new InterfaceStateChange(interfaceName, dpnId, up));
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void flush() {
+        Batch batch = new Batch(serviceFunctions, interfaceStateChanges);
+        serviceFunctions = new LinkedHashMap<>();
+        interfaceStateChanges = new ArrayList<>();
+        flushScheduled = false;
+
+        LOG.debug("Binding batch of {} service functions and {} interface state changes",
+                batch.getServiceFunctions().size(), batch.getInterfaceStateChanges().size());
+        lastBatch = lastBatch
+                .thenComposeAsync(aVoid -> batchProcessor.apply(batch), executor)
+                .exceptionally(throwable -> {
+                    LOG.error("Error processing binding batch", throwable);
+                    return null;
+                });
+    }
+
+    /**
+     * Stop collecting requests. Those still pending are processed, and
+     * waited for up to a timeout.
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        // The flush already scheduled, if any, still runs
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                LOG.warn("Timed out waiting for the pending binding requests");
+                return;
+            }
+            CompletableFuture<Void> pendingBatch;
+            synchronized (this) {
+                pendingBatch = lastBatch;
+            }
+            pendingBatch.get(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOG.warn("Error waiting for the last binding batch", e);
+        }
+    }
+
+    /**
+     * The requests collected during a window.
+     */
+    static final class Batch {
+        private final Map<String, ServiceFunctionRequest> serviceFunctions;
+        private final List<InterfaceStateChange> interfaceStateChanges;
+
+        Batch(Map<String, ServiceFunctionRequest> serviceFunctions, List<InterfaceStateChange> interfaceStateChanges) {
+            this.serviceFunctions = Collections.unmodifiableMap(serviceFunctions);
+            this.interfaceStateChanges = Collections.unmodifiableList(interfaceStateChanges);
+        }
+
+        /**
+         * @return the service functions, mapped to their last request.
+         */
+        Map<String, ServiceFunctionRequest> getServiceFunctions() {
+            return serviceFunctions;
+        }
+
+        /**
+         * @return the interface state changes, in the order they happened.
+         */
+        List<InterfaceStateChange> getInterfaceStateChanges() {
+            return interfaceStateChanges;
+        }
+    }
+
+    /**
+     * The binding or unbinding of the interfaces of a service function.
+     */
+    static final class ServiceFunctionRequest {
+        private final boolean bind;
+        private final List<String> interfaceNames;
+
+        ServiceFunctionRequest(boolean bind, List<String> interfaceNames) {
+            this.bind = bind;
+            this.interfaceNames = interfaceNames;
+        }
+
+        /**
+         * @return true if the interfaces are to be bound, false if they are
+         * to be unbound.
+         */
+        boolean isBind() {
+            return bind;
+        }
+
+        /**
+         * @return the interfaces of the service function known when the
+         * request was made, null if they have to be read.
+         */
+        List<String> getInterfaceNames() {
+            return interfaceNames;
+        }
+    }
+
+    /**
+     * An interface becoming available or unavailable on a data plane node.
+     */
+    static final class InterfaceStateChange {
+        private final String interfaceName;
+        private final BigInteger dpnId;
+        private final boolean up;
+
+        InterfaceStateChange(String interfaceName, BigInteger dpnId, boolean up) {
+            this.interfaceName = interfaceName;
+            this.dpnId = dpnId;
+            this.up = up;
+        }
+
+        String getInterfaceName() {
+            return interfaceName;
+        }
+
+        BigInteger getDpnId() {
+            return dpnId;
+        }
+
+        boolean isUp() {
+            return up;
+        }
+    }
+}
@@ -9,18 +9,30 @@
 package org.opendaylight.sfc.genius.impl.handlers;
 
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.binding.api.ReadTransaction;
 import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
+import org.opendaylight.sfc.genius.impl.handlers.readers.SfcGeniusIfStateReader;
 import org.opendaylight.sfc.genius.impl.handlers.readers.SfcGeniusSfReader;
-import org.opendaylight.sfc.genius.impl.utils.SfcGeniusRuntimeException;
 import org.opendaylight.sfc.genius.impl.utils.SfcGeniusUtils;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.slf4j.Logger;
@@ -36,19 +48,36 @@ import org.slf4j.LoggerFactory;
  * present, a SFC service terminating action is configured through Genius ITM.
  * Otherwise, the service terminating action is removed.
  *
- * When an interface becomes available after being unavailable due to a
- * node/port transition, any RSPs on which associated service functions participate
- * will be re-rendered.
+ * Binding requests and interface state changes are not handled right away,
+ * they are collected for a short window by a
+ * {@link SfcGeniusBindingCoordinator} and then handled together, with a
+ * single data store transaction per data plane node. Callers never wait for
+ * the handling to complete.
+ *
+ * The interfaces of each service function are remembered once bound, so
+ * that they can be unbound even after the service function was removed.
+ *
+ * When an interface bound to SFC service moves from one node to another,
+ * only the terminating service actions of the nodes involved are updated,
+ * the service binding itself is kept.
  *
  * @see "org.opendaylight.genius.itm"
  * @see "org.opendaylight.genius.interfacemanager"
  */
-public class SfcGeniusInterfaceServiceManager implements ISfcGeniusInterfaceServiceHandler {
+public class SfcGeniusInterfaceServiceManager implements ISfcGeniusInterfaceServiceHandler, AutoCloseable {
+
+    // How long binding requests are collected before being handled
+    private static final long BINDING_WINDOW_MILLIS = 100;
 
     private final DataBroker dataBroker;
     private final RpcProviderRegistry rpcProviderRegistry;
     private final Executor executor;
     private final Map<BigInteger, Set<String>> dpnInterfaces;
+    // Interfaces bound to SFC service, only accessed from the executor
+    private final Set<String> boundInterfaces;
+    // Interfaces of the service functions bound to SFC service, captured by the unbinding requests
+    private final Map<String, List<String>> sfInterfaces = new ConcurrentHashMap<>();
+    private final SfcGeniusBindingCoordinator bindingCoordinator;
     private static final Logger LOG = LoggerFactory.getLogger(SfcGeniusInterfaceServiceManager.class);
 
     /**
@@ -65,78 +94,227 @@ public class SfcGeniusInterfaceServiceManager implements ISfcGeniusInterfaceServ
     public SfcGeniusInterfaceServiceManager(DataBroker dataBroker,
                                             RpcProviderRegistry rpcProviderRegistry,
                                             Executor executor) {
+        this(dataBroker, rpcProviderRegistry, executor,
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("sfc-genius-binding-%d")
+                        .setDaemon(true)
+                        .build()),
+                BINDING_WINDOW_MILLIS);
+    }
+
+    /**
+     * Constructs a {@code SfcGeniusInterfaceServiceManager} with the given
+     * binding window.
+     *
+     * @param dataBroker the data broker for data store operations.
+     * @param rpcProviderRegistry the RPC provider registry of services.
+     * @param executor the executor where asynchronous tasks are executed.
+     *                 Binding requests are handled through it, it must not
+     *                 run more than one task at a time.
+     * @param scheduler the scheduler of the binding windows.
+     * @param bindingWindowMillis how long binding requests are collected
+     *                            before being handled.
+     */
+    SfcGeniusInterfaceServiceManager(DataBroker dataBroker,
+                                     RpcProviderRegistry rpcProviderRegistry,
+                                     Executor executor,
+                                     ScheduledExecutorService scheduler,
+                                     long bindingWindowMillis) {
         this.dataBroker = dataBroker;
         this.rpcProviderRegistry = rpcProviderRegistry;
         this.executor = executor;
         this.dpnInterfaces = new HashMap<>();
+        this.boundInterfaces = new HashSet<>();
+        this.bindingCoordinator = new SfcGeniusBindingCoordinator(scheduler, executor, bindingWindowMillis,
+                this::handleBatch);
     }
 
     @Override
     public void bindInterfacesOfServiceFunction(String sfName) {
-        ReadWriteTransaction readWriteTransaction = dataBroker.newReadWriteTransaction();
-        SfcGeniusSfReader sfReader = getSfcGeniusSfReader(readWriteTransaction);
-        SfcGeniusServiceHandler serviceHandler = getSfcGeniusServiceHandler(readWriteTransaction);
-
         LOG.debug("Bind interfaces of service function {}", sfName);
-
-        sfReader.readInterfacesOfSf(new SfName(sfName))
-                .thenCompose(interfaceList -> CompletableFuture.allOf(
-                        interfaceList.stream()
-                                .map(serviceHandler::bindToInterface)
-                                .toArray(size -> new CompletableFuture<?>[size])))
-                .thenCompose((aVoid) -> SfcGeniusUtils.toCompletableFuture(readWriteTransaction.submit(), executor))
-                .exceptionally(exception -> {
-                    if (exception.getCause() instanceof SfcGeniusRuntimeException) {
-                        LOG.error("Error binding to interfaces of service function {}", sfName, exception.getCause());
-                        return null;
-                    }
-                    throw new CompletionException(exception.getCause());
-                })
-                .join();
+        bindingCoordinator.bindServiceFunction(sfName);
     }
 
     @Override
     public void unbindInterfacesOfServiceFunction(String sfName) {
-        ReadWriteTransaction readWriteTransaction = dataBroker.newReadWriteTransaction();
-        SfcGeniusSfReader sfReader = getSfcGeniusSfReader(readWriteTransaction);
-        SfcGeniusServiceHandler serviceHandler = getSfcGeniusServiceHandler(readWriteTransaction);
-
         LOG.debug("Unbind interfaces of service function {}", sfName);
-
-        sfReader.readInterfacesOfSf(new SfName(sfName))
-                .thenCompose(interfaceList ->
-                        CompletableFuture.allOf(
-                                interfaceList.stream()
-                                        .map(serviceHandler::unbindFromInterface)
-                                        .toArray(size -> new CompletableFuture<?>[size])))
-                .thenCompose((aVoid) -> SfcGeniusUtils.toCompletableFuture(readWriteTransaction.submit(), executor))
-                .exceptionally(exception -> {
-                    if (exception.getCause() instanceof SfcGeniusRuntimeException) {
-                        LOG.error("Error unbinding from interfaces of service function {}",
-                                sfName, exception.getCause());
-                        return null;
-                    }
-                    throw new CompletionException(exception.getCause());
-                })
-                .join();
+        bindingCoordinator.unbindServiceFunction(sfName, sfInterfaces.get(sfName));
     }
 
     @Override
     public void interfaceStateUp(String interfaceName, BigInteger dpnId) {
-        // TODO implement
+        LOG.debug("Interface {} up on node {}", interfaceName, dpnId);
+        bindingCoordinator.interfaceStateChanged(interfaceName, dpnId, true);
     }
 
     @Override
-    public void interfaceStateDown(String interfaceName, BigInteger nodeId) {
-        // TODO implement
+    public void interfaceStateDown(String interfaceName, BigInteger dpnId) {
+        LOG.debug("Interface {} down on node {}", interfaceName, dpnId);
+        bindingCoordinator.interfaceStateChanged(interfaceName, dpnId, false);
+    }
+
+    @Override
+    public void close() {
+        bindingCoordinator.close();
+    }
+
+    /**
+     * Handle a batch of binding requests and interface state changes. The
+     * interfaces of the service functions and their current data plane node
+     * are read first, then the operations are grouped by data plane node and
+     * each group is written in its own transaction.
+     *
+     * @param batch the batch.
+     * @return future signaling completion of the batch.
+     */
+    private CompletableFuture<Void> handleBatch(SfcGeniusBindingCoordinator.Batch batch) {
+        // The state changes of interfaces not bound before this batch are of
+        // no interest, the bindings of this batch use the current state
+        List<SfcGeniusBindingCoordinator.InterfaceStateChange> stateChanges =
+                batch.getInterfaceStateChanges().stream()
+                        .filter(stateChange -> boundInterfaces.contains(stateChange.getInterfaceName()))
+                        .collect(Collectors.toList());
+
+        if (batch.getServiceFunctions().isEmpty()) {
+            return writeByDpn(stateChanges, Collections.emptyList());
+        }
+
+        ReadOnlyTransaction readTransaction = dataBroker.newReadOnlyTransaction();
+        SfcGeniusSfReader sfReader = getSfcGeniusSfReader(readTransaction);
+        SfcGeniusIfStateReader ifStateReader = getSfcGeniusIfStateReader(readTransaction);
+
+        List<CompletableFuture<List<InterfaceBinding>>> bindingFutures = batch.getServiceFunctions().entrySet()
+                .stream()
+                .map(entry -> readInterfaceBindings(entry.getKey(), entry.getValue(), sfReader, ifStateReader))
+                .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(bindingFutures.toArray(new CompletableFuture<?>[bindingFutures.size()]))
+                .thenCompose(aVoid -> {
+                    readTransaction.close();
+                    List<InterfaceBinding> bindings = bindingFutures.stream()
+                            .flatMap(future -> future.join().stream())
+                            .collect(Collectors.toList());
+                    return writeByDpn(stateChanges, bindings);
+                });
     }
 
-    protected SfcGeniusSfReader getSfcGeniusSfReader(ReadWriteTransaction readWriteTransaction) {
-        return new SfcGeniusSfReader(readWriteTransaction, executor);
+    /**
+     * Read the interfaces of a service function, unless captured by the
+     * request, and the data plane node each one is currently located on.
+     */
+    private CompletableFuture<List<InterfaceBinding>> readInterfaceBindings(
+            String sfName,
+            SfcGeniusBindingCoordinator.ServiceFunctionRequest request,
+            SfcGeniusSfReader sfReader,
+            SfcGeniusIfStateReader ifStateReader) {
+        boolean bind = request.isBind();
+        CompletableFuture<List<String>> interfacesFuture = request.getInterfaceNames() == null
+                ? sfReader.readInterfacesOfSf(new SfName(sfName))
+                : CompletableFuture.completedFuture(request.getInterfaceNames());
+        return interfacesFuture
+                .thenCompose(interfaceList -> {
+                    if (bind) {
+                        sfInterfaces.put(sfName, interfaceList);
+                    } else {
+                        sfInterfaces.remove(sfName);
+                    }
+                    List<CompletableFuture<InterfaceBinding>> futures = interfaceList.stream()
+                            .map(interfaceName -> ifStateReader.readDpnId(interfaceName)
+                                    .handle((dpnId, throwable) -> {
+                                        if (throwable != null) {
+                                            // Handled when the interface becomes available
+                                            LOG.debug("Interface {} is not available", interfaceName, throwable);
+                                            return new InterfaceBinding(interfaceName, null, bind);
+                                        }
+                                        return new InterfaceBinding(interfaceName, dpnId, bind);
+                                    }))
+                            .collect(Collectors.toList());
+                    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+                            .thenApply(aVoid -> futures.stream()
+                                    .map(CompletableFuture::join)
+                                    .collect(Collectors.toList()));
+                })
+                .exceptionally(throwable -> {
+                    LOG.error("Error reading interfaces of service function {}", sfName, throwable);
+                    return Collections.emptyList();
+                });
+    }
+
+    /**
+     * Write the interface state changes and the bindings, a transaction per
+     * data plane node. The state changes of a node are handled before its
+     * bindings, which were read later.
+     */
+    private CompletableFuture<Void> writeByDpn(List<SfcGeniusBindingCoordinator.InterfaceStateChange> stateChanges,
+                                               List<InterfaceBinding> bindings) {
+        // A null data plane node groups the bindings of unavailable interfaces
+        Map<BigInteger, List<Function<SfcGeniusServiceHandler, CompletableFuture<Void>>>> dpnOperations =
+                new LinkedHashMap<>();
+
+        for (SfcGeniusBindingCoordinator.InterfaceStateChange stateChange : stateChanges) {
+            String interfaceName = stateChange.getInterfaceName();
+            BigInteger dpnId = stateChange.getDpnId();
+            dpnOperations.computeIfAbsent(dpnId, k -> new ArrayList<>()).add(stateChange.isUp()
+                    ? serviceHandler -> serviceHandler.interfaceStateUp(interfaceName, dpnId)
+                    : serviceHandler -> serviceHandler.interfaceStateDown(interfaceName, dpnId));
+        }
+        for (InterfaceBinding binding : bindings) {
+            if (binding.bind) {
+                boundInterfaces.add(binding.interfaceName);
+            } else {
+                boundInterfaces.remove(binding.interfaceName);
+            }
+            dpnOperations.computeIfAbsent(binding.dpnId, k -> new ArrayList<>()).add(binding.bind
+                    ? serviceHandler -> serviceHandler.bindToInterface(binding.interfaceName, binding.dpnId)
+                    : serviceHandler -> serviceHandler.unbindFromInterface(binding.interfaceName, binding.dpnId));
+        }
+
+        List<CompletableFuture<Void>> dpnFutures = new ArrayList<>();
+        dpnOperations.forEach((dpnId, operations) -> {
+            ReadWriteTransaction readWriteTransaction = dataBroker.newReadWriteTransaction();
+            SfcGeniusServiceHandler serviceHandler = getSfcGeniusServiceHandler(readWriteTransaction);
+            CompletableFuture<?>[] operationFutures = operations.stream()
+                    .map(operation -> operation.apply(serviceHandler))
+                    .toArray(size -> new CompletableFuture<?>[size]);
+
+            LOG.debug("Handling {} SFC service binding operations on node {}", operations.size(), dpnId);
+            dpnFutures.add(CompletableFuture.allOf(operationFutures)
+                    .thenCompose(aVoid -> SfcGeniusUtils.toCompletableFuture(readWriteTransaction.submit(), executor))
+                    .handle((aVoid, throwable) -> {
+                        if (throwable != null) {
+                            LOG.error("Error handling SFC service binding on node {}", dpnId, throwable);
+                        }
+                        return null;
+                    }));
+        });
+
+        return CompletableFuture.allOf(dpnFutures.toArray(new CompletableFuture<?>[dpnFutures.size()]));
+    }
+
+    protected SfcGeniusSfReader getSfcGeniusSfReader(ReadTransaction readTransaction) {
+        return new SfcGeniusSfReader(readTransaction, executor);
+    }
+
+    protected SfcGeniusIfStateReader getSfcGeniusIfStateReader(ReadTransaction readTransaction) {
+        return new SfcGeniusIfStateReader(readTransaction, executor);
     }
 
     protected SfcGeniusServiceHandler getSfcGeniusServiceHandler(ReadWriteTransaction readWriteTransaction) {
         return new SfcGeniusServiceHandler(dpnInterfaces, readWriteTransaction, rpcProviderRegistry, executor);
     }
 
+    /**
+     * The binding or unbinding of an interface, located on a data plane node.
+     */
+    private static final class InterfaceBinding {
+        private final String interfaceName;
+        private final BigInteger dpnId;
+        private final boolean bind;
+
+        InterfaceBinding(String interfaceName, BigInteger dpnId, boolean bind) {
+            this.interfaceName = interfaceName;
+            this.dpnId = dpnId;
+            this.bind = bind;
+        }
+    }
 }
@@ -117,6 +117,87 @@ class SfcGeniusServiceHandler {
         );
     }
 
+    /**
+     * Bind SFC service to interface located on a known data plane node.
+     * Will also add the terminating service action if this is the first
+     * interface bound to SFC service on the node.
+     *
+     * @param interfaceName the interface name.
+     * @param dpnId the data plane node identifier, null if the interface is
+     *              not available on any node at the moment.
+     * @return future signaling completion of the operation.
+     */
+    CompletableFuture<Void> bindToInterface(String interfaceName, BigInteger dpnId) {
+        SfcGeniusBoundServiceWriter boundServiceWriter = getBoundServiceWriter();
+
+        LOG.debug("Bind SFC service to interface {} on node {}", interfaceName, dpnId);
+
+        return CompletableFuture.allOf(
+                dpnId == null ? CompletableFuture.completedFuture(null) : interfaceStateUp(interfaceName, dpnId),
+                boundServiceWriter.bindService(interfaceName)
+        );
+    }
+
+    /**
+     * Unbind SFC service from interface located on a known data plane node.
+     * Will also remove the terminating service action if this is the last
+     * interface bound to SFC service on the node.
+     *
+     * @param interfaceName the interface name.
+     * @param dpnId the data plane node identifier, null if the interface is
+     *              not available on any node at the moment.
+     * @return future signaling completion of the operation.
+     */
+    CompletableFuture<Void> unbindFromInterface(String interfaceName, BigInteger dpnId) {
+        SfcGeniusBoundServiceWriter boundServiceWriter = getBoundServiceWriter();
+
+        LOG.debug("Unbind SFC service from interface {} on node {}", interfaceName, dpnId);
+
+        return CompletableFuture.allOf(
+                dpnId == null ? CompletableFuture.completedFuture(null) : interfaceStateDown(interfaceName, dpnId),
+                boundServiceWriter.unbindService(interfaceName)
+        );
+    }
+
+    /**
+     * An interface bound to SFC service became available on a node. Will add
+     * the terminating service action if this is the first interface bound to
+     * SFC service on the node. The service binding itself is not affected.
+     *
+     * @param interfaceName the interface name.
+     * @param dpnId the data plane node identifier.
+     * @return future signaling completion of the operation.
+     */
+    CompletableFuture<Void> interfaceStateUp(String interfaceName, BigInteger dpnId) {
+        SfcGeniusDpnIfWriter dpnIfWriter = getDpnIfWriter();
+        SfcGeniusTsaWriter tsaWriter = getTsaWriter();
+
+        return dpnIfWriter.addInterface(dpnId, interfaceName)
+                .thenCompose(optionalNewDpn -> optionalNewDpn
+                        .map(tsaWriter::createTerminatingServiceAction)
+                        .orElse(CompletableFuture.completedFuture(null)));
+    }
+
+    /**
+     * An interface bound to SFC service became unavailable on a node. Will
+     * remove the terminating service action if this was the last interface
+     * bound to SFC service on the node. The service binding itself is not
+     * affected.
+     *
+     * @param interfaceName the interface name.
+     * @param dpnId the data plane node identifier.
+     * @return future signaling completion of the operation.
+     */
+    CompletableFuture<Void> interfaceStateDown(String interfaceName, BigInteger dpnId) {
+        SfcGeniusDpnIfWriter dpnIfWriter = getDpnIfWriter();
+        SfcGeniusTsaWriter tsaWriter = getTsaWriter();
+
+        return dpnIfWriter.removeInterfaceFromDpn(dpnId, interfaceName)
+                .thenCompose(optionalOldDpn -> optionalOldDpn
+                        .map(tsaWriter::removeTerminatingServiceAction)
+                        .orElse(CompletableFuture.completedFuture(null)));
+    }
+
     protected SfcGeniusIfStateReader getIfStateReader() {
         return new SfcGeniusIfStateReader(transaction, executor);
     }
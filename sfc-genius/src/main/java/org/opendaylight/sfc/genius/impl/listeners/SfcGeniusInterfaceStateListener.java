@@ -14,6 +14,7 @@ import org.opendaylight.genius.datastoreutils.AsyncDataTreeChangeListenerBase;
 import org.opendaylight.sfc.genius.impl.handlers.ISfcGeniusInterfaceServiceHandler;
 import org.opendaylight.sfc.genius.impl.utils.SfcGeniusRuntimeException;
 import org.opendaylight.sfc.genius.impl.utils.SfcGeniusUtils;
+import org.opendaylight.sfc.genius.util.SfcGeniusRpcClient;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.interfaces.rev140508.InterfacesState;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.interfaces.rev140508.interfaces.state.Interface;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
@@ -54,6 +55,8 @@ public class SfcGeniusInterfaceStateListener extends AsyncDataTreeChangeListener
         // See org.opendaylight.genius.interfacemanager.listeners.InterfaceInventoryStateListener#remove
         LOG.debug("Received interface state remove event {} {}", instanceIdentifier, interfaceState);
         String interfaceName = interfaceState.getName();
+        // The cached lookups involving the interface are stale whatever the event
+        SfcGeniusRpcClient.getInstance().invalidateInterface(interfaceName);
         BigInteger dpnId;
         try {
             dpnId = SfcGeniusUtils.getDpnIdFromLowerLayerIfList(interfaceState.getLowerLayerIf());
@@ -68,7 +71,9 @@ public class SfcGeniusInterfaceStateListener extends AsyncDataTreeChangeListener
     protected void update(InstanceIdentifier<Interface> instanceIdentifier, Interface interfaceState, Interface t1) {
         // NOT VM migration: VM unavailable for any other reason
         // See org.opendaylight.genius.interfacemanager.listeners.InterfaceInventoryStateListener#update
-        // Do nothing, should be handled by a failover mechanism
+        // Do nothing, should be handled by a failover mechanism, but forget
+        // the cached lookups involving the interface
+        SfcGeniusRpcClient.getInstance().invalidateInterface(interfaceState.getName());
     }
 
     @Override
@@ -77,6 +82,8 @@ public class SfcGeniusInterfaceStateListener extends AsyncDataTreeChangeListener
         // See org.opendaylight.genius.interfacemanager.listeners.InterfaceInventoryStateListener#remove
         LOG.debug("Received interface state add event {} {}", instanceIdentifier, interfaceState);
         String interfaceName = interfaceState.getName();
+        // The cached lookups involving the interface are stale whatever the event
+        SfcGeniusRpcClient.getInstance().invalidateInterface(interfaceName);
         BigInteger dpnId;
         try {
             dpnId = SfcGeniusUtils.getDpnIdFromLowerLayerIfList(interfaceState.getLowerLayerIf());
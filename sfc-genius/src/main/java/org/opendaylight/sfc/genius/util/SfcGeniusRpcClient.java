@@ -7,8 +7,18 @@
  */
 package org.opendaylight.sfc.genius.util;
 
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
 import org.opendaylight.yang.gen.v1.urn.ericsson.params.xml.ns.yang.sfc.sff.logical.rev160620.DpnIdType;
@@ -32,6 +42,16 @@ import org.slf4j.LoggerFactory;
 /**
  * This class centralizes all Genius RPC accesses which SFC openflow renderer
  * needs when using logical SFFs
+ * <p>
+ * The results are cached: the DPN ID of each logical interface, the tunnel
+ * interface between each pair of DPNs, and the egress actions of each
+ * interface. The cache entries of an interface are invalidated on the state
+ * changes of the interface; a lookup in flight while any interface is
+ * invalidated is not cached, since it may have read the previous state. Each
+ * cache is bounded, and its entries expire after a while, in case a state
+ * change was missed. The lookups needed to render a whole RSP can be
+ * prefetched, the RPCs being invoked all at once and their results awaited
+ * afterwards, instead of one hop at a time.
  * @author Diego Granados (diego.jesus.granados.lopez@ericsson.com)
  */
 public class SfcGeniusRpcClient {
@@ -44,11 +64,46 @@ public class SfcGeniusRpcClient {
      * Tunnel key used in the transport zone created to support the logical SFF
      */
     private static final long LOGICAL_SFF_TZ_DEFAULT_TUNNEL_KEY = 0;
+    // Bounds of each cache
+    private static final long CACHE_MAX_ENTRIES = 10000;
+    private static final long CACHE_TIME_TO_LIVE_MILLIS = TimeUnit.MINUTES.toMillis(10);
 
-     private SfcGeniusRpcClient() {
-     }
+    // logical interface name -> DPN ID
+    private final Map<String, DpnIdType> dpnIdCache;
+    // (source DPN ID, destination DPN ID) -> tunnel interface name
+    private final Map<DpnPair, String> tunnelInterfaceCache;
+    // interface name -> egress actions, for the SF interfaces and for the transport zone interfaces
+    private final Map<String, List<Action>> egressActionsCache;
+    private final Map<String, List<Action>> tunnelEgressActionsCache;
+    // Incremented on each invalidation, the results of the lookups started before are not cached
+    private final AtomicLong generation = new AtomicLong();
 
-    public static SfcGeniusRpcClient getInstance() {
+    private SfcGeniusRpcClient() {
+        this(CACHE_MAX_ENTRIES, CACHE_TIME_TO_LIVE_MILLIS, Ticker.systemTicker());
+    }
+
+    /**
+     * @param maxEntries the maximum number of entries of each cache
+     * @param timeToLiveMillis the time after which a cached entry is looked up again
+     * @param ticker the time source of the cache expiration
+     */
+    SfcGeniusRpcClient(long maxEntries, long timeToLiveMillis, Ticker ticker) {
+        dpnIdCache = newCache(maxEntries, timeToLiveMillis, ticker);
+        tunnelInterfaceCache = newCache(maxEntries, timeToLiveMillis, ticker);
+        egressActionsCache = newCache(maxEntries, timeToLiveMillis, ticker);
+        tunnelEgressActionsCache = newCache(maxEntries, timeToLiveMillis, ticker);
+    }
+
+    private static <K, V> Map<K, V> newCache(long maxEntries, long timeToLiveMillis, Ticker ticker) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(timeToLiveMillis, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .<K, V>build()
+                .asMap();
+    }
+
+    public static synchronized SfcGeniusRpcClient getInstance() {
 
         if (sfcGeniusRpcClient == null) {
             sfcGeniusRpcClient = new SfcGeniusRpcClient();
@@ -81,45 +136,19 @@ public class SfcGeniusRpcClient {
     public Optional<List<Action>> getEgressActionsFromGeniusRPC(String targetInterfaceName,
             boolean interfaceIsPartOfTheTransportZone) {
 
-        Optional<List<Action>> result = Optional.empty();
-        boolean successful = false;
+        Map<String, List<Action>> cache = getEgressActionsCache(interfaceIsPartOfTheTransportZone);
+        List<Action> actions = cache.get(targetInterfaceName);
+        if (actions != null) {
+            return Optional.of(actions);
+        }
 
         LOG.debug("getEgressActionsFromGeniusRPC: starting (target interface={} in the transport zone:{})",
                 targetInterfaceName, interfaceIsPartOfTheTransportZone);
-        GetEgressActionsForInterfaceInputBuilder builder = new GetEgressActionsForInterfaceInputBuilder();
-        builder.setIntfName(targetInterfaceName);
-        if (interfaceIsPartOfTheTransportZone) {
-            builder.setTunnelKey(LOGICAL_SFF_TZ_DEFAULT_TUNNEL_KEY);
-        }
-
-        GetEgressActionsForInterfaceInput input = builder.build();
-        try {
-            OdlInterfaceRpcService service = getInterfaceManagerRpcService();
-            if (service != null) {
-                RpcResult<GetEgressActionsForInterfaceOutput> output = service
-                        .getEgressActionsForInterface(input).get();
-                if (output.isSuccessful()) {
-                    result = Optional.of(output.getResult().getAction());
-                    LOG.debug("getEgressInstructionsFromGeniusRPC({}) succeeded",
-                            input);
-                    successful = true;
-                } else {
-                    LOG.error("getEgressInstructionsFromGeniusRPC({}) failed",
-                            input);
-                }
-            } else {
-                LOG.error(
-                        "getEgressInstructionsFromGeniusRPC({}) failed (service couldn't be retrieved)",
-                        input);
-            }
-        } catch (Exception e) {
-            LOG.error("failed to retrieve egress instructions: {}, input was ", e, input);
-        }
-
-        if (!successful) {
-            result = Optional.empty();
-        }
-        return result;
+        long stamp = generation.get();
+        GetEgressActionsForInterfaceInput input =
+                getEgressActionsInput(targetInterfaceName, interfaceIsPartOfTheTransportZone);
+        return cacheResult(cache, targetInterfaceName, stamp, getRpcResult("getEgressActionsFromGeniusRPC",
+                input, invokeGetEgressActions(input), GetEgressActionsForInterfaceOutput::getAction));
     }
 
     /**
@@ -136,45 +165,18 @@ public class SfcGeniusRpcClient {
      */
     public Optional<String> getTargetInterfaceFromGeniusRPC(DpnIdType srcDpid, DpnIdType dstDpid) {
 
-        Optional<String> interfaceName = Optional.empty();
-        boolean successful = false;
+        DpnPair dpnPair = new DpnPair(srcDpid, dstDpid);
+        String interfaceName = tunnelInterfaceCache.get(dpnPair);
+        if (interfaceName != null) {
+            return Optional.of(interfaceName);
+        }
 
         LOG.debug("getTargetInterfaceFromGeniusRPC: starting (src dpnid:{} dst dpnid:{})",
                 srcDpid, dstDpid);
-        GetTunnelInterfaceNameInputBuilder builder = new GetTunnelInterfaceNameInputBuilder();
-        builder.setSourceDpid(srcDpid.getValue());
-        builder.setDestinationDpid(dstDpid.getValue());
-        builder.setTunnelType(TunnelTypeVxlanGpe.class);
-
-
-        GetTunnelInterfaceNameInput input = builder.build();
-        try {
-            ItmRpcService service = getItmRpcService();
-            if (service != null) {
-                RpcResult<GetTunnelInterfaceNameOutput> output = service
-                        .getTunnelInterfaceName(input).get();
-                if (output.isSuccessful()) {
-                    interfaceName = Optional.of(output.getResult().getInterfaceName());
-                    LOG.debug("getTargetInterfaceFromGeniusRPC({}) succeeded",
-                            input);
-                    successful = true;
-                } else {
-                    LOG.error("getTargetInterfaceFromGeniusRPC({}) failed",
-                            input);
-                }
-            } else {
-                LOG.error(
-                        "getTargetInterfaceFromGeniusRPC({}) failed (service couldn't be retrieved)",
-                        input);
-            }
-        } catch (Exception e) {
-            LOG.error("failed to retrieve target interface name: {} ", e);
-        }
-
-        if (!successful) {
-            interfaceName = Optional.empty();
-        }
-        return interfaceName;
+        long stamp = generation.get();
+        GetTunnelInterfaceNameInput input = getTunnelInterfaceNameInput(dpnPair);
+        return cacheResult(tunnelInterfaceCache, dpnPair, stamp, getRpcResult("getTargetInterfaceFromGeniusRPC",
+                input, invokeGetTunnelInterfaceName(input), GetTunnelInterfaceNameOutput::getInterfaceName));
     }
 
     /**Given a neutron interface to which a VM (hosting a SF instance) is attached, the method
@@ -186,43 +188,221 @@ public class SfcGeniusRpcClient {
      */
     public Optional<DpnIdType> getDpnIdFromInterfaceNameFromGeniusRPC(String logicalInterfaceName) {
 
-        Optional<DpnIdType> dpnid = Optional.empty();
-        boolean successful = false;
+        DpnIdType dpnId = dpnIdCache.get(logicalInterfaceName);
+        if (dpnId != null) {
+            return Optional.of(dpnId);
+        }
 
         LOG.debug("getDpnIdFromInterfaceNameFromGeniusRPC: starting (logical interface={})",
                 logicalInterfaceName);
+        long stamp = generation.get();
+        GetDpidFromInterfaceInput input = getDpidFromInterfaceInput(logicalInterfaceName);
+        return cacheResult(dpnIdCache, logicalInterfaceName, stamp, getRpcResult(
+                "getDpnIdFromInterfaceNameFromGeniusRPC", input, invokeGetDpidFromInterface(input),
+                output -> new DpnIdType(output.getDpid())));
+    }
+
+    /**
+     * Fetch the DPN IDs of the given logical interfaces which are not cached
+     * yet, all the RPCs being invoked before any result is awaited
+     *
+     * @param logicalInterfaceNames the neutron interfaces the SFs are attached to
+     */
+    public void prefetchDpnIds(Collection<String> logicalInterfaceNames) {
+        long stamp = generation.get();
+        Map<String, GetDpidFromInterfaceInput> inputs = new LinkedHashMap<>();
+        Map<String, Future<RpcResult<GetDpidFromInterfaceOutput>>> futures = new LinkedHashMap<>();
+        for (String logicalInterfaceName : logicalInterfaceNames) {
+            if (!dpnIdCache.containsKey(logicalInterfaceName) && !futures.containsKey(logicalInterfaceName)) {
+                GetDpidFromInterfaceInput input = getDpidFromInterfaceInput(logicalInterfaceName);
+                inputs.put(logicalInterfaceName, input);
+                futures.put(logicalInterfaceName, invokeGetDpidFromInterface(input));
+            }
+        }
+        futures.forEach((logicalInterfaceName, future) -> cacheResult(dpnIdCache, logicalInterfaceName, stamp,
+                getRpcResult("prefetchDpnIds", inputs.get(logicalInterfaceName), future,
+                        output -> new DpnIdType(output.getDpid()))));
+    }
+
+    /**
+     * Fetch the tunnel interfaces between the given pairs of DPNs which are
+     * not cached yet, then the egress actions of those interfaces, all the
+     * RPCs of each step being invoked before any result is awaited
+     *
+     * @param dpnIdPairs the source and destination DPN IDs of each pair
+     */
+    public void prefetchTunnelInterfaces(Collection<Map.Entry<DpnIdType, DpnIdType>> dpnIdPairs) {
+        long stamp = generation.get();
+        Map<DpnPair, GetTunnelInterfaceNameInput> inputs = new LinkedHashMap<>();
+        Map<DpnPair, Future<RpcResult<GetTunnelInterfaceNameOutput>>> futures = new LinkedHashMap<>();
+        for (Map.Entry<DpnIdType, DpnIdType> dpnIdPair : dpnIdPairs) {
+            DpnPair dpnPair = new DpnPair(dpnIdPair.getKey(), dpnIdPair.getValue());
+            if (!tunnelInterfaceCache.containsKey(dpnPair) && !futures.containsKey(dpnPair)) {
+                GetTunnelInterfaceNameInput input = getTunnelInterfaceNameInput(dpnPair);
+                inputs.put(dpnPair, input);
+                futures.put(dpnPair, invokeGetTunnelInterfaceName(input));
+            }
+        }
+        futures.forEach((dpnPair, future) -> cacheResult(tunnelInterfaceCache, dpnPair, stamp,
+                getRpcResult("prefetchTunnelInterfaces", inputs.get(dpnPair), future,
+                        GetTunnelInterfaceNameOutput::getInterfaceName)));
+
+        List<String> tunnelInterfaceNames = new ArrayList<>();
+        for (Map.Entry<DpnIdType, DpnIdType> dpnIdPair : dpnIdPairs) {
+            String interfaceName = tunnelInterfaceCache.get(new DpnPair(dpnIdPair.getKey(), dpnIdPair.getValue()));
+            if (interfaceName != null) {
+                tunnelInterfaceNames.add(interfaceName);
+            }
+        }
+        prefetchEgressActions(tunnelInterfaceNames, true);
+    }
+
+    /**
+     * Fetch the egress actions of the given interfaces which are not cached
+     * yet, all the RPCs being invoked before any result is awaited
+     *
+     * @param interfaceNames the interfaces to use
+     * @param interfacesArePartOfTheTransportZone true for interfaces between switching elements,
+     *        false for the neutron interfaces of SFs
+     */
+    public void prefetchEgressActions(Collection<String> interfaceNames,
+            boolean interfacesArePartOfTheTransportZone) {
+        long stamp = generation.get();
+        Map<String, List<Action>> cache = getEgressActionsCache(interfacesArePartOfTheTransportZone);
+        Map<String, GetEgressActionsForInterfaceInput> inputs = new LinkedHashMap<>();
+        Map<String, Future<RpcResult<GetEgressActionsForInterfaceOutput>>> futures = new LinkedHashMap<>();
+        for (String interfaceName : interfaceNames) {
+            if (!cache.containsKey(interfaceName) && !futures.containsKey(interfaceName)) {
+                GetEgressActionsForInterfaceInput input =
+                        getEgressActionsInput(interfaceName, interfacesArePartOfTheTransportZone);
+                inputs.put(interfaceName, input);
+                futures.put(interfaceName, invokeGetEgressActions(input));
+            }
+        }
+        futures.forEach((interfaceName, future) -> cacheResult(cache, interfaceName, stamp,
+                getRpcResult("prefetchEgressActions", inputs.get(interfaceName), future,
+                        GetEgressActionsForInterfaceOutput::getAction)));
+    }
+
+    /**
+     * Forget the cached data involving an interface, whose state changed
+     *
+     * @param interfaceName the logical or tunnel interface
+     */
+    public void invalidateInterface(String interfaceName) {
+        LOG.debug("invalidateInterface: interface {}", interfaceName);
+        generation.incrementAndGet();
+        dpnIdCache.remove(interfaceName);
+        egressActionsCache.remove(interfaceName);
+        tunnelEgressActionsCache.remove(interfaceName);
+        tunnelInterfaceCache.values().removeIf(interfaceName::equals);
+    }
+
+    /**
+     * Forget all the cached data
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        dpnIdCache.clear();
+        egressActionsCache.clear();
+        tunnelEgressActionsCache.clear();
+        tunnelInterfaceCache.clear();
+    }
+
+    private Map<String, List<Action>> getEgressActionsCache(boolean interfaceIsPartOfTheTransportZone) {
+        return interfaceIsPartOfTheTransportZone ? tunnelEgressActionsCache : egressActionsCache;
+    }
+
+    private static GetEgressActionsForInterfaceInput getEgressActionsInput(String targetInterfaceName,
+            boolean interfaceIsPartOfTheTransportZone) {
+        GetEgressActionsForInterfaceInputBuilder builder = new GetEgressActionsForInterfaceInputBuilder();
+        builder.setIntfName(targetInterfaceName);
+        if (interfaceIsPartOfTheTransportZone) {
+            builder.setTunnelKey(LOGICAL_SFF_TZ_DEFAULT_TUNNEL_KEY);
+        }
+        return builder.build();
+    }
+
+    private static GetTunnelInterfaceNameInput getTunnelInterfaceNameInput(DpnPair dpnPair) {
+        GetTunnelInterfaceNameInputBuilder builder = new GetTunnelInterfaceNameInputBuilder();
+        builder.setSourceDpid(dpnPair.srcDpid.getValue());
+        builder.setDestinationDpid(dpnPair.dstDpid.getValue());
+        builder.setTunnelType(TunnelTypeVxlanGpe.class);
+        return builder.build();
+    }
+
+    private static GetDpidFromInterfaceInput getDpidFromInterfaceInput(String logicalInterfaceName) {
         GetDpidFromInterfaceInputBuilder builder = new GetDpidFromInterfaceInputBuilder();
         builder.setIntfName(logicalInterfaceName);
-        GetDpidFromInterfaceInput input = builder.build();
+        return builder.build();
+    }
 
+    private Future<RpcResult<GetEgressActionsForInterfaceOutput>> invokeGetEgressActions(
+            GetEgressActionsForInterfaceInput input) {
+        OdlInterfaceRpcService service = getInterfaceManagerRpcService();
+        return service == null ? null : service.getEgressActionsForInterface(input);
+    }
+
+    private Future<RpcResult<GetTunnelInterfaceNameOutput>> invokeGetTunnelInterfaceName(
+            GetTunnelInterfaceNameInput input) {
+        ItmRpcService service = getItmRpcService();
+        return service == null ? null : service.getTunnelInterfaceName(input);
+    }
+
+    private Future<RpcResult<GetDpidFromInterfaceOutput>> invokeGetDpidFromInterface(
+            GetDpidFromInterfaceInput input) {
+        OdlInterfaceRpcService service = getInterfaceManagerRpcService();
+        return service == null ? null : service.getDpidFromInterface(input);
+    }
+
+    /**
+     * Wait for the result of an RPC
+     *
+     * @param operation the name of the operation, for logging
+     * @param input the RPC input, for logging
+     * @param future the RPC result, null if the RPC service couldn't be retrieved
+     * @param extractor extracts the value from the RPC output
+     * @return the value, or empty when the RPC failed
+     */
+    private static <O, V> Optional<V> getRpcResult(String operation, Object input,
+            Future<RpcResult<O>> future, Function<O, V> extractor) {
+        if (future == null) {
+            LOG.error("{}({}) failed (service couldn't be retrieved)", operation, input);
+            return Optional.empty();
+        }
         try {
-            OdlInterfaceRpcService service = getInterfaceManagerRpcService();
-            if (service != null) {
-                LOG.debug("getDpnIdFromInterfaceNameFromGeniusRPC: service is not null, invoking rpc");
-                RpcResult<GetDpidFromInterfaceOutput> output = service
-                        .getDpidFromInterface(input).get();
-                if (output.isSuccessful()) {
-                    dpnid = Optional.of(new DpnIdType(output.getResult().getDpid()));
-                    LOG.debug("getDpnIdFromInterfaceNameFromGeniusRPC({}) succeeded: {}",
-                            input, output);
-                    successful = true;
-                } else {
-                    LOG.error("getTargetInterfaceFromGeniusRPC({}) failed: {}",
-                            input, output);
-                }
-            } else {
-                LOG.error(
-                        "getTargetInterfaceFromGeniusRPC({}) failed (service couldn't be retrieved)",
-                        input);
+            RpcResult<O> output = future.get();
+            if (output.isSuccessful()) {
+                LOG.debug("{}({}) succeeded: {}", operation, input, output);
+                return Optional.ofNullable(extractor.apply(output.getResult()));
             }
+            LOG.error("{}({}) failed: {}", operation, input, output);
         } catch (Exception e) {
-            LOG.error("failed to retrieve target interface name: {} ", e);
+            LOG.error("{}({}) failed", operation, input, e);
         }
+        return Optional.empty();
+    }
 
-        if (!successful) {
-            dpnid = Optional.empty();
-        }
-        return dpnid;
+    /**
+     * Cache the result of a lookup, unless an invalidation happened since the
+     * lookup started. The invalidations bump the generation before removing
+     * the entries, so a result put concurrently is either removed by the
+     * invalidation or by the check that follows.
+     *
+     * @param cache the cache to update
+     * @param key the key of the lookup
+     * @param stamp the generation when the lookup started
+     * @param result the result of the lookup
+     * @return the result
+     */
+    private <K, V> Optional<V> cacheResult(Map<K, V> cache, K key, long stamp, Optional<V> result) {
+        result.ifPresent(value -> {
+            cache.put(key, value);
+            if (generation.get() != stamp) {
+                cache.remove(key, value);
+            }
+        });
+        return result;
     }
 
     private ItmRpcService getItmRpcService() {
@@ -232,4 +412,39 @@ public class SfcGeniusRpcClient {
     private OdlInterfaceRpcService getInterfaceManagerRpcService() {
         return interfaceManagerRpcService;
     }
+
+    /**
+     * A source and destination DPN pair, the key of the tunnel interface cache.
+     */
+    private static final class DpnPair {
+        private final DpnIdType srcDpid;
+        private final DpnIdType dstDpid;
+
+        DpnPair(DpnIdType srcDpid, DpnIdType dstDpid) {
+            this.srcDpid = srcDpid;
+            this.dstDpid = dstDpid;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DpnPair)) {
+                return false;
+            }
+            DpnPair other = (DpnPair) obj;
+            return srcDpid.equals(other.srcDpid) && dstDpid.equals(other.dstDpid);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * srcDpid.hashCode() + dstDpid.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return srcDpid.getValue() + "->" + dstDpid.getValue();
+        }
+    }
 }
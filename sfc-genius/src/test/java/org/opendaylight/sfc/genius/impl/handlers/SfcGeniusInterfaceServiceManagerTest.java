@@ -9,19 +9,26 @@
 package org.opendaylight.sfc.genius.impl.handlers;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.common.util.concurrent.Futures;
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -30,8 +37,10 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
+import org.opendaylight.sfc.genius.impl.handlers.readers.SfcGeniusIfStateReader;
 import org.opendaylight.sfc.genius.impl.handlers.readers.SfcGeniusSfReader;
 import org.opendaylight.sfc.genius.impl.utils.SfcGeniusRuntimeException;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
@@ -40,15 +49,24 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.genius.itm.rpcs.rev160406.I
 @RunWith(MockitoJUnitRunner.class)
 public class SfcGeniusInterfaceServiceManagerTest {
 
+    private static final BigInteger DPN1 = BigInteger.valueOf(1);
+    private static final BigInteger DPN2 = BigInteger.valueOf(2);
+
     @Mock
     ReadWriteTransaction readWriteTransaction;
 
+    @Mock
+    ReadOnlyTransaction readOnlyTransaction;
+
     @Mock
     DataBroker dataBroker;
 
     @Mock
     Executor executor;
 
+    @Mock
+    ScheduledExecutorService scheduler;
+
     @Captor
     ArgumentCaptor<Runnable> runnableCaptor;
 
@@ -58,6 +76,9 @@ public class SfcGeniusInterfaceServiceManagerTest {
     @Mock
     SfcGeniusSfReader sfcGeniusSfReader;
 
+    @Mock
+    SfcGeniusIfStateReader sfcGeniusIfStateReader;
+
     @Mock
     SfcGeniusServiceHandler sfcGeniusServiceHandler;
 
@@ -69,37 +90,76 @@ public class SfcGeniusInterfaceServiceManagerTest {
     @Before
     public void setup() {
         when(dataBroker.newReadWriteTransaction()).thenReturn(readWriteTransaction);
+        when(dataBroker.newReadOnlyTransaction()).thenReturn(readOnlyTransaction);
         when(rpcProviderRegistry.getRpcService(ItmRpcService.class)).thenReturn(itmRpcService);
         doAnswer(invocationOnMock -> {
             invocationOnMock.getArgumentAt(0, Runnable.class).run();
             return null;
         }).when(executor).execute(any());
         when(readWriteTransaction.submit()).thenReturn(Futures.immediateCheckedFuture(null));
-        when(sfcGeniusServiceHandler.bindToInterface(any()))
+        when(sfcGeniusIfStateReader.readDpnId("IF1")).thenReturn(CompletableFuture.completedFuture(DPN1));
+        when(sfcGeniusIfStateReader.readDpnId("IF2")).thenReturn(CompletableFuture.completedFuture(DPN2));
+        when(sfcGeniusServiceHandler.bindToInterface(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(sfcGeniusServiceHandler.unbindFromInterface(any(), any()))
                 .thenReturn(CompletableFuture.completedFuture(null));
-        when(sfcGeniusServiceHandler.unbindFromInterface(any()))
+        when(sfcGeniusServiceHandler.interfaceStateUp(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(sfcGeniusServiceHandler.interfaceStateDown(any(), any()))
                 .thenReturn(CompletableFuture.completedFuture(null));
 
-        sfcGeniusInterfaceServiceManager = spy(
-                new SfcGeniusInterfaceServiceManager(dataBroker, rpcProviderRegistry, executor));
+        sfcGeniusInterfaceServiceManager = spy(new SfcGeniusInterfaceServiceManager(
+                dataBroker, rpcProviderRegistry, executor, scheduler, 100));
 
         doReturn(sfcGeniusServiceHandler).when(sfcGeniusInterfaceServiceManager)
                 .getSfcGeniusServiceHandler(readWriteTransaction);
         doReturn(sfcGeniusSfReader).when(sfcGeniusInterfaceServiceManager)
-                .getSfcGeniusSfReader(readWriteTransaction);
+                .getSfcGeniusSfReader(readOnlyTransaction);
+        doReturn(sfcGeniusIfStateReader).when(sfcGeniusInterfaceServiceManager)
+                .getSfcGeniusIfStateReader(readOnlyTransaction);
+    }
+
+    /**
+     * End the current binding window.
+     */
+    private void endBindingWindow() {
+        verify(scheduler, times(1)).schedule(runnableCaptor.capture(), anyLong(), any(TimeUnit.class));
+        runnableCaptor.getValue().run();
     }
 
     @Test
     public void bindInterfacesOfServiceFunction() throws Exception {
         when(sfcGeniusSfReader.readInterfacesOfSf(any()))
-                .thenReturn(CompletableFuture.completedFuture(Arrays.asList("I1", "I2")));
+                .thenReturn(CompletableFuture.completedFuture(Arrays.asList("IF1", "IF2")));
 
         sfcGeniusInterfaceServiceManager.bindInterfacesOfServiceFunction("SF1");
+        verifyZeroInteractions(sfcGeniusSfReader);
+
+        endBindingWindow();
 
         verify(sfcGeniusSfReader).readInterfacesOfSf(new SfName("SF1"));
-        verify(sfcGeniusServiceHandler).bindToInterface("I1");
-        verify(sfcGeniusServiceHandler).bindToInterface("I2");
-        verify(readWriteTransaction).submit();
+        verify(sfcGeniusServiceHandler).bindToInterface("IF1", DPN1);
+        verify(sfcGeniusServiceHandler).bindToInterface("IF2", DPN2);
+        // One transaction per data plane node
+        verify(readWriteTransaction, times(2)).submit();
+        verify(readOnlyTransaction).close();
+    }
+
+    @Test
+    public void bindInterfacesOfServiceFunctionsOnSameDpn() throws Exception {
+        when(sfcGeniusSfReader.readInterfacesOfSf(new SfName("SF1")))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList("IF1")));
+        when(sfcGeniusSfReader.readInterfacesOfSf(new SfName("SF2")))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList("IF3")));
+        when(sfcGeniusIfStateReader.readDpnId("IF3")).thenReturn(CompletableFuture.completedFuture(DPN1));
+
+        sfcGeniusInterfaceServiceManager.bindInterfacesOfServiceFunction("SF1");
+        sfcGeniusInterfaceServiceManager.bindInterfacesOfServiceFunction("SF2");
+        endBindingWindow();
+
+        verify(sfcGeniusServiceHandler).bindToInterface("IF1", DPN1);
+        verify(sfcGeniusServiceHandler).bindToInterface("IF3", DPN1);
+        verify(readWriteTransaction, times(1)).submit();
     }
 
     @Test
@@ -108,9 +168,40 @@ public class SfcGeniusInterfaceServiceManagerTest {
                 .thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
 
         sfcGeniusInterfaceServiceManager.bindInterfacesOfServiceFunction("SF1");
+        endBindingWindow();
 
         verify(sfcGeniusSfReader).readInterfacesOfSf(new SfName("SF1"));
         verifyZeroInteractions(sfcGeniusServiceHandler);
+        verify(readWriteTransaction, never()).submit();
+    }
+
+    @Test
+    public void bindInterfacesOfServiceFunctionUnavailableInterface() throws Exception {
+        when(sfcGeniusSfReader.readInterfacesOfSf(any()))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList("IF3")));
+        CompletableFuture<BigInteger> notFound = new CompletableFuture<>();
+        notFound.completeExceptionally(new SfcGeniusRuntimeException(new NoSuchElementException()));
+        when(sfcGeniusIfStateReader.readDpnId("IF3")).thenReturn(notFound);
+
+        sfcGeniusInterfaceServiceManager.bindInterfacesOfServiceFunction("SF1");
+        endBindingWindow();
+
+        verify(sfcGeniusServiceHandler).bindToInterface("IF3", null);
+        verify(readWriteTransaction).submit();
+    }
+
+    @Test
+    public void lastRequestOfServiceFunctionWins() throws Exception {
+        when(sfcGeniusSfReader.readInterfacesOfSf(any()))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList("IF1")));
+
+        sfcGeniusInterfaceServiceManager.bindInterfacesOfServiceFunction("SF1");
+        sfcGeniusInterfaceServiceManager.unbindInterfacesOfServiceFunction("SF1");
+        endBindingWindow();
+
+        verify(sfcGeniusSfReader, times(1)).readInterfacesOfSf(new SfName("SF1"));
+        verify(sfcGeniusServiceHandler).unbindFromInterface("IF1", DPN1);
+        verify(sfcGeniusServiceHandler, never()).bindToInterface(any(), any());
     }
 
     @Test
@@ -120,27 +211,34 @@ public class SfcGeniusInterfaceServiceManagerTest {
         when(readWriteTransaction.submit()).thenThrow(new SfcGeniusRuntimeException(new Throwable()));
 
         sfcGeniusInterfaceServiceManager.bindInterfacesOfServiceFunction("SF1");
+        endBindingWindow();
     }
 
-    @Test(expected = CompletionException.class)
-    public void bindInterfacesOfServiceFunctionUnknownException() throws Exception {
+    @Test
+    public void bindInterfacesOfServiceFunctionUnknownExceptionNotPropagated() throws Exception {
         when(sfcGeniusSfReader.readInterfacesOfSf(any()))
                 .thenReturn(CompletableFuture.completedFuture(Arrays.asList("IF1", "IF2")));
         when(readWriteTransaction.submit()).thenThrow(new RuntimeException(""));
 
         sfcGeniusInterfaceServiceManager.bindInterfacesOfServiceFunction("SF1");
+        endBindingWindow();
+
+        // Both nodes were attempted
+        verify(readWriteTransaction, times(2)).submit();
     }
 
+    @Test
     public void unbindInterfacesOfServiceFunction() throws Exception {
         when(sfcGeniusSfReader.readInterfacesOfSf(any()))
                 .thenReturn(CompletableFuture.completedFuture(Arrays.asList("IF1", "IF2")));
 
         sfcGeniusInterfaceServiceManager.unbindInterfacesOfServiceFunction("SF1");
+        endBindingWindow();
 
         verify(sfcGeniusSfReader).readInterfacesOfSf(new SfName("SF1"));
-        verify(sfcGeniusServiceHandler).unbindFromInterface("IF1");
-        verify(sfcGeniusServiceHandler).unbindFromInterface("IF2");
-        verify(readWriteTransaction).submit();
+        verify(sfcGeniusServiceHandler).unbindFromInterface("IF1", DPN1);
+        verify(sfcGeniusServiceHandler).unbindFromInterface("IF2", DPN2);
+        verify(readWriteTransaction, times(2)).submit();
     }
 
     @Test
@@ -149,6 +247,7 @@ public class SfcGeniusInterfaceServiceManagerTest {
                 .thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
 
         sfcGeniusInterfaceServiceManager.unbindInterfacesOfServiceFunction("SF1");
+        endBindingWindow();
 
         verify(sfcGeniusSfReader).readInterfacesOfSf(new SfName("SF1"));
         verifyZeroInteractions(sfcGeniusServiceHandler);
@@ -161,14 +260,73 @@ public class SfcGeniusInterfaceServiceManagerTest {
         when(readWriteTransaction.submit()).thenThrow(new SfcGeniusRuntimeException(new Throwable()));
 
         sfcGeniusInterfaceServiceManager.unbindInterfacesOfServiceFunction("SF1");
+        endBindingWindow();
     }
 
-    @Test(expected = CompletionException.class)
-    public void unbindInterfacesOfServiceFunctionUnknownException() throws Exception {
+    @Test
+    public void interfaceStateChangesOfBoundInterface() throws Exception {
         when(sfcGeniusSfReader.readInterfacesOfSf(any()))
-                .thenReturn(CompletableFuture.completedFuture(Arrays.asList("IF1", "IF2")));
-        when(readWriteTransaction.submit()).thenThrow(new RuntimeException(""));
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList("IF1")));
+        sfcGeniusInterfaceServiceManager.bindInterfacesOfServiceFunction("SF1");
+        endBindingWindow();
+
+        // The interface moves from one node to the other
+        sfcGeniusInterfaceServiceManager.interfaceStateDown("IF1", DPN1);
+        sfcGeniusInterfaceServiceManager.interfaceStateUp("IF1", DPN2);
+        verify(scheduler, times(2)).schedule(runnableCaptor.capture(), anyLong(), any(TimeUnit.class));
+        runnableCaptor.getValue().run();
+
+        verify(sfcGeniusServiceHandler).interfaceStateDown("IF1", DPN1);
+        verify(sfcGeniusServiceHandler).interfaceStateUp("IF1", DPN2);
+        // The binding is kept
+        verify(sfcGeniusServiceHandler, times(1)).bindToInterface(any(), any());
+        verify(sfcGeniusSfReader, times(1)).readInterfacesOfSf(any());
+    }
+
+    @Test
+    public void interfaceStateChangesOfUnboundInterface() throws Exception {
+        sfcGeniusInterfaceServiceManager.interfaceStateUp("IF1", DPN1);
+        endBindingWindow();
+
+        verifyZeroInteractions(sfcGeniusServiceHandler);
+        verifyZeroInteractions(sfcGeniusSfReader);
+    }
+
+    @Test
+    public void unbindInterfacesOfRemovedServiceFunction() throws Exception {
+        when(sfcGeniusSfReader.readInterfacesOfSf(any()))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList("IF1")));
+        sfcGeniusInterfaceServiceManager.bindInterfacesOfServiceFunction("SF1");
+        endBindingWindow();
+
+        // The service function is gone by the time its unbinding is handled
+        CompletableFuture<List<String>> notFound = new CompletableFuture<>();
+        notFound.completeExceptionally(new SfcGeniusRuntimeException(new NoSuchElementException()));
+        when(sfcGeniusSfReader.readInterfacesOfSf(any())).thenReturn(notFound);
+        sfcGeniusInterfaceServiceManager.unbindInterfacesOfServiceFunction("SF1");
+        verify(scheduler, times(2)).schedule(runnableCaptor.capture(), anyLong(), any(TimeUnit.class));
+        runnableCaptor.getValue().run();
+
+        verify(sfcGeniusSfReader, times(1)).readInterfacesOfSf(any());
+        verify(sfcGeniusServiceHandler).unbindFromInterface("IF1", DPN1);
+    }
+
+    @Test
+    public void requestsAfterCloseAreIgnored() throws Exception {
+        when(sfcGeniusSfReader.readInterfacesOfSf(any()))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList("IF1")));
+        when(scheduler.awaitTermination(anyLong(), any(TimeUnit.class))).thenReturn(true);
+        sfcGeniusInterfaceServiceManager.bindInterfacesOfServiceFunction("SF1");
+
+        sfcGeniusInterfaceServiceManager.close();
+        // The pending requests are not discarded
+        verify(scheduler).shutdown();
+        verify(scheduler, never()).shutdownNow();
+        endBindingWindow();
+        verify(sfcGeniusServiceHandler).bindToInterface("IF1", DPN1);
 
         sfcGeniusInterfaceServiceManager.unbindInterfacesOfServiceFunction("SF1");
+        sfcGeniusInterfaceServiceManager.interfaceStateDown("IF1", DPN1);
+        verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
     }
 }
@@ -122,14 +122,73 @@ public class SfcGeniusServiceHandlerTest {
         verifyZeroInteractions(sfcGeniusTsaWriter);
     }
 
+    @Test
+    public void bindToInterfaceOfDpn() throws Exception {
+        String interfaceName = "IF1";
+        BigInteger dpnId = BigInteger.valueOf(17);
+
+        when(sfcGeniusDpnIfWriter.addInterface(dpnId, interfaceName))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(dpnId)));
+
+        sfcGeniusServiceHandler.bindToInterface(interfaceName, dpnId);
+
+        verifyZeroInteractions(sfcGeniusIfStateReader);
+        verify(sfcGeniusTsaWriter).createTerminatingServiceAction(dpnId);
+        verify(sfcGeniusBoundServiceWriter).bindService(interfaceName);
+    }
+
+    @Test
+    public void bindToUnavailableInterface() throws Exception {
+        String interfaceName = "IF1";
+
+        sfcGeniusServiceHandler.bindToInterface(interfaceName, null);
+
+        verify(sfcGeniusBoundServiceWriter).bindService(interfaceName);
+        verifyZeroInteractions(sfcGeniusDpnIfWriter);
+        verifyZeroInteractions(sfcGeniusTsaWriter);
+    }
+
+    @Test
+    public void unbindFromInterfaceOfDpn() throws Exception {
+        String interfaceName = "IF1";
+        BigInteger dpnId = BigInteger.valueOf(19);
+
+        when(sfcGeniusDpnIfWriter.removeInterfaceFromDpn(dpnId, interfaceName))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(dpnId)));
+
+        sfcGeniusServiceHandler.unbindFromInterface(interfaceName, dpnId);
+
+        verifyZeroInteractions(sfcGeniusIfStateReader);
+        verify(sfcGeniusTsaWriter).removeTerminatingServiceAction(dpnId);
+        verify(sfcGeniusBoundServiceWriter).unbindService(interfaceName);
+    }
+
     @Test
     public void interfaceStateUp() throws Exception {
+        String interfaceName = "IF1";
+        BigInteger dpnId = BigInteger.valueOf(20);
 
+        when(sfcGeniusDpnIfWriter.addInterface(dpnId, interfaceName))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(dpnId)));
+
+        sfcGeniusServiceHandler.interfaceStateUp(interfaceName, dpnId);
+
+        verify(sfcGeniusTsaWriter).createTerminatingServiceAction(dpnId);
+        verifyZeroInteractions(sfcGeniusBoundServiceWriter);
     }
 
     @Test
     public void interfaceStateDown() throws Exception {
+        String interfaceName = "IF1";
+        BigInteger dpnId = BigInteger.valueOf(20);
 
+        when(sfcGeniusDpnIfWriter.removeInterfaceFromDpn(dpnId, interfaceName))
+                .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        sfcGeniusServiceHandler.interfaceStateDown(interfaceName, dpnId);
+
+        verifyZeroInteractions(sfcGeniusTsaWriter);
+        verifyZeroInteractions(sfcGeniusBoundServiceWriter);
     }
 
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.genius.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.Futures;
+import java.math.BigInteger;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
+import org.opendaylight.yang.gen.v1.urn.ericsson.params.xml.ns.yang.sfc.sff.logical.rev160620.DpnIdType;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.genius.interfacemanager.rpcs.rev160406.GetDpidFromInterfaceInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.genius.interfacemanager.rpcs.rev160406.GetDpidFromInterfaceOutput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.genius.interfacemanager.rpcs.rev160406.GetDpidFromInterfaceOutputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.genius.interfacemanager.rpcs.rev160406.GetEgressActionsForInterfaceInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.genius.interfacemanager.rpcs.rev160406.GetEgressActionsForInterfaceOutputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.genius.interfacemanager.rpcs.rev160406.OdlInterfaceRpcService;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.genius.itm.rpcs.rev160406.GetTunnelInterfaceNameInput;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.genius.itm.rpcs.rev160406.GetTunnelInterfaceNameOutputBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.genius.itm.rpcs.rev160406.ItmRpcService;
+import org.opendaylight.yangtools.yang.common.RpcResultBuilder;
+import org.powermock.reflect.Whitebox;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SfcGeniusRpcClientTest {
+
+    private static final String IF1 = "tap1";
+    private static final String IF2 = "tap2";
+    private static final String TUNNEL_IF = "tun1";
+    private static final DpnIdType DPN1 = new DpnIdType(BigInteger.valueOf(1));
+    private static final DpnIdType DPN2 = new DpnIdType(BigInteger.valueOf(2));
+
+    @Mock
+    private RpcProviderRegistry rpcProviderRegistry;
+
+    @Mock
+    private OdlInterfaceRpcService interfaceManagerRpcService;
+
+    @Mock
+    private ItmRpcService itmRpcService;
+
+    private SfcGeniusRpcClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        when(rpcProviderRegistry.getRpcService(OdlInterfaceRpcService.class)).thenReturn(interfaceManagerRpcService);
+        when(rpcProviderRegistry.getRpcService(ItmRpcService.class)).thenReturn(itmRpcService);
+        when(interfaceManagerRpcService.getDpidFromInterface(any(GetDpidFromInterfaceInput.class)))
+                .thenReturn(Futures.immediateFuture(RpcResultBuilder.success(
+                        new GetDpidFromInterfaceOutputBuilder().setDpid(BigInteger.valueOf(1))).build()));
+        when(interfaceManagerRpcService.getEgressActionsForInterface(any(GetEgressActionsForInterfaceInput.class)))
+                .thenReturn(Futures.immediateFuture(RpcResultBuilder.success(
+                        new GetEgressActionsForInterfaceOutputBuilder().setAction(Collections.emptyList()))
+                        .build()));
+        when(itmRpcService.getTunnelInterfaceName(any(GetTunnelInterfaceNameInput.class)))
+                .thenReturn(Futures.immediateFuture(RpcResultBuilder.success(
+                        new GetTunnelInterfaceNameOutputBuilder().setInterfaceName(TUNNEL_IF)).build()));
+
+        client = Whitebox.invokeConstructor(SfcGeniusRpcClient.class);
+        client.initialize(rpcProviderRegistry);
+    }
+
+    @Test
+    public void lookupsAreCached() {
+        assertEquals(DPN1, client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1).get());
+        assertEquals(DPN1, client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1).get());
+        verify(interfaceManagerRpcService, times(1)).getDpidFromInterface(any(GetDpidFromInterfaceInput.class));
+
+        assertEquals(TUNNEL_IF, client.getTargetInterfaceFromGeniusRPC(DPN1, DPN2).get());
+        assertEquals(TUNNEL_IF, client.getTargetInterfaceFromGeniusRPC(DPN1, DPN2).get());
+        verify(itmRpcService, times(1)).getTunnelInterfaceName(any(GetTunnelInterfaceNameInput.class));
+
+        // The transport zone variant of the egress actions is a different lookup
+        assertTrue(client.getEgressActionsFromGeniusRPC(TUNNEL_IF, true).isPresent());
+        assertTrue(client.getEgressActionsFromGeniusRPC(TUNNEL_IF, true).isPresent());
+        assertTrue(client.getEgressActionsFromGeniusRPC(TUNNEL_IF, false).isPresent());
+        verify(interfaceManagerRpcService, times(2))
+                .getEgressActionsForInterface(any(GetEgressActionsForInterfaceInput.class));
+    }
+
+    @Test
+    public void failedLookupsAreNotCached() {
+        when(interfaceManagerRpcService.getDpidFromInterface(any(GetDpidFromInterfaceInput.class)))
+                .thenReturn(Futures.immediateFuture(
+                        RpcResultBuilder.<GetDpidFromInterfaceOutput>failed().build()));
+        assertFalse(client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1).isPresent());
+        assertFalse(client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1).isPresent());
+        verify(interfaceManagerRpcService, times(2)).getDpidFromInterface(any(GetDpidFromInterfaceInput.class));
+    }
+
+    @Test
+    public void interfaceStateChangeInvalidates() {
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1);
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF2);
+        client.getTargetInterfaceFromGeniusRPC(DPN1, DPN2);
+        client.getEgressActionsFromGeniusRPC(TUNNEL_IF, true);
+
+        client.invalidateInterface(IF1);
+        client.invalidateInterface(TUNNEL_IF);
+
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1);
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF2);
+        verify(interfaceManagerRpcService, times(3)).getDpidFromInterface(any(GetDpidFromInterfaceInput.class));
+        client.getTargetInterfaceFromGeniusRPC(DPN1, DPN2);
+        verify(itmRpcService, times(2)).getTunnelInterfaceName(any(GetTunnelInterfaceNameInput.class));
+        client.getEgressActionsFromGeniusRPC(TUNNEL_IF, true);
+        verify(interfaceManagerRpcService, times(2))
+                .getEgressActionsForInterface(any(GetEgressActionsForInterfaceInput.class));
+    }
+
+    @Test
+    public void prefetchInvokesEachMissingLookupOnce() {
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1);
+        client.prefetchDpnIds(Arrays.asList(IF1, IF2, IF2));
+        verify(interfaceManagerRpcService, times(2)).getDpidFromInterface(any(GetDpidFromInterfaceInput.class));
+
+        Map.Entry<DpnIdType, DpnIdType> pair = new AbstractMap.SimpleImmutableEntry<>(DPN1, DPN2);
+        client.prefetchTunnelInterfaces(Arrays.asList(pair, pair));
+        verify(itmRpcService, times(1)).getTunnelInterfaceName(any(GetTunnelInterfaceNameInput.class));
+        // The egress actions of the tunnel interface are prefetched too
+        verify(interfaceManagerRpcService, times(1))
+                .getEgressActionsForInterface(any(GetEgressActionsForInterfaceInput.class));
+
+        // Everything is cached now
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF2);
+        client.getTargetInterfaceFromGeniusRPC(DPN1, DPN2);
+        client.getEgressActionsFromGeniusRPC(TUNNEL_IF, true);
+        verify(interfaceManagerRpcService, times(2)).getDpidFromInterface(any(GetDpidFromInterfaceInput.class));
+        verify(itmRpcService, times(1)).getTunnelInterfaceName(any(GetTunnelInterfaceNameInput.class));
+        verify(interfaceManagerRpcService, times(1))
+                .getEgressActionsForInterface(any(GetEgressActionsForInterfaceInput.class));
+    }
+
+    @Test
+    public void lookupsInFlightDuringInvalidationAreNotCached() {
+        // The interface changes state while its DPN ID is being looked up
+        when(interfaceManagerRpcService.getDpidFromInterface(any(GetDpidFromInterfaceInput.class)))
+                .thenAnswer(invocation -> {
+                    client.invalidateInterface(IF1);
+                    return Futures.immediateFuture(RpcResultBuilder.success(
+                            new GetDpidFromInterfaceOutputBuilder().setDpid(BigInteger.valueOf(1))).build());
+                });
+        assertEquals(DPN1, client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1).get());
+        client.prefetchDpnIds(Collections.singletonList(IF2));
+        verify(interfaceManagerRpcService, times(2)).getDpidFromInterface(any(GetDpidFromInterfaceInput.class));
+
+        // Neither result is trusted
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1);
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF2);
+        verify(interfaceManagerRpcService, times(4)).getDpidFromInterface(any(GetDpidFromInterfaceInput.class));
+    }
+
+    @Test
+    public void cachesAreBoundedAndExpire() throws Exception {
+        AtomicLong nanos = new AtomicLong();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        client = new SfcGeniusRpcClient(1, 1000, ticker);
+        client.initialize(rpcProviderRegistry);
+
+        // A single entry per cache
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1);
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF2);
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1);
+        verify(interfaceManagerRpcService, times(3)).getDpidFromInterface(any(GetDpidFromInterfaceInput.class));
+
+        // Looked up again once expired
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1);
+        verify(interfaceManagerRpcService, times(3)).getDpidFromInterface(any(GetDpidFromInterfaceInput.class));
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        client.getDpnIdFromInterfaceNameFromGeniusRPC(IF1);
+        verify(interfaceManagerRpcService, times(4)).getDpidFromInterface(any(GetDpidFromInterfaceInput.class));
+    }
+}
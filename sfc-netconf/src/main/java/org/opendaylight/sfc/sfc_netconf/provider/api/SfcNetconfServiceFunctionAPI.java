@@ -8,12 +8,17 @@
 
 package org.opendaylight.sfc.sfc_netconf.provider.api;
 
+import com.google.common.util.concurrent.CheckedFuture;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
 import org.opendaylight.sfc.provider.OpendaylightSfc;
 import org.opendaylight.sfc.provider.api.SfcDataStoreAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
+import org.opendaylight.sfc.provider.api.SfcServiceFunctionLoadSnapshot;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfDataPlaneLocatorName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftTypeName;
@@ -258,4 +263,46 @@ public class SfcNetconfServiceFunctionAPI {
         printTraceStop(LOG);
         return ret;
     }
+
+    /**
+     * Put the monitoring information of several service functions into
+     * the OPERATIONAL datastore, in a single transaction. The monitoring
+     * information of each service function is replaced, its description
+     * information is left untouched.
+     * <p>
+     *
+     * @param monInfos Service Function monitoring information, per Service Function name
+     * @return true if all monInfos were successfully put, false otherwise
+     */
+    public static boolean putServiceFunctionMonitors(Map<SfName, MonitoringInfo> monInfos) {
+        if (monInfos.isEmpty()) {
+            return true;
+        }
+        boolean ret = false;
+        printTraceStart(LOG);
+        if (ODL_SFC.getDataProvider() != null) {
+            WriteTransaction writeTx = ODL_SFC.getDataProvider().newWriteOnlyTransaction();
+            for (Map.Entry<SfName, MonitoringInfo> monInfo : monInfos.entrySet()) {
+                InstanceIdentifier<MonitoringInfo> monInfoIID = InstanceIdentifier.builder(ServiceFunctionsState.class)
+                    .child(ServiceFunctionState.class, new ServiceFunctionStateKey(monInfo.getKey()))
+                    .augmentation(ServiceFunctionState1.class)
+                    .child(SfcSfDescMon.class)
+                    .child(MonitoringInfo.class)
+                    .build();
+                writeTx.put(LogicalDatastoreType.OPERATIONAL, monInfoIID, monInfo.getValue(), true);
+            }
+            CheckedFuture<Void, TransactionCommitFailedException> submitFuture = writeTx.submit();
+            try {
+                submitFuture.checkedGet();
+                monInfos.forEach(SfcServiceFunctionLoadSnapshot.getInstance()::updateLoad);
+                ret = true;
+            } catch (TransactionCommitFailedException e) {
+                LOG.error("Failed to put MonitoringInfo of {} SFs: {}", monInfos.size(), e.getMessage());
+            }
+        } else {
+            LOG.error("Data Provider is null.");
+        }
+        printTraceStop(LOG);
+        return ret;
+    }
 }
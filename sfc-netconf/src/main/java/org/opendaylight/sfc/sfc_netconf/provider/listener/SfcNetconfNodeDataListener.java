@@ -60,6 +60,8 @@ public class SfcNetconfNodeDataListener extends SfcNetconfAbstractDataListener i
 
     private static SfcProviderSfDescriptionMonitorAPI getSfDescMon = new SfcProviderSfDescriptionMonitorAPI();
 
+    private final SfcNetconfSfMonitorScheduler sfMonitorScheduler = new SfcNetconfSfMonitorScheduler();
+
     public static final InstanceIdentifier<Topology> NETCONF_TOPO_IID = InstanceIdentifier.create(NetworkTopology.class)
         .child(Topology.class, new TopologyKey(new TopologyId(TopologyNetconf.QNAME.getLocalName())));
 
@@ -182,14 +184,10 @@ public class SfcNetconfNodeDataListener extends SfcNetconfAbstractDataListener i
                                     if (monInfo != null) {
                                         SfcNetconfServiceFunctionAPI.putServiceFunctionMonitor(monInfo, sfNodeName);
                                     }
+                                    sfMonitorScheduler.startMonitoring(nodeName);
                                 } else {
                                     LOG.error("Failed to create SF from Netconf node {}", nodeName);
                                 }
-
-                                GetSfDescriptionMonitoringInfoDynamicThread sfDescriptionMonitoringInfoDynamicThread =
-                                        new GetSfDescriptionMonitoringInfoDynamicThread(nodeName);
-                                Thread thread = new Thread(sfDescriptionMonitoringInfoDynamicThread);
-                                thread.start();
                             } else { // SFF
                                 ServiceFunctionForwarder sff =
                                         SfcNetconfServiceForwarderAPI.buildServiceForwarderFromNetconf(nodeName, nnode);
@@ -208,6 +206,7 @@ public class SfcNetconfNodeDataListener extends SfcNetconfAbstractDataListener i
                             // connecting for various reasons:
                             // disconnect from remote device, network connectivity loss etc.
                             LOG.info("Netconf device disconnected, deleting SFF {}", nodeName);
+                            sfMonitorScheduler.stopMonitoring(nodeName);
                             if (SfcProviderServiceForwarderAPI.deleteServiceFunctionForwarder(new SffName(nodeName))) {
                                 LOG.info("SFF {} deleted successfully", nodeName);
                             } else {
@@ -218,6 +217,7 @@ public class SfcNetconfNodeDataListener extends SfcNetconfAbstractDataListener i
                         case UnableToConnect: {
                             // Its over for the device, no more reconnects
                             LOG.info("Unable to connected to Netconf device, deleting SFF {}", nodeName);
+                            sfMonitorScheduler.stopMonitoring(nodeName);
                             if (SfcProviderServiceForwarderAPI.deleteServiceFunctionForwarder(new SffName(nodeName))) {
                                 LOG.info("SFF {} deleted successfully", nodeName);
                             } else {
@@ -230,6 +230,16 @@ public class SfcNetconfNodeDataListener extends SfcNetconfAbstractDataListener i
             }
         }
 
+        // Stop monitoring the SFs whose Netconf node is gone
+        for (InstanceIdentifier<?> removedPath : change.getRemovedPaths()) {
+            if (removedPath.getTargetType() == NetconfNode.class) {
+                NodeKey nodeKey = removedPath.firstKeyOf(Node.class, NodeKey.class);
+                if (nodeKey != null) {
+                    sfMonitorScheduler.stopMonitoring(nodeKey.getNodeId().getValue());
+                }
+            }
+        }
+
         printTraceStop(LOG);
     }
 
@@ -250,36 +260,8 @@ public class SfcNetconfNodeDataListener extends SfcNetconfAbstractDataListener i
     @Override
     public void close() throws Exception {
         closeDataChangeListener();
+        sfMonitorScheduler.close();
     }
 
 }
 
-
-class GetSfDescriptionMonitoringInfoDynamicThread implements Runnable {
-
-    private static final Logger LOG = LoggerFactory.getLogger(GetSfDescriptionMonitoringInfoDynamicThread.class);
-    private int ticket = 10;
-    private String nodeName;
-
-    public GetSfDescriptionMonitoringInfoDynamicThread(String nodeName) {
-        this.nodeName = nodeName;
-    }
-
-    @Override
-    public void run() {
-        while (true) {
-            printTraceStart(LOG);
-            MonitoringInfo monInfo = SfcNetconfServiceFunctionAPI.getServiceFunctionMonitor(nodeName);
-            if (monInfo != null) {
-                SfName sfNodeName = new SfName(nodeName);
-                SfcNetconfServiceFunctionAPI.putServiceFunctionMonitor(monInfo, sfNodeName);
-            }
-            try {
-                Thread.sleep(5000);
-            } catch (InterruptedException e) {
-                LOG.warn("failed to ....", e);
-            }
-            printTraceStop(LOG);
-        }
-    }
-}
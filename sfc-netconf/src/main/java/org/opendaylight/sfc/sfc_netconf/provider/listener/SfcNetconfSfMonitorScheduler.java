@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sfc_netconf.provider.listener;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.opendaylight.sfc.sfc_netconf.provider.api.SfcNetconfServiceFunctionAPI;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rev141201.service.functions.state.service.function.state.sfc.sf.desc.mon.MonitoringInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Polls the monitoring information of the NETCONF service functions, using a
+ * small pool of threads shared by all of them.
+ * <p>
+ * Each SF is polled at its own interval: the interval is reset to the minimum
+ * whenever the monitoring information changes, and doubled (up to the maximum)
+ * when it does not change or cannot be read. The first poll of a SF is delayed
+ * by a random amount, so that SFs connecting together are not polled together.
+ * <p>
+ * The monitoring information read is not written right away: the pending
+ * updates of all the SFs are flushed periodically in a single transaction,
+ * by a thread of its own so that slow writes do not delay the polls. The
+ * updates of a failed flush are queued again for the next one.
+ */
+class SfcNetconfSfMonitorScheduler implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcNetconfSfMonitorScheduler.class);
+
+    static final int POOL_SIZE = 4;
+    static final long MIN_POLL_INTERVAL_MS = 5000;
+    static final long MAX_POLL_INTERVAL_MS = 60000;
+    static final long FLUSH_INTERVAL_MS = 1000;
+
+    private final ScheduledExecutorService executor;
+    private final ScheduledExecutorService flushExecutor;
+    private final Function<String, MonitoringInfo> monitorReader;
+    private final Predicate<Map<SfName, MonitoringInfo>> monitorWriter;
+    private final long minPollInterval;
+    private final long maxPollInterval;
+
+    private final Map<String, SfMonitor> monitors = new ConcurrentHashMap<>();
+    private final Map<SfName, MonitoringInfo> pendingMonitors = new HashMap<>();
+
+    SfcNetconfSfMonitorScheduler() {
+        this(SfcNetconfServiceFunctionAPI::getServiceFunctionMonitor,
+                SfcNetconfServiceFunctionAPI::putServiceFunctionMonitors,
+                MIN_POLL_INTERVAL_MS, MAX_POLL_INTERVAL_MS, FLUSH_INTERVAL_MS,
+                new ScheduledThreadPoolExecutor(POOL_SIZE,
+                        new ThreadFactoryBuilder().setNameFormat("SfcNetconfSfMonitor-%d").setDaemon(true).build()),
+                Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder().setNameFormat("SfcNetconfSfMonitorFlush").setDaemon(true).build()));
+    }
+
+    /**
+     * @param monitorReader - reads the monitoring information of a SF, null if it cannot be read
+     * @param monitorWriter - writes the monitoring information of several SFs, false on failure
+     * @param minPollInterval - poll interval of a SF whose monitoring information changes, in ms
+     * @param maxPollInterval - poll interval of a SF whose monitoring information does not change, in ms
+     * @param flushInterval - interval between writes of the monitoring information, in ms
+     * @param pollExecutor - executor of the polls, shut down with the scheduler
+     * @param flushExecutor - executor of the writes, shut down with the scheduler
+     */
+    SfcNetconfSfMonitorScheduler(Function<String, MonitoringInfo> monitorReader,
+            Predicate<Map<SfName, MonitoringInfo>> monitorWriter, long minPollInterval, long maxPollInterval,
+            long flushInterval, ScheduledThreadPoolExecutor pollExecutor, ScheduledExecutorService flushExecutor) {
+        this.monitorReader = monitorReader;
+        this.monitorWriter = monitorWriter;
+        this.minPollInterval = minPollInterval;
+        this.maxPollInterval = maxPollInterval;
+        // Cancelled polls are not kept in the queue until their delay expires
+        pollExecutor.setRemoveOnCancelPolicy(true);
+        this.executor = pollExecutor;
+        this.flushExecutor = flushExecutor;
+        flushExecutor.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start polling the monitoring information of a SF. A SF already polled
+     * is restarted from the minimum interval.
+     *
+     * @param nodeName - the NETCONF node name of the SF
+     */
+    void startMonitoring(String nodeName) {
+        SfMonitor monitor = new SfMonitor(nodeName);
+        SfMonitor previous = monitors.put(nodeName, monitor);
+        if (previous != null) {
+            previous.cancel();
+        }
+        long jitter = ThreadLocalRandom.current().nextLong(minPollInterval);
+        monitor.schedule(jitter);
+        LOG.debug("Monitoring of SF {} starts in {} ms", nodeName, jitter);
+    }
+
+    /**
+     * Stop polling the monitoring information of a SF, and drop its pending
+     * update if any.
+     *
+     * @param nodeName - the NETCONF node name of the SF
+     */
+    void stopMonitoring(String nodeName) {
+        SfMonitor monitor = monitors.remove(nodeName);
+        if (monitor != null) {
+            monitor.cancel();
+            synchronized (pendingMonitors) {
+                pendingMonitors.remove(new SfName(nodeName));
+            }
+            LOG.debug("Monitoring of SF {} stopped", nodeName);
+        }
+    }
+
+    boolean isMonitoring(String nodeName) {
+        return monitors.containsKey(nodeName);
+    }
+
+    /**
+     * @param nodeName - the NETCONF node name of the SF
+     * @return the current poll interval of the SF in ms, or -1 if not monitored
+     */
+    long getPollInterval(String nodeName) {
+        SfMonitor monitor = monitors.get(nodeName);
+        return monitor == null ? -1 : monitor.interval;
+    }
+
+    /**
+     * Write the pending monitoring information of all the SFs in one
+     * transaction. If the write fails, the information is queued again,
+     * unless it has been superseded or its SF is not monitored anymore.
+     */
+    void flush() {
+        Map<SfName, MonitoringInfo> monInfos;
+        synchronized (pendingMonitors) {
+            if (pendingMonitors.isEmpty()) {
+                return;
+            }
+            monInfos = new HashMap<>(pendingMonitors);
+            pendingMonitors.clear();
+        }
+        boolean written = false;
+        try {
+            written = monitorWriter.test(monInfos);
+            if (written) {
+                LOG.debug("MonitoringInfo of {} SFs written", monInfos.size());
+            } else {
+                LOG.warn("Failed to write MonitoringInfo of SFs {}", monInfos.keySet());
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Failed to write MonitoringInfo of SFs {}", monInfos.keySet(), e);
+        }
+        if (!written) {
+            // The polls only queue changed information, it would not be queued again otherwise
+            synchronized (pendingMonitors) {
+                monInfos.forEach((sfName, monInfo) -> {
+                    if (monitors.containsKey(sfName.getValue())) {
+                        pendingMonitors.putIfAbsent(sfName, monInfo);
+                    }
+                });
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        monitors.values().forEach(SfMonitor::cancel);
+        monitors.clear();
+        executor.shutdownNow();
+        flushExecutor.shutdownNow();
+    }
+
+    private final class SfMonitor implements Runnable {
+
+        private final String nodeName;
+        private final SfName sfName;
+        private MonitoringInfo lastMonInfo;
+        private volatile long interval;
+        private volatile boolean cancelled;
+        private ScheduledFuture<?> future;
+
+        SfMonitor(String nodeName) {
+            this.nodeName = nodeName;
+            this.sfName = new SfName(nodeName);
+            this.interval = minPollInterval;
+        }
+
+        synchronized void schedule(long delay) {
+            if (cancelled) {
+                return;
+            }
+            try {
+                future = executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                LOG.debug("Monitoring of SF {} not rescheduled, scheduler closed", nodeName);
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            MonitoringInfo monInfo = null;
+            try {
+                monInfo = monitorReader.apply(nodeName);
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to read MonitoringInfo of SF {}", nodeName, e);
+            }
+
+            if (monInfo != null && !monInfo.equals(lastMonInfo)) {
+                lastMonInfo = monInfo;
+                interval = minPollInterval;
+                synchronized (pendingMonitors) {
+                    if (!cancelled) {
+                        pendingMonitors.put(sfName, monInfo);
+                    }
+                }
+            } else {
+                interval = Math.min(interval * 2, maxPollInterval);
+            }
+            schedule(interval);
+        }
+    }
+}
@@ -14,7 +14,9 @@ import static org.junit.Assert.assertTrue;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
@@ -253,6 +255,31 @@ public class SfcNetconfServiceFunctionAPITest extends AbstractDataBrokerTest {
         assertTrue("Must be true", result);
     }
 
+    /*
+     * test, whether monitors of several service functions are put in one go, keeping their description
+     */
+    @Test
+    public void testPutServiceFunctionMonitors() throws Exception {
+        assertTrue("Must be true", writeServiceFunctionStateAugmentation());
+        DescriptionInfo descInfo = new DescriptionInfoBuilder().setType("firewall").build();
+        assertTrue("Must be true", SfcNetconfServiceFunctionAPI.putServiceFunctionDescription(descInfo, SF_STATE_NAME));
+
+        Map<SfName, MonitoringInfo> monInfos = new HashMap<>();
+        monInfos.put(SF_STATE_NAME, new MonitoringInfoBuilder().setLiveness(true).build());
+        monInfos.put(SF_NAME, new MonitoringInfoBuilder().setLiveness(false).build());
+        assertTrue("Must be true", SfcNetconfServiceFunctionAPI.putServiceFunctionMonitors(monInfos));
+
+        SfcSfDescMon readSfcSfDescMon =
+                SfcProviderServiceFunctionAPI.readServiceFunctionDescriptionMonitor(SF_STATE_NAME);
+        assertNotNull("Must be not null", readSfcSfDescMon);
+        assertTrue("Must be true", readSfcSfDescMon.getMonitoringInfo().isLiveness());
+        assertEquals("Must be equal", "firewall", readSfcSfDescMon.getDescriptionInfo().getType());
+
+        readSfcSfDescMon = SfcProviderServiceFunctionAPI.readServiceFunctionDescriptionMonitor(SF_NAME);
+        assertNotNull("Must be not null", readSfcSfDescMon);
+        assertEquals("Must be equal", Boolean.FALSE, readSfcSfDescMon.getMonitoringInfo().isLiveness());
+    }
+
     /**
      * Write service function state with augmentation
      */
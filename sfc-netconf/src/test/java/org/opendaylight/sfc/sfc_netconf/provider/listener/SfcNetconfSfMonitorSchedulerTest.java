@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sfc_netconf.provider.listener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rev141201.service.functions.state.service.function.state.sfc.sf.desc.mon.MonitoringInfo;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rev141201.service.functions.state.service.function.state.sfc.sf.desc.mon.MonitoringInfoBuilder;
+
+/*
+ * The flushes are called by the tests, and the tests wait for the polls they
+ * need with latches
+ */
+public class SfcNetconfSfMonitorSchedulerTest {
+
+    private static final long MIN_INTERVAL = 20;
+    private static final long MAX_INTERVAL = 80;
+    // Never flushed by the scheduler during a test
+    private static final long FLUSH_INTERVAL = TimeUnit.HOURS.toMillis(1);
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final Map<String, CountDownLatch> pollLatches = new ConcurrentHashMap<>();
+    private final Map<String, MonitoringInfo> deviceMonInfos = new ConcurrentHashMap<>();
+    private final List<Map<SfName, MonitoringInfo>> writes = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicBoolean writeFails = new AtomicBoolean();
+    private ScheduledThreadPoolExecutor pollExecutor;
+    private SfcNetconfSfMonitorScheduler scheduler;
+
+    @Before
+    public void init() {
+        pollExecutor = new ScheduledThreadPoolExecutor(1);
+        scheduler = new SfcNetconfSfMonitorScheduler(nodeName -> {
+            MonitoringInfo monInfo = deviceMonInfos.get(nodeName);
+            CountDownLatch pollLatch = pollLatches.get(nodeName);
+            if (pollLatch != null) {
+                pollLatch.countDown();
+            }
+            return monInfo;
+        }, monInfos -> {
+            if (writeFails.get()) {
+                return false;
+            }
+            writes.add(new HashMap<>(monInfos));
+            return true;
+        }, MIN_INTERVAL, MAX_INTERVAL, FLUSH_INTERVAL, pollExecutor, Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @After
+    public void close() {
+        scheduler.close();
+    }
+
+    /*
+     * Start monitoring a SF and wait for the given number of polls. A poll
+     * queues its monitoring information before the next one starts.
+     */
+    private void startAndWaitForPolls(String nodeName, int pollCount) throws InterruptedException {
+        CountDownLatch pollLatch = new CountDownLatch(pollCount);
+        pollLatches.put(nodeName, pollLatch);
+        scheduler.startMonitoring(nodeName);
+        assertTrue(pollLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void monitorsAreWrittenTogether() throws Exception {
+        deviceMonInfos.put("sf1", new MonitoringInfoBuilder().setLiveness(true).build());
+        deviceMonInfos.put("sf2", new MonitoringInfoBuilder().setLiveness(false).build());
+        startAndWaitForPolls("sf1", 3);
+        startAndWaitForPolls("sf2", 3);
+
+        scheduler.flush();
+        assertEquals(1, writes.size());
+        Map<SfName, MonitoringInfo> written = writes.get(0);
+        assertEquals(2, written.size());
+        assertTrue(written.get(new SfName("sf1")).isLiveness());
+        assertFalse(written.get(new SfName("sf2")).isLiveness());
+
+        // Unchanged monitoring information is written once
+        scheduler.flush();
+        assertEquals(1, writes.size());
+    }
+
+    @Test
+    public void failedWritesAreQueuedAgain() throws Exception {
+        deviceMonInfos.put("sf1", new MonitoringInfoBuilder().setLiveness(true).build());
+        deviceMonInfos.put("sf2", new MonitoringInfoBuilder().setLiveness(false).build());
+        startAndWaitForPolls("sf1", 2);
+        startAndWaitForPolls("sf2", 2);
+
+        writeFails.set(true);
+        scheduler.flush();
+        assertTrue(writes.isEmpty());
+
+        // The monitoring information of a SF not monitored anymore is dropped
+        scheduler.stopMonitoring("sf2");
+        writeFails.set(false);
+        scheduler.flush();
+        assertEquals(1, writes.size());
+        assertEquals(Collections.singleton(new SfName("sf1")), writes.get(0).keySet());
+    }
+
+    @Test
+    public void unchangedMonitorBacksOff() throws Exception {
+        deviceMonInfos.put("sf1", new MonitoringInfoBuilder().setLiveness(true).build());
+        scheduler.startMonitoring("sf1");
+        assertEquals(MIN_INTERVAL, scheduler.getPollInterval("sf1"));
+        scheduler.stopMonitoring("sf1");
+
+        // The interval doubles from the second poll: 40, 80, then stays at 80
+        startAndWaitForPolls("sf1", 4);
+        assertEquals(MAX_INTERVAL, scheduler.getPollInterval("sf1"));
+    }
+
+    @Test
+    public void stopMonitoring() throws Exception {
+        startAndWaitForPolls("sf1", 2);
+        assertTrue(scheduler.isMonitoring("sf1"));
+        scheduler.stopMonitoring("sf1");
+        assertFalse(scheduler.isMonitoring("sf1"));
+        assertEquals(-1, scheduler.getPollInterval("sf1"));
+
+        // No poll is left scheduled
+        assertTrue(pollExecutor.getQueue().isEmpty());
+    }
+}
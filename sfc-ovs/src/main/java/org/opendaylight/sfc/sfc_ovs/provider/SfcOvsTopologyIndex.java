@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sfc_ovs.provider;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.listeners.AbstractClusteredDataTreeChangeListener;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.IpAddress;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.DatapathTypeNetdev;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.InterfaceTypeDpdk;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.InterfaceTypeVxlan;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.InterfaceTypeVxlanGpe;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbNodeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbTerminationPointAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.ovsdb.port._interface.attributes.Options;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.node.TerminationPoint;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of the OVSDB operational topology, kept current by a data
+ * tree change listener.
+ * <p>
+ * It maps:
+ * <ul>
+ * <li>the manager (remote) IP of an OVSDB connection to its node;</li>
+ * <li>the bridge node id (the manager node id, "/bridge/" and the bridge
+ * name) to the OpenFlow node id of the bridge, derived from its datapath
+ * id;</li>
+ * <li>the OpenFlow node id of a bridge to its ports: OpenFlow port numbers
+ * per port name, the VXLAN and VXLAN-GPE ports, and the DPDK ports per
+ * termination point id.</li>
+ * </ul>
+ * The lookups return null when the index does not know the answer; the
+ * callers then read the data store, since the index may lag behind it.
+ * Once the index received its first notification, which holds the whole
+ * existing topology, the callers may instead take a miss as final.
+ */
+public class SfcOvsTopologyIndex extends AbstractClusteredDataTreeChangeListener<Node> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcOvsTopologyIndex.class);
+
+    private static volatile SfcOvsTopologyIndex instance;
+
+    private final DataBroker dataBroker;
+    private ListenerRegistration<SfcOvsTopologyIndex> listenerRegistration;
+    private volatile boolean populated = false;
+
+    // manager IP -> OVSDB manager node
+    private final Map<String, Node> managerNodesByIp = new ConcurrentHashMap<>();
+    // OVSDB node id -> manager IP, to clean up on node removal
+    private final Map<String, String> managerIpsByNodeId = new ConcurrentHashMap<>();
+    // bridge node id -> bridge entry
+    private final Map<String, BridgeEntry> bridgesByNodeId = new ConcurrentHashMap<>();
+    // OpenFlow node id -> bridge entry
+    private final Map<String, BridgeEntry> bridgesByOfNodeId = new ConcurrentHashMap<>();
+
+    public SfcOvsTopologyIndex(DataBroker dataBroker) {
+        this.dataBroker = dataBroker;
+    }
+
+    /**
+     * @return the registered index, or null if there is none
+     */
+    public static SfcOvsTopologyIndex getInstance() {
+        return instance;
+    }
+
+    public void init() {
+        LOG.debug("Initializing OVSDB topology index");
+        DataTreeIdentifier<Node> treeId = new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL,
+                SfcOvsUtil.buildOvsdbTopologyIID().child(Node.class));
+        listenerRegistration = dataBroker.registerDataTreeChangeListener(treeId, this);
+        instance = this;
+    }
+
+    @Override
+    public void close() {
+        if (instance == this) {
+            instance = null;
+        }
+        if (listenerRegistration != null) {
+            listenerRegistration.close();
+        }
+        populated = false;
+        managerNodesByIp.clear();
+        managerIpsByNodeId.clear();
+        bridgesByNodeId.clear();
+        bridgesByOfNodeId.clear();
+    }
+
+    @Override
+    public void onDataTreeChanged(Collection<DataTreeModification<Node>> collection) {
+        super.onDataTreeChanged(collection);
+        populated = true;
+    }
+
+    /**
+     * @return true once the existing topology is indexed
+     */
+    public boolean isPopulated() {
+        return populated;
+    }
+
+    @Override
+    protected void add(Node node) {
+        index(node);
+    }
+
+    @Override
+    protected void remove(Node node) {
+        unindex(node);
+    }
+
+    @Override
+    protected void update(Node originalNode, Node updatedNode) {
+        unindex(originalNode);
+        index(updatedNode);
+    }
+
+    void index(Node node) {
+        if (node == null || node.getNodeId() == null) {
+            return;
+        }
+        String nodeId = node.getNodeId().getValue();
+
+        OvsdbNodeAugmentation ovsdbNode = node.getAugmentation(OvsdbNodeAugmentation.class);
+        if (ovsdbNode != null && ovsdbNode.getConnectionInfo() != null) {
+            String ip = ipToString(ovsdbNode.getConnectionInfo().getRemoteIp());
+            if (ip != null) {
+                managerNodesByIp.put(ip, node);
+                managerIpsByNodeId.put(nodeId, ip);
+            }
+        }
+
+        OvsdbBridgeAugmentation ovsdbBridge = node.getAugmentation(OvsdbBridgeAugmentation.class);
+        if (ovsdbBridge != null && ovsdbBridge.getDatapathId() != null) {
+            BridgeEntry bridge = new BridgeEntry(SfcOvsUtil.getOpenFlowNodeIdFromDpid(ovsdbBridge.getDatapathId()),
+                    ovsdbBridge, node.getTerminationPoint());
+            BridgeEntry previous = bridgesByNodeId.put(nodeId, bridge);
+            if (previous != null && !previous.ofNodeId.equals(bridge.ofNodeId)) {
+                bridgesByOfNodeId.remove(previous.ofNodeId, previous);
+            }
+            bridgesByOfNodeId.put(bridge.ofNodeId, bridge);
+        }
+    }
+
+    void unindex(Node node) {
+        if (node == null || node.getNodeId() == null) {
+            return;
+        }
+        String nodeId = node.getNodeId().getValue();
+        String ip = managerIpsByNodeId.remove(nodeId);
+        if (ip != null) {
+            managerNodesByIp.computeIfPresent(ip,
+                (key, managerNode) -> nodeId.equals(managerNode.getNodeId().getValue()) ? null : managerNode);
+        }
+        BridgeEntry bridge = bridgesByNodeId.remove(nodeId);
+        if (bridge != null) {
+            bridgesByOfNodeId.remove(bridge.ofNodeId, bridge);
+        }
+    }
+
+    /**
+     * @param ip - the manager IP address
+     * @return the OVSDB node connected from that address
+     */
+    public Node getManagerNode(String ip) {
+        return ip == null ? null : managerNodesByIp.get(ip);
+    }
+
+    /**
+     * @param bridgeNodeId - the bridge node id
+     * @return the OpenFlow node id of the bridge
+     */
+    public String getOpenFlowNodeId(String bridgeNodeId) {
+        BridgeEntry bridge = bridgeNodeId == null ? null : bridgesByNodeId.get(bridgeNodeId);
+        return bridge == null ? null : bridge.ofNodeId;
+    }
+
+    /**
+     * @param ofNodeId - the OpenFlow node id of a bridge
+     * @param portName - the port name
+     * @return the OpenFlow port number of the port
+     */
+    public Long getOfPortByName(String ofNodeId, String portName) {
+        BridgeEntry bridge = ofNodeId == null ? null : bridgesByOfNodeId.get(ofNodeId);
+        return bridge == null || portName == null ? null : bridge.ofPortsByName.get(portName);
+    }
+
+    /**
+     * @param ofNodeId - the OpenFlow node id of a bridge
+     * @return the OpenFlow port number of the VXLAN port
+     */
+    public Long getVxlanOfPort(String ofNodeId) {
+        BridgeEntry bridge = ofNodeId == null ? null : bridgesByOfNodeId.get(ofNodeId);
+        return bridge == null ? null : bridge.vxlanOfPort;
+    }
+
+    /**
+     * @param ofNodeId - the OpenFlow node id of a bridge
+     * @return the OpenFlow port number of the VXLAN-GPE port
+     */
+    public Long getVxlanGpeOfPort(String ofNodeId) {
+        BridgeEntry bridge = ofNodeId == null ? null : bridgesByOfNodeId.get(ofNodeId);
+        return bridge == null ? null : bridge.vxlanGpeOfPort;
+    }
+
+    /**
+     * @param ofNodeId - the OpenFlow node id of a bridge
+     * @param tpId - the termination point id of the DPDK port
+     * @return the OpenFlow port number of the DPDK port
+     */
+    public Long getDpdkOfPort(String ofNodeId, String tpId) {
+        BridgeEntry bridge = ofNodeId == null ? null : bridgesByOfNodeId.get(ofNodeId);
+        return bridge == null ? null : bridge.dpdkOfPortsByTpId.get(tpId);
+    }
+
+    static String ipToString(IpAddress ip) {
+        if (ip == null) {
+            return null;
+        }
+        if (ip.getIpv4Address() != null) {
+            return ip.getIpv4Address().getValue();
+        }
+        return ip.getIpv6Address() != null ? ip.getIpv6Address().getValue() : null;
+    }
+
+    /**
+     * The OpenFlow view of an OVS bridge.
+     */
+    private static final class BridgeEntry {
+        final String ofNodeId;
+        final Map<String, Long> ofPortsByName;
+        final Map<String, Long> dpdkOfPortsByTpId;
+        final Long vxlanOfPort;
+        final Long vxlanGpeOfPort;
+
+        BridgeEntry(String ofNodeId, OvsdbBridgeAugmentation ovsdbBridge, List<TerminationPoint> tpList) {
+            this.ofNodeId = ofNodeId;
+            Map<String, Long> ofPorts = new HashMap<>();
+            Map<String, Long> dpdkOfPorts = new HashMap<>();
+            Long vxlanPort = null;
+            Long vxlanGpePort = null;
+            boolean netdev = DatapathTypeNetdev.class.equals(ovsdbBridge.getDatapathType());
+
+            if (tpList != null) {
+                for (TerminationPoint tp : tpList) {
+                    OvsdbTerminationPointAugmentation otp =
+                            tp.getAugmentation(OvsdbTerminationPointAugmentation.class);
+                    if (otp == null || otp.getOfport() == null) {
+                        continue;
+                    }
+                    if (otp.getName() != null) {
+                        ofPorts.put(otp.getName(), otp.getOfport());
+                    }
+                    if (vxlanPort == null && InterfaceTypeVxlan.class.equals(otp.getInterfaceType())) {
+                        vxlanPort = otp.getOfport();
+                    }
+                    if (vxlanGpePort == null && isVxlanGpe(otp)) {
+                        vxlanGpePort = otp.getOfport();
+                    }
+                    if (netdev && tp.getTpId() != null && InterfaceTypeDpdk.class.equals(otp.getInterfaceType())) {
+                        dpdkOfPorts.put(tp.getTpId().getValue(), otp.getOfport());
+                    }
+                }
+            }
+            this.ofPortsByName = Collections.unmodifiableMap(ofPorts);
+            this.dpdkOfPortsByTpId = Collections.unmodifiableMap(dpdkOfPorts);
+            this.vxlanOfPort = vxlanPort;
+            this.vxlanGpeOfPort = vxlanGpePort;
+        }
+
+        // VXLAN-GPE, or VXLAN with the option exts=gpe set
+        private static boolean isVxlanGpe(OvsdbTerminationPointAugmentation otp) {
+            if (InterfaceTypeVxlanGpe.class.equals(otp.getInterfaceType())) {
+                return true;
+            }
+            List<Options> options = otp.getOptions();
+            if (options != null) {
+                for (Options option : options) {
+                    if (SfcOvsUtil.OVSDB_OPTION_EXTS.equals(option.getOption())
+                            && SfcOvsUtil.OVSDB_OPTION_GPE.equals(option.getValue())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
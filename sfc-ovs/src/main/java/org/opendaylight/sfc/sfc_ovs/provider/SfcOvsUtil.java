@@ -470,6 +470,23 @@ public class SfcOvsUtil {
      * @return {@link Node}
      */
     public static Node lookupTopologyNode(ServiceFunctionForwarder serviceFunctionForwarder, ExecutorService executor) {
+        IpAddress ip = getSffIpAddress(serviceFunctionForwarder);
+        if (ip == null) {
+            LOG.debug("Could not get IP address for Service Function Forwarder {}", serviceFunctionForwarder);
+            return null;
+        }
+        return SfcOvsUtil.getManagerNodeByIp(ip, executor);
+    }
+
+    /**
+     * This gets the IP address of the last IP based Data Plane Locator of
+     * the {@link ServiceFunctionForwarder}, which is the IP of its OVSDB
+     * manager connection.
+     *
+     * @param serviceFunctionForwarder - {@link ServiceFunctionForwarder}
+     * @return {@link IpAddress}, or null if there is no IP based locator
+     */
+    private static IpAddress getSffIpAddress(ServiceFunctionForwarder serviceFunctionForwarder) {
         List<SffDataPlaneLocator> sffDplList = serviceFunctionForwarder.getSffDataPlaneLocator();
         IpAddress ip = null;
 
@@ -494,15 +511,15 @@ public class SfcOvsUtil {
                 }
             }
         }
-        if (ip == null) {
-            LOG.debug("Could not get IP address for Service Function Forwarder {}", serviceFunctionForwarder);
-            return null;
-        }
-        return SfcOvsUtil.getManagerNodeByIp(ip, executor);
-
+        return ip;
     }
 
     public static String getOpenFlowNodeIdForSff(ServiceFunctionForwarder serviceFunctionForwarder) {
+        String ofNodeId = getOpenFlowNodeIdForSffFromIndex(serviceFunctionForwarder);
+        if (ofNodeId != null) {
+            return ofNodeId;
+        }
+
         Node managerNode =
                 lookupTopologyNode(serviceFunctionForwarder, OpendaylightSfc.getOpendaylightSfcObj().getExecutor());
         if (managerNode == null) {
@@ -534,9 +551,42 @@ public class SfcOvsUtil {
             LOG.warn("No DatapathId for Service Function Forwarder {}", serviceFunctionForwarder);
             return null;
         }
-        Long macLong = getLongFromDpid(datapathId.getValue());
+        return getOpenFlowNodeIdFromDpid(datapathId);
+    }
+
+    /**
+     * Resolve the OpenFlow node id of a Service Function Forwarder from the
+     * OVSDB topology index, without reading the data store
+     *
+     * @param serviceFunctionForwarder - the Service Function Forwarder
+     * @return the OpenFlow node id, or null if the index can not resolve it
+     */
+    private static String getOpenFlowNodeIdForSffFromIndex(ServiceFunctionForwarder serviceFunctionForwarder) {
+        SfcOvsTopologyIndex index = SfcOvsTopologyIndex.getInstance();
+        if (index == null) {
+            return null;
+        }
+        SffOvsBridgeAugmentation sffOvsBridgeAugmentation =
+                serviceFunctionForwarder.getAugmentation(SffOvsBridgeAugmentation.class);
+        if (sffOvsBridgeAugmentation == null || sffOvsBridgeAugmentation.getOvsBridge() == null
+                || sffOvsBridgeAugmentation.getOvsBridge().getBridgeName() == null) {
+            return null;
+        }
+        IpAddress ip = getSffIpAddress(serviceFunctionForwarder);
+        Node managerNode = index.getManagerNode(SfcOvsTopologyIndex.ipToString(ip));
+        if (managerNode == null) {
+            return null;
+        }
+        return index.getOpenFlowNodeId(managerNode.getNodeId().getValue() + OVSDB_BRIDGE_PREFIX
+                + sffOvsBridgeAugmentation.getOvsBridge().getBridgeName());
+    }
 
-        return "openflow:" + String.valueOf(macLong);
+    /**
+     * @param datapathId - the datapath id of an OVS bridge
+     * @return the OpenFlow node id of the bridge
+     */
+    public static String getOpenFlowNodeIdFromDpid(DatapathId datapathId) {
+        return "openflow:" + String.valueOf(getLongFromDpid(datapathId.getValue()));
     }
 
     private static DatapathId getOvsDataPathId(NodeId nodeId) {
@@ -574,6 +624,12 @@ public class SfcOvsUtil {
         } else if (ip.getIpv6Address() != null) {
             ipAddressString = ip.getIpv6Address().getValue();
         }
+        SfcOvsTopologyIndex index = SfcOvsTopologyIndex.getInstance();
+        Node indexedNode = index == null ? null : index.getManagerNode(ipAddressString);
+        if (indexedNode != null) {
+            return indexedNode;
+        }
+
         Object[] methodParams = {ipAddressString};
         SfcOvsDataStoreAPI sfcOvsDataStoreAPI =
                 new SfcOvsDataStoreAPI(SfcOvsDataStoreAPI.Method.READ_OVSDB_NODE_BY_IP, methodParams);
@@ -656,6 +712,12 @@ public class SfcOvsUtil {
      * @return port number
      */
     public static Long getOfPortByName(String nodeName, String portName) {
+        SfcOvsTopologyIndex index = SfcOvsTopologyIndex.getInstance();
+        Long indexedPort = index == null ? null : index.getOfPortByName(nodeName, portName);
+        if (indexedPort != null) {
+            return indexedPort;
+        }
+
         class PortNameCompare implements OvsdbTPComp {
             private String portName;
             public PortNameCompare(String portName) {
@@ -679,6 +741,12 @@ public class SfcOvsUtil {
      * @return port number
      */
     public static Long getVxlanOfPort(String nodeName) {
+        SfcOvsTopologyIndex index = SfcOvsTopologyIndex.getInstance();
+        Long indexedPort = index == null ? null : index.getVxlanOfPort(nodeName);
+        if (indexedPort != null) {
+            return indexedPort;
+        }
+
         class VxlanPortCompare implements OvsdbTPComp {
             public boolean compare(OvsdbTerminationPointAugmentation otp) {
                 if (otp == null) {
@@ -700,6 +768,12 @@ public class SfcOvsUtil {
      * @return port number
      */
     public static Long getVxlanGpeOfPort(String nodeName) {
+        SfcOvsTopologyIndex index = SfcOvsTopologyIndex.getInstance();
+        Long indexedPort = index == null ? null : index.getVxlanGpeOfPort(nodeName);
+        if (indexedPort != null) {
+            return indexedPort;
+        }
+
         class VxlanGpePortCompare implements OvsdbTPComp {
             public boolean compare(OvsdbTerminationPointAugmentation otp) {
                 if (otp == null) {
@@ -746,6 +820,14 @@ public class SfcOvsUtil {
             dpdkPortName = new String("dpdk0");
         }
 
+        // Most bridges have no DPDK port: once populated, the index is not
+        // second-guessed by reading the whole topology
+        SfcOvsTopologyIndex index = SfcOvsTopologyIndex.getInstance();
+        Long indexedPort = index == null ? null : index.getDpdkOfPort(nodeName, dpdkPortName);
+        if (indexedPort != null || index != null && index.isPopulated()) {
+            return indexedPort;
+        }
+
         InstanceIdentifier<Topology> topoIID = buildOvsdbTopologyIID();
 
         Topology topo = null;
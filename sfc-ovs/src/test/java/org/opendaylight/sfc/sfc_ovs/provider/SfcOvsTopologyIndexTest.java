@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sfc_ovs.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
+import org.opendaylight.sfc.sfc_ovs.provider.api.SfcOvsDataStoreAPITest;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.DatapathId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.DatapathTypeBase;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.DatapathTypeNetdev;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.InterfaceTypeDpdk;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.InterfaceTypeSystem;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.InterfaceTypeVxlanGpe;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.InterfaceTypeBase;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentationBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeName;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbNodeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbTerminationPointAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbTerminationPointAugmentationBuilder;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NodeId;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.TpId;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.NodeBuilder;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.node.TerminationPoint;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.node.TerminationPointBuilder;
+
+/**
+ * Unit tests for the in-memory OVSDB topology index.
+ */
+public class SfcOvsTopologyIndexTest {
+
+    private static final String MANAGER_IP = "10.0.0.1";
+    private static final String MANAGER_NODE_ID = "ovsdb://uuid/1";
+    private static final String BRIDGE_NODE_ID = MANAGER_NODE_ID + "/bridge/br-sfc";
+    private static final String OF_NODE_ID = "openflow:10";
+
+    private SfcOvsTopologyIndex index;
+
+    @Before
+    public void setUp() {
+        index = new SfcOvsTopologyIndex(mock(DataBroker.class));
+        index.init();
+    }
+
+    @After
+    public void tearDown() {
+        index.close();
+    }
+
+    @Test
+    public void nodesAreIndexed() {
+        Node managerNode = new NodeBuilder().setNodeId(new NodeId(MANAGER_NODE_ID))
+            .addAugmentation(OvsdbNodeAugmentation.class, SfcOvsDataStoreAPITest.createOvsdbNodeAugmentation(MANAGER_IP))
+            .build();
+        index.add(managerNode);
+        index.add(buildBridgeNode("00:00:00:00:00:00:00:0a"));
+
+        assertEquals(managerNode, index.getManagerNode(MANAGER_IP));
+        assertEquals(OF_NODE_ID, index.getOpenFlowNodeId(BRIDGE_NODE_ID));
+        // served from memory, the data store is not set up in this test
+        assertEquals(Long.valueOf(5), SfcOvsUtil.getOfPortByName(OF_NODE_ID, "eth1"));
+        assertEquals(Long.valueOf(3), SfcOvsUtil.getVxlanGpeOfPort(OF_NODE_ID));
+        assertEquals(Long.valueOf(4), SfcOvsUtil.getDpdkOfPort(OF_NODE_ID, null));
+        assertNull(index.getOfPortByName(OF_NODE_ID, "eth2"));
+    }
+
+    @Test
+    public void nodesAreUnindexed() {
+        Node bridgeNode = buildBridgeNode("00:00:00:00:00:00:00:0a");
+        index.add(bridgeNode);
+        Node updatedBridgeNode = buildBridgeNode("00:00:00:00:00:00:00:0b");
+        index.update(bridgeNode, updatedBridgeNode);
+
+        assertNull(index.getVxlanGpeOfPort(OF_NODE_ID));
+        assertEquals("openflow:11", index.getOpenFlowNodeId(BRIDGE_NODE_ID));
+
+        index.remove(updatedBridgeNode);
+        assertNull(index.getOpenFlowNodeId(BRIDGE_NODE_ID));
+        assertNull(index.getVxlanGpeOfPort("openflow:11"));
+    }
+
+    @Test
+    public void populatedIndexIsAuthoritativeForDpdkPorts() {
+        OpendaylightSfc opendaylightSfc = new OpendaylightSfc();
+        DataBroker previousDataBroker = opendaylightSfc.getDataProvider();
+        DataBroker dataBroker = mock(DataBroker.class);
+        opendaylightSfc.setDataProvider(dataBroker);
+        try {
+            // Initial notification, with a bridge without DPDK ports
+            assertFalse(index.isPopulated());
+            notifyAdded(buildBridgeNode("00:00:00:00:00:00:00:0b", null));
+            assertTrue(index.isPopulated());
+
+            assertNull(SfcOvsUtil.getDpdkOfPort("openflow:11", null));
+            assertNull(SfcOvsUtil.getDpdkOfPort("openflow:12", null));
+            verify(dataBroker, never()).newReadOnlyTransaction();
+        } finally {
+            opendaylightSfc.setDataProvider(previousDataBroker);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifyAdded(Node node) {
+        DataObjectModification<Node> modification = mock(DataObjectModification.class);
+        when(modification.getModificationType()).thenReturn(DataObjectModification.ModificationType.WRITE);
+        when(modification.getDataAfter()).thenReturn(node);
+        DataTreeModification<Node> treeModification = mock(DataTreeModification.class);
+        when(treeModification.getRootNode()).thenReturn(modification);
+        index.onDataTreeChanged(Collections.singletonList(treeModification));
+    }
+
+    private static Node buildBridgeNode(String datapathId) {
+        return buildBridgeNode(datapathId, DatapathTypeNetdev.class);
+    }
+
+    private static Node buildBridgeNode(String datapathId, Class<? extends DatapathTypeBase> datapathType) {
+        OvsdbBridgeAugmentation ovsdbBridge = new OvsdbBridgeAugmentationBuilder()
+            .setBridgeName(new OvsdbBridgeName("br-sfc"))
+            .setDatapathId(new DatapathId(datapathId))
+            .setDatapathType(datapathType)
+            .build();
+        return new NodeBuilder().setNodeId(new NodeId(BRIDGE_NODE_ID))
+            .addAugmentation(OvsdbBridgeAugmentation.class, ovsdbBridge)
+            .setTerminationPoint(Arrays.asList(
+                    buildTerminationPoint("vxgpe", InterfaceTypeVxlanGpe.class, 3L),
+                    buildTerminationPoint("dpdk0", InterfaceTypeDpdk.class, 4L),
+                    buildTerminationPoint("eth1", InterfaceTypeSystem.class, 5L)))
+            .build();
+    }
+
+    private static TerminationPoint buildTerminationPoint(String name, Class<? extends InterfaceTypeBase> type,
+            Long ofPort) {
+        OvsdbTerminationPointAugmentation otp = new OvsdbTerminationPointAugmentationBuilder().setName(name)
+            .setInterfaceType(type)
+            .setOfport(ofPort)
+            .build();
+        return new TerminationPointBuilder().setTpId(new TpId(name))
+            .addAugmentation(OvsdbTerminationPointAugmentation.class, otp)
+            .build();
+    }
+}
@@ -19,6 +19,9 @@ import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.controller.sal.binding.api.BindingAwareBroker;
 import org.opendaylight.sfc.provider.api.SfcDataStoreAPI;
+import org.opendaylight.sfc.provider.api.SfcServiceFunctionCostAwareSchedulerAPI;
+import org.opendaylight.sfc.provider.api.SfcServiceFunctionRoundRobinSchedulerAPI;
+import org.opendaylight.sfc.provider.api.SfcServicePathId;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftTypeName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.RenderedServicePaths;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
@@ -208,6 +211,29 @@ public class OpendaylightSfc implements AutoCloseable {
         return this.broker;
     }
 
+    /**
+     * @param pathIdSpaceBits - number of bits of the generated path ids
+     */
+    public void setPathIdSpaceBits(int pathIdSpaceBits) {
+        SfcServicePathId.setPathIdSpaceBits(pathIdSpaceBits);
+    }
+
+    /**
+     * @param sffPathCapacities - maximum number of paths of the SFFs for the cost aware scheduler,
+     *                            as comma separated sff-name=max-paths pairs
+     */
+    public void setSffPathCapacities(String sffPathCapacities) {
+        SfcServiceFunctionCostAwareSchedulerAPI.setSffCapacities(sffPathCapacities);
+    }
+
+    /**
+     * @param sfWeights - weights of the SFs for the round robin scheduler,
+     *                    as comma separated sf-name=weight pairs
+     */
+    public void setSfWeights(String sfWeights) {
+        SfcServiceFunctionRoundRobinSchedulerAPI.setSfWeights(sfWeights);
+    }
+
     public static OpendaylightSfc getOpendaylightSfcObj() {
         return OpendaylightSfc.opendaylightSfcObj;
     }
@@ -221,6 +247,10 @@ public class OpendaylightSfc implements AutoCloseable {
 
         if (dataProvider != null) {
 
+            // Write the state kept in memory before the data is deleted
+            SfcServiceFunctionRoundRobinSchedulerAPI.closeCounters();
+            SfcServicePathId.close();
+
             final InstanceIdentifier<ServiceFunctionClassifiers> SCF_IID =
                     InstanceIdentifier.builder(ServiceFunctionClassifiers.class).build();
 
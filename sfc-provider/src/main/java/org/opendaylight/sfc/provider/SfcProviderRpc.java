@@ -11,8 +11,14 @@ package org.opendaylight.sfc.provider;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.util.concurrent.Futures;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
@@ -43,11 +49,18 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev1
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfcName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfpName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathInput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathInputBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathOutput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathOutputBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathsInput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathsOutput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathsOutputBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathInput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathOutput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathOutputBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathsInput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathsOutput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathsOutputBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.ReadRenderedServicePathFirstHopInput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.ReadRenderedServicePathFirstHopOutput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.ReadRenderedServicePathFirstHopOutputBuilder;
@@ -57,6 +70,13 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev1407
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.RenderedServicePathService;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.TraceRenderedServicePathInput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.TraceRenderedServicePathOutput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.input.PathRequest;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.output.PathResult;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.output.PathResultBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.output.PathResultKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.delete.rendered.paths.output.DeletedPath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.delete.rendered.paths.output.DeletedPathBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.delete.rendered.paths.output.DeletedPathKey;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.path.first.hop.info.RenderedServicePathFirstHop;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.DeleteServiceFunctionInput;
@@ -78,6 +98,7 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev1407
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.ServiceFunctionChainsBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChain;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChainKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.ServiceFunctionPaths;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.opendaylight.yangtools.yang.common.RpcError.ErrorType;
@@ -316,6 +337,112 @@ public class SfcProviderRpc implements ServiceFunctionService, ServiceFunctionCh
         return Futures.immediateFuture(rpcResultBuilder.build());
     }
 
+    /**
+     * This method creates the Rendered Service Paths of a batch of Service
+     * Function Paths, reading all the Service Function Paths at once. The
+     * result of each Service Function Path is reported in the output.
+     * <p>
+     *
+     * @param input RPC input including the Service Function Path names
+     * @return RPC output including the result of each Service Function Path
+     */
+    @Override
+    public Future<RpcResult<CreateRenderedPathsOutput>> createRenderedPaths(CreateRenderedPathsInput input) {
+        printTraceStart(LOG);
+        List<PathResult> pathResults = new ArrayList<>();
+        List<PathRequest> pathRequests =
+                input.getPathRequest() != null ? input.getPathRequest() : Collections.<PathRequest>emptyList();
+
+        Map<SfpName, ServiceFunctionPath> serviceFunctionPaths = new HashMap<>();
+        ServiceFunctionPaths sfps = SfcProviderServicePathAPI.readAllServiceFunctionPaths();
+        if (sfps != null && sfps.getServiceFunctionPath() != null) {
+            for (ServiceFunctionPath sfp : sfps.getServiceFunctionPath()) {
+                serviceFunctionPaths.put(sfp.getName(), sfp);
+            }
+        }
+
+        Map<ServiceFunctionPath, CreateRenderedPathInput> createRenderedPathInputs = new LinkedHashMap<>();
+        for (PathRequest pathRequest : pathRequests) {
+            ServiceFunctionPath sfp = serviceFunctionPaths.get(pathRequest.getParentServiceFunctionPath());
+            if (sfp != null && !createRenderedPathInputs.containsKey(sfp)) {
+                createRenderedPathInputs.put(sfp, new CreateRenderedPathInputBuilder()
+                    .setParentServiceFunctionPath(pathRequest.getParentServiceFunctionPath().getValue())
+                    .setName(pathRequest.getName())
+                    .setSymmetric(sfp.isSymmetric())
+                    .build());
+            }
+        }
+
+        Map<SfpName, RenderedServicePath> renderedServicePaths =
+                SfcProviderRenderedPathAPI.createRenderedServicePathsAndState(createRenderedPathInputs, null);
+
+        // The results are reported in the order of the requests, once per SFP
+        Set<SfpName> reportedSfpNames = new HashSet<>();
+        for (PathRequest pathRequest : pathRequests) {
+            SfpName sfpName = pathRequest.getParentServiceFunctionPath();
+            if (!reportedSfpNames.add(sfpName)) {
+                continue;
+            }
+            if (serviceFunctionPaths.containsKey(sfpName)) {
+                pathResults.add(buildPathResult(sfpName, renderedServicePaths.get(sfpName), "Failed to create RSP"));
+            } else {
+                pathResults.add(buildPathResult(sfpName, null, "Service Function Path does not exist"));
+            }
+        }
+
+        printTraceStop(LOG);
+        CreateRenderedPathsOutputBuilder createRenderedPathsOutputBuilder = new CreateRenderedPathsOutputBuilder();
+        createRenderedPathsOutputBuilder.setPathResult(pathResults);
+        return Futures.immediateFuture(RpcResultBuilder.success(createRenderedPathsOutputBuilder.build()).build());
+    }
+
+    private static PathResult buildPathResult(SfpName sfpName, RenderedServicePath renderedServicePath,
+            String errorMessage) {
+        PathResultBuilder pathResultBuilder = new PathResultBuilder();
+        pathResultBuilder.setKey(new PathResultKey(sfpName)).setParentServiceFunctionPath(sfpName);
+        if (renderedServicePath != null) {
+            pathResultBuilder.setName(renderedServicePath.getName().getValue()).setResult(true);
+        } else {
+            pathResultBuilder.setResult(false).setErrorMessage(errorMessage);
+        }
+        return pathResultBuilder.build();
+    }
+
+    /**
+     * This method deletes a batch of Rendered Service Paths, with their
+     * SFF and SF operational state. The result of each Rendered Service
+     * Path is reported in the output.
+     * <p>
+     *
+     * @param input RPC input including the Rendered Service Path names
+     * @return RPC output including the result of each Rendered Service Path
+     */
+    @Override
+    public Future<RpcResult<DeleteRenderedPathsOutput>> deleteRenderedPaths(DeleteRenderedPathsInput input) {
+        printTraceStart(LOG);
+        List<RspName> rspNames = new ArrayList<>();
+        if (input.getName() != null) {
+            for (String name : input.getName()) {
+                rspNames.add(new RspName(name));
+            }
+        }
+
+        List<DeletedPath> deletedPaths = new ArrayList<>();
+        Map<RspName, Boolean> results = SfcProviderRenderedPathAPI.deleteRenderedServicePathsAndState(rspNames);
+        for (Map.Entry<RspName, Boolean> entry : results.entrySet()) {
+            deletedPaths.add(new DeletedPathBuilder()
+                .setKey(new DeletedPathKey(entry.getKey().getValue()))
+                .setName(entry.getKey().getValue())
+                .setResult(entry.getValue())
+                .build());
+        }
+
+        printTraceStop(LOG);
+        DeleteRenderedPathsOutputBuilder deleteRenderedPathsOutputBuilder = new DeleteRenderedPathsOutputBuilder();
+        deleteRenderedPathsOutputBuilder.setDeletedPath(deletedPaths);
+        return Futures.immediateFuture(RpcResultBuilder.success(deleteRenderedPathsOutputBuilder.build()).build());
+    }
+
     /**
      * This method gets all necessary information for a system to construct
      * a NSH header and associated overlay packet to target the first
@@ -8,8 +8,13 @@
 
 package org.opendaylight.sfc.provider.api;
 
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
 import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
@@ -23,6 +28,10 @@ import org.slf4j.LoggerFactory;
 /**
  * Wrapper around DataStore APIs. These methods take care of retries and callbacks
  * automatically.
+ * <p>
+ * The *Async methods do not block the caller: they return a future which
+ * completes when the transaction does. Several operations can be grouped in
+ * a single transaction with {@link SfcDataStoreTransaction}.
  *
  * <p>
  * @author Reinaldo Penno (rapenno@gmail.com)
@@ -108,4 +117,118 @@ public class SfcDataStoreAPI {
         }
         return ret;
     }
+
+    /**
+     * Asynchronous counterpart of {@link #readTransactionAPI}
+     *
+     * @param readIID the instance identifier to read
+     * @param logicalDatastoreType the data store to read from
+     * @return a future with the data object, or null if it does not exist
+     *         or can not be read
+     */
+    public static <U extends org.opendaylight.yangtools.yang.binding.DataObject> ListenableFuture<U>
+            readTransactionAPIAsync(InstanceIdentifier<U> readIID, LogicalDatastoreType logicalDatastoreType) {
+        final ReadOnlyTransaction readTx =
+                OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newReadOnlyTransaction();
+        CheckedFuture<Optional<U>, ReadFailedException> readFuture = readTx.read(logicalDatastoreType, readIID);
+        readFuture.addListener(readTx::close, MoreExecutors.directExecutor());
+        ListenableFuture<U> future = Futures.transform(readFuture, new Function<Optional<U>, U>() {
+            @Override
+            public U apply(Optional<U> optionalDataObject) {
+                return optionalDataObject != null ? optionalDataObject.orNull() : null;
+            }
+        });
+        return Futures.withFallback(future, new FutureFallback<U>() {
+            @Override
+            public ListenableFuture<U> create(Throwable t) {
+                LOG.warn("readTransactionAPIAsync: failed to read {}", readIID, t);
+                return Futures.immediateFuture(null);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #writeMergeTransactionAPI}
+     *
+     * @param addIID the instance identifier to write
+     * @param data the data object to merge
+     * @param logicalDatastoreType the data store to write to
+     * @return a future with true if the transaction succeeded, false otherwise
+     */
+    public static <U extends org.opendaylight.yangtools.yang.binding.DataObject> ListenableFuture<Boolean>
+            writeMergeTransactionAPIAsync(InstanceIdentifier<U> addIID, U data,
+                    LogicalDatastoreType logicalDatastoreType) {
+        SfcDataStoreTransaction transaction = new SfcDataStoreTransaction();
+        transaction.merge(addIID, data, logicalDatastoreType);
+        return transaction.submit("writeMergeTransactionAPIAsync");
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #writePutTransactionAPI}
+     *
+     * @param addIID the instance identifier to write
+     * @param data the data object to put
+     * @param logicalDatastoreType the data store to write to
+     * @return a future with true if the transaction succeeded, false otherwise
+     */
+    public static <U extends org.opendaylight.yangtools.yang.binding.DataObject> ListenableFuture<Boolean>
+            writePutTransactionAPIAsync(InstanceIdentifier<U> addIID, U data,
+                    LogicalDatastoreType logicalDatastoreType) {
+        SfcDataStoreTransaction transaction = new SfcDataStoreTransaction();
+        transaction.put(addIID, data, logicalDatastoreType);
+        return transaction.submit("writePutTransactionAPIAsync");
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #deleteTransactionAPI}
+     *
+     * @param deleteIID the instance identifier to delete
+     * @param logicalDatastoreType the data store to delete from
+     * @return a future with true if the transaction succeeded, false otherwise
+     */
+    public static <U extends org.opendaylight.yangtools.yang.binding.DataObject> ListenableFuture<Boolean>
+            deleteTransactionAPIAsync(InstanceIdentifier<U> deleteIID, LogicalDatastoreType logicalDatastoreType) {
+        SfcDataStoreTransaction transaction = new SfcDataStoreTransaction();
+        transaction.delete(deleteIID, logicalDatastoreType);
+        return transaction.submit("deleteTransactionAPIAsync");
+    }
+
+    /**
+     * Commit a transaction prepared by the caller, and wait for it to complete
+     *
+     * @param writeTx the transaction
+     * @return true if the transaction succeeded, false otherwise
+     */
+    public static boolean submitTransactionAPI(WriteTransaction writeTx) {
+        CheckedFuture<Void, TransactionCommitFailedException> submitFuture = writeTx.submit();
+        try {
+            submitFuture.checkedGet();
+            return true;
+        } catch (TransactionCommitFailedException e) {
+            LOG.error("submitTransactionAPI: Transaction failed. Message: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #submitTransactionAPI}
+     *
+     * @param writeTx the transaction
+     * @return a future with true if the transaction succeeded, false otherwise
+     */
+    public static ListenableFuture<Boolean> submitTransactionAPIAsync(WriteTransaction writeTx) {
+        ListenableFuture<Boolean> future = Futures.transform(writeTx.submit(), new Function<Void, Boolean>() {
+            @Override
+            public Boolean apply(Void input) {
+                return true;
+            }
+        });
+        return Futures.withFallback(future, new FutureFallback<Boolean>() {
+            @Override
+            public ListenableFuture<Boolean> create(Throwable t) {
+                LOG.error("submitTransactionAPIAsync: Transaction failed. Message: {}", t.getMessage());
+                return Futures.immediateFuture(false);
+            }
+        });
+    }
 }
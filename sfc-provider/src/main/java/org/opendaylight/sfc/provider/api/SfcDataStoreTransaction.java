@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Groups several data store reads and writes in a single read-write
+ * transaction, committed once.
+ * <p>
+ * The reads see the writes made before them in the same transaction. The
+ * writes create the missing parents, as the SfcDataStoreAPI methods do.
+ * The transaction is committed asynchronously by {@link #submit()}, or
+ * synchronously by {@link #commit()}.
+ */
+public class SfcDataStoreTransaction {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcDataStoreTransaction.class);
+
+    private final ReadWriteTransaction transaction;
+
+    /**
+     * Create a transaction on the SFC data broker
+     */
+    public SfcDataStoreTransaction() {
+        this(OpendaylightSfc.getOpendaylightSfcObj().getDataProvider());
+    }
+
+    /**
+     * Create a transaction on the given data broker
+     *
+     * @param dataBroker - the data broker
+     */
+    public SfcDataStoreTransaction(DataBroker dataBroker) {
+        this.transaction = dataBroker.newReadWriteTransaction();
+    }
+
+    /**
+     * Read a data object in this transaction, without blocking
+     *
+     * @param readIID - the instance identifier to read
+     * @param logicalDatastoreType - the data store to read from
+     * @return a future with the data object, or null if it does not exist
+     *         or can not be read
+     */
+    public <U extends DataObject> ListenableFuture<U> readAsync(final InstanceIdentifier<U> readIID,
+            LogicalDatastoreType logicalDatastoreType) {
+        CheckedFuture<Optional<U>, ReadFailedException> readFuture = transaction.read(logicalDatastoreType, readIID);
+        ListenableFuture<U> future = Futures.transform(readFuture, new Function<Optional<U>, U>() {
+            @Override
+            public U apply(Optional<U> optionalDataObject) {
+                return optionalDataObject != null ? optionalDataObject.orNull() : null;
+            }
+        });
+        return Futures.withFallback(future, new FutureFallback<U>() {
+            @Override
+            public ListenableFuture<U> create(Throwable t) {
+                LOG.warn("readAsync: failed to read [{}]", readIID, t);
+                return Futures.immediateFuture(null);
+            }
+        });
+    }
+
+    /**
+     * Read a data object in this transaction
+     *
+     * @param readIID - the instance identifier to read
+     * @param logicalDatastoreType - the data store to read from
+     * @return the data object, or null if it does not exist or can not be read
+     */
+    public <U extends DataObject> U read(InstanceIdentifier<U> readIID, LogicalDatastoreType logicalDatastoreType) {
+        try {
+            Optional<U> optionalDataObject = transaction.read(logicalDatastoreType, readIID).checkedGet();
+            return optionalDataObject != null ? optionalDataObject.orNull() : null;
+        } catch (ReadFailedException e) {
+            LOG.warn("read: failed to read [{}]", readIID, e);
+            return null;
+        }
+    }
+
+    /**
+     * Merge a data object in this transaction, creating the missing parents
+     *
+     * @param addIID - the instance identifier to write
+     * @param data - the data object to merge
+     * @param logicalDatastoreType - the data store to write to
+     * @return this transaction
+     */
+    public <U extends DataObject> SfcDataStoreTransaction merge(InstanceIdentifier<U> addIID, U data,
+            LogicalDatastoreType logicalDatastoreType) {
+        transaction.merge(logicalDatastoreType, addIID, data, true);
+        return this;
+    }
+
+    /**
+     * Put a data object in this transaction, creating the missing parents
+     *
+     * @param addIID - the instance identifier to write
+     * @param data - the data object replacing the existing one
+     * @param logicalDatastoreType - the data store to write to
+     * @return this transaction
+     */
+    public <U extends DataObject> SfcDataStoreTransaction put(InstanceIdentifier<U> addIID, U data,
+            LogicalDatastoreType logicalDatastoreType) {
+        transaction.put(logicalDatastoreType, addIID, data, true);
+        return this;
+    }
+
+    /**
+     * Delete a data object in this transaction
+     *
+     * @param deleteIID - the instance identifier to delete
+     * @param logicalDatastoreType - the data store to delete from
+     * @return this transaction
+     */
+    public <U extends DataObject> SfcDataStoreTransaction delete(InstanceIdentifier<U> deleteIID,
+            LogicalDatastoreType logicalDatastoreType) {
+        transaction.delete(logicalDatastoreType, deleteIID);
+        return this;
+    }
+
+    /**
+     * Discard the operations of this transaction
+     */
+    public void cancel() {
+        transaction.cancel();
+    }
+
+    /**
+     * Commit this transaction, without blocking
+     *
+     * @return a future with true if the transaction succeeded, false otherwise
+     */
+    public ListenableFuture<Boolean> submit() {
+        return submit("submit");
+    }
+
+    ListenableFuture<Boolean> submit(final String caller) {
+        ListenableFuture<Boolean> future = Futures.transform(transaction.submit(), new Function<Void, Boolean>() {
+            @Override
+            public Boolean apply(Void input) {
+                return true;
+            }
+        });
+        return Futures.withFallback(future, new FutureFallback<Boolean>() {
+            @Override
+            public ListenableFuture<Boolean> create(Throwable t) {
+                LOG.error("{}: Transaction failed. Message: {}", caller, t.getMessage());
+                return Futures.immediateFuture(false);
+            }
+        });
+    }
+
+    /**
+     * Commit this transaction, and wait for it to complete
+     *
+     * @return true if the transaction succeeded, false otherwise
+     */
+    public boolean commit() {
+        try {
+            transaction.submit().checkedGet();
+            return true;
+        } catch (TransactionCommitFailedException e) {
+            LOG.error("commit: Transaction failed. Message: {}", e.getMessage());
+            return false;
+        }
+    }
+}
@@ -8,6 +8,7 @@
 
 package org.opendaylight.sfc.provider.api;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.acl.rev151001.AccessListsState;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.acl.rev151001.access.lists.state.AccessListState;
@@ -166,4 +167,56 @@ public class SfcProviderAclAPI {
         printTraceStop(LOG);
         return ret;
     }
+
+    /**
+     * Adds Classifier to Access List state, without waiting for the
+     * transaction to complete
+     * <p>
+     *
+     * @param aclName
+     *            Acl name
+     * @param aclType
+     *            Acl type
+     * @param serviceClassifierName
+     *            Service Classifier name
+     * @return a future with true if success.
+     */
+    public static ListenableFuture<Boolean> addClassifierToAccessListStateAsync(String aclName,
+            java.lang.Class<? extends AclBase> aclType, String serviceClassifierName) {
+        AclServiceFunctionClassifier aclServiceClassifier = new AclServiceFunctionClassifierBuilder()
+                .setKey(new AclServiceFunctionClassifierKey(serviceClassifierName))
+                .setName(serviceClassifierName)
+                .build();
+        return SfcDataStoreAPI.writeMergeTransactionAPIAsync(
+                getAclServiceClassifierIID(aclName, aclType, serviceClassifierName), aclServiceClassifier,
+                LogicalDatastoreType.OPERATIONAL);
+    }
+
+    /**
+     * Deletes Classifier from Access List state, without waiting for the
+     * transaction to complete
+     * <p>
+     *
+     * @param aclName
+     *            Acl name
+     * @param aclType
+     *            Acl type
+     * @param serviceClassifierName
+     *            Service Classifier name
+     * @return a future with true if success.
+     */
+    public static ListenableFuture<Boolean> deleteClassifierFromAccessListStateAsync(String aclName,
+            java.lang.Class<? extends AclBase> aclType, String serviceClassifierName) {
+        return SfcDataStoreAPI.deleteTransactionAPIAsync(
+                getAclServiceClassifierIID(aclName, aclType, serviceClassifierName),
+                LogicalDatastoreType.OPERATIONAL);
+    }
+
+    private static InstanceIdentifier<AclServiceFunctionClassifier> getAclServiceClassifierIID(String aclName,
+            java.lang.Class<? extends AclBase> aclType, String serviceClassifierName) {
+        return InstanceIdentifier.builder(AccessListsState.class)
+                .child(AccessListState.class, new AccessListStateKey(aclName, aclType))
+                .child(AclServiceFunctionClassifier.class, new AclServiceFunctionClassifierKey(serviceClassifierName))
+                .build();
+    }
 }
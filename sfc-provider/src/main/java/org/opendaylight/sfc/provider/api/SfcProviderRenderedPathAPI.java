@@ -11,10 +11,19 @@ package org.opendaylight.sfc.provider.api;
 import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStart;
 import static org.opendaylight.sfc.provider.SfcProviderDebug.printTraceStop;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfcName;
@@ -42,6 +51,7 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev1407
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.service.function.chain.SfcServiceFunctionBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarder.base.SffDataPlaneLocator;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.state.service.function.forwarder.state.SffServicePath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.service.function.groups.ServiceFunctionGroup;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPathBuilder;
@@ -50,6 +60,7 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev14070
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.Transport;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.VxlanGpe;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.data.plane.locator.locator.type.Ip;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.CostAware;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.LoadBalance;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.Random;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.RoundRobin;
@@ -78,6 +89,7 @@ public class SfcProviderRenderedPathAPI {
     private static final int MAX_STARTING_INDEX = 255;
     private static SfcServiceFunctionSchedulerAPI defaultScheduler;
     private static final String REVERSED_PATH_SUFFIX = "-Reverse";
+    private static final int MAX_RSPS_PER_TRANSACTION = 100;
 
     private static SfcServiceFunctionSchedulerAPI getServiceFunctionScheduler(
             Class<? extends ServiceFunctionSchedulerTypeIdentity> serviceFunctionSchedulerType) {
@@ -91,6 +103,8 @@ public class SfcProviderRenderedPathAPI {
             scheduler = new SfcServiceFunctionRandomSchedulerAPI();
         } else if (serviceFunctionSchedulerType == ShortestPath.class) {
             scheduler = new SfcServiceFunctionShortestPathSchedulerAPI();
+        } else if (serviceFunctionSchedulerType == CostAware.class) {
+            scheduler = new SfcServiceFunctionCostAwareSchedulerAPI();
         } else {
             scheduler = new SfcServiceFunctionRandomSchedulerAPI();
         }
@@ -126,8 +140,7 @@ public class SfcProviderRenderedPathAPI {
         RenderedServicePath renderedServicePath;
 
         boolean rspSuccessful = false;
-        boolean addPathToSffStateSuccessful = false;
-        boolean addPathToSfStateSuccessful = false;
+        boolean addPathToStateSuccessful = false;
 
         if (scheduler == null) {// Fall back to defaultScheduler
             SfcProviderRenderedPathAPI.initDefaultServiceFunctionScheduler();
@@ -144,29 +157,13 @@ public class SfcProviderRenderedPathAPI {
                     createdServiceFunctionPath.getName());
         }
 
-        // Add Path name to SFF operational state
-        if (rspSuccessful && SfcProviderServiceForwarderAPI.addPathToServiceForwarderState(renderedServicePath)) {
-            addPathToSffStateSuccessful = true;
-        } else {
-            if (renderedServicePath != null) {
-                SfcProviderRenderedPathAPI.deleteRenderedServicePath(renderedServicePath.getName());
-            }
-        }
-
-        // Add Path to SF operational state
-        if (addPathToSffStateSuccessful
-                && SfcProviderServiceFunctionAPI.addPathToServiceFunctionState(renderedServicePath)) {
-
-            addPathToSfStateSuccessful = true;
-        } else {
-            SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(createdServiceFunctionPath);
-            if (renderedServicePath != null) {
-                SfcProviderRenderedPathAPI.deleteRenderedServicePath(renderedServicePath.getName());
-            }
+        // Add Path name to SFF and SF operational state, both transactions being in flight together
+        if (rspSuccessful) {
+            addPathToStateSuccessful = addPathToServiceForwarderAndFunctionState(renderedServicePath);
         }
 
         // Add RSP to SFP operational state
-        if (!(addPathToSfStateSuccessful && SfcProviderServicePathAPI
+        if (!(addPathToStateSuccessful && SfcProviderServicePathAPI
             .addRenderedPathToServicePathState(createdServiceFunctionPath.getName(), renderedServicePath.getName()))) {
             SfcProviderServiceFunctionAPI
                 .deleteServicePathFromServiceFunctionState(createdServiceFunctionPath.getName());
@@ -200,6 +197,153 @@ public class SfcProviderRenderedPathAPI {
         return createRenderedServicePathAndState(createdServiceFunctionPath, createRenderedPathInput, defaultScheduler);
     }
 
+    /**
+     * Creates the RSPs and all the associated operational state of a batch
+     * of service function paths. The service functions of all the paths
+     * are scheduled first, then all the path ids are allocated, and the RSPs
+     * and their state are written in one transaction per
+     * MAX_RSPS_PER_TRANSACTION paths. The reverse RSPs of the symmetric paths
+     * are created along with the RSPs.
+     * <p>
+     *
+     * @param createRenderedPathInputs the service function paths and the RPC
+     *        input of each of them, in creation order
+     * @param scheduler SfcServiceFunctionSchedulerAPI object, or null for the default one
+     * @return the created RSP of each service function path, null if it could not be created
+     */
+    public static Map<SfpName, RenderedServicePath> createRenderedServicePathsAndState(
+            Map<ServiceFunctionPath, CreateRenderedPathInput> createRenderedPathInputs,
+            SfcServiceFunctionSchedulerAPI scheduler) {
+        printTraceStart(LOG);
+        Map<SfpName, RenderedServicePath> result = new LinkedHashMap<>();
+
+        if (scheduler == null) {// Fall back to defaultScheduler
+            SfcProviderRenderedPathAPI.initDefaultServiceFunctionScheduler();
+            scheduler = defaultScheduler;
+        }
+
+        // Schedule all the paths, reading each chain once
+        Map<SfcName, ServiceFunctionChain> serviceFunctionChains = new HashMap<>();
+        Map<ServiceFunctionPath, List<RenderedServicePathHop>> scheduledHops = new LinkedHashMap<>();
+        for (ServiceFunctionPath serviceFunctionPath : createRenderedPathInputs.keySet()) {
+            result.put(serviceFunctionPath.getName(), null);
+            SfcName serviceFunctionChainName = serviceFunctionPath.getServiceChainName();
+            ServiceFunctionChain serviceFunctionChain = serviceFunctionChainName != null ? serviceFunctionChains
+                .computeIfAbsent(serviceFunctionChainName, SfcProviderServiceChainAPI::readServiceFunctionChain)
+                    : null;
+            if (serviceFunctionChain == null) {
+                LOG.error("ServiceFunctionChain name for Path {} not provided", serviceFunctionPath.getName());
+                continue;
+            }
+            List<RenderedServicePathHop> renderedServicePathHopList =
+                    scheduleRenderedServicePathHops(serviceFunctionChain, serviceFunctionPath, scheduler);
+            if (renderedServicePathHopList != null) {
+                scheduledHops.put(serviceFunctionPath, renderedServicePathHopList);
+            }
+        }
+
+        // Allocate the path ids and build the RSPs
+        Map<SfpName, List<RenderedServicePath>> renderedServicePaths = new LinkedHashMap<>();
+        for (Map.Entry<ServiceFunctionPath, List<RenderedServicePathHop>> entry : scheduledHops.entrySet()) {
+            ServiceFunctionPath serviceFunctionPath = entry.getKey();
+            List<RenderedServicePath> rsps = buildRenderedServicePaths(serviceFunctionPath,
+                    createRenderedPathInputs.get(serviceFunctionPath), entry.getValue());
+            if (rsps != null) {
+                renderedServicePaths.put(serviceFunctionPath.getName(), rsps);
+            }
+        }
+
+        // Write the RSPs and their state
+        Map<SfpName, List<RenderedServicePath>> transactionPaths = new LinkedHashMap<>();
+        for (Map.Entry<SfpName, List<RenderedServicePath>> entry : renderedServicePaths.entrySet()) {
+            transactionPaths.put(entry.getKey(), entry.getValue());
+            if (transactionPaths.size() >= MAX_RSPS_PER_TRANSACTION) {
+                writeRenderedServicePathsAndState(transactionPaths, result);
+                transactionPaths.clear();
+            }
+        }
+        if (!transactionPaths.isEmpty()) {
+            writeRenderedServicePathsAndState(transactionPaths, result);
+        }
+
+        printTraceStop(LOG);
+        return result;
+    }
+
+    /**
+     * Allocate the path ids of a RSP, and of its reverse RSP if the path
+     * is symmetric, and build them
+     *
+     * @return the RSP followed by the reverse RSP if any, or null on failure
+     */
+    private static List<RenderedServicePath> buildRenderedServicePaths(ServiceFunctionPath serviceFunctionPath,
+            CreateRenderedPathInput createRenderedPathInput, List<RenderedServicePathHop> renderedServicePathHopList) {
+        long pathId = allocatePathId(serviceFunctionPath);
+        if (pathId == -1) {
+            LOG.error("Failed to allocate path-id for SFP {}", serviceFunctionPath.getName());
+            return null;
+        }
+
+        String rspName = createRenderedPathInput != null ? createRenderedPathInput.getName() : null;
+        RenderedServicePath renderedServicePath =
+                buildRenderedServicePath(serviceFunctionPath, rspName, renderedServicePathHopList, pathId);
+        if (renderedServicePath == null) {
+            SfcServicePathId.free_pathid(pathId);
+            return null;
+        }
+
+        List<RenderedServicePath> rsps = new ArrayList<>();
+        if (serviceFunctionPath.isSymmetric() != null && serviceFunctionPath.isSymmetric()) {
+            long revPathId = SfcServicePathId.check_and_allocate_symmetric_pathid(pathId);
+            if (revPathId == -1) {
+                LOG.error("Failed to allocate symmetric path Id for Path Id: {}", pathId);
+                SfcServicePathId.free_pathid(pathId);
+                return null;
+            }
+            renderedServicePath =
+                    new RenderedServicePathBuilder(renderedServicePath).setSymmetricPathId(revPathId).build();
+            rsps.add(renderedServicePath);
+            rsps.add(buildReverseRenderedServicePath(renderedServicePath, revPathId));
+        } else {
+            rsps.add(renderedServicePath);
+        }
+        return rsps;
+    }
+
+    /**
+     * Write RSPs and their SFF, SF and SFP operational state in a single
+     * transaction. If the transaction fails the path ids are freed.
+     */
+    private static void writeRenderedServicePathsAndState(Map<SfpName, List<RenderedServicePath>> renderedServicePaths,
+            Map<SfpName, RenderedServicePath> result) {
+        WriteTransaction writeTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
+        for (Map.Entry<SfpName, List<RenderedServicePath>> entry : renderedServicePaths.entrySet()) {
+            for (RenderedServicePath renderedServicePath : entry.getValue()) {
+                writeTx.merge(LogicalDatastoreType.OPERATIONAL,
+                        getRenderedServicePathIID(renderedServicePath.getName()), renderedServicePath, true);
+                SfcProviderServiceForwarderAPI.addPathToServiceForwarderState(renderedServicePath, writeTx);
+                SfcProviderServiceFunctionAPI.addPathToServiceFunctionState(renderedServicePath, writeTx);
+                SfcProviderServicePathAPI.addRenderedPathToServicePathState(entry.getKey(),
+                        renderedServicePath.getName(), writeTx);
+            }
+        }
+
+        if (SfcDataStoreAPI.submitTransactionAPI(writeTx)) {
+            for (Map.Entry<SfpName, List<RenderedServicePath>> entry : renderedServicePaths.entrySet()) {
+                RenderedServicePath renderedServicePath = entry.getValue().get(0);
+                result.put(entry.getKey(), renderedServicePath);
+                LOG.info("Create RSP {} for SFP {} successfully", renderedServicePath.getName(), entry.getKey());
+            }
+        } else {
+            for (Map.Entry<SfpName, List<RenderedServicePath>> entry : renderedServicePaths.entrySet()) {
+                LOG.error("Failed to create RSP for SFP {}", entry.getKey());
+                for (RenderedServicePath renderedServicePath : entry.getValue()) {
+                    SfcServicePathId.free_pathid(renderedServicePath.getPathId());
+                }
+            }
+        }
+    }
+
     /**
      * Create a Symmetric Path and all the associated operational state based on the
      * given rendered service path
@@ -213,8 +357,7 @@ public class SfcProviderRenderedPathAPI {
 
         RenderedServicePath revRenderedServicePath;
         boolean revRspSuccessful = false;
-        boolean addRevPathToSffStateSuccessful = false;
-        boolean addRevPathToSfStateSuccessful = false;
+        boolean addRevPathToStateSuccessful = false;
 
         // Reverse Path
 
@@ -225,30 +368,17 @@ public class SfcProviderRenderedPathAPI {
             LOG.error("Could not create Reverse RSP {}", renderedServicePath.getName());
         }
 
-        // Add Path name to SFF operational state
-        if (revRspSuccessful && SfcProviderServiceForwarderAPI.addPathToServiceForwarderState(revRenderedServicePath)) {
-            addRevPathToSffStateSuccessful = true;
-        } else {
-            SfcProviderRenderedPathAPI.deleteRenderedServicePath(revRenderedServicePath.getName());
-        }
-
-        // Add Path to SF operational state
-        if (addRevPathToSffStateSuccessful
-                && SfcProviderServiceFunctionAPI.addPathToServiceFunctionState(revRenderedServicePath)) {
-
-            addRevPathToSfStateSuccessful = true;
+        // Add Path name to SFF and SF operational state, both transactions being in flight together
+        if (revRspSuccessful) {
+            addRevPathToStateSuccessful = addPathToServiceForwarderAndFunctionState(revRenderedServicePath);
             // Send to SB REST
             /*
              * SfcProviderServicePathAPI.checkServiceFunctionPathExecutor
              * (revRenderedServicePath,HttpMethod.PUT);
              */
-        } else {
-            SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(revRenderedServicePath.getName());
-            SfcProviderRenderedPathAPI.deleteRenderedServicePath(revRenderedServicePath.getName());
-
         }
         // Add RSP to SFP operational state
-        if (!(addRevPathToSfStateSuccessful && SfcProviderServicePathAPI.addRenderedPathToServicePathState(
+        if (!(addRevPathToStateSuccessful && SfcProviderServicePathAPI.addRenderedPathToServicePathState(
                 renderedServicePath.getParentServiceFunctionPath(), revRenderedServicePath.getName()))) {
             // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
             /*
@@ -274,6 +404,24 @@ public class SfcProviderRenderedPathAPI {
         return revRenderedServicePath;
     }
 
+    /**
+     * Add the path name to the operational state of its SFFs and SFs. Both
+     * transactions are submitted before waiting for either of them.
+     *
+     * @param renderedServicePath RSP Object
+     * @return true if both states were written, false otherwise
+     */
+    private static boolean addPathToServiceForwarderAndFunctionState(RenderedServicePath renderedServicePath) {
+        ListenableFuture<Boolean> sffStateFuture =
+                SfcProviderServiceForwarderAPI.addPathToServiceForwarderStateAsync(renderedServicePath);
+        ListenableFuture<Boolean> sfStateFuture =
+                SfcProviderServiceFunctionAPI.addPathToServiceFunctionStateAsync(renderedServicePath);
+        // The futures complete with false instead of failing
+        boolean sffStateSuccessful = Futures.getUnchecked(sffStateFuture);
+        boolean sfStateSuccessful = Futures.getUnchecked(sfStateFuture);
+        return sffStateSuccessful && sfStateSuccessful;
+    }
+
     /**
      * Given a list of Service Functions, create a RenderedServicePath Hop List
      *
@@ -391,7 +539,6 @@ public class SfcProviderRenderedPathAPI {
         printTraceStart(LOG);
 
         long pathId;
-        int serviceIndex;
         RenderedServicePath ret = null;
 
         // Provisional code to test new RPC parameters
@@ -416,10 +563,50 @@ public class SfcProviderRenderedPathAPI {
             return null;
         }
 
-        RenderedServicePathBuilder renderedServicePathBuilder = new RenderedServicePathBuilder();
+        List<RenderedServicePathHop> renderedServicePathHopArrayList =
+                scheduleRenderedServicePathHops(serviceFunctionChain, serviceFunctionPath, scheduler);
+        if (renderedServicePathHopArrayList == null) {
+            return null;
+        }
+
+        pathId = allocatePathId(serviceFunctionPath);
+        if (pathId == -1) {
+            LOG.error("{}: Failed to allocate path-id: {}", Thread.currentThread().getStackTrace()[1], pathId);
+            return null;
+        }
 
+        RenderedServicePath renderedServicePath = buildRenderedServicePath(serviceFunctionPath,
+                createRenderedPathInput.getName(), renderedServicePathHopArrayList, pathId);
+        if (renderedServicePath == null) {
+            SfcServicePathId.free_pathid(pathId);
+            return null;
+        }
+
+        InstanceIdentifier<RenderedServicePath> rspIID = getRenderedServicePathIID(renderedServicePath.getName());
+
+        if (SfcDataStoreAPI.writeMergeTransactionAPI(rspIID, renderedServicePath, LogicalDatastoreType.OPERATIONAL)) {
+            ret = renderedServicePath;
+        } else {
+            LOG.error("{}: Failed to create Rendered Service Path: {}", Thread.currentThread().getStackTrace()[1],
+                    serviceFunctionPath.getName());
+        }
+        printTraceStop(LOG);
+        return ret;
+    }
+
+    /**
+     * Schedule the service functions of a chain and create the RSP hop list
+     *
+     * @param serviceFunctionChain the chain of the service function path
+     * @param serviceFunctionPath Service Function Path
+     * @param scheduler SfcServiceFunctionSchedulerAPI object
+     * @return the hop list, or null if the service functions could not be scheduled
+     */
+    private static List<RenderedServicePathHop> scheduleRenderedServicePathHops(
+            ServiceFunctionChain serviceFunctionChain, ServiceFunctionPath serviceFunctionPath,
+            SfcServiceFunctionSchedulerAPI scheduler) {
         // Descending order
-        serviceIndex = MAX_STARTING_INDEX;
+        int serviceIndex = MAX_STARTING_INDEX;
 
         List<String> sfgNameList = SfcProviderServiceFunctionGroupAPI.getSfgNameList(serviceFunctionChain);
         List<SfName> sfNameList =
@@ -433,30 +620,40 @@ public class SfcProviderRenderedPathAPI {
 
         if (renderedServicePathHopArrayList == null) {
             LOG.warn("createRenderedServicePathEntry createRenderedServicePathHopList returned null list");
-            return null;
         }
+        return renderedServicePathHopArrayList;
+    }
 
-        // Build the service function path so it can be committed to datastore
-        /*
-         * pathId = (serviceFunctionPath.getPathId() != null) ?
-         * serviceFunctionPath.getPathId() :
-         * numCreatedPathIncrementGet();
-         */
-
+    /**
+     * Allocate the path id of a RSP, the one configured in the service
+     * function path if any, or a generated one
+     *
+     * @param serviceFunctionPath Service Function Path
+     * @return the path id, or -1 if it could not be allocated
+     */
+    private static long allocatePathId(ServiceFunctionPath serviceFunctionPath) {
         if (serviceFunctionPath.getPathId() == null) {
-            pathId = SfcServicePathId.check_and_allocate_pathid();
+            return SfcServicePathId.check_and_allocate_pathid();
         } else {
-            pathId = SfcServicePathId.check_and_allocate_pathid(serviceFunctionPath.getPathId());
-        }
-
-        if (pathId == -1) {
-            LOG.error("{}: Failed to allocate path-id: {}", Thread.currentThread().getStackTrace()[1], pathId);
-            return null;
+            return SfcServicePathId.check_and_allocate_pathid(serviceFunctionPath.getPathId());
         }
+    }
 
+    /**
+     * Build a RSP from its service function path, hops and path id
+     *
+     * @param serviceFunctionPath Service Function Path
+     * @param rspName the RSP name, if null or empty generated from the SFP name
+     * @param renderedServicePathHopArrayList the hop list
+     * @param pathId the path id
+     * @return the RSP, or null if it could not be named
+     */
+    private static RenderedServicePath buildRenderedServicePath(ServiceFunctionPath serviceFunctionPath,
+            String rspName, List<RenderedServicePathHop> renderedServicePathHopArrayList, long pathId) {
+        RenderedServicePathBuilder renderedServicePathBuilder = new RenderedServicePathBuilder();
         renderedServicePathBuilder.setRenderedServicePathHop(renderedServicePathHopArrayList);
         // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
-        if (createRenderedPathInput.getName() == null || createRenderedPathInput.getName().isEmpty()) {
+        if (rspName == null || rspName.isEmpty()) {
             if (serviceFunctionPath.getName() != null) {
                 renderedServicePathBuilder
                     .setName(new RspName(serviceFunctionPath.getName().getValue() + "-Path-" + pathId));
@@ -466,7 +663,7 @@ public class SfcProviderRenderedPathAPI {
                 return null;
             }
         } else {
-            renderedServicePathBuilder.setName(new RspName(createRenderedPathInput.getName()));
+            renderedServicePathBuilder.setName(new RspName(rspName));
 
         }
 
@@ -475,7 +672,7 @@ public class SfcProviderRenderedPathAPI {
         // renderedServicePathBuilder.setStartingIndex((short)
         // renderedServicePathHopArrayList.size());
         renderedServicePathBuilder.setStartingIndex((short) MAX_STARTING_INDEX);
-        renderedServicePathBuilder.setServiceChainName(serviceFunctionChainName);
+        renderedServicePathBuilder.setServiceChainName(serviceFunctionPath.getServiceChainName());
         renderedServicePathBuilder.setParentServiceFunctionPath(serviceFunctionPath.getName());
         renderedServicePathBuilder.setContextMetadata(serviceFunctionPath.getContextMetadata());
         renderedServicePathBuilder.setVariableMetadata(serviceFunctionPath.getVariableMetadata());
@@ -498,23 +695,13 @@ public class SfcProviderRenderedPathAPI {
                                 Nsh.class :
                                 Transport.class);
 
-        RenderedServicePathKey renderedServicePathKey =
-                new RenderedServicePathKey(renderedServicePathBuilder.getName());
-        InstanceIdentifier<RenderedServicePath> rspIID;
-        rspIID = InstanceIdentifier.builder(RenderedServicePaths.class)
-            .child(RenderedServicePath.class, renderedServicePathKey)
-            .build();
-
-        RenderedServicePath renderedServicePath = renderedServicePathBuilder.build();
+        return renderedServicePathBuilder.build();
+    }
 
-        if (SfcDataStoreAPI.writeMergeTransactionAPI(rspIID, renderedServicePath, LogicalDatastoreType.OPERATIONAL)) {
-            ret = renderedServicePath;
-        } else {
-            LOG.error("{}: Failed to create Rendered Service Path: {}", Thread.currentThread().getStackTrace()[1],
-                    serviceFunctionPath.getName());
-        }
-        printTraceStop(LOG);
-        return ret;
+    private static InstanceIdentifier<RenderedServicePath> getRenderedServicePathIID(RspName rspName) {
+        return InstanceIdentifier.builder(RenderedServicePaths.class)
+            .child(RenderedServicePath.class, new RenderedServicePathKey(rspName))
+            .build();
     }
 
     /**
@@ -528,9 +715,6 @@ public class SfcProviderRenderedPathAPI {
     public static RenderedServicePath createReverseRenderedServicePathEntry(RenderedServicePath renderedServicePath) {
 
         RenderedServicePath ret = null;
-        RspName revPathName;
-        short revServiceHop;
-        List<RenderedServicePathHop> revRenderedServicePathHopArrayList = new ArrayList<>();
         // long pathId = numCreatedPathIncrementGet();
         long pathId = SfcServicePathId.check_and_allocate_symmetric_pathid(renderedServicePath.getPathId());
         printTraceStart(LOG);
@@ -540,6 +724,35 @@ public class SfcProviderRenderedPathAPI {
                     Thread.currentThread().getStackTrace()[1], renderedServicePath.getPathId());
         }
 
+        RenderedServicePath revRenderedServicePath = buildReverseRenderedServicePath(renderedServicePath, pathId);
+        InstanceIdentifier<RenderedServicePath> rspIID = getRenderedServicePathIID(revRenderedServicePath.getName());
+
+        if (SfcDataStoreAPI.writeMergeTransactionAPI(rspIID, revRenderedServicePath,
+                LogicalDatastoreType.OPERATIONAL)) {
+            ret = revRenderedServicePath;
+        } else {
+            LOG.error("{}: Failed to create Reverse Rendered Service Path: {}",
+                    Thread.currentThread().getStackTrace()[1], revRenderedServicePath.getName());
+        }
+        printTraceStop(LOG);
+        return ret;
+
+    }
+
+    /**
+     * Builds a RSP that is mirror image of the given one. It reverses the
+     * hop list and adjusts hop number and service index accordingly
+     *
+     * @param renderedServicePath RSP object
+     * @param pathId the path id of the reverse RSP
+     * @return the reverse RSP
+     */
+    private static RenderedServicePath buildReverseRenderedServicePath(RenderedServicePath renderedServicePath,
+            long pathId) {
+        RspName revPathName;
+        short revServiceHop;
+        List<RenderedServicePathHop> revRenderedServicePathHopArrayList = new ArrayList<>();
+
         RenderedServicePathBuilder revRenderedServicePathBuilder = new RenderedServicePathBuilder(renderedServicePath);
         revRenderedServicePathBuilder.setPathId(pathId);
         revPathName = generateReversedPathName(renderedServicePath.getName());
@@ -588,24 +801,7 @@ public class SfcProviderRenderedPathAPI {
         revRenderedServicePathBuilder.setRenderedServicePathHop(revRenderedServicePathHopArrayList);
         revRenderedServicePathBuilder.setSymmetricPathId(renderedServicePath.getPathId());
 
-        InstanceIdentifier<RenderedServicePath> rspIID;
-
-        rspIID = InstanceIdentifier.builder(RenderedServicePaths.class)
-            .child(RenderedServicePath.class, revRenderedServicePathKey)
-            .build();
-
-        RenderedServicePath revRenderedServicePath = revRenderedServicePathBuilder.build();
-
-        if (SfcDataStoreAPI.writeMergeTransactionAPI(rspIID, revRenderedServicePath,
-                LogicalDatastoreType.OPERATIONAL)) {
-            ret = revRenderedServicePath;
-        } else {
-            LOG.error("{}: Failed to create Reverse Rendered Service Path: {}",
-                    Thread.currentThread().getStackTrace()[1], revPathName);
-        }
-        printTraceStop(LOG);
-        return ret;
-
+        return revRenderedServicePathBuilder.build();
     }
 
     public static RspName generateReversedPathName(RspName directRspName) {
@@ -697,6 +893,105 @@ public class SfcProviderRenderedPathAPI {
         return ret;
     }
 
+    /**
+     * This method deletes a batch of RSPs, and their SFF and SF operational
+     * state, from the datastore and frees their Path IDs. The RSPs and the SFF
+     * operational state are read once, and the RSPs are deleted in one
+     * transaction per MAX_RSPS_PER_TRANSACTION RSPs.
+     * <p>
+     *
+     * @param renderedServicePathNames RSP names
+     * @return whether each RSP was deleted, true if it did not exist
+     */
+    public static Map<RspName, Boolean> deleteRenderedServicePathsAndState(List<RspName> renderedServicePathNames) {
+        printTraceStart(LOG);
+        Map<RspName, Boolean> result = new LinkedHashMap<>();
+
+        InstanceIdentifier<RenderedServicePaths> rspsIID = InstanceIdentifier.create(RenderedServicePaths.class);
+        RenderedServicePaths renderedServicePaths =
+                SfcDataStoreAPI.readTransactionAPI(rspsIID, LogicalDatastoreType.OPERATIONAL);
+        Map<RspName, RenderedServicePath> existingPaths = new HashMap<>();
+        if (renderedServicePaths != null && renderedServicePaths.getRenderedServicePath() != null) {
+            for (RenderedServicePath renderedServicePath : renderedServicePaths.getRenderedServicePath()) {
+                existingPaths.put(renderedServicePath.getName(), renderedServicePath);
+            }
+        }
+
+        Map<SffName, Set<SfpName>> sffPaths = existingPaths.isEmpty()
+                ? new HashMap<>()
+                : SfcProviderServiceForwarderAPI.readAllSffStatePaths();
+
+        List<RenderedServicePath> transactionPaths = new ArrayList<>();
+        for (RspName rspName : renderedServicePathNames) {
+            RenderedServicePath renderedServicePath = existingPaths.remove(rspName);
+            if (renderedServicePath == null) {
+                LOG.debug("RSP {} already deleted by another thread or client", rspName);
+                result.put(rspName, true);
+                continue;
+            }
+            transactionPaths.add(renderedServicePath);
+            if (transactionPaths.size() >= MAX_RSPS_PER_TRANSACTION) {
+                deleteRenderedServicePathsAndState(transactionPaths, sffPaths, result);
+                transactionPaths.clear();
+            }
+        }
+        if (!transactionPaths.isEmpty()) {
+            deleteRenderedServicePathsAndState(transactionPaths, sffPaths, result);
+        }
+
+        printTraceStop(LOG);
+        return result;
+    }
+
+    /*
+     * Delete the RSPs in one transaction. The state of the SFFs left without
+     * paths is deleted in the same transaction, as told by sffPaths, the
+     * paths of every SFF, which is updated once the transaction succeeds.
+     */
+    private static void deleteRenderedServicePathsAndState(List<RenderedServicePath> renderedServicePaths,
+            Map<SffName, Set<SfpName>> sffPaths, Map<RspName, Boolean> result) {
+        Set<SffName> sffNames = new HashSet<>();
+        Set<SfpName> sfpNames = new HashSet<>();
+        WriteTransaction writeTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
+        for (RenderedServicePath renderedServicePath : renderedServicePaths) {
+            sffNames.addAll(
+                    SfcProviderServiceForwarderAPI.deletePathFromServiceForwarderState(renderedServicePath, writeTx));
+            SfcProviderServiceFunctionAPI.deleteServicePathFromServiceFunctionState(renderedServicePath, writeTx);
+            writeTx.delete(LogicalDatastoreType.OPERATIONAL, getRenderedServicePathIID(renderedServicePath.getName()));
+            sfpNames.add(new SfpName(renderedServicePath.getName().getValue()));
+        }
+
+        // Delete the state of the SFFs left without paths
+        Set<SffName> emptySffNames = new HashSet<>();
+        for (SffName sffName : sffNames) {
+            Set<SfpName> paths = sffPaths.get(sffName);
+            if (paths == null || sfpNames.containsAll(paths)) {
+                SfcProviderServiceForwarderAPI.deleteServiceFunctionForwarderState(sffName, writeTx);
+                emptySffNames.add(sffName);
+            }
+        }
+
+        boolean ret = SfcDataStoreAPI.submitTransactionAPI(writeTx);
+        for (RenderedServicePath renderedServicePath : renderedServicePaths) {
+            result.put(renderedServicePath.getName(), ret);
+            if (ret) {
+                SfcServicePathId.free_pathid(renderedServicePath.getPathId());
+            } else {
+                LOG.error("Could not delete RSP: {}", renderedServicePath.getName());
+            }
+        }
+
+        if (ret) {
+            for (SffName sffName : sffNames) {
+                if (emptySffNames.contains(sffName)) {
+                    sffPaths.remove(sffName);
+                } else {
+                    sffPaths.get(sffName).removeAll(sfpNames);
+                }
+            }
+        }
+    }
+
     /**
      * This method provides all necessary information for a system to construct
      * a NSH header and associated overlay packet to target the first
@@ -8,10 +8,17 @@
 
 package org.opendaylight.sfc.provider.api;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffDataPlaneLocatorName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
@@ -24,7 +31,6 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev1407
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderKey;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.state.ServiceFunctionForwarderState;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.state.ServiceFunctionForwarderStateBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.state.ServiceFunctionForwarderStateKey;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.state.service.function.forwarder.state.SffServicePath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.state.service.function.forwarder.state.SffServicePathBuilder;
@@ -173,41 +179,94 @@ public class SfcProviderServiceForwarderAPI {
      * @return Nothing.
      */
     public static boolean addPathToServiceForwarderState(RenderedServicePath renderedServicePath) {
+        return Futures.getUnchecked(addPathToServiceForwarderStateAsync(renderedServicePath));
+    }
+
+    /**
+     * We add the path name to the operational store of each SFF, without
+     * waiting for the transaction to complete.
+     * <p>
+     *
+     * @param renderedServicePath RSP Object
+     * @return a future with true if the path was added, false otherwise
+     */
+    public static ListenableFuture<Boolean> addPathToServiceForwarderStateAsync(
+            final RenderedServicePath renderedServicePath) {
 
         printTraceStart(LOG);
 
-        boolean ret = true;
-        ServiceFunctionForwarderStateBuilder serviceFunctionForwarderStateBuilder =
-                new ServiceFunctionForwarderStateBuilder();
-
-        // TODO another example of strings being used to interchange types. Note the constructor of
-        // a new SfpName. See prior TODO on RPC
-        SffServicePathKey sffServicePathKey =
-                new SffServicePathKey(new SfpName(renderedServicePath.getName().getValue()));
-        SffServicePathBuilder sffServicePathBuilder = new SffServicePathBuilder();
-        sffServicePathBuilder.setKey(sffServicePathKey);
-        sffServicePathBuilder.setName(new SfpName(renderedServicePath.getName().getValue()));
-
-        List<RenderedServicePathHop> renderedServicePathHopList = renderedServicePath.getRenderedServicePathHop();
-        for (RenderedServicePathHop renderedServicePathHop : renderedServicePathHopList) {
-            ServiceFunctionForwarderStateKey serviceFunctionForwarderStateKey =
-                    new ServiceFunctionForwarderStateKey(renderedServicePathHop.getServiceFunctionForwarder());
-            InstanceIdentifier<SffServicePath> sfStateIID =
-                    InstanceIdentifier.builder(ServiceFunctionForwardersState.class)
-                        .child(ServiceFunctionForwarderState.class, serviceFunctionForwarderStateKey)
-                        .child(SffServicePath.class, sffServicePathKey)
-                        .build();
-            serviceFunctionForwarderStateBuilder.setName(renderedServicePathHop.getServiceFunctionForwarder());
-
-            if (!SfcDataStoreAPI.writePutTransactionAPI(sfStateIID, sffServicePathBuilder.build(),
-                    LogicalDatastoreType.OPERATIONAL)) {
-                ret = false;
-                LOG.error("Failed to add path {} to SFF {} state.", renderedServicePath.getName(),
-                        renderedServicePathHop.getServiceFunctionForwarder());
+        WriteTransaction writeTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
+        addPathToServiceForwarderState(renderedServicePath, writeTx);
+        ListenableFuture<Boolean> future = SfcDataStoreAPI.submitTransactionAPIAsync(writeTx);
+        Futures.addCallback(future, new FutureCallback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean result) {
+                if (!result) {
+                    LOG.error("Failed to add path {} to SFF state.", renderedServicePath.getName());
+                }
             }
-        }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOG.error("Failed to add path {} to SFF state.", renderedServicePath.getName(), t);
+            }
+        });
         printTraceStop(LOG);
-        return ret;
+        return future;
+    }
+
+    /**
+     * This method adds the writes of a RSP name to the corresponding SFF
+     * operational states to the given transaction, so that many paths
+     * can be committed together
+     * <p>
+     *
+     * @param renderedServicePath RSP object
+     * @param writeTx transaction the writes are added to
+     */
+    public static void addPathToServiceForwarderState(RenderedServicePath renderedServicePath,
+            WriteTransaction writeTx) {
+        SfpName sfpName = new SfpName(renderedServicePath.getName().getValue());
+        SffServicePath sffServicePath =
+                new SffServicePathBuilder().setKey(new SffServicePathKey(sfpName)).setName(sfpName).build();
+
+        Set<SffName> sffNameSet = new HashSet<>();
+        for (RenderedServicePathHop renderedServicePathHop : renderedServicePath.getRenderedServicePathHop()) {
+            if (sffNameSet.add(renderedServicePathHop.getServiceFunctionForwarder())) {
+                writeTx.put(LogicalDatastoreType.OPERATIONAL,
+                        getSffServicePathIID(renderedServicePathHop.getServiceFunctionForwarder(), sfpName),
+                        sffServicePath, true);
+            }
+        }
+    }
+
+    /**
+     * This method adds the deletes of a RSP name from the corresponding SFF
+     * operational states to the given transaction
+     * <p>
+     *
+     * @param renderedServicePath RSP object
+     * @param writeTx transaction the deletes are added to
+     * @return the SFFs the path was removed from
+     */
+    public static Set<SffName> deletePathFromServiceForwarderState(RenderedServicePath renderedServicePath,
+            WriteTransaction writeTx) {
+        SfpName sfpName = new SfpName(renderedServicePath.getName().getValue());
+        Set<SffName> sffNameSet = new HashSet<>();
+        for (RenderedServicePathHop renderedServicePathHop : renderedServicePath.getRenderedServicePathHop()) {
+            if (sffNameSet.add(renderedServicePathHop.getServiceFunctionForwarder())) {
+                writeTx.delete(LogicalDatastoreType.OPERATIONAL,
+                        getSffServicePathIID(renderedServicePathHop.getServiceFunctionForwarder(), sfpName));
+            }
+        }
+        return sffNameSet;
+    }
+
+    private static InstanceIdentifier<SffServicePath> getSffServicePathIID(SffName sffName, SfpName sfpName) {
+        return InstanceIdentifier.builder(ServiceFunctionForwardersState.class)
+            .child(ServiceFunctionForwarderState.class, new ServiceFunctionForwarderStateKey(sffName))
+            .child(SffServicePath.class, new SffServicePathKey(sfpName))
+            .build();
     }
 
     /**
@@ -375,6 +434,51 @@ public class SfcProviderServiceForwarderAPI {
         return ret;
     }
 
+    /**
+     * This method adds the delete of the operational state of a SFF to the
+     * given transaction
+     * <p>
+     *
+     * @param sffName SFF name
+     * @param writeTx transaction the delete is added to
+     */
+    public static void deleteServiceFunctionForwarderState(SffName sffName, WriteTransaction writeTx) {
+        InstanceIdentifier<ServiceFunctionForwarderState> sffStateIID =
+                InstanceIdentifier.builder(ServiceFunctionForwardersState.class)
+                    .child(ServiceFunctionForwarderState.class, new ServiceFunctionForwarderStateKey(sffName))
+                    .build();
+        writeTx.delete(LogicalDatastoreType.OPERATIONAL, sffStateIID);
+    }
+
+    /**
+     * Returns the names of the SFPs anchored by every SFF, read at once
+     * <p>
+     *
+     * @return the SFP names per SFF name, SFFs without operational state are omitted
+     */
+    public static Map<SffName, Set<SfpName>> readAllSffStatePaths() {
+        printTraceStart(LOG);
+        Map<SffName, Set<SfpName>> ret = new HashMap<>();
+
+        InstanceIdentifier<ServiceFunctionForwardersState> sffsStateIID =
+                InstanceIdentifier.create(ServiceFunctionForwardersState.class);
+        ServiceFunctionForwardersState sffsState =
+                SfcDataStoreAPI.readTransactionAPI(sffsStateIID, LogicalDatastoreType.OPERATIONAL);
+        if (sffsState != null && sffsState.getServiceFunctionForwarderState() != null) {
+            for (ServiceFunctionForwarderState sffState : sffsState.getServiceFunctionForwarderState()) {
+                Set<SfpName> sfpNames = new HashSet<>();
+                if (sffState.getSffServicePath() != null) {
+                    for (SffServicePath sffServicePath : sffState.getSffServicePath()) {
+                        sfpNames.add(sffServicePath.getName());
+                    }
+                }
+                ret.put(sffState.getName(), sfpNames);
+            }
+        }
+        printTraceStop(LOG);
+        return ret;
+    }
+
     /**
      * Returns the list of SFPs anchored by a SFF
      * <p>
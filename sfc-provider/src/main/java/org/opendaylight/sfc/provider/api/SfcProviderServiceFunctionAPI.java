@@ -8,9 +8,14 @@
 
 package org.opendaylight.sfc.provider.api;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import java.util.ArrayList;
 import java.util.List;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfpName;
@@ -21,13 +26,13 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev14070
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionKey;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.state.ServiceFunctionState;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.state.ServiceFunctionStateBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.state.ServiceFunctionStateKey;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.state.service.function.state.SfServicePath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.state.service.function.state.SfServicePathBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.state.service.function.state.SfServicePathKey;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rev141201.ServiceFunctionState1;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rev141201.service.functions.state.service.function.state.SfcSfDescMon;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rev141201.service.functions.state.service.function.state.sfc.sf.desc.mon.MonitoringInfo;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -163,6 +168,7 @@ public class SfcProviderServiceFunctionAPI {
             .build();
 
         if (SfcDataStoreAPI.deleteTransactionAPI(sfStateIID, LogicalDatastoreType.OPERATIONAL)) {
+            SfcServiceFunctionLoadSnapshot.getInstance().removeLoad(serviceFunctionName);
             ret = true;
         } else {
             LOG.error("{}: Could not delete operational state for SF: {}", Thread.currentThread().getStackTrace()[1],
@@ -179,52 +185,105 @@ public class SfcProviderServiceFunctionAPI {
      * @return true if SFP was added, false otherwise
      */
     public static boolean addPathToServiceFunctionState(RenderedServicePath renderedServicePath) {
+        return Futures.getUnchecked(addPathToServiceFunctionStateAsync(renderedServicePath));
+    }
+
+    /**
+     * This method adds a RSP name to the corresponding SF operational state,
+     * without waiting for the transaction to complete.
+     * <p>
+     *
+     * @param renderedServicePath RSP object
+     * @return a future with true if the path was added, false otherwise
+     */
+    public static ListenableFuture<Boolean> addPathToServiceFunctionStateAsync(
+            final RenderedServicePath renderedServicePath) {
 
-        boolean ret = false;
         printTraceStart(LOG);
 
-        ServiceFunctionStateBuilder serviceFunctionStateBuilder = new ServiceFunctionStateBuilder();
-        // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
-        SfpName sfpName = new SfpName(renderedServicePath.getName().getValue());
-        SfServicePathKey sfServicePathKey = new SfServicePathKey(sfpName);
-        SfServicePathBuilder sfServicePathBuilder = new SfServicePathBuilder();
-        sfServicePathBuilder.setKey(sfServicePathKey);
-        sfServicePathBuilder.setName(sfpName);
         List<RenderedServicePathHop> renderedServicePathHopList = renderedServicePath.getRenderedServicePathHop();
+        if (renderedServicePathHopList == null || renderedServicePathHopList.isEmpty()) {
+            printTraceStop(LOG);
+            return Futures.immediateFuture(false);
+        }
         for (RenderedServicePathHop renderedServicePathHop : renderedServicePathHopList) {
-            SfName serviceFunctionName = renderedServicePathHop.getServiceFunctionName();
-            String serviceFunctionGroupName = renderedServicePathHop.getServiceFunctionGroupName();
-            LOG.debug("handling hop index: {}, sf: {}, sfg: {}", renderedServicePathHop.getHopNumber(),
-                    serviceFunctionName, serviceFunctionGroupName);
-            if (serviceFunctionName != null) {
-                ServiceFunctionStateKey serviceFunctionStateKey =
-                        new ServiceFunctionStateKey(renderedServicePathHop.getServiceFunctionName());
-
-                InstanceIdentifier<SfServicePath> sfStateIID = InstanceIdentifier.builder(ServiceFunctionsState.class)
-                    .child(ServiceFunctionState.class, serviceFunctionStateKey)
-                    .child(SfServicePath.class, sfServicePathKey)
-                    .build();
-                serviceFunctionStateBuilder.setName(renderedServicePathHop.getServiceFunctionName());
-
-                if (SfcDataStoreAPI.writePutTransactionAPI(sfStateIID, sfServicePathBuilder.build(),
-                        LogicalDatastoreType.OPERATIONAL)) {
-                    ret = true;
-                } else {
-                    LOG.error("{}: Could not add SFP {} to operational state of SF: {}",
-                            Thread.currentThread().getStackTrace()[1], renderedServicePath.getName(),
-                            renderedServicePathHop.getServiceFunctionName());
-                }
-            } else if (serviceFunctionGroupName != null) {
+            if (renderedServicePathHop.getServiceFunctionName() == null
+                    && renderedServicePathHop.getServiceFunctionGroupName() != null) {
                 LOG.info("{}: Could not add SFP {} to operational state of SFG: {}",
                         Thread.currentThread().getStackTrace()[1], renderedServicePath.getName(),
-                        serviceFunctionGroupName);
-                ret = true;
+                        renderedServicePathHop.getServiceFunctionGroupName());
             }
-
         }
+
+        WriteTransaction writeTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
+        addPathToServiceFunctionState(renderedServicePath, writeTx);
+        ListenableFuture<Boolean> future = SfcDataStoreAPI.submitTransactionAPIAsync(writeTx);
+        Futures.addCallback(future, new FutureCallback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean result) {
+                if (!result) {
+                    LOG.error("Could not add SFP {} to operational state of its SFs", renderedServicePath.getName());
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOG.error("Could not add SFP {} to operational state of its SFs", renderedServicePath.getName(), t);
+            }
+        });
         printTraceStop(LOG);
-        return ret;
+        return future;
+    }
 
+    /**
+     * This method adds the writes of a RSP name to the corresponding SF
+     * operational states to the given transaction, so that many paths
+     * can be committed together
+     * <p>
+     *
+     * @param renderedServicePath RSP object
+     * @param writeTx transaction the writes are added to
+     */
+    public static void addPathToServiceFunctionState(RenderedServicePath renderedServicePath,
+            WriteTransaction writeTx) {
+        // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
+        SfpName sfpName = new SfpName(renderedServicePath.getName().getValue());
+        SfServicePath sfServicePath =
+                new SfServicePathBuilder().setKey(new SfServicePathKey(sfpName)).setName(sfpName).build();
+        for (RenderedServicePathHop renderedServicePathHop : renderedServicePath.getRenderedServicePathHop()) {
+            if (renderedServicePathHop.getServiceFunctionName() != null) {
+                writeTx.put(LogicalDatastoreType.OPERATIONAL,
+                        getSfServicePathIID(renderedServicePathHop.getServiceFunctionName(), sfpName),
+                        sfServicePath, true);
+            }
+        }
+    }
+
+    /**
+     * This method adds the deletes of a RSP name from the corresponding SF
+     * operational states to the given transaction
+     * <p>
+     *
+     * @param renderedServicePath RSP object
+     * @param writeTx transaction the deletes are added to
+     */
+    public static void deleteServicePathFromServiceFunctionState(RenderedServicePath renderedServicePath,
+            WriteTransaction writeTx) {
+        // TODO Bug 4495 - RPCs hiding heuristics using Strings - alagalah
+        SfpName sfpName = new SfpName(renderedServicePath.getName().getValue());
+        for (RenderedServicePathHop renderedServicePathHop : renderedServicePath.getRenderedServicePathHop()) {
+            if (renderedServicePathHop.getServiceFunctionName() != null) {
+                writeTx.delete(LogicalDatastoreType.OPERATIONAL,
+                        getSfServicePathIID(renderedServicePathHop.getServiceFunctionName(), sfpName));
+            }
+        }
+    }
+
+    private static InstanceIdentifier<SfServicePath> getSfServicePathIID(SfName sfName, SfpName sfpName) {
+        return InstanceIdentifier.builder(ServiceFunctionsState.class)
+            .child(ServiceFunctionState.class, new ServiceFunctionStateKey(sfName))
+            .child(SfServicePath.class, new SfServicePathKey(sfpName))
+            .build();
     }
 
     /**
@@ -263,6 +322,9 @@ public class SfcProviderServiceFunctionAPI {
             .build();
 
         ret = SfcDataStoreAPI.writePutTransactionAPI(sfStateIID, sfState, LogicalDatastoreType.OPERATIONAL);
+        if (ret) {
+            SfcServiceFunctionLoadSnapshot.getInstance().setLoad(sfState.getKey().getName(), getMonitoringInfo(sfState));
+        }
 
         printTraceStop(LOG);
         return ret;
@@ -278,11 +340,26 @@ public class SfcProviderServiceFunctionAPI {
             .build();
 
         ret = SfcDataStoreAPI.writeMergeTransactionAPI(sfStateIID, sfState, LogicalDatastoreType.OPERATIONAL);
+        if (ret) {
+            SfcServiceFunctionLoadSnapshot.getInstance().updateLoad(sfState.getKey().getName(),
+                    getMonitoringInfo(sfState));
+        }
 
         printTraceStop(LOG);
         return ret;
     }
 
+    /*
+     * The monitoring information carried by a ServiceFunctionState, if any
+     */
+    private static MonitoringInfo getMonitoringInfo(ServiceFunctionState sfState) {
+        ServiceFunctionState1 sfState1 = sfState.getAugmentation(ServiceFunctionState1.class);
+        if (sfState1 == null || sfState1.getSfcSfDescMon() == null) {
+            return null;
+        }
+        return sfState1.getSfcSfDescMon().getMonitoringInfo();
+    }
+
     /**
      * This method reads a SF from the datastore
      * <p>
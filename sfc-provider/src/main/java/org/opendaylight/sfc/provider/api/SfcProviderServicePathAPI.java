@@ -9,6 +9,7 @@
 package org.opendaylight.sfc.provider.api;
 
 import java.util.List;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfpName;
@@ -107,6 +108,28 @@ public class SfcProviderServicePathAPI {
         return ret;
     }
 
+    /**
+     * This function adds the write of a RSP name to the SFP operational
+     * state to the given transaction
+     *
+     * @param servicePathName SFP name
+     * @param renderedPathName RSP name
+     * @param writeTx transaction the write is added to
+     */
+    public static void addRenderedPathToServicePathState(SfpName servicePathName, RspName renderedPathName,
+            WriteTransaction writeTx) {
+        SfpRenderedServicePathKey sfpRenderedServicePathKey = new SfpRenderedServicePathKey(renderedPathName);
+        InstanceIdentifier<SfpRenderedServicePath> rspIID = InstanceIdentifier.builder(ServiceFunctionPathsState.class)
+            .child(ServiceFunctionPathState.class, new ServiceFunctionPathStateKey(servicePathName))
+            .child(SfpRenderedServicePath.class, sfpRenderedServicePathKey)
+            .build();
+        SfpRenderedServicePath sfpRenderedServicePath = new SfpRenderedServicePathBuilder()
+            .setKey(sfpRenderedServicePathKey)
+            .setName(renderedPathName)
+            .build();
+        writeTx.merge(LogicalDatastoreType.OPERATIONAL, rspIID, sfpRenderedServicePath, true);
+    }
+
     /**
      * This function reads a SFP from the datastore
      *
@@ -8,6 +8,10 @@
 
 package org.opendaylight.sfc.provider.api;
 
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import java.util.List;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
@@ -79,6 +83,7 @@ public class SfcProviderServiceTypeAPI {
 
         if (SfcDataStoreAPI.writeMergeTransactionAPI(sftentryIID, sftServiceFunctionName,
                 LogicalDatastoreType.CONFIGURATION)) {
+            SfcServiceFunctionLoadSnapshot.getInstance().addTypeMember(serviceFunction.getType(), sfName);
             ret = true;
         } else {
             LOG.error("Failed to create Service Function Type for Service Function: {}", serviceFunction.getName());
@@ -87,6 +92,20 @@ public class SfcProviderServiceTypeAPI {
         return ret;
     }
 
+    /**
+     * This method creates a Service function Type entry from a Service
+     * Function, without waiting for the transaction to complete.
+     *
+     * @param serviceFunction Service Function Object
+     * @return a future with true if service type was created, false otherwise
+     */
+    public static ListenableFuture<Boolean> createServiceFunctionTypeEntryAsync(ServiceFunction serviceFunction) {
+        SfName sfName = new SfName(serviceFunction.getName().getValue());
+        SftServiceFunctionName sftServiceFunctionName = new SftServiceFunctionNameBuilder().setName(sfName).build();
+        return updateLoadSnapshot(SfcDataStoreAPI.writeMergeTransactionAPIAsync(getSftEntryIID(serviceFunction),
+                sftServiceFunctionName, LogicalDatastoreType.CONFIGURATION), serviceFunction.getType(), sfName, true);
+    }
+
     public static boolean putServiceFunctionType(ServiceFunctionType sft) {
         boolean ret;
         printTraceStart(LOG);
@@ -96,6 +115,10 @@ public class SfcProviderServiceTypeAPI {
             .build();
 
         ret = SfcDataStoreAPI.writePutTransactionAPI(sftEntryIID, sft, LogicalDatastoreType.CONFIGURATION);
+        if (ret) {
+            // Indexed again from the datastore when next scheduled
+            SfcServiceFunctionLoadSnapshot.getInstance().removeType(sft.getType());
+        }
 
         printTraceStop(LOG);
         return ret;
@@ -148,6 +171,7 @@ public class SfcProviderServiceTypeAPI {
             .build();
 
         if (SfcDataStoreAPI.deleteTransactionAPI(sftentryIID, LogicalDatastoreType.CONFIGURATION)) {
+            SfcServiceFunctionLoadSnapshot.getInstance().removeTypeMember(serviceFunction.getType(), sfName);
             ret = true;
         } else {
             LOG.error("Failed to delete Service Function Type: {}, for Service Function: {}", serviceFunction.getType(),
@@ -166,6 +190,94 @@ public class SfcProviderServiceTypeAPI {
         return ret;
     }
 
+    /**
+     * This method deletes a Service Function entry from the Service Function
+     * Type list, without waiting for the transaction to complete. The entry
+     * and, if it was the last one, the Service Function Type are deleted in
+     * a single transaction.
+     *
+     * @param serviceFunction Service Function object
+     * @return a future with true if the entry was deleted, false otherwise
+     */
+    public static ListenableFuture<Boolean> deleteServiceFunctionTypeEntryAsync(
+            final ServiceFunction serviceFunction) {
+        final SfcDataStoreTransaction transaction = new SfcDataStoreTransaction();
+        final InstanceIdentifier<ServiceFunctionType> sftIID = InstanceIdentifier.builder(ServiceFunctionTypes.class)
+            .child(ServiceFunctionType.class, new ServiceFunctionTypeKey(serviceFunction.getType()))
+            .build();
+        final SfName sfName = new SfName(serviceFunction.getName().getValue());
+
+        ListenableFuture<ServiceFunctionType> readFuture =
+                transaction.readAsync(sftIID, LogicalDatastoreType.CONFIGURATION);
+        return Futures.transform(readFuture, new AsyncFunction<ServiceFunctionType, Boolean>() {
+            @Override
+            public ListenableFuture<Boolean> apply(ServiceFunctionType sft) {
+                if (isLastServiceFunctionOfType(sft, sfName)) {
+                    LOG.debug("Deleting Service Function Type {} with its last Service Function {}",
+                            serviceFunction.getType(), sfName);
+                    transaction.delete(sftIID, LogicalDatastoreType.CONFIGURATION);
+                    return updateLoadSnapshot(removeRoundRobinCounter(serviceFunction.getType(), transaction),
+                            serviceFunction.getType(), sfName, false);
+                }
+                transaction.delete(getSftEntryIID(serviceFunction), LogicalDatastoreType.CONFIGURATION);
+                return updateLoadSnapshot(transaction.submit("deleteServiceFunctionTypeEntryAsync"),
+                        serviceFunction.getType(), sfName, false);
+            }
+        });
+    }
+
+    private static ListenableFuture<Boolean> removeRoundRobinCounter(final SftTypeName sfType,
+            SfcDataStoreTransaction transaction) {
+        final SfcServiceFunctionRoundRobinCounters counters = SfcServiceFunctionRoundRobinCounters.getInstance();
+        counters.remove(sfType, transaction);
+        return Futures.transform(transaction.submit("deleteServiceFunctionTypeEntryAsync"),
+                new Function<Boolean, Boolean>() {
+                    @Override
+                    public Boolean apply(Boolean committed) {
+                        counters.completeRemove(sfType, committed);
+                        return committed;
+                    }
+                });
+    }
+
+    /*
+     * Let the load snapshot follow the SF type entries, once written
+     */
+    private static ListenableFuture<Boolean> updateLoadSnapshot(ListenableFuture<Boolean> submitted,
+            final SftTypeName sfType, final SfName sfName, final boolean added) {
+        return Futures.transform(submitted, new Function<Boolean, Boolean>() {
+            @Override
+            public Boolean apply(Boolean committed) {
+                if (Boolean.TRUE.equals(committed)) {
+                    SfcServiceFunctionLoadSnapshot loadSnapshot = SfcServiceFunctionLoadSnapshot.getInstance();
+                    if (added) {
+                        loadSnapshot.addTypeMember(sfType, sfName);
+                    } else {
+                        loadSnapshot.removeTypeMember(sfType, sfName);
+                    }
+                }
+                return committed;
+            }
+        });
+    }
+
+    private static boolean isLastServiceFunctionOfType(ServiceFunctionType sft, SfName sfName) {
+        if (sft == null || sft.getSftServiceFunctionName() == null) {
+            return false;
+        }
+        List<SftServiceFunctionName> sftServiceFunctionNameList = sft.getSftServiceFunctionName();
+        return sftServiceFunctionNameList.size() == 1
+                && sfName.equals(sftServiceFunctionNameList.get(0).getName());
+    }
+
+    private static InstanceIdentifier<SftServiceFunctionName> getSftEntryIID(ServiceFunction serviceFunction) {
+        SfName sfName = new SfName(serviceFunction.getName().getValue());
+        return InstanceIdentifier.builder(ServiceFunctionTypes.class)
+            .child(ServiceFunctionType.class, new ServiceFunctionTypeKey(serviceFunction.getType()))
+            .child(SftServiceFunctionName.class, new SftServiceFunctionNameKey(sfName))
+            .build();
+    }
+
     /**
      * Delete a ServiceFunctionType based on SftType (key)
      * @param sftType: Sft type
@@ -198,7 +310,14 @@ public class SfcProviderServiceTypeAPI {
         InstanceIdentifier<ServiceFunctionType> sftEntryIID = InstanceIdentifier.builder(ServiceFunctionTypes.class)
             .child(ServiceFunctionType.class, serviceFunctionTypeKey)
             .build();
-        if (SfcDataStoreAPI.deleteTransactionAPI(sftEntryIID, LogicalDatastoreType.CONFIGURATION)) {
+        SfcDataStoreTransaction transaction = new SfcDataStoreTransaction();
+        transaction.delete(sftEntryIID, LogicalDatastoreType.CONFIGURATION);
+        SfcServiceFunctionRoundRobinCounters counters = SfcServiceFunctionRoundRobinCounters.getInstance();
+        counters.remove(serviceFunctionType.getType(), transaction);
+        boolean committed = transaction.commit();
+        counters.completeRemove(serviceFunctionType.getType(), committed);
+        if (committed) {
+            SfcServiceFunctionLoadSnapshot.getInstance().removeType(serviceFunctionType.getType());
             ret = true;
         } else {
             LOG.error("Failed to delete Service Type: {}", serviceFunctionType);
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2016 Intel Ltd. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.opendaylight.sfc.provider.topology.SfcProviderTopology;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChain;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.service.function.chain.SfcServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.state.service.function.forwarder.state.SffServicePath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.ServiceFunctionType;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.service.function.type.SftServiceFunctionName;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rev141201.service.functions.state.service.function.state.SfcSfDescMon;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.CostAware;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class implements cost aware scheduling mode.
+ * <p>
+ * Instead of selecting the SFs hop by hop, the whole chain is solved at once:
+ * the SF instances of each SF type of the chain form a layer, and the path with
+ * the lowest total cost across the layers is selected. The cost of a path is the
+ * sum of the hop distances between its consecutive SFs in the SF/SFF topology,
+ * and of the load of its SFs as reported by their monitoring information.
+ * <p>
+ * SFs attached to an SFF that already carries as many paths as its capacity
+ * limit, if any, are not selected. The capacities are set by configuration.
+ * An SF is never selected for two consecutive hops, unless the SFP does so.
+ */
+public class SfcServiceFunctionCostAwareSchedulerAPI extends SfcServiceFunctionSchedulerAPI {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcServiceFunctionCostAwareSchedulerAPI.class);
+
+    // Cost of one hop in the SF/SFF topology
+    static final double HOP_COST = 1.0;
+
+    // Cost of one point of SF load score, a fully loaded SF costs as much as 5 hops
+    static final double LOAD_COST = 0.05;
+
+    // Capacities of the SFFs set by configuration, used by the schedulers created afterwards
+    private static volatile Map<SffName, Integer> configuredSffCapacities = Collections.emptyMap();
+
+    private final Map<SffName, Integer> sffCapacities;
+
+    SfcServiceFunctionCostAwareSchedulerAPI() {
+        this(configuredSffCapacities);
+    }
+
+    /**
+     * @param sffCapacities - the maximum number of paths of the SFFs, SFFs without limit are omitted
+     */
+    SfcServiceFunctionCostAwareSchedulerAPI(Map<SffName, Integer> sffCapacities) {
+        super.setSfcServiceFunctionSchedulerType(CostAware.class);
+        this.sffCapacities = sffCapacities;
+    }
+
+    /**
+     * Set the capacities of the SFFs for the schedulers created from now on.
+     *
+     * @param sffCapacities - comma separated sff-name=max-paths pairs, SFFs without limit are omitted,
+     *                        invalid pairs are ignored
+     */
+    public static void setSffCapacities(String sffCapacities) {
+        Map<SffName, Integer> capacities = new HashMap<>();
+        parseSettings(sffCapacities).forEach((sffName, capacity) -> capacities.put(new SffName(sffName), capacity));
+        configuredSffCapacities = Collections.unmodifiableMap(capacities);
+        LOG.info("ServiceFunctionForwarder capacities: {}", capacities);
+    }
+
+    /**
+     * This method finds out the Service Function Path with the lowest
+     * cost for the given Service Function Chain chain, using a shortest
+     * path search over the layers of SF instances of each SF type.
+     * <p>
+     *
+     * @param chain Service Function Chain to render
+     * @param serviceIndex Not used currently
+     * @return List&lt;SfName&gt; Service Function name list of the path, null if no path is available
+     */
+    @Override
+    public List<SfName> scheduleServiceFunctions(ServiceFunctionChain chain, int serviceIndex,
+            ServiceFunctionPath sfp) {
+        List<SfcServiceFunction> sfcServiceFunctionList = new ArrayList<>();
+        sfcServiceFunctionList.addAll(chain.getSfcServiceFunction());
+        Map<Short, SfName> sfpMapping = getSFPHopSfMapping(sfp);
+        SfcProviderTopology topology = getTopology();
+        Map<SffName, Boolean> sffAvailability = new HashMap<>();
+
+        /* Build the layers, one per hop, with the candidate SFs of each hop */
+        List<Layer> layers = new ArrayList<>();
+        short index = 0;
+        for (SfcServiceFunction sfcServiceFunction : sfcServiceFunctionList) {
+            LOG.debug("ServiceFunction name: {}", sfcServiceFunction.getName());
+            SfName hopSf = sfpMapping.get(index++);
+            if (hopSf != null) {
+                layers.add(new Layer(Collections.singletonList(hopSf), true));
+                continue;
+            }
+
+            ServiceFunctionType serviceFunctionType =
+                    SfcProviderServiceTypeAPI.readServiceFunctionType(sfcServiceFunction.getType());
+            if (serviceFunctionType == null || serviceFunctionType.getSftServiceFunctionName().isEmpty()) {
+                LOG.error("Could not create path because there are no configured SFs of type: {}",
+                        sfcServiceFunction.getType());
+                return null;
+            }
+
+            List<SfName> candidates = new ArrayList<>();
+            for (SftServiceFunctionName sftServiceFunctionName : serviceFunctionType.getSftServiceFunctionName()) {
+                SfName sfName = new SfName(sftServiceFunctionName.getName());
+                if (!topology.hasNode(sfName.getValue())) {
+                    LOG.debug("ServiceFunction {} doesn't exist", sfName);
+                } else if (!isServiceFunctionAvailable(sfName, topology, sffAvailability)) {
+                    LOG.debug("ServiceFunction {} is attached to a full ServiceFunctionForwarder", sfName);
+                } else {
+                    candidates.add(sfName);
+                }
+            }
+            if (candidates.isEmpty()) {
+                LOG.error("Could not create path because there are no available SFs of type: {}",
+                        sfcServiceFunction.getType());
+                return null;
+            }
+            layers.add(new Layer(candidates, false));
+        }
+
+        return getLowestCostPath(layers, topology);
+    }
+
+    /*
+     * Shortest path across the layers, the candidates of a layer being
+     * connected to all the reachable candidates of the next layer
+     */
+    private List<SfName> getLowestCostPath(List<Layer> layers, SfcProviderTopology topology) {
+        if (layers.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        double[] costs = null;
+        List<int[]> previous = new ArrayList<>();
+        Layer previousLayer = null;
+        for (Layer layer : layers) {
+            double[] layerCosts = new double[layer.sfNames.size()];
+            int[] layerPrevious = new int[layer.sfNames.size()];
+            Arrays.fill(layerCosts, Double.POSITIVE_INFINITY);
+            Arrays.fill(layerPrevious, -1);
+            for (int i = 0; i < layer.sfNames.size(); i++) {
+                SfName sfName = layer.sfNames.get(i);
+                double loadCost = layer.fixed ? 0 : getLoadCost(sfName);
+                if (previousLayer == null) {
+                    layerCosts[i] = loadCost;
+                    continue;
+                }
+                for (int j = 0; j < previousLayer.sfNames.size(); j++) {
+                    if (costs[j] == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    // The same SF twice in a row costs nothing, only the SFP can ask for it
+                    if (!(layer.fixed && previousLayer.fixed) && previousLayer.sfNames.get(j).equals(sfName)) {
+                        continue;
+                    }
+                    double hopCost = getHopCost(previousLayer, j, layer, i, topology);
+                    if (hopCost >= 0 && costs[j] + hopCost + loadCost < layerCosts[i]) {
+                        layerCosts[i] = costs[j] + hopCost + loadCost;
+                        layerPrevious[i] = j;
+                    }
+                }
+            }
+            costs = layerCosts;
+            previous.add(layerPrevious);
+            previousLayer = layer;
+        }
+
+        /* Walk back from the lowest cost SF of the last layer */
+        int best = -1;
+        for (int i = 0; i < costs.length; i++) {
+            if (costs[i] != Double.POSITIVE_INFINITY && (best < 0 || costs[i] < costs[best])) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            LOG.error("Could not create path because the available SFs are not connected");
+            return null;
+        }
+        LOG.debug("Lowest path cost: {}", costs[best]);
+
+        SfName[] sfNames = new SfName[layers.size()];
+        for (int hop = layers.size() - 1; hop >= 0; hop--) {
+            sfNames[hop] = layers.get(hop).sfNames.get(best);
+            best = previous.get(hop)[best];
+        }
+        return new ArrayList<>(Arrays.asList(sfNames));
+    }
+
+    /*
+     * Cost between two SFs of consecutive hops, -1 if there is no path between them.
+     * The SFs given by the SFP are kept even when their location is unknown.
+     */
+    private static double getHopCost(Layer fromLayer, int from, Layer toLayer, int to, SfcProviderTopology topology) {
+        int distance = topology.getDistance(fromLayer.sfNames.get(from).getValue(),
+                toLayer.sfNames.get(to).getValue());
+        if (distance < 0) {
+            return fromLayer.fixed || toLayer.fixed ? 0 : -1;
+        }
+        return HOP_COST * distance;
+    }
+
+    private static double getLoadCost(SfName sfName) {
+        SfcServiceFunctionLoadSnapshot loadSnapshot = SfcServiceFunctionLoadSnapshot.getInstance();
+        if (!loadSnapshot.containsLoad(sfName)) {
+            SfcSfDescMon sfcSfDescMon = SfcProviderServiceFunctionAPI.readServiceFunctionDescriptionMonitor(sfName);
+            loadSnapshot.setLoad(sfName, sfcSfDescMon == null ? null : sfcSfDescMon.getMonitoringInfo());
+        }
+        Double loadScore = loadSnapshot.getLoadScore(sfName);
+        return loadScore == null ? 0 : LOAD_COST * loadScore;
+    }
+
+    /*
+     * A SF is available unless one of its SFFs in the topology reached its
+     * capacity limit. Only the SFFs with a limit are looked up.
+     */
+    private boolean isServiceFunctionAvailable(SfName sfName, SfcProviderTopology topology,
+            Map<SffName, Boolean> sffAvailability) {
+        for (SffName sffName : sffCapacities.keySet()) {
+            if (topology.hasEdge(sfName.getValue(), sffName.getValue())
+                    && !sffAvailability.computeIfAbsent(sffName, this::isForwarderAvailable)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isForwarderAvailable(SffName sffName) {
+        int capacity = sffCapacities.get(sffName);
+        List<SffServicePath> sffServicePaths = SfcProviderServiceForwarderAPI.readSffState(sffName);
+        int pathCount = sffServicePaths == null ? 0 : sffServicePaths.size();
+        LOG.debug("ServiceFunctionForwarder {} carries {} paths out of {}", sffName, pathCount, capacity);
+        return pathCount < capacity;
+    }
+
+    private static final class Layer {
+        private final List<SfName> sfNames;
+        // The SF of the hop is given by the SFP
+        private final boolean fixed;
+
+        Layer(List<SfName> sfNames, boolean fixed) {
+            this.sfNames = sfNames;
+            this.fixed = fixed;
+        }
+    }
+}
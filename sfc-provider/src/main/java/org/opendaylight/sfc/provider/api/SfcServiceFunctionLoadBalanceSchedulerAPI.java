@@ -9,10 +9,12 @@
 package org.opendaylight.sfc.provider.api;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftTypeName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChain;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.service.function.chain.SfcServiceFunction;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
@@ -46,54 +48,49 @@ public class SfcServiceFunctionLoadBalanceSchedulerAPI extends SfcServiceFunctio
      * relationship.
      * A Type can have many instances of ServiceFunctions, hence one would expect this to return a
      * list of SfNames.
-     * What it appears to actually be doing is finding the first instance of an SF within a Type
-     * that meets the CPUUtilization criteria.
-     * Since it appears to be returning an SfName, will make that change here rather than casting
-     * the return from where it was called.
+     * What it actually does is finding the least loaded instance of an SF within a Type,
+     * according to the load snapshot fed by the SF monitoring information.
      * Since these methods appear to be common, perhaps consider making
      * SfcServiceFunctionSchedulerAPI and Interface?
      */
     private SfName getServiceFunctionByType(ServiceFunctionType serviceFunctionType) {
+        SfcServiceFunctionLoadSnapshot loadSnapshot = SfcServiceFunctionLoadSnapshot.getInstance();
+        SftTypeName sfType = serviceFunctionType.getType();
         List<SftServiceFunctionName> sftServiceFunctionNameList = serviceFunctionType.getSftServiceFunctionName();
-        SfName sfName = null;
-        SfName sftServiceFunctionName = null;
-        java.lang.Long preCPUUtilization = java.lang.Long.MAX_VALUE;
 
-        // TODO As part of typedef refactor not message with SFTs
-        for (SftServiceFunctionName curSftServiceFunctionName : sftServiceFunctionNameList) {
-            sfName = new SfName(curSftServiceFunctionName.getName());
-
-            /* Check next one if curSftServiceFunctionName doesn't exist */
-            ServiceFunction serviceFunction = SfcProviderServiceFunctionAPI.readServiceFunction(sfName);
-            if (serviceFunction == null) {
-                LOG.error("ServiceFunction {} doesn't exist", sfName);
-                continue;
+        /* The index follows the SF type entries, only index the SFs of the type if it is not indexed yet */
+        if (!loadSnapshot.isTypeIndexed(sfType, sftServiceFunctionNameList.size())) {
+            List<SfName> sfNames = new ArrayList<>();
+            // TODO As part of typedef refactor not message with SFTs
+            for (SftServiceFunctionName curSftServiceFunctionName : sftServiceFunctionNameList) {
+                sfNames.add(new SfName(curSftServiceFunctionName.getName()));
             }
+            loadSnapshot.setTypeMembers(sfType, sfNames);
+        }
 
-            /* Read ServiceFunctionMonitor information */
-            SfcSfDescMon sfcSfDescMon = SfcProviderServiceFunctionAPI.readServiceFunctionDescriptionMonitor(sfName);
-            if (sfcSfDescMon == null) {
-                // TODO As part of typedef refactor not message with SFTs
-                sftServiceFunctionName = sfName;
-                LOG.error("Read monitor information from Data Store failed! serviceFunction: {}", sfName);
-                // Use sfName if no sfcSfDescMon is available
-                break;
+        Set<SfName> excluded = new HashSet<>();
+        SfName sfName;
+        while ((sfName = loadSnapshot.getLeastLoaded(sfType, excluded)) != null) {
+            /* Read the monitor information of a SF whose load is not known yet, and pick again if known now */
+            if (!loadSnapshot.containsLoad(sfName)) {
+                SfcSfDescMon sfcSfDescMon =
+                        SfcProviderServiceFunctionAPI.readServiceFunctionDescriptionMonitor(sfName);
+                loadSnapshot.setLoad(sfName, sfcSfDescMon == null ? null : sfcSfDescMon.getMonitoringInfo());
+                if (loadSnapshot.containsLoad(sfName)) {
+                    continue;
+                }
             }
 
-            java.lang.Long curCPUUtilization =
-                    sfcSfDescMon.getMonitoringInfo().getResourceUtilization().getCPUUtilization();
-
-            if (preCPUUtilization > curCPUUtilization) {
-                preCPUUtilization = curCPUUtilization;
-                sftServiceFunctionName = sfName;
+            /* Check next one if the least loaded SF doesn't exist */
+            if (SfcProviderServiceFunctionAPI.readServiceFunction(sfName) != null) {
+                return sfName;
             }
+            LOG.error("ServiceFunction {} doesn't exist", sfName);
+            excluded.add(sfName);
         }
 
-        if (sftServiceFunctionName == null) {
-            LOG.error("Failed to get one available ServiceFunction for {}", serviceFunctionType.getType());
-        }
-
-        return sftServiceFunctionName;
+        LOG.error("Failed to get one available ServiceFunction for {}", sfType);
+        return null;
     }
 
     @Override
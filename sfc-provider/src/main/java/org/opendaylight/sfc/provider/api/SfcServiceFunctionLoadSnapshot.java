@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2016 Intel Ltd. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftTypeName;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rev141201.service.functions.state.service.function.state.sfc.sf.desc.mon.MonitoringInfo;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rpt.rev141105.sf.monitoring.info.ResourceUtilization;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rpt.rev141105.sf.monitoring.info.resource.utilization.sf.ports.bandwidth.utilization.PortBandwidthUtilization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory snapshot of the load of the Service Functions, fed by the writes
+ * of their monitoring information to the operational datastore.
+ * <p>
+ * The CPU, memory and port bandwidth utilizations reported by a SF are smoothed
+ * with an exponentially weighted moving average, and combined into a single load
+ * score. The SFs of each SF type are kept sorted by load score, so that the least
+ * loaded SF of a type is available without reading the datastore. The SFs of a
+ * type are indexed when the type is first scheduled, then follow the SF type
+ * entries written by {@link SfcProviderServiceTypeAPI}.
+ * <p>
+ * SFs without monitoring information are considered idle. Their load is not
+ * known to the snapshot, so that it can be read again when they are picked.
+ */
+public class SfcServiceFunctionLoadSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcServiceFunctionLoadSnapshot.class);
+
+    // Weight of a new sample in the moving averages
+    static final double EWMA_WEIGHT = 0.3;
+
+    // Weights of the utilizations in the load score
+    static final double CPU_WEIGHT = 0.5;
+    static final double MEMORY_WEIGHT = 0.3;
+    static final double BANDWIDTH_WEIGHT = 0.2;
+
+    private static final SfcServiceFunctionLoadSnapshot INSTANCE = new SfcServiceFunctionLoadSnapshot();
+
+    private final Map<SfName, SfLoad> loads = new HashMap<>();
+    private final Map<SftTypeName, TypeIndex> typeIndexes = new HashMap<>();
+
+    SfcServiceFunctionLoadSnapshot() {
+    }
+
+    public static SfcServiceFunctionLoadSnapshot getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add a monitoring sample of a SF to its moving averages.
+     *
+     * @param sfName - the SF name
+     * @param monInfo - the monitoring information reported by the SF
+     */
+    public synchronized void updateLoad(SfName sfName, MonitoringInfo monInfo) {
+        if (monInfo == null || monInfo.getResourceUtilization() == null) {
+            return;
+        }
+        SfLoad load = loads.get(sfName);
+        if (load == null) {
+            setLoad(sfName, monInfo);
+            return;
+        }
+        reindex(load, () -> load.addSample(monInfo.getResourceUtilization()));
+    }
+
+    /**
+     * Replace the load of a SF, discarding its moving averages.
+     *
+     * @param sfName - the SF name
+     * @param monInfo - the monitoring information reported by the SF, null if unknown
+     */
+    public synchronized void setLoad(SfName sfName, MonitoringInfo monInfo) {
+        ResourceUtilization resrcUtil = monInfo == null ? null : monInfo.getResourceUtilization();
+        if (resrcUtil == null && !loads.containsKey(sfName)) {
+            return;
+        }
+        SfLoad load = loads.computeIfAbsent(sfName, SfLoad::new);
+        reindex(load, () -> load.reset(resrcUtil));
+        LOG.debug("Load of SF {} set to {}", sfName, load.score);
+    }
+
+    /**
+     * Forget the load of a SF, e.g. when its operational state is deleted.
+     *
+     * @param sfName - the SF name
+     */
+    public synchronized void removeLoad(SfName sfName) {
+        SfLoad load = loads.get(sfName);
+        if (load == null) {
+            return;
+        }
+        if (load.memberships == 0) {
+            loads.remove(sfName);
+        } else {
+            // Still indexed by its types, as an idle SF
+            reindex(load, () -> load.reset(null));
+        }
+    }
+
+    /**
+     * @param sfName - the SF name
+     * @return true if the load of the SF is known, i.e. it reported its resource utilization
+     */
+    public synchronized boolean containsLoad(SfName sfName) {
+        SfLoad load = loads.get(sfName);
+        return load != null && load.sampled;
+    }
+
+    /**
+     * @param sfName - the SF name
+     * @return the smoothed load score of the SF, null if unknown
+     */
+    public synchronized Double getLoadScore(SfName sfName) {
+        SfLoad load = loads.get(sfName);
+        return load == null || !load.sampled ? null : load.score;
+    }
+
+    /**
+     * @param sfType - the SF type
+     * @param memberCount - the number of SFs of the type
+     * @return true if the SFs of the type are indexed, with the given number of SFs
+     */
+    public synchronized boolean isTypeIndexed(SftTypeName sfType, int memberCount) {
+        TypeIndex index = typeIndexes.get(sfType);
+        return index != null && index.members.size() == memberCount;
+    }
+
+    /**
+     * Index the SFs of a type, replacing the SFs indexed so far.
+     *
+     * @param sfType - the SF type
+     * @param sfNames - the SFs of the type
+     */
+    public synchronized void setTypeMembers(SftTypeName sfType, Collection<SfName> sfNames) {
+        TypeIndex index = typeIndexes.computeIfAbsent(sfType, key -> new TypeIndex());
+        Set<SfName> sfNameSet = new HashSet<>(sfNames);
+        for (SfName sfName : new ArrayList<>(index.members)) {
+            if (!sfNameSet.contains(sfName)) {
+                index.remove(sfName);
+            }
+        }
+        sfNameSet.forEach(index::add);
+    }
+
+    /**
+     * Add a SF to the index of its type. No-op if the type is not indexed yet,
+     * it is then indexed from the datastore when first scheduled.
+     *
+     * @param sfType - the SF type
+     * @param sfName - the SF name
+     */
+    public synchronized void addTypeMember(SftTypeName sfType, SfName sfName) {
+        TypeIndex index = typeIndexes.get(sfType);
+        if (index != null) {
+            index.add(sfName);
+        }
+    }
+
+    /**
+     * Remove a SF from the index of its type.
+     *
+     * @param sfType - the SF type
+     * @param sfName - the SF name
+     */
+    public synchronized void removeTypeMember(SftTypeName sfType, SfName sfName) {
+        TypeIndex index = typeIndexes.get(sfType);
+        if (index != null) {
+            index.remove(sfName);
+        }
+    }
+
+    /**
+     * Drop the index of a type, e.g. when the type is deleted or replaced.
+     *
+     * @param sfType - the SF type
+     */
+    public synchronized void removeType(SftTypeName sfType) {
+        TypeIndex index = typeIndexes.remove(sfType);
+        if (index != null) {
+            new ArrayList<>(index.members).forEach(index::remove);
+        }
+    }
+
+    /**
+     * Get the least loaded SF of a type.
+     *
+     * @param sfType - the SF type
+     * @param excluded - the SFs not to return
+     * @return the least loaded SF, null if the type is not indexed or has no other SF
+     */
+    public synchronized SfName getLeastLoaded(SftTypeName sfType, Set<SfName> excluded) {
+        TypeIndex index = typeIndexes.get(sfType);
+        if (index == null || index.sortedLoads.isEmpty()) {
+            return null;
+        }
+        if (excluded.isEmpty()) {
+            return index.sortedLoads.first().sfName;
+        }
+        for (SfLoad load : index.sortedLoads) {
+            if (!excluded.contains(load.sfName)) {
+                return load.sfName;
+            }
+        }
+        return null;
+    }
+
+    public synchronized void clear() {
+        loads.clear();
+        typeIndexes.clear();
+    }
+
+    /*
+     * Update a load while keeping the type indexes sorted
+     */
+    private void reindex(SfLoad load, Runnable update) {
+        Set<TypeIndex> indexes = new HashSet<>();
+        for (TypeIndex index : typeIndexes.values()) {
+            if (index.sortedLoads.remove(load)) {
+                indexes.add(index);
+            }
+        }
+        update.run();
+        indexes.forEach(index -> index.sortedLoads.add(load));
+    }
+
+    private final class TypeIndex {
+        private final Set<SfName> members = new HashSet<>();
+        private final TreeSet<SfLoad> sortedLoads = new TreeSet<>();
+
+        /*
+         * A SF without load yet is indexed as idle
+         */
+        void add(SfName sfName) {
+            if (members.add(sfName)) {
+                SfLoad load = loads.computeIfAbsent(sfName, SfLoad::new);
+                load.memberships++;
+                sortedLoads.add(load);
+            }
+        }
+
+        /*
+         * No-op if the SF is not a member. The load of a SF is forgotten once it
+         * is not indexed anymore, unless known.
+         */
+        void remove(SfName sfName) {
+            if (members.remove(sfName)) {
+                SfLoad load = loads.get(sfName);
+                sortedLoads.remove(load);
+                if (--load.memberships == 0 && !load.sampled) {
+                    loads.remove(sfName);
+                }
+            }
+        }
+    }
+
+    private static final class SfLoad implements Comparable<SfLoad> {
+        private final SfName sfName;
+        private double cpu;
+        private double memory;
+        private double bandwidth;
+        private double score;
+        private boolean sampled;
+        // Number of type indexes the SF belongs to
+        private int memberships;
+
+        SfLoad(SfName sfName) {
+            this.sfName = sfName;
+        }
+
+        void reset(ResourceUtilization resrcUtil) {
+            sampled = false;
+            cpu = 0;
+            memory = 0;
+            bandwidth = 0;
+            if (resrcUtil != null) {
+                addSample(resrcUtil);
+            } else {
+                score = 0;
+            }
+        }
+
+        void addSample(ResourceUtilization resrcUtil) {
+            double cpuSample = toDouble(resrcUtil.getCPUUtilization());
+            double memorySample = toDouble(resrcUtil.getMemoryUtilization());
+            double bandwidthSample = getBandwidthUtilization(resrcUtil);
+            if (sampled) {
+                cpu += EWMA_WEIGHT * (cpuSample - cpu);
+                memory += EWMA_WEIGHT * (memorySample - memory);
+                bandwidth += EWMA_WEIGHT * (bandwidthSample - bandwidth);
+            } else {
+                cpu = cpuSample;
+                memory = memorySample;
+                bandwidth = bandwidthSample;
+                sampled = true;
+            }
+            score = CPU_WEIGHT * cpu + MEMORY_WEIGHT * memory + BANDWIDTH_WEIGHT * bandwidth;
+        }
+
+        /*
+         * The most utilized port, or the overall bandwidth utilization if higher
+         */
+        private static double getBandwidthUtilization(ResourceUtilization resrcUtil) {
+            double bandwidth = toDouble(resrcUtil.getBandwidthUtilization());
+            if (resrcUtil.getSFPortsBandwidthUtilization() != null
+                    && resrcUtil.getSFPortsBandwidthUtilization().getPortBandwidthUtilization() != null) {
+                for (PortBandwidthUtilization portUtil : resrcUtil.getSFPortsBandwidthUtilization()
+                    .getPortBandwidthUtilization()) {
+                    bandwidth = Math.max(bandwidth, toDouble(portUtil.getBandwidthUtilization()));
+                }
+            }
+            return bandwidth;
+        }
+
+        private static double toDouble(Long value) {
+            return value == null ? 0 : value.doubleValue();
+        }
+
+        @Override
+        public int compareTo(SfLoad other) {
+            int cmp = Double.compare(score, other.score);
+            return cmp != 0 ? cmp : sfName.getValue().compareTo(other.sfName.getValue());
+        }
+    }
+}
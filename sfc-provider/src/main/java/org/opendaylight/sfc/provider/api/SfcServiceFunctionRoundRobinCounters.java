@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2016 Intel Ltd. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftTypeName;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.ServiceFunctionSchedulerState;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.service.function.scheduler.state.RoundRobinCounter;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.service.function.scheduler.state.RoundRobinCounterBuilder;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.service.function.scheduler.state.RoundRobinCounterKey;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Round robin counters of the SF types, shared by all the round robin
+ * schedulers.
+ * <p>
+ * Each SF type has its own atomic counter, so that concurrent RSP creations
+ * neither race nor contend unless they schedule the same SF type. A counter
+ * is restored from the operational datastore the first time its SF type is
+ * scheduled, and the counters are written back in batches, and at the latest
+ * a checkpoint period after they are incremented: a restart loses at most a
+ * batch or a period of increments instead of starting over from the first SF
+ * of every type. {@link #close()} writes the remaining increments.
+ */
+class SfcServiceFunctionRoundRobinCounters {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcServiceFunctionRoundRobinCounters.class);
+
+    // Number of increments between two checkpoints of the counters
+    static final int CHECKPOINT_BATCH = 32;
+
+    // Maximum time an increment waits for a checkpoint
+    static final long CHECKPOINT_PERIOD_MILLIS = 10000;
+
+    // The counters are stored as uint32
+    private static final long COUNTER_MASK = 0xFFFFFFFFL;
+
+    private static final SfcServiceFunctionRoundRobinCounters INSTANCE =
+            new SfcServiceFunctionRoundRobinCounters(CHECKPOINT_BATCH, CHECKPOINT_PERIOD_MILLIS);
+
+    private final ConcurrentMap<SftTypeName, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final Set<SftTypeName> dirtyTypes = ConcurrentHashMap.newKeySet();
+    private final Set<SftTypeName> removingTypes = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger pendingIncrements = new AtomicInteger();
+    private final AtomicBoolean checkpointScheduled = new AtomicBoolean(false);
+    private final int checkpointBatch;
+    private final long checkpointPeriodMillis;
+    private final ScheduledExecutorService checkpointScheduler;
+
+    /**
+     * @param checkpointBatch - number of increments between two checkpoints
+     * @param checkpointPeriodMillis - maximum time an increment waits for a
+     *                                 checkpoint, 0 to only checkpoint in batches
+     */
+    SfcServiceFunctionRoundRobinCounters(int checkpointBatch, long checkpointPeriodMillis) {
+        this.checkpointBatch = checkpointBatch;
+        this.checkpointPeriodMillis = checkpointPeriodMillis;
+        if (checkpointPeriodMillis > 0) {
+            // The thread is only started by the first scheduled checkpoint
+            this.checkpointScheduler = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("SFC-RoundRobinCounters-%d").setDaemon(true).build());
+        } else {
+            this.checkpointScheduler = null;
+        }
+    }
+
+    static SfcServiceFunctionRoundRobinCounters getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Increment the counter of a SF type.
+     *
+     * @param sfType - the SF type
+     * @return the value of the counter before the increment
+     */
+    long getAndIncrement(SftTypeName sfType) {
+        AtomicLong counter = counters.get(sfType);
+        if (counter == null) {
+            // Read outside of the map, a concurrent read of the same type is harmless
+            AtomicLong restoredCounter = new AtomicLong(readCounter(sfType));
+            counter = counters.putIfAbsent(sfType, restoredCounter);
+            if (counter == null) {
+                counter = restoredCounter;
+            }
+        }
+        long value = counter.getAndIncrement();
+        dirtyTypes.add(sfType);
+        scheduleCheckpoint();
+        if (pendingIncrements.incrementAndGet() % checkpointBatch == 0) {
+            checkpoint();
+        }
+        return value;
+    }
+
+    /**
+     * Write the counters incremented since the last checkpoint to the
+     * operational datastore, in one transaction.
+     *
+     * @return true if the counters were written, or there was nothing to write
+     */
+    synchronized boolean checkpoint() {
+        if (dirtyTypes.isEmpty()) {
+            return true;
+        }
+        WriteTransaction writeTx = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
+        Set<SftTypeName> writtenTypes = new HashSet<>();
+        Iterator<SftTypeName> iterator = dirtyTypes.iterator();
+        while (iterator.hasNext()) {
+            SftTypeName sfType = iterator.next();
+            iterator.remove();
+            AtomicLong counter = counters.get(sfType);
+            if (counter == null || removingTypes.contains(sfType)) {
+                // Removed while being incremented, or being removed
+                continue;
+            }
+            RoundRobinCounter roundRobinCounter = new RoundRobinCounterBuilder().setType(sfType)
+                .setCounter(counter.get() & COUNTER_MASK)
+                .build();
+            writeTx.put(LogicalDatastoreType.OPERATIONAL, getCounterIid(sfType), roundRobinCounter, true);
+            writtenTypes.add(sfType);
+        }
+
+        if (!SfcDataStoreAPI.submitTransactionAPI(writeTx)) {
+            // Retry with the next checkpoint
+            dirtyTypes.addAll(writtenTypes);
+            scheduleCheckpoint();
+            return false;
+        }
+        LOG.debug("Round robin counters of {} SF types written", writtenTypes.size());
+        return true;
+    }
+
+    /**
+     * Remove the counter of a deleted SF type from the operational datastore
+     * with the given transaction. The counter is not written by the
+     * checkpoints until {@link #completeRemove} is called with the result
+     * of the transaction.
+     *
+     * @param sfType - the SF type
+     * @param transaction - the transaction deleting the SF type
+     */
+    synchronized void remove(SftTypeName sfType, SfcDataStoreTransaction transaction) {
+        removingTypes.add(sfType);
+        transaction.delete(getCounterIid(sfType), LogicalDatastoreType.OPERATIONAL);
+    }
+
+    /**
+     * Complete the removal of the counter of a SF type. The counter is
+     * removed from memory only if the transaction deleting it committed,
+     * otherwise it is written again by the next checkpoint.
+     *
+     * @param sfType - the SF type
+     * @param committed - true if the transaction given to {@link #remove} committed
+     */
+    synchronized void completeRemove(SftTypeName sfType, boolean committed) {
+        removingTypes.remove(sfType);
+        if (committed) {
+            counters.remove(sfType);
+            dirtyTypes.remove(sfType);
+            LOG.debug("Round robin counter of SF type {} removed", sfType);
+        } else if (counters.containsKey(sfType)) {
+            dirtyTypes.add(sfType);
+            scheduleCheckpoint();
+        }
+    }
+
+    /**
+     * Write the remaining increments, and stop the periodic checkpoints
+     */
+    void close() {
+        if (checkpointScheduler != null) {
+            checkpointScheduler.shutdownNow();
+        }
+        if (!checkpoint()) {
+            LOG.error("close: round robin counters of {} SF types could not be written", dirtyTypes.size());
+        }
+    }
+
+    void clear() {
+        counters.clear();
+        dirtyTypes.clear();
+        removingTypes.clear();
+        pendingIncrements.set(0);
+    }
+
+    private void scheduleCheckpoint() {
+        if (checkpointScheduler != null && checkpointScheduled.compareAndSet(false, true)) {
+            try {
+                checkpointScheduler.schedule(this::periodicCheckpoint, checkpointPeriodMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Closing, the remaining increments are written by close()
+                checkpointScheduled.set(false);
+            }
+        }
+    }
+
+    private void periodicCheckpoint() {
+        checkpointScheduled.set(false);
+        checkpoint();
+    }
+
+    private static long readCounter(SftTypeName sfType) {
+        RoundRobinCounter roundRobinCounter =
+                SfcDataStoreAPI.readTransactionAPI(getCounterIid(sfType), LogicalDatastoreType.OPERATIONAL);
+        if (roundRobinCounter == null || roundRobinCounter.getCounter() == null) {
+            return 0;
+        }
+        LOG.debug("Round robin counter of SF type {} restored: {}", sfType, roundRobinCounter.getCounter());
+        return roundRobinCounter.getCounter();
+    }
+
+    static InstanceIdentifier<RoundRobinCounter> getCounterIid(SftTypeName sfType) {
+        return InstanceIdentifier.builder(ServiceFunctionSchedulerState.class)
+            .child(RoundRobinCounter.class, new RoundRobinCounterKey(sfType))
+            .build();
+    }
+}
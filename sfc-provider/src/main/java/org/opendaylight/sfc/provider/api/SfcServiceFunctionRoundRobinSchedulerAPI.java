@@ -9,11 +9,11 @@
 package org.opendaylight.sfc.provider.api;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftTypeName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChain;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.service.function.chain.SfcServiceFunction;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
@@ -37,30 +37,84 @@ public class SfcServiceFunctionRoundRobinSchedulerAPI extends SfcServiceFunction
 
     private static final Logger LOG = LoggerFactory.getLogger(SfcServiceFunctionRoundRobinSchedulerAPI.class);
 
-    private static Map<SftTypeName, Integer> mapCountRoundRobin = new HashMap<>();
+    // Weights of the SFs set by configuration, used by the schedulers created afterwards
+    private static volatile Map<SfName, Integer> configuredSfWeights = Collections.emptyMap();
+
+    private final SfcServiceFunctionRoundRobinCounters counters;
+    private final Map<SfName, Integer> sfWeights;
 
     SfcServiceFunctionRoundRobinSchedulerAPI() {
+        this(configuredSfWeights);
+    }
+
+    /**
+     * @param sfWeights - the weights of the SFs for weighted round robin, SFs without weight count as 1
+     */
+    SfcServiceFunctionRoundRobinSchedulerAPI(Map<SfName, Integer> sfWeights) {
+        this(SfcServiceFunctionRoundRobinCounters.getInstance(), sfWeights);
+    }
+
+    SfcServiceFunctionRoundRobinSchedulerAPI(SfcServiceFunctionRoundRobinCounters counters,
+            Map<SfName, Integer> sfWeights) {
         super.setSfcServiceFunctionSchedulerType(RoundRobin.class);
+        this.counters = counters;
+        this.sfWeights = sfWeights;
+    }
+
+    /**
+     * Set the weights of the SFs for the schedulers created from now on.
+     * Without weights, the schedulers select the SFs in turn.
+     *
+     * @param sfWeights - comma separated sf-name=weight pairs, SFs without weight count as 1,
+     *                    invalid pairs are ignored
+     */
+    public static void setSfWeights(String sfWeights) {
+        Map<SfName, Integer> weights = new HashMap<>();
+        parseSettings(sfWeights).forEach((sfName, weight) -> weights.put(new SfName(sfName), weight));
+        configuredSfWeights = Collections.unmodifiableMap(weights);
+        LOG.info("ServiceFunction round robin weights: {}", weights);
+    }
+
+    /**
+     * Write the round robin counters incremented since the last checkpoint,
+     * and stop their periodic checkpoints. Called on shutdown.
+     */
+    public static void closeCounters() {
+        SfcServiceFunctionRoundRobinCounters.getInstance().close();
     }
 
     private SfName getServiceFunctionByType(ServiceFunctionType serviceFunctionType) {
         List<SftServiceFunctionName> sftServiceFunctionNameList = serviceFunctionType.getSftServiceFunctionName();
-        int countRoundRobin = 0;
-
-        if (mapCountRoundRobin.size() != 0) {
-            for (SftTypeName sfType : mapCountRoundRobin.keySet()) {
-                if (sfType.equals(serviceFunctionType.getType())) {
-                    countRoundRobin = mapCountRoundRobin.get(sfType);
-                    LOG.debug("countRoundRobin: {}", countRoundRobin);
-                    break;
-                }
+        long countRoundRobin = counters.getAndIncrement(serviceFunctionType.getType());
+        LOG.debug("countRoundRobin: {}", countRoundRobin);
+
+        if (sfWeights.isEmpty()) {
+            int index = (int) Math.floorMod(countRoundRobin, (long) sftServiceFunctionNameList.size());
+            return new SfName(sftServiceFunctionNameList.get(index).getName());
+        }
+
+        /* Weighted round robin, each SF is selected as many times as its weight per round */
+        long totalWeight = 0;
+        for (SftServiceFunctionName sftServiceFunctionName : sftServiceFunctionNameList) {
+            totalWeight += getWeight(sftServiceFunctionName);
+        }
+        if (totalWeight == 0) {
+            LOG.error("All the ServiceFunctions of type {} have a null weight", serviceFunctionType.getType());
+            return null;
+        }
+        long position = Math.floorMod(countRoundRobin, totalWeight);
+        for (SftServiceFunctionName sftServiceFunctionName : sftServiceFunctionNameList) {
+            position -= getWeight(sftServiceFunctionName);
+            if (position < 0) {
+                return new SfName(sftServiceFunctionName.getName());
             }
         }
+        return null;
+    }
 
-        SftServiceFunctionName sftServiceFunctionName = sftServiceFunctionNameList.get(countRoundRobin);
-        countRoundRobin = (countRoundRobin + 1) % sftServiceFunctionNameList.size();
-        mapCountRoundRobin.put(serviceFunctionType.getType(), countRoundRobin);
-        return new SfName(sftServiceFunctionName.getName());
+    private int getWeight(SftServiceFunctionName sftServiceFunctionName) {
+        Integer weight = sfWeights.get(new SfName(sftServiceFunctionName.getName()));
+        return weight == null ? 1 : Math.max(weight, 0);
     }
 
     @Override
@@ -95,6 +149,9 @@ public class SfcServiceFunctionRoundRobinSchedulerAPI extends SfcServiceFunction
                         serviceFunctionType.getSftServiceFunctionName();
                 if (!sftServiceFunctionNameList.isEmpty()) {
                     SfName sfName = getServiceFunctionByType(serviceFunctionType);
+                    if (sfName == null) {
+                        return null;
+                    }
                     sfNameList.add(sfName);
                 } else {
                     LOG.error("Could not create path because there are no configured SFs of type: {}",
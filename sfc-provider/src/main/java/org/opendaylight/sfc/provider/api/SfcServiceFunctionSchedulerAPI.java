@@ -11,10 +11,17 @@ package org.opendaylight.sfc.provider.api;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.opendaylight.sfc.provider.topology.SfcProviderTopology;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.ServiceFunctions;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChain;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.ServiceFunctionForwarders;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.service.function.path.ServicePathHop;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -28,6 +35,8 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev1407
  */
 public abstract class SfcServiceFunctionSchedulerAPI {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SfcServiceFunctionSchedulerAPI.class);
+
     private java.lang.Class<? extends org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.ServiceFunctionSchedulerTypeIdentity> sfcServiceFunctionSchedulerType;
 
     public java.lang.Class<? extends org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.ServiceFunctionSchedulerTypeIdentity> getSfcServiceFunctionSchedulerType() {
@@ -42,6 +51,41 @@ public abstract class SfcServiceFunctionSchedulerAPI {
     abstract public List<SfName> scheduleServiceFunctions(ServiceFunctionChain chain, int serviceIndex,
             ServiceFunctionPath sfp);
 
+    /**
+     * Parse the configuration of a scheduler given per SF or SFF. Invalid
+     * settings are logged and skipped, so that a typo in the configuration
+     * does not prevent the provider from starting.
+     *
+     * @param settings - comma separated name=value pairs, the values being non negative integers
+     * @return the value of every validly set name, empty if there is no setting
+     */
+    static Map<String, Integer> parseSettings(String settings) {
+        Map<String, Integer> values = new HashMap<>();
+        if (settings == null || settings.trim().isEmpty()) {
+            return values;
+        }
+        for (String setting : settings.split(",")) {
+            String[] nameValue = setting.split("=");
+            Integer value = nameValue.length == 2 && !nameValue[0].trim().isEmpty()
+                    ? parseValue(nameValue[1].trim()) : null;
+            if (value == null) {
+                LOG.error("Invalid scheduler setting ignored: {}", setting);
+                continue;
+            }
+            values.put(nameValue[0].trim(), value);
+        }
+        return values;
+    }
+
+    private static Integer parseValue(String value) {
+        try {
+            int parsedValue = Integer.parseInt(value);
+            return parsedValue < 0 ? null : parsedValue;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     protected Map<Short, SfName> getSFPHopSfMapping(ServiceFunctionPath sfp) {
         Map<Short, SfName> ret = new HashMap<>();
         List<ServicePathHop> hops = sfp.getServicePathHop();
@@ -52,4 +96,40 @@ public abstract class SfcServiceFunctionSchedulerAPI {
         }
         return ret;
     }
+
+    /**
+     * This method returns the topology graph comprised of all the SFs
+     * and SFFs. The graph maintained by the SF and SFF listeners is used
+     * when available, otherwise a graph is built from the datastore.
+     * <p>
+     *
+     * @return the topology graph
+     */
+    protected SfcProviderTopology getTopology() {
+        SfcProviderTopology topology = SfcProviderTopology.getInstance();
+        if (topology.isTracked()) {
+            return topology;
+        }
+
+        topology = new SfcProviderTopology();
+
+        /* Add all the ServiceFunction nodes */
+        ServiceFunctions sfs = SfcProviderServiceFunctionAPI.readAllServiceFunctions();
+        if (sfs != null && sfs.getServiceFunction() != null) {
+            for (ServiceFunction serviceFunction : sfs.getServiceFunction()) {
+                topology.addServiceFunction(serviceFunction.getName().getValue());
+                LOG.debug("Add ServiceFunction: {}", serviceFunction.getName());
+            }
+        }
+
+        /* Add every ServiceFunctionForwarder with its SF-to-SFF and SFF-to-SFF edges */
+        ServiceFunctionForwarders sffs = SfcProviderServiceForwarderAPI.readAllServiceFunctionForwarders();
+        if (sffs != null && sffs.getServiceFunctionForwarder() != null) {
+            for (ServiceFunctionForwarder serviceFunctionForwarder : sffs.getServiceFunctionForwarder()) {
+                topology.updateServiceFunctionForwarder(serviceFunctionForwarder);
+                LOG.debug("Add ServiceFunctionForwarder: {}", serviceFunctionForwarder.getName());
+            }
+        }
+        return topology;
+    }
 }
@@ -12,18 +12,10 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import org.opendaylight.sfc.provider.topology.SfcProviderGraph;
-import org.opendaylight.sfc.provider.topology.SfcProviderTopologyNode;
+import org.opendaylight.sfc.provider.topology.SfcProviderTopology;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.ServiceFunctions;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChain;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.service.function.chain.SfcServiceFunction;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.ServiceFunctionForwarders;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ConnectedSffDictionary;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionary;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.ServiceFunctionType;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.service.function.type.SftServiceFunctionName;
@@ -56,11 +48,11 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
      *
      * @param serviceFunctionType Type of Service Function to find
      * @param preSfName Name of previous Service Function in Service Function Path
-     * @param sfcProviderGraph Topology graph comprised of all the SFs and SFFs
+     * @param topology Topology graph comprised of all the SFs and SFFs
      * @return String Name of the Service Function with type serviceFunctionType
      */
     private SfName getServiceFunctionByType(ServiceFunctionType serviceFunctionType, SfName preSfName,
-            SfcProviderGraph sfcProviderGraph) {
+            SfcProviderTopology topology) {
         SfName sfcProviderTopologyNodeName = null;
         List<SftServiceFunctionName> sftServiceFunctionNameList = serviceFunctionType.getSftServiceFunctionName();
         int maxTries = sftServiceFunctionNameList.size();
@@ -79,7 +71,6 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
             /* Randomly find one instance of serviceFunctionType */
             Random rad = new Random();
             int start = rad.nextInt(sftServiceFunctionNameList.size());
-            SfcProviderTopologyNode firstHopNode;
             while (maxTries > 0) {
                 sfcProviderTopologyNodeName = new SfName(sftServiceFunctionNameList.get(start).getName());
                 /*
@@ -87,8 +78,7 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
                  * that alone for now until a general discussion
                  * about Schedulers can be had.
                  */
-                firstHopNode = sfcProviderGraph.getNode(sfcProviderTopologyNodeName.getValue());
-                if (firstHopNode != null) {
+                if (topology.hasNode(sfcProviderTopologyNodeName.getValue())) {
                     break;
                 } else {
                     LOG.debug("ServiceFunction {} doesn't exist", sfcProviderTopologyNodeName);
@@ -101,10 +91,8 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
             return sfcProviderTopologyNodeName; // The first hop
         }
 
-        SfcProviderTopologyNode preSfcProviderTopologyNode = sfcProviderGraph.getNode(preSfName.getValue());
-
-        /* return null if preSfName doesn't exist in sfcProviderGraph */
-        if (preSfcProviderTopologyNode == null) {
+        /* return null if preSfName doesn't exist in topology */
+        if (!topology.hasNode(preSfName.getValue())) {
             LOG.debug("Node {} doesn't exist", preSfName);
             return null;
         }
@@ -115,15 +103,9 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
         sfcProviderTopologyNodeName = null;
         for (SftServiceFunctionName sftServiceFunctionName : sftServiceFunctionNameList) {
             SfName curSfName = new SfName(sftServiceFunctionName.getName());
-            SfcProviderTopologyNode curSfcProviderTopologyNode = sfcProviderGraph.getNode(curSfName.getValue());
-            if (curSfcProviderTopologyNode == null) {
-                // curSfName doesn't exist in sfcProviderGraph, so skip it
-                continue;
-            }
-            List<SfcProviderTopologyNode> sfcProviderTopologyNodeList =
-                    sfcProviderGraph.getShortestPath(preSfName.getValue(), curSfName.getValue());
-            length = sfcProviderTopologyNodeList.size();
-            if (length <= 1) {
+            // The hop distances from preSfName are computed once, then cached
+            length = topology.getDistance(preSfName.getValue(), curSfName.getValue());
+            if (length <= 0) {
                 LOG.debug("No path from {} to {}", preSfName, curSfName);
                 continue;
             }
@@ -143,66 +125,6 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
         return sfcProviderTopologyNodeName;
     }
 
-    /**
-     * This method builds a SfcProviderGraph comprised of
-     * all the SFs and SFFs. sfcProviderGraph will store
-     * all the info about vertex/node and edge.
-     * <p>
-     *
-     * @param sfcProviderGraph input and output of this method
-     */
-    private void buildTopologyGraph(SfcProviderGraph sfcProviderGraph) {
-        SfName sfName;
-        SffName sffName;
-        SffName toSffName;
-
-        /* Add all the ServiceFunction nodes */
-        ServiceFunctions sfs = SfcProviderServiceFunctionAPI.readAllServiceFunctions();
-        List<ServiceFunction> serviceFunctionList = sfs.getServiceFunction();
-        for (ServiceFunction serviceFunction : serviceFunctionList) {
-            sfName = serviceFunction.getName();
-            sfcProviderGraph.addNode(sfName.getValue());
-            LOG.debug("Add ServiceFunction: {}", sfName);
-        }
-
-        ServiceFunctionForwarders sffs = SfcProviderServiceForwarderAPI.readAllServiceFunctionForwarders();
-        List<ServiceFunctionForwarder> serviceFunctionForwarderList = sffs.getServiceFunctionForwarder();
-
-        /* Add edges and node for every ServiceFunctionForwarder */
-        for (ServiceFunctionForwarder serviceFunctionForwarder : serviceFunctionForwarderList) {
-            /* Add ServiceFunctionForwarder node */
-            sffName = serviceFunctionForwarder.getName();
-            sfcProviderGraph.addNode(sffName.getValue());
-            LOG.debug("Add ServiceFunctionForwarder: {}", sffName);
-
-            List<ServiceFunctionDictionary> serviceFunctionDictionaryList =
-                    serviceFunctionForwarder.getServiceFunctionDictionary();
-
-            /*
-             * Add edge for every ServiceFunction attached
-             * to serviceFunctionForwarder
-             */
-            for (ServiceFunctionDictionary serviceFunctionDictionary : serviceFunctionDictionaryList) {
-                sfName = serviceFunctionDictionary.getName();
-                sfcProviderGraph.addEdge(sfName.getValue(), sffName.getValue());
-                LOG.debug("Add SF-to-SFF edge: {} => {}", sfName, sffName);
-            }
-
-            List<ConnectedSffDictionary> connectedSffDictionaryList =
-                    serviceFunctionForwarder.getConnectedSffDictionary();
-
-            /*
-             * Add edge for every ServiceFunctionForwarder connected
-             * to serviceFunctionForwarder
-             */
-            for (ConnectedSffDictionary connectedSffDictionary : connectedSffDictionaryList) {
-                toSffName = connectedSffDictionary.getName();
-                sfcProviderGraph.addEdge(sffName.getValue(), toSffName.getValue());
-                LOG.debug("Add SFF-to-SFF edge: {} => {}", sffName, toSffName);
-            }
-        }
-    }
-
     /**
      * This method finds out the shortest Service Function Path
      * for the given Service Function Chain chain, any two adjacent
@@ -223,15 +145,14 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
         List<SfName> sfNameList = new ArrayList<>();
         List<SfcServiceFunction> sfcServiceFunctionList = new ArrayList<>();
         sfcServiceFunctionList.addAll(chain.getSfcServiceFunction());
-        SfcProviderGraph sfcProviderGraph = new SfcProviderGraph();
         short index = 0;
         Map<Short, SfName> sfpMapping = getSFPHopSfMapping(sfp);
 
         /*
-         * Build topology graph for all the nodes,
+         * Get topology graph for all the nodes,
          * including every ServiceFunction and ServiceFunctionForwarder
          */
-        buildTopologyGraph(sfcProviderGraph);
+        SfcProviderTopology topology = getTopology();
 
         /*
          * Select a SF instance closest to previous hop in SFP
@@ -251,7 +172,7 @@ public class SfcServiceFunctionShortestPathSchedulerAPI extends SfcServiceFuncti
                 List<SftServiceFunctionName> sftServiceFunctionNameList =
                         serviceFunctionType.getSftServiceFunctionName();
                 if (!sftServiceFunctionNameList.isEmpty()) {
-                    sfName = getServiceFunctionByType(serviceFunctionType, preSfName, sfcProviderGraph);
+                    sfName = getServiceFunctionByType(serviceFunctionType, preSfName, topology);
                     if (sfName != null) {
                         sfNameList.add(sfName);
                         preSfName = sfName;
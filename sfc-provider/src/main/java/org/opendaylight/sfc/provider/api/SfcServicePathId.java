@@ -9,20 +9,19 @@
 
 package org.opendaylight.sfc.provider.api;
 
-import java.util.Random;
-import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.GenerationAlgorithmEnum;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.ServicePathIds;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.ServicePathIdsBuilder;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathId;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathIdBuilder;
-import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathIdKey;
-import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 
 
 /**
  * This class has the APIs to operate on the Service PathIds.
  * <p>
+ * The path ids are allocated in memory by {@link SfcServicePathIdAllocator},
+ * which writes them back to the data store asynchronously.
+ * <p>
  *
  * @author Reinaldo Penno (rapenno@gmail.com)
  * @version 0.1
@@ -35,18 +34,73 @@ public class SfcServicePathId {
     /* Initialization value */
 
     /* We only use half of the path-id space in order to use algorithmic symmetric
-     * path-id generation
+     * path-id generation: the symmetric path-id flips the highest bit.
      */
-    private final static int MAX_PATH_ID = (int) Math.pow(2, 12) - 1;
+    private final static int SYMMETRIC_PATH_ID_BIT = 1 << 23;
+    private final static int MAX_PATH_ID_SPACE_BITS = 23;
+    private final static int DEFAULT_PATH_ID_SPACE_BITS = 12;
     private final static int MIN_PATH_ID = 0;
     private final static int DEFAULT_GENERATION_ALGORITHM = GenerationAlgorithmEnum.Random.getIntValue();
-    private static final Random randomGenerator = new Random();
-    private static int next_pathid = 0;
-    private final static int num_pathid = MAX_PATH_ID -  MIN_PATH_ID + 1;
+    private static final AtomicInteger next_pathid = new AtomicInteger(0);
+    private static volatile int num_pathid = 1 << DEFAULT_PATH_ID_SPACE_BITS;
+    private static volatile SfcServicePathIdAllocator allocator;
 
     /* Determines the trade-off */
     private final static int N = 64;
 
+    /**
+     * Get the path id allocator of the current data broker, loading it
+     * from the data store on first use
+     *
+     * <p>
+     * @return the path id allocator
+     */
+    static SfcServicePathIdAllocator getAllocator() {
+        DataBroker dataBroker = OpendaylightSfc.getOpendaylightSfcObj().getDataProvider();
+        SfcServicePathIdAllocator current = allocator;
+        if (current != null && current.getDataBroker() == dataBroker) {
+            return current;
+        }
+        synchronized (SfcServicePathId.class) {
+            if (allocator == null || allocator.getDataBroker() != dataBroker) {
+                if (allocator != null) {
+                    allocator.close();
+                }
+                allocator = new SfcServicePathIdAllocator(dataBroker,
+                        GenerationAlgorithmEnum.forValue(DEFAULT_GENERATION_ALGORITHM));
+            }
+            return allocator;
+        }
+    }
+
+    /**
+     * Close the path id allocator, writing its pending path id entries
+     * to the data store. Called on shutdown.
+     */
+    public static void close() {
+        synchronized (SfcServicePathId.class) {
+            if (allocator != null) {
+                allocator.close();
+                allocator = null;
+            }
+        }
+    }
+
+    /**
+     * Set the size of the space the path ids are generated from. The
+     * symmetric path ids, with the highest bit flipped, are always
+     * out of this space.
+     *
+     * <p>
+     * @param bits number of bits of the generated path ids, 1 to 23
+     */
+    public static void setPathIdSpaceBits(int bits) {
+        if (bits < 1 || bits > MAX_PATH_ID_SPACE_BITS) {
+            throw new IllegalArgumentException("Invalid path id space bits: " + bits);
+        }
+        num_pathid = 1 << bits;
+    }
+
     /**
      * Algorithm to randomize the generation of pathIds. Provides
      * security by making path-id less predictable. Adapted
@@ -56,14 +110,19 @@ public class SfcServicePathId {
      * @return Pathid or error if none available
      */
     public static int generatePathIdRandomIncrements() {
-        int pathid;
-        int count = num_pathid;
+        return generatePathIdRandomIncrements(false);
+    }
+
+    private static int generatePathIdRandomIncrements(boolean allocate) {
+        SfcServicePathIdAllocator pathIdAllocator = getAllocator();
+        int numPathId = num_pathid;
+        int count = numPathId;
 
         do {
-            next_pathid = next_pathid + (randomGenerator.nextInt(num_pathid) % N) + 1;
-            pathid = MIN_PATH_ID + (next_pathid % num_pathid);
+            int increment = (ThreadLocalRandom.current().nextInt(numPathId) % N) + 1;
+            int pathid = MIN_PATH_ID + Math.floorMod(next_pathid.addAndGet(increment), numPathId);
 
-            if (check_suitable_pathid(pathid)) {
+            if (allocate ? pathIdAllocator.allocate(pathid) : pathIdAllocator.isAvailable(pathid)) {
                 return pathid;
             }
 
@@ -80,14 +139,14 @@ public class SfcServicePathId {
      * @return Pathid or error if none available
      */
     public static int generatePathIdSequentialIncrements() {
-        int pathid;
-        int count = num_pathid;
+        SfcServicePathIdAllocator pathIdAllocator = getAllocator();
+        int numPathId = num_pathid;
+        int count = numPathId;
 
         do {
-            next_pathid = next_pathid + 1;
-            pathid = MIN_PATH_ID + next_pathid;
+            int pathid = MIN_PATH_ID + Math.floorMod(next_pathid.incrementAndGet(), numPathId);
 
-            if (check_suitable_pathid(pathid) && allocate_pathid(pathid)) {
+            if (pathIdAllocator.allocate(pathid)) {
                 return pathid;
             }
 
@@ -105,19 +164,7 @@ public class SfcServicePathId {
      * @return True if allocated, otherwise false.
      */
     public static long check_and_allocate_pathid(long pathid) {
-        if (SfcConcurrencyAPI.getPathIdLock()) {
-            try {
-                if (check_suitable_pathid(pathid) && allocate_pathid(pathid)) {
-                    return pathid;
-                } else {
-                    return -1;
-                }
-            } finally {
-                SfcConcurrencyAPI.releasePathIdLock();
-            }
-        } else {
-            return -1;
-        }
+        return getAllocator().allocate(pathid) ? pathid : -1;
     }
 
     /**
@@ -128,30 +175,15 @@ public class SfcServicePathId {
      * @return True if allocated, otherwise false.
      */
     public static long check_and_allocate_symmetric_pathid(long pathid) {
-        if (SfcConcurrencyAPI.getPathIdLock()) {
-            try {
-                long symmetric_id = -1;
-                GenerationAlgorithmEnum genAlg = getGenerationAlgorithm();
-                if(genAlg == GenerationAlgorithmEnum.Random) {
-                    symmetric_id = pathid ^ (1 << 23);
-                    if(!check_suitable_pathid(symmetric_id)) {
-                        symmetric_id = -1;
-                    }
-                } else if(genAlg == GenerationAlgorithmEnum.Sequential) {
-                    symmetric_id = generatePathIdSequentialIncrements();
-                }
-
-                if ((symmetric_id >= MIN_PATH_ID) && allocate_pathid(symmetric_id)) {
-                    return symmetric_id;
-                } else {
-                    return -1;
-                }
-            } finally {
-                SfcConcurrencyAPI.releasePathIdLock();
-            }
-        } else {
-            return -1;
+        SfcServicePathIdAllocator pathIdAllocator = getAllocator();
+        GenerationAlgorithmEnum genAlg = pathIdAllocator.getGenerationAlgorithm();
+        if(genAlg == GenerationAlgorithmEnum.Random) {
+            long symmetric_id = pathid ^ SYMMETRIC_PATH_ID_BIT;
+            return pathIdAllocator.allocate(symmetric_id) ? symmetric_id : -1;
+        } else if(genAlg == GenerationAlgorithmEnum.Sequential) {
+            return generatePathIdSequentialIncrements();
         }
+        return -1;
     }
 
     /**
@@ -161,27 +193,13 @@ public class SfcServicePathId {
      * @return True if allocated, otherwise false.
      */
     public static long check_and_allocate_pathid() {
-        if (SfcConcurrencyAPI.getPathIdLock()) {
-            try {
-                long pathId = -1;
-                GenerationAlgorithmEnum genAlg = getGenerationAlgorithm();
-                if(genAlg == GenerationAlgorithmEnum.Random) {
-                    pathId = generatePathIdRandomIncrements();
-                } else if(genAlg == GenerationAlgorithmEnum.Sequential) {
-                    pathId = generatePathIdSequentialIncrements();
-                }
-
-                if ((pathId >= MIN_PATH_ID) && allocate_pathid(pathId)) {
-                    return pathId;
-                } else {
-                    return -1;
-                }
-            } finally {
-                SfcConcurrencyAPI.releasePathIdLock();
-            }
-        } else {
-            return -1;
+        GenerationAlgorithmEnum genAlg = getAllocator().getGenerationAlgorithm();
+        if(genAlg == GenerationAlgorithmEnum.Random) {
+            return generatePathIdRandomIncrements(true);
+        } else if(genAlg == GenerationAlgorithmEnum.Sequential) {
+            return generatePathIdSequentialIncrements();
         }
+        return -1;
     }
 
     /**
@@ -192,20 +210,7 @@ public class SfcServicePathId {
      * @return True if available, otherwise false.
      */
     public static boolean check_suitable_pathid(long pathid) {
-        ServicePathIdKey servicePathIdKey = new
-                ServicePathIdKey(pathid/Long.SIZE);
-
-        /* Entry into the bitarray */
-        long bitEntry = pathid % Long.SIZE;
-
-        InstanceIdentifier<ServicePathId> spIID;
-        spIID = InstanceIdentifier.builder(ServicePathIds.class)
-                .child(ServicePathId.class, servicePathIdKey)
-                .build();
-        ServicePathId servicePathId = SfcDataStoreAPI.
-                readTransactionAPI(spIID, LogicalDatastoreType.OPERATIONAL);
-
-        return ((servicePathId == null) || (((1L << (64 - bitEntry)) & servicePathId.getPathIdBitarray()) == 0));
+        return getAllocator().isAvailable(pathid);
     }
 
     /**
@@ -216,32 +221,8 @@ public class SfcServicePathId {
      * @return True if allocated, otherwise false.
      */
     public static boolean allocate_pathid(long pathid) {
-        ServicePathIdKey servicePathIdKey = new
-                ServicePathIdKey(pathid/Long.SIZE);
-
-        /* Entry into the bitarray */
-        long bitEntry = pathid % Long.SIZE;
-
-        long pathIdBitArray = 0;
-
-        InstanceIdentifier<ServicePathId> spIID;
-        spIID = InstanceIdentifier.builder(ServicePathIds.class)
-                .child(ServicePathId.class, servicePathIdKey)
-                .build();
-        ServicePathId servicePathId = SfcDataStoreAPI.
-                readTransactionAPI(spIID, LogicalDatastoreType.OPERATIONAL);
-
-        if (servicePathId != null) {
-            pathIdBitArray = (servicePathId.getPathIdBitarray() != null) ? servicePathId.getPathIdBitarray() : 0;
-        }
-
-        ServicePathIdBuilder servicePathIdBuilder = new ServicePathIdBuilder();
-
-        servicePathIdBuilder.setPathIdBitarray(pathIdBitArray | (1L << (Long.SIZE - bitEntry)));
-        servicePathIdBuilder.setKey(servicePathIdKey);
-
-        return SfcDataStoreAPI.
-                writeMergeTransactionAPI(spIID, servicePathIdBuilder.build(), LogicalDatastoreType.OPERATIONAL);
+        SfcServicePathIdAllocator pathIdAllocator = getAllocator();
+        return pathIdAllocator.allocate(pathid) || pathIdAllocator.isAllocated(pathid);
     }
 
     /**
@@ -252,62 +233,20 @@ public class SfcServicePathId {
      * @return True if freed, otherwise false.
      */
     public static boolean free_pathid(long pathid) {
-        if (SfcConcurrencyAPI.getPathIdLock()) {
-            try {
-                ServicePathIdKey servicePathIdKey = new
-                        ServicePathIdKey(pathid/Long.SIZE);
-
-                /* Entry into the bitarray */
-                long bitEntry = pathid % Long.SIZE;
-
-                InstanceIdentifier<ServicePathId> spIID;
-                spIID = InstanceIdentifier.builder(ServicePathIds.class)
-                        .child(ServicePathId.class, servicePathIdKey)
-                        .build();
-                ServicePathId servicePathId = SfcDataStoreAPI.
-                        readTransactionAPI(spIID, LogicalDatastoreType.OPERATIONAL);
-
-                ServicePathIdBuilder servicePathIdBuilder = new ServicePathIdBuilder(servicePathId);
-                servicePathIdBuilder.setKey(servicePathIdKey);
-                servicePathIdBuilder.setPathIdBitarray(servicePathId.getPathIdBitarray() & ~(1L << (Long.SIZE - bitEntry)));
-
-                return SfcDataStoreAPI.
-                        writeMergeTransactionAPI(spIID, servicePathIdBuilder.build(), LogicalDatastoreType.OPERATIONAL);
-            } finally {
-                SfcConcurrencyAPI.releasePathIdLock();
-            }
-        }
-        return false;
+        SfcServicePathIdAllocator pathIdAllocator = getAllocator();
+        return pathIdAllocator.free(pathid) || pathIdAllocator.isAvailable(pathid);
     }
 
     /**
-     * Get the Path-Id Generation-algorithm from the data-store.
+     * Get the Path-Id Generation-algorithm.
      *
-     * If its not present, create it with the default value.
+     * If its not present in the data-store, it is created with the default value.
      *
      * <p>
      * @return generation-algorithm enum value
      */
     public static GenerationAlgorithmEnum getGenerationAlgorithm() {
-        InstanceIdentifier<ServicePathIds> spIID =
-                InstanceIdentifier.builder(ServicePathIds.class).build();
-        ServicePathIds servicePathIds =
-                SfcDataStoreAPI.
-                    readTransactionAPI(spIID, LogicalDatastoreType.OPERATIONAL);
-
-        if(servicePathIds == null) {
-            setGenerationAlgorithm(DEFAULT_GENERATION_ALGORITHM);
-            return GenerationAlgorithmEnum.forValue(DEFAULT_GENERATION_ALGORITHM);
-        }
-
-        GenerationAlgorithmEnum genAlgorithm = servicePathIds.getGenerationAlgorithm();
-
-        if(genAlgorithm == null) {
-            setGenerationAlgorithm(DEFAULT_GENERATION_ALGORITHM);
-            return GenerationAlgorithmEnum.forValue(DEFAULT_GENERATION_ALGORITHM);
-        } else {
-            return genAlgorithm;
-        }
+        return getAllocator().getGenerationAlgorithm();
     }
 
     /**
@@ -329,14 +268,7 @@ public class SfcServicePathId {
      * @return True if successful, otherwise false
      */
     public static boolean setGenerationAlgorithm(GenerationAlgorithmEnum genAlgorithm) {
-        InstanceIdentifier<ServicePathIds> spIID
-            = InstanceIdentifier.builder(ServicePathIds.class).build();
-
-        ServicePathIdsBuilder servicePathIdsBuilder = new ServicePathIdsBuilder();
-        servicePathIdsBuilder.setGenerationAlgorithm(genAlgorithm);
-
-        return SfcDataStoreAPI.
-                writeMergeTransactionAPI(spIID, servicePathIdsBuilder.build(), LogicalDatastoreType.OPERATIONAL);
+        return getAllocator().setGenerationAlgorithm(genAlgorithm);
     }
 
 }
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.GenerationAlgorithmEnum;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.ServicePathIds;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.ServicePathIdsBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathId;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathIdBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathIdKey;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory allocator of Service Path Ids.
+ * <p>
+ * The allocated path ids are kept in a bitmap, loaded once from the
+ * ServicePathIds operational data, where each 64 bit word has the same
+ * layout as a ServicePathId path-id-bitarray entry. Path ids are allocated
+ * and freed with compare-and-set on the words, without locks or data store
+ * reads. The modified words are written back to the data store
+ * asynchronously, in batches, by a single persister thread. Words that
+ * could not be written stay dirty and are written again later.
+ * <p>
+ * The bitmap covers the whole path id range of the model (24 bits), and is
+ * split in pages created on first use, so that only the pages actually
+ * holding path ids take memory.
+ */
+public class SfcServicePathIdAllocator implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcServicePathIdAllocator.class);
+
+    /* The highest path id, as per the service-path-id model */
+    public static final long MAX_PATH_ID = (1L << 24) - 1;
+
+    private static final int WORDS_PER_PAGE = 1024;
+    private static final int NUM_WORDS = (int) (MAX_PATH_ID / Long.SIZE) + 1;
+    private static final int NUM_PAGES = (NUM_WORDS + WORDS_PER_PAGE - 1) / WORDS_PER_PAGE;
+    private static final long PERSIST_DELAY_MILLIS = 20;
+    private static final long PERSIST_RETRY_DELAY_MILLIS = 1000;
+    private static final long SHUTDOWN_TIME = 5;
+
+    private final DataBroker dataBroker;
+    private final AtomicReferenceArray<AtomicLongArray> pages;
+    private final Set<Integer> dirtyWords;
+    private final AtomicBoolean persistScheduled;
+    private final ScheduledExecutorService persister;
+    private volatile GenerationAlgorithmEnum generationAlgorithm;
+
+    /**
+     * Create the allocator and load the allocated path ids from the data store
+     *
+     * @param dataBroker - the data broker the path ids are read from and written to
+     * @param defaultGenerationAlgorithm - the algorithm used if none is stored
+     */
+    public SfcServicePathIdAllocator(DataBroker dataBroker, GenerationAlgorithmEnum defaultGenerationAlgorithm) {
+        this.dataBroker = dataBroker;
+        this.pages = new AtomicReferenceArray<>(NUM_PAGES);
+        this.dirtyWords = ConcurrentHashMap.newKeySet();
+        this.persistScheduled = new AtomicBoolean(false);
+        // close() writes the pending entries, the persister does not keep the JVM alive
+        this.persister = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("SFC-PathIdPersister-%d").setDaemon(true).build());
+        load(defaultGenerationAlgorithm);
+    }
+
+    private void load(GenerationAlgorithmEnum defaultGenerationAlgorithm) {
+        InstanceIdentifier<ServicePathIds> spIID = InstanceIdentifier.builder(ServicePathIds.class).build();
+        ServicePathIds servicePathIds = SfcDataStoreAPI.readTransactionAPI(spIID, LogicalDatastoreType.OPERATIONAL);
+
+        int loadedWords = 0;
+        if (servicePathIds != null && servicePathIds.getServicePathId() != null) {
+            for (ServicePathId servicePathId : servicePathIds.getServicePathId()) {
+                long wordIndex = servicePathId.getPathIdKey();
+                Long bitarray = servicePathId.getPathIdBitarray();
+                if (wordIndex < 0 || wordIndex >= NUM_WORDS || bitarray == null) {
+                    LOG.warn("load: ignoring invalid path id entry [{}]", wordIndex);
+                    continue;
+                }
+                getPage((int) wordIndex, true).set((int) (wordIndex % WORDS_PER_PAGE), bitarray);
+                loadedWords++;
+            }
+        }
+
+        if (servicePathIds == null || servicePathIds.getGenerationAlgorithm() == null) {
+            setGenerationAlgorithm(defaultGenerationAlgorithm);
+        } else {
+            generationAlgorithm = servicePathIds.getGenerationAlgorithm();
+        }
+
+        LOG.info("load: loaded [{}] path id entries, generation algorithm [{}]", loadedWords, generationAlgorithm);
+    }
+
+    public DataBroker getDataBroker() {
+        return dataBroker;
+    }
+
+    /**
+     * Check if a path id is in the valid range and not allocated
+     *
+     * @param pathId - the path id
+     * @return true if the path id can be allocated
+     */
+    public boolean isAvailable(long pathId) {
+        return isValid(pathId) && (getWord(pathId) & bitMask(pathId)) == 0;
+    }
+
+    /**
+     * Check if a path id is allocated
+     *
+     * @param pathId - the path id
+     * @return true if the path id is allocated
+     */
+    public boolean isAllocated(long pathId) {
+        return isValid(pathId) && (getWord(pathId) & bitMask(pathId)) != 0;
+    }
+
+    /**
+     * Allocate a path id, if it is not allocated already
+     *
+     * @param pathId - the path id
+     * @return true if the path id was allocated by this call
+     */
+    public boolean allocate(long pathId) {
+        if (!isValid(pathId)) {
+            return false;
+        }
+        int wordIndex = (int) (pathId / Long.SIZE);
+        AtomicLongArray page = getPage(wordIndex, true);
+        int pageIndex = wordIndex % WORDS_PER_PAGE;
+        long mask = bitMask(pathId);
+
+        long word;
+        do {
+            word = page.get(pageIndex);
+            if ((word & mask) != 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(pageIndex, word, word | mask));
+
+        markDirty(wordIndex);
+        return true;
+    }
+
+    /**
+     * Free a path id
+     *
+     * @param pathId - the path id
+     * @return true if the path id was allocated, and freed by this call
+     */
+    public boolean free(long pathId) {
+        if (!isValid(pathId)) {
+            return false;
+        }
+        int wordIndex = (int) (pathId / Long.SIZE);
+        AtomicLongArray page = getPage(wordIndex, false);
+        if (page == null) {
+            return false;
+        }
+        int pageIndex = wordIndex % WORDS_PER_PAGE;
+        long mask = bitMask(pathId);
+
+        long word;
+        do {
+            word = page.get(pageIndex);
+            if ((word & mask) == 0) {
+                return false;
+            }
+        } while (!page.compareAndSet(pageIndex, word, word & ~mask));
+
+        markDirty(wordIndex);
+        return true;
+    }
+
+    public GenerationAlgorithmEnum getGenerationAlgorithm() {
+        return generationAlgorithm;
+    }
+
+    /**
+     * Set the generation algorithm, and write it to the data store
+     *
+     * @param genAlgorithm - the generation algorithm
+     * @return True if successful, otherwise false
+     */
+    public boolean setGenerationAlgorithm(GenerationAlgorithmEnum genAlgorithm) {
+        generationAlgorithm = genAlgorithm;
+
+        InstanceIdentifier<ServicePathIds> spIID = InstanceIdentifier.builder(ServicePathIds.class).build();
+        ServicePathIdsBuilder servicePathIdsBuilder = new ServicePathIdsBuilder();
+        servicePathIdsBuilder.setGenerationAlgorithm(genAlgorithm);
+
+        return SfcDataStoreAPI.
+                writeMergeTransactionAPI(spIID, servicePathIdsBuilder.build(), LogicalDatastoreType.OPERATIONAL);
+    }
+
+    /**
+     * Write the pending path id entries, and stop the persister thread
+     */
+    @Override
+    public void close() {
+        persister.shutdown();
+        try {
+            if (!persister.awaitTermination(SHUTDOWN_TIME, TimeUnit.SECONDS)) {
+                LOG.error("close: path id persister did not terminate in the specified time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!persist()) {
+            LOG.error("close: [{}] path id entries could not be written", dirtyWords.size());
+        }
+    }
+
+    /* Same bit layout as the original path-id-bitarray entries */
+    private static long bitMask(long pathId) {
+        return 1L << (Long.SIZE - (pathId % Long.SIZE));
+    }
+
+    private static boolean isValid(long pathId) {
+        return pathId >= 0 && pathId <= MAX_PATH_ID;
+    }
+
+    private long getWord(long pathId) {
+        int wordIndex = (int) (pathId / Long.SIZE);
+        AtomicLongArray page = getPage(wordIndex, false);
+        return page == null ? 0 : page.get(wordIndex % WORDS_PER_PAGE);
+    }
+
+    private AtomicLongArray getPage(int wordIndex, boolean create) {
+        int pageNumber = wordIndex / WORDS_PER_PAGE;
+        AtomicLongArray page = pages.get(pageNumber);
+        if (page == null && create) {
+            pages.compareAndSet(pageNumber, null, new AtomicLongArray(WORDS_PER_PAGE));
+            page = pages.get(pageNumber);
+        }
+        return page;
+    }
+
+    private void markDirty(int wordIndex) {
+        dirtyWords.add(wordIndex);
+        schedulePersist(PERSIST_DELAY_MILLIS);
+    }
+
+    private void schedulePersist(long delayMillis) {
+        if (persistScheduled.compareAndSet(false, true)) {
+            try {
+                persister.schedule(this::persist, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Closing, the remaining words are written by close()
+                persistScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Write the current value of all the modified words in a single
+     * transaction. If the transaction fails, the words are marked dirty
+     * again and another write is scheduled.
+     *
+     * @return true if the words were written, or there was nothing to write
+     */
+    synchronized boolean persist() {
+        persistScheduled.set(false);
+
+        List<Integer> wordIndexes = new ArrayList<>();
+        Iterator<Integer> iter = dirtyWords.iterator();
+        while (iter.hasNext()) {
+            wordIndexes.add(iter.next());
+            iter.remove();
+        }
+        if (wordIndexes.isEmpty()) {
+            return true;
+        }
+
+        // A word modified after it is read below is marked dirty again by
+        // the modification, so no update is lost if the transaction succeeds
+        WriteTransaction writeTx = dataBroker.newWriteOnlyTransaction();
+        for (int wordIndex : wordIndexes) {
+            ServicePathIdKey servicePathIdKey = new ServicePathIdKey((long) wordIndex);
+            InstanceIdentifier<ServicePathId> spIID = InstanceIdentifier.builder(ServicePathIds.class)
+                    .child(ServicePathId.class, servicePathIdKey)
+                    .build();
+            ServicePathIdBuilder servicePathIdBuilder = new ServicePathIdBuilder();
+            servicePathIdBuilder.setKey(servicePathIdKey);
+            servicePathIdBuilder.setPathIdBitarray(getPage(wordIndex, true).get(wordIndex % WORDS_PER_PAGE));
+            writeTx.merge(LogicalDatastoreType.OPERATIONAL, spIID, servicePathIdBuilder.build(), true);
+        }
+
+        CheckedFuture<Void, TransactionCommitFailedException> submitFuture = writeTx.submit();
+        try {
+            submitFuture.checkedGet();
+            LOG.debug("persist: wrote [{}] path id entries", wordIndexes.size());
+            return true;
+        } catch (TransactionCommitFailedException e) {
+            LOG.error("persist: failed to write [{}] path id entries, retrying: {}", wordIndexes.size(),
+                    e.getMessage(), e);
+            dirtyWords.addAll(wordIndexes);
+            schedulePersist(PERSIST_RETRY_DELAY_MILLIS);
+            return false;
+        }
+    }
+}
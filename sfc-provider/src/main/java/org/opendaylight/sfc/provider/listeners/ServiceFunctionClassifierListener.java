@@ -7,6 +7,9 @@
  */
 package org.opendaylight.sfc.provider.listeners;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
@@ -58,8 +61,10 @@ public class ServiceFunctionClassifierListener
             if (serviceFunctionClassifier.getName() != null && serviceFunctionClassifier.getAcl() != null) {
                 // call executor to write <ACL, Classifier> entry into ACL
                 // operational store
-                SfcProviderAclAPI.addClassifierToAccessListState(serviceFunctionClassifier.getAcl().getName(),
-                        serviceFunctionClassifier.getAcl().getType(), serviceFunctionClassifier.getName());
+                logFailure(SfcProviderAclAPI.addClassifierToAccessListStateAsync(
+                        serviceFunctionClassifier.getAcl().getName(),
+                        serviceFunctionClassifier.getAcl().getType(), serviceFunctionClassifier.getName()),
+                        serviceFunctionClassifier.getName());
             }
         }
     }
@@ -73,8 +78,10 @@ public class ServiceFunctionClassifierListener
             if (serviceFunctionClassifier.getName() != null) {
                 // call executor to delete <ACL, Classifier> entry from ACL
                 // operational store
-                SfcProviderAclAPI.deleteClassifierFromAccessListState(serviceFunctionClassifier.getAcl().getName(),
-                        serviceFunctionClassifier.getAcl().getType(), serviceFunctionClassifier.getName());
+                logFailure(SfcProviderAclAPI.deleteClassifierFromAccessListStateAsync(
+                        serviceFunctionClassifier.getAcl().getName(),
+                        serviceFunctionClassifier.getAcl().getType(), serviceFunctionClassifier.getName()),
+                        serviceFunctionClassifier.getName());
             }
         }
     }
@@ -91,8 +98,10 @@ public class ServiceFunctionClassifierListener
             if (updatedServiceFunctionClassifier.getAcl() != null) {
                 // call executor to write <ACL, Classifier> entry into ACL
                 // operational store
-                SfcProviderAclAPI.addClassifierToAccessListState(updatedServiceFunctionClassifier.getAcl().getName(),
+                logFailure(SfcProviderAclAPI.addClassifierToAccessListStateAsync(
+                        updatedServiceFunctionClassifier.getAcl().getName(),
                         updatedServiceFunctionClassifier.getAcl().getType(),
+                        updatedServiceFunctionClassifier.getName()),
                         updatedServiceFunctionClassifier.getName());
             }
             // if Access List is empty string, Classifier should be not more
@@ -100,14 +109,33 @@ public class ServiceFunctionClassifierListener
             else {
                 // call executor to delete <ACL, Classifier> entry from ACL
                 // operational store
-                SfcProviderAclAPI.deleteClassifierFromAccessListState(
+                logFailure(SfcProviderAclAPI.deleteClassifierFromAccessListStateAsync(
                         originalServiceFunctionClassifier.getAcl().getName(),
                         originalServiceFunctionClassifier.getAcl().getType(),
+                        originalServiceFunctionClassifier.getName()),
                         originalServiceFunctionClassifier.getName());
             }
         }
     }
 
+    private static void logFailure(ListenableFuture<Boolean> future, final String classifierName) {
+        Futures.addCallback(future, new FutureCallback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean result) {
+                if (!Boolean.TRUE.equals(result)) {
+                    LOG.error("Failed to update Access List state for Service Function Classifier: {}",
+                            classifierName);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOG.error("Failed to update Access List state for Service Function Classifier: {}",
+                        classifierName, t);
+            }
+        });
+    }
+
     @Override
     public void close() throws Exception {
         LOG.debug("Closing listener...");
@@ -15,6 +15,7 @@ import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.sfc.provider.api.SfcProviderRenderedPathAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceForwarderAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
+import org.opendaylight.sfc.provider.topology.SfcProviderTopology;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfpName;
@@ -55,11 +56,13 @@ public class ServiceFunctionForwarderListener extends AbstractClusteredDataTreeC
                 LogicalDatastoreType.CONFIGURATION,
                 InstanceIdentifier.create(ServiceFunctionForwarders.class).child(ServiceFunctionForwarder.class));
         listenerRegistration = dataBroker.registerDataTreeChangeListener(treeId, this);
+        SfcProviderTopology.getInstance().setServiceFunctionForwardersTracked(true);
     }
 
     @Override
     protected void add(ServiceFunctionForwarder serviceFunctionForwarder) {
         LOG.debug("Adding Service Function Forwarder: {}", serviceFunctionForwarder.getName());
+        SfcProviderTopology.getInstance().updateServiceFunctionForwarder(serviceFunctionForwarder);
 
         // TODO: the following code is literally copied from the previous
         // listener, but it looks like doing nothing
@@ -73,6 +76,7 @@ public class ServiceFunctionForwarderListener extends AbstractClusteredDataTreeC
     @Override
     protected void remove(ServiceFunctionForwarder serviceFunctionForwarder) {
         LOG.debug("Deleting Service Function Forwarder: {}", serviceFunctionForwarder.getName());
+        SfcProviderTopology.getInstance().removeServiceFunctionForwarder(serviceFunctionForwarder.getName().getValue());
         removeRSPs(serviceFunctionForwarder);
     }
 
@@ -120,6 +124,7 @@ public class ServiceFunctionForwarderListener extends AbstractClusteredDataTreeC
     protected void update(ServiceFunctionForwarder originalServiceFunctionForwarder,
             ServiceFunctionForwarder updatedServiceFunctionForwarder) {
         LOG.debug("Deleting Service Function Forwarder: {}", originalServiceFunctionForwarder.getName());
+        SfcProviderTopology.getInstance().updateServiceFunctionForwarder(updatedServiceFunctionForwarder);
         updateServiceFunctionForwarderState(originalServiceFunctionForwarder);
     }
 
@@ -171,6 +176,7 @@ public class ServiceFunctionForwarderListener extends AbstractClusteredDataTreeC
         LOG.debug("Closing listener...");
         if (listenerRegistration != null) {
             listenerRegistration.close();
+            SfcProviderTopology.getInstance().setServiceFunctionForwardersTracked(false);
         }
     }
 }
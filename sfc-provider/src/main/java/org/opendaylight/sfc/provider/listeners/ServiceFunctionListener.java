@@ -7,8 +7,17 @@
  */
 package org.opendaylight.sfc.provider.listeners;
 
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
@@ -16,6 +25,7 @@ import org.opendaylight.sfc.provider.api.SfcProviderRenderedPathAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceForwarderAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceTypeAPI;
+import org.opendaylight.sfc.provider.topology.SfcProviderTopology;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.ServiceFunctions;
@@ -39,6 +49,9 @@ public class ServiceFunctionListener extends AbstractClusteredDataTreeChangeList
     private final DataBroker dataBroker;
     private ListenerRegistration<ServiceFunctionListener> listenerRegistration;
 
+    // Last SF type operation submitted for each SF, guarded by itself
+    private final Map<SfName, ListenableFuture<Boolean>> pendingTypeOperations = new HashMap<>();
+
     public ServiceFunctionListener(final DataBroker dataBroker) {
         this.dataBroker = dataBroker;
     }
@@ -52,16 +65,18 @@ public class ServiceFunctionListener extends AbstractClusteredDataTreeChangeList
         final DataTreeIdentifier<ServiceFunction> treeId = new DataTreeIdentifier<>(LogicalDatastoreType.CONFIGURATION,
                 InstanceIdentifier.create(ServiceFunctions.class).child(ServiceFunction.class));
         listenerRegistration = dataBroker.registerDataTreeChangeListener(treeId, this);
+        SfcProviderTopology.getInstance().setServiceFunctionsTracked(true);
     }
 
     @Override
     public void add(ServiceFunction serviceFunction) {
         if (serviceFunction != null) {
             LOG.debug("Adding Service Function: {}", serviceFunction.getName());
+            SfcProviderTopology.getInstance().addServiceFunction(serviceFunction.getName().getValue());
 
-            if (!SfcProviderServiceTypeAPI.createServiceFunctionTypeEntry(serviceFunction)) {
-                LOG.error("Failed to create Service Function: ", serviceFunction.getName());
-            }
+            submitInOrder(serviceFunction.getName(),
+                    () -> SfcProviderServiceTypeAPI.createServiceFunctionTypeEntryAsync(serviceFunction),
+                    "Failed to create Service Function Type entry for Service Function: {}", serviceFunction);
         }
     }
 
@@ -69,10 +84,11 @@ public class ServiceFunctionListener extends AbstractClusteredDataTreeChangeList
     public void remove(ServiceFunction serviceFunction) {
         if (serviceFunction != null) {
             LOG.debug("Deleting Service Function: {}", serviceFunction.getName());
+            SfcProviderTopology.getInstance().removeServiceFunction(serviceFunction.getName().getValue());
             removeRSPs(serviceFunction);
-            if (!SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntry(serviceFunction)) {
-                LOG.error("Failed to delete Service Function: ", serviceFunction.getName());
-            }
+            submitInOrder(serviceFunction.getName(),
+                    () -> SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntryAsync(serviceFunction),
+                    "Failed to delete Service Function Type entry for Service Function: {}", serviceFunction);
         }
     }
 
@@ -109,9 +125,15 @@ public class ServiceFunctionListener extends AbstractClusteredDataTreeChangeList
             // We only update SF type entry if type has changed
             if (!updatedServiceFunction.getType().equals(originalServiceFunction.getType())) {
                 // We remove the original SF from SF type list
-                SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntry(originalServiceFunction);
-                // We create a independent entry
-                SfcProviderServiceTypeAPI.createServiceFunctionTypeEntry(updatedServiceFunction);
+                submitInOrder(originalServiceFunction.getName(),
+                        () -> SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntryAsync(originalServiceFunction),
+                        "Failed to delete Service Function Type entry for Service Function: {}",
+                        originalServiceFunction);
+                // We create a independent entry, once the original one is removed
+                submitInOrder(updatedServiceFunction.getName(),
+                        () -> SfcProviderServiceTypeAPI.createServiceFunctionTypeEntryAsync(updatedServiceFunction),
+                        "Failed to create Service Function Type entry for Service Function: {}",
+                        updatedServiceFunction);
             }
             // This convenience method isolates the code write previously in the
             // update method
@@ -157,11 +179,75 @@ public class ServiceFunctionListener extends AbstractClusteredDataTreeChangeList
          */
     }
 
+    /**
+     * Submit an SF type operation once the previous operations on the same
+     * SF are complete, whatever their outcome, so that the operations on an
+     * SF are applied in the order of its changes without blocking the
+     * listener.
+     *
+     * @param sfName - the SF the operation is about
+     * @param operation - submits the operation
+     * @param message - the message logged if the operation fails
+     * @param serviceFunction - the SF logged if the operation fails
+     * @return the future of the operation
+     */
+    ListenableFuture<Boolean> submitInOrder(final SfName sfName,
+            final Supplier<ListenableFuture<Boolean>> operation, final String message,
+            final ServiceFunction serviceFunction) {
+        final ListenableFuture<Boolean> future;
+        synchronized (pendingTypeOperations) {
+            ListenableFuture<Boolean> previous = pendingTypeOperations.get(sfName);
+            if (previous == null) {
+                future = operation.get();
+            } else {
+                ListenableFuture<Boolean> previousDone = Futures.withFallback(previous,
+                        new FutureFallback<Boolean>() {
+                            @Override
+                            public ListenableFuture<Boolean> create(Throwable t) {
+                                return Futures.immediateFuture(false);
+                            }
+                        });
+                future = Futures.transform(previousDone, new AsyncFunction<Boolean, Boolean>() {
+                    @Override
+                    public ListenableFuture<Boolean> apply(Boolean previousResult) {
+                        return operation.get();
+                    }
+                });
+            }
+            pendingTypeOperations.put(sfName, future);
+        }
+        future.addListener(() -> {
+            synchronized (pendingTypeOperations) {
+                pendingTypeOperations.remove(sfName, future);
+            }
+        }, MoreExecutors.directExecutor());
+        logFailure(future, message, serviceFunction);
+        return future;
+    }
+
+    private static void logFailure(ListenableFuture<Boolean> future, final String message,
+            final ServiceFunction serviceFunction) {
+        Futures.addCallback(future, new FutureCallback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean result) {
+                if (!Boolean.TRUE.equals(result)) {
+                    LOG.error(message, serviceFunction.getName());
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOG.error(message, serviceFunction.getName(), t);
+            }
+        });
+    }
+
     @Override
     public void close() throws Exception {
         LOG.debug("Closing listener...");
         if (listenerRegistration != null) {
             listenerRegistration.close();
+            SfcProviderTopology.getInstance().setServiceFunctionsTracked(false);
         }
     }
 }
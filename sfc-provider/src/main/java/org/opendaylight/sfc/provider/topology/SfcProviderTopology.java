@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2016 Intel Corporation.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.topology;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ConnectedSffDictionary;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class represents the long-lived topology graph of the SFs (Service
+ * Functions) and SFFs (Service Function Forwarders). Unlike SfcProviderGraph,
+ * which is built from scratch from the datastore, it is updated incrementally
+ * by the SF and SFF listeners.
+ * <p>
+ * Nodes are identified by an integer index, and the neighbors of a node are
+ * kept in an array of indexes. The hop distances from a node to all the other
+ * nodes are computed with a breadth first search the first time they are
+ * needed, and cached until the topology changes.
+ * <p>
+ * A SF node exists while the SF is configured or an SFF refers to it; an SFF
+ * node exists while the SFF is configured or another SFF is connected to it.
+ * Edges are undirected, and exist while at least one SFF dictionary refers to
+ * them.
+ */
+public class SfcProviderTopology {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcProviderTopology.class);
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int UNREACHABLE = -1;
+
+    // Cached distance vectors, least recently used are evicted first
+    static final int MAX_CACHED_SOURCES = 256;
+
+    private static final SfcProviderTopology INSTANCE = new SfcProviderTopology();
+
+    private final Map<String, Integer> nodeIndexes = new HashMap<>();
+    private final Deque<Integer> freeIndexes = new ArrayDeque<>();
+    private int[] nodeReferences = new int[INITIAL_CAPACITY];
+    private int[][] neighbors = new int[INITIAL_CAPACITY][];
+    private int[] degrees = new int[INITIAL_CAPACITY];
+    private int nodeCount = 0;
+    private int highestIndex = 0;
+
+    private final Map<Edge, Integer> edgeReferences = new HashMap<>();
+    private final Set<String> serviceFunctions = new HashSet<>();
+    private final Map<String, Set<Edge>> forwarderEdges = new HashMap<>();
+
+    private boolean serviceFunctionsTracked = false;
+    private boolean forwardersTracked = false;
+
+    private final Map<Integer, int[]> distanceCache =
+            new LinkedHashMap<Integer, int[]>(MAX_CACHED_SOURCES, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                    return size() > MAX_CACHED_SOURCES;
+                }
+            };
+
+    public SfcProviderTopology() {
+    }
+
+    /**
+     * @return the topology maintained by the SF and SFF listeners
+     */
+    public static SfcProviderTopology getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add a configured SF to the topology.
+     *
+     * @param sfName - the SF name
+     */
+    public synchronized void addServiceFunction(String sfName) {
+        if (serviceFunctions.add(sfName)) {
+            acquireNode(sfName);
+            topologyChanged();
+        }
+    }
+
+    /**
+     * Remove a configured SF from the topology. Its node is kept as long as an
+     * SFF refers to it.
+     *
+     * @param sfName - the SF name
+     */
+    public synchronized void removeServiceFunction(String sfName) {
+        if (serviceFunctions.remove(sfName)) {
+            releaseNode(sfName);
+            topologyChanged();
+        }
+    }
+
+    /**
+     * Add or update a configured SFF, along with its edges to the SFs of its SF
+     * dictionary and to the SFFs of its connected SFF dictionary.
+     *
+     * @param sff - the SFF
+     */
+    public synchronized void updateServiceFunctionForwarder(ServiceFunctionForwarder sff) {
+        String sffName = sff.getName().getValue();
+        Set<Edge> edges = new HashSet<>();
+        if (sff.getServiceFunctionDictionary() != null) {
+            for (ServiceFunctionDictionary sfDictionary : sff.getServiceFunctionDictionary()) {
+                edges.add(new Edge(sfDictionary.getName().getValue(), sffName));
+            }
+        }
+        if (sff.getConnectedSffDictionary() != null) {
+            for (ConnectedSffDictionary sffDictionary : sff.getConnectedSffDictionary()) {
+                edges.add(new Edge(sffName, sffDictionary.getName().getValue()));
+            }
+        }
+
+        Set<Edge> previousEdges = forwarderEdges.put(sffName, edges);
+        if (previousEdges == null) {
+            acquireNode(sffName);
+            previousEdges = Collections.emptySet();
+        } else if (previousEdges.equals(edges)) {
+            return;
+        }
+        for (Edge edge : edges) {
+            if (!previousEdges.contains(edge)) {
+                acquireEdge(edge);
+            }
+        }
+        for (Edge edge : previousEdges) {
+            if (!edges.contains(edge)) {
+                releaseEdge(edge);
+            }
+        }
+        topologyChanged();
+    }
+
+    /**
+     * Remove a configured SFF and its edges from the topology.
+     *
+     * @param sffName - the SFF name
+     */
+    public synchronized void removeServiceFunctionForwarder(String sffName) {
+        Set<Edge> edges = forwarderEdges.remove(sffName);
+        if (edges != null) {
+            edges.forEach(this::releaseEdge);
+            releaseNode(sffName);
+            topologyChanged();
+        }
+    }
+
+    /**
+     * Mark whether the configured SFs are tracked by a listener. The SFs added
+     * so far are removed when the tracking stops.
+     *
+     * @param tracked - true if a listener keeps the SFs up to date
+     */
+    public synchronized void setServiceFunctionsTracked(boolean tracked) {
+        serviceFunctionsTracked = tracked;
+        if (!tracked) {
+            new HashSet<>(serviceFunctions).forEach(this::removeServiceFunction);
+        }
+    }
+
+    /**
+     * Mark whether the configured SFFs are tracked by a listener. The SFFs
+     * added so far are removed when the tracking stops.
+     *
+     * @param tracked - true if a listener keeps the SFFs up to date
+     */
+    public synchronized void setServiceFunctionForwardersTracked(boolean tracked) {
+        forwardersTracked = tracked;
+        if (!tracked) {
+            new HashSet<>(forwarderEdges.keySet()).forEach(this::removeServiceFunctionForwarder);
+        }
+    }
+
+    /**
+     * @return true if both the SFs and the SFFs are kept up to date by listeners
+     */
+    public synchronized boolean isTracked() {
+        return serviceFunctionsTracked && forwardersTracked;
+    }
+
+    public synchronized boolean hasNode(String nodeName) {
+        return nodeIndexes.containsKey(nodeName);
+    }
+
+    public synchronized boolean hasEdge(String fromNodeName, String toNodeName) {
+        return edgeReferences.containsKey(new Edge(fromNodeName, toNodeName));
+    }
+
+    public synchronized int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Get the number of hops between two nodes.
+     *
+     * @param fromNodeName - the source node
+     * @param toNodeName - the destination node
+     * @return the number of hops, 0 if both nodes are the same, -1 if a node
+     *         does not exist or there is no path between them
+     */
+    public synchronized int getDistance(String fromNodeName, String toNodeName) {
+        Integer from = nodeIndexes.get(fromNodeName);
+        Integer to = nodeIndexes.get(toNodeName);
+        if (from == null || to == null) {
+            LOG.debug("Node {} or {} doesn't exist in topology graph", fromNodeName, toNodeName);
+            return UNREACHABLE;
+        }
+        return getDistances(from)[to];
+    }
+
+    private int[] getDistances(int from) {
+        int[] distances = distanceCache.get(from);
+        if (distances == null) {
+            distances = breadthFirstSearch(from);
+            distanceCache.put(from, distances);
+        }
+        return distances;
+    }
+
+    private int[] breadthFirstSearch(int from) {
+        int[] distances = new int[highestIndex];
+        Arrays.fill(distances, UNREACHABLE);
+        int[] queue = new int[highestIndex];
+        int head = 0;
+        int tail = 0;
+        distances[from] = 0;
+        queue[tail++] = from;
+        while (head < tail) {
+            int node = queue[head++];
+            int[] nodeNeighbors = neighbors[node];
+            for (int i = 0; i < degrees[node]; i++) {
+                int neighbor = nodeNeighbors[i];
+                if (distances[neighbor] == UNREACHABLE) {
+                    distances[neighbor] = distances[node] + 1;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return distances;
+    }
+
+    private void topologyChanged() {
+        distanceCache.clear();
+    }
+
+    private int acquireNode(String nodeName) {
+        Integer index = nodeIndexes.get(nodeName);
+        if (index == null) {
+            index = freeIndexes.isEmpty() ? highestIndex++ : freeIndexes.pop();
+            ensureCapacity(highestIndex);
+            nodeIndexes.put(nodeName, index);
+            neighbors[index] = new int[4];
+            degrees[index] = 0;
+            nodeCount++;
+        }
+        nodeReferences[index]++;
+        return index;
+    }
+
+    private void releaseNode(String nodeName) {
+        int index = nodeIndexes.get(nodeName);
+        if (--nodeReferences[index] == 0) {
+            nodeIndexes.remove(nodeName);
+            neighbors[index] = null;
+            degrees[index] = 0;
+            freeIndexes.push(index);
+            nodeCount--;
+        }
+    }
+
+    private void acquireEdge(Edge edge) {
+        Integer references = edgeReferences.get(edge);
+        if (references == null) {
+            int first = acquireNode(edge.first);
+            int second = acquireNode(edge.second);
+            addNeighbor(first, second);
+            addNeighbor(second, first);
+            references = 0;
+        }
+        edgeReferences.put(edge, references + 1);
+    }
+
+    private void releaseEdge(Edge edge) {
+        int references = edgeReferences.get(edge);
+        if (references > 1) {
+            edgeReferences.put(edge, references - 1);
+            return;
+        }
+        edgeReferences.remove(edge);
+        int first = nodeIndexes.get(edge.first);
+        int second = nodeIndexes.get(edge.second);
+        removeNeighbor(first, second);
+        removeNeighbor(second, first);
+        releaseNode(edge.first);
+        releaseNode(edge.second);
+    }
+
+    private void addNeighbor(int node, int neighbor) {
+        if (degrees[node] == neighbors[node].length) {
+            neighbors[node] = Arrays.copyOf(neighbors[node], degrees[node] * 2);
+        }
+        neighbors[node][degrees[node]++] = neighbor;
+    }
+
+    private void removeNeighbor(int node, int neighbor) {
+        int[] nodeNeighbors = neighbors[node];
+        for (int i = 0; i < degrees[node]; i++) {
+            if (nodeNeighbors[i] == neighbor) {
+                nodeNeighbors[i] = nodeNeighbors[--degrees[node]];
+                return;
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > degrees.length) {
+            int newCapacity = Math.max(capacity, degrees.length * 2);
+            nodeReferences = Arrays.copyOf(nodeReferences, newCapacity);
+            neighbors = Arrays.copyOf(neighbors, newCapacity);
+            degrees = Arrays.copyOf(degrees, newCapacity);
+        }
+    }
+
+    /*
+     * Undirected edge, the node names are kept ordered
+     */
+    private static final class Edge {
+        private final String first;
+        private final String second;
+
+        Edge(String from, String to) {
+            if (from.compareTo(to) <= 0) {
+                first = from;
+                second = to;
+            } else {
+                first = to;
+                second = from;
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Edge)) {
+                return false;
+            }
+            Edge other = (Edge) obj;
+            return first.equals(other.first) && second.equals(other.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * first.hashCode() + second.hashCode();
+        }
+    }
+}
@@ -43,6 +43,9 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev1
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathInput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathInputBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathOutput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathsInput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathsInputBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathsOutput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathInput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathInputBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.DeleteRenderedPathOutput;
@@ -52,6 +55,9 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev1407
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.ReadRspFirstHopBySftListInput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.ReadRspFirstHopBySftListInputBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.ReadRspFirstHopBySftListOutput;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.input.PathRequest;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.input.PathRequestBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.create.rendered.paths.output.PathResult;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.rendered.service.path.RenderedServicePathHop;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.scf.rev140701.ServiceFunctionClassifiers;
@@ -696,6 +702,28 @@ public class SfcProviderRpcTest extends AbstractDataStoreManager {
         assertRenderedServicePathDoesNotExist(pathName1);
     }
 
+    @Test
+    public void createRenderedPathsTest() throws Exception {
+        init();
+
+        // The unknown SFP is reported first, as requested, although it fails before the others are created
+        SfpName unknownSfpName = new SfpName("unittest-unknown-sfp");
+        List<PathRequest> pathRequests = new ArrayList<>();
+        pathRequests.add(new PathRequestBuilder().setParentServiceFunctionPath(unknownSfpName).build());
+        pathRequests.add(new PathRequestBuilder().setParentServiceFunctionPath(SFP_NAME).setName("rspBatch").build());
+        CreateRenderedPathsInput input = new CreateRenderedPathsInputBuilder().setPathRequest(pathRequests).build();
+
+        Future<RpcResult<CreateRenderedPathsOutput>> result = sfcProviderRpc.createRenderedPaths(input);
+        assertTrue(result.get().isSuccessful());
+        List<PathResult> pathResults = result.get().getResult().getPathResult();
+        assertEquals(2, pathResults.size());
+        assertEquals(unknownSfpName, pathResults.get(0).getParentServiceFunctionPath());
+        assertFalse(pathResults.get(0).isResult());
+        assertEquals(SFP_NAME, pathResults.get(1).getParentServiceFunctionPath());
+        assertTrue(pathResults.get(1).isResult());
+        assertRenderedServicePathExists(new RspName("rspBatch"));
+    }
+
     private void createRenderedServicePath(RspName pathName) throws Exception {
         CreateRenderedPathInputBuilder inputBuilder = new CreateRenderedPathInputBuilder();
         inputBuilder.setName(pathName.getValue()).setParentServiceFunctionPath(SFP_NAME.getValue());
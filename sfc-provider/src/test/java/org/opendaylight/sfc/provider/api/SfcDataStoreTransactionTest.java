@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.Futures;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadWriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.sfc.provider.AbstractDataStoreManager;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftTypeName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.ServiceFunctionTypes;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.ServiceFunctionType;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.ServiceFunctionTypeBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.ServiceFunctionTypeKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.service.function.type.SftServiceFunctionNameBuilder;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+public class SfcDataStoreTransactionTest extends AbstractDataStoreManager {
+
+    private static final SftTypeName FIREWALL = new SftTypeName("firewall");
+    private static final SftTypeName DPI = new SftTypeName("dpi");
+
+    @Before
+    public void before() {
+        setOdlSfc();
+    }
+
+    private static InstanceIdentifier<ServiceFunctionType> getSftIid(SftTypeName sftTypeName) {
+        return InstanceIdentifier.builder(ServiceFunctionTypes.class)
+            .child(ServiceFunctionType.class, new ServiceFunctionTypeKey(sftTypeName))
+            .build();
+    }
+
+    private static ServiceFunctionType buildSft(SftTypeName sftTypeName, String sfName) {
+        return new ServiceFunctionTypeBuilder().setType(sftTypeName)
+            .setSftServiceFunctionName(Collections.singletonList(
+                    new SftServiceFunctionNameBuilder().setName(new SfName(sfName)).build()))
+            .build();
+    }
+
+    @Test
+    public void commitWritesAllOperations() {
+        assertTrue(SfcDataStoreAPI.writePutTransactionAPI(getSftIid(DPI), buildSft(DPI, "dpi1"),
+                LogicalDatastoreType.CONFIGURATION));
+
+        SfcDataStoreTransaction transaction = new SfcDataStoreTransaction();
+        transaction.put(getSftIid(FIREWALL), buildSft(FIREWALL, "fw1"), LogicalDatastoreType.CONFIGURATION)
+            .delete(getSftIid(DPI), LogicalDatastoreType.CONFIGURATION);
+
+        // The reads of the transaction see its own writes, the others do not
+        assertEquals(buildSft(FIREWALL, "fw1"), transaction.read(getSftIid(FIREWALL),
+                LogicalDatastoreType.CONFIGURATION));
+        assertNull(transaction.read(getSftIid(DPI), LogicalDatastoreType.CONFIGURATION));
+        assertNull(SfcDataStoreAPI.readTransactionAPI(getSftIid(FIREWALL), LogicalDatastoreType.CONFIGURATION));
+
+        assertTrue(transaction.commit());
+        assertEquals(buildSft(FIREWALL, "fw1"),
+                SfcDataStoreAPI.readTransactionAPI(getSftIid(FIREWALL), LogicalDatastoreType.CONFIGURATION));
+        assertNull(SfcDataStoreAPI.readTransactionAPI(getSftIid(DPI), LogicalDatastoreType.CONFIGURATION));
+    }
+
+    @Test
+    public void submitCompletesWithTheTransaction() throws Exception {
+        SfcDataStoreTransaction transaction = new SfcDataStoreTransaction();
+        transaction.merge(getSftIid(FIREWALL), buildSft(FIREWALL, "fw1"), LogicalDatastoreType.CONFIGURATION);
+        assertEquals(buildSft(FIREWALL, "fw1"),
+                transaction.readAsync(getSftIid(FIREWALL), LogicalDatastoreType.CONFIGURATION).get());
+
+        assertTrue(transaction.submit().get());
+        assertEquals(buildSft(FIREWALL, "fw1"),
+                SfcDataStoreAPI.readTransactionAPI(getSftIid(FIREWALL), LogicalDatastoreType.CONFIGURATION));
+    }
+
+    @Test
+    public void asyncApiDoesNotBlock() throws Exception {
+        assertTrue(SfcDataStoreAPI.writePutTransactionAPIAsync(getSftIid(FIREWALL), buildSft(FIREWALL, "fw1"),
+                LogicalDatastoreType.CONFIGURATION).get());
+        assertEquals(buildSft(FIREWALL, "fw1"),
+                SfcDataStoreAPI.readTransactionAPIAsync(getSftIid(FIREWALL), LogicalDatastoreType.CONFIGURATION).get());
+
+        assertTrue(SfcDataStoreAPI.deleteTransactionAPIAsync(getSftIid(FIREWALL), LogicalDatastoreType.CONFIGURATION)
+            .get());
+        assertNull(SfcDataStoreAPI.readTransactionAPIAsync(getSftIid(FIREWALL), LogicalDatastoreType.CONFIGURATION)
+            .get());
+    }
+
+    @Test
+    public void cancelDiscardsTheOperations() {
+        SfcDataStoreTransaction transaction = new SfcDataStoreTransaction();
+        transaction.put(getSftIid(FIREWALL), buildSft(FIREWALL, "fw1"), LogicalDatastoreType.CONFIGURATION);
+        transaction.cancel();
+        assertNull(SfcDataStoreAPI.readTransactionAPI(getSftIid(FIREWALL), LogicalDatastoreType.CONFIGURATION));
+    }
+
+    @Test
+    public void failedCommitReturnsFalse() throws Exception {
+        ReadWriteTransaction readWriteTx = mock(ReadWriteTransaction.class);
+        when(readWriteTx.submit()).thenReturn(
+                Futures.immediateFailedCheckedFuture(new TransactionCommitFailedException("test failure")));
+        DataBroker failingDataBroker = mock(DataBroker.class);
+        when(failingDataBroker.newReadWriteTransaction()).thenReturn(readWriteTx);
+
+        SfcDataStoreTransaction transaction = new SfcDataStoreTransaction(failingDataBroker);
+        transaction.put(getSftIid(FIREWALL), buildSft(FIREWALL, "fw1"), LogicalDatastoreType.CONFIGURATION);
+        assertFalse(transaction.commit());
+        verify(readWriteTx).put(eq(LogicalDatastoreType.CONFIGURATION), eq(getSftIid(FIREWALL)),
+                eq(buildSft(FIREWALL, "fw1")), eq(true));
+
+        // The failure completes the future instead of failing it
+        assertFalse(new SfcDataStoreTransaction(failingDataBroker).submit().get());
+    }
+
+    @Test
+    public void failedReadReturnsNull() throws Exception {
+        ReadWriteTransaction readWriteTx = mock(ReadWriteTransaction.class);
+        when(readWriteTx.read(any(LogicalDatastoreType.class), any(InstanceIdentifier.class))).thenReturn(
+                Futures.immediateFailedCheckedFuture(new ReadFailedException("test failure")));
+        DataBroker failingDataBroker = mock(DataBroker.class);
+        when(failingDataBroker.newReadWriteTransaction()).thenReturn(readWriteTx);
+
+        SfcDataStoreTransaction transaction = new SfcDataStoreTransaction(failingDataBroker);
+        assertNull(transaction.read(getSftIid(FIREWALL), LogicalDatastoreType.CONFIGURATION));
+        assertNull(transaction.readAsync(getSftIid(FIREWALL), LogicalDatastoreType.CONFIGURATION).get());
+        verify(readWriteTx, never()).submit();
+    }
+}
@@ -11,13 +11,20 @@ package org.opendaylight.sfc.provider.api;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.junit.Test;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfpName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftTypeName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathInput;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.CreateRenderedPathInputBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.path.first.hop.info.RenderedServicePathFirstHop;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
@@ -35,6 +42,7 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev14070
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.IpAddress;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.PortNumber;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.CostAware;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.LoadBalance;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.Random;
 import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.RoundRobin;
@@ -47,7 +55,7 @@ public class SfcProviderRenderedPathAPITest extends AbstractSfcRendererServicePa
     @Test
     // test, whether scheduler type create right scheduler instance
     public void testGetServiceFunctionScheduler() throws Exception {
-        SfcServiceFunctionSchedulerAPI rrResult, lbResult, rnResult, spResult, rsResult;
+        SfcServiceFunctionSchedulerAPI rrResult, lbResult, rnResult, spResult, caResult, rsResult;
 
         // TODO remove reflection for "getServiceFunctionScheduler"
         rrResult = Whitebox.invokeMethod(SfcProviderRenderedPathAPI.class, "getServiceFunctionScheduler",
@@ -57,6 +65,8 @@ public class SfcProviderRenderedPathAPITest extends AbstractSfcRendererServicePa
         rnResult = Whitebox.invokeMethod(SfcProviderRenderedPathAPI.class, "getServiceFunctionScheduler", Random.class);
         spResult = Whitebox.invokeMethod(SfcProviderRenderedPathAPI.class, "getServiceFunctionScheduler",
                 ShortestPath.class);
+        caResult = Whitebox.invokeMethod(SfcProviderRenderedPathAPI.class, "getServiceFunctionScheduler",
+                CostAware.class);
         rsResult = Whitebox.invokeMethod(SfcProviderRenderedPathAPI.class, "getServiceFunctionScheduler",
                 ServiceFunctionSchedulerTypeIdentity.class);
 
@@ -64,6 +74,7 @@ public class SfcProviderRenderedPathAPITest extends AbstractSfcRendererServicePa
         assertEquals("Must be equal", lbResult.getClass(), SfcServiceFunctionLoadBalanceSchedulerAPI.class);
         assertEquals("Must be equal", rnResult.getClass(), SfcServiceFunctionRandomSchedulerAPI.class);
         assertEquals("Must be equal", spResult.getClass(), SfcServiceFunctionShortestPathSchedulerAPI.class);
+        assertEquals("Must be equal", caResult.getClass(), SfcServiceFunctionCostAwareSchedulerAPI.class);
         assertEquals("Must be equal", rsResult.getClass(), SfcServiceFunctionRandomSchedulerAPI.class);
     }
 
@@ -356,4 +367,96 @@ public class SfcProviderRenderedPathAPITest extends AbstractSfcRendererServicePa
         assertEquals("Must be equal", testRenderedServicePath.getContextMetadata(), "CMD");
         assertEquals("Must be equal", testRenderedServicePath.getVariableMetadata(), "VMD");
     }
+
+    @Test
+    public void testCreateAndDeleteRenderedServicePathsAndState() {
+        init();
+
+        ServiceFunctionPath serviceFunctionPath = SfcProviderServicePathAPI.readServiceFunctionPath(SFP_NAME);
+        assertNotNull("Must be not null", serviceFunctionPath);
+        SfpName otherSfpName = new SfpName("unittest-sfp-2");
+        ServiceFunctionPath otherServiceFunctionPath = new ServiceFunctionPathBuilder()
+            .setName(otherSfpName)
+            .setServiceChainName(SFC_NAME)
+            .setSymmetric(false)
+            .build();
+
+        Map<ServiceFunctionPath, CreateRenderedPathInput> createRenderedPathInputs = new LinkedHashMap<>();
+        createRenderedPathInputs.put(serviceFunctionPath,
+                new CreateRenderedPathInputBuilder().setName(RSP_NAME.getValue()).build());
+        createRenderedPathInputs.put(otherServiceFunctionPath, new CreateRenderedPathInputBuilder().build());
+
+        Map<SfpName, RenderedServicePath> result =
+                SfcProviderRenderedPathAPI.createRenderedServicePathsAndState(createRenderedPathInputs, null);
+
+        assertEquals("Must be equal", 2, result.size());
+        RenderedServicePath renderedServicePath = result.get(SFP_NAME);
+        RenderedServicePath otherRenderedServicePath = result.get(otherSfpName);
+        assertNotNull("Must be not null", renderedServicePath);
+        assertNotNull("Must be not null", otherRenderedServicePath);
+        assertEquals("Must be equal", RSP_NAME, renderedServicePath.getName());
+
+        // the symmetric path is created along with the path
+        RspName reverseRspName = SfcProviderRenderedPathAPI.generateReversedPathName(RSP_NAME);
+        RenderedServicePath reverseRenderedServicePath =
+                SfcProviderRenderedPathAPI.readRenderedServicePath(reverseRspName);
+        assertNotNull("Must be not null", reverseRenderedServicePath);
+        assertEquals("Must be equal", renderedServicePath.getSymmetricPathId(),
+                reverseRenderedServicePath.getPathId());
+        assertEquals("Must be equal", renderedServicePath.getPathId(),
+                reverseRenderedServicePath.getSymmetricPathId());
+        assertNull("Must be null", otherRenderedServicePath.getSymmetricPathId());
+
+        // check the SFF, SF and SFP oper
+        List<SffServicePath> sffServicePathList =
+                SfcProviderServiceForwarderAPI.readSffState(new SffName(SFF_NAMES.get(1)));
+        assertEquals("Must be equal", 3, sffServicePathList.size());
+        List<SfServicePath> sfServicePathList =
+                SfcProviderServiceFunctionAPI.readServiceFunctionState(new SfName("unittest-fw-1"));
+        assertEquals("Must be equal", 3, sfServicePathList.size());
+        assertEquals("Must be equal", 2, SfcProviderServicePathAPI.readServicePathState(SFP_NAME).size());
+
+        List<RspName> rspNames = new ArrayList<>();
+        rspNames.add(RSP_NAME);
+        rspNames.add(reverseRspName);
+        rspNames.add(otherRenderedServicePath.getName());
+        Map<RspName, Boolean> deleteResult = SfcProviderRenderedPathAPI.deleteRenderedServicePathsAndState(rspNames);
+
+        assertEquals("Must be equal", 3, deleteResult.size());
+        for (RspName rspName : rspNames) {
+            assertTrue("Must be true", deleteResult.get(rspName));
+            assertNull("Must be null", SfcProviderRenderedPathAPI.readRenderedServicePath(rspName));
+        }
+        assertNull("Must be null", SfcProviderServiceForwarderAPI.readSffState(new SffName(SFF_NAMES.get(1))));
+        assertTrue("Must be true", SfcServicePathId.check_suitable_pathid(renderedServicePath.getPathId()));
+        assertTrue("Must be true", SfcServicePathId.check_suitable_pathid(otherRenderedServicePath.getPathId()));
+    }
+
+    @Test
+    public void testDeleteRenderedServicePathsAndStateKeepsSffState() {
+        init();
+
+        ServiceFunctionPath serviceFunctionPath = SfcProviderServicePathAPI.readServiceFunctionPath(SFP_NAME);
+        Map<ServiceFunctionPath, CreateRenderedPathInput> createRenderedPathInputs = new LinkedHashMap<>();
+        createRenderedPathInputs.put(serviceFunctionPath,
+                new CreateRenderedPathInputBuilder().setName(RSP_NAME.getValue()).build());
+        SfcProviderRenderedPathAPI.createRenderedServicePathsAndState(createRenderedPathInputs, null);
+        RspName reverseRspName = SfcProviderRenderedPathAPI.generateReversedPathName(RSP_NAME);
+        assertEquals("Must be equal", 2,
+                SfcProviderServiceForwarderAPI.readSffState(new SffName(SFF_NAMES.get(1))).size());
+
+        // The SFF still carries the reverse path
+        Map<RspName, Boolean> deleteResult =
+                SfcProviderRenderedPathAPI.deleteRenderedServicePathsAndState(Collections.singletonList(RSP_NAME));
+        assertTrue("Must be true", deleteResult.get(RSP_NAME));
+        List<SffServicePath> sffServicePathList =
+                SfcProviderServiceForwarderAPI.readSffState(new SffName(SFF_NAMES.get(1)));
+        assertEquals("Must be equal", 1, sffServicePathList.size());
+        assertEquals("Must be equal", reverseRspName.getValue(), sffServicePathList.get(0).getName().getValue());
+
+        List<RspName> reverseRspNames = Collections.singletonList(reverseRspName);
+        deleteResult = SfcProviderRenderedPathAPI.deleteRenderedServicePathsAndState(reverseRspNames);
+        assertTrue("Must be true", deleteResult.get(reverseRspName));
+        assertNull("Must be null", SfcProviderServiceForwarderAPI.readSffState(new SffName(SFF_NAMES.get(1))));
+    }
 }
@@ -9,6 +9,7 @@
 package org.opendaylight.sfc.provider.api;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -91,4 +92,24 @@ public class SfcProviderServiceTypeAPITest extends AbstractDataStoreManager {
         assertTrue(SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntry(serviceFunction));
         assertNull(SfcDataStoreAPI.readTransactionAPI(sftentryIID, LogicalDatastoreType.CONFIGURATION));
     }
+
+    @Test
+    public void testCreateAndDeleteServiceFunctionTypeEntryAsync() throws Exception {
+        SftTypeName sftType = new SftTypeName("dpi");
+        ServiceFunction sf1 = new ServiceFunctionBuilder().setName(new SfName("SF1"))
+            .setKey(new ServiceFunctionKey(new SfName("SF1"))).setType(sftType).build();
+        ServiceFunction sf2 = new ServiceFunctionBuilder().setName(new SfName("SF2"))
+            .setKey(new ServiceFunctionKey(new SfName("SF2"))).setType(sftType).build();
+
+        assertTrue(SfcProviderServiceTypeAPI.createServiceFunctionTypeEntryAsync(sf1).get());
+        assertTrue(SfcProviderServiceTypeAPI.createServiceFunctionTypeEntryAsync(sf2).get());
+        assertEquals(2, SfcProviderServiceTypeAPI.readServiceFunctionType(sftType).getSftServiceFunctionName().size());
+
+        // the type is kept while it has service functions, and deleted with the last one
+        assertTrue(SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntryAsync(sf1).get());
+        assertNull(SfcProviderServiceTypeAPI.readServiceFunctionTypeEntry(sf1));
+        assertNotNull(SfcProviderServiceTypeAPI.readServiceFunctionTypeEntry(sf2));
+        assertTrue(SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntryAsync(sf2).get());
+        assertNull(SfcProviderServiceTypeAPI.readServiceFunctionType(sftType));
+    }
 }
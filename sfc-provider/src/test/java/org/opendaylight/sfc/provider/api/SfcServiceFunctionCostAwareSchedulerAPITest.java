@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2016 Intel Ltd. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.sfc.provider.AbstractDataStoreManager;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfDataPlaneLocatorName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfcName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfpName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftTypeName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.function.base.SfDataPlaneLocatorBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChain;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.ServiceFunctionChainBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.service.function.chain.SfcServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfc.rev140701.service.function.chain.grouping.service.function.chain.SfcServiceFunctionBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ConnectedSffDictionary;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ConnectedSffDictionaryBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionary;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionaryBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.ServiceFunctionPathBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.service.function.path.ServicePathHop;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfp.rev140701.service.function.paths.service.function.path.ServicePathHopBuilder;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rev141201.service.functions.state.service.function.state.sfc.sf.desc.mon.MonitoringInfoBuilder;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rpt.rev141105.sf.monitoring.info.ResourceUtilizationBuilder;
+
+/*
+ * Topology: SFF1 - SFF2 - SFF3
+ * fw1 and dpi1 are attached to SFF1, fw3 and dpi3 to SFF3
+ */
+public class SfcServiceFunctionCostAwareSchedulerAPITest extends AbstractDataStoreManager {
+
+    private static final SfName FW1 = new SfName("fw1");
+    private static final SfName FW3 = new SfName("fw3");
+    private static final SfName DPI1 = new SfName("dpi1");
+    private static final SfName DPI3 = new SfName("dpi3");
+    private static final SffName SFF1 = new SffName("SFF1");
+    private static final SffName SFF2 = new SffName("SFF2");
+    private static final SffName SFF3 = new SffName("SFF3");
+
+    private ServiceFunctionChain sfChain;
+
+    @Before
+    public void before() {
+        setOdlSfc();
+        SfcServiceFunctionLoadSnapshot.getInstance().clear();
+        SfcServiceFunctionCostAwareSchedulerAPI.setSffCapacities("");
+
+        List<SfcServiceFunction> sfcServiceFunctionList = new ArrayList<>();
+        sfcServiceFunctionList.add(new SfcServiceFunctionBuilder().setName("firewall")
+            .setType(new SftTypeName("firewall"))
+            .build());
+        sfcServiceFunctionList.add(new SfcServiceFunctionBuilder().setName("dpi")
+            .setType(new SftTypeName("dpi"))
+            .build());
+        sfChain = new ServiceFunctionChainBuilder().setName(new SfcName("CostAware-unittest-chain"))
+            .setSfcServiceFunction(sfcServiceFunctionList)
+            .build();
+    }
+
+    private void putServiceFunction(SfName sfName, String sfType, SffName sffName) {
+        ServiceFunction serviceFunction = new ServiceFunctionBuilder().setName(sfName)
+            .setType(new SftTypeName(sfType))
+            .setSfDataPlaneLocator(Collections.singletonList(new SfDataPlaneLocatorBuilder()
+                .setName(new SfDataPlaneLocatorName(sfName.getValue() + "-dpl"))
+                .setServiceFunctionForwarder(sffName)
+                .build()))
+            .build();
+        assertTrue(SfcProviderServiceTypeAPI.createServiceFunctionTypeEntry(serviceFunction));
+        assertTrue(SfcProviderServiceFunctionAPI.putServiceFunction(serviceFunction));
+    }
+
+    private void putServiceFunctionForwarder(SffName sffName, List<SfName> sfNames, List<SffName> sffNames) {
+        List<ServiceFunctionDictionary> sfDictionaryList = new ArrayList<>();
+        for (SfName sfName : sfNames) {
+            sfDictionaryList.add(new ServiceFunctionDictionaryBuilder().setName(sfName).build());
+        }
+        List<ConnectedSffDictionary> sffDictionaryList = new ArrayList<>();
+        for (SffName connectedSffName : sffNames) {
+            sffDictionaryList.add(new ConnectedSffDictionaryBuilder().setName(connectedSffName).build());
+        }
+        assertTrue(SfcProviderServiceForwarderAPI.putServiceFunctionForwarder(new ServiceFunctionForwarderBuilder()
+            .setName(sffName)
+            .setServiceFunctionDictionary(sfDictionaryList)
+            .setConnectedSffDictionary(sffDictionaryList)
+            .build()));
+    }
+
+    private void buildTopology(boolean withDpi1) {
+        putServiceFunction(FW1, "firewall", SFF1);
+        putServiceFunction(FW3, "firewall", SFF3);
+        putServiceFunction(DPI3, "dpi", SFF3);
+        if (withDpi1) {
+            putServiceFunction(DPI1, "dpi", SFF1);
+        }
+        putServiceFunctionForwarder(SFF1, withDpi1 ? Arrays.asList(FW1, DPI1) : Collections.singletonList(FW1),
+                Collections.singletonList(SFF2));
+        putServiceFunctionForwarder(SFF2, Collections.emptyList(), Arrays.asList(SFF1, SFF3));
+        putServiceFunctionForwarder(SFF3, Arrays.asList(FW3, DPI3), Collections.singletonList(SFF2));
+    }
+
+    private static ServiceFunctionPath buildPath(List<ServicePathHop> hops) {
+        return new ServiceFunctionPathBuilder().setName(new SfpName("CostAware-unittest-path"))
+            .setServicePathHop(hops)
+            .build();
+    }
+
+    @Test
+    public void testWholeChain() {
+        buildTopology(false);
+        SfcServiceFunctionCostAwareSchedulerAPI scheduler = new SfcServiceFunctionCostAwareSchedulerAPI();
+
+        // fw1 is one of the firewalls, but only dpi3 is available: fw3 avoids crossing SFF2 twice
+        List<SfName> sfNames = scheduler.scheduleServiceFunctions(sfChain, 255, buildPath(new ArrayList<>()));
+        assertEquals(Arrays.asList(FW3, DPI3), sfNames);
+    }
+
+    @Test
+    public void testLoad() {
+        buildTopology(false);
+        SfcServiceFunctionCostAwareSchedulerAPI scheduler = new SfcServiceFunctionCostAwareSchedulerAPI();
+
+        // A loaded fw3 costs more than the two extra hops of fw1
+        SfcServiceFunctionLoadSnapshot.getInstance().setLoad(FW3, new MonitoringInfoBuilder()
+            .setResourceUtilization(
+                    new ResourceUtilizationBuilder().setCPUUtilization(100L).setMemoryUtilization(100L).build())
+            .build());
+        List<SfName> sfNames = scheduler.scheduleServiceFunctions(sfChain, 255, buildPath(new ArrayList<>()));
+        assertEquals(Arrays.asList(FW1, DPI3), sfNames);
+    }
+
+    @Test
+    public void testSffCapacity() {
+        buildTopology(true);
+        Map<SffName, Integer> sffCapacities = new HashMap<>();
+
+        sffCapacities.put(SFF1, 0);
+        SfcServiceFunctionCostAwareSchedulerAPI scheduler = new SfcServiceFunctionCostAwareSchedulerAPI(sffCapacities);
+        List<SfName> sfNames = scheduler.scheduleServiceFunctions(sfChain, 255, buildPath(new ArrayList<>()));
+        assertEquals(Arrays.asList(FW3, DPI3), sfNames);
+
+        sffCapacities.put(SFF3, 0);
+        sffCapacities.remove(SFF1);
+        sfNames = scheduler.scheduleServiceFunctions(sfChain, 255, buildPath(new ArrayList<>()));
+        assertEquals(Arrays.asList(FW1, DPI1), sfNames);
+
+        // No firewall left
+        sffCapacities.put(SFF1, 0);
+        assertNull(scheduler.scheduleServiceFunctions(sfChain, 255, buildPath(new ArrayList<>())));
+    }
+
+    @Test
+    public void testConfiguredSffCapacity() {
+        buildTopology(true);
+
+        SfcServiceFunctionCostAwareSchedulerAPI.setSffCapacities("SFF1=0, SFF2=10");
+        SfcServiceFunctionCostAwareSchedulerAPI scheduler = new SfcServiceFunctionCostAwareSchedulerAPI();
+        List<SfName> sfNames = scheduler.scheduleServiceFunctions(sfChain, 255, buildPath(new ArrayList<>()));
+        assertEquals(Arrays.asList(FW3, DPI3), sfNames);
+
+        // The schedulers already created keep their capacities
+        SfcServiceFunctionCostAwareSchedulerAPI.setSffCapacities("SFF3=0");
+        assertEquals(Arrays.asList(FW3, DPI3),
+                scheduler.scheduleServiceFunctions(sfChain, 255, buildPath(new ArrayList<>())));
+        sfNames = new SfcServiceFunctionCostAwareSchedulerAPI().scheduleServiceFunctions(sfChain, 255,
+                buildPath(new ArrayList<>()));
+        assertEquals(Arrays.asList(FW1, DPI1), sfNames);
+    }
+
+    @Test
+    public void testInvalidSffCapacity() {
+        buildTopology(true);
+
+        // The invalid capacities are ignored, the valid ones are still used
+        SfcServiceFunctionCostAwareSchedulerAPI.setSffCapacities("SFF1=-1, SFF2, SFF3=0");
+        List<SfName> sfNames = new SfcServiceFunctionCostAwareSchedulerAPI().scheduleServiceFunctions(sfChain, 255,
+                buildPath(new ArrayList<>()));
+        assertEquals(Arrays.asList(FW1, DPI1), sfNames);
+    }
+
+    @Test
+    public void testConsecutiveHopsOfSameType() {
+        buildTopology(false);
+        SfcServiceFunctionCostAwareSchedulerAPI scheduler = new SfcServiceFunctionCostAwareSchedulerAPI();
+        List<SfcServiceFunction> sfcServiceFunctionList = new ArrayList<>();
+        sfcServiceFunctionList.add(new SfcServiceFunctionBuilder().setName("firewall1")
+            .setType(new SftTypeName("firewall"))
+            .build());
+        sfcServiceFunctionList.add(new SfcServiceFunctionBuilder().setName("firewall2")
+            .setType(new SftTypeName("firewall"))
+            .build());
+        ServiceFunctionChain firewallChain = new ServiceFunctionChainBuilder()
+            .setName(new SfcName("CostAware-unittest-firewalls"))
+            .setSfcServiceFunction(sfcServiceFunctionList)
+            .build();
+
+        // The same firewall twice would cost nothing
+        List<SfName> sfNames = scheduler.scheduleServiceFunctions(firewallChain, 255, buildPath(new ArrayList<>()));
+        assertEquals(2, sfNames.size());
+        assertNotEquals(sfNames.get(0), sfNames.get(1));
+    }
+
+    @Test
+    public void testFixedHop() {
+        buildTopology(true);
+        SfcServiceFunctionCostAwareSchedulerAPI scheduler = new SfcServiceFunctionCostAwareSchedulerAPI();
+
+        List<ServicePathHop> hops = new ArrayList<>();
+        hops.add(new ServicePathHopBuilder().setHopNumber((short) 0).setServiceFunctionName(FW1).build());
+        List<SfName> sfNames = scheduler.scheduleServiceFunctions(sfChain, 255, buildPath(hops));
+        assertEquals(Arrays.asList(FW1, DPI1), sfNames);
+    }
+}
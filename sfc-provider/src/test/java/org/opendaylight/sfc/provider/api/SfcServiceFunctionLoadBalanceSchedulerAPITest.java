@@ -10,6 +10,7 @@ package org.opendaylight.sfc.provider.api;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -70,6 +71,7 @@ public class SfcServiceFunctionLoadBalanceSchedulerAPITest extends AbstractDataS
     @Before
     public void before() {
         setOdlSfc();
+        SfcServiceFunctionLoadSnapshot.getInstance().clear();
 
         scheduler = new SfcServiceFunctionLoadBalanceSchedulerAPI();
         int maxTries;
@@ -285,6 +287,25 @@ public class SfcServiceFunctionLoadBalanceSchedulerAPITest extends AbstractDataS
         assertEquals("Must be equal", serviceFunctionNameArrayList.get(2).getValue(), "simple_nat_100");
     }
 
+    @Test
+    public void loadBalance__FollowsServiceFunctionTypeEntries() {
+        List<SfName> serviceFunctionNameArrayList = scheduler.scheduleServiceFunctions(sfChain, 255, sfPath);
+        assertEquals("simple_fw_100", serviceFunctionNameArrayList.get(0).getValue());
+        SftTypeName firewall = new SftTypeName("firewall");
+        assertTrue(SfcServiceFunctionLoadSnapshot.getInstance().isTypeIndexed(firewall, 3));
+
+        // The least loaded firewall is not one anymore
+        assertTrue(SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntry(sfList.get(0)));
+        assertTrue(SfcServiceFunctionLoadSnapshot.getInstance().isTypeIndexed(firewall, 2));
+        serviceFunctionNameArrayList = scheduler.scheduleServiceFunctions(sfChain, 255, sfPath);
+        assertEquals("simple_fw_110", serviceFunctionNameArrayList.get(0).getValue());
+
+        assertTrue(SfcProviderServiceTypeAPI.createServiceFunctionTypeEntry(sfList.get(0)));
+        assertTrue(SfcServiceFunctionLoadSnapshot.getInstance().isTypeIndexed(firewall, 3));
+        serviceFunctionNameArrayList = scheduler.scheduleServiceFunctions(sfChain, 255, sfPath);
+        assertEquals("simple_fw_100", serviceFunctionNameArrayList.get(0).getValue());
+    }
+
     @Test
     public void loadBalance__OverrideSingleHop() {
         Long pathId = 1L;
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2016 Intel Ltd. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftTypeName;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rev141201.service.functions.state.service.function.state.sfc.sf.desc.mon.MonitoringInfo;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rev141201.service.functions.state.service.function.state.sfc.sf.desc.mon.MonitoringInfoBuilder;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.sf.desc.mon.rpt.rev141105.sf.monitoring.info.ResourceUtilizationBuilder;
+
+public class SfcServiceFunctionLoadSnapshotTest {
+
+    private static final SftTypeName FIREWALL = new SftTypeName("firewall");
+    private static final SfName SF1 = new SfName("fw1");
+    private static final SfName SF2 = new SfName("fw2");
+    private static final SfName SF3 = new SfName("fw3");
+
+    private static final Set<SfName> NONE = Collections.emptySet();
+
+    private SfcServiceFunctionLoadSnapshot snapshot;
+
+    @Before
+    public void before() {
+        snapshot = new SfcServiceFunctionLoadSnapshot();
+    }
+
+    @Test
+    public void leastLoaded() {
+        snapshot.setTypeMembers(FIREWALL, Arrays.asList(SF1, SF2, SF3));
+        snapshot.setLoad(SF1, buildMonitoringInfo(50L, 0L));
+        snapshot.setLoad(SF2, buildMonitoringInfo(30L, 0L));
+        snapshot.setLoad(SF3, buildMonitoringInfo(40L, 0L));
+        assertEquals(SF2, snapshot.getLeastLoaded(FIREWALL, NONE));
+
+        // The index of the type follows the load updates
+        snapshot.setLoad(SF2, buildMonitoringInfo(90L, 0L));
+        assertEquals(SF3, snapshot.getLeastLoaded(FIREWALL, NONE));
+
+        // Memory counts as well
+        snapshot.setLoad(SF3, buildMonitoringInfo(40L, 100L));
+        assertEquals(SF1, snapshot.getLeastLoaded(FIREWALL, NONE));
+
+        // Excluded SFs are skipped
+        assertEquals(SF2, snapshot.getLeastLoaded(FIREWALL, Collections.singleton(SF1)));
+        assertNull(snapshot.getLeastLoaded(FIREWALL, new HashSet<>(Arrays.asList(SF1, SF2, SF3))));
+
+        // And the index follows the SFs of the type
+        snapshot.removeTypeMember(FIREWALL, SF1);
+        assertEquals(SF2, snapshot.getLeastLoaded(FIREWALL, NONE));
+        assertTrue(snapshot.isTypeIndexed(FIREWALL, 2));
+        snapshot.setTypeMembers(FIREWALL, Collections.emptyList());
+        assertNull(snapshot.getLeastLoaded(FIREWALL, NONE));
+    }
+
+    @Test
+    public void typesAreIndexedOnce() {
+        // The SFs of a type not indexed yet are not followed
+        snapshot.addTypeMember(FIREWALL, SF1);
+        assertFalse(snapshot.isTypeIndexed(FIREWALL, 1));
+        assertNull(snapshot.getLeastLoaded(FIREWALL, NONE));
+
+        snapshot.setTypeMembers(FIREWALL, Arrays.asList(SF1, SF2));
+        snapshot.setLoad(SF1, buildMonitoringInfo(50L, 0L));
+        snapshot.setLoad(SF2, buildMonitoringInfo(30L, 0L));
+        assertTrue(snapshot.isTypeIndexed(FIREWALL, 2));
+
+        // Then they are
+        snapshot.addTypeMember(FIREWALL, SF3);
+        snapshot.setLoad(SF3, buildMonitoringInfo(10L, 0L));
+        assertTrue(snapshot.isTypeIndexed(FIREWALL, 3));
+        assertEquals(SF3, snapshot.getLeastLoaded(FIREWALL, NONE));
+
+        // Until the type is removed, the known loads are kept
+        snapshot.removeType(FIREWALL);
+        assertFalse(snapshot.isTypeIndexed(FIREWALL, 3));
+        assertNull(snapshot.getLeastLoaded(FIREWALL, NONE));
+        assertTrue(snapshot.containsLoad(SF3));
+    }
+
+    @Test
+    public void unknownLoadIsIdle() {
+        snapshot.setTypeMembers(FIREWALL, Arrays.asList(SF1, SF2));
+        snapshot.setLoad(SF1, buildMonitoringInfo(10L, 10L));
+        assertFalse(snapshot.containsLoad(SF2));
+        assertNull(snapshot.getLoadScore(SF2));
+        assertEquals(SF2, snapshot.getLeastLoaded(FIREWALL, NONE));
+
+        // A SF without monitoring information is still unknown, so that it is read again
+        snapshot.setLoad(SF2, null);
+        assertFalse(snapshot.containsLoad(SF2));
+        assertEquals(SF2, snapshot.getLeastLoaded(FIREWALL, NONE));
+
+        snapshot.updateLoad(SF2, buildMonitoringInfo(80L, 80L));
+        assertTrue(snapshot.containsLoad(SF2));
+        assertEquals(SF1, snapshot.getLeastLoaded(FIREWALL, NONE));
+
+        snapshot.removeLoad(SF2);
+        assertFalse(snapshot.containsLoad(SF2));
+        assertEquals(SF2, snapshot.getLeastLoaded(FIREWALL, NONE));
+
+        // Nor is the load of a SF outside of the indexes kept if unknown
+        snapshot.setLoad(SF3, null);
+        assertFalse(snapshot.containsLoad(SF3));
+    }
+
+    @Test
+    public void removals() {
+        snapshot.setTypeMembers(FIREWALL, Arrays.asList(SF1, SF2, SF3));
+        snapshot.setLoad(SF1, buildMonitoringInfo(50L, 0L));
+        snapshot.setLoad(SF2, buildMonitoringInfo(30L, 0L));
+        snapshot.setLoad(SF3, buildMonitoringInfo(40L, 0L));
+        assertEquals(SF2, snapshot.getLeastLoaded(FIREWALL, NONE));
+
+        // Removing an unknown SF changes nothing
+        snapshot.removeLoad(new SfName("unknown"));
+        snapshot.removeTypeMember(FIREWALL, new SfName("unknown"));
+        assertEquals(SF2, snapshot.getLeastLoaded(FIREWALL, NONE));
+
+        // A removed member is dropped from the index, the others keep their load
+        snapshot.removeTypeMember(FIREWALL, SF2);
+        assertEquals(SF3, snapshot.getLeastLoaded(FIREWALL, NONE));
+        snapshot.setLoad(SF3, buildMonitoringInfo(60L, 0L));
+        assertEquals(SF1, snapshot.getLeastLoaded(FIREWALL, NONE));
+        assertTrue(snapshot.containsLoad(SF2));
+
+        // A SF whose load is removed is idle again
+        snapshot.removeLoad(SF3);
+        assertEquals(SF3, snapshot.getLeastLoaded(FIREWALL, NONE));
+        snapshot.addTypeMember(FIREWALL, SF2);
+        assertEquals(SF3, snapshot.getLeastLoaded(FIREWALL, NONE));
+    }
+
+    @Test
+    public void updatesAreSmoothed() {
+        snapshot.setLoad(SF1, buildMonitoringInfo(10L, 0L));
+        double score = snapshot.getLoadScore(SF1);
+        assertEquals(SfcServiceFunctionLoadSnapshot.CPU_WEIGHT * 10, score, 0.001);
+
+        // A spike only moves the score part of the way
+        snapshot.updateLoad(SF1, buildMonitoringInfo(110L, 0L));
+        double expected = SfcServiceFunctionLoadSnapshot.CPU_WEIGHT
+                * (10 + SfcServiceFunctionLoadSnapshot.EWMA_WEIGHT * 100);
+        assertEquals(expected, snapshot.getLoadScore(SF1), 0.001);
+
+        // Monitoring information without utilization is ignored
+        snapshot.updateLoad(SF1, new MonitoringInfoBuilder().setLiveness(true).build());
+        assertEquals(expected, snapshot.getLoadScore(SF1), 0.001);
+
+        // Setting the load discards the history
+        snapshot.setLoad(SF1, buildMonitoringInfo(110L, 0L));
+        assertEquals(SfcServiceFunctionLoadSnapshot.CPU_WEIGHT * 110, snapshot.getLoadScore(SF1), 0.001);
+        assertTrue(snapshot.containsLoad(SF1));
+    }
+
+    private static MonitoringInfo buildMonitoringInfo(Long cpu, Long memory) {
+        return new MonitoringInfoBuilder()
+            .setResourceUtilization(
+                    new ResourceUtilizationBuilder().setCPUUtilization(cpu).setMemoryUtilization(memory).build())
+            .build();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2016 Intel Ltd. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.AbstractDataStoreManager;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftTypeName;
+import org.opendaylight.yang.gen.v1.urn.intel.params.xml.ns.yang.sfc.sfst.rev150312.service.function.scheduler.state.RoundRobinCounter;
+
+public class SfcServiceFunctionRoundRobinCountersTest extends AbstractDataStoreManager {
+
+    private static final SftTypeName FIREWALL = new SftTypeName("firewall");
+    private static final SftTypeName DPI = new SftTypeName("dpi");
+
+    @Before
+    public void before() {
+        setOdlSfc();
+    }
+
+    @Test
+    public void countersAreRestoredFromCheckpoint() {
+        SfcServiceFunctionRoundRobinCounters counters = new SfcServiceFunctionRoundRobinCounters(4, 0);
+        assertEquals(0, counters.getAndIncrement(FIREWALL));
+        assertEquals(1, counters.getAndIncrement(FIREWALL));
+        assertEquals(0, counters.getAndIncrement(DPI));
+        // The fourth increment writes both counters
+        assertEquals(2, counters.getAndIncrement(FIREWALL));
+
+        // Increments after the checkpoint are lost on restart
+        counters.getAndIncrement(FIREWALL);
+        SfcServiceFunctionRoundRobinCounters restarted = new SfcServiceFunctionRoundRobinCounters(4, 0);
+        assertEquals(3, restarted.getAndIncrement(FIREWALL));
+        assertEquals(1, restarted.getAndIncrement(DPI));
+
+        // Unless written explicitly
+        assertTrue(counters.checkpoint());
+        restarted = new SfcServiceFunctionRoundRobinCounters(4, 0);
+        assertEquals(4, restarted.getAndIncrement(FIREWALL));
+    }
+
+    @Test
+    public void removedCountersStartOver() {
+        SfcServiceFunctionRoundRobinCounters counters = new SfcServiceFunctionRoundRobinCounters(4, 0);
+        counters.getAndIncrement(FIREWALL);
+        counters.getAndIncrement(DPI);
+        assertTrue(counters.checkpoint());
+
+        SfcDataStoreTransaction transaction = new SfcDataStoreTransaction();
+        counters.getAndIncrement(FIREWALL);
+        counters.remove(FIREWALL, transaction);
+        counters.completeRemove(FIREWALL, transaction.commit());
+        assertNull(SfcDataStoreAPI.readTransactionAPI(SfcServiceFunctionRoundRobinCounters.getCounterIid(FIREWALL),
+                LogicalDatastoreType.OPERATIONAL));
+
+        // The removed counter is not written again by the next checkpoint
+        assertTrue(counters.checkpoint());
+        assertNull(SfcDataStoreAPI.readTransactionAPI(SfcServiceFunctionRoundRobinCounters.getCounterIid(FIREWALL),
+                LogicalDatastoreType.OPERATIONAL));
+        assertEquals(0, counters.getAndIncrement(FIREWALL));
+        assertEquals(1, new SfcServiceFunctionRoundRobinCounters(4, 0).getAndIncrement(DPI));
+    }
+
+    @Test
+    public void failedRemoveKeepsCounter() {
+        SfcServiceFunctionRoundRobinCounters counters = new SfcServiceFunctionRoundRobinCounters(4, 0);
+        counters.getAndIncrement(FIREWALL);
+        counters.getAndIncrement(FIREWALL);
+
+        SfcDataStoreTransaction transaction = new SfcDataStoreTransaction();
+        counters.remove(FIREWALL, transaction);
+        // Not written while being removed
+        assertTrue(counters.checkpoint());
+        assertNull(SfcDataStoreAPI.readTransactionAPI(SfcServiceFunctionRoundRobinCounters.getCounterIid(FIREWALL),
+                LogicalDatastoreType.OPERATIONAL));
+
+        transaction.cancel();
+        counters.completeRemove(FIREWALL, false);
+        assertEquals(2, counters.getAndIncrement(FIREWALL));
+        assertTrue(counters.checkpoint());
+        assertEquals(3, new SfcServiceFunctionRoundRobinCounters(4, 0).getAndIncrement(FIREWALL));
+    }
+
+    @Test
+    public void countersAreCheckpointedPeriodically() throws Exception {
+        SfcServiceFunctionRoundRobinCounters counters = new SfcServiceFunctionRoundRobinCounters(100, 50);
+        counters.getAndIncrement(FIREWALL);
+        counters.getAndIncrement(FIREWALL);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        RoundRobinCounter roundRobinCounter;
+        do {
+            Thread.sleep(20);
+            roundRobinCounter = SfcDataStoreAPI.readTransactionAPI(
+                    SfcServiceFunctionRoundRobinCounters.getCounterIid(FIREWALL), LogicalDatastoreType.OPERATIONAL);
+        } while (roundRobinCounter == null && System.currentTimeMillis() < deadline);
+        assertNotNull(roundRobinCounter);
+        assertEquals(2L, roundRobinCounter.getCounter().longValue());
+        counters.close();
+    }
+
+    @Test
+    public void closeWritesCounters() {
+        // Closed before the first periodic checkpoint
+        SfcServiceFunctionRoundRobinCounters counters = new SfcServiceFunctionRoundRobinCounters(100, 60000);
+        counters.getAndIncrement(DPI);
+        counters.close();
+        assertEquals(1, new SfcServiceFunctionRoundRobinCounters(100, 0).getAndIncrement(DPI));
+    }
+
+    @Test
+    public void concurrentIncrements() throws Exception {
+        SfcServiceFunctionRoundRobinCounters counters = new SfcServiceFunctionRoundRobinCounters(100, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        Callable<Void> task = () -> {
+            for (int i = 0; i < 250; i++) {
+                counters.getAndIncrement(FIREWALL);
+            }
+            return null;
+        };
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(task));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // No increment is lost, and the last one was checkpointed
+        assertEquals(1000, counters.getAndIncrement(FIREWALL));
+        assertEquals(1000, new SfcServiceFunctionRoundRobinCounters(100, 0).getAndIncrement(FIREWALL));
+    }
+}
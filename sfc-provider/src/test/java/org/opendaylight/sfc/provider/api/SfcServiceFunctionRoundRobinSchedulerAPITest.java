@@ -9,12 +9,16 @@
 package org.opendaylight.sfc.provider.api;
 
 import static junit.framework.Assert.assertNull;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
@@ -44,7 +48,6 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev1407
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.service.function.type.SftServiceFunctionNameBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sft.rev140701.service.function.types.service.function.type.SftServiceFunctionNameKey;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
-import org.powermock.reflect.Whitebox;
 
 /**
  * This class contains unit tests for SfcServiceFunctionRoundRobinSchedulerAPI
@@ -64,6 +67,7 @@ public class SfcServiceFunctionRoundRobinSchedulerAPITest extends AbstractDataSt
     @Before
     public void before() {
         setOdlSfc();
+        SfcServiceFunctionRoundRobinSchedulerAPI.setSfWeights("");
     }
 
     /*
@@ -91,12 +95,10 @@ public class SfcServiceFunctionRoundRobinSchedulerAPITest extends AbstractDataSt
      * from existing service function types, and service function is found and returned as a string
      */
     @Test
-    public void testServiceFunctionRoundRobinScheduler1() throws IllegalAccessException {
+    public void testServiceFunctionRoundRobinScheduler1() {
 
-        // before test, private static variable mapCountRoundRobin has to be restored to original
-        // state
-        Whitebox.getField(SfcServiceFunctionRoundRobinSchedulerAPI.class, "mapCountRoundRobin").set(HashMap.class,
-                new HashMap<>());
+        // before test, the shared round robin counters have to be restored to original state
+        SfcServiceFunctionRoundRobinCounters.getInstance().clear();
 
         SfcServiceFunctionRoundRobinSchedulerAPI scheduler = new SfcServiceFunctionRoundRobinSchedulerAPI();
 
@@ -131,6 +133,94 @@ public class SfcServiceFunctionRoundRobinSchedulerAPITest extends AbstractDataSt
         assertTrue("Must be true", transactionSuccessful);
     }
 
+    /*
+     * SFs are selected as many times per round as their weight
+     */
+    @Test
+    public void testWeightedRoundRobinScheduler() {
+        writeFirewallType();
+        SfcServiceFunctionRoundRobinCounters counters =
+                new SfcServiceFunctionRoundRobinCounters(SfcServiceFunctionRoundRobinCounters.CHECKPOINT_BATCH, 0);
+        Map<SfName, Integer> sfWeights = new HashMap<>();
+        sfWeights.put(new SfName(SF_NAME_BASE + "Firewall1"), 2);
+        sfWeights.put(new SfName(SF_NAME_BASE + "Firewall3"), 0);
+        SfcServiceFunctionRoundRobinSchedulerAPI scheduler =
+                new SfcServiceFunctionRoundRobinSchedulerAPI(counters, sfWeights);
+
+        SfName firewall1 = new SfName(SF_NAME_BASE + "Firewall1");
+        SfName firewall2 = new SfName(SF_NAME_BASE + "Firewall2");
+        assertEquals("Must be equal", Arrays.asList(firewall1, firewall1, firewall2, firewall1, firewall1, firewall2),
+                scheduleFirewalls(scheduler, 6));
+    }
+
+    /*
+     * The schedulers created by the rendered path API use the configured weights
+     */
+    @Test
+    public void testConfiguredWeights() {
+        writeFirewallType();
+        SfcServiceFunctionRoundRobinCounters.getInstance().clear();
+        String sfWeights = SF_NAME_BASE + "Firewall1=2, " + SF_NAME_BASE + "Firewall3=0";
+        SfcServiceFunctionRoundRobinSchedulerAPI.setSfWeights(sfWeights);
+
+        SfName firewall1 = new SfName(SF_NAME_BASE + "Firewall1");
+        SfName firewall2 = new SfName(SF_NAME_BASE + "Firewall2");
+        assertEquals("Must be equal", Arrays.asList(firewall1, firewall1, firewall2),
+                scheduleFirewalls(new SfcServiceFunctionRoundRobinSchedulerAPI(), 3));
+        SfcServiceFunctionRoundRobinCounters.getInstance().clear();
+    }
+
+    /*
+     * Invalid weights are ignored, the valid ones are still used
+     */
+    @Test
+    public void testInvalidWeights() {
+        writeFirewallType();
+        SfcServiceFunctionRoundRobinCounters.getInstance().clear();
+        String sfWeights = SF_NAME_BASE + "Firewall1, " + SF_NAME_BASE + "Firewall2=-1, "
+                + SF_NAME_BASE + "Firewall3=0";
+        SfcServiceFunctionRoundRobinSchedulerAPI.setSfWeights(sfWeights);
+
+        SfName firewall1 = new SfName(SF_NAME_BASE + "Firewall1");
+        SfName firewall2 = new SfName(SF_NAME_BASE + "Firewall2");
+        assertEquals("Must be equal", Arrays.asList(firewall1, firewall2, firewall1),
+                scheduleFirewalls(new SfcServiceFunctionRoundRobinSchedulerAPI(), 3));
+        SfcServiceFunctionRoundRobinSchedulerAPI.setSfWeights("");
+        SfcServiceFunctionRoundRobinCounters.getInstance().clear();
+    }
+
+    // write the firewall type with three firewalls
+    private void writeFirewallType() {
+        List<SftServiceFunctionName> sftServiceFunctionNames = new ArrayList<>();
+        sftServiceFunctionNames.addAll(createSftServiceFunctionNames("Firewall1"));
+        sftServiceFunctionNames.addAll(createSftServiceFunctionNames("Firewall2"));
+        sftServiceFunctionNames.addAll(createSftServiceFunctionNames("Firewall3"));
+        ServiceFunctionType serviceFunctionType = new ServiceFunctionTypeBuilder()
+            .setSftServiceFunctionName(sftServiceFunctionNames)
+            .setType(new SftTypeName("firewall"))
+            .build();
+        assertTrue("Must be true", SfcDataStoreAPI.writePutTransactionAPI(
+                InstanceIdentifier.builder(ServiceFunctionTypes.class).build(),
+                new ServiceFunctionTypesBuilder().setServiceFunctionType(Collections.singletonList(serviceFunctionType))
+                    .build(),
+                LogicalDatastoreType.CONFIGURATION));
+    }
+
+    // schedule a chain of one firewall the given number of times
+    private List<SfName> scheduleFirewalls(SfcServiceFunctionRoundRobinSchedulerAPI scheduler, int count) {
+        ServiceFunctionChain serviceFunctionChain = new ServiceFunctionChainBuilder().setName(SFC_NAME)
+            .setSfcServiceFunction(Collections.singletonList(new SfcServiceFunctionBuilder().setName(SF_NAME_BASE + 1)
+                .setType(new SftTypeName("firewall"))
+                .build()))
+            .build();
+        List<SfName> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.addAll(scheduler.scheduleServiceFunctions(serviceFunctionChain, 255,
+                    new ServiceFunctionPathBuilder().build()));
+        }
+        return result;
+    }
+
     // create service function chain with three entries
     private ServiceFunctionChain createServiceFunctionChain() {
         ServiceFunctionChainBuilder serviceFunctionChainBuilder = new ServiceFunctionChainBuilder();
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.Futures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.sfc.provider.AbstractDataStoreManager;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.GenerationAlgorithmEnum;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.service.path.id.rev150804.service.path.ids.ServicePathId;
+
+/**
+ * Unit tests for the in-memory path id allocator.
+ */
+public class SfcServicePathIdAllocatorTest extends AbstractDataStoreManager {
+
+    @Before
+    public void before() {
+        setOdlSfc();
+    }
+
+    @Test
+    public void allocatedPathIdsAreReloaded() {
+        SfcServicePathIdAllocator allocator =
+                new SfcServicePathIdAllocator(dataBroker, GenerationAlgorithmEnum.Random);
+        assertTrue(allocator.allocate(0));
+        assertTrue(allocator.allocate(63));
+        assertTrue(allocator.allocate(64));
+        assertTrue(allocator.allocate(SfcServicePathIdAllocator.MAX_PATH_ID));
+        assertTrue(allocator.allocate(100));
+        assertTrue(allocator.free(100));
+        assertTrue(allocator.setGenerationAlgorithm(GenerationAlgorithmEnum.Sequential));
+        allocator.close();
+
+        SfcServicePathIdAllocator reloaded =
+                new SfcServicePathIdAllocator(dataBroker, GenerationAlgorithmEnum.Random);
+        assertTrue(reloaded.isAllocated(0));
+        assertTrue(reloaded.isAllocated(63));
+        assertTrue(reloaded.isAllocated(64));
+        assertTrue(reloaded.isAllocated(SfcServicePathIdAllocator.MAX_PATH_ID));
+        assertTrue(reloaded.isAvailable(100));
+        assertTrue(reloaded.isAvailable(1));
+        assertEquals(GenerationAlgorithmEnum.Sequential, reloaded.getGenerationAlgorithm());
+        reloaded.close();
+    }
+
+    @Test
+    public void pathIdIsAllocatedOnce() throws Exception {
+        final SfcServicePathIdAllocator allocator =
+                new SfcServicePathIdAllocator(dataBroker, GenerationAlgorithmEnum.Random);
+        final int numThreads = 4;
+        final int numPathIds = 1000;
+        ExecutorService executorService = Executors.newFixedThreadPool(numThreads);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            results.add(executorService.submit((Callable<Integer>) () -> {
+                int allocated = 0;
+                for (long pathId = 0; pathId < numPathIds; pathId++) {
+                    if (allocator.allocate(pathId)) {
+                        allocated++;
+                    }
+                }
+                return allocated;
+            }));
+        }
+
+        int allocated = 0;
+        for (Future<Integer> result : results) {
+            allocated += result.get();
+        }
+        executorService.shutdown();
+
+        assertEquals(numPathIds, allocated);
+        assertFalse(allocator.allocate(0));
+        assertFalse(allocator.allocate(-1));
+        assertFalse(allocator.allocate(SfcServicePathIdAllocator.MAX_PATH_ID + 1));
+        allocator.close();
+    }
+
+    @Test
+    public void failedWritesAreRetried() {
+        WriteTransaction failingTx = mock(WriteTransaction.class);
+        when(failingTx.submit()).thenReturn(
+                Futures.immediateFailedCheckedFuture(new TransactionCommitFailedException("test failure")));
+        WriteTransaction writeTx = mock(WriteTransaction.class);
+        when(writeTx.submit()).thenReturn(Futures.immediateCheckedFuture(null));
+        DataBroker failingDataBroker = mock(DataBroker.class);
+        when(failingDataBroker.newWriteOnlyTransaction()).thenReturn(failingTx, writeTx);
+
+        SfcServicePathIdAllocator allocator =
+                new SfcServicePathIdAllocator(failingDataBroker, GenerationAlgorithmEnum.Random);
+        assertTrue(allocator.allocate(5));
+
+        // Whether it is the retry or the close() write, the word is written again
+        allocator.close();
+        verify(failingTx).merge(eq(LogicalDatastoreType.OPERATIONAL), any(), any(ServicePathId.class), eq(true));
+        verify(writeTx).merge(eq(LogicalDatastoreType.OPERATIONAL), any(), any(ServicePathId.class), eq(true));
+        assertTrue(allocator.persist());
+    }
+}
@@ -195,4 +195,18 @@ public class SfcServicePathIdTest extends AbstractSfcRendererServicePathAPITest
         }
     }
 
+    /**
+     * Method: close()
+     */
+    @Test
+    public void testClose() throws Exception {
+        assertTrue(SfcServicePathId.allocate_pathid(1025));
+        SfcServicePathId.close();
+
+        // The allocator loaded again sees the allocation written by close()
+        assertFalse(SfcServicePathId.check_suitable_pathid(1025));
+        assertTrue(SfcServicePathId.free_pathid(1025));
+        SfcServicePathId.close();
+    }
+
 }
@@ -8,6 +8,7 @@
 package org.opendaylight.sfc.provider.listeners;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -15,9 +16,12 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -136,6 +140,36 @@ public class ServiceFunctionListenerTest extends AbstractDataStoreManager {
         assertTrue(SfcProviderServiceTypeAPI.deleteServiceFunctionTypeEntry(serviceFunction));
     }
 
+    /**
+     * Test that the Service Function Type operations of a Service Function
+     * are submitted once the previous ones complete, whatever their outcome
+     */
+    @Test
+    public void testTypeOperationsAreOrderedPerServiceFunction() throws Exception {
+        ServiceFunction serviceFunction = build_service_function();
+        SettableFuture<Boolean> firstOperation = SettableFuture.create();
+        SettableFuture<Boolean> secondOperation = SettableFuture.create();
+        SettableFuture<Boolean> otherOperation = SettableFuture.create();
+        AtomicBoolean secondSubmitted = new AtomicBoolean();
+
+        serviceFunctionListener.submitInOrder(serviceFunction.getName(), () -> firstOperation, "{}",
+                serviceFunction);
+        ListenableFuture<Boolean> second = serviceFunctionListener.submitInOrder(serviceFunction.getName(), () -> {
+            secondSubmitted.set(true);
+            return secondOperation;
+        }, "{}", serviceFunction);
+        // Another Service Function is not delayed
+        assertEquals(otherOperation, serviceFunctionListener.submitInOrder(new SfName("otherSf"),
+            () -> otherOperation, "{}", serviceFunction));
+
+        assertFalse(secondSubmitted.get());
+        firstOperation.setException(new IllegalStateException("test failure"));
+        assertTrue(secondSubmitted.get());
+        assertFalse(second.isDone());
+        secondOperation.set(true);
+        assertTrue(second.get());
+    }
+
     /**
      * Test that removes a Service Function, calls listener explicitly, verify
      * that the Service Function Type was removed and cleans up
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2016 Intel Corporation.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.provider.topology;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ConnectedSffDictionary;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ConnectedSffDictionaryBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionary;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionaryBuilder;
+
+/**
+ * This class contains unit tests for SfcProviderTopology
+ */
+public class SfcProviderTopologyCacheTest {
+
+    private SfcProviderTopology topology;
+
+    @Before
+    public void init() {
+        topology = new SfcProviderTopology();
+    }
+
+    private static ServiceFunctionForwarder buildSff(String sffName, List<String> sfNames, List<String> sffNames) {
+        List<ServiceFunctionDictionary> sfDictionaries = new ArrayList<>();
+        for (String sfName : sfNames) {
+            sfDictionaries.add(new ServiceFunctionDictionaryBuilder().setName(new SfName(sfName)).build());
+        }
+        List<ConnectedSffDictionary> sffDictionaries = new ArrayList<>();
+        for (String connectedSffName : sffNames) {
+            sffDictionaries.add(new ConnectedSffDictionaryBuilder().setName(new SffName(connectedSffName)).build());
+        }
+        return new ServiceFunctionForwarderBuilder().setName(new SffName(sffName))
+            .setServiceFunctionDictionary(sfDictionaries)
+            .setConnectedSffDictionary(sffDictionaries)
+            .build();
+    }
+
+    private static List<String> names(String... names) {
+        List<String> list = new ArrayList<>();
+        for (String name : names) {
+            list.add(name);
+        }
+        return list;
+    }
+
+    /*
+     * sf1 - sff1 - sff2 - sf2, sf3 alone
+     */
+    @Test
+    public void testDistances() {
+        topology.addServiceFunction("sf1");
+        topology.addServiceFunction("sf2");
+        topology.addServiceFunction("sf3");
+        topology.updateServiceFunctionForwarder(buildSff("sff1", names("sf1"), names("sff2")));
+        topology.updateServiceFunctionForwarder(buildSff("sff2", names("sf2"), names("sff1")));
+
+        assertEquals(5, topology.getNodeCount());
+        assertTrue(topology.hasEdge("sff1", "sf1"));
+        assertTrue(topology.hasEdge("sff2", "sff1"));
+        assertEquals(0, topology.getDistance("sf1", "sf1"));
+        assertEquals(3, topology.getDistance("sf1", "sf2"));
+        assertEquals(3, topology.getDistance("sf2", "sf1"));
+        assertEquals(-1, topology.getDistance("sf1", "sf3"));
+        assertEquals(-1, topology.getDistance("sf1", "unknown"));
+    }
+
+    /*
+     * Cached distances must follow the topology changes
+     */
+    @Test
+    public void testUpdates() {
+        topology.addServiceFunction("sf1");
+        topology.addServiceFunction("sf2");
+        topology.updateServiceFunctionForwarder(buildSff("sff1", names("sf1"), names("sff2")));
+        topology.updateServiceFunctionForwarder(buildSff("sff2", names("sf2"), names()));
+        assertEquals(3, topology.getDistance("sf1", "sf2"));
+
+        // sf2 moved to sff1
+        topology.updateServiceFunctionForwarder(buildSff("sff2", names(), names()));
+        assertEquals(-1, topology.getDistance("sf1", "sf2"));
+        topology.updateServiceFunctionForwarder(buildSff("sff1", names("sf1", "sf2"), names("sff2")));
+        assertEquals(2, topology.getDistance("sf1", "sf2"));
+
+        // The edge between sff1 and sff2 is kept while sff1 refers to it
+        topology.removeServiceFunctionForwarder("sff2");
+        assertTrue(topology.hasNode("sff2"));
+        assertTrue(topology.hasEdge("sff1", "sff2"));
+
+        // Nodes referred to by no SFF nor configuration are removed
+        topology.removeServiceFunctionForwarder("sff1");
+        assertFalse(topology.hasNode("sff1"));
+        assertFalse(topology.hasNode("sff2"));
+        assertTrue(topology.hasNode("sf1"));
+        assertEquals(2, topology.getNodeCount());
+        assertEquals(-1, topology.getDistance("sf1", "sf2"));
+
+        topology.removeServiceFunction("sf1");
+        topology.removeServiceFunction("sf2");
+        assertEquals(0, topology.getNodeCount());
+    }
+
+    @Test
+    public void testTracking() {
+        assertFalse(topology.isTracked());
+        topology.setServiceFunctionsTracked(true);
+        topology.setServiceFunctionForwardersTracked(true);
+        assertTrue(topology.isTracked());
+
+        topology.addServiceFunction("sf1");
+        topology.updateServiceFunctionForwarder(buildSff("sff1", names("sf1"), names()));
+        assertEquals(1, topology.getDistance("sf1", "sff1"));
+
+        topology.setServiceFunctionForwardersTracked(false);
+        assertFalse(topology.isTracked());
+        assertFalse(topology.hasNode("sff1"));
+        assertTrue(topology.hasNode("sf1"));
+        topology.setServiceFunctionsTracked(false);
+        assertEquals(0, topology.getNodeCount());
+    }
+
+    /*
+     * Node indexes are reused, and the arrays grow past their initial capacity
+     */
+    @Test
+    public void testManyNodes() {
+        List<String> sfNames = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            sfNames.add("sf" + i);
+            topology.addServiceFunction("sf" + i);
+        }
+        topology.updateServiceFunctionForwarder(buildSff("sff1", sfNames, names()));
+        assertEquals(201, topology.getNodeCount());
+        assertEquals(2, topology.getDistance("sf0", "sf199"));
+
+        for (int i = 0; i < 100; i++) {
+            topology.removeServiceFunction("sf" + i);
+        }
+        topology.updateServiceFunctionForwarder(buildSff("sff1", sfNames.subList(100, 200), names()));
+        assertEquals(101, topology.getNodeCount());
+        topology.addServiceFunction("sf0");
+        assertEquals(-1, topology.getDistance("sf0", "sf199"));
+        assertEquals(2, topology.getDistance("sf100", "sf199"));
+    }
+}
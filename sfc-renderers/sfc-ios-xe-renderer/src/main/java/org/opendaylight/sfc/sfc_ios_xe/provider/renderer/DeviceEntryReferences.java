@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sfc_ios_xe.provider.renderer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of which users (e.g. RSPs) need an entry configured on a device. An entry has to be written when it
+ * gets its first user, and removed when its last user goes away. Users are counted once, however many times they
+ * acquire an entry.
+ * <p>
+ * Devices are identified by a name that outlives their mountpoint (e.g. the SFF name), so that the references
+ * survive a reconnection of the device.
+ *
+ * @param <D> - device identifier
+ * @param <K> - entry identifier
+ * @param <U> - user identifier
+ */
+class DeviceEntryReferences<D, K, U> {
+
+    private final Map<D, Map<K, Set<U>>> references = new HashMap<>();
+
+    /**
+     * Register a user of an entry
+     *
+     * @param device - the device
+     * @param entry - the entry
+     * @param user - the user
+     * @return true if the entry had no user before, i.e. it has to be written to the device
+     */
+    synchronized boolean acquire(D device, K entry, U user) {
+        Set<U> users = references.computeIfAbsent(device, key -> new HashMap<>())
+                .computeIfAbsent(entry, key -> new HashSet<>());
+        boolean first = users.isEmpty();
+        users.add(user);
+        return first;
+    }
+
+    /**
+     * Unregister a user of an entry
+     *
+     * @param device - the device
+     * @param entry - the entry
+     * @param user - the user
+     * @return true if the entry has no user anymore, i.e. it has to be removed from the device
+     */
+    synchronized boolean release(D device, K entry, U user) {
+        Map<K, Set<U>> entries = references.get(device);
+        if (entries == null) {
+            return false;
+        }
+        Set<U> users = entries.get(entry);
+        if (users == null || !users.remove(user)) {
+            return false;
+        }
+        if (!users.isEmpty()) {
+            return false;
+        }
+        entries.remove(entry);
+        if (entries.isEmpty()) {
+            references.remove(device);
+        }
+        return true;
+    }
+
+    /**
+     * Unregister a user from all the entries it uses
+     *
+     * @param user - the user
+     * @return the entries left without any user, per device
+     */
+    synchronized Map<D, List<K>> releaseAll(U user) {
+        return retainAll(user, Collections.emptyMap());
+    }
+
+    /**
+     * Unregister a user from all the entries it uses, except the given ones
+     *
+     * @param user - the user
+     * @param retained - the entries still used by the user, per device
+     * @return the entries left without any user, per device
+     */
+    synchronized Map<D, List<K>> retainAll(U user, Map<D, Set<K>> retained) {
+        Map<D, List<K>> unused = new HashMap<>();
+        Iterator<Map.Entry<D, Map<K, Set<U>>>> deviceIterator = references.entrySet().iterator();
+        while (deviceIterator.hasNext()) {
+            Map.Entry<D, Map<K, Set<U>>> device = deviceIterator.next();
+            Set<K> retainedEntries = retained.getOrDefault(device.getKey(), Collections.emptySet());
+            Iterator<Map.Entry<K, Set<U>>> entryIterator = device.getValue().entrySet().iterator();
+            while (entryIterator.hasNext()) {
+                Map.Entry<K, Set<U>> entry = entryIterator.next();
+                if (retainedEntries.contains(entry.getKey())) {
+                    continue;
+                }
+                if (entry.getValue().remove(user) && entry.getValue().isEmpty()) {
+                    entryIterator.remove();
+                    unused.computeIfAbsent(device.getKey(), key -> new ArrayList<>()).add(entry.getKey());
+                }
+            }
+            if (device.getValue().isEmpty()) {
+                deviceIterator.remove();
+            }
+        }
+        return unused;
+    }
+
+    /**
+     * Get the entries a user is registered to
+     *
+     * @param user - the user
+     * @return the entries used by the user, per device
+     */
+    synchronized Map<D, Set<K>> getEntries(U user) {
+        Map<D, Set<K>> entries = new HashMap<>();
+        references.forEach((device, deviceEntries) -> deviceEntries.forEach((entry, users) -> {
+            if (users.contains(user)) {
+                entries.computeIfAbsent(device, key -> new HashSet<>()).add(entry);
+            }
+        }));
+        return entries;
+    }
+
+    synchronized int getUserCount(D device, K entry) {
+        Map<K, Set<U>> entries = references.get(device);
+        if (entries == null || !entries.containsKey(entry)) {
+            return 0;
+        }
+        return entries.get(entry).size();
+    }
+}
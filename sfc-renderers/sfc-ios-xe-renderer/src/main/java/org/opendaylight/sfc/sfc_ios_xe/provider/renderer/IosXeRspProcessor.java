@@ -8,18 +8,34 @@
 
 package org.opendaylight.sfc.sfc_ios_xe.provider.renderer;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
-import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceForwarderAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
 import org.opendaylight.sfc.sfc_ios_xe.provider.listener.RenderedPathListener;
-import org.opendaylight.sfc.sfc_ios_xe.provider.utils.IosXeDataStoreAPI;
+import org.opendaylight.sfc.sfc_ios_xe.provider.utils.IosXeDeviceTransaction;
 import org.opendaylight.sfc.sfc_ios_xe.provider.utils.RspStatus;
 import org.opendaylight.sfc.sfc_ios_xe.provider.utils.SfcIosXeUtils;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
@@ -42,9 +58,6 @@ import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.serv
 import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.service.path.config.service.chain.path.mode.service.index.services.service.type.choice.TerminateBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import static org.opendaylight.sfc.sfc_ios_xe.provider.utils.IosXeDataStoreAPI.Transaction.DELETE_PATH;
-import static org.opendaylight.sfc.sfc_ios_xe.provider.utils.IosXeDataStoreAPI.Transaction.WRITE_PATH;
-import static org.opendaylight.sfc.sfc_ios_xe.provider.utils.IosXeDataStoreAPI.Transaction.WRITE_REMOTE;
 import static org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.rsp.manager.rev160421.renderer.path.states.renderer.path.state.configured.rendered.paths.ConfiguredRenderedPath.PathStatus.Failure;
 import static org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.rsp.manager.rev160421.renderer.path.states.renderer.path.state.configured.rendered.paths.ConfiguredRenderedPath.PathStatus.InProgress;
 import static org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.rsp.manager.rev160421.renderer.path.states.renderer.path.state.configured.rendered.paths.ConfiguredRenderedPath.PathStatus.Success;
@@ -52,48 +65,121 @@ import static org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.rsp.manager.r
 public class IosXeRspProcessor {
 
     private static final Logger LOG = LoggerFactory.getLogger(IosXeRspProcessor.class);
+    // Maximum number of devices configured at the same time
+    private static final int DEVICE_THREAD_POOL_SIZE = 8;
 
     private final DataBroker dataBroker;
     private final NodeManager nodeManager;
     private final RenderedPathListener rspListener;
+    private final ListeningExecutorService deviceExecutor;
+    // Last transaction dispatched to every device, following ones wait for it to complete
+    private final Map<DataBroker, ListenableFuture<Boolean>> deviceQueues = new HashMap<>();
+    // RSPs using every remote forwarder entry of the SFFs, the entry is written by the first one and removed with
+    // the last one
+    private final DeviceEntryReferences<SffName, SffName, RspName> remoteForwarders = new DeviceEntryReferences<>();
 
     public IosXeRspProcessor(DataBroker dataBroker, NodeManager nodeManager) {
         this.dataBroker = Preconditions.checkNotNull(dataBroker);
         this.nodeManager = Preconditions.checkNotNull(nodeManager);
+        this.deviceExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(DEVICE_THREAD_POOL_SIZE,
+                new ThreadFactoryBuilder().setNameFormat("SfcIosXeRsp-%d").setDaemon(true).build()));
         // Register RSP listener
         rspListener = new RenderedPathListener(dataBroker, this);
     }
 
-    public void updateRsp(RenderedServicePath renderedServicePath) {
+    /**
+     * Render a RSP. The configuration of every device is written with a single transaction, the devices being
+     * configured in parallel. The RSP status is written once all the devices have finished.
+     *
+     * @param renderedServicePath - the RSP
+     * @return a future completing with true if all the devices have been configured
+     */
+    public ListenableFuture<Boolean> updateRsp(RenderedServicePath renderedServicePath) {
+        Preconditions.checkNotNull(renderedServicePath);
         // Set status
         RspStatus status = new RspStatus(dataBroker, renderedServicePath.getName());
         status.writeStatus(InProgress);
 
-        Preconditions.checkNotNull(renderedServicePath);
+        final RspName rspName = renderedServicePath.getName();
+        Map<SffName, Set<SffName>> heldRemoteForwarders = remoteForwarders.getEntries(rspName);
+        Map<SffName, IosXeDeviceTransaction> deviceTransactions = new LinkedHashMap<>();
+        Map<SffName, Set<SffName>> usedRemoteForwarders = new HashMap<>();
+        Map<SffName, List<SffName>> writtenRemoteForwarders = new HashMap<>();
+        if (!buildDeviceTransactions(renderedServicePath, deviceTransactions, usedRemoteForwarders,
+                writtenRemoteForwarders)) {
+            // Nothing has been written for this attempt, release the references it acquired. The configuration of
+            // the previous version of the RSP is left on the devices
+            usedRemoteForwarders.forEach((sffName, used) -> {
+                Set<SffName> held = heldRemoteForwarders.getOrDefault(sffName, Collections.emptySet());
+                used.stream()
+                        .filter(remoteSffName -> !held.contains(remoteSffName))
+                        .forEach(remoteSffName -> remoteForwarders.release(sffName, remoteSffName, rspName));
+            });
+            status.writeStatus(Failure);
+            return Futures.immediateFuture(false);
+        }
+
+        // Remove the remote forwarders of the SFF pairs the updated RSP no longer crosses, after the paths
+        deleteRemoteForwarders(remoteForwarders.retainAll(rspName, usedRemoteForwarders), deviceTransactions);
+        // The remote forwarders which could not be written are left to the next RSP needing them
+        ListenableFuture<Boolean> result = dispatchAll(deviceTransactions, sffName ->
+                releaseRemoteForwarders(sffName, writtenRemoteForwarders.get(sffName), rspName));
+        Futures.addCallback(result, new FutureCallback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean success) {
+                if (success) {
+                    LOG.info("Rendered service path {} successfully processed on {} devices",
+                            renderedServicePath.getName().getValue(), deviceTransactions.size());
+                    status.writeStatus(Success);
+                } else {
+                    LOG.error("Rendered service path {} could not be configured on all devices",
+                            renderedServicePath.getName().getValue());
+                    status.writeStatus(Failure);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                LOG.error("Rendered service path {} failed", renderedServicePath.getName().getValue(), throwable);
+                status.writeStatus(Failure);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Resolve the service path entries of every SFF of a RSP, without writing anything.
+     *
+     * @param renderedServicePath - the RSP
+     * @param deviceTransactions - filled with the changes for every SFF, in hop order
+     * @param usedRemoteForwarders - filled with the remote forwarders used by this RSP, per SFF
+     * @param writtenRemoteForwarders - filled with the remote forwarders first used by this RSP, which are written
+     *                                with its transactions, per SFF
+     * @return false if the RSP could not be resolved
+     */
+    private boolean buildDeviceTransactions(RenderedServicePath renderedServicePath,
+                                            Map<SffName, IosXeDeviceTransaction> deviceTransactions,
+                                            Map<SffName, Set<SffName>> usedRemoteForwarders,
+                                            Map<SffName, List<SffName>> writtenRemoteForwarders) {
         Long pathId = renderedServicePath.getPathId();
         Short serviceIndex = renderedServicePath.getStartingIndex();
-        DataBroker previousMountPoint;
-        DataBroker currentMountpoint;
         SffName previousSffName;
         SffName currentSffName;
         if (renderedServicePath.getRenderedServicePathHop() == null ||
                 renderedServicePath.getRenderedServicePathHop().isEmpty()) {
             LOG.warn("Rendered path {} does not contain any hop", renderedServicePath.getName().getValue());
-            status.writeStatus(Failure);
-            return;
+            return false;
         }
         Iterator<RenderedServicePathHop> rspHopIterator = renderedServicePath.getRenderedServicePathHop()
                 .iterator();
         // Proceed first hop in Rsp. Service Type choice for first hop is always Service Function
         RenderedServicePathHop hop = rspHopIterator.next();
         currentSffName = hop.getServiceFunctionForwarder();
-        currentMountpoint = getSffMountpoint(currentSffName);
-        if (currentMountpoint == null) {
+        IosXeDeviceTransaction currentTransaction = getDeviceTransaction(currentSffName, deviceTransactions);
+        if (currentTransaction == null) {
             LOG.error("Resolving of RSP {} failed, mountpoint for SFF {} is null", renderedServicePath.getName()
                     .getValue(), currentSffName.getValue());
-            deleteRsp(renderedServicePath);
-            status.writeStatus(Failure);
-            return;
+            return false;
         }
         // New list of services has to be created every time new mountpoint is created
         List<Services> services = new ArrayList<>();
@@ -101,7 +187,7 @@ public class IosXeRspProcessor {
         ServiceFunction serviceFunction = SfcProviderServiceFunctionAPI.readServiceFunction(sfName);
         if (serviceFunction == null) {
             LOG.error("Service function {} not present in datastore", sfName.getValue());
-            return;
+            return false;
         }
         ServiceTypeChoice serviceTypeChoice = buildServiceFunctionChoice(serviceFunction);
         Services serviceEntry = createServicesEntry(serviceIndex, serviceTypeChoice);
@@ -118,49 +204,47 @@ public class IosXeRspProcessor {
                 serviceFunction = SfcProviderServiceFunctionAPI.readServiceFunction(sfName);
                 if (serviceFunction == null) {
                     LOG.error("Service function {} not present in datastore", sfName.getValue());
-                    return;
+                    return false;
                 }
                 serviceTypeChoice = buildServiceFunctionChoice(serviceFunction);
                 serviceEntry = createServicesEntry(serviceIndex, serviceTypeChoice);
                 services.add(serviceEntry);
                 serviceIndex--;
             } else {
-                // Next hop SF is on different node. Store previous SFF and its mountpoint
-                previousMountPoint = currentMountpoint;
-                currentSffName = hop.getServiceFunctionForwarder();
-                currentMountpoint = getSffMountpoint(currentSffName);
-                if (currentMountpoint == null) {
+                // Next hop SF is on different node. Store previous SFF transaction
+                IosXeDeviceTransaction previousTransaction = currentTransaction;
+                currentTransaction = getDeviceTransaction(currentSffName, deviceTransactions);
+                if (currentTransaction == null) {
                     LOG.error("Resolving of RSP {} failed, mountpoint for SFF {} is null", renderedServicePath.getName()
                             .getValue(), currentSffName.getValue());
-                    deleteRsp(renderedServicePath);
-                    status.writeStatus(Failure);
-                    return;
+                    return false;
                 }
                 // Write current SFF to previous SFF node as remote
                 ServiceFfName currentRemoteForwarder = SfcIosXeUtils.createRemoteForwarder(currentSffName);
                 if (currentRemoteForwarder == null) {
                     LOG.error("SFF {} ip address is null", currentSffName.getValue());
-                    deleteRsp(renderedServicePath);
-                    status.writeStatus(Failure);
-                    return;
+                    return false;
+                }
+                // Only written if no other RSP did it before
+                if (remoteForwarders.acquire(previousSffName, currentSffName, renderedServicePath.getName())) {
+                    previousTransaction.writeRemote(currentRemoteForwarder);
+                    writtenRemoteForwarders.computeIfAbsent(previousSffName, key -> new ArrayList<>())
+                            .add(currentSffName);
                 }
-                new IosXeDataStoreAPI(previousMountPoint, currentRemoteForwarder, WRITE_REMOTE,
-                        LogicalDatastoreType.CONFIGURATION).call();
+                usedRemoteForwarders.computeIfAbsent(previousSffName, key -> new HashSet<>()).add(currentSffName);
                 // Create last service entry to previous node which sends traffic to current node
                 serviceTypeChoice = buildServiceFunctionForwarderChoice(currentSffName.getValue());
                 serviceEntry = createServicesEntry(serviceIndex, serviceTypeChoice);
                 services.add(serviceEntry);
-                // List of services completed for last mountpoint, create service path entries and write it
-                ServicePath servicePath = createServicePath(pathId, services);
-                new IosXeDataStoreAPI(previousMountPoint, servicePath, WRITE_PATH,
-                        LogicalDatastoreType.CONFIGURATION).call();
+                // List of services completed for last mountpoint, create service path entries
+                previousTransaction.writePath(createServicePath(pathId, services));
                 // Start with new services list
                 services = new ArrayList<>();
                 sfName = hop.getServiceFunctionName();
                 serviceFunction = SfcProviderServiceFunctionAPI.readServiceFunction(sfName);
                 if (serviceFunction == null) {
                     LOG.error("Service function {} not present in datastore", sfName.getValue());
-                    return;
+                    return false;
                 }
                 serviceTypeChoice = buildServiceFunctionChoice(serviceFunction);
                 serviceEntry = createServicesEntry(serviceIndex, serviceTypeChoice);
@@ -173,31 +257,161 @@ public class IosXeRspProcessor {
         serviceTypeChoice = buildTerminateChoice();
         serviceEntry = createServicesEntry(serviceIndex, serviceTypeChoice);
         services.add(serviceEntry);
-        // List of services completed for last mountpoint, create last service path entries and write it
-        ServicePath servicePath = createServicePath(pathId, services);
-        new IosXeDataStoreAPI(currentMountpoint, servicePath, WRITE_PATH, LogicalDatastoreType.CONFIGURATION).call();
-        LOG.info("Rendered service path {} successfully processed", renderedServicePath.getName().getValue());
-        status.writeStatus(Success);
+        // List of services completed for last mountpoint, create last service path entries
+        currentTransaction.writePath(createServicePath(pathId, services));
+        return true;
     }
 
-    public void deleteRsp(RenderedServicePath renderedServicePath) {
-        boolean success = true;
+    /**
+     * Remove a RSP. The service path is removed once from every SFF of the RSP, along with the remote forwarders no
+     * other RSP uses, the devices being configured in parallel.
+     *
+     * @param renderedServicePath - the RSP
+     * @return a future completing with true if the service path has been removed from all the devices
+     */
+    public ListenableFuture<Boolean> deleteRsp(RenderedServicePath renderedServicePath) {
         long pathId = renderedServicePath.getPathId();
+        if (renderedServicePath.getRenderedServicePathHop() == null) {
+            return Futures.immediateFuture(true);
+        }
         ServicePathKey servicePathKey = new ServicePathKey(pathId);
+        boolean resolved = true;
+        // Several hops can share the same SFF, remove the path only once from each of them
+        Map<SffName, IosXeDeviceTransaction> deviceTransactions = new LinkedHashMap<>();
+        Set<SffName> visitedSffs = new HashSet<>();
         for (RenderedServicePathHop renderedServicePathHop : renderedServicePath.getRenderedServicePathHop()) {
             SffName sffName = renderedServicePathHop.getServiceFunctionForwarder();
-            DataBroker sffDataBroker = getSffMountpoint(sffName);
-            boolean transaction = (boolean) new IosXeDataStoreAPI(sffDataBroker, servicePathKey, DELETE_PATH,
-                    LogicalDatastoreType.CONFIGURATION).call();
-            if (!transaction) {
-                success = false;
+            if (!visitedSffs.add(sffName)) {
+                continue;
+            }
+            IosXeDeviceTransaction transaction = getDeviceTransaction(sffName, deviceTransactions);
+            if (transaction == null) {
+                LOG.warn("Service path {} cannot be removed from SFF {}, mountpoint is null", pathId,
+                        sffName.getValue());
+                resolved = false;
+                continue;
+            }
+            transaction.deletePath(servicePathKey);
+        }
+
+        // Remote forwarders are removed after the path referencing them
+        deleteRemoteForwarders(remoteForwarders.releaseAll(renderedServicePath.getName()), deviceTransactions);
+
+        final boolean allResolved = resolved;
+        ListenableFuture<Boolean> result = Futures.transform(dispatchAll(deviceTransactions, sffName -> { }),
+                (Function<Boolean, Boolean>) success -> success && allResolved);
+        Futures.addCallback(result, new FutureCallback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean success) {
+                if (success) {
+                    LOG.info("Service path {} removed", pathId);
+                } else {
+                    LOG.error("Failed to remove service path {}", pathId);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                LOG.error("Failed to remove service path {}", pathId, throwable);
             }
+        });
+        return result;
+    }
+
+    private IosXeDeviceTransaction getDeviceTransaction(SffName sffName,
+                                                        Map<SffName, IosXeDeviceTransaction> deviceTransactions) {
+        IosXeDeviceTransaction transaction = deviceTransactions.get(sffName);
+        if (transaction == null) {
+            DataBroker mountpoint = getSffMountpoint(sffName);
+            if (mountpoint == null) {
+                return null;
+            }
+            transaction = new IosXeDeviceTransaction(mountpoint, sffName.getValue());
+            deviceTransactions.put(sffName, transaction);
         }
-        if (success) {
-            LOG.info("Service path {} removed", pathId);
+        return transaction;
+    }
+
+    private void releaseRemoteForwarders(SffName sffName, List<SffName> acquiredRemoteForwarders, RspName rspName) {
+        if (acquiredRemoteForwarders != null) {
+            acquiredRemoteForwarders.forEach(remoteSffName -> remoteForwarders.release(sffName, remoteSffName,
+                    rspName));
+        }
+    }
+
+    /**
+     * Add the removal of unused remote forwarders to the transactions of their SFFs, after the changes already there
+     *
+     * @param unusedRemoteForwarders - the remote forwarders to remove, per SFF
+     * @param deviceTransactions - the transactions of the SFFs, completed with the SFFs missing from it
+     */
+    private void deleteRemoteForwarders(Map<SffName, List<SffName>> unusedRemoteForwarders,
+                                        Map<SffName, IosXeDeviceTransaction> deviceTransactions) {
+        unusedRemoteForwarders.forEach((sffName, unused) -> {
+            IosXeDeviceTransaction transaction = getDeviceTransaction(sffName, deviceTransactions);
+            if (transaction == null) {
+                LOG.debug("Remote forwarders {} left on unreachable SFF {}", unused, sffName.getValue());
+                return;
+            }
+            unused.forEach(transaction::deleteRemote);
+        });
+    }
+
+    /**
+     * Write the transactions of several devices in parallel
+     *
+     * @param transactions - one transaction per device, per SFF
+     * @param onDeviceFailure - called with the SFF of every device refusing its transaction
+     * @return a future completing with true once all devices have accepted their transaction
+     */
+    private ListenableFuture<Boolean> dispatchAll(Map<SffName, IosXeDeviceTransaction> transactions,
+                                                  Consumer<SffName> onDeviceFailure) {
+        List<ListenableFuture<Boolean>> results = new ArrayList<>();
+        transactions.forEach((sffName, transaction) -> {
+            if (transaction.isEmpty()) {
+                return;
+            }
+            ListenableFuture<Boolean> result = dispatch(transaction);
+            Futures.addCallback(result, new FutureCallback<Boolean>() {
+                @Override
+                public void onSuccess(Boolean success) {
+                    if (!success) {
+                        onDeviceFailure.accept(sffName);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable throwable) {
+                    onDeviceFailure.accept(sffName);
+                }
+            });
+            results.add(result);
+        });
+        return Futures.transform(Futures.successfulAsList(results),
+                (Function<List<Boolean>, Boolean>) list -> list.stream().allMatch(Boolean.TRUE::equals));
+    }
+
+    /**
+     * Write a device transaction once the previous ones to the same device are done, so that the changes of
+     * consecutive RSP updates are applied in order
+     */
+    private synchronized ListenableFuture<Boolean> dispatch(IosXeDeviceTransaction transaction) {
+        final DataBroker mountpoint = transaction.getMountpoint();
+        ListenableFuture<Boolean> previous = deviceQueues.get(mountpoint);
+        final ListenableFuture<Boolean> next;
+        if (previous == null) {
+            next = deviceExecutor.submit(transaction);
         } else {
-            LOG.error("Failed to remove service path {}", pathId);
+            next = Futures.transform(previous,
+                    (AsyncFunction<Boolean, Boolean>) result -> deviceExecutor.submit(transaction));
         }
+        deviceQueues.put(mountpoint, next);
+        next.addListener(() -> {
+            synchronized (IosXeRspProcessor.this) {
+                deviceQueues.remove(mountpoint, next);
+            }
+        }, MoreExecutors.directExecutor());
+        return next;
     }
 
     private ServiceTypeChoice buildServiceFunctionForwarderChoice(String sffName) {
@@ -260,5 +474,6 @@ public class IosXeRspProcessor {
 
     public void unregisterRspListener() {
         rspListener.getRegistrationObject().close();
+        deviceExecutor.shutdown();
     }
 }
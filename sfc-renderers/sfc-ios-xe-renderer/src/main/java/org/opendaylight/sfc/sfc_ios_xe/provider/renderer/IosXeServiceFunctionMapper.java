@@ -12,6 +12,8 @@ import static org.opendaylight.sfc.sfc_ios_xe.provider.utils.IosXeDataStoreAPI.T
 import static org.opendaylight.sfc.sfc_ios_xe.provider.utils.IosXeDataStoreAPI.Transaction.WRITE_FUNCTION;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.sfc.sfc_ios_xe.provider.listener.ServiceFunctionListener;
@@ -29,7 +31,6 @@ import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.Serv
 import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServiceFunctionKey;
 import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.service.function.ConfigServiceChainSfModeBuilder;
 import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.service.function.config.service.chain.sf.mode.IpBuilder;
-import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +40,8 @@ public class IosXeServiceFunctionMapper {
 
     private final NodeManager nodeManager;
     private final ServiceFunctionListener sfListener;
+    // Service function entries written to the nodes, an entry is only written again if it changes
+    private final Map<SfName, WrittenFunction> writtenFunctions = new ConcurrentHashMap<>();
 
     public IosXeServiceFunctionMapper(DataBroker dataBroker, NodeManager nodeManager) {
         this.nodeManager = nodeManager;
@@ -54,43 +57,58 @@ public class IosXeServiceFunctionMapper {
                         function.getName().getValue());
                 continue;
             }
-            // Find appropriate node for SFF
-            for (Node netconfNode : nodeManager.getConnectedNodes().values()) {
-                IpAddress netconfNodeIp = nodeManager.getNetconfNodeIp(netconfNode);
-                if (netconfNodeIp.equals(forwarderMgmtIp)) {
-                    // Find the right mountpoint
-                    DataBroker mountPoint = nodeManager.getActiveMountPoints()
-                            .get(netconfNode.getNodeId());
-                    if (mountPoint != null && !delete) {
-                        org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServiceFunction serviceFunction =
-                                createNetconfServiceFunction(function);
-                        if (serviceFunction != null) {
-                            IosXeDataStoreAPI writeServiceFunction = new IosXeDataStoreAPI(mountPoint, serviceFunction,
-                                    WRITE_FUNCTION, LogicalDatastoreType.CONFIGURATION);
-                            Object result = writeServiceFunction.call();
-                            if (result != null && result == Boolean.TRUE) {
-                                LOG.info("Service function {} created on node {}", serviceFunction.getName(),
-                                        netconfNode.getNodeId().getValue());
-                            }
-                        }
-                    }
-                    if (mountPoint != null && delete) {
-                        org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServiceFunction serviceFunction =
-                                createNetconfServiceFunction(function);
-                        if (serviceFunction != null) {
-                            IosXeDataStoreAPI writeServiceFunction = new IosXeDataStoreAPI(mountPoint, serviceFunction.getKey(),
-                                    DELETE_FUNCTION, LogicalDatastoreType.CONFIGURATION);
-                            Object result = writeServiceFunction.call();
-                            if (result != null && result == Boolean.TRUE) {
-                                LOG.info("Service function {} removed", serviceFunction.getName());
-                            }
-                        }
-                    }
+            // Find the mountpoint of the node with the same management IP
+            DataBroker mountPoint = nodeManager.getMountpointFromIpAddress(forwarderMgmtIp);
+            if (mountPoint == null) {
+                LOG.debug("No node found with management IP {} for service function {}", forwarderMgmtIp,
+                        function.getName().getValue());
+                if (delete) {
+                    writtenFunctions.remove(function.getName());
+                }
+                continue;
+            }
+            org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServiceFunction serviceFunction =
+                    createNetconfServiceFunction(function);
+            if (serviceFunction == null) {
+                continue;
+            }
+            if (!delete) {
+                writeServiceFunction(function.getName(), mountPoint, serviceFunction);
+            } else {
+                writtenFunctions.remove(function.getName());
+                IosXeDataStoreAPI writeServiceFunction = new IosXeDataStoreAPI(mountPoint, serviceFunction.getKey(),
+                        DELETE_FUNCTION, LogicalDatastoreType.CONFIGURATION);
+                Object result = writeServiceFunction.call();
+                if (result != null && result == Boolean.TRUE) {
+                    LOG.info("Service function {} removed", serviceFunction.getName());
                 }
             }
         }
     }
 
+    private void writeServiceFunction(SfName sfName, DataBroker mountPoint,
+                                      org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServiceFunction serviceFunction) {
+        WrittenFunction previous = writtenFunctions.get(sfName);
+        if (previous != null && previous.mountPoint == mountPoint && previous.entry.equals(serviceFunction)) {
+            LOG.debug("Service function {} already configured, skipping", serviceFunction.getName());
+            return;
+        }
+        if (previous != null && previous.mountPoint != mountPoint) {
+            // Service function moved to another node, or the node reconnected
+            new IosXeDataStoreAPI(previous.mountPoint, previous.entry.getKey(), DELETE_FUNCTION,
+                    LogicalDatastoreType.CONFIGURATION).call();
+        }
+        IosXeDataStoreAPI writeServiceFunction = new IosXeDataStoreAPI(mountPoint, serviceFunction,
+                WRITE_FUNCTION, LogicalDatastoreType.CONFIGURATION);
+        Object result = writeServiceFunction.call();
+        if (result != null && result == Boolean.TRUE) {
+            writtenFunctions.put(sfName, new WrittenFunction(mountPoint, serviceFunction));
+            LOG.info("Service function {} created", serviceFunction.getName());
+        } else {
+            writtenFunctions.remove(sfName);
+        }
+    }
+
     private org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServiceFunction createNetconfServiceFunction(
             ServiceFunction function) {
         SfName sfName = function.getName();
@@ -129,4 +147,15 @@ public class IosXeServiceFunctionMapper {
     public void unregisterSfListener() {
         sfListener.getRegistrationObject().close();
     }
+
+    private static final class WrittenFunction {
+        private final DataBroker mountPoint;
+        private final org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServiceFunction entry;
+
+        WrittenFunction(DataBroker mountPoint,
+                        org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServiceFunction entry) {
+            this.mountPoint = mountPoint;
+            this.entry = entry;
+        }
+    }
 }
@@ -15,6 +15,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.MountPoint;
 import org.opendaylight.controller.md.sal.binding.api.MountPointService;
@@ -50,6 +51,8 @@ public class NodeManager implements BindingAwareProvider {
     // Data
     private final Map<NodeId, Node> connectedNodes = new HashMap<>();
     private final Map<NodeId, DataBroker> activeMountPoints = new HashMap<>();
+    // Management IP of the registered nodes, renderers look their mountpoint up for every SF, SFF and RSP
+    private final Map<IpAddress, NodeId> nodeIdsByIp = new ConcurrentHashMap<>();
 
     public NodeManager(DataBroker dataBroker, BindingAwareBroker bindingAwareBroker) {
         // Register provider
@@ -75,6 +78,12 @@ public class NodeManager implements BindingAwareProvider {
             if (dataBroker != null) {
                 LOG.info("Node {} registered by SFC", node.getNodeId().getValue());
                 activeMountPoints.put(netconfNodeId, dataBroker);
+                // The node may have been registered with another address before
+                nodeIdsByIp.values().remove(netconfNodeId);
+                IpAddress netconfNodeIp = getNetconfNodeIpOrNull(netconfNode);
+                if (netconfNodeIp != null) {
+                    nodeIdsByIp.put(netconfNodeIp, netconfNodeId);
+                }
             } else {
                 LOG.debug("Cannot obtain data broker for netconf node {}", netconfNodeId.getValue());
                 connectedNodes.remove(netconfNodeId);
@@ -91,6 +100,7 @@ public class NodeManager implements BindingAwareProvider {
             case Connected: {
                 connectedNodes.remove(netconfNodeId);
                 activeMountPoints.remove(netconfNodeId);
+                nodeIdsByIp.values().remove(netconfNodeId);
                 LOG.info("Netconf node {} removed", netconfNodeId.getValue());
             }
         }
@@ -145,12 +155,8 @@ public class NodeManager implements BindingAwareProvider {
     }
 
     DataBroker getMountpointFromIpAddress(IpAddress ipAddress) {
-        for (Node node : connectedNodes.values()) {
-            if (ipAddress.equals(getNetconfNodeIp(node))) {
-                return activeMountPoints.get(node.getNodeId());
-            }
-        }
-        return null;
+        NodeId nodeId = nodeIdsByIp.get(ipAddress);
+        return nodeId == null ? null : activeMountPoints.get(nodeId);
     }
 
     IpAddress getNetconfNodeIp(Node node) {
@@ -159,6 +165,10 @@ public class NodeManager implements BindingAwareProvider {
         return netconfNode.getHost().getIpAddress();
     }
 
+    private IpAddress getNetconfNodeIpOrNull(NetconfNode netconfNode) {
+        return netconfNode.getHost() == null ? null : netconfNode.getHost().getIpAddress();
+    }
+
     Map<NodeId, Node> getConnectedNodes() {
         return connectedNodes;
     }
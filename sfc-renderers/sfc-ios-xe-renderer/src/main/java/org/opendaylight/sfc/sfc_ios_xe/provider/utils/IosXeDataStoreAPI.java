@@ -35,7 +35,7 @@ import org.slf4j.LoggerFactory;
 
 public class IosXeDataStoreAPI implements Callable {
 
-    private final Logger LOG = LoggerFactory.getLogger(IosXeDataStoreAPI.class);
+    private static final Logger LOG = LoggerFactory.getLogger(IosXeDataStoreAPI.class);
 
     private final DataBroker mountpoint;
     private final Object data;
@@ -186,7 +186,13 @@ public class IosXeDataStoreAPI implements Callable {
         return null;
     }
 
-    private <U extends DataObject> boolean writeMergeTransaction(InstanceIdentifier<U> addIID, U data) {
+    /**
+     * Create a write transaction on a mountpoint, retrying while the device is busy
+     *
+     * @param mountpoint - the device mountpoint
+     * @return the transaction, null if it could not be created
+     */
+    static WriteTransaction newWriteTransaction(DataBroker mountpoint) {
         long timeout = 5000L;
         int attempt = 0;
         WriteTransaction transaction = null;
@@ -210,6 +216,13 @@ public class IosXeDataStoreAPI implements Callable {
         } while (attempt <= 5 && transaction == null);
         if (transaction == null) {
             LOG.error("Maximum number of attempts reached");
+        }
+        return transaction;
+    }
+
+    private <U extends DataObject> boolean writeMergeTransaction(InstanceIdentifier<U> addIID, U data) {
+        WriteTransaction transaction = newWriteTransaction(mountpoint);
+        if (transaction == null) {
             return false;
         }
         try {
@@ -227,29 +240,8 @@ public class IosXeDataStoreAPI implements Callable {
     }
 
     private <U extends DataObject> boolean deleteTransaction(InstanceIdentifier<U> deleteIID) {
-        long timeout = 5000L;
-        int attempt = 0;
-        WriteTransaction transaction = null;
-        do {
-            attempt++;
-            try {
-                transaction = mountpoint.newWriteOnlyTransaction();
-            } catch (RuntimeException e) {
-                if (e.getCause().getClass().equals(NetconfDocumentedException.class)) {
-                    LOG.warn("NetconfDocumentedException thrown, retrying ({})...", attempt);
-                    try {
-                        Thread.sleep(timeout);
-                        timeout += 1000L;
-                    } catch (InterruptedException i) {
-                        LOG.error("Thread interrupted while waiting ... {} ", i);
-                    }
-                } else {
-                    LOG.error("Runtime exception ... {}", e.getMessage());
-                }
-            }
-        } while (attempt <= 5 && transaction == null);
+        WriteTransaction transaction = newWriteTransaction(mountpoint);
         if (transaction == null) {
-            LOG.error("Maximum number of attempts reached");
             return false;
         }
         try {
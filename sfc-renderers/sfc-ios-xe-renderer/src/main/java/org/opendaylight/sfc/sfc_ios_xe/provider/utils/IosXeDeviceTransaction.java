@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sfc_ios_xe.provider.utils;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.CheckedFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServicePath;
+import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServicePathKey;
+import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.service.function.forwarder.ServiceFfName;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Group of configuration changes for a single IOS-XE device, written with one
+ * transaction (i.e. one NETCONF edit-config) when called. Changes are applied
+ * in the order they were added.
+ */
+public class IosXeDeviceTransaction implements Callable<Boolean> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IosXeDeviceTransaction.class);
+
+    private final DataBroker mountpoint;
+    private final String deviceName;
+    private final List<Consumer<WriteTransaction>> changes = new ArrayList<>();
+
+    /**
+     * @param mountpoint - the device mountpoint
+     * @param deviceName - the device name, for logging
+     */
+    public IosXeDeviceTransaction(DataBroker mountpoint, String deviceName) {
+        this.mountpoint = Preconditions.checkNotNull(mountpoint);
+        this.deviceName = deviceName;
+    }
+
+    public IosXeDeviceTransaction writeRemote(ServiceFfName remoteSff) {
+        return merge(SfcIosXeUtils.createRemoteSffIid(remoteSff), remoteSff);
+    }
+
+    public IosXeDeviceTransaction deleteRemote(SffName remoteSffName) {
+        InstanceIdentifier<ServiceFfName> remoteIid = SfcIosXeUtils.createRemoteSffIid(remoteSffName);
+        changes.add(transaction -> transaction.delete(LogicalDatastoreType.CONFIGURATION, remoteIid));
+        return this;
+    }
+
+    public IosXeDeviceTransaction writePath(ServicePath path) {
+        return merge(SfcIosXeUtils.createServicePathIid(path.getKey()), path);
+    }
+
+    public IosXeDeviceTransaction deletePath(ServicePathKey pathKey) {
+        InstanceIdentifier<ServicePath> pathIid = SfcIosXeUtils.createServicePathIid(pathKey);
+        changes.add(transaction -> transaction.delete(LogicalDatastoreType.CONFIGURATION, pathIid));
+        return this;
+    }
+
+    private <U extends DataObject> IosXeDeviceTransaction merge(InstanceIdentifier<U> iid, U data) {
+        Preconditions.checkNotNull(data);
+        changes.add(transaction -> transaction.merge(LogicalDatastoreType.CONFIGURATION, iid, data));
+        return this;
+    }
+
+    public DataBroker getMountpoint() {
+        return mountpoint;
+    }
+
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * Write all the changes to the device and wait for it to acknowledge them
+     *
+     * @return true if the device accepted the changes
+     */
+    @Override
+    public Boolean call() {
+        WriteTransaction transaction = IosXeDataStoreAPI.newWriteTransaction(mountpoint);
+        if (transaction == null) {
+            return false;
+        }
+        try {
+            changes.forEach(change -> change.accept(transaction));
+            CheckedFuture<Void, TransactionCommitFailedException> submitFuture = transaction.submit();
+            submitFuture.checkedGet();
+            LOG.debug("{} changes written to device {}", changes.size(), deviceName);
+            return true;
+        } catch (TransactionCommitFailedException e) {
+            LOG.error("Transaction to device {} failed: {}", deviceName, e.getMessage());
+            return false;
+        } catch (Exception e) {
+            LOG.error("Failed to write changes to device {}: {}", deviceName, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sfc_ios_xe.provider.renderer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeviceEntryReferencesTest {
+
+    private final String remoteForwarder = "remote-forwarder";
+    private final String firstDevice = "first-device";
+    private final String secondDevice = "second-device";
+    private DeviceEntryReferences<String, String, String> references;
+
+    @Before
+    public void init() {
+        references = new DeviceEntryReferences<>();
+    }
+
+    @Test
+    public void acquireAndRelease() {
+        assertTrue(references.acquire(firstDevice, remoteForwarder, "rsp1"));
+        assertFalse(references.acquire(firstDevice, remoteForwarder, "rsp2"));
+        // Same user counted once
+        assertFalse(references.acquire(firstDevice, remoteForwarder, "rsp2"));
+        // Entries are tracked per device
+        assertTrue(references.acquire(secondDevice, remoteForwarder, "rsp1"));
+        assertEquals(2, references.getUserCount(firstDevice, remoteForwarder));
+
+        assertFalse(references.release(firstDevice, remoteForwarder, "rsp1"));
+        assertFalse(references.release(firstDevice, remoteForwarder, "rsp1"));
+        assertTrue(references.release(firstDevice, remoteForwarder, "rsp2"));
+        assertEquals(0, references.getUserCount(firstDevice, remoteForwarder));
+        assertEquals(1, references.getUserCount(secondDevice, remoteForwarder));
+
+        assertTrue(references.acquire(firstDevice, remoteForwarder, "rsp3"));
+    }
+
+    @Test
+    public void releaseAll() {
+        references.acquire(firstDevice, remoteForwarder, "rsp1");
+        references.acquire(firstDevice, "other-forwarder", "rsp1");
+        references.acquire(firstDevice, "other-forwarder", "rsp2");
+        references.acquire(secondDevice, remoteForwarder, "rsp1");
+
+        Map<String, List<String>> unused = references.releaseAll("rsp1");
+        assertEquals(2, unused.size());
+        assertEquals(Collections.singletonList(remoteForwarder), unused.get(firstDevice));
+        assertEquals(Collections.singletonList(remoteForwarder), unused.get(secondDevice));
+        assertEquals(1, references.getUserCount(firstDevice, "other-forwarder"));
+        assertTrue(references.releaseAll("rsp1").isEmpty());
+    }
+
+    @Test
+    public void getEntries() {
+        references.acquire(firstDevice, remoteForwarder, "rsp1");
+        references.acquire(firstDevice, "other-forwarder", "rsp2");
+        references.acquire(secondDevice, remoteForwarder, "rsp1");
+
+        Map<String, Set<String>> entries = references.getEntries("rsp1");
+        assertEquals(2, entries.size());
+        assertEquals(Collections.singleton(remoteForwarder), entries.get(firstDevice));
+        assertEquals(Collections.singleton(remoteForwarder), entries.get(secondDevice));
+        assertTrue(references.getEntries("rsp3").isEmpty());
+    }
+
+    @Test
+    public void retainAll() {
+        references.acquire(firstDevice, remoteForwarder, "rsp1");
+        references.acquire(firstDevice, "other-forwarder", "rsp1");
+        references.acquire(secondDevice, remoteForwarder, "rsp1");
+        references.acquire(secondDevice, remoteForwarder, "rsp2");
+
+        Map<String, Set<String>> retained = Collections.singletonMap(firstDevice,
+                Collections.singleton(remoteForwarder));
+        Map<String, List<String>> unused = references.retainAll("rsp1", retained);
+        assertEquals(1, unused.size());
+        assertEquals(Collections.singletonList("other-forwarder"), unused.get(firstDevice));
+        assertEquals(1, references.getUserCount(firstDevice, remoteForwarder));
+        assertEquals(1, references.getUserCount(secondDevice, remoteForwarder));
+    }
+}
@@ -9,6 +9,7 @@
 package org.opendaylight.sfc.sfc_ios_xe.provider.renderer;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
@@ -16,6 +17,7 @@ import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.test.AbstractDataBrokerTest;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.sfc.provider.OpendaylightSfc;
+import org.opendaylight.sfc.provider.api.SfcDataStoreAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceForwarderAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
 import org.opendaylight.sfc.sfc_ios_xe.provider.utils.IosXeDataStoreAPI;
@@ -28,6 +30,8 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev1407
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePathKey;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.rendered.service.path.RenderedServicePathHop;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.rendered.service.path.RenderedServicePathHopBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.ServiceFunctions;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionKey;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarder.base.SffDataPlaneLocator;
@@ -42,13 +46,17 @@ import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.
 import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServicePath;
 import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServicePathKey;
 import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.service.path.ConfigServiceChainPathMode;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.opendaylight.sfc.sfc_ios_xe.provider.utils.IosXeDataStoreAPI.Transaction.READ_PATH;
+import static org.opendaylight.sfc.sfc_ios_xe.provider.utils.IosXeDataStoreAPI.Transaction.READ_REMOTE;
 
 public class IosXeRspProcessorTest extends AbstractDataBrokerTest {
 
@@ -58,6 +66,8 @@ public class IosXeRspProcessorTest extends AbstractDataBrokerTest {
     private final SfName secondFunctionName = new SfName("secondFunction");
     private final SfName thirdFunctionName = new SfName("thirdFunction");
     private final String mgmtIp = "10.0.0.1";
+    private final String secondForwarderName = "secondForwarder";
+    private final String secondMgmtIp = "10.0.0.2";
     private DataBroker dataBroker;
     private NodeManager nodeManager;
 
@@ -70,11 +80,11 @@ public class IosXeRspProcessorTest extends AbstractDataBrokerTest {
     }
 
     @Test
-    public void updateRsp() {
+    public void updateRsp() throws Exception {
         when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(mgmtIp)))).thenReturn(dataBroker);
 
         IosXeRspProcessor processor = new IosXeRspProcessor(dataBroker, nodeManager);
-        processor.updateRsp(createTestRenderedServicePath());
+        assertTrue(processor.updateRsp(createTestRenderedServicePath()).get());
 
         verify(nodeManager, times(1)).getMountpointFromIpAddress(new IpAddress(new Ipv4Address(mgmtIp)));
 
@@ -86,7 +96,109 @@ public class IosXeRspProcessorTest extends AbstractDataBrokerTest {
         assertTrue(chainPathMode.getServiceIndex().getServices().size() == 4);
     }
 
+    @Test
+    public void deleteRsp() throws Exception {
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(mgmtIp)))).thenReturn(dataBroker);
+
+        IosXeRspProcessor processor = new IosXeRspProcessor(dataBroker, nodeManager);
+        RenderedServicePath renderedServicePath = createTestRenderedServicePath();
+        assertTrue(processor.updateRsp(renderedServicePath).get());
+        assertTrue(processor.deleteRsp(renderedServicePath).get());
+
+        // All hops share the same forwarder, it is resolved once per operation
+        verify(nodeManager, times(2)).getMountpointFromIpAddress(new IpAddress(new Ipv4Address(mgmtIp)));
+        ServicePath servicePath = (ServicePath) new IosXeDataStoreAPI(dataBroker, new ServicePathKey(10L), READ_PATH,
+                LogicalDatastoreType.CONFIGURATION).call();
+        assertNull(servicePath);
+    }
+
+    @Test
+    public void updateRspRemovesUnusedRemoteForwarders() throws Exception {
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(mgmtIp)))).thenReturn(dataBroker);
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(secondMgmtIp))))
+                .thenReturn(dataBroker);
+
+        IosXeRspProcessor processor = new IosXeRspProcessor(dataBroker, nodeManager);
+        assertTrue(processor.updateRsp(createTestRenderedServicePath("testRsp", 10L, secondForwarderName)).get());
+        assertNotNull(readRemoteForwarder(secondForwarderName));
+
+        // The updated RSP does not cross the second forwarder anymore
+        assertTrue(processor.updateRsp(createTestRenderedServicePath()).get());
+        assertNull(readRemoteForwarder(secondForwarderName));
+    }
+
+    @Test
+    public void remoteForwarderRemovedWithLastRsp() throws Exception {
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(mgmtIp)))).thenReturn(dataBroker);
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(secondMgmtIp))))
+                .thenReturn(dataBroker);
+
+        IosXeRspProcessor processor = new IosXeRspProcessor(dataBroker, nodeManager);
+        RenderedServicePath firstRsp = createTestRenderedServicePath("testRsp", 10L, secondForwarderName);
+        RenderedServicePath secondRsp = createTestRenderedServicePath("otherRsp", 11L, secondForwarderName);
+        assertTrue(processor.updateRsp(firstRsp).get());
+        assertTrue(processor.updateRsp(secondRsp).get());
+
+        assertTrue(processor.deleteRsp(firstRsp).get());
+        assertNotNull(readRemoteForwarder(secondForwarderName));
+        assertTrue(processor.deleteRsp(secondRsp).get());
+        assertNull(readRemoteForwarder(secondForwarderName));
+    }
+
+    @Test
+    public void failedUpdateKeepsDeviceConfiguration() throws Exception {
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(mgmtIp)))).thenReturn(dataBroker);
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(secondMgmtIp))))
+                .thenReturn(dataBroker);
+
+        IosXeRspProcessor processor = new IosXeRspProcessor(dataBroker, nodeManager);
+        RenderedServicePath renderedServicePath = createTestRenderedServicePath("testRsp", 10L, secondForwarderName);
+        assertTrue(processor.updateRsp(renderedServicePath).get());
+
+        // The updated RSP can not be resolved, the previous version stays configured
+        SfcDataStoreAPI.deleteTransactionAPI(InstanceIdentifier.builder(ServiceFunctions.class)
+                .child(ServiceFunction.class, new ServiceFunctionKey(thirdFunctionName))
+                .build(), LogicalDatastoreType.CONFIGURATION);
+        assertFalse(processor.updateRsp(renderedServicePath).get());
+        assertNotNull(new IosXeDataStoreAPI(dataBroker, new ServicePathKey(10L), READ_PATH,
+                LogicalDatastoreType.CONFIGURATION).call());
+        assertNotNull(readRemoteForwarder(secondForwarderName));
+
+        // And is still removed with the RSP
+        assertTrue(processor.deleteRsp(renderedServicePath).get());
+        assertNull(readRemoteForwarder(secondForwarderName));
+    }
+
+    @Test
+    public void remoteForwarderWrittenAgainAfterDeviceFailure() throws Exception {
+        DataBroker failingDevice = mock(DataBroker.class);
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(mgmtIp))))
+                .thenReturn(failingDevice, dataBroker);
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(secondMgmtIp))))
+                .thenReturn(dataBroker);
+
+        IosXeRspProcessor processor = new IosXeRspProcessor(dataBroker, nodeManager);
+        assertFalse(processor.updateRsp(createTestRenderedServicePath("testRsp", 10L, secondForwarderName)).get());
+        assertNull(readRemoteForwarder(secondForwarderName));
+
+        // The reference of the failed write is released, the next RSP crossing the SFFs writes the entry
+        assertTrue(processor.updateRsp(createTestRenderedServicePath("otherRsp", 11L, secondForwarderName)).get());
+        assertNotNull(readRemoteForwarder(secondForwarderName));
+    }
+
+    private Object readRemoteForwarder(String sffName) {
+        return new IosXeDataStoreAPI(dataBroker, new SffName(sffName), READ_REMOTE,
+                LogicalDatastoreType.CONFIGURATION).call();
+    }
+
     private RenderedServicePath createTestRenderedServicePath() {
+        return createTestRenderedServicePath("testRsp", 10L, forwarderName);
+    }
+
+    /*
+     * The first two hops are on the first forwarder, the last one on the given forwarder
+     */
+    private RenderedServicePath createTestRenderedServicePath(String rspName, long pathId, String lastForwarderName) {
         RenderedServicePathBuilder renderedServicePathBuilder = new RenderedServicePathBuilder();
         // Prepare hops
         List<RenderedServicePathHop> hops = new ArrayList<>();
@@ -97,14 +209,14 @@ public class IosXeRspProcessorTest extends AbstractDataBrokerTest {
         secondHop.setServiceFunctionForwarder(new SffName(forwarderName))
                 .setServiceFunctionName(new SfName(secondFunctionName));
         RenderedServicePathHopBuilder thirdHop = new RenderedServicePathHopBuilder();
-        thirdHop.setServiceFunctionForwarder(new SffName(forwarderName))
+        thirdHop.setServiceFunctionForwarder(new SffName(lastForwarderName))
                 .setServiceFunctionName(new SfName(thirdFunctionName));
         hops.add(firstHop.build());
         hops.add(secondHop.build());
         hops.add(thirdHop.build());
-        renderedServicePathBuilder.setName(new RspName("testRsp"))
-                .setKey(new RenderedServicePathKey(new RspName("testRsp")))
-                .setPathId(10L)
+        renderedServicePathBuilder.setName(new RspName(rspName))
+                .setKey(new RenderedServicePathKey(new RspName(rspName)))
+                .setPathId(pathId)
                 .setStartingIndex((short) 255)
                 .setRenderedServicePathHop(hops);
         return renderedServicePathBuilder.build();
@@ -142,6 +254,21 @@ public class IosXeRspProcessorTest extends AbstractDataBrokerTest {
                 .setKey(new ServiceFunctionKey(thirdFunctionName));
 
         SfcProviderServiceForwarderAPI.putServiceFunctionForwarder(serviceForwarderBuilder.build());
+        // Second SFF
+        String secondSffDpl = "secondSffDpl";
+        SffDataPlaneLocator secondSffDataPlaneLocator = new SffDataPlaneLocatorBuilder()
+                .setName(new SffDataPlaneLocatorName(secondSffDpl))
+                .setKey(new SffDataPlaneLocatorKey(new SffDataPlaneLocatorName(secondSffDpl)))
+                .setDataPlaneLocator(new DataPlaneLocatorBuilder()
+                        .setLocatorType(new IpBuilder().setIp(new IpAddress(new Ipv4Address("100.0.0.2"))).build())
+                        .build())
+                .build();
+        SfcProviderServiceForwarderAPI.putServiceFunctionForwarder(new ServiceFunctionForwarderBuilder()
+                .setName(new SffName(secondForwarderName))
+                .setKey(new ServiceFunctionForwarderKey(new SffName(secondForwarderName)))
+                .setIpMgmtAddress(new IpAddress(new Ipv4Address(secondMgmtIp)))
+                .setSffDataPlaneLocator(Collections.singletonList(secondSffDataPlaneLocator))
+                .build());
         SfcProviderServiceFunctionAPI.putServiceFunction(firstServiceFunctionBuilder.build());
         SfcProviderServiceFunctionAPI.putServiceFunction(secondServiceFunctionBuilder.build());
         SfcProviderServiceFunctionAPI.putServiceFunction(thirdServiceFunctionBuilder.build());
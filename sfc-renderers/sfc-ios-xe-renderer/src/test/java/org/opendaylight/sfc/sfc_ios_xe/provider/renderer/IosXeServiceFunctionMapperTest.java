@@ -8,10 +8,10 @@
 
 package org.opendaylight.sfc.sfc_ios_xe.provider.renderer;
 
+import com.google.common.util.concurrent.Futures;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
@@ -25,14 +25,8 @@ import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev14070
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.Gre;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.data.plane.locator.locator.type.IpBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.data.plane.locator.locator.type.MacBuilder;
-import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Host;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.IpAddress;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.netconf.node.topology.rev150114.NetconfNode;
-import org.opendaylight.yang.gen.v1.urn.opendaylight.netconf.node.topology.rev150114.NetconfNodeBuilder;
-import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NodeId;
-import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
-import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.NodeBuilder;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -41,7 +35,6 @@ import static org.mockito.Mockito.when;
 
 public class IosXeServiceFunctionMapperTest {
 
-    private final String nodeIdString = "nodeId";
     private final String ipAddress = "10.0.0.1";
     private DataBroker dataBroker;
     private NodeManager nodeManager;
@@ -99,34 +92,38 @@ public class IosXeServiceFunctionMapperTest {
         serviceFunctions.add(noDplSfBuilder.build());
         serviceFunctions.add(noIpDplSfBuilder.build());
         serviceFunctions.add(testSfBuilder.build());
-        // Node list
-        Map<NodeId, Node> nodeMap = new HashMap<>();
-        NodeId nodeId = new NodeId(nodeIdString);
-        NodeBuilder nodeBuilder = new NodeBuilder();
-        NetconfNodeBuilder netconfNodeBuilder = new NetconfNodeBuilder();
-        netconfNodeBuilder.setHost(new Host(new IpAddress(new Ipv4Address(ipAddress))));
-        nodeBuilder.setNodeId(nodeId)
-                .addAugmentation(NetconfNode.class, netconfNodeBuilder.build());
-        Node node = nodeBuilder.build();
-        nodeMap.put(nodeId, node);
-
-        Map<NodeId, DataBroker> nodeWithDataBrokerMap = new HashMap<>();
-        nodeWithDataBrokerMap.put(nodeId, dataBroker);
-
-        when(nodeManager.getConnectedNodes()).thenReturn(nodeMap);
-        when(nodeManager.getNetconfNodeIp(node)).thenReturn(new IpAddress(new Ipv4Address(ipAddress)));
-        when(nodeManager.getActiveMountPoints()).thenReturn(nodeWithDataBrokerMap);
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(ipAddress)))).thenReturn(dataBroker);
         when(dataBroker.newWriteOnlyTransaction()).thenReturn(writeTransaction);
 
         sfMapper = new IosXeServiceFunctionMapper(dataBroker, nodeManager);
         sfMapper.syncFunctions(serviceFunctions, false);
 
-        verify(nodeManager, times(3)).getConnectedNodes();
-        verify(nodeManager, times(3)).getNetconfNodeIp(any(Node.class));
-        verify(nodeManager, times(3)).getActiveMountPoints();
+        verify(nodeManager, times(3)).getMountpointFromIpAddress(any(IpAddress.class));
         verify(dataBroker, times(1)).newWriteOnlyTransaction();
     }
 
+    @Test
+    public void syncFunctions_unchangedNotRewritten() {
+        ServiceFunction serviceFunction = buildTestServiceFunction("function", ipAddress);
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(ipAddress)))).thenReturn(dataBroker);
+        when(dataBroker.newWriteOnlyTransaction()).thenReturn(writeTransaction);
+        when(writeTransaction.submit()).thenReturn(Futures.immediateCheckedFuture(null));
+
+        sfMapper = new IosXeServiceFunctionMapper(dataBroker, nodeManager);
+        sfMapper.syncFunctions(Collections.singletonList(serviceFunction), false);
+        sfMapper.syncFunctions(Collections.singletonList(serviceFunction), false);
+        verify(dataBroker, times(1)).newWriteOnlyTransaction();
+
+        // Changed service function is written again
+        sfMapper.syncFunctions(Collections.singletonList(buildTestServiceFunction("function", "10.0.0.2")), false);
+        verify(dataBroker, times(2)).newWriteOnlyTransaction();
+
+        // Removed, then written again
+        sfMapper.syncFunctions(Collections.singletonList(serviceFunction), true);
+        sfMapper.syncFunctions(Collections.singletonList(serviceFunction), false);
+        verify(dataBroker, times(4)).newWriteOnlyTransaction();
+    }
+
     @Test
     public void syncFunctions_delete() {
         String sfName2 = "function2";
@@ -149,30 +146,26 @@ public class IosXeServiceFunctionMapperTest {
                 .setIpMgmtAddress(new IpAddress(new Ipv4Address(ipAddress)))
                 .setSfDataPlaneLocator(dataPlaneLocatorList);
         serviceFunctions.add(testSfBuilder.build());
-        // Node list
-        Map<NodeId, Node> nodeMap = new HashMap<>();
-        NodeId nodeId = new NodeId(nodeIdString);
-        NodeBuilder nodeBuilder = new NodeBuilder();
-        NetconfNodeBuilder netconfNodeBuilder = new NetconfNodeBuilder();
-        netconfNodeBuilder.setHost(new Host(new IpAddress(new Ipv4Address(ipAddress))));
-        nodeBuilder.setNodeId(nodeId)
-                .addAugmentation(NetconfNode.class, netconfNodeBuilder.build());
-        Node node = nodeBuilder.build();
-        nodeMap.put(nodeId, node);
-
-        Map<NodeId, DataBroker> nodeWithDataBrokerMap = new HashMap<>();
-        nodeWithDataBrokerMap.put(nodeId, dataBroker);
-
-        when(nodeManager.getConnectedNodes()).thenReturn(nodeMap);
-        when(nodeManager.getNetconfNodeIp(node)).thenReturn(new IpAddress(new Ipv4Address(ipAddress)));
-        when(nodeManager.getActiveMountPoints()).thenReturn(nodeWithDataBrokerMap);
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address(ipAddress)))).thenReturn(dataBroker);
         when(dataBroker.newWriteOnlyTransaction()).thenReturn(writeTransaction);
 
         sfMapper.syncFunctions(serviceFunctions, true);
 
-        verify(nodeManager, times(1)).getConnectedNodes();
-        verify(nodeManager, times(1)).getNetconfNodeIp(any(Node.class));
-        verify(nodeManager, times(1)).getActiveMountPoints();
+        verify(nodeManager, times(1)).getMountpointFromIpAddress(any(IpAddress.class));
         verify(dataBroker, times(1)).newWriteOnlyTransaction();
     }
+
+    private ServiceFunction buildTestServiceFunction(String name, String dplIpAddress) {
+        SfDataPlaneLocatorBuilder ipLocatorType = new SfDataPlaneLocatorBuilder();
+        ipLocatorType.setLocatorType(new IpBuilder().setIp(new IpAddress(new Ipv4Address(dplIpAddress))).build())
+                .setTransport(Gre.class);
+        List<SfDataPlaneLocator> dataPlaneLocatorList = new ArrayList<>();
+        dataPlaneLocatorList.add(ipLocatorType.build());
+        ServiceFunctionBuilder testSfBuilder = new ServiceFunctionBuilder();
+        testSfBuilder.setName(new SfName(name))
+                .setKey(new ServiceFunctionKey(new SfName(name)))
+                .setIpMgmtAddress(new IpAddress(new Ipv4Address(ipAddress)))
+                .setSfDataPlaneLocator(dataPlaneLocatorList);
+        return testSfBuilder.build();
+    }
 }
@@ -16,6 +16,9 @@ import org.opendaylight.controller.md.sal.binding.api.MountPoint;
 import org.opendaylight.controller.md.sal.binding.api.MountPointService;
 import org.opendaylight.controller.sal.binding.api.BindingAwareBroker;
 import org.opendaylight.controller.sal.binding.api.BindingAwareProvider;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Host;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.IpAddress;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.netconf.node.topology.rev150114.NetconfNode;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.netconf.node.topology.rev150114.NetconfNodeBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.netconf.node.topology.rev150114.NetconfNodeConnectionStatus;
@@ -25,7 +28,9 @@ import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.
 import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
 import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.NodeBuilder;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
@@ -153,4 +158,37 @@ public class NodeManagerTest {
         assertTrue(manager.getActiveMountPoints().isEmpty());
         assertTrue(manager.getConnectedNodes().isEmpty());
     }
+
+    @Test
+    public void mountpointFromIpAddress() {
+        IpAddress ipAddress = new IpAddress(new Ipv4Address("10.0.0.1"));
+        NodeBuilder nodeBuilder = new NodeBuilder();
+        NetconfNodeBuilder netconfNodeBuilder = new NetconfNodeBuilder();
+        netconfNodeBuilder.setConnectionStatus(NetconfNodeConnectionStatus.ConnectionStatus.Connected)
+                .setHost(new Host(ipAddress));
+        nodeBuilder.setNodeId(new NodeId(nodeId));
+        nodeBuilder.addAugmentation(NetconfNode.class, netconfNodeBuilder.build());
+        Node testNode = nodeBuilder.build();
+
+        when(bindingAwareBroker.registerProvider(any(BindingAwareProvider.class))).thenReturn(providerContext);
+        when(providerContext.getSALService(any())).thenReturn(mountPointService);
+        when(mountPointService.getMountPoint(any(InstanceIdentifier.class))).thenReturn(optionalMountPointObject);
+        when(mountPoint.getService(eq(DataBroker.class))).thenReturn(optionalDataBrokerObject);
+        when(optionalMountPointObject.isPresent()).thenReturn(true);
+        //noinspection OptionalGetWithoutIsPresent
+        when(optionalMountPointObject.get()).thenReturn(mountPoint);
+        when(optionalDataBrokerObject.isPresent()).thenReturn(true);
+        //noinspection OptionalGetWithoutIsPresent
+        when(optionalDataBrokerObject.get()).thenReturn(dataBroker);
+
+        manager = new NodeManager(dataBroker, bindingAwareBroker);
+        assertNull(manager.getMountpointFromIpAddress(ipAddress));
+
+        manager.updateNode(testNode);
+        assertEquals(dataBroker, manager.getMountpointFromIpAddress(ipAddress));
+        assertNull(manager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address("10.0.0.2"))));
+
+        manager.removeNode(testNode);
+        assertNull(manager.getMountpointFromIpAddress(ipAddress));
+    }
 }
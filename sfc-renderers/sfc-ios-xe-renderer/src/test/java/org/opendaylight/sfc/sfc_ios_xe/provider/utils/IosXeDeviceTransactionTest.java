@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sfc_ios_xe.provider.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.test.AbstractDataBrokerTest;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
+import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServicePath;
+import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServicePathBuilder;
+import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.ServicePathKey;
+import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.service.function.forwarder.ServiceFfName;
+import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.service.function.forwarder.ServiceFfNameBuilder;
+import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.service.function.forwarder.ServiceFfNameKey;
+import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.service.path.ConfigServiceChainPathModeBuilder;
+import org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.service.chain.service.path.config.service.chain.path.mode.ServiceIndexBuilder;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.opendaylight.sfc.sfc_ios_xe.provider.utils.IosXeDataStoreAPI.Transaction.READ_PATH;
+import static org.opendaylight.sfc.sfc_ios_xe.provider.utils.IosXeDataStoreAPI.Transaction.READ_REMOTE;
+
+public class IosXeDeviceTransactionTest extends AbstractDataBrokerTest {
+
+    private final String REMOTE_FORWARDER = "remote-forwarder";
+    private DataBroker mountpoint;
+
+    @Before
+    public void init() {
+        mountpoint = getDataBroker();
+    }
+
+    @Test
+    public void writeAndDeleteInOneTransaction() {
+        IosXeDeviceTransaction transaction = new IosXeDeviceTransaction(mountpoint, "device");
+        assertTrue(transaction.isEmpty());
+        transaction.writeRemote(buildRemoteServiceForwarder())
+                .writePath(buildServicePath(1L))
+                .writePath(buildServicePath(2L));
+        assertFalse(transaction.isEmpty());
+        assertTrue(transaction.call());
+
+        assertNotNull(new IosXeDataStoreAPI(mountpoint, new SffName(REMOTE_FORWARDER), READ_REMOTE,
+                LogicalDatastoreType.CONFIGURATION).call());
+        assertNotNull(readServicePath(1L));
+        assertNotNull(readServicePath(2L));
+
+        // Changes are applied in order
+        transaction = new IosXeDeviceTransaction(mountpoint, "device");
+        transaction.writePath(buildServicePath(3L))
+                .deletePath(new ServicePathKey(1L))
+                .deletePath(new ServicePathKey(3L));
+        assertTrue(transaction.call());
+
+        assertNull(readServicePath(1L));
+        assertNotNull(readServicePath(2L));
+        assertNull(readServicePath(3L));
+    }
+
+    private ServicePath readServicePath(long pathId) {
+        return (ServicePath) new IosXeDataStoreAPI(mountpoint, new ServicePathKey(pathId), READ_PATH,
+                LogicalDatastoreType.CONFIGURATION).call();
+    }
+
+    private ServiceFfName buildRemoteServiceForwarder() {
+        ServiceFfNameBuilder serviceFfNameBuilder = new ServiceFfNameBuilder();
+        serviceFfNameBuilder.setName(REMOTE_FORWARDER)
+                .setKey(new ServiceFfNameKey(REMOTE_FORWARDER))
+                .setIp(new org.opendaylight.yang.gen.v1.urn.ios.rev160308._native.config.service.chain.grouping.IpBuilder()
+                        .setAddress(new Ipv4Address("200.0.0.1")).build());
+        return serviceFfNameBuilder.build();
+    }
+
+    private ServicePath buildServicePath(long pathId) {
+        ConfigServiceChainPathModeBuilder configServiceChainPathModeBuilder = new ConfigServiceChainPathModeBuilder();
+        configServiceChainPathModeBuilder.setServiceIndex(new ServiceIndexBuilder().build());
+        ServicePathBuilder servicePathBuilder = new ServicePathBuilder();
+        servicePathBuilder.setKey(new ServicePathKey(pathId))
+                .setServicePathId(pathId)
+                .setConfigServiceChainPathMode(configServiceChainPathModeBuilder.build());
+        return servicePathBuilder.build();
+    }
+}
@@ -18,8 +18,13 @@ import org.opendaylight.sfc.ofrenderer.listeners.SfcOfSfgDataListener;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcIpv4PacketInHandler;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerImpl;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerInterface;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowReconciler;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterImpl;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcPacketInFlowCache;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcPacketInFlowLearner;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcPacketInFlowLearner.OverflowPolicy;
 import org.opendaylight.sfc.ofrenderer.utils.SfcOfBaseProviderUtils;
+import org.opendaylight.sfc.ofrenderer.utils.SfcOfDataCache;
 import org.opendaylight.sfc.ofrenderer.utils.SfcOfProviderUtils;
 import org.opendaylight.sfc.ofrenderer.utils.SfcSynchronizer;
 import org.opendaylight.yangtools.concepts.Registration;
@@ -37,27 +42,169 @@ public class SfcOfRenderer implements AutoCloseable {
 
     private static final Logger LOG = LoggerFactory.getLogger(SfcOfRenderer.class);
 
+    private final DataBroker dataBroker;
+    private final NotificationProviderService notificationService;
+    private final RpcProviderRegistry rpcProviderRegistry;
+
+    // Flow writer pipelining: transactions in flight per SFF, and flows per transaction
+    private int flowWriterPipelineDepth = 4;
+    private int flowWriterMaxFlowsPerTransaction = 500;
+    // Flow writer write-behind: how long, and how many, flows are merged before committing
+    private long flowWriterWriteBehindMillis = 50;
+    private int flowWriterWriteBehindMaxFlows = 10000;
+    // Number of RSPs rendered in parallel, RSPs sharing SFFs are still serialized
+    private int rspRenderingThreads = 8;
+    // Flow ids derived from the flow content, and reconciled with the flows found at startup
+    private boolean deterministicFlowIds = true;
+    // Stale flows are deleted once the RSPs found at startup are rendered, or after this time
+    private long flowReconciliationTimeoutMillis = 120000;
+    // SFs, SFFs and SFGs cached for all the RSPs, 0 to only cache them while rendering each RSP
+    private int dataCacheMaxEntries = 4096;
+    // Flows already learned from PacketIns, not learned again
+    private int packetInCacheMaxEntries = SfcPacketInFlowCache.DEFAULT_MAX_ENTRIES;
+    // Flows learned from PacketIns: installed per switch every time slice, at a limited rate
+    private long packetInLearningTimeSliceMillis = SfcPacketInFlowLearner.DEFAULT_TIME_SLICE_MILLIS;
+    private int packetInLearningMaxFlowsPerSecond = SfcPacketInFlowLearner.DEFAULT_MAX_FLOWS_PER_SECOND;
+    private int packetInLearningMaxQueuedFlows = SfcPacketInFlowLearner.DEFAULT_MAX_QUEUED_FLOWS;
+
     private SfcOfFlowProgrammerInterface sfcOfFlowProgrammer;
     private Registration pktInRegistration;
+    private Registration flowRemovedRegistration;
     private SfcSynchronizer sfcSynchronizer;
+    private SfcOfDataCache sfcOfDataCache;
 
     SfcOfRspDataListener openflowRspDataListener = null;
     SfcOfSfgDataListener sfcOfSfgDataListener = null;
     SfcIpv4PacketInHandler packetInHandler = null;
     SfcOfRendererDataListener sfcOfRendererListener = null;
 
+    /**
+     * The renderer is started by {@link #init()}, once its settings are set
+     */
     public SfcOfRenderer(DataBroker dataBroker, NotificationProviderService notificationService, RpcProviderRegistry rpcProviderRegistry) {
+        this.dataBroker = dataBroker;
+        this.notificationService = notificationService;
+        this.rpcProviderRegistry = rpcProviderRegistry;
+    }
+
+    /**
+     * @param flowWriterPipelineDepth - maximum number of flow transactions in flight per SFF
+     */
+    public void setFlowWriterPipelineDepth(int flowWriterPipelineDepth) {
+        this.flowWriterPipelineDepth = flowWriterPipelineDepth;
+    }
+
+    /**
+     * @param flowWriterMaxFlowsPerTransaction - maximum number of flows written per transaction
+     */
+    public void setFlowWriterMaxFlowsPerTransaction(int flowWriterMaxFlowsPerTransaction) {
+        this.flowWriterMaxFlowsPerTransaction = flowWriterMaxFlowsPerTransaction;
+    }
+
+    /**
+     * @param flowWriterWriteBehindMillis - how long flows are merged before being committed, 0 to commit at once
+     */
+    public void setFlowWriterWriteBehindMillis(long flowWriterWriteBehindMillis) {
+        this.flowWriterWriteBehindMillis = flowWriterWriteBehindMillis;
+    }
+
+    /**
+     * @param flowWriterWriteBehindMaxFlows - number of merged flows committed without waiting
+     */
+    public void setFlowWriterWriteBehindMaxFlows(int flowWriterWriteBehindMaxFlows) {
+        this.flowWriterWriteBehindMaxFlows = flowWriterWriteBehindMaxFlows;
+    }
+
+    /**
+     * @param rspRenderingThreads - number of RSPs rendered in parallel
+     */
+    public void setRspRenderingThreads(int rspRenderingThreads) {
+        this.rspRenderingThreads = rspRenderingThreads;
+    }
+
+    /**
+     * @param deterministicFlowIds - true to derive the flow ids from the flow content and reconcile
+     *                               the existing flows at startup
+     */
+    public void setDeterministicFlowIds(boolean deterministicFlowIds) {
+        this.deterministicFlowIds = deterministicFlowIds;
+    }
+
+    /**
+     * @param flowReconciliationTimeoutMillis - time after which the stale flows found at startup are deleted
+     */
+    public void setFlowReconciliationTimeoutMillis(long flowReconciliationTimeoutMillis) {
+        this.flowReconciliationTimeoutMillis = flowReconciliationTimeoutMillis;
+    }
+
+    /**
+     * @param dataCacheMaxEntries - number of SFs, SFFs and SFGs cached for all the RSPs, 0 to only
+     *                              cache them while rendering each RSP
+     */
+    public void setDataCacheMaxEntries(int dataCacheMaxEntries) {
+        this.dataCacheMaxEntries = dataCacheMaxEntries;
+    }
+
+    /**
+     * @param packetInCacheMaxEntries - number of flows learned from PacketIns remembered, not to learn them again
+     */
+    public void setPacketInCacheMaxEntries(int packetInCacheMaxEntries) {
+        this.packetInCacheMaxEntries = packetInCacheMaxEntries;
+    }
+
+    /**
+     * @param packetInLearningTimeSliceMillis - how often the flows learned from PacketIns are installed
+     */
+    public void setPacketInLearningTimeSliceMillis(long packetInLearningTimeSliceMillis) {
+        this.packetInLearningTimeSliceMillis = packetInLearningTimeSliceMillis;
+    }
+
+    /**
+     * @param packetInLearningMaxFlowsPerSecond - maximum number of learned flows installed per switch and second
+     */
+    public void setPacketInLearningMaxFlowsPerSecond(int packetInLearningMaxFlowsPerSecond) {
+        this.packetInLearningMaxFlowsPerSecond = packetInLearningMaxFlowsPerSecond;
+    }
+
+    /**
+     * @param packetInLearningMaxQueuedFlows - maximum number of learned flows waiting per switch
+     */
+    public void setPacketInLearningMaxQueuedFlows(int packetInLearningMaxQueuedFlows) {
+        this.packetInLearningMaxQueuedFlows = packetInLearningMaxQueuedFlows;
+    }
+
+    public void init() {
         LOG.info("SfcOfRenderer starting the SfcOfRenderer plugin...");
 
         this.sfcSynchronizer = new SfcSynchronizer();
-        this.sfcOfFlowProgrammer = new SfcOfFlowProgrammerImpl(new SfcOfFlowWriterImpl());
-        SfcOfBaseProviderUtils sfcOfProviderUtils = new SfcOfProviderUtils();
-        this.openflowRspDataListener = new SfcOfRspDataListener(dataBroker, sfcOfFlowProgrammer, sfcOfProviderUtils, sfcSynchronizer, rpcProviderRegistry);
+        SfcOfFlowWriterImpl sfcOfFlowWriter = new SfcOfFlowWriterImpl(flowWriterPipelineDepth,
+                flowWriterMaxFlowsPerTransaction, flowWriterWriteBehindMillis,
+                flowWriterWriteBehindMaxFlows, deterministicFlowIds);
+        if (deterministicFlowIds) {
+            // Take the snapshot of the existing flows before the RSP listener renders anything
+            SfcOfFlowReconciler reconciler = SfcOfFlowReconciler.create(dataBroker);
+            if (reconciler != null) {
+                sfcOfFlowWriter.startReconciliation(reconciler, flowReconciliationTimeoutMillis);
+            }
+        }
+        this.sfcOfFlowProgrammer = new SfcOfFlowProgrammerImpl(sfcOfFlowWriter);
+        if (dataCacheMaxEntries > 0) {
+            this.sfcOfDataCache = new SfcOfDataCache(dataBroker, dataCacheMaxEntries);
+        }
+        SfcOfBaseProviderUtils sfcOfProviderUtils = new SfcOfProviderUtils(sfcOfDataCache);
+        this.openflowRspDataListener = new SfcOfRspDataListener(dataBroker, sfcOfFlowProgrammer, sfcOfProviderUtils,
+                sfcSynchronizer, rpcProviderRegistry, rspRenderingThreads);
         this.sfcOfSfgDataListener = new SfcOfSfgDataListener(dataBroker, sfcOfFlowProgrammer, sfcOfProviderUtils);
         this.sfcOfRendererListener = new SfcOfRendererDataListener(dataBroker, sfcOfFlowProgrammer, sfcSynchronizer);
 
-        this.packetInHandler = new SfcIpv4PacketInHandler((SfcOfFlowProgrammerImpl) sfcOfFlowProgrammer);
+        SfcPacketInFlowLearner packetInFlowLearner = new SfcPacketInFlowLearner(
+                (SfcOfFlowProgrammerImpl) sfcOfFlowProgrammer, packetInLearningTimeSliceMillis,
+                packetInLearningMaxFlowsPerSecond, packetInLearningMaxQueuedFlows, OverflowPolicy.DROP_NEWEST);
+        this.packetInHandler = new SfcIpv4PacketInHandler((SfcOfFlowProgrammerImpl) sfcOfFlowProgrammer,
+                packetInCacheMaxEntries, packetInFlowLearner);
         this.pktInRegistration = notificationService.registerNotificationListener(packetInHandler);
+        // The learned flows are removed from the data store once the switch removed them as idle
+        this.flowRemovedRegistration = notificationService.registerNotificationListener(packetInFlowLearner);
 
         LOG.info("SfcOfRenderer successfully started the SfcOfRenderer plugin");
     }
@@ -77,12 +224,25 @@ public class SfcOfRenderer implements AutoCloseable {
     public void close() throws ExecutionException, InterruptedException {
         LOG.info("SfcOfRenderer auto-closed");
         try {
-            if(sfcOfFlowProgrammer != null) {
-                sfcOfFlowProgrammer.shutdown();
+            if(openflowRspDataListener != null) {
+                openflowRspDataListener.shutdown();
             }
             if(pktInRegistration != null) {
                 pktInRegistration.close();
             }
+            if(flowRemovedRegistration != null) {
+                flowRemovedRegistration.close();
+            }
+            // The handler closes its learner, which stops writing flows before the writer shuts down
+            if(packetInHandler != null) {
+                packetInHandler.close();
+            }
+            if(sfcOfFlowProgrammer != null) {
+                sfcOfFlowProgrammer.shutdown();
+            }
+            if(sfcOfDataCache != null) {
+                sfcOfDataCache.close();
+            }
         } catch(Exception e) {
             LOG.error("SfcOfRenderer auto-closed exception {}", e.getMessage());
         }
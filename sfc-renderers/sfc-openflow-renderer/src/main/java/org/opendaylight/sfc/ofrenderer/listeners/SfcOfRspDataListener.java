@@ -8,8 +8,13 @@
 
 package org.opendaylight.sfc.ofrenderer.listeners;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.common.api.data.AsyncDataChangeEvent;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
@@ -37,19 +42,47 @@ import org.slf4j.LoggerFactory;
 public class SfcOfRspDataListener extends SfcOfAbstractDataListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(SfcOfRspDataListener.class);
+    private static final long SHUTDOWN_TIME = 5;
     private SfcOfRspProcessor sfcOfRspProcessor;
 
+    // Only used in concurrent rendering mode, null otherwise. The RSPs are
+    // spread over the executors by name, so that all the changes of a given
+    // RSP are processed in order, while different RSPs are processed in parallel
+    private ExecutorService[] renderingExecutors;
+
     public SfcOfRspDataListener(
             DataBroker dataBroker,
             SfcOfFlowProgrammerInterface sfcOfFlowProgrammer,
             SfcOfBaseProviderUtils sfcOfProviderUtils,
             SfcSynchronizer sfcSynchronizer,
             RpcProviderRegistry rpcProviderRegistry) {
+        this(dataBroker, sfcOfFlowProgrammer, sfcOfProviderUtils, sfcSynchronizer, rpcProviderRegistry, 1);
+    }
+
+    /**
+     * Constructor allowing concurrent RSP rendering.
+     *
+     * @param renderingThreads - number of RSPs rendered in parallel, 1 to render
+     *                           the RSPs in the data change notification thread
+     */
+    public SfcOfRspDataListener(
+            DataBroker dataBroker,
+            SfcOfFlowProgrammerInterface sfcOfFlowProgrammer,
+            SfcOfBaseProviderUtils sfcOfProviderUtils,
+            SfcSynchronizer sfcSynchronizer,
+            RpcProviderRegistry rpcProviderRegistry,
+            int renderingThreads) {
         setDataBroker(dataBroker);
         setIID(OpendaylightSfc.RSP_ENTRY_IID);
-        registerAsDataChangeListener(LogicalDatastoreType.OPERATIONAL);
         this.sfcOfRspProcessor = new SfcOfRspProcessor(
                 sfcOfFlowProgrammer, sfcOfProviderUtils, sfcSynchronizer, rpcProviderRegistry);
+        if (renderingThreads > 1) {
+            this.renderingExecutors = new ExecutorService[renderingThreads];
+            for (int i = 0; i < renderingThreads; i++) {
+                this.renderingExecutors[i] = Executors.newSingleThreadExecutor();
+            }
+        }
+        registerAsDataChangeListener(LogicalDatastoreType.OPERATIONAL);
     }
 
     @Override
@@ -64,8 +97,9 @@ public class SfcOfRspDataListener extends SfcOfAbstractDataListener {
         Map<InstanceIdentifier<?>, DataObject> dataCreatedConfigurationObject = change.getCreatedData();
         for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataCreatedConfigurationObject.entrySet()) {
             if (entry.getValue() instanceof RenderedServicePath) {
-                LOG.info("SfcOfRspDataListener.onDataChanged create RSP {}", ((RenderedServicePath) entry.getValue()).getName());
-                this.sfcOfRspProcessor.processRenderedServicePath((RenderedServicePath) entry.getValue());
+                final RenderedServicePath rsp = (RenderedServicePath) entry.getValue();
+                LOG.info("SfcOfRspDataListener.onDataChanged create RSP {}", rsp.getName());
+                execute(rsp, () -> this.sfcOfRspProcessor.processRenderedServicePath(rsp));
             }
         }
 
@@ -73,8 +107,14 @@ public class SfcOfRspDataListener extends SfcOfAbstractDataListener {
         Map<InstanceIdentifier<?>, DataObject> dataUpdatedConfigurationObject = change.getUpdatedData();
         for (Map.Entry<InstanceIdentifier<?>, DataObject> entry : dataUpdatedConfigurationObject.entrySet()) {
             if ((entry.getValue() instanceof RenderedServicePath && (!(dataCreatedConfigurationObject.containsKey(entry.getKey()))))) {
-                LOG.info("SfcOfRspDataListener.onDataChanged update RSP {}", ((RenderedServicePath) entry.getValue()).getName());
-                // Currently RSP updates are not supported
+                final RenderedServicePath updatedRsp = (RenderedServicePath) entry.getValue();
+                DataObject originalDataObject = change.getOriginalData().get(entry.getKey());
+                final RenderedServicePath originalRsp = originalDataObject instanceof RenderedServicePath
+                        ? (RenderedServicePath) originalDataObject
+                        : null;
+                LOG.info("SfcOfRspDataListener.onDataChanged update RSP {}", updatedRsp.getName());
+                // Only the flows which changed are written or deleted
+                execute(updatedRsp, () -> this.sfcOfRspProcessor.updateRenderedServicePath(originalRsp, updatedRsp));
             }
         }
 
@@ -83,8 +123,55 @@ public class SfcOfRspDataListener extends SfcOfAbstractDataListener {
         for (InstanceIdentifier<?> instanceIdentifier : dataRemovedConfigurationIID) {
             DataObject dataObject = change.getOriginalData().get(instanceIdentifier);
             if (dataObject instanceof RenderedServicePath) {
-                LOG.info("SfcOfRspDataListener.onDataChanged delete RSP");
-                this.sfcOfRspProcessor.deleteRenderedServicePath((RenderedServicePath) dataObject);
+                final RenderedServicePath rsp = (RenderedServicePath) dataObject;
+                LOG.info("SfcOfRspDataListener.onDataChanged delete RSP {}", rsp.getName());
+                execute(rsp, () -> this.sfcOfRspProcessor.deleteRenderedServicePath(rsp));
+            }
+        }
+    }
+
+    /**
+     * Process an RSP change, either in the calling thread, or in the
+     * rendering executor assigned to the RSP in concurrent rendering mode.
+     * The executor is assigned by path id, as the rendered flows are: the
+     * deletion of an RSP and the creation of another RSP reusing its path id
+     * are processed in order.
+     *
+     * @param rsp - the RSP being changed
+     * @param task - the processing to be done
+     */
+    void execute(RenderedServicePath rsp, Runnable task) {
+        if (renderingExecutors == null) {
+            task.run();
+            return;
+        }
+
+        long pathId = rsp.getPathId() == null ? 0 : rsp.getPathId();
+        int index = (int) Math.floorMod(pathId, (long) renderingExecutors.length);
+        try {
+            renderingExecutors[index].execute(task);
+        } catch (RejectedExecutionException e) {
+            LOG.error("SfcOfRspDataListener cannot process RSP [{}]", rsp.getName(), e);
+        }
+    }
+
+    /**
+     * Stop the rendering executors, if any.
+     *
+     * @throws InterruptedException if interrupted while waiting for the executors to terminate
+     */
+    public void shutdown() throws InterruptedException {
+        if (renderingExecutors == null) {
+            return;
+        }
+        for (ExecutorService executor : renderingExecutors) {
+            executor.shutdown();
+        }
+        for (ExecutorService executor : renderingExecutors) {
+            if (!executor.awaitTermination(SHUTDOWN_TIME, TimeUnit.SECONDS)) {
+                List<Runnable> droppedTasks = executor.shutdownNow();
+                LOG.error("SfcOfRspDataListener executor was abruptly shut down. [{}] tasks will not be executed.",
+                        droppedTasks.size());
             }
         }
     }
@@ -9,11 +9,8 @@
 package org.opendaylight.sfc.ofrenderer.openflow;
 
 import java.math.BigInteger;
-import java.net.InetAddress;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.Node;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.NodeKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.model.match.types.rev131026.match.Metadata;
@@ -37,6 +34,15 @@ import org.slf4j.LoggerFactory;
  * unless we add the above rules. Upon receiving a TCP Syn from the client, the SF will
  * establish a connection with the client (send TCP SynAck to client), and then establish
  * a separate connection with the server (send TCP Syn to server).
+ *
+ * The packets of a flow already handled within the max buffer time are
+ * dropped using a bounded {@link SfcPacketInFlowCache}, keyed on the raw
+ * addresses, so that a PacketIn storm does not allocate per packet. The
+ * handler may be called concurrently for different switches.
+ *
+ * When a {@link SfcPacketInFlowLearner} is given, the flows are queued to it,
+ * to be installed in rate-limited batches per switch, instead of being
+ * written for each PacketIn.
  */
 
 public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoCloseable {
@@ -46,36 +52,73 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
     private final static int PACKET_OFFSET_IP = 14;
     private final static int PACKET_OFFSET_IP_SRC = PACKET_OFFSET_IP+12;
     private final static int PACKET_OFFSET_IP_DST = PACKET_OFFSET_IP+16;
+    private final static int PACKET_MIN_LENGTH = PACKET_OFFSET_IP_DST+4;
     public  final static int ETHERTYPE_IPV4 = 0x0800;
-    private final static int DEFAULT_MAX_BUFFER_TIME = 60000; // 60 milliseconds
+    private final static int DEFAULT_MAX_BUFFER_TIME = 60000; // 60 seconds
     private final static int DEFAULT_PACKET_COUNT_PURGE = 100;
 
-    private SfcOfFlowProgrammerImpl flowProgrammer;
-    private Map<String, Long> pktInBuffer;
-    private int maxBufferTime;
-    private int packetCountPurge;
-    private int packetCount;
+    private final SfcOfFlowProgrammerImpl flowProgrammer;
+    private final int maxBufferSize;
+    private final SfcPacketInFlowLearner flowLearner;
+    private volatile SfcPacketInFlowCache pktInBuffer;
+    private volatile int maxBufferTime;
+    private volatile int packetCountPurge;
+    private final AtomicInteger packetCount = new AtomicInteger();
+
+    // Statistics
+    private final LongAdder receivedPackets = new LongAdder();
+    private final LongAdder duplicatePackets = new LongAdder();
+    private final LongAdder droppedPackets = new LongAdder();
 
     public SfcIpv4PacketInHandler(SfcOfFlowProgrammerImpl flowProgrammer) {
+        this(flowProgrammer, SfcPacketInFlowCache.DEFAULT_MAX_ENTRIES, null);
+    }
+
+    /**
+     * @param flowProgrammer - the programmer of the PathMapperAcl flows
+     * @param maxBufferSize - the maximum number of flows remembered
+     * @param flowLearner - the learner installing the flows, null to write them for each PacketIn
+     */
+    public SfcIpv4PacketInHandler(SfcOfFlowProgrammerImpl flowProgrammer, int maxBufferSize,
+            SfcPacketInFlowLearner flowLearner) {
         this.flowProgrammer = flowProgrammer;
-        pktInBuffer = new HashMap<String, Long>();
-        maxBufferTime = DEFAULT_MAX_BUFFER_TIME;
-        packetCountPurge = DEFAULT_PACKET_COUNT_PURGE;
-        packetCount = 0;
+        this.maxBufferSize = maxBufferSize;
+        this.maxBufferTime = DEFAULT_MAX_BUFFER_TIME;
+        this.packetCountPurge = DEFAULT_PACKET_COUNT_PURGE;
+        this.pktInBuffer = new SfcPacketInFlowCache(maxBufferTime, maxBufferSize);
+        this.flowLearner = flowLearner;
+        if (flowLearner != null) {
+            // The flows dropped or expired by the learner have to be learned again
+            flowLearner.setForgottenFlowListener(flowKey -> pktInBuffer.remove(flowKey));
+        }
     }
 
     public int getMaxBufferTime() {
         return maxBufferTime;
     }
 
+    /**
+     * Set the time a flow is remembered. The flows already remembered are
+     * forgotten.
+     *
+     * @param maxBufferTime - the time in milliseconds
+     */
     public void setMaxBufferTime(int maxBufferTime) {
         this.maxBufferTime = maxBufferTime;
+        this.pktInBuffer = new SfcPacketInFlowCache(maxBufferTime, maxBufferSize);
     }
 
     public int getPacketCountPurge() {
         return packetCountPurge;
     }
 
+    /**
+     * Set the number of packets between two purges of all the expired
+     * flows. The flows are also expired as packets of the same cache
+     * segment are received.
+     *
+     * @param packetCountPurge - the number of packets
+     */
     public void setPacketCountPurge(int packetCountPurge) {
         this.packetCountPurge = packetCountPurge;
     }
@@ -84,6 +127,34 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
         return pktInBuffer.size();
     }
 
+    /**
+     * @return the number of packets received
+     */
+    public long getReceivedPackets() {
+        return receivedPackets.sum();
+    }
+
+    /**
+     * @return the number of packets of flows already handled
+     */
+    public long getDuplicatePackets() {
+        return duplicatePackets.sum();
+    }
+
+    /**
+     * @return the number of packets discarded: other cookies, non-IPv4 or malformed packets
+     */
+    public long getDroppedPackets() {
+        return droppedPackets.sum();
+    }
+
+    /**
+     * @return the number of flows evicted from the full buffer before they expired
+     */
+    public long getEvictedFlows() {
+        return pktInBuffer.getEvictions();
+    }
+
     /**
      * The handler function for IPv4 PktIn packets.
      *
@@ -95,14 +166,15 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
             return;
         }
 
-        ++packetCount;
-        if(packetCount > packetCountPurge) {
-            packetCount = 0;
+        receivedPackets.increment();
+        if(packetCount.incrementAndGet() > packetCountPurge) {
+            packetCount.set(0);
             purgePktInBuffer();
         }
 
         // Make sure the PacketIn is due to our Classification table pktInAction
         if(!this.flowProgrammer.compareClassificationTableCookie(packetIn.getFlowCookie())) {
+            droppedPackets.increment();
             LOG.debug("SfcIpv4PacketInHandler discarding packet by Flow Cookie");
             return;
         }
@@ -110,40 +182,40 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
         // TODO figure out how to get the IDataPacketService which will parse the packet for us
 
         final byte[] rawPacket = packetIn.getPayload();
+        if(rawPacket == null || rawPacket.length < PACKET_MIN_LENGTH) {
+            droppedPackets.increment();
+            LOG.debug("SfcIpv4PacketInHandler discarding truncated packet");
+            return;
+        }
 
         // Get the EtherType and check that its an IP packet
         if(getEtherType(rawPacket) != ETHERTYPE_IPV4) {
+            droppedPackets.increment();
             LOG.debug("SfcIpv4PacketInHandler discarding NON-IPv4");
             return;
         }
 
         // Get the SrcIp and DstIp Addresses
-        String pktSrcIpStr = getSrcIpStr(rawPacket);
-        if(pktSrcIpStr == null) {
-            LOG.error("SfcIpv4PacketInHandler Cant get Src IP address, discarding packet");
-            return;
-        }
-
-        String pktDstIpStr = getDstIpStr(rawPacket);
-        if(pktDstIpStr == null) {
-            LOG.error("SfcIpv4PacketInHandler Cant get Src IP address, discarding packet");
-            return;
-        }
+        final int pktSrcIp = getInt(rawPacket, PACKET_OFFSET_IP_SRC);
+        final int pktDstIp = getInt(rawPacket, PACKET_OFFSET_IP_DST);
 
         // Since all packets sent to SF are PktIn, only need to handle the first one
         // In OpenFlow 1.5 we'll be able to do the PktIn on TCP Syn only
-        if(bufferPktIn(pktSrcIpStr, pktDstIpStr)) {
-            LOG.info("SfcIpv4PacketInHandler PacketIn buffered");
+        if(bufferPktIn(pktSrcIp, pktDstIp)) {
+            duplicatePackets.increment();
+            LOG.trace("SfcIpv4PacketInHandler PacketIn buffered");
             return;
         }
-        LOG.info("SfcIpv4PacketInHandler PacketIn NOT buffered");
+        LOG.debug("SfcIpv4PacketInHandler PacketIn NOT buffered");
 
         // Get the metadata
         if(packetIn.getMatch() == null) {
+            droppedPackets.increment();
             LOG.error("SfcIpv4PacketInHandler Cant get packet flow match");
             return;
         }
         if(packetIn.getMatch().getMetadata() == null) {
+            droppedPackets.increment();
             LOG.error("SfcIpv4PacketInHandler Cant get packet flow match metadata");
             return;
         }
@@ -155,9 +227,6 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
         // Assuming the RSP is symmetric
         short dlPathId = (short) (ulPathId + 1);
 
-        LOG.info("SfcIpv4PacketInHandler Src IP [{}] Dst IP [{}] ulPathId [{}] dlPathId [{}]",
-                pktSrcIpStr, pktDstIpStr, ulPathId, dlPathId);
-
         // Get the Node name, by getting the following
         // - Ingress nodeConnectorRef
         // - instanceID for the Node in the tree above us
@@ -168,6 +237,18 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
                 .firstKeyOf(Node.class, NodeKey.class)
                 .getId().getValue();
 
+        if(flowLearner != null) {
+            flowLearner.learn(nodeName, pktSrcIp, pktDstIp, ulPathId, dlPathId);
+            return;
+        }
+
+        // The addresses are only formatted for the flows actually programmed
+        final String pktSrcIpStr = toIpStr(pktSrcIp);
+        final String pktDstIpStr = toIpStr(pktDstIp);
+
+        LOG.info("SfcIpv4PacketInHandler Src IP [{}] Dst IP [{}] ulPathId [{}] dlPathId [{}]",
+                pktSrcIpStr, pktDstIpStr, ulPathId, dlPathId);
+
         // Configure the uplink packet
         if(ulPathId >= 0) {
             this.flowProgrammer.setFlowRspId(new Long(ulPathId));
@@ -179,10 +260,19 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
             this.flowProgrammer.setFlowRspId(new Long(dlPathId));
             this.flowProgrammer.configurePathMapperAclFlow(nodeName, pktDstIpStr, pktSrcIpStr, dlPathId);
         }
+
+        // The flows to be written are kept per thread, so they have
+        // to be flushed by the thread that created them
+        this.flowProgrammer.flushFlows();
     }
 
     @Override
     public void close() throws Exception {
+        LOG.info("close: received packets [{}], duplicate packets [{}], dropped packets [{}], evicted flows [{}]",
+                getReceivedPackets(), getDuplicatePackets(), getDroppedPackets(), getEvictedFlows());
+        if(flowLearner != null) {
+            flowLearner.close();
+        }
     }
 
     /**
@@ -192,105 +282,57 @@ public class SfcIpv4PacketInHandler implements PacketProcessingListener, AutoClo
      * @return etherType
      */
     private short getEtherType(final byte[] rawPacket) {
-        final byte[] etherTypeBytes = Arrays.copyOfRange(rawPacket, PACKET_OFFSET_ETHERTYPE, PACKET_OFFSET_ETHERTYPE+2);
-        return packShort(etherTypeBytes);
+        return (short) (((rawPacket[PACKET_OFFSET_ETHERTYPE] & 0xff) << 8)
+                | (rawPacket[PACKET_OFFSET_ETHERTYPE+1] & 0xff));
     }
 
     /**
-     * Given a raw packet, return the SrcIp
+     * Simple internal utility function to read a 4-byte network order int
      *
-     * @param rawPacket
-     * @return srcIp String
-     */
-    private String getSrcIpStr(final byte[] rawPacket) {
-        final byte[] ipSrcBytes = Arrays.copyOfRange(rawPacket, PACKET_OFFSET_IP_SRC, PACKET_OFFSET_IP_SRC+4);
-        String pktSrcIpStr = null;
-        try {
-            pktSrcIpStr = InetAddress.getByAddress(ipSrcBytes).getHostAddress();
-        } catch(Exception e) {
-            LOG.error("Exception getting Src IP address [{}]", e.getMessage(), e);
-        }
-
-        return pktSrcIpStr;
-    }
-
-    /**
-     * Given a raw packet, return the DstIp
-     *
-     * @param rawPacket
-     * @return dstIp String
+     * @param bytes
+     * @param offset
+     * @return the bytes packed into an int
      */
-    private String getDstIpStr(final byte[] rawPacket) {
-        final byte[] ipDstBytes = Arrays.copyOfRange(rawPacket, PACKET_OFFSET_IP_DST, PACKET_OFFSET_IP_DST+4);
-        String pktDstIpStr = null;
-        try {
-            pktDstIpStr = InetAddress.getByAddress(ipDstBytes).getHostAddress();
-        } catch(Exception e) {
-            LOG.error("Exception getting Dst IP address [{}]", e.getMessage(), e);
-        }
-
-        return pktDstIpStr;
+    private static int getInt(final byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24)
+                | ((bytes[offset+1] & 0xff) << 16)
+                | ((bytes[offset+2] & 0xff) << 8)
+                | (bytes[offset+3] & 0xff);
     }
 
     /**
-     * Simple internal utility function to convert from a 2-byte array to a short
+     * Format an IPv4 address in dotted decimal notation
      *
-     * @param bytes
-     * @return the bytes packed into a short
+     * @param ip
+     * @return the address String
      */
-    private short packShort(byte[] bytes) {
-        short val = (short) 0;
-        for (int i = 0; i < 2; i++) {
-          val <<= 8;
-          val |= bytes[i] & 0xff;
-        }
-
-        return val;
+    static String toIpStr(int ip) {
+        return new StringBuilder(15)
+                .append((ip >>> 24) & 0xff).append('.')
+                .append((ip >>> 16) & 0xff).append('.')
+                .append((ip >>> 8) & 0xff).append('.')
+                .append(ip & 0xff)
+                .toString();
     }
 
     /**
      * Decide if packets with the same src/dst IP have already been processed.
      * If they havent been processed, store the IPs so they will be considered processed.
      *
-     * @param srcIpStr
-     * @param dstIpStr
+     * @param srcIp
+     * @param dstIp
      * @return True if the src/dst IP has already been processed, False otherwise
      */
-    private boolean bufferPktIn(final String srcIpStr, final String dstIpStr) {
-        String key = new StringBuilder().append(srcIpStr).append(dstIpStr).toString();
-        long currentMillis = System.currentTimeMillis();
-
-        Long bufferedTime = pktInBuffer.get(key);
-
-        // If the entry does not exist, add it and return false indicating the packet needs to be processed
-        if(bufferedTime == null) {
-            // Add the entry
-            pktInBuffer.put(key, new Long(currentMillis));
-            return false;
-        }
-
-        // If the entry is old, update it and return false indicating the packet needs to be processed
-        if((currentMillis - bufferedTime.longValue()) > maxBufferTime) {
-            // Update the entry
-            pktInBuffer.put(key, new Long(currentMillis));
-            return false;
-        }
-
-        return true;
+    private boolean bufferPktIn(final int srcIp, final int dstIp) {
+        return pktInBuffer.checkAndAdd(SfcPacketInFlowCache.flowKey(srcIp, dstIp), System.currentTimeMillis());
     }
 
     /**
      * Purge packets that have been in the PktIn buffer too long.
      */
     private void purgePktInBuffer() {
-        long currentMillis = System.currentTimeMillis();
-        Set<String> keySet = pktInBuffer.keySet();
-        for(String key : keySet) {
-            Long bufferedTime = pktInBuffer.get(key);
-            if((currentMillis - bufferedTime.longValue()) > maxBufferTime) {
-                // This also removes the entry from the pktInBuffer map and doesnt invalidate iteration
-                keySet.remove(key);
-            }
-        }
+        pktInBuffer.expire(System.currentTimeMillis());
+        LOG.debug("SfcIpv4PacketInHandler received [{}] duplicate [{}] dropped [{}] buffered [{}]",
+                getReceivedPackets(), getDuplicatePackets(), getDroppedPackets(), getBufferSize());
     }
 }
@@ -27,8 +27,11 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.acti
 import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.action.list.Action;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.action.list.ActionBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.action.list.ActionKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.FlowCookie;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.FlowModFlags;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.OutputPortValues;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.InstructionsBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.MatchBuilder;
@@ -113,21 +116,21 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
     private short tableBase;
     // Used for app-coexistence
     private short tableEgress;
-    private Long flowRspId;
     private SfcOfFlowWriterInterface sfcOfFlowWriter = null;
 
-    private SfcTableIndexMapper tableIndexMapper = null;
+    // Several RSPs may be processed concurrently, each one in its own
+    // thread, so the RSP id and table index mapper are kept per thread
+    private final ThreadLocal<Long> flowRspId = ThreadLocal.withInitial(() -> 0L);
+    private final ThreadLocal<SfcTableIndexMapper> tableIndexMapper = new ThreadLocal<>();
 
     public SfcOfFlowProgrammerImpl() {
         this.tableBase = APP_COEXISTENCE_NOT_SET;
         this.tableEgress = APP_COEXISTENCE_NOT_SET;
-        this.flowRspId = new Long(0);
     }
 
     public SfcOfFlowProgrammerImpl(SfcOfFlowWriterInterface sfcOfFlowWriter) {
         this.tableBase = APP_COEXISTENCE_NOT_SET;
         this.tableEgress = APP_COEXISTENCE_NOT_SET;
-        this.flowRspId = new Long(0);
         this.sfcOfFlowWriter = sfcOfFlowWriter;
     }
 
@@ -173,7 +176,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
 
     @Override
     public void setFlowRspId(Long rspId) {
-        this.flowRspId = rspId;
+        this.flowRspId.set(rspId);
     }
 
     @Override
@@ -184,6 +187,16 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         return nodes;
     }
 
+    @Override
+    public void startRspFlowsUpdate(final long rspId) {
+        sfcOfFlowWriter.startRspFlowsUpdate(rspId);
+    }
+
+    @Override
+    public Set<NodeId> flushRspFlowsUpdate() {
+        return sfcOfFlowWriter.flushRspFlowsUpdate();
+    }
+
     @Override
     public void flushFlows() {
         this.sfcOfFlowWriter.flushFlows();
@@ -235,7 +248,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTableMatchAnyFlow(
                         getTableId(TABLE_INDEX_CLASSIFIER),
                         getTableId(TABLE_INDEX_TRANSPORT_INGRESS));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, flowBuilder);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, flowBuilder);
     }
 
     /**
@@ -271,7 +284,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                         "classifier_dpdk_output",
                         match, isb);
 
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, classifierDpdkOutputFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, classifierDpdkOutputFlow);
     }
 
     /**
@@ -306,7 +319,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                         "classifier_dpdk_input",
                         match, isb);
 
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, classifierDpdkInputFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, classifierDpdkInputFlow);
     }
 
     /**
@@ -324,7 +337,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         FlowBuilder flowBuilder =
                 configureTableMatchAnyDropFlow(
                         getTableId(TABLE_INDEX_TRANSPORT_INGRESS));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, flowBuilder);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, flowBuilder);
     }
 
     /**
@@ -339,7 +352,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTableMatchAnyFlow(
                         getTableId(TABLE_INDEX_PATH_MAPPER),
                         getTableId(TABLE_INDEX_PATH_MAPPER_ACL));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, flowBuilder);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, flowBuilder);
     }
 
     /**
@@ -354,7 +367,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTableMatchAnyFlow(
                         getTableId(TABLE_INDEX_PATH_MAPPER_ACL),
                         getTableId(TABLE_INDEX_NEXT_HOP));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, flowBuilder);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, flowBuilder);
     }
 
     /**
@@ -369,7 +382,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTableMatchAnyFlow(
                         getTableId(TABLE_INDEX_NEXT_HOP),
                         getTableId(TABLE_INDEX_TRANSPORT_EGRESS));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, flowBuilder);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, flowBuilder);
     }
 
     /**
@@ -383,7 +396,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         FlowBuilder flowBuilder =
                 configureTableMatchAnyDropFlow(
                         getTableId(TABLE_INDEX_TRANSPORT_EGRESS));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, flowBuilder);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, flowBuilder);
     }
 
     /**
@@ -449,13 +462,13 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTransportIngressFlow(
                         SfcOpenflowUtils.ETHERTYPE_IPV4,
                         SfcOpenflowUtils.IP_PROTOCOL_TCP);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportIngressFlowTcp);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportIngressFlowTcp);
 
         FlowBuilder transportIngressFlowUdp =
                 configureTransportIngressFlow(
                         SfcOpenflowUtils.ETHERTYPE_IPV4,
                         SfcOpenflowUtils.IP_PROTOCOL_UDP);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportIngressFlowUdp);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportIngressFlowUdp);
     }
 
     /**
@@ -476,7 +489,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         match.setVlanMatch(vlanBuilder.build());
 
         FlowBuilder transportIngressFlow = configureTransportIngressFlow(match);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportIngressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportIngressFlow);
     }
 
     /**
@@ -490,7 +503,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
 
         FlowBuilder transportIngressFlow =
                 configureTransportIngressFlow(match, getTableId(TABLE_INDEX_NEXT_HOP));
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportIngressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportIngressFlow);
     }
 
     /**
@@ -502,7 +515,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
     public void configureMplsTransportIngressFlow(final String sffNodeName) {
         FlowBuilder transportIngressFlow =
                 configureTransportIngressFlow(SfcOpenflowUtils.ETHERTYPE_MPLS_UCAST);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportIngressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportIngressFlow);
     }
 
     /**
@@ -604,7 +617,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                         "ingress_Transport_Arp_Flow",
                         match, isb);
 
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, arpTransportIngressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, arpTransportIngressFlow);
     }
 
     @Override
@@ -631,7 +644,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                         "ingress_Transport_Arp_Flow",
                         match, isb);
 
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, sfFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, sfFlow);
     }
 
     @Override
@@ -656,7 +669,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                         "ingress_Transport_Arp_Flow",
                         match, isb);
 
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, sfFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, sfFlow);
     }
 
 
@@ -687,7 +700,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         } else {
             pathMapperFlow = configurePathMapperFlow(pathId, match, actionList);
         }
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, pathMapperFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, pathMapperFlow);
     }
 
     /**
@@ -713,7 +726,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         } else {
             pathMapperFlow = configurePathMapperFlow(pathId, match, actionList);
         }
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, pathMapperFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, pathMapperFlow);
     }
 
     /**
@@ -781,8 +794,9 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
      * @param pktSrcIpStr - Src IP to match on
      * @param pktDstIpStr - Src IP to match on
      * @param pathId - the RSP ID to write to the metadata
+     * @return the key of the flow written
      */
-    public void configurePathMapperAclFlow(final String sffNodeName, final String pktSrcIpStr, final String pktDstIpStr,
+    public FlowKey configurePathMapperAclFlow(final String sffNodeName, final String pktSrcIpStr, final String pktDstIpStr,
             short pathId) {
         LOG.debug(
                 "SfcProviderSffFlowWriter.configurePathMapperAclFlow sff [{}] srcIp [{}] dstIp [{}] pathId [{}]",
@@ -803,10 +817,40 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 FLOW_PRIORITY_PATH_MAPPER_ACL,
                 "nextHop",
                 match, isb);
-        // Set an idle timeout on this flow
+        // Set an idle timeout on this flow, and get notified of its removal
         ingressFlow.setIdleTimeout(PKTIN_IDLE_TIMEOUT);
+        ingressFlow.setFlags(new FlowModFlags(false, false, false, false, true));
+
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, ingressFlow);
+        return ingressFlow.getKey();
+    }
+
+    /**
+     * @return the table the flows of configurePathMapperAclFlow() are written to
+     */
+    public short getPathMapperAclTableId() {
+        return getTableId(TABLE_INDEX_PATH_MAPPER_ACL);
+    }
+
+    /**
+     * Remove a flow written by configurePathMapperAclFlow(), unless it was
+     * already removed with its RSP. The flow is deleted with the next
+     * deleteFlowSet().
+     *
+     * @param sffNodeName - the SFF the flow was written to
+     * @param pathId - the RSP ID the flow was written for
+     * @param flowKey - the key returned by configurePathMapperAclFlow()
+     */
+    public void removePathMapperAclFlow(final String sffNodeName, short pathId, FlowKey flowKey) {
+        sfcOfFlowWriter.removeRspFlow((long) pathId, sffNodeName, flowKey,
+                new TableKey(getTableId(TABLE_INDEX_PATH_MAPPER_ACL)));
+    }
 
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, ingressFlow);
+    /**
+     * Delete the flows removed by the calling thread
+     */
+    public void deleteFlowSet() {
+        sfcOfFlowWriter.deleteFlowSet();
     }
 
     //
@@ -843,7 +887,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         }
 
         FlowBuilder nextHopFlow = configureNextHopFlow(match, actionList, flowPriority);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, nextHopFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, nextHopFlow);
     }
 
     /**
@@ -868,7 +912,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         }
 
         FlowBuilder nextHopFlow = configureNextHopFlow(match, actionList);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, nextHopFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, nextHopFlow);
     }
 
     /**
@@ -897,7 +941,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 order++));
 
         FlowBuilder nextHopFlow = configureNextHopFlow(match, actionList);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, nextHopFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, nextHopFlow);
     }
 
     /**
@@ -965,7 +1009,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureMacTransportEgressFlow(
                         match, actionList, port, order, pathId, srcMac, dstMac,
                         TRANSPORT_EGRESS_VLAN_SF_COOKIE);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     /**
@@ -1041,7 +1085,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         FlowBuilder transportEgressFlow =
                 configureMacTransportEgressFlow(
                         match, actionList, port, order, pathId, srcMac, dstMac, cookieStr);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     /**
@@ -1116,7 +1160,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
         FlowBuilder transportEgressFlow =
                 configureMacTransportEgressFlow(
                         match, actionList, port, order, pathId, srcMac, dstMac, cookieStr);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     /**
@@ -1150,7 +1194,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTransportEgressFlow(match, actionList, port, order,
                         FLOW_PRIORITY_TRANSPORT_EGRESS,
                         TRANSPORT_EGRESS_NSH_VXGPE_LASTHOP_COOKIE);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     /**
@@ -1202,7 +1246,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 cookie,
                 "last hop egress flow", match, isb);
 
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, fb);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, fb);
     }
 
 
@@ -1263,7 +1307,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 configureTransportEgressFlow(match, actionList, outport, order,
                         flowPriority,
                         TRANSPORT_EGRESS_NSH_VXGPE_COOKIE);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     /**
@@ -1296,7 +1340,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                         match, new ArrayList<>(), port,
                         order, FLOW_PRIORITY_TRANSPORT_EGRESS + 10,
                         TRANSPORT_EGRESS_NSH_VXGPE_NSC_COOKIE);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     @Override
@@ -1335,7 +1379,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                         match, actionList, EMPTY_SWITCH_PORT,
                         order, FLOW_PRIORITY_TRANSPORT_EGRESS + 10,
                         TRANSPORT_EGRESS_NSH_VXGPE_APPCOEXIST_COOKIE);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     /**
@@ -1365,7 +1409,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                         match, actionList, port, order,
                         FLOW_PRIORITY_TRANSPORT_EGRESS,
                         TRANSPORT_EGRESS_NSH_ETH_COOKIE);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, transportEgressFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, transportEgressFlow);
     }
 
     /**
@@ -1552,7 +1596,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 SfcOpenflowUtils.createFlowBuilder(
                         getTableId(TABLE_INDEX_NEXT_HOP),
                         flowPriority, "nextHop", match, isb);
-        sfcOfFlowWriter.writeFlow(flowRspId, sffNodeName, nextHopFlow);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), sffNodeName, nextHopFlow);
     }
 
     private static BigInteger getMetadataSFP(long sfpId) {
@@ -1573,9 +1617,10 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
 
         // A transport processor can provide a table index mapper in order
         // to retrieve table positions
-        if (tableIndexMapper != null
-                && tableIndexMapper.getTableIndex(tableIndex).isPresent()) {
-            return tableIndexMapper.getTableIndex(tableIndex).get();
+        SfcTableIndexMapper mapper = tableIndexMapper.get();
+        if (mapper != null
+                && mapper.getTableIndex(tableIndex).isPresent()) {
+            return mapper.getTableIndex(tableIndex).get();
         }
 
         if(getTableBase() > APP_COEXISTENCE_NOT_SET) {
@@ -1615,7 +1660,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
                 flowPriority,
                 cookie,
                 "default egress flow", match, isb);
-        sfcOfFlowWriter.writeFlow(flowRspId, openflowName, transportEgressFlowBuilder);
+        sfcOfFlowWriter.writeFlow(flowRspId.get(), openflowName, transportEgressFlowBuilder);
     }
 
     @Override
@@ -1630,7 +1675,7 @@ public class SfcOfFlowProgrammerImpl implements SfcOfFlowProgrammerInterface {
 
     @Override
     public void setTableIndexMapper(SfcTableIndexMapper tableIndexMapper) {
-        this.tableIndexMapper = tableIndexMapper;
+        this.tableIndexMapper.set(tableIndexMapper);
     }
 
 }
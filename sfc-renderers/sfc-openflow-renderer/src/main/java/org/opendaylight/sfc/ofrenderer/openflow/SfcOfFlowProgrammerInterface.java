@@ -55,6 +55,23 @@ public interface SfcOfFlowProgrammerInterface {
      */
     public Set<NodeId> deleteRspFlows(final long rspId);
 
+    /**
+     * Starts updating the flows of an RSP: the flows created from now on
+     * for the RSP replace its current flows, see flushRspFlowsUpdate().
+     *
+     * @param rspId the id of the RSP to be updated
+     */
+    public void startRspFlowsUpdate(final long rspId);
+
+    /**
+     * Writes the flows of the updated RSP which changed, deletes its flows
+     * which were not created again, and removes initialization flows from
+     * the SFFs which are no longer featured in any RSP.
+     *
+     * @return Node IDs from which initialization flows were removed.
+     */
+    public Set<NodeId> flushRspFlowsUpdate();
+
     // Write any buffered flows to the data store
     public void flushFlows();
 
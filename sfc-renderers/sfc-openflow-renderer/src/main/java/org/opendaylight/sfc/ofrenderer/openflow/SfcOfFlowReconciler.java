@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import com.google.common.base.Optional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.ReadOnlyTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.ReadFailedException;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowRegistry.RegisteredFlow;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterImpl.FlowDetails;
+import org.opendaylight.sfc.util.openflow.SfcOpenflowUtils;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.RenderedServicePaths;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNode;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.Table;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.Nodes;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.Node;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reconciliation of the rendered flows with the flows already in the
+ * CONFIGURATION inventory when the renderer starts.
+ * <p>
+ * With flow ids derived from the flow content, rendering the existing RSPs
+ * again after a restart produces the keys of the flows already in the data
+ * store. The reconciler takes a snapshot of those flows at startup; while
+ * the RSPs are rendered again, the writes of flows identical to the ones in
+ * the snapshot are dropped, and every flow written or deleted is removed
+ * from the snapshot. Once all the RSPs known at startup are rendered, what
+ * is left in the snapshot is stale and has to be deleted.
+ * <p>
+ * Only the flows with a content derived id are reconciled, the other flows
+ * in the inventory are not owned by the renderer.
+ */
+public class SfcOfFlowReconciler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcOfFlowReconciler.class);
+
+    // Guarded by this
+    private final Map<RegisteredFlow, Flow> existingFlows;
+    private final Set<Long> pendingRspIds;
+    private boolean finished = false;
+
+    // Statistics
+    private long skippedWrites = 0;
+
+    /**
+     * @param existingFlows - the flows in the data store at startup
+     * @param rspIds - the RSPs to render before the remaining flows are stale
+     */
+    public SfcOfFlowReconciler(Map<RegisteredFlow, Flow> existingFlows, Collection<Long> rspIds) {
+        this.existingFlows = new HashMap<>(existingFlows);
+        this.pendingRspIds = new HashSet<>(rspIds);
+    }
+
+    /**
+     * Create a reconciler from the flows in the CONFIGURATION inventory and
+     * the RSPs in the OPERATIONAL data store
+     *
+     * @param dataBroker - the data broker to read from
+     * @return the reconciler, or null if the data store could not be read
+     */
+    public static SfcOfFlowReconciler create(DataBroker dataBroker) {
+        Map<RegisteredFlow, Flow> existingFlows = new HashMap<>();
+        List<Long> rspIds = new ArrayList<>();
+
+        ReadOnlyTransaction readTx = dataBroker.newReadOnlyTransaction();
+        try {
+            Optional<Nodes> nodes = readTx.read(LogicalDatastoreType.CONFIGURATION,
+                    InstanceIdentifier.create(Nodes.class)).checkedGet();
+            if (nodes.isPresent() && nodes.get().getNode() != null) {
+                for (Node node : nodes.get().getNode()) {
+                    addExistingFlows(node, existingFlows);
+                }
+            }
+
+            Optional<RenderedServicePaths> rsps = readTx.read(LogicalDatastoreType.OPERATIONAL,
+                    InstanceIdentifier.create(RenderedServicePaths.class)).checkedGet();
+            if (rsps.isPresent() && rsps.get().getRenderedServicePath() != null) {
+                for (RenderedServicePath rsp : rsps.get().getRenderedServicePath()) {
+                    rspIds.add(rsp.getPathId());
+                }
+            }
+        } catch (ReadFailedException e) {
+            LOG.warn("create: failed to read the existing flows, reconciliation disabled", e);
+            return null;
+        } finally {
+            readTx.close();
+        }
+
+        LOG.info("create: reconciling [{}] existing flows for [{}] RSPs", existingFlows.size(), rspIds.size());
+        return new SfcOfFlowReconciler(existingFlows, rspIds);
+    }
+
+    private static void addExistingFlows(Node node, Map<RegisteredFlow, Flow> existingFlows) {
+        FlowCapableNode flowCapableNode = node.getAugmentation(FlowCapableNode.class);
+        if (flowCapableNode == null || flowCapableNode.getTable() == null) {
+            return;
+        }
+        for (Table table : flowCapableNode.getTable()) {
+            if (table.getFlow() == null) {
+                continue;
+            }
+            for (Flow flow : table.getFlow()) {
+                if (flow.getId() != null
+                        && flow.getId().getValue().startsWith(SfcOpenflowUtils.DETERMINISTIC_FLOW_ID_PREFIX)) {
+                    existingFlows.put(new RegisteredFlow(node.getId().getValue(), table.getKey(), flow.getKey()),
+                            flow);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the writes of the flows already in the data store with the same
+     * content.
+     *
+     * @param flowsToWrite - the flows about to be written
+     * @return the flows which still have to be written
+     */
+    public synchronized Collection<FlowDetails> filterWrites(Collection<FlowDetails> flowsToWrite) {
+        if (finished) {
+            return flowsToWrite;
+        }
+        List<FlowDetails> filteredFlows = new ArrayList<>(flowsToWrite.size());
+        for (FlowDetails flow : flowsToWrite) {
+            Flow existingFlow = existingFlows.remove(new RegisteredFlow(flow.sffNodeName, flow.tableKey, flow.flowKey));
+            if (existingFlow != null && existingFlow.equals(flow.flow)) {
+                skippedWrites++;
+            } else {
+                filteredFlows.add(flow);
+            }
+        }
+        return filteredFlows;
+    }
+
+    /**
+     * Forget the flows about to be deleted, they are no longer stale
+     * candidates.
+     *
+     * @param flowsToDelete - the flows about to be deleted
+     */
+    public synchronized void deleted(Collection<FlowDetails> flowsToDelete) {
+        if (finished) {
+            return;
+        }
+        for (FlowDetails flow : flowsToDelete) {
+            existingFlows.remove(new RegisteredFlow(flow.sffNodeName, flow.tableKey, flow.flowKey));
+        }
+    }
+
+    /**
+     * Check whether all the RSPs known at startup have been rendered.
+     *
+     * @param flowRegistry - the registry of the flows written for each RSP
+     * @return true if all the RSPs have flows in the registry
+     */
+    public synchronized boolean isComplete(SfcOfFlowRegistry flowRegistry) {
+        pendingRspIds.removeIf(flowRegistry::containsRsp);
+        return pendingRspIds.isEmpty();
+    }
+
+    /**
+     * End the reconciliation.
+     *
+     * @return the stale flows, to be deleted, or an empty list if the
+     *         reconciliation already ended
+     */
+    public synchronized List<RegisteredFlow> finish() {
+        if (finished) {
+            return Collections.emptyList();
+        }
+        finished = true;
+        List<RegisteredFlow> staleFlows = new ArrayList<>(existingFlows.keySet());
+        LOG.info("finish: skipped [{}] unchanged flow writes, deleting [{}] stale flows, [{}] RSPs not rendered",
+                skippedWrites, staleFlows.size(), pendingRspIds.size());
+        existingFlows.clear();
+        pendingRspIds.clear();
+        return staleFlows;
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    public synchronized long getSkippedWrites() {
+        return skippedWrites;
+    }
+}
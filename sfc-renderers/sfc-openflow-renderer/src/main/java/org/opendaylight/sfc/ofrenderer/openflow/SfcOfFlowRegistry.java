@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+
+/**
+ * Registry of the flows written for each RSP, indexed per SFF, so that the
+ * flows can be deleted when the RSP is deleted.
+ * <p>
+ * The flows are stored as table ids and flow ids in arrays, per RSP and SFF,
+ * and only turned into keys when they are unregistered. A reverse index keeps,
+ * per SFF, the number of RSPs with flows on it. The flows shared by all the RSPs
+ * (the SFF initialization flows) are registered under a dedicated id, which is
+ * not counted in the reverse index. An SFF with shared flows and no RSP is an
+ * orphan: the orphans are tracked as the reference counts change, so finding
+ * them does not depend on the number of RSPs.
+ * <p>
+ * A digest of the content of each flow may be registered with it, so that an
+ * updated RSP only rewrites the flows whose content changed. Only the 64-bit
+ * digest is kept, not the flow itself.
+ */
+public class SfcOfFlowRegistry {
+
+    private final long sharedFlowsId;
+
+    // RSP id -> SFF node name -> flows
+    private final Map<Long, Map<String, FlowEntries>> flowsPerRsp;
+    // SFF node name -> number of RSPs with flows on the SFF, shared flows excluded
+    private final Map<String, Integer> rspCountPerSff;
+    // SFFs with shared flows which may not be featured in any RSP
+    private final Set<String> orphanSffs;
+
+    /**
+     * @param sharedFlowsId - the id the flows shared by all the RSPs are registered with
+     */
+    public SfcOfFlowRegistry(long sharedFlowsId) {
+        this.sharedFlowsId = sharedFlowsId;
+        this.flowsPerRsp = new ConcurrentHashMap<>();
+        this.rspCountPerSff = new ConcurrentHashMap<>();
+        this.orphanSffs = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Register a flow written for an RSP
+     *
+     * @param rspId - the RSP the flow belongs to, or the shared flows id
+     * @param sffNodeName - the SFF the flow is written to
+     * @param tableId - the table the flow is written to
+     * @param flowKey - the flow key
+     */
+    public void register(long rspId, String sffNodeName, short tableId, FlowKey flowKey) {
+        register(rspId, sffNodeName, tableId, flowKey, null);
+    }
+
+    /**
+     * Register a flow written for an RSP, with the digest of its content
+     *
+     * @param rspId - the RSP the flow belongs to, or the shared flows id
+     * @param sffNodeName - the SFF the flow is written to
+     * @param tableId - the table the flow is written to
+     * @param flowKey - the flow key
+     * @param content - the flow content, null if unknown
+     */
+    public void register(long rspId, String sffNodeName, short tableId, FlowKey flowKey, Flow content) {
+        Map<String, FlowEntries> flowsPerSff = flowsPerRsp.computeIfAbsent(rspId, k -> new ConcurrentHashMap<>());
+        FlowEntries entries = flowsPerSff.get(sffNodeName);
+        if (entries == null) {
+            FlowEntries newEntries = new FlowEntries();
+            entries = flowsPerSff.putIfAbsent(sffNodeName, newEntries);
+            if (entries == null) {
+                entries = newEntries;
+                sffAdded(rspId, sffNodeName);
+            }
+        }
+        entries.add(tableId, flowKey.getId().getValue(), RegisteredFlow.getContentDigest(content));
+    }
+
+    /**
+     * Unregister a single flow of an RSP. The SFF stays counted for the RSP,
+     * even if it has no flow left.
+     *
+     * @param rspId - the RSP the flow belongs to
+     * @param sffNodeName - the SFF the flow is written to
+     * @param tableId - the table the flow is written to
+     * @param flowKey - the flow key
+     * @return true if the flow was registered
+     */
+    public boolean unregister(long rspId, String sffNodeName, short tableId, FlowKey flowKey) {
+        Map<String, FlowEntries> flowsPerSff = flowsPerRsp.get(rspId);
+        if (flowsPerSff == null) {
+            return false;
+        }
+        FlowEntries entries = flowsPerSff.get(sffNodeName);
+        return entries != null && entries.remove(tableId, flowKey.getId().getValue());
+    }
+
+    /**
+     * Replace all the flows of an RSP. The SFFs of the new flows are counted
+     * before the SFFs of the previous flows are released, so an SFF featured
+     * in both is never seen as an orphan in between.
+     *
+     * @param rspId - the RSP to register
+     * @param flows - the new flows of the RSP
+     * @return the previous flows of the RSP, empty if the RSP was not registered
+     */
+    public List<RegisteredFlow> replaceRsp(long rspId, Collection<RegisteredFlow> flows) {
+        Map<String, FlowEntries> newFlowsPerSff = new ConcurrentHashMap<>();
+        for (RegisteredFlow flow : flows) {
+            newFlowsPerSff.computeIfAbsent(flow.getSffNodeName(), k -> new FlowEntries())
+                .add(flow.getTableKey().getId(), flow.getFlowKey().getId().getValue(), flow.getContentDigest());
+        }
+
+        Map<String, FlowEntries> previousFlowsPerSff = newFlowsPerSff.isEmpty()
+                ? flowsPerRsp.remove(rspId)
+                : flowsPerRsp.put(rspId, newFlowsPerSff);
+        if (previousFlowsPerSff == null) {
+            previousFlowsPerSff = Collections.emptyMap();
+        }
+
+        for (String sffNodeName : newFlowsPerSff.keySet()) {
+            if (!previousFlowsPerSff.containsKey(sffNodeName)) {
+                sffAdded(rspId, sffNodeName);
+            }
+        }
+        List<RegisteredFlow> previousFlows = new ArrayList<>();
+        previousFlowsPerSff.forEach((sffNodeName, entries) -> {
+            entries.addTo(sffNodeName, previousFlows);
+            if (!newFlowsPerSff.containsKey(sffNodeName)) {
+                sffRemoved(rspId, sffNodeName);
+            }
+        });
+        return previousFlows;
+    }
+
+    /**
+     * Unregister all the flows of an RSP
+     *
+     * @param rspId - the RSP to unregister
+     * @return the flows of the RSP, or null if the RSP is not registered
+     */
+    public List<RegisteredFlow> unregisterRsp(long rspId) {
+        Map<String, FlowEntries> flowsPerSff = flowsPerRsp.remove(rspId);
+        if (flowsPerSff == null) {
+            return null;
+        }
+
+        List<RegisteredFlow> flows = new ArrayList<>();
+        flowsPerSff.forEach((sffNodeName, entries) -> {
+            entries.addTo(sffNodeName, flows);
+            sffRemoved(rspId, sffNodeName);
+        });
+        return flows;
+    }
+
+    /**
+     * Unregister the shared flows of the SFFs not featured in any RSP
+     *
+     * @return the shared flows of each orphan SFF
+     */
+    public Map<String, List<RegisteredFlow>> unregisterOrphanSffs() {
+        return unregisterOrphanSffs(null);
+    }
+
+    /**
+     * Unregister the shared flows of the given SFFs, if they are not featured
+     * in any RSP
+     *
+     * @param sffNodeNames - the SFFs to consider, null for all the SFFs
+     * @return the shared flows of each orphan SFF
+     */
+    public Map<String, List<RegisteredFlow>> unregisterOrphanSffs(Collection<String> sffNodeNames) {
+        Map<String, List<RegisteredFlow>> flowsPerOrphanSff = new HashMap<>();
+        Map<String, FlowEntries> sharedFlows = flowsPerRsp.get(sharedFlowsId);
+        if (sharedFlows == null) {
+            return flowsPerOrphanSff;
+        }
+
+        Iterator<String> iter = orphanSffs.iterator();
+        while (iter.hasNext()) {
+            String sffNodeName = iter.next();
+            if (sffNodeNames != null && !sffNodeNames.contains(sffNodeName)) {
+                continue;
+            }
+            iter.remove();
+            if (rspCountPerSff.containsKey(sffNodeName)) {
+                continue;
+            }
+            FlowEntries entries = sharedFlows.remove(sffNodeName);
+            if (entries != null) {
+                List<RegisteredFlow> flows = new ArrayList<>();
+                entries.addTo(sffNodeName, flows);
+                flowsPerOrphanSff.put(sffNodeName, flows);
+            }
+        }
+        return flowsPerOrphanSff;
+    }
+
+    private void sffAdded(long rspId, String sffNodeName) {
+        if (rspId == sharedFlowsId) {
+            rspCountPerSff.compute(sffNodeName, (sff, count) -> {
+                if (count == null) {
+                    orphanSffs.add(sff);
+                }
+                return count;
+            });
+        } else {
+            rspCountPerSff.compute(sffNodeName, (sff, count) -> {
+                orphanSffs.remove(sff);
+                return count == null ? 1 : count + 1;
+            });
+        }
+    }
+
+    private void sffRemoved(long rspId, String sffNodeName) {
+        if (rspId == sharedFlowsId) {
+            orphanSffs.remove(sffNodeName);
+            return;
+        }
+        rspCountPerSff.compute(sffNodeName, (sff, count) -> {
+            if (count == null || count <= 1) {
+                Map<String, FlowEntries> sharedFlows = flowsPerRsp.get(sharedFlowsId);
+                if (sharedFlows != null && sharedFlows.containsKey(sff)) {
+                    orphanSffs.add(sff);
+                }
+                return null;
+            }
+            return count - 1;
+        });
+    }
+
+    /**
+     * Remove all the registered flows
+     */
+    public void clear() {
+        flowsPerRsp.clear();
+        rspCountPerSff.clear();
+        orphanSffs.clear();
+    }
+
+    public boolean containsRsp(long rspId) {
+        return flowsPerRsp.containsKey(rspId);
+    }
+
+    /**
+     * @return the ids of the registered RSPs, including the shared flows id
+     */
+    public Set<Long> getRspIds() {
+        return Collections.unmodifiableSet(new HashSet<>(flowsPerRsp.keySet()));
+    }
+
+    /**
+     * @param rspId - the RSP, or the shared flows id
+     * @return a copy of the flows registered for the RSP, empty if the RSP is not registered
+     */
+    public List<RegisteredFlow> getFlows(long rspId) {
+        List<RegisteredFlow> flows = new ArrayList<>();
+        Map<String, FlowEntries> flowsPerSff = flowsPerRsp.get(rspId);
+        if (flowsPerSff != null) {
+            flowsPerSff.forEach((sffNodeName, entries) -> entries.addTo(sffNodeName, flows));
+        }
+        return flows;
+    }
+
+    /**
+     * @param sffNodeName - the SFF node name
+     * @return the number of RSPs with flows on the SFF, shared flows excluded
+     */
+    public int getRspCount(String sffNodeName) {
+        Integer count = rspCountPerSff.get(sffNodeName);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * The table and flow ids, and the content digests, of the flows of an RSP in an SFF.
+     */
+    private static class FlowEntries {
+        private static final int INITIAL_CAPACITY = 8;
+
+        // Guarded by this
+        private short[] tableIds = new short[INITIAL_CAPACITY];
+        private String[] flowIds = new String[INITIAL_CAPACITY];
+        private long[] contentDigests = new long[INITIAL_CAPACITY];
+        private int size = 0;
+
+        synchronized void add(short tableId, String flowId, long contentDigest) {
+            if (size == tableIds.length) {
+                tableIds = Arrays.copyOf(tableIds, size * 2);
+                flowIds = Arrays.copyOf(flowIds, size * 2);
+                contentDigests = Arrays.copyOf(contentDigests, size * 2);
+            }
+            tableIds[size] = tableId;
+            flowIds[size] = flowId;
+            contentDigests[size] = contentDigest;
+            size++;
+        }
+
+        synchronized boolean remove(short tableId, String flowId) {
+            for (int i = 0; i < size; i++) {
+                if (tableIds[i] == tableId && flowIds[i].equals(flowId)) {
+                    // Move the last entry in place of the removed one
+                    size--;
+                    tableIds[i] = tableIds[size];
+                    flowIds[i] = flowIds[size];
+                    contentDigests[i] = contentDigests[size];
+                    flowIds[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized void addTo(String sffNodeName, List<RegisteredFlow> flows) {
+            for (int i = 0; i < size; i++) {
+                flows.add(new RegisteredFlow(sffNodeName, new TableKey(tableIds[i]),
+                        new FlowKey(new FlowId(flowIds[i])), contentDigests[i]));
+            }
+        }
+    }
+
+    /**
+     * A flow registered for an RSP. Two registered flows are equal if they
+     * identify the same flow, whatever their content.
+     */
+    public static final class RegisteredFlow {
+        public static final long UNKNOWN_CONTENT_DIGEST = 0;
+
+        private final String sffNodeName;
+        private final TableKey tableKey;
+        private final FlowKey flowKey;
+        private final long contentDigest;
+
+        public RegisteredFlow(String sffNodeName, TableKey tableKey, FlowKey flowKey) {
+            this(sffNodeName, tableKey, flowKey, UNKNOWN_CONTENT_DIGEST);
+        }
+
+        public RegisteredFlow(String sffNodeName, TableKey tableKey, FlowKey flowKey, Flow content) {
+            this(sffNodeName, tableKey, flowKey, getContentDigest(content));
+        }
+
+        private RegisteredFlow(String sffNodeName, TableKey tableKey, FlowKey flowKey, long contentDigest) {
+            this.sffNodeName = sffNodeName;
+            this.tableKey = tableKey;
+            this.flowKey = flowKey;
+            this.contentDigest = contentDigest;
+        }
+
+        /**
+         * Digest of the content of a flow. The digest is computed from the
+         * string form of the flow, which lists all its fields by value, so
+         * equal flows have the same digest however they were built.
+         *
+         * @param content - the flow content, null if unknown
+         * @return the 64-bit digest of the content, UNKNOWN_CONTENT_DIGEST if unknown
+         */
+        public static long getContentDigest(Flow content) {
+            if (content == null) {
+                return UNKNOWN_CONTENT_DIGEST;
+            }
+            long digest = Hashing.murmur3_128().hashString(content.toString(), StandardCharsets.UTF_8).asLong();
+            // Keep the unknown digest for the flows without content
+            return digest == UNKNOWN_CONTENT_DIGEST ? 1 : digest;
+        }
+
+        public String getSffNodeName() {
+            return sffNodeName;
+        }
+
+        public TableKey getTableKey() {
+            return tableKey;
+        }
+
+        public FlowKey getFlowKey() {
+            return flowKey;
+        }
+
+        /**
+         * @return the digest of the flow content, UNKNOWN_CONTENT_DIGEST if not registered
+         */
+        public long getContentDigest() {
+            return contentDigest;
+        }
+
+        /**
+         * @param other - another flow with the same key
+         * @return true if both flows are known to have the same content
+         */
+        public boolean hasSameContent(RegisteredFlow other) {
+            return contentDigest != UNKNOWN_CONTENT_DIGEST && contentDigest == other.contentDigest;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof RegisteredFlow)) {
+                return false;
+            }
+            RegisteredFlow other = (RegisteredFlow) obj;
+            return Objects.equals(sffNodeName, other.sffNodeName)
+                    && Objects.equals(tableKey, other.tableKey)
+                    && Objects.equals(flowKey, other.flowKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sffNodeName, tableKey, flowKey);
+        }
+
+        @Override
+        public String toString() {
+            return "RegisteredFlow [sffNodeName=" + sffNodeName + ", tableKey=" + tableKey
+                    + ", flowKey=" + flowKey + "]";
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterImpl.FlowDetails;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNode;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.Table;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.Nodes;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.Node;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.NodeKey;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pipelined submission of flow write/delete batches to the data store.
+ * <p>
+ * Every batch handed to the pipeline is sharded per SFF node, and each
+ * shard is split into transactions of at most maxFlowsPerTransaction flows.
+ * Each SFF node owns a lane: the transactions of a lane are submitted in
+ * the order they were queued, and up to pipelineDepth of them may be in
+ * flight at the same time. Lanes are independent, so commits towards one
+ * switch never wait on commits towards another one.
+ * <p>
+ * Nothing blocks on checkedGet(): the next transaction of a lane is
+ * submitted from the commit callback of a previous one.
+ */
+public class SfcOfFlowTransactionPipeline {
+    private static final Logger LOG = LoggerFactory.getLogger(SfcOfFlowTransactionPipeline.class);
+    private static final long SHUTDOWN_TIME = 5;
+
+    private final int pipelineDepth;
+    private final int maxFlowsPerTransaction;
+    private final Map<String, NodeLane> lanes;
+    private final ExecutorService completionExecutor;
+
+    // Statistics
+    private final AtomicInteger queuedTransactions;
+    private final AtomicInteger inFlightTransactions;
+    private final AtomicLong committedTransactions;
+    private final AtomicLong failedTransactions;
+    private final AtomicLong totalCommitLatencyNanos;
+    private final AtomicLong maxCommitLatencyNanos;
+    private volatile long lastCommitLatencyNanos;
+
+    /**
+     * Type of operation applied to a flow.
+     */
+    enum Operation {
+        WRITE,
+        DELETE
+    }
+
+    /**
+     * @param pipelineDepth - maximum number of transactions in flight per SFF node
+     * @param maxFlowsPerTransaction - maximum number of flows per transaction, 0 for unbounded
+     */
+    public SfcOfFlowTransactionPipeline(int pipelineDepth, int maxFlowsPerTransaction) {
+        if (pipelineDepth < 1) {
+            throw new IllegalArgumentException("pipelineDepth must be at least 1, got " + pipelineDepth);
+        }
+        if (maxFlowsPerTransaction < 0) {
+            throw new IllegalArgumentException("maxFlowsPerTransaction cannot be negative, got "
+                    + maxFlowsPerTransaction);
+        }
+        this.pipelineDepth = pipelineDepth;
+        this.maxFlowsPerTransaction = maxFlowsPerTransaction;
+        this.lanes = new ConcurrentHashMap<>();
+        this.completionExecutor = Executors.newSingleThreadExecutor();
+        this.queuedTransactions = new AtomicInteger(0);
+        this.inFlightTransactions = new AtomicInteger(0);
+        this.committedTransactions = new AtomicLong(0);
+        this.failedTransactions = new AtomicLong(0);
+        this.totalCommitLatencyNanos = new AtomicLong(0);
+        this.maxCommitLatencyNanos = new AtomicLong(0);
+        this.lastCommitLatencyNanos = 0;
+    }
+
+    /**
+     * Queue the given flows to be written to the CONFIGURATION data store.
+     *
+     * @param flowsToWrite - the flows to write, the FlowDetails must include the Flow
+     */
+    public void submitWrites(Collection<FlowDetails> flowsToWrite) {
+        submit(flowsToWrite, Collections.emptyList());
+    }
+
+    /**
+     * Queue the given flows to be deleted from the CONFIGURATION data store.
+     *
+     * @param flowsToDelete - the flows to delete
+     */
+    public void submitDeletes(Collection<FlowDetails> flowsToDelete) {
+        submit(Collections.emptyList(), flowsToDelete);
+    }
+
+    /**
+     * Queue the given flows to be written and deleted. Writes and deletes
+     * towards the same SFF share transactions, so the flows should not
+     * contain the same flow twice.
+     *
+     * @param flowsToWrite - the flows to write, the FlowDetails must include the Flow
+     * @param flowsToDelete - the flows to delete
+     */
+    public void submit(Collection<FlowDetails> flowsToWrite, Collection<FlowDetails> flowsToDelete) {
+        Map<String, List<FlowOperation>> operationsPerSff = new HashMap<>();
+        for (FlowDetails f : flowsToDelete) {
+            operationsPerSff.computeIfAbsent(f.sffNodeName, k -> new ArrayList<>())
+                    .add(new FlowOperation(Operation.DELETE, f));
+        }
+        for (FlowDetails f : flowsToWrite) {
+            operationsPerSff.computeIfAbsent(f.sffNodeName, k -> new ArrayList<>())
+                    .add(new FlowOperation(Operation.WRITE, f));
+        }
+
+        operationsPerSff.forEach((sffNodeName, sffOperations) -> {
+            NodeLane lane = lanes.computeIfAbsent(sffNodeName, NodeLane::new);
+            for (List<FlowOperation> chunk : split(sffOperations)) {
+                lane.enqueue(chunk);
+            }
+            lane.drain();
+        });
+    }
+
+    /**
+     * Split a list of operations in sublists of at most maxFlowsPerTransaction operations.
+     */
+    private List<List<FlowOperation>> split(List<FlowOperation> operations) {
+        List<List<FlowOperation>> chunks = new ArrayList<>();
+        if (maxFlowsPerTransaction == 0 || operations.size() <= maxFlowsPerTransaction) {
+            chunks.add(operations);
+            return chunks;
+        }
+
+        for (int i = 0; i < operations.size(); i += maxFlowsPerTransaction) {
+            chunks.add(operations.subList(i, Math.min(i + maxFlowsPerTransaction, operations.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * A flow to be written or deleted.
+     */
+    private static class FlowOperation {
+        private final Operation operation;
+        private final FlowDetails flow;
+
+        FlowOperation(Operation operation, FlowDetails flow) {
+            this.operation = operation;
+            this.flow = flow;
+        }
+    }
+
+    /**
+     * The ordered queue of transactions towards a single SFF node.
+     */
+    private class NodeLane {
+        private final String sffNodeName;
+        private final Queue<List<FlowOperation>> pending = new ArrayDeque<>();
+        private int inFlight = 0;
+
+        NodeLane(String sffNodeName) {
+            this.sffNodeName = sffNodeName;
+        }
+
+        synchronized void enqueue(List<FlowOperation> transaction) {
+            pending.add(transaction);
+            queuedTransactions.incrementAndGet();
+        }
+
+        /**
+         * Submit queued transactions while the lane has room for them.
+         */
+        synchronized void drain() {
+            while (inFlight < pipelineDepth && !pending.isEmpty()) {
+                List<FlowOperation> transaction = pending.poll();
+                queuedTransactions.decrementAndGet();
+                inFlight++;
+                inFlightTransactions.incrementAndGet();
+                commit(transaction);
+            }
+        }
+
+        private synchronized void complete() {
+            inFlight--;
+            inFlightTransactions.decrementAndGet();
+        }
+
+        private void commit(List<FlowOperation> transaction) {
+            WriteTransaction writeTx =
+                    OpendaylightSfc.getOpendaylightSfcObj().getDataProvider().newWriteOnlyTransaction();
+
+            LOG.debug("commit: sff [{}] {} flow operations", sffNodeName, transaction.size());
+
+            for (FlowOperation op : transaction) {
+                InstanceIdentifier<Flow> iidFlow = createFlowIid(op.flow);
+                if (op.operation == Operation.WRITE) {
+                    writeTx.put(LogicalDatastoreType.CONFIGURATION, iidFlow, op.flow.flow, true);
+                } else {
+                    writeTx.delete(LogicalDatastoreType.CONFIGURATION, iidFlow);
+                }
+            }
+
+            final long startTime = System.nanoTime();
+            CheckedFuture<Void, TransactionCommitFailedException> submitFuture = writeTx.submit();
+            Futures.addCallback(submitFuture, new FutureCallback<Void>() {
+                @Override
+                public void onSuccess(Void result) {
+                    recordCommit(startTime, true);
+                    complete();
+                    drain();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    LOG.error("commit: Transaction failed for sff [{}]. Message: {}", sffNodeName,
+                            t.getMessage(), t);
+                    recordCommit(startTime, false);
+                    complete();
+                    drain();
+                }
+            }, completionExecutor);
+        }
+    }
+
+    private static InstanceIdentifier<Flow> createFlowIid(FlowDetails f) {
+        NodeKey theKey = new NodeKey(new NodeId(f.sffNodeName));
+        return InstanceIdentifier.builder(Nodes.class)
+                .child(Node.class, theKey)
+                .augmentation(FlowCapableNode.class)
+                .child(Table.class, f.tableKey)
+                .child(Flow.class, f.flowKey)
+                .build();
+    }
+
+    private void recordCommit(long startTime, boolean succeeded) {
+        long latency = System.nanoTime() - startTime;
+        lastCommitLatencyNanos = latency;
+        totalCommitLatencyNanos.addAndGet(latency);
+        maxCommitLatencyNanos.accumulateAndGet(latency, Math::max);
+        if (succeeded) {
+            committedTransactions.incrementAndGet();
+        } else {
+            failedTransactions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Wait for the queued and in flight transactions to complete, then
+     * stop the completion executor.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void shutdown() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SHUTDOWN_TIME);
+        while ((getQueueDepth() > 0 || getInFlightCount() > 0) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        if (getQueueDepth() > 0 || getInFlightCount() > 0) {
+            LOG.error("SfcOfFlowTransactionPipeline did not drain in the specified time. "
+                    + "[{}] queued and [{}] in flight transactions will not be completed",
+                    getQueueDepth(), getInFlightCount());
+        }
+        completionExecutor.shutdownNow();
+    }
+
+    //
+    // Statistics
+    //
+
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    public int getMaxFlowsPerTransaction() {
+        return maxFlowsPerTransaction;
+    }
+
+    /**
+     * @return number of transactions queued and not yet submitted, for all SFF nodes
+     */
+    public int getQueueDepth() {
+        return queuedTransactions.get();
+    }
+
+    /**
+     * @return number of transactions submitted and not yet committed, for all SFF nodes
+     */
+    public int getInFlightCount() {
+        return inFlightTransactions.get();
+    }
+
+    public long getCommittedTransactions() {
+        return committedTransactions.get();
+    }
+
+    public long getFailedTransactions() {
+        return failedTransactions.get();
+    }
+
+    public long getLastCommitLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastCommitLatencyNanos);
+    }
+
+    public long getMaxCommitLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxCommitLatencyNanos.get());
+    }
+
+    public long getAverageCommitLatencyMillis() {
+        long completed = committedTransactions.get() + failedTransactions.get();
+        if (completed == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(totalCommitLatencyNanos.get() / completed);
+    }
+}
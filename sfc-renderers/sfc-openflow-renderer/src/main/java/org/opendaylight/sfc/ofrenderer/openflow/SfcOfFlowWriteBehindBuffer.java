@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowTransactionPipeline.Operation;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterImpl.FlowDetails;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind buffer for flow additions and deletions.
+ * <p>
+ * Flows written or deleted by many RSPs are merged in the buffer during a
+ * time window, or until a size threshold is reached, and then handed to the
+ * transaction pipeline in one go, which commits them per SFF. Operations on
+ * the same flow (SFF node, table and flow key) are coalesced in the buffer:
+ * <ul>
+ * <li>a write followed by a delete cancels both, the flow never reaches the data store</li>
+ * <li>a delete followed by a write becomes a single write, which replaces the flow</li>
+ * <li>successive writes, or successive deletes, are reduced to the last one</li>
+ * </ul>
+ * Cancelling a write followed by a delete is only correct when flow keys are
+ * allocated per written flow, so that a pending write is never hiding a
+ * previously committed flow with the same key. When the flow keys are derived
+ * from the flow content, the same key is written again for the same flow, and
+ * a write followed by a delete is reduced to the delete instead.
+ */
+public class SfcOfFlowWriteBehindBuffer {
+    private static final Logger LOG = LoggerFactory.getLogger(SfcOfFlowWriteBehindBuffer.class);
+
+    private final SfcOfFlowTransactionPipeline transactionPipeline;
+    private final long windowMillis;
+    private final int maxBufferedFlows;
+    private final boolean uniqueFlowKeys;
+    private final ScheduledExecutorService flushScheduler;
+
+    // Guarded by this
+    private final Map<BufferKey, BufferedFlow> bufferedFlows;
+    private ScheduledFuture<?> scheduledFlush;
+
+    // Statistics
+    private final AtomicLong bufferedOperations;
+    private final AtomicLong cancelledOperations;
+    private final AtomicLong flushes;
+
+    /**
+     * @param transactionPipeline - where the merged flows are submitted
+     * @param windowMillis - maximum time a flow stays in the buffer
+     * @param maxBufferedFlows - the buffer is flushed when it holds this number of flows
+     */
+    public SfcOfFlowWriteBehindBuffer(SfcOfFlowTransactionPipeline transactionPipeline,
+            long windowMillis, int maxBufferedFlows) {
+        this(transactionPipeline, windowMillis, maxBufferedFlows, true);
+    }
+
+    /**
+     * @param transactionPipeline - where the merged flows are submitted
+     * @param windowMillis - maximum time a flow stays in the buffer
+     * @param maxBufferedFlows - the buffer is flushed when it holds this number of flows
+     * @param uniqueFlowKeys - true if a flow key is never written twice
+     */
+    public SfcOfFlowWriteBehindBuffer(SfcOfFlowTransactionPipeline transactionPipeline,
+            long windowMillis, int maxBufferedFlows, boolean uniqueFlowKeys) {
+        if (windowMillis <= 0 || maxBufferedFlows <= 0) {
+            throw new IllegalArgumentException("Invalid write-behind window [" + windowMillis
+                    + "] or maximum flows [" + maxBufferedFlows + "]");
+        }
+        this.transactionPipeline = transactionPipeline;
+        this.windowMillis = windowMillis;
+        this.maxBufferedFlows = maxBufferedFlows;
+        this.uniqueFlowKeys = uniqueFlowKeys;
+        this.flushScheduler = Executors.newSingleThreadScheduledExecutor();
+        this.bufferedFlows = new LinkedHashMap<>();
+        this.scheduledFlush = null;
+        this.bufferedOperations = new AtomicLong(0);
+        this.cancelledOperations = new AtomicLong(0);
+        this.flushes = new AtomicLong(0);
+    }
+
+    /**
+     * Buffer flows to be written.
+     *
+     * @param flowsToWrite - the flows to write, the FlowDetails must include the Flow
+     */
+    public void write(Collection<FlowDetails> flowsToWrite) {
+        buffer(Operation.WRITE, flowsToWrite);
+    }
+
+    /**
+     * Buffer flows to be deleted.
+     *
+     * @param flowsToDelete - the flows to delete
+     */
+    public void delete(Collection<FlowDetails> flowsToDelete) {
+        buffer(Operation.DELETE, flowsToDelete);
+    }
+
+    private void buffer(Operation operation, Collection<FlowDetails> flows) {
+        if (flows.isEmpty()) {
+            return;
+        }
+
+        boolean flushNow;
+        synchronized (this) {
+            for (FlowDetails flow : flows) {
+                merge(operation, flow);
+            }
+            bufferedOperations.addAndGet(flows.size());
+
+            flushNow = bufferedFlows.size() >= maxBufferedFlows;
+            if (!flushNow && scheduledFlush == null && !bufferedFlows.isEmpty()) {
+                scheduledFlush = flushScheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    /**
+     * Merge an operation with the one already buffered for the same flow, if any.
+     */
+    private void merge(Operation operation, FlowDetails flow) {
+        BufferKey key = new BufferKey(flow.sffNodeName, flow.tableKey, flow.flowKey);
+        BufferedFlow buffered = bufferedFlows.get(key);
+
+        if (buffered == null) {
+            bufferedFlows.put(key, new BufferedFlow(operation, flow, false));
+            return;
+        }
+
+        if (operation == Operation.WRITE) {
+            // A write always replaces whatever is buffered, remember if it replaced a delete
+            boolean replacesDelete = buffered.operation == Operation.DELETE || buffered.replacesDelete;
+            bufferedFlows.put(key, new BufferedFlow(Operation.WRITE, flow, replacesDelete));
+        } else if (uniqueFlowKeys && buffered.operation == Operation.WRITE && !buffered.replacesDelete) {
+            // Written and deleted before reaching the data store
+            bufferedFlows.remove(key);
+            cancelledOperations.addAndGet(2);
+        } else {
+            bufferedFlows.put(key, new BufferedFlow(Operation.DELETE, flow, false));
+        }
+    }
+
+    /**
+     * Hand all the buffered flows to the transaction pipeline. The pipeline
+     * is fed while holding the buffer lock, so that successive flushes reach
+     * each SFF in order.
+     */
+    public synchronized void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+
+        if (bufferedFlows.isEmpty()) {
+            return;
+        }
+
+        List<FlowDetails> flowsToWrite = new ArrayList<>();
+        List<FlowDetails> flowsToDelete = new ArrayList<>();
+        for (BufferedFlow buffered : bufferedFlows.values()) {
+            if (buffered.operation == Operation.WRITE) {
+                flowsToWrite.add(buffered.flow);
+            } else {
+                flowsToDelete.add(buffered.flow);
+            }
+        }
+        bufferedFlows.clear();
+
+        LOG.debug("flush: writing [{}] and deleting [{}] flows", flowsToWrite.size(), flowsToDelete.size());
+        flushes.incrementAndGet();
+        transactionPipeline.submit(flowsToWrite, flowsToDelete);
+    }
+
+    /**
+     * Flush the remaining buffered flows and stop the flush scheduler.
+     */
+    public void shutdown() {
+        flushScheduler.shutdownNow();
+        flush();
+    }
+
+    //
+    // Statistics
+    //
+
+    public synchronized int getBufferedFlowCount() {
+        return bufferedFlows.size();
+    }
+
+    public long getBufferedOperations() {
+        return bufferedOperations.get();
+    }
+
+    public long getCancelledOperations() {
+        return cancelledOperations.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    /**
+     * The operation currently buffered for a flow.
+     */
+    private static class BufferedFlow {
+        private final Operation operation;
+        private final FlowDetails flow;
+        // True if this write replaces a buffered delete, so the flow may
+        // already exist in the data store and a later delete must be kept
+        private final boolean replacesDelete;
+
+        BufferedFlow(Operation operation, FlowDetails flow, boolean replacesDelete) {
+            this.operation = operation;
+            this.flow = flow;
+            this.replacesDelete = replacesDelete;
+        }
+    }
+
+    /**
+     * Identifies a flow in a switch.
+     */
+    private static final class BufferKey {
+        private final String sffNodeName;
+        private final TableKey tableKey;
+        private final FlowKey flowKey;
+
+        BufferKey(String sffNodeName, TableKey tableKey, FlowKey flowKey) {
+            this.sffNodeName = sffNodeName;
+            this.tableKey = tableKey;
+            this.flowKey = flowKey;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof BufferKey)) {
+                return false;
+            }
+            BufferKey other = (BufferKey) obj;
+            return Objects.equals(sffNodeName, other.sffNodeName)
+                    && Objects.equals(tableKey, other.tableKey)
+                    && Objects.equals(flowKey, other.flowKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sffNodeName, tableKey, flowKey);
+        }
+    }
+}
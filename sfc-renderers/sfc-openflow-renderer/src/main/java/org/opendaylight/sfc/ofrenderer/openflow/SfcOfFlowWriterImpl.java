@@ -12,27 +12,28 @@ package org.opendaylight.sfc.ofrenderer.openflow;
 import com.google.common.util.concurrent.CheckedFuture;
 
 
-import java.util.Set;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.ArrayList;
 import java.util.Map;
-import java.util.HashMap;
-import java.util.Map.Entry;
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.Executors;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowRegistry.RegisteredFlow;
 import org.opendaylight.sfc.ofrenderer.processors.SfcOfRspProcessor;
 import org.opendaylight.sfc.provider.OpendaylightSfc;
 import org.opendaylight.sfc.provider.api.SfcDataStoreAPI;
+import org.opendaylight.sfc.util.openflow.SfcOpenflowUtils;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowCapableNode;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.Table;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
@@ -67,25 +68,193 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
 
     private ExecutorService threadPoolExecutorService;
 
+    // Only used in pipelined mode, null otherwise
+    private SfcOfFlowTransactionPipeline transactionPipeline;
+    // Only used in write-behind mode, null otherwise
+    private SfcOfFlowWriteBehindBuffer writeBehindBuffer;
+
     private FlowBuilder flowBuilder;
 
+    // True if the flow ids are derived from the flow content instead of
+    // being allocated per written flow
+    private boolean deterministicFlowIds;
+
+    // Only set while the calling thread updates the flows of an RSP
+    private final ThreadLocal<RspFlowsUpdate> rspFlowsUpdate = new ThreadLocal<>();
+
+    // Only set while reconciling with the flows found at startup
+    private volatile SfcOfFlowReconciler reconciler;
+    private ScheduledExecutorService reconciliationTimer;
+
     // Store all flows associated w/ each rendered service path,
     // indexed by the corresponding SFFs
-    private Map<Long, Map<String, List<FlowDetails>>> rspNameToFlowsMap;
+    private SfcOfFlowRegistry flowRegistry;
 
     // temporary list of flows to be deleted. All of them will be deleted when
-    // deleteFlowSet() invokation
+    // deleteFlowSet() invokation. Each thread has its own list of flows
     private Set<FlowDetails> setOfFlowsToDelete;
     // temporary list of flows to be added. All of them will be deleted when
-    // flushFlows() invokation
+    // flushFlows() invokation. Each thread has its own list of flows
     private Set<FlowDetails> setOfFlowsToAdd;
 
     public SfcOfFlowWriterImpl() {
-        this.threadPoolExecutorService = Executors.newSingleThreadExecutor();;
-        this.rspNameToFlowsMap = new ConcurrentHashMap<>();
+        this.threadPoolExecutorService = Executors.newSingleThreadExecutor();
+        this.flowRegistry = new SfcOfFlowRegistry(SfcOfRspProcessor.SFC_FLOWS);
         this.flowBuilder = null;
-        this.setOfFlowsToDelete = new HashSet<>();
-        this.setOfFlowsToAdd = new HashSet<>();
+        this.setOfFlowsToDelete = new ThreadConfinedFlowSet();
+        this.setOfFlowsToAdd = new ThreadConfinedFlowSet();
+        this.transactionPipeline = null;
+        this.writeBehindBuffer = null;
+        this.deterministicFlowIds = false;
+        this.reconciler = null;
+    }
+
+    /**
+     * Create a flow writer committing each batch in a single transaction,
+     * optionally deriving the flow ids from the flow content.
+     *
+     * @param deterministicFlowIds - true to derive the flow ids from the flow content
+     */
+    public SfcOfFlowWriterImpl(boolean deterministicFlowIds) {
+        this();
+        this.deterministicFlowIds = deterministicFlowIds;
+    }
+
+    /**
+     * Create a flow writer in pipelined mode: instead of serializing every
+     * flushFlows() / deleteFlowSet() batch behind a single thread blocked on
+     * the transaction commit, the batches are sharded per SFF and submitted
+     * through a SfcOfFlowTransactionPipeline.
+     *
+     * @param pipelineDepth - maximum number of transactions in flight per SFF
+     * @param maxFlowsPerTransaction - maximum number of flows per transaction, 0 for unbounded
+     */
+    public SfcOfFlowWriterImpl(int pipelineDepth, int maxFlowsPerTransaction) {
+        this();
+        this.transactionPipeline = new SfcOfFlowTransactionPipeline(pipelineDepth, maxFlowsPerTransaction);
+    }
+
+    /**
+     * Create a flow writer in pipelined, write-behind mode: the flows flushed
+     * or deleted by many RSPs are merged in a SfcOfFlowWriteBehindBuffer
+     * during writeBehindMillis, or until writeBehindMaxFlows flows are
+     * buffered, and then committed together through the transaction pipeline.
+     *
+     * @param pipelineDepth - maximum number of transactions in flight per SFF
+     * @param maxFlowsPerTransaction - maximum number of flows per transaction, 0 for unbounded
+     * @param writeBehindMillis - maximum time a flow is buffered before being committed
+     * @param writeBehindMaxFlows - number of buffered flows that triggers a commit
+     */
+    public SfcOfFlowWriterImpl(int pipelineDepth, int maxFlowsPerTransaction,
+            long writeBehindMillis, int writeBehindMaxFlows) {
+        this(pipelineDepth, maxFlowsPerTransaction, writeBehindMillis, writeBehindMaxFlows, false);
+    }
+
+    /**
+     * Create a flow writer in pipelined, write-behind mode, optionally
+     * deriving the flow ids from the flow content: the table, RSP, SFF,
+     * priority and match of each written flow. The same flow then always
+     * gets the same key, also across restarts, which allows reconciling
+     * with the flows already in the data store, see startReconciliation().
+     *
+     * @param pipelineDepth - maximum number of transactions in flight per SFF
+     * @param maxFlowsPerTransaction - maximum number of flows per transaction, 0 for unbounded
+     * @param writeBehindMillis - maximum time a flow is buffered before being committed
+     * @param writeBehindMaxFlows - number of buffered flows that triggers a commit
+     * @param deterministicFlowIds - true to derive the flow ids from the flow content
+     */
+    public SfcOfFlowWriterImpl(int pipelineDepth, int maxFlowsPerTransaction,
+            long writeBehindMillis, int writeBehindMaxFlows, boolean deterministicFlowIds) {
+        this(pipelineDepth, maxFlowsPerTransaction);
+        this.deterministicFlowIds = deterministicFlowIds;
+        this.writeBehindBuffer = new SfcOfFlowWriteBehindBuffer(transactionPipeline, writeBehindMillis,
+                writeBehindMaxFlows, !deterministicFlowIds);
+    }
+
+    /**
+     * Start reconciling the written flows with the flows found in the data
+     * store at startup. Only meaningful when the flow ids are derived from
+     * the flow content. The reconciliation ends, and the stale flows are
+     * deleted, when all the RSPs known to the reconciler are rendered, or
+     * at the latest after timeoutMillis.
+     *
+     * @param reconciler - the reconciler, holding the flows found at startup
+     * @param timeoutMillis - maximum duration of the reconciliation
+     */
+    public synchronized void startReconciliation(SfcOfFlowReconciler reconciler, long timeoutMillis) {
+        if (!deterministicFlowIds) {
+            LOG.warn("startReconciliation: flow ids are not derived from the flow content, not reconciling");
+            return;
+        }
+        this.reconciler = reconciler;
+        if (reconciler.isComplete(flowRegistry)) {
+            finishReconciliation();
+            return;
+        }
+        this.reconciliationTimer = Executors.newSingleThreadScheduledExecutor();
+        this.reconciliationTimer.schedule(this::finishReconciliation, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * End the reconciliation, if any, and delete the stale flows.
+     */
+    public synchronized void finishReconciliation() {
+        SfcOfFlowReconciler theReconciler = this.reconciler;
+        if (theReconciler == null) {
+            return;
+        }
+        this.reconciler = null;
+        if (reconciliationTimer != null) {
+            // May run in the timer thread, so do not interrupt it
+            reconciliationTimer.shutdown();
+            reconciliationTimer = null;
+        }
+
+        List<FlowDetails> staleFlows = new ArrayList<>();
+        for (RegisteredFlow flow : theReconciler.finish()) {
+            staleFlows.add(new FlowDetails(flow.getSffNodeName(), flow.getFlowKey(), flow.getTableKey()));
+        }
+        if (!staleFlows.isEmpty()) {
+            submitDeletes(staleFlows);
+        }
+    }
+
+    /**
+     * Return the reconciler, used to query the reconciliation progress.
+     *
+     * @return the reconciler, or null if not reconciling
+     */
+    public SfcOfFlowReconciler getReconciler() {
+        return reconciler;
+    }
+
+    /**
+     * Return the write-behind buffer, used to query the number of buffered
+     * and cancelled flow operations.
+     *
+     * @return the write-behind buffer, or null if not in write-behind mode
+     */
+    public SfcOfFlowWriteBehindBuffer getWriteBehindBuffer() {
+        return writeBehindBuffer;
+    }
+
+    /**
+     * Return the registry of the flows written for each RSP
+     *
+     * @return the flow registry
+     */
+    public SfcOfFlowRegistry getFlowRegistry() {
+        return flowRegistry;
+    }
+
+    /**
+     * Return the transaction pipeline, used to query queue depth, in flight
+     * transactions and commit latency.
+     *
+     * @return the transaction pipeline, or null if not in pipelined mode
+     */
+    public SfcOfFlowTransactionPipeline getTransactionPipeline() {
+        return transactionPipeline;
     }
 
     /**
@@ -96,6 +265,21 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
      */
     @Override
     public void shutdown() throws ExecutionException, InterruptedException {
+        synchronized (this) {
+            if (reconciliationTimer != null) {
+                reconciliationTimer.shutdownNow();
+                reconciliationTimer = null;
+            }
+            // Without all the RSPs rendered, it is unknown which flows are stale
+            reconciler = null;
+        }
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.shutdown();
+        }
+        if (transactionPipeline != null) {
+            transactionPipeline.shutdown();
+        }
+
         // When we close this service we need to shutdown our executor!
         threadPoolExecutorService.shutdown();
         if (!threadPoolExecutorService.awaitTermination(SHUTDOWN_TIME, TimeUnit.SECONDS)) {
@@ -113,7 +297,7 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
     class FlowSetWriterTask implements Runnable {
         Set<FlowDetails> flowsToWrite = new HashSet<>();
 
-        public FlowSetWriterTask(Set<FlowDetails> flowsToWrite) {
+        public FlowSetWriterTask(Collection<FlowDetails> flowsToWrite) {
             this.flowsToWrite.addAll(flowsToWrite);
         }
 
@@ -153,7 +337,7 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
 
         Set<FlowDetails> flowsToDelete = new HashSet<>();
 
-        public FlowSetRemoverTask(Set<FlowDetails> flowsToDelete) {
+        public FlowSetRemoverTask(Collection<FlowDetails> flowsToDelete) {
             this.flowsToDelete.addAll(flowsToDelete);
         }
 
@@ -185,6 +369,52 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
         }
     }
 
+    /**
+     * A set of flows whose content is private to each thread. Several RSPs
+     * may be processed concurrently, each one in its own thread, and each
+     * of them must only flush or purge the flows it created.
+     */
+    static class ThreadConfinedFlowSet extends AbstractSet<FlowDetails> {
+        private final ThreadLocal<Set<FlowDetails>> flows = ThreadLocal.withInitial(HashSet::new);
+
+        @Override
+        public boolean add(FlowDetails flowDetails) {
+            return flows.get().add(flowDetails);
+        }
+
+        @Override
+        public boolean contains(Object obj) {
+            return flows.get().contains(obj);
+        }
+
+        @Override
+        public void clear() {
+            flows.get().clear();
+        }
+
+        @Override
+        public Iterator<FlowDetails> iterator() {
+            return flows.get().iterator();
+        }
+
+        @Override
+        public int size() {
+            return flows.get().size();
+        }
+    }
+
+    /**
+     * The new flows of an RSP being updated.
+     */
+    private static class RspFlowsUpdate {
+        private final Long rspId;
+        private final List<RegisteredFlow> flows = new ArrayList<>();
+
+        RspFlowsUpdate(Long rspId) {
+            this.rspId = rspId;
+        }
+    }
+
     /**
      * Internal class used to store the details of a flow for easy creation / deletion later
      */
@@ -232,15 +462,28 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
      */
     @Override
     public void writeFlow(Long rspId, String sffNodeName, FlowBuilder flow) {
+        if (deterministicFlowIds) {
+            SfcOpenflowUtils.setFlowId(flow, SfcOpenflowUtils.createDeterministicFlowId(
+                    flow.getTableId(), rspId, sffNodeName, flow.getPriority(), flow.getMatch()));
+        }
         this.flowBuilder = flow;
 
         LOG.debug("writeFlow storing flow to Node {}, table {}", sffNodeName, flow.getTableId());
 
         // Add the flow to the set of flows to be added in a single transaction
-        setOfFlowsToAdd.add(new FlowDetails(sffNodeName, flow.getKey(), new TableKey(flow.getTableId()), flowBuilder.build()));
+        Flow builtFlow = flowBuilder.build();
+        setOfFlowsToAdd.add(new FlowDetails(sffNodeName, flow.getKey(), new TableKey(flow.getTableId()), builtFlow));
+
+        // The flows of an RSP being updated are registered all together when flushed
+        RspFlowsUpdate update = rspFlowsUpdate.get();
+        if (update != null && update.rspId.equals(rspId)) {
+            update.flows.add(new RegisteredFlow(sffNodeName, new TableKey(flow.getTableId()), flow.getKey(),
+                    builtFlow));
+            return;
+        }
 
         // This will store the flow info and rspId for removal later
-        storeFlowDetails(rspId, sffNodeName, flow.getKey(), flow.getTableId());
+        storeFlowDetails(rspId, sffNodeName, flow.getKey(), flow.getTableId(), builtFlow);
     }
 
     @Override
@@ -253,25 +496,60 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
       setOfFlowsToDelete.add(flowDetail);
     }
 
+    @Override
+    public boolean removeRspFlow(Long rspId, String sffNodeName, FlowKey flowKey, TableKey tableKey) {
+        if (!flowRegistry.unregister(rspId, sffNodeName, tableKey.getId(), flowKey)) {
+            LOG.debug("removeRspFlow: flow with key {} of RSP {} no longer registered", flowKey, rspId);
+            return false;
+        }
+        removeFlow(sffNodeName, flowKey, tableKey);
+        return true;
+    }
+
     /**
      * From previous calls to writeFlowToConfig(), flows were stored per table
      * and per SFF. Now the flows will be written, one table at at time per SFF.
      */
     @Override
     public void flushFlows() {
-        LOG.info("flushFlows: creating flowWriter task, writing [{}] flows.",
-                setOfFlowsToAdd.size());
+        SfcOfFlowReconciler theReconciler = reconciler;
+        Collection<FlowDetails> flowsToWrite = setOfFlowsToAdd;
+        if (theReconciler != null) {
+            flowsToWrite = theReconciler.filterWrites(setOfFlowsToAdd);
+        }
+        submitWrites(flowsToWrite);
+
+        // Clear the entries
+        setOfFlowsToAdd.clear();
+
+        if (theReconciler != null && theReconciler.isComplete(flowRegistry)) {
+            finishReconciliation();
+        }
+    }
+
+    private void submitWrites(Collection<FlowDetails> flowsToWrite) {
+        if (writeBehindBuffer != null) {
+            LOG.debug("flushFlows: buffering [{}] flows in the write-behind buffer.", flowsToWrite.size());
+            writeBehindBuffer.write(flowsToWrite);
+            return;
+        }
+
+        if (transactionPipeline != null) {
+            LOG.debug("flushFlows: queueing [{}] flows in the transaction pipeline.", flowsToWrite.size());
+            transactionPipeline.submitWrites(flowsToWrite);
+            return;
+        }
 
-        FlowSetWriterTask writerThread = new FlowSetWriterTask(setOfFlowsToAdd);
+        LOG.debug("flushFlows: creating flowWriter task, writing [{}] flows.",
+                flowsToWrite.size());
+
+        FlowSetWriterTask writerThread = new FlowSetWriterTask(flowsToWrite);
 
         try {
             threadPoolExecutorService.execute(writerThread);
         } catch (Exception ex) {
             LOG.error(LOGSTR_THREAD_EXCEPTION, ex.toString(), ex);
         }
-
-        // Clear the entries
-        setOfFlowsToAdd.clear();
     }
 
     /**
@@ -282,6 +560,72 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
     public void purgeFlows() {
         setOfFlowsToAdd.clear();
         setOfFlowsToDelete.clear();
+        // The previous flows of an RSP whose update failed are still registered
+        rspFlowsUpdate.remove();
+    }
+
+    @Override
+    public void startRspFlowsUpdate(Long rspId) {
+        rspFlowsUpdate.set(new RspFlowsUpdate(rspId));
+    }
+
+    /**
+     * Write the flows of the RSP being updated and delete its previous flows,
+     * as a delta: the flows with the same key and content as a previous flow
+     * are not written again, and only the previous flows not written again
+     * are deleted. The new flows are written before the previous ones are
+     * deleted. With flow ids derived from the flow content, a flow keeps its
+     * key across updates as long as its table, SFF, priority and match do
+     * not change, so swapping the SF of a hop only rewrites the flows whose
+     * actions lead to the SF, on the SFFs where they changed.
+     */
+    @Override
+    public Set<NodeId> flushRspFlowsUpdate() {
+        RspFlowsUpdate update = rspFlowsUpdate.get();
+        rspFlowsUpdate.remove();
+        if (update == null) {
+            flushFlows();
+            return new HashSet<>();
+        }
+
+        List<RegisteredFlow> previousFlows = flowRegistry.replaceRsp(update.rspId, update.flows);
+        Map<RegisteredFlow, RegisteredFlow> previousFlowsByKey = new HashMap<>();
+        Set<String> previousSffNodeNames = new HashSet<>();
+        for (RegisteredFlow previousFlow : previousFlows) {
+            previousFlowsByKey.put(previousFlow, previousFlow);
+            previousSffNodeNames.add(previousFlow.getSffNodeName());
+        }
+
+        // The digests of the new flows were computed from the flows built for this update
+        Map<RegisteredFlow, RegisteredFlow> newFlowsByKey = new HashMap<>();
+        for (RegisteredFlow newFlow : update.flows) {
+            newFlowsByKey.put(newFlow, newFlow);
+        }
+        int unchangedFlows = 0;
+        Iterator<FlowDetails> flowsToAdd = setOfFlowsToAdd.iterator();
+        while (flowsToAdd.hasNext()) {
+            FlowDetails flow = flowsToAdd.next();
+            RegisteredFlow flowKey = new RegisteredFlow(flow.sffNodeName, flow.tableKey, flow.flowKey);
+            RegisteredFlow previousFlow = previousFlowsByKey.remove(flowKey);
+            RegisteredFlow newFlow = newFlowsByKey.get(flowKey);
+            if (previousFlow != null && newFlow != null && previousFlow.hasSameContent(newFlow)) {
+                flowsToAdd.remove();
+                unchangedFlows++;
+            }
+        }
+        LOG.debug("flushRspFlowsUpdate: RSP [{}] writing [{}] flows, deleting [{}] flows, [{}] flows unchanged",
+                update.rspId, setOfFlowsToAdd.size(), previousFlowsByKey.size(), unchangedFlows);
+        flushFlows();
+
+        addFlowsToDelete(new ArrayList<>(previousFlowsByKey.keySet()));
+        Set<NodeId> sffNodeIDs = new HashSet<>();
+        flowRegistry.unregisterOrphanSffs(previousSffNodeNames).forEach(
+                (sffName, initializationFlows) -> {
+                    sffNodeIDs.add(new NodeId(sffName));
+                    addFlowsToDelete(initializationFlows);
+                });
+        deleteFlowSet();
+        return sffNodeIDs;
     }
 
     /**
@@ -291,22 +635,11 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
      * @param sffNodeName - the SFF the flow is written to
      * @param flowKey - the flow key of the new flow
      * @param tableId - the table the flow was written to
+     * @param content - the flow content
      */
-    private void storeFlowDetails(final Long rspId, final String sffNodeName, FlowKey flowKey, short tableId) {
-        Optional<Map<String, List<FlowDetails>>> theFlowsPerSffMap =
-                Optional.ofNullable(rspNameToFlowsMap.get(rspId));
-        if (!theFlowsPerSffMap.isPresent()) {
-            rspNameToFlowsMap.put(rspId, new HashMap<> ());
-        }
-
-        Optional<List<FlowDetails>> theFlowsPerSff =
-                Optional.ofNullable(rspNameToFlowsMap.get(rspId).get(sffNodeName));
-        if (!theFlowsPerSff.isPresent()) {
-            rspNameToFlowsMap.get(rspId).put(sffNodeName, new ArrayList<>());
-        }
-
-        List<FlowDetails> flowDetails = rspNameToFlowsMap.get(rspId).get(sffNodeName);
-        flowDetails.add(new FlowDetails(sffNodeName, flowKey, new TableKey(tableId)));
+    private void storeFlowDetails(final Long rspId, final String sffNodeName, FlowKey flowKey, short tableId,
+            Flow content) {
+        flowRegistry.register(rspId, sffNodeName, tableId, flowKey, content);
     }
 
     @Override
@@ -351,42 +684,57 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
      */
     @Override
     public void deleteRspFlows(final Long rspId) {
-        if (!rspNameToFlowsMap.containsKey(rspId)) {
+        List<RegisteredFlow> flows = flowRegistry.unregisterRsp(rspId);
+        if (flows == null) {
             LOG.warn("deleteRspFlows() Attempting to delete RSP [{}], and it does not exist", rspId);
             return;
         }
 
-        List<FlowDetails> flowDetailsList = new ArrayList<>();
-        rspNameToFlowsMap.get(rspId).forEach(
-                (sffName, flowsPerSff) -> {
-                    flowDetailsList.addAll(flowsPerSff);
-                    flowsPerSff.clear();
-                }
-            );
-
-        if (flowDetailsList.size() == 0) {
+        if (flows.isEmpty()) {
             LOG.warn("deleteRspFlows() no flows exist for RSP [{}]", rspId);
             return;
         }
 
-        rspNameToFlowsMap.remove(rspId);
-        setOfFlowsToDelete.addAll(flowDetailsList);
+        addFlowsToDelete(flows);
+    }
+
+    private void addFlowsToDelete(List<RegisteredFlow> flows) {
+        for (RegisteredFlow flow : flows) {
+            setOfFlowsToDelete.add(new FlowDetails(flow.getSffNodeName(), flow.getFlowKey(), flow.getTableKey()));
+        }
     }
 
     @Override
     public void deleteFlowSet() {
-        LOG.info("deleteFlowSet: deleting {} flows", setOfFlowsToDelete.size());
-        FlowSetRemoverTask fsrt = new FlowSetRemoverTask(setOfFlowsToDelete);
-            try {
-                threadPoolExecutorService.execute(fsrt);
-            } catch (Exception ex) {
-                LOG.error(LOGSTR_THREAD_EXCEPTION, ex.toString(), ex);
-            }
+        LOG.debug("deleteFlowSet: deleting {} flows", setOfFlowsToDelete.size());
+        SfcOfFlowReconciler theReconciler = reconciler;
+        if (theReconciler != null) {
+            theReconciler.deleted(setOfFlowsToDelete);
+        }
+        submitDeletes(setOfFlowsToDelete);
 
         // Clear the entries
         setOfFlowsToDelete.clear();
     }
 
+    private void submitDeletes(Collection<FlowDetails> flowsToDelete) {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.delete(flowsToDelete);
+            return;
+        }
+        if (transactionPipeline != null) {
+            transactionPipeline.submitDeletes(flowsToDelete);
+            return;
+        }
+
+        FlowSetRemoverTask fsrt = new FlowSetRemoverTask(flowsToDelete);
+        try {
+            threadPoolExecutorService.execute(fsrt);
+        } catch (Exception ex) {
+            LOG.error(LOGSTR_THREAD_EXCEPTION, ex.toString(), ex);
+        }
+    }
+
     /**
      * Clear all flows from the SFFs whenever they are not featured in any RSP
      * @return the SFFs that had their flows removed because they did not feature in any RSP
@@ -395,46 +743,20 @@ public class SfcOfFlowWriterImpl implements SfcOfFlowWriterInterface {
     public Set<NodeId> clearSffsIfNoRspExists() {
         Set<NodeId> sffNodeIDs = new HashSet<>();
 
-        if (!rspNameToFlowsMap.containsKey(SfcOfRspProcessor.SFC_FLOWS)) {
+        if (!flowRegistry.containsRsp(SfcOfRspProcessor.SFC_FLOWS)) {
             LOG.warn("clearSffsIfNoRspExists() - Attempting to delete initialization flows, and they do not exist");
             return sffNodeIDs;
         }
 
-        Map<String, List<FlowDetails>> theInitializationFlows =
-                rspNameToFlowsMap.get(SfcOfRspProcessor.SFC_FLOWS);
-
         // an orphan SFF is a forwarder not featured in any RSP
-        Predicate <String> isOrphanSff =
-                sffName -> this.timesFeaturedInRsps(sffName) == 1;
-
-        Set<String> orphanSffs =
-                theInitializationFlows.entrySet().stream()
-                    .map(Entry::getKey)
-                    .filter(isOrphanSff)
-                    .collect(Collectors.toSet());
-
-        orphanSffs.forEach(
-                sffName -> {
+        flowRegistry.unregisterOrphanSffs().forEach(
+                (sffName, initializationFlows) -> {
                     // mark this SFF as orphan
                     sffNodeIDs.add(new NodeId(sffName));
                     // mark the set of flows to remove from the switches
-                    setOfFlowsToDelete.addAll(theInitializationFlows.get(sffName));
-                    // delete the cache of initialization flows of orphan SFFs
-                    theInitializationFlows.remove(sffName);
+                    addFlowsToDelete(initializationFlows);
                 });
 
         return sffNodeIDs;
     }
-
-    /**
-     * Given the name of an sff, returns the number of times that SFF is featured in RSPs
-     *
-     * @param sffName the name of a service function forwarder
-     * @return the number of times that SFF is featured in RSPs
-     */
-    private long timesFeaturedInRsps(String sffName) {
-        Predicate<Entry<Long, Map<String, List<FlowDetails>>>> isSffFeatured =
-                theInputEntry -> theInputEntry.getValue().containsKey(sffName);
-        return rspNameToFlowsMap.entrySet().stream().filter(isSffFeatured).count();
-    }
 }
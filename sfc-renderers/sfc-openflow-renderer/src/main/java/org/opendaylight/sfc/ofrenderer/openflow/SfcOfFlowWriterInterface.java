@@ -32,6 +32,18 @@ public interface SfcOfFlowWriterInterface {
     //Remove flows from MD-SAL datastore
     public void removeFlow(final String sffNodeName, FlowKey flowKey, TableKey tableKey);
 
+    /**
+     * Remove a single flow written for an RSP, if it is still registered
+     * for it. The flow is deleted with the next deleteFlowSet().
+     *
+     * @param rspId the ID of the RSP the flow was written for
+     * @param sffNodeName the SFF the flow was written to
+     * @param flowKey the flow key
+     * @param tableKey the table the flow was written to
+     * @return true if the flow was registered and will be deleted
+     */
+    public boolean removeRspFlow(final Long rspId, final String sffNodeName, FlowKey flowKey, TableKey tableKey);
+
     //Write group to MD-SAL datastore
     public void writeGroupToDataStore(String sffNodeName, GroupBuilder gb, boolean isAdd);
 
@@ -50,6 +62,25 @@ public interface SfcOfFlowWriterInterface {
      */
     public Set<NodeId> clearSffsIfNoRspExists();
 
+    /**
+     * Start updating the flows of an RSP. Until flushRspFlowsUpdate() is
+     * called, the flows written for the RSP by the calling thread are its
+     * new flows, and replace the current ones.
+     *
+     * @param rspId the ID of the RSP
+     */
+    public void startRspFlowsUpdate(final Long rspId);
+
+    /**
+     * Write the new flows of the RSP being updated which differ from its
+     * previous flows, then delete the previous flows which were not written
+     * again, along with the initialization flows of the SFFs no longer
+     * featured in any RSP.
+     *
+     * @return Set of NodeIDs of cleared SFFs (ex: "openflow:99344160872776")
+     */
+    public Set<NodeId> flushRspFlowsUpdate();
+
     // Get the most recent Flow Builder
     public FlowBuilder getFlowBuilder();
 
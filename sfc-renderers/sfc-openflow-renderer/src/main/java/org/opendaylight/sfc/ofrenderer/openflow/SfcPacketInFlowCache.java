@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe cache of the recently seen packet-in flows, keyed on
+ * the source and destination IPv4 addresses packed in a single long.
+ * <p>
+ * The cache is split in segments, each one guarded by its own lock, so
+ * packet-ins of different flows are processed concurrently. Each segment
+ * holds its entries in an open addressing table of primitive longs, and
+ * expires them with a time wheel: the keys are appended to the wheel slot
+ * of the tick they were seen in, and the slots older than the time to live
+ * are swept as time advances, without walking the whole table. All the
+ * entries have the same time to live, so a single wheel level spanning it
+ * is enough. When a segment is full, its oldest entries are evicted.
+ * <p>
+ * Nothing is allocated per lookup, a key only takes room in a wheel slot
+ * when it is inserted or refreshed.
+ */
+public class SfcPacketInFlowCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 65536;
+    private static final int SEGMENTS = 16;
+    private static final int WHEEL_SLOTS = 64;
+
+    private final long timeToLiveMillis;
+    private final long slotMillis;
+    private final Segment[] segments;
+
+    // Statistics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder insertions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param timeToLiveMillis - how long a flow stays in the cache after it is seen
+     * @param maxEntries - the maximum number of flows in the cache
+     */
+    public SfcPacketInFlowCache(long timeToLiveMillis, int maxEntries) {
+        if (timeToLiveMillis <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("Invalid time to live [" + timeToLiveMillis
+                    + "] or maximum entries [" + maxEntries + "]");
+        }
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.slotMillis = Math.max(1, (timeToLiveMillis + WHEEL_SLOTS - 1) / WHEEL_SLOTS);
+        int wheelSlots = (int) ((timeToLiveMillis + slotMillis - 1) / slotMillis);
+        int segmentCapacity = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            // Two more slots than the time to live spans: the slot being
+            // filled, and the one whose entries are just expiring
+            segments[i] = new Segment(segmentCapacity, wheelSlots + 2);
+        }
+    }
+
+    /**
+     * Pack a source and a destination IPv4 address in a cache key
+     *
+     * @param srcIp - the source address, as an int in network order
+     * @param dstIp - the destination address, as an int in network order
+     * @return the cache key
+     */
+    public static long flowKey(int srcIp, int dstIp) {
+        return ((long) srcIp << 32) | (dstIp & 0xffffffffL);
+    }
+
+    /**
+     * Check whether a flow was seen within the time to live, and record it
+     * as seen now if it was not.
+     *
+     * @param flowKey - the flow, see flowKey()
+     * @param nowMillis - the current time
+     * @return true if the flow was already seen, false if it was recorded now
+     */
+    public boolean checkAndAdd(long flowKey, long nowMillis) {
+        long hash = mix(flowKey);
+        Segment segment = segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+        synchronized (segment) {
+            long tick = nowMillis / slotMillis;
+            segment.advance(tick, nowMillis);
+
+            int index = segment.find(flowKey, hash);
+            if (index >= 0 && nowMillis - segment.times[index] <= timeToLiveMillis) {
+                hits.increment();
+                return true;
+            }
+
+            if (index >= 0) {
+                // Expired but not swept yet, refresh it
+                segment.times[index] = nowMillis;
+            } else {
+                if (segment.size >= segment.capacity) {
+                    segment.evictOldest();
+                }
+                segment.insert(flowKey, hash, nowMillis);
+            }
+            segment.wheel[(int) (tick % segment.wheel.length)].add(flowKey);
+            insertions.increment();
+            return false;
+        }
+    }
+
+    /**
+     * Forget a flow, so that it is recorded again when next seen
+     *
+     * @param flowKey - the flow, see flowKey()
+     * @return true if the flow was in the cache
+     */
+    public boolean remove(long flowKey) {
+        long hash = mix(flowKey);
+        Segment segment = segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+        synchronized (segment) {
+            int index = segment.find(flowKey, hash);
+            if (index < 0) {
+                return false;
+            }
+            // Its wheel slots skip it when swept
+            segment.removeAt(index);
+            return true;
+        }
+    }
+
+    /**
+     * Remove the expired flows of all the segments
+     *
+     * @param nowMillis - the current time
+     */
+    public void expire(long nowMillis) {
+        long tick = nowMillis / slotMillis;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.advance(tick, nowMillis);
+            }
+        }
+    }
+
+    /**
+     * @return the number of flows in the cache, some may be expired but not swept yet
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    public long getTimeToLiveMillis() {
+        return timeToLiveMillis;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getInsertions() {
+        return insertions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * The murmur3 64 bit finalizer, to spread the packed addresses.
+     */
+    private static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * A part of the cache, with its own table and time wheel.
+     */
+    private final class Segment {
+        private final int capacity;
+        private final int mask;
+        // A time of 0 marks a free position
+        private final long[] keys;
+        private final long[] times;
+        private int size = 0;
+
+        private final LongQueue[] wheel;
+        // All the ticks up to this one have been swept
+        private long sweptTick = -1;
+
+        Segment(int capacity, int wheelSlots) {
+            this.capacity = capacity;
+            // Keep the table at most half full, so the probe sequences stay short
+            int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+            this.mask = tableSize - 1;
+            this.keys = new long[tableSize];
+            this.times = new long[tableSize];
+            this.wheel = new LongQueue[wheelSlots];
+            for (int i = 0; i < wheelSlots; i++) {
+                wheel[i] = new LongQueue();
+            }
+        }
+
+        int find(long key, long hash) {
+            int index = (int) hash & mask;
+            while (times[index] != 0) {
+                if (keys[index] == key) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        void insert(long key, long hash, long nowMillis) {
+            int index = (int) hash & mask;
+            while (times[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            times[index] = nowMillis;
+            size++;
+        }
+
+        /**
+         * Remove the entry at the given position, shifting back the entries
+         * of the same probe sequence, so that no tombstone is needed.
+         */
+        void removeAt(int index) {
+            int hole = index;
+            int next = (hole + 1) & mask;
+            while (times[next] != 0) {
+                int home = (int) mix(keys[next]) & mask;
+                // Move the entry if its home position is not between the hole and itself
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    times[hole] = times[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            times[hole] = 0;
+            size--;
+        }
+
+        /**
+         * Sweep the wheel slots whose entries are all older than the time to live.
+         */
+        void advance(long tick, long nowMillis) {
+            // The entries of a tick are all expired once the time to live has
+            // elapsed since the end of the tick
+            long lastExpiredTick = tick - (wheel.length - 1);
+            if (lastExpiredTick <= sweptTick) {
+                return;
+            }
+            long firstTick = Math.max(sweptTick + 1, lastExpiredTick - wheel.length + 1);
+            for (long t = firstTick; t <= lastExpiredTick; t++) {
+                LongQueue slot = wheel[(int) (t % wheel.length)];
+                while (!slot.isEmpty()) {
+                    removeIfExpired(slot.poll(), nowMillis);
+                }
+            }
+            sweptTick = lastExpiredTick;
+        }
+
+        private void removeIfExpired(long key, long nowMillis) {
+            int index = find(key, mix(key));
+            // A refreshed entry is also queued in a later slot, keep it
+            if (index >= 0 && nowMillis - times[index] > timeToLiveMillis) {
+                removeAt(index);
+                expirations.increment();
+            }
+        }
+
+        /**
+         * Evict the entry queued first in the wheel.
+         */
+        void evictOldest() {
+            for (int i = 1; i <= wheel.length; i++) {
+                LongQueue slot = wheel[(int) ((sweptTick + i) % wheel.length)];
+                while (!slot.isEmpty()) {
+                    long key = slot.poll();
+                    int index = find(key, mix(key));
+                    if (index >= 0) {
+                        removeAt(index);
+                        evictions.increment();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A growable FIFO queue of primitive longs.
+     */
+    private static final class LongQueue {
+        private static final int INITIAL_CAPACITY = 8;
+
+        private long[] values = new long[INITIAL_CAPACITY];
+        private int head = 0;
+        private int tail = 0;
+
+        boolean isEmpty() {
+            return head == tail;
+        }
+
+        void add(long value) {
+            if (tail == values.length) {
+                int count = tail - head;
+                if (head > values.length / 2) {
+                    System.arraycopy(values, head, values, 0, count);
+                } else {
+                    values = Arrays.copyOfRange(values, head, head + values.length * 2);
+                }
+                head = 0;
+                tail = count;
+            }
+            values[tail++] = value;
+        }
+
+        long poll() {
+            long value = values[head++];
+            if (head == tail) {
+                head = 0;
+                tail = 0;
+            }
+            return value;
+        }
+    }
+}
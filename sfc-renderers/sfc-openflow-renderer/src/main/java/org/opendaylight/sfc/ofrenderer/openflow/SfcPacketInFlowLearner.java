@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.FlowAdded;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.FlowRemoved;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.FlowUpdated;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.NodeErrorNotification;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.NodeExperimenterErrorNotification;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.SalFlowListener;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.SwitchFlowRemoved;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.Node;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.NodeKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.model.match.types.rev131026.match.layer._3.match.Ipv4Match;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Installation of the PathMapperAcl flows learned from PacketIns.
+ * <p>
+ * The learned flows are queued per switch, and installed every time slice
+ * by a single thread: all the flows of a switch learned within a slice are
+ * flushed together, instead of a transaction per PacketIn. The installation
+ * rate is limited per switch with a token bucket; the flows over the rate
+ * wait in the queue of the switch, which is bounded. When the queue is full,
+ * the overflow policy tells whether the new flow or the oldest queued flow
+ * is dropped. A dropped flow is reported to the forgotten flow listener, so
+ * that it is learned again from a later PacketIn.
+ * <p>
+ * The learned flows have an idle timeout on the switch, which notifies their
+ * removal. The learner listens to these notifications, and removes the idle
+ * flows from the data store as well, so that the configuration does not grow
+ * with every session; the flow is then learned again from its next PacketIn.
+ * The flows of an active session stay installed, however long it lasts.
+ */
+public class SfcPacketInFlowLearner implements SalFlowListener, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SfcPacketInFlowLearner.class);
+
+    public static final long DEFAULT_TIME_SLICE_MILLIS = 50;
+    public static final int DEFAULT_MAX_FLOWS_PER_SECOND = 500;
+    public static final int DEFAULT_MAX_QUEUED_FLOWS = 4096;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * What to drop when the queue of a switch is full.
+     */
+    public enum OverflowPolicy {
+        DROP_NEWEST,
+        DROP_OLDEST
+    }
+
+    private final SfcOfFlowProgrammerImpl flowProgrammer;
+    private final double maxFlowsPerSecond;
+    private final double maxBurst;
+    private final int maxQueuedFlows;
+    private final OverflowPolicy overflowPolicy;
+    private final Map<String, SwitchQueue> switchQueues = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile LongConsumer forgottenFlowListener = flowKey -> { };
+
+    // Statistics
+    private final LongAdder learnedFlows = new LongAdder();
+    private final LongAdder installedFlows = new LongAdder();
+    private final LongAdder droppedFlows = new LongAdder();
+    private final LongAdder expiredFlows = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * @param flowProgrammer - the programmer of the PathMapperAcl flows
+     * @param timeSliceMillis - the period the learned flows are installed with
+     * @param maxFlowsPerSecond - the maximum number of flows installed per second per switch,
+     *        each flow being an uplink and downlink pair
+     * @param maxQueuedFlows - the maximum number of flows waiting per switch
+     * @param overflowPolicy - what to drop when the queue of a switch is full
+     */
+    public SfcPacketInFlowLearner(SfcOfFlowProgrammerImpl flowProgrammer, long timeSliceMillis,
+            int maxFlowsPerSecond, int maxQueuedFlows, OverflowPolicy overflowPolicy) {
+        this(flowProgrammer, timeSliceMillis, maxFlowsPerSecond, maxQueuedFlows, overflowPolicy,
+                Executors.newSingleThreadScheduledExecutor(
+                        new ThreadFactoryBuilder().setNameFormat("SfcOfPktInLearner-%d").setDaemon(true).build()));
+    }
+
+    SfcPacketInFlowLearner(SfcOfFlowProgrammerImpl flowProgrammer, long timeSliceMillis, int maxFlowsPerSecond,
+            int maxQueuedFlows, OverflowPolicy overflowPolicy, ScheduledExecutorService scheduler) {
+        if (timeSliceMillis <= 0 || maxFlowsPerSecond <= 0 || maxQueuedFlows <= 0) {
+            throw new IllegalArgumentException("Invalid time slice [" + timeSliceMillis + "], rate ["
+                    + maxFlowsPerSecond + "] or queue size [" + maxQueuedFlows + "]");
+        }
+        this.flowProgrammer = flowProgrammer;
+        this.maxFlowsPerSecond = maxFlowsPerSecond;
+        // A switch may catch up with at most two slices worth of flows it did not use
+        this.maxBurst = Math.max(1.0, 2.0 * maxFlowsPerSecond * timeSliceMillis / 1000.0);
+        this.maxQueuedFlows = maxQueuedFlows;
+        this.overflowPolicy = overflowPolicy;
+        this.scheduler = scheduler;
+        this.scheduler.scheduleWithFixedDelay(() -> runTimeSlice(System.currentTimeMillis()), timeSliceMillis,
+                timeSliceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set the listener of the flows dropped or expired, which have to be
+     * learned again
+     *
+     * @param forgottenFlowListener - called with the packed addresses of the flow
+     */
+    public void setForgottenFlowListener(LongConsumer forgottenFlowListener) {
+        this.forgottenFlowListener = forgottenFlowListener;
+    }
+
+    /**
+     * Queue a learned flow for installation
+     *
+     * @param nodeName - the switch the PacketIn came from
+     * @param srcIp - the source address of the packet
+     * @param dstIp - the destination address of the packet
+     * @param ulPathId - the uplink RSP ID, negative if none
+     * @param dlPathId - the downlink RSP ID, negative if none
+     * @return false if the flow was dropped
+     */
+    public boolean learn(String nodeName, int srcIp, int dstIp, short ulPathId, short dlPathId) {
+        learnedFlows.increment();
+        LearnedFlow flow = new LearnedFlow(nodeName, srcIp, dstIp, ulPathId, dlPathId);
+        LearnedFlow droppedFlow = null;
+        SwitchQueue switchQueue = getSwitchQueue(nodeName);
+        synchronized (switchQueue) {
+            if (switchQueue.pending.size() < maxQueuedFlows) {
+                switchQueue.pending.add(flow);
+            } else if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                droppedFlow = switchQueue.pending.poll();
+                switchQueue.pending.add(flow);
+            } else {
+                droppedFlow = flow;
+            }
+        }
+
+        if (droppedFlow != null) {
+            droppedFlows.increment();
+            LOG.debug("learn: queue of switch [{}] full, flow dropped", nodeName);
+            forgottenFlowListener.accept(droppedFlow.getFlowKey());
+        }
+        return droppedFlow != flow;
+    }
+
+    /**
+     * Queue the removal of a learned flow the switch removed after its idle
+     * timeout. The other flows are ignored.
+     *
+     * @param notification - the flow removed by the switch
+     */
+    @Override
+    public void onSwitchFlowRemoved(SwitchFlowRemoved notification) {
+        if (notification.getTableId() == null
+                || notification.getTableId() != flowProgrammer.getPathMapperAclTableId()
+                || notification.getPriority() == null
+                || notification.getPriority() != SfcOfFlowProgrammerImpl.FLOW_PRIORITY_PATH_MAPPER_ACL
+                || notification.getNode() == null
+                || notification.getMatch() == null
+                || !(notification.getMatch().getLayer3Match() instanceof Ipv4Match)) {
+            return;
+        }
+        Ipv4Match ipv4Match = (Ipv4Match) notification.getMatch().getLayer3Match();
+        if (ipv4Match.getIpv4Source() == null || ipv4Match.getIpv4Destination() == null) {
+            return;
+        }
+        NodeKey nodeKey = notification.getNode().getValue().firstKeyOf(Node.class, NodeKey.class);
+        if (nodeKey == null) {
+            return;
+        }
+        String nodeName = nodeKey.getId().getValue();
+        int srcIp = toIp(ipv4Match.getIpv4Source().getValue());
+        int dstIp = toIp(ipv4Match.getIpv4Destination().getValue());
+        LOG.debug("onSwitchFlowRemoved: learned flow [{}] -> [{}] idle on switch [{}]",
+                ipv4Match.getIpv4Source().getValue(), ipv4Match.getIpv4Destination().getValue(), nodeName);
+        // Only the scheduler thread uses the installed flows
+        getSwitchQueue(nodeName).idleFlows.add(SfcPacketInFlowCache.flowKey(srcIp, dstIp));
+    }
+
+    @Override
+    public void onFlowAdded(FlowAdded notification) {
+    }
+
+    @Override
+    public void onFlowRemoved(FlowRemoved notification) {
+    }
+
+    @Override
+    public void onFlowUpdated(FlowUpdated notification) {
+    }
+
+    @Override
+    public void onNodeErrorNotification(NodeErrorNotification notification) {
+    }
+
+    @Override
+    public void onNodeExperimenterErrorNotification(NodeExperimenterErrorNotification notification) {
+    }
+
+    /**
+     * Install the flows allowed for this time slice and remove the idle
+     * flows, switch by switch
+     *
+     * @param now - the current time
+     */
+    void runTimeSlice(long now) {
+        try {
+            for (SwitchQueue switchQueue : switchQueues.values()) {
+                installFlows(switchQueue, now);
+                expireFlows(switchQueue);
+            }
+        } catch (RuntimeException e) {
+            // Keep the scheduled task alive
+            LOG.error("runTimeSlice: failed to process the learned flows", e);
+        }
+    }
+
+    private void installFlows(SwitchQueue switchQueue, long now) {
+        List<LearnedFlow> flows;
+        synchronized (switchQueue) {
+            double elapsedSeconds = (now - switchQueue.lastRefillMillis) / 1000.0;
+            switchQueue.lastRefillMillis = now;
+            switchQueue.tokens = Math.min(maxBurst, switchQueue.tokens + elapsedSeconds * maxFlowsPerSecond);
+            int count = (int) Math.min(switchQueue.tokens, switchQueue.pending.size());
+            if (count == 0) {
+                return;
+            }
+            switchQueue.tokens -= count;
+            flows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                flows.add(switchQueue.pending.poll());
+            }
+        }
+
+        for (LearnedFlow flow : flows) {
+            String srcIpStr = SfcIpv4PacketInHandler.toIpStr(flow.srcIp);
+            String dstIpStr = SfcIpv4PacketInHandler.toIpStr(flow.dstIp);
+            // Configure the uplink packet
+            if (flow.ulPathId >= 0) {
+                flowProgrammer.setFlowRspId((long) flow.ulPathId);
+                flow.ulFlowKey = flowProgrammer.configurePathMapperAclFlow(flow.nodeName, srcIpStr, dstIpStr,
+                        flow.ulPathId);
+            }
+            // Configure the downlink packet
+            if (flow.dlPathId >= 0) {
+                flowProgrammer.setFlowRspId((long) flow.dlPathId);
+                flow.dlFlowKey = flowProgrammer.configurePathMapperAclFlow(flow.nodeName, dstIpStr, srcIpStr,
+                        flow.dlPathId);
+            }
+        }
+        // All the flows of the switch for this slice are written together
+        flowProgrammer.flushFlows();
+        installedFlows.add(flows.size());
+        batches.increment();
+        LOG.debug("installFlows: installed [{}] learned flows on switch [{}]", flows.size(), switchQueue.nodeName);
+
+        // Only this thread uses the installed flows, a flow learned again replaces the previous one
+        for (LearnedFlow flow : flows) {
+            if (flow.ulFlowKey != null) {
+                switchQueue.installed.put(SfcPacketInFlowCache.flowKey(flow.srcIp, flow.dstIp),
+                        new InstalledFlow(flow, flow.ulPathId, flow.ulFlowKey));
+            }
+            if (flow.dlFlowKey != null) {
+                switchQueue.installed.put(SfcPacketInFlowCache.flowKey(flow.dstIp, flow.srcIp),
+                        new InstalledFlow(flow, flow.dlPathId, flow.dlFlowKey));
+            }
+        }
+    }
+
+    /*
+     * Each direction of a flow is removed once idle on the switch, and the
+     * flow is forgotten, so that the next PacketIn of either direction
+     * learns it again
+     */
+    private void expireFlows(SwitchQueue switchQueue) {
+        int expired = 0;
+        Long idleFlowKey;
+        while ((idleFlowKey = switchQueue.idleFlows.poll()) != null) {
+            InstalledFlow installedFlow = switchQueue.installed.remove(idleFlowKey);
+            if (installedFlow == null) {
+                continue;
+            }
+            flowProgrammer.removePathMapperAclFlow(switchQueue.nodeName, installedFlow.pathId,
+                    installedFlow.flowKey);
+            forgottenFlowListener.accept(installedFlow.learnedFlow.getFlowKey());
+            expired++;
+        }
+        if (expired > 0) {
+            flowProgrammer.deleteFlowSet();
+            expiredFlows.add(expired);
+            LOG.debug("expireFlows: removed [{}] idle learned flows from switch [{}]", expired,
+                    switchQueue.nodeName);
+        }
+    }
+
+    private SwitchQueue getSwitchQueue(String nodeName) {
+        return switchQueues.computeIfAbsent(nodeName, name -> new SwitchQueue(name, System.currentTimeMillis()));
+    }
+
+    /**
+     * Parse an IPv4 address or /32 prefix in dotted decimal notation
+     *
+     * @param ipStr - the address
+     * @return the address as an int in network order
+     */
+    static int toIp(String ipStr) {
+        int prefixIndex = ipStr.indexOf('/');
+        String[] bytes = (prefixIndex < 0 ? ipStr : ipStr.substring(0, prefixIndex)).split("\\.");
+        int ip = 0;
+        for (String ipByte : bytes) {
+            ip = (ip << 8) | (Integer.parseInt(ipByte) & 0xff);
+        }
+        return ip;
+    }
+
+    /**
+     * @return the number of flows learned
+     */
+    public long getLearnedFlows() {
+        return learnedFlows.sum();
+    }
+
+    /**
+     * @return the number of flows installed
+     */
+    public long getInstalledFlows() {
+        return installedFlows.sum();
+    }
+
+    /**
+     * @return the number of flows dropped because the queue of their switch was full
+     */
+    public long getDroppedFlows() {
+        return droppedFlows.sum();
+    }
+
+    /**
+     * @return the number of installed flows removed once idle, each direction counting for one
+     */
+    public long getExpiredFlows() {
+        return expiredFlows.sum();
+    }
+
+    /**
+     * @return the number of batches of flows written
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @param nodeName - the switch node name
+     * @return the number of flows waiting to be installed on the switch
+     */
+    public int getQueuedFlows(String nodeName) {
+        SwitchQueue switchQueue = switchQueues.get(nodeName);
+        if (switchQueue == null) {
+            return 0;
+        }
+        synchronized (switchQueue) {
+            return switchQueue.pending.size();
+        }
+    }
+
+    /**
+     * Stop installing the learned flows, the queued flows are dropped. The
+     * time slice in progress, if any, completes before this returns.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                LOG.warn("close: the learned flows are still being processed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOG.info("close: learned flows [{}], installed [{}] in [{}] batches, dropped [{}], expired [{}]",
+                getLearnedFlows(), getInstalledFlows(), getBatches(), getDroppedFlows(), getExpiredFlows());
+    }
+
+    private class SwitchQueue {
+        final String nodeName;
+        // Guarded by this
+        final ArrayDeque<LearnedFlow> pending = new ArrayDeque<>();
+        double tokens = maxBurst;
+        long lastRefillMillis;
+        // The directions of flows the switch removed once idle
+        final Queue<Long> idleFlows = new ConcurrentLinkedQueue<>();
+        // Only used by the scheduler thread, keyed by the addresses of each direction
+        final Map<Long, InstalledFlow> installed = new HashMap<>();
+
+        SwitchQueue(String nodeName, long nowMillis) {
+            this.nodeName = nodeName;
+            this.lastRefillMillis = nowMillis;
+        }
+    }
+
+    private static final class LearnedFlow {
+        final String nodeName;
+        final int srcIp;
+        final int dstIp;
+        final short ulPathId;
+        final short dlPathId;
+        // Set when installed
+        FlowKey ulFlowKey;
+        FlowKey dlFlowKey;
+
+        LearnedFlow(String nodeName, int srcIp, int dstIp, short ulPathId, short dlPathId) {
+            this.nodeName = nodeName;
+            this.srcIp = srcIp;
+            this.dstIp = dstIp;
+            this.ulPathId = ulPathId;
+            this.dlPathId = dlPathId;
+        }
+
+        long getFlowKey() {
+            return SfcPacketInFlowCache.flowKey(srcIp, dstIp);
+        }
+    }
+
+    private static final class InstalledFlow {
+        final LearnedFlow learnedFlow;
+        final short pathId;
+        final FlowKey flowKey;
+
+        InstalledFlow(LearnedFlow learnedFlow, short pathId, FlowKey flowKey) {
+            this.learnedFlow = learnedFlow;
+            this.pathId = pathId;
+            this.flowKey = flowKey;
+        }
+    }
+}
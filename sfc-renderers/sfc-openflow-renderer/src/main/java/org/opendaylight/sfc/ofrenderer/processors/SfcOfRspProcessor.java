@@ -8,11 +8,19 @@
 
 package org.opendaylight.sfc.ofrenderer.processors;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import org.opendaylight.controller.sal.binding.api.RpcProviderRegistry;
 import org.opendaylight.sfc.genius.util.SfcGeniusDataUtils;
@@ -69,7 +77,7 @@ public class SfcOfRspProcessor {
         this.sfcOfFlowProgrammer = sfcOfFlowProgrammer;
         this.sfcOfProviderUtils = sfcOfProviderUtils;
         this.sfcSynchronizer = sfcSynchronizer;
-        this.sffInitialized = new HashMap<>();
+        this.sffInitialized = new ConcurrentHashMap<>();
 
         //FIXME this is temporary. SfcGeniusRpcClient will self-initialize via blueprint injection when the module is finished
         SfcGeniusRpcClient.getInstance().initialize(rpcProviderRegistry);
@@ -96,50 +104,16 @@ public class SfcOfRspProcessor {
      * @param rsp - a newly created/updated Rendered Service Path
      */
     public void processRenderedServicePath(RenderedServicePath rsp) {
-        // if this method takes too long, consider launching it in a thread
-        try {
-            // This call blocks until the lock is obtained
-            sfcSynchronizer.lock();
+        // Only the SFFs of this RSP are locked, so that RSPs
+        // touching disjoint sets of SFFs can be processed in parallel.
+        // This call blocks until the locks are obtained
+        Set<SffName> sffNames = getSffNames(rsp);
+        sfcSynchronizer.lockSffs(sffNames);
 
+        try {
             sfcOfProviderUtils.addRsp(rsp.getPathId());
 
-            //
-            // Populate the SFF Connection Graph
-            //
-            SffGraph sffGraph = populateSffGraph(rsp);
-            SfcRspTransportProcessorBase transportProcessor = getTransportProcessor(sffGraph, rsp);
-
-            //
-            // Populate the SFF ingress and egress DPLs from the sffGraph
-            //
-            transportProcessor.processSffDpls();
-
-            //
-            // Internally calculate and set the RSP transport values
-            //
-            transportProcessor.setRspTransports();
-
-            //
-            // Now process the entries in the SFF Graph and populate the flow tables
-            //
-            SffGraph.SffGraphEntry entry = null;
-            Iterator<SffGraph.SffGraphEntry> sffGraphIter = sffGraph.getGraphEntryIterator();
-            sfcOfFlowProgrammer.setTableIndexMapper(
-                    transportProcessor.getTableIndexMapper().isPresent()
-                            ? transportProcessor.getTableIndexMapper().get()
-                            : null);
-            while (sffGraphIter.hasNext()) {
-                entry = sffGraphIter.next();
-                LOG.debug("build flows of entry: {}", entry);
-                // The flows created by initializeSff dont belong to any particular RSP
-                sfcOfFlowProgrammer.setFlowRspId(SFC_FLOWS);
-                initializeSff(entry, transportProcessor);
-                sfcOfFlowProgrammer.setFlowRspId(rsp.getPathId());
-                configureTransportIngressFlows(entry, sffGraph, transportProcessor);
-                configurePathMapperFlows(entry, sffGraph, transportProcessor);
-                configureNextHopFlows(entry, sffGraph, transportProcessor);
-                configureTransportEgressFlows(entry, sffGraph, transportProcessor);
-            }
+            configureRspFlows(rsp);
 
             // Flush the flows to the data store
             this.sfcOfFlowProgrammer.flushFlows();
@@ -147,24 +121,142 @@ public class SfcOfRspProcessor {
             LOG.info("Processing complete for RSP: name [{}] Id [{}]", rsp.getName(), rsp.getPathId());
 
         } catch (SfcRenderingException e) {
-            LOG.error("SfcRenderingException in processRenderedServicePath: ", e.getMessage(), e);
+            LOG.error("SfcRenderingException in processRenderedServicePath: {}", e.getMessage(), e);
         } finally {
             // If there were any errors, purge any remaining flows so they're not written
             this.sfcOfFlowProgrammer.purgeFlows();
-            sfcSynchronizer.unlock();
+            sfcSynchronizer.unlockSffs(sffNames);
             sfcOfProviderUtils.removeRsp(rsp.getPathId());
         }
     }
 
+    /**
+     * Entry point for processing an updated RSP. The flows of the updated RSP
+     * are computed as for a new RSP, and compared per SFF with the flows of
+     * the original RSP: only the flows which changed are written, and only
+     * the flows which are no longer needed are deleted.
+     *
+     * @param originalRsp - the Rendered Service Path before the update
+     * @param updatedRsp - the Rendered Service Path after the update
+     */
+    public void updateRenderedServicePath(RenderedServicePath originalRsp, RenderedServicePath updatedRsp) {
+        if (originalRsp == null || !originalRsp.getPathId().equals(updatedRsp.getPathId())) {
+            // Not the same path anymore, nothing in common
+            if (originalRsp != null) {
+                deleteRenderedServicePath(originalRsp);
+            }
+            processRenderedServicePath(updatedRsp);
+            return;
+        }
+
+        // The SFFs removed from the RSP are locked as well, their flows are deleted
+        Set<SffName> sffNames = getSffNames(updatedRsp);
+        sffNames.addAll(getSffNames(originalRsp));
+        sfcSynchronizer.lockSffs(sffNames);
+
+        try {
+            sfcOfProviderUtils.addRsp(updatedRsp.getPathId());
+
+            this.sfcOfFlowProgrammer.startRspFlowsUpdate(updatedRsp.getPathId());
+            configureRspFlows(updatedRsp);
+
+            // Flush the changed flows to the data store, and delete the unused ones
+            Set<NodeId> clearedSffNodeIDs = this.sfcOfFlowProgrammer.flushRspFlowsUpdate();
+            for (NodeId sffNodeId : clearedSffNodeIDs) {
+                setSffInitialized(sffNodeId, false);
+            }
+
+            LOG.info("Update complete for RSP: name [{}] Id [{}]", updatedRsp.getName(), updatedRsp.getPathId());
+
+        } catch (SfcRenderingException e) {
+            LOG.error("SfcRenderingException in updateRenderedServicePath: {}", e.getMessage(), e);
+        } finally {
+            // If there were any errors, purge any remaining flows so they're not written
+            this.sfcOfFlowProgrammer.purgeFlows();
+            sfcSynchronizer.unlockSffs(sffNames);
+            sfcOfProviderUtils.removeRsp(updatedRsp.getPathId());
+        }
+    }
+
+    /**
+     * Create the flows of an RSP, in the flow programmer, without flushing them.
+     *
+     * @param rsp - the Rendered Service Path
+     */
+    private void configureRspFlows(RenderedServicePath rsp) {
+        //
+        // Populate the SFF Connection Graph
+        //
+        SffGraph sffGraph = populateSffGraph(rsp);
+        SfcRspTransportProcessorBase transportProcessor = getTransportProcessor(sffGraph, rsp);
+
+        //
+        // Populate the SFF ingress and egress DPLs from the sffGraph
+        //
+        transportProcessor.processSffDpls();
+
+        //
+        // Internally calculate and set the RSP transport values
+        //
+        transportProcessor.setRspTransports();
+
+        //
+        // Now process the entries in the SFF Graph and populate the flow tables
+        //
+        SffGraph.SffGraphEntry entry = null;
+        Iterator<SffGraph.SffGraphEntry> sffGraphIter = sffGraph.getGraphEntryIterator();
+        sfcOfFlowProgrammer.setTableIndexMapper(
+                transportProcessor.getTableIndexMapper().isPresent()
+                        ? transportProcessor.getTableIndexMapper().get()
+                        : null);
+        while (sffGraphIter.hasNext()) {
+            entry = sffGraphIter.next();
+            LOG.debug("build flows of entry: {}", entry);
+            // The flows created by initializeSff dont belong to any particular RSP
+            sfcOfFlowProgrammer.setFlowRspId(SFC_FLOWS);
+            initializeSff(entry, transportProcessor);
+            sfcOfFlowProgrammer.setFlowRspId(rsp.getPathId());
+            configureTransportIngressFlows(entry, sffGraph, transportProcessor);
+            configurePathMapperFlows(entry, sffGraph, transportProcessor);
+            configureNextHopFlows(entry, sffGraph, transportProcessor);
+            configureTransportEgressFlows(entry, sffGraph, transportProcessor);
+        }
+    }
+
+    /**
+     * Get the names of the SFFs featured in an RSP.
+     *
+     * @param rsp - the Rendered Service Path
+     * @return the names of the SFFs of the RSP hops
+     */
+    private Set<SffName> getSffNames(RenderedServicePath rsp) {
+        Set<SffName> sffNames = new HashSet<>();
+        if (rsp.getRenderedServicePathHop() != null) {
+            for (RenderedServicePathHop rspHop : rsp.getRenderedServicePathHop()) {
+                if (rspHop.getServiceFunctionForwarder() != null) {
+                    sffNames.add(rspHop.getServiceFunctionForwarder());
+                }
+            }
+        }
+        return sffNames;
+    }
+
     /**
      * Deletes the OpenFlow flows associated with this Rendered Service Path.
      *
      * @param rsp - the Rendered Service Path to delete
      */
     public void deleteRenderedServicePath(RenderedServicePath rsp) {
-        Set<NodeId> clearedSffNodeIDs = sfcOfFlowProgrammer.deleteRspFlows(rsp.getPathId());
-        for(NodeId sffNodeId : clearedSffNodeIDs){
-            setSffInitialized(sffNodeId, false);
+        // Deleting an RSP may clear the initialization flows of any orphan
+        // SFF, so no other RSP can be processed at the same time
+        sfcSynchronizer.lock();
+        try {
+            Set<NodeId> clearedSffNodeIDs = sfcOfFlowProgrammer.deleteRspFlows(rsp.getPathId());
+            for (NodeId sffNodeId : clearedSffNodeIDs) {
+                setSffInitialized(sffNodeId, false);
+            }
+        } finally {
+            sfcSynchronizer.unlock();
         }
     }
 
@@ -225,6 +317,16 @@ public class SfcOfRspProcessor {
         SffGraph.SffGraphEntry entry = null;
         short lastServiceIndex = rsp.getStartingIndex();
 
+        // Resolve the dataplane nodes of all the SFs at once, instead of
+        // waiting for genius on each hop
+        Set<ServiceFunction> logicalInterfaceSfs = getLogicalInterfaceSfs(rsp);
+        if (!logicalInterfaceSfs.isEmpty()) {
+            SfcGeniusRpcClient.getInstance().prefetchDpnIds(logicalInterfaceSfs.stream()
+                    .map(sfcOfProviderUtils::getSfLogicalInterfaceName)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet()));
+        }
+
         while (servicePathHopIter.hasNext()) {
             RenderedServicePathHop rspHop = servicePathHopIter.next();
             SffName curSffName = rspHop.getServiceFunctionForwarder();
@@ -264,9 +366,67 @@ public class SfcOfRspProcessor {
         entry.setSrcDpnId(srcDpnId);
 
         LOG.debug("populateSffGraph: added final graph entry: [{}]", entry);
+
+        if (!logicalInterfaceSfs.isEmpty()) {
+            prefetchTransportEgressData(sffGraph, logicalInterfaceSfs);
+        }
         return sffGraph;
     }
 
+    /**
+     * Get the SFs of an RSP which are attached to a logical interface
+     *
+     * @param rsp - the Rendered Service Path
+     * @return the SFs using a logical interface, empty if none
+     */
+    private Set<ServiceFunction> getLogicalInterfaceSfs(RenderedServicePath rsp) {
+        Set<ServiceFunction> sfs = new LinkedHashSet<>();
+        if (rsp.getRenderedServicePathHop() == null || rsp.getRenderedServicePathHop().isEmpty()) {
+            return sfs;
+        }
+        for (RenderedServicePathHop rspHop : rsp.getRenderedServicePathHop()) {
+            ServiceFunction sf = sfcOfProviderUtils.getServiceFunction(rspHop.getServiceFunctionName(),
+                    rsp.getPathId());
+            if (SfcGeniusDataUtils.isSfUsingALogicalInterface(sf)) {
+                sfs.add(sf);
+            }
+        }
+        return sfs;
+    }
+
+    /**
+     * Fetch from genius, in parallel, the tunnel interfaces between the
+     * dataplane nodes of the graph and the egress actions of the SF and
+     * tunnel interfaces, which the logical SFF transport processor needs
+     * when writing the transport egress flows.
+     *
+     * @param sffGraph - the populated graph
+     * @param logicalInterfaceSfs - the SFs of the RSP using a logical interface
+     */
+    private void prefetchTransportEgressData(SffGraph sffGraph, Set<ServiceFunction> logicalInterfaceSfs) {
+        List<Map.Entry<DpnIdType, DpnIdType>> dpnIdPairs = new ArrayList<>();
+        Iterator<SffGraph.SffGraphEntry> entries = sffGraph.getGraphEntryIterator();
+        while (entries.hasNext()) {
+            SffGraph.SffGraphEntry entry = entries.next();
+            if (entry.isIntraLogicalSFFEntry()) {
+                dpnIdPairs.add(new AbstractMap.SimpleImmutableEntry<>(entry.getSrcDpnId(), entry.getDstDpnId()));
+            }
+        }
+
+        SfcGeniusRpcClient geniusRpcClient = SfcGeniusRpcClient.getInstance();
+        geniusRpcClient.prefetchTunnelInterfaces(dpnIdPairs);
+        Set<String> sfInterfaceNames = new HashSet<>();
+        for (ServiceFunction sf : logicalInterfaceSfs) {
+            try {
+                sfInterfaceNames.add(SfcGeniusDataUtils.getSfLogicalInterface(sf));
+            } catch (IllegalArgumentException e) {
+                // Reported by the transport processor when the flows are written
+                LOG.debug("prefetchTransportEgressData: no single logical interface for SF {}", sf.getName());
+            }
+        }
+        geniusRpcClient.prefetchEgressActions(sfInterfaceNames, false);
+    }
+
     /**
      * Call the appropriate flow creation methods on the TransportProcessor for
      * the TransportIngress table.
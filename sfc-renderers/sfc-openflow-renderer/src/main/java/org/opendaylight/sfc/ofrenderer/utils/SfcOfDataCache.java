@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.utils;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import javax.annotation.Nonnull;
+import org.opendaylight.controller.md.sal.binding.api.ClusteredDataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.api.SfcProviderServiceForwarderAPI;
+import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
+import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionGroupAPI;
+import org.opendaylight.sfc.sfc_ovs.provider.SfcOvsUtil;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.ServiceFunctions;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.ovs.rev140701.SffOvsBridgeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.ServiceFunctionForwarders;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.ServiceFunctionGroups;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.service.function.groups.ServiceFunctionGroup;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sfg.rev150214.service.function.groups.ServiceFunctionGroupKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.Identifiable;
+import org.opendaylight.yangtools.yang.binding.Identifier;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Controller-wide cache of the ServiceFunctions, ServiceFunctionForwarders
+ * and ServiceFunctionGroups read by the OpenFlow renderer, shared by all the
+ * RSPs being rendered.
+ * <p>
+ * The cache is filled on demand from the config data store, and kept
+ * coherent by data tree change listeners that invalidate an entry whenever
+ * its object is created, modified or removed. A read racing with an
+ * invalidation is not stored in the cache. Each type of object is kept in
+ * its own LRU map, bounded to a maximum number of entries.
+ * <p>
+ * SFFs are stored augmented with their OpenFlow node id. An SFF whose switch
+ * is not connected yet is not cached, so that the node id is looked up again
+ * on the next read. The OVSDB bridges are listened to as well: when a bridge
+ * appears, disappears or changes its datapath id, the SFFs cached with the
+ * OpenFlow node id of the bridge are invalidated.
+ */
+public class SfcOfDataCache implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(SfcOfDataCache.class);
+
+    private final BoundedCache<SfName, ServiceFunction> serviceFunctions;
+    private final BoundedCache<SffName, ServiceFunctionForwarder> serviceFunctionForwarders;
+    private final BoundedCache<String, ServiceFunctionGroup> serviceFunctionGroups;
+
+    private final ListenerRegistration<?> sfListenerRegistration;
+    private final ListenerRegistration<?> sffListenerRegistration;
+    private final ListenerRegistration<?> sfgListenerRegistration;
+    private final ListenerRegistration<?> ovsdbBridgeListenerRegistration;
+
+    /**
+     * @param dataBroker - used to register the invalidation listeners
+     * @param maxEntries - maximum number of objects of each type kept in the cache
+     */
+    public SfcOfDataCache(DataBroker dataBroker, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Invalid maximum cache entries [" + maxEntries + "]");
+        }
+        serviceFunctions = new BoundedCache<>(maxEntries);
+        serviceFunctionForwarders = new BoundedCache<>(maxEntries);
+        serviceFunctionGroups = new BoundedCache<>(maxEntries);
+
+        sfListenerRegistration = registerListener(dataBroker,
+                InstanceIdentifier.create(ServiceFunctions.class).child(ServiceFunction.class),
+                serviceFunctions, ServiceFunctionKey::getName);
+        sffListenerRegistration = registerListener(dataBroker,
+                InstanceIdentifier.create(ServiceFunctionForwarders.class).child(ServiceFunctionForwarder.class),
+                serviceFunctionForwarders, ServiceFunctionForwarderKey::getName);
+        sfgListenerRegistration = registerListener(dataBroker,
+                InstanceIdentifier.create(ServiceFunctionGroups.class).child(ServiceFunctionGroup.class),
+                serviceFunctionGroups, ServiceFunctionGroupKey::getName);
+        ovsdbBridgeListenerRegistration = dataBroker.registerDataTreeChangeListener(
+                new DataTreeIdentifier<>(LogicalDatastoreType.OPERATIONAL,
+                        SfcOvsUtil.buildOvsdbTopologyIID().child(Node.class)),
+                new OvsdbBridgeListener(serviceFunctionForwarders));
+    }
+
+    private static <T extends DataObject & Identifiable<I>, I extends Identifier<T>, K>
+            ListenerRegistration<?> registerListener(DataBroker dataBroker, InstanceIdentifier<T> iid,
+                    BoundedCache<K, ?> cache, Function<I, K> keyMapper) {
+        return dataBroker.registerDataTreeChangeListener(
+                new DataTreeIdentifier<>(LogicalDatastoreType.CONFIGURATION, iid),
+                new InvalidationListener<>(cache, keyMapper));
+    }
+
+    /**
+     * Return the named ServiceFunction, reading it from the
+     * data store if it is not in the cache
+     *
+     * @param sfName - The SF Name to search for
+     * @return - The ServiceFunction object, or null if not found
+     */
+    public ServiceFunction getServiceFunction(final SfName sfName) {
+        ServiceFunction sf = serviceFunctions.get(sfName);
+        if (sf == null) {
+            long generation = serviceFunctions.getGeneration();
+            sf = SfcProviderServiceFunctionAPI.readServiceFunction(sfName);
+            if (sf != null) {
+                serviceFunctions.put(sfName, sf, generation);
+            }
+        }
+
+        return sf;
+    }
+
+    /**
+     * Return the named ServiceFunctionForwarder augmented with its OpenFlow
+     * node id, reading it from the data store if it is not in the cache
+     *
+     * @param sffName - The SFF Name to search for
+     * @return The ServiceFunctionForwarder object, or null if not found
+     */
+    public ServiceFunctionForwarder getServiceFunctionForwarder(final SffName sffName) {
+        ServiceFunctionForwarder sff = serviceFunctionForwarders.get(sffName);
+        if (sff == null) {
+            long generation = serviceFunctionForwarders.getGeneration();
+            sff = readServiceFunctionForwarder(sffName);
+            if (sff != null && hasOpenFlowNodeId(sff)) {
+                serviceFunctionForwarders.put(sffName, sff, generation);
+            }
+        }
+
+        return sff;
+    }
+
+    /**
+     * Return the named ServiceFunctionGroup, reading it from the
+     * data store if it is not in the cache
+     *
+     * @param sfgName - The SFG Name to search for
+     * @return The ServiceFunctionGroup object, or null if not found
+     */
+    public ServiceFunctionGroup getServiceFunctionGroup(final String sfgName) {
+        ServiceFunctionGroup sfg = serviceFunctionGroups.get(sfgName);
+        if (sfg == null) {
+            long generation = serviceFunctionGroups.getGeneration();
+            sfg = SfcProviderServiceFunctionGroupAPI.readServiceFunctionGroup(sfgName);
+            if (sfg != null) {
+                serviceFunctionGroups.put(sfgName, sfg, generation);
+            }
+        }
+
+        return sfg;
+    }
+
+    /**
+     * Read an SFF from the data store and augment it with its OpenFlow node id
+     *
+     * @param sffName - The SFF Name to search for
+     * @return The ServiceFunctionForwarder object, or null if not found
+     */
+    static ServiceFunctionForwarder readServiceFunctionForwarder(final SffName sffName) {
+        ServiceFunctionForwarder sff = SfcProviderServiceForwarderAPI.readServiceFunctionForwarder(sffName);
+        if (sff != null) {
+            sff = SfcOvsUtil.augmentSffWithOpenFlowNodeId(sff);
+        }
+        return sff;
+    }
+
+    private static boolean hasOpenFlowNodeId(ServiceFunctionForwarder sff) {
+        return getOpenFlowNodeId(sff) != null;
+    }
+
+    private static String getOpenFlowNodeId(ServiceFunctionForwarder sff) {
+        SffOvsBridgeAugmentation ovsSff = sff.getAugmentation(SffOvsBridgeAugmentation.class);
+        return ovsSff == null || ovsSff.getOvsBridge() == null ? null : ovsSff.getOvsBridge().getOpenflowNodeId();
+    }
+
+    /**
+     * Drop all the cached objects
+     */
+    public void invalidateAll() {
+        serviceFunctions.clear();
+        serviceFunctionForwarders.clear();
+        serviceFunctionGroups.clear();
+    }
+
+    @Override
+    public void close() {
+        sfListenerRegistration.close();
+        sffListenerRegistration.close();
+        sfgListenerRegistration.close();
+        ovsdbBridgeListenerRegistration.close();
+        invalidateAll();
+    }
+
+    //
+    // Statistics, aggregated for all the object types
+    //
+
+    public int getSize() {
+        return serviceFunctions.size() + serviceFunctionForwarders.size() + serviceFunctionGroups.size();
+    }
+
+    public long getHits() {
+        return serviceFunctions.hits.get() + serviceFunctionForwarders.hits.get() + serviceFunctionGroups.hits.get();
+    }
+
+    public long getMisses() {
+        return serviceFunctions.misses.get() + serviceFunctionForwarders.misses.get()
+                + serviceFunctionGroups.misses.get();
+    }
+
+    public long getEvictions() {
+        return serviceFunctions.evictions.get() + serviceFunctionForwarders.evictions.get()
+                + serviceFunctionGroups.evictions.get();
+    }
+
+    public long getInvalidations() {
+        return serviceFunctions.invalidations.get() + serviceFunctionForwarders.invalidations.get()
+                + serviceFunctionGroups.invalidations.get();
+    }
+
+    /**
+     * Invalidates the cache entry of every object modified in the data store.
+     */
+    private static class InvalidationListener<T extends DataObject & Identifiable<I>, I extends Identifier<T>, K>
+            implements ClusteredDataTreeChangeListener<T> {
+        private final BoundedCache<K, ?> cache;
+        private final Function<I, K> keyMapper;
+
+        InvalidationListener(BoundedCache<K, ?> cache, Function<I, K> keyMapper) {
+            this.cache = cache;
+            this.keyMapper = keyMapper;
+        }
+
+        @Override
+        public void onDataTreeChanged(@Nonnull Collection<DataTreeModification<T>> changes) {
+            for (DataTreeModification<T> change : changes) {
+                InstanceIdentifier<T> iid = change.getRootPath().getRootIdentifier();
+                I key = iid.firstKeyOf(iid.getTargetType());
+                if (key == null) {
+                    // Should not happen, but better safe than stale
+                    LOG.warn("onDataTreeChanged: no key in [{}], clearing the cache", iid);
+                    cache.clear();
+                    continue;
+                }
+                LOG.debug("onDataTreeChanged: invalidating [{}]", key);
+                cache.invalidate(keyMapper.apply(key));
+            }
+        }
+    }
+
+    /**
+     * Invalidates the SFFs cached with the OpenFlow node id of an OVSDB
+     * bridge whose datapath id changed. Other bridge changes, like port
+     * changes, do not affect the cached SFFs.
+     */
+    private static class OvsdbBridgeListener implements ClusteredDataTreeChangeListener<Node> {
+        private final BoundedCache<SffName, ServiceFunctionForwarder> cache;
+
+        OvsdbBridgeListener(BoundedCache<SffName, ServiceFunctionForwarder> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public void onDataTreeChanged(@Nonnull Collection<DataTreeModification<Node>> changes) {
+            Set<String> ofNodeIds = new HashSet<>();
+            for (DataTreeModification<Node> change : changes) {
+                String ofNodeIdBefore = getOpenFlowNodeId(change.getRootNode().getDataBefore());
+                String ofNodeIdAfter = getOpenFlowNodeId(change.getRootNode().getDataAfter());
+                if (Objects.equals(ofNodeIdBefore, ofNodeIdAfter)) {
+                    continue;
+                }
+                if (ofNodeIdBefore != null) {
+                    ofNodeIds.add(ofNodeIdBefore);
+                }
+                if (ofNodeIdAfter != null) {
+                    ofNodeIds.add(ofNodeIdAfter);
+                }
+            }
+            if (!ofNodeIds.isEmpty()) {
+                LOG.debug("onDataTreeChanged: invalidating the SFFs of bridges {}", ofNodeIds);
+                cache.invalidateIf(sff -> ofNodeIds.contains(SfcOfDataCache.getOpenFlowNodeId(sff)));
+            }
+        }
+
+        private static String getOpenFlowNodeId(Node node) {
+            if (node == null) {
+                return null;
+            }
+            OvsdbBridgeAugmentation ovsdbBridge = node.getAugmentation(OvsdbBridgeAugmentation.class);
+            if (ovsdbBridge == null || ovsdbBridge.getDatapathId() == null) {
+                return null;
+            }
+            return SfcOvsUtil.getOpenFlowNodeIdFromDpid(ovsdbBridge.getDatapathId());
+        }
+    }
+
+    /**
+     * An LRU map bounded to a maximum number of entries. The generation is
+     * increased on every invalidation, so a value read from the data store
+     * is only stored if no invalidation happened since the read started.
+     */
+    private static class BoundedCache<K, V> {
+        private final Map<K, V> entries;
+        // Guarded by this
+        private long generation;
+
+        private final AtomicLong hits = new AtomicLong(0);
+        private final AtomicLong misses = new AtomicLong(0);
+        private final AtomicLong evictions = new AtomicLong(0);
+        private final AtomicLong invalidations = new AtomicLong(0);
+
+        BoundedCache(final int maxEntries) {
+            this.generation = 0;
+            this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    if (size() > maxEntries) {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized V get(K key) {
+            V value = entries.get(key);
+            if (value == null) {
+                misses.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+            return value;
+        }
+
+        synchronized long getGeneration() {
+            return generation;
+        }
+
+        synchronized void put(K key, V value, long readGeneration) {
+            if (readGeneration == generation) {
+                entries.put(key, value);
+            }
+        }
+
+        synchronized void invalidate(K key) {
+            generation++;
+            invalidations.incrementAndGet();
+            entries.remove(key);
+        }
+
+        synchronized void invalidateIf(Predicate<V> predicate) {
+            generation++;
+            Iterator<V> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (predicate.test(iterator.next())) {
+                    invalidations.incrementAndGet();
+                    iterator.remove();
+                }
+            }
+        }
+
+        synchronized void clear() {
+            generation++;
+            entries.clear();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
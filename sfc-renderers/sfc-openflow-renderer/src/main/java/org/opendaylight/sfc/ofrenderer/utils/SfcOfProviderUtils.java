@@ -13,11 +13,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.sfc.provider.OpendaylightSfc;
 import org.opendaylight.sfc.provider.api.SfcDataStoreAPI;
-import org.opendaylight.sfc.provider.api.SfcProviderServiceForwarderAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionGroupAPI;
 import org.opendaylight.sfc.sfc_ovs.provider.SfcOvsUtil;
@@ -66,8 +66,25 @@ public class SfcOfProviderUtils extends SfcOfBaseProviderUtils {
 
     private Map<Long, RspContext> rspIdToContext;
 
+    // Optional cache shared by all the RSPs, null to only
+    // keep the objects for the duration of each RSP
+    private final SfcOfDataCache dataCache;
+
     public SfcOfProviderUtils() {
-        rspIdToContext = new HashMap<>();
+        this(null);
+    }
+
+    /**
+     * @param dataCache - the cache shared by all the RSPs, or null to read
+     *                    the data store at least once per RSP
+     */
+    public SfcOfProviderUtils(SfcOfDataCache dataCache) {
+        rspIdToContext = new ConcurrentHashMap<>();
+        this.dataCache = dataCache;
+    }
+
+    public SfcOfDataCache getDataCache() {
+        return dataCache;
     }
 
     @Override
@@ -83,8 +100,8 @@ public class SfcOfProviderUtils extends SfcOfBaseProviderUtils {
     /**
      * Return the named ServiceFunction
      * Acts as a local cache to not have to go to DataStore so often
-     * First look in internal storage, if its not there
-     * get it from the DataStore and store it internally
+     * First look in internal storage, if its not there get it from
+     * the shared cache or the DataStore and store it internally
      *
      * @param sfName - The SF Name to search for
      * @return - The ServiceFunction object, or null if not found
@@ -95,7 +112,9 @@ public class SfcOfProviderUtils extends SfcOfBaseProviderUtils {
 
         ServiceFunction sf = rspContext.serviceFunctions.get(sfName);
         if (sf == null) {
-            sf = SfcProviderServiceFunctionAPI.readServiceFunction(sfName);
+            sf = (dataCache == null)
+                    ? SfcProviderServiceFunctionAPI.readServiceFunction(sfName)
+                    : dataCache.getServiceFunction(sfName);
             if (sf != null) {
                 rspContext.serviceFunctions.put(sfName, sf);
             }
@@ -107,8 +126,8 @@ public class SfcOfProviderUtils extends SfcOfBaseProviderUtils {
     /**
      * Return the named ServiceFunctionForwarder
      * Acts as a local cache to not have to go to DataStore so often
-     * First look in internal storage, if its not there
-     * get it from the DataStore and store it internally
+     * First look in internal storage, if its not there get it from
+     * the shared cache or the DataStore and store it internally
      *
      * @param sffName - The SFF Name to search for
      * @return The ServiceFunctionForwarder object, or null if not found
@@ -119,9 +138,10 @@ public class SfcOfProviderUtils extends SfcOfBaseProviderUtils {
 
         ServiceFunctionForwarder sff = rspContext.serviceFunctionFowarders.get(sffName);
         if (sff == null) {
-            sff = SfcProviderServiceForwarderAPI.readServiceFunctionForwarder(sffName);
+            sff = (dataCache == null)
+                    ? SfcOfDataCache.readServiceFunctionForwarder(sffName)
+                    : dataCache.getServiceFunctionForwarder(sffName);
             if (sff != null) {
-                sff = SfcOvsUtil.augmentSffWithOpenFlowNodeId(sff);
                 rspContext.serviceFunctionFowarders.put(sffName, sff);
             }
         }
@@ -135,7 +155,9 @@ public class SfcOfProviderUtils extends SfcOfBaseProviderUtils {
 
         ServiceFunctionGroup sfg = rspContext.serviceFunctionGroups.get(sfgName);
         if (sfg == null) {
-            sfg = SfcProviderServiceFunctionGroupAPI.readServiceFunctionGroup(sfgName);
+            sfg = (dataCache == null)
+                    ? SfcProviderServiceFunctionGroupAPI.readServiceFunctionGroup(sfgName)
+                    : dataCache.getServiceFunctionGroup(sfgName);
             if (sfg != null) {
                 rspContext.serviceFunctionGroups.put(sfgName, sfg);
             }
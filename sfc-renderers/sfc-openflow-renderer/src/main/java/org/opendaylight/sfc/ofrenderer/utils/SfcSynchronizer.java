@@ -8,20 +8,47 @@
 
 package org.opendaylight.sfc.ofrenderer.utils;
 
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
 
 /**
  * A simple synchronization class used to synchronize different events in SFC.
- * Encapsulates the usage of a ReentrantLock.
+ * <p>
+ * Two levels of locking are provided:
+ * <ul>
+ * <li>lock()/unlock() is exclusive: no other thread holds any lock while it is held.
+ * It is used for events affecting all the SFFs, like table offset changes or RSP deletion</li>
+ * <li>lockSffs()/unlockSffs() only excludes the threads working on the same SFFs, so
+ * that RSPs touching disjoint sets of SFFs can be processed in parallel. SFF names are
+ * mapped to a fixed number of lock stripes, acquired in ascending order to avoid deadlocks</li>
+ * </ul>
  *
  * @author ebrjohn
  *
  */
 public class SfcSynchronizer {
-    private ReentrantLock lock;
+    private static final int DEFAULT_SFF_LOCK_STRIPES = 64;
+
+    private ReentrantReadWriteLock lock;
+    private ReentrantLock[] sffLocks;
 
     public SfcSynchronizer() {
-        lock = new ReentrantLock();
+        this(DEFAULT_SFF_LOCK_STRIPES);
+    }
+
+    /**
+     * @param sffLockStripes - the number of locks the SFF names are spread over
+     */
+    public SfcSynchronizer(int sffLockStripes) {
+        lock = new ReentrantReadWriteLock();
+        sffLocks = new ReentrantLock[sffLockStripes];
+        for (int i = 0; i < sffLockStripes; i++) {
+            sffLocks[i] = new ReentrantLock();
+        }
     }
 
     /**
@@ -29,7 +56,7 @@ public class SfcSynchronizer {
      * This is a blocking call.
      */
     public void lock() {
-        lock.lock();
+        lock.writeLock().lock();
     }
 
     /**
@@ -38,13 +65,46 @@ public class SfcSynchronizer {
      * @return true if no threads are waiting on the lock, false otherwise
      */
     public boolean isLocked() {
-        return lock.isLocked();
+        return lock.isWriteLocked();
     }
 
     /**
      * Release the lock
      */
     public void unlock() {
-        lock.unlock();
+        lock.writeLock().unlock();
+    }
+
+    /**
+     * To be called by threads that need to lock a set of SFFs.
+     * This is a blocking call.
+     *
+     * @param sffNames - the SFFs to lock
+     */
+    public void lockSffs(Collection<SffName> sffNames) {
+        lock.readLock().lock();
+        for (int stripe : getStripes(sffNames)) {
+            sffLocks[stripe].lock();
+        }
+    }
+
+    /**
+     * Release the locks of a set of SFFs, previously taken with lockSffs()
+     *
+     * @param sffNames - the SFFs to unlock, must be the same given to lockSffs()
+     */
+    public void unlockSffs(Collection<SffName> sffNames) {
+        for (int stripe : getStripes(sffNames)) {
+            sffLocks[stripe].unlock();
+        }
+        lock.readLock().unlock();
+    }
+
+    private SortedSet<Integer> getStripes(Collection<SffName> sffNames) {
+        SortedSet<Integer> stripes = new TreeSet<>();
+        for (SffName sffName : sffNames) {
+            stripes.add((sffName.getValue().hashCode() & Integer.MAX_VALUE) % sffLocks.length);
+        }
+        return stripes;
     }
 }
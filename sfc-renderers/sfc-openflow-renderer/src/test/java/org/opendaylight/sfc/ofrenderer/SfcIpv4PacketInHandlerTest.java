@@ -62,6 +62,7 @@ public class SfcIpv4PacketInHandlerTest {
         verify(this.flowProgrammerMock, times(2)).
             configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
         verify(this.flowProgrammerMock, times(1)).compareClassificationTableCookie((FlowCookie) anyObject());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
         verifyNoMoreInteractions(this.flowProgrammerMock);
     }
 
@@ -76,6 +77,7 @@ public class SfcIpv4PacketInHandlerTest {
         verify(this.flowProgrammerMock, times(2)).
             configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
         verify(this.flowProgrammerMock, times(1)).compareClassificationTableCookie((FlowCookie) anyObject());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
         verifyNoMoreInteractions(this.flowProgrammerMock);
 
         // When called again, nothing should be called on
@@ -97,6 +99,7 @@ public class SfcIpv4PacketInHandlerTest {
         verify(this.flowProgrammerMock, times(2)).
             configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
         verify(this.flowProgrammerMock, times(1)).compareClassificationTableCookie((FlowCookie) anyObject());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
         verifyNoMoreInteractions(this.flowProgrammerMock);
 
         // When called again, the packet should be sent to the FlowProgrammer
@@ -108,6 +111,7 @@ public class SfcIpv4PacketInHandlerTest {
         verify(this.flowProgrammerMock, times(2)).
             configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
         verify(this.flowProgrammerMock, times(1)).compareClassificationTableCookie((FlowCookie) anyObject());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
         verifyNoMoreInteractions(this.flowProgrammerMock);
     }
 
@@ -123,6 +127,7 @@ public class SfcIpv4PacketInHandlerTest {
         verify(this.flowProgrammerMock, times(2)).
             configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
         verify(this.flowProgrammerMock, times(1)).compareClassificationTableCookie((FlowCookie) anyObject());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
         verifyNoMoreInteractions(this.flowProgrammerMock);
         assertEquals(this.pktInHandler.getBufferSize(), 1);
 
@@ -135,6 +140,7 @@ public class SfcIpv4PacketInHandlerTest {
         verify(this.flowProgrammerMock, times(2)).
             configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort());
         verify(this.flowProgrammerMock, times(1)).compareClassificationTableCookie((FlowCookie) anyObject());
+        verify(this.flowProgrammerMock, times(1)).flushFlows();
         verifyNoMoreInteractions(this.flowProgrammerMock);
         assertEquals(this.pktInHandler.getBufferSize(), 1);
     }
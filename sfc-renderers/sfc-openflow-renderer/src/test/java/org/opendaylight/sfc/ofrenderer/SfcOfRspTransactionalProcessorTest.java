@@ -19,14 +19,10 @@ import org.mockito.Matchers;
 import org.mockito.Mockito;
 import java.util.Set;
 import java.util.List;
-import java.util.Map;
-import java.util.HashSet;
-import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.Collections;
 
 import java.util.concurrent.ExecutionException;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.junit.Assert;
@@ -36,6 +32,8 @@ import org.junit.runner.RunWith;
 
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerInterface;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerImpl;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowRegistry;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowRegistry.RegisteredFlow;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterImpl;
 import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterInterface;
 import org.opendaylight.sfc.ofrenderer.processors.SfcOfRspProcessor;
@@ -43,6 +41,7 @@ import org.opendaylight.sfc.ofrenderer.utils.SfcOfProviderUtilsTestMock;
 import org.opendaylight.sfc.ofrenderer.utils.SfcSynchronizer;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SftTypeName;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePathBuilder;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.VxlanGpe;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.Nsh;
 import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev100924.Uri;
@@ -122,14 +121,36 @@ public class SfcOfRspTransactionalProcessorTest {
     /**
      * Helper function to check if the SFFs are free of initialization flows or still have them
      *
-     * @param theMap the cache of installed flows per sff, per RSP
+     * @param theRegistry the registry of installed flows per sff, per RSP
      * @return true if all SFFs are free of initialization flows, false otherwise
      */
-    private boolean
-    areSffsFreeOfInitializationFlows(Map<Long, Map<String, List<SfcOfFlowWriterImpl.FlowDetails>>> theMap) {
-        Predicate<Map.Entry<String, List<SfcOfFlowWriterImpl.FlowDetails>>> emptySff =
-                theInputEntry -> theInputEntry.getValue().size() == 0;
-        return theMap.get(SfcOfRspProcessor.SFC_FLOWS).entrySet().stream().allMatch(emptySff);
+    private boolean areSffsFreeOfInitializationFlows(SfcOfFlowRegistry theRegistry) {
+        return theRegistry.getFlows(SfcOfRspProcessor.SFC_FLOWS).isEmpty();
+    }
+
+    /**
+     * Helper function to get all the flows stored by the flow writer
+     *
+     * @param theRegistry the registry of installed flows per sff, per RSP
+     * @return the flows of all the RSPs, including the initialization flows
+     */
+    private Set<RegisteredFlow> getAllFlows(SfcOfFlowRegistry theRegistry) {
+        return theRegistry.getRspIds().stream()
+                .flatMap(rspId -> theRegistry.getFlows(rspId).stream())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Helper function to get the flows scheduled for deletion by the flow writer
+     *
+     * @return the flows to be deleted
+     */
+    private Set<RegisteredFlow> getFlowsToDelete() {
+        Set<SfcOfFlowWriterImpl.FlowDetails> flowsToDelete = Whitebox
+                .getInternalState(sfcFlowWriterTestMock, "setOfFlowsToDelete");
+        return flowsToDelete.stream()
+                .map(flow -> new RegisteredFlow(flow.sffNodeName, flow.tableKey, flow.flowKey))
+                .collect(Collectors.toSet());
     }
 
     /**
@@ -138,8 +159,7 @@ public class SfcOfRspTransactionalProcessorTest {
     @Test
     public void deleteNonExistentRsp() {
         sfcFlowWriterTestMock.deleteRspFlows((long) 31);
-        Set<SfcOfFlowWriterImpl.FlowDetails> flowsToDelete = Whitebox
-                .getInternalState(sfcFlowWriterTestMock, "setOfFlowsToDelete");
+        Set<RegisteredFlow> flowsToDelete = getFlowsToDelete();
         Assert.assertTrue(flowsToDelete.isEmpty());
     }
 
@@ -165,6 +185,11 @@ public class SfcOfRspTransactionalProcessorTest {
         PowerMockito.verifyPrivate(
                 this.sfcOfRspProcessor, times(2)).invoke("setSffInitialized", (Uri) anyObject(), Matchers.eq(true));
 
+        // fetch the flow registry, and all the flows created
+        SfcOfFlowRegistry theRegistry =
+                Whitebox.getInternalState(sfcFlowWriterTestMock, "flowRegistry");
+        Set<RegisteredFlow> createdFlows = getAllFlows(theRegistry);
+
         LOG.info("testSingleRSPDeletion: flow creation completed - starting deletion");
         this.sfcOfRspProcessor.deleteRenderedServicePath(nshRsp);
 
@@ -172,29 +197,21 @@ public class SfcOfRspTransactionalProcessorTest {
                 this.sfcOfRspProcessor, times(2)).invoke("setSffInitialized", (Object) anyObject(), Matchers.eq(false));
 
         // fetch the list of flows to be deleted
-        Set<SfcOfFlowWriterImpl.FlowDetails> deletedFlows = Whitebox
-                .getInternalState(sfcFlowWriterTestMock, "setOfFlowsToDelete");
-
-        // fetch the flow cache
-        Map<Long, Map<String, List<SfcOfFlowWriterImpl.FlowDetails>>> theMap =
-                Whitebox.getInternalState(sfcFlowWriterTestMock, "rspNameToFlowsMap");
+        Set<RegisteredFlow> deletedFlows = getFlowsToDelete();
 
         // all the initialization flows belong to a dummy RSP - check SfcOfRspProcessor SFC_FLOWS constant
         // we won't delete this entry from the cache
-        assertThat(theMap.entrySet().size(), is(1));
-
-        // get all the current flows
-        Set<SfcOfFlowWriterImpl.FlowDetails> currentFlows =
-                theMap.entrySet().stream()
-                        .flatMap(rspEntry -> rspEntry.getValue().entrySet().stream())
-                        .flatMap(sffEntry -> sffEntry.getValue().stream())
-                        .collect(Collectors.toSet());
+        assertThat(theRegistry.getRspIds(), is(Collections.singleton(SfcOfRspProcessor.SFC_FLOWS)));
 
-        // assure that the difference between them is an empty set
-        assertThat(Sets.difference(currentFlows, deletedFlows), is(Collections.emptySet()));
+        // assure that all the created flows are deleted
+        assertThat(Sets.difference(createdFlows, deletedFlows), is(Collections.emptySet()));
 
-        // assure that the SFFs don't have any initialization flows
-        Assert.assertTrue(areSffsFreeOfInitializationFlows(theMap));
+        // assure that the SFFs don't have any initialization flows, nor RSPs referencing them
+        Assert.assertTrue(areSffsFreeOfInitializationFlows(theRegistry));
+        Assert.assertTrue(getAllFlows(theRegistry).isEmpty());
+        for (RegisteredFlow flow : createdFlows) {
+            assertThat(theRegistry.getRspCount(flow.getSffNodeName()), is(0));
+        }
     }
 
     /*
@@ -211,28 +228,22 @@ public class SfcOfRspTransactionalProcessorTest {
         this.nshRsp = rspBuilder.createRspFromSfTypes(serviceFunctionChain1, VxlanGpe.class, Nsh.class);
         this.nshRsp2 = rspBuilder.createRspFromSfTypes(serviceFunctionChain2, VxlanGpe.class, Nsh.class);
 
+        SfcOfFlowRegistry theRegistry =
+                Whitebox.getInternalState(sfcFlowWriterTestMock, "flowRegistry");
+
         // ---------------------
         // Step 1. Create RSP 1
         // ---------------------
         this.sfcOfRspProcessor.processRenderedServicePath(nshRsp);
 
         // Store the list of flows created at this point
-        Map<Long, Map<String, List<SfcOfFlowWriterImpl.FlowDetails>>> rspToFlowsMap1 = Whitebox
-                .getInternalState(sfcFlowWriterTestMock, "rspNameToFlowsMap");
         verify(sfcFlowWriterTestMock).flushFlows();
+        Set<Long> rspIdsAfterRsp1 = theRegistry.getRspIds();
+        Set<RegisteredFlow> allFlowsAfterRsp1 = getAllFlows(theRegistry);
 
-        Set<SfcOfFlowWriterImpl.FlowDetails> allFlowsAfterRsp1 = new HashSet<>();
-
-        for (Map<String, List<SfcOfFlowWriterImpl.FlowDetails>> flowsInRsp: rspToFlowsMap1.values()) {
-            flowsInRsp.values().forEach(theFlows -> {
-                allFlowsAfterRsp1.addAll(theFlows);
-            });
-
-            LOG.debug("  Step 1: added {} flows to flow list",  flowsInRsp.size());
-        }
         LOG.debug("testMultiRSPDeletionSymmetrical: After creation of first "
                 + "RSP: {} RSPs and {} flows stored internally by the flow writer",
-                rspToFlowsMap1.keySet().size(),
+                rspIdsAfterRsp1.size(),
                 allFlowsAfterRsp1.size());
 
         // ---------------------
@@ -240,21 +251,12 @@ public class SfcOfRspTransactionalProcessorTest {
         // ---------------------
         this.sfcOfRspProcessor.processRenderedServicePath(nshRsp2);
         // Store the list of flows created at this point
-        Map<Long, Map<String, List<SfcOfFlowWriterImpl.FlowDetails>>> rspToFlowsMap2 = Whitebox.
-                getInternalState(sfcFlowWriterTestMock, "rspNameToFlowsMap");
         verify(sfcFlowWriterTestMock, times(2)).flushFlows();
-
-        Set<SfcOfFlowWriterImpl.FlowDetails> allFlowsAfterRsp2 = new HashSet<>();
-        for (Map<String, List<SfcOfFlowWriterImpl.FlowDetails>> flowsInRsp: rspToFlowsMap2.values()) {
-            flowsInRsp.values().forEach( theFlows -> {
-                allFlowsAfterRsp2.addAll(theFlows);
-            });
-            LOG.debug("  Step 2: added {} flows to flow list",  flowsInRsp.size());
-        }
+        Set<RegisteredFlow> allFlowsAfterRsp2 = getAllFlows(theRegistry);
 
         LOG.debug("testMultiRSPDeletionSymmetrical: After creation of second "
                 + "RSP: {} RSPs and {} flows stored internally by the flow writer",
-                rspToFlowsMap2.keySet().size(),
+                theRegistry.getRspIds().size(),
                 allFlowsAfterRsp2.size());
 
         // ---------------------
@@ -262,20 +264,17 @@ public class SfcOfRspTransactionalProcessorTest {
         // ---------------------
         this.sfcOfRspProcessor.deleteRenderedServicePath(nshRsp2);
 
-        // Store the list of flows created at this point
-        Map<Long, Map<String, List<SfcOfFlowWriterImpl.FlowDetails>>> rspToFlowsMap3 = Whitebox
-                .getInternalState(sfcFlowWriterTestMock, "rspNameToFlowsMap");
         verify(sfcFlowWriterTestMock).deleteFlowSet();
 
-        Set<SfcOfFlowWriterImpl.FlowDetails> deletedFlowsRsp2 = Whitebox
-                .getInternalState(sfcFlowWriterTestMock, "setOfFlowsToDelete");
+        Set<RegisteredFlow> deletedFlowsRsp2 = getFlowsToDelete();
 
         LOG.debug("testMultiRSPDeletionSymmetrical: After deletion of RSP2: "
                 + "RSP: {} RSPs and {} flows stored internally by the flow writer",
-                rspToFlowsMap3.keySet().size(),
+                theRegistry.getRspIds().size(),
                 allFlowsAfterRsp2.size() - deletedFlowsRsp2.size());
 
-        Assert.assertEquals(rspToFlowsMap3, rspToFlowsMap1);
+        Assert.assertEquals(rspIdsAfterRsp1, theRegistry.getRspIds());
+        Assert.assertEquals(allFlowsAfterRsp1, getAllFlows(theRegistry));
         Assert.assertEquals(allFlowsAfterRsp1.size(), allFlowsAfterRsp2.size() - deletedFlowsRsp2.size());
         Assert.assertTrue(Sets.difference(allFlowsAfterRsp2, deletedFlowsRsp2).containsAll(allFlowsAfterRsp1));
 
@@ -284,25 +283,21 @@ public class SfcOfRspTransactionalProcessorTest {
         // ---------------------
         this.sfcOfRspProcessor.deleteRenderedServicePath(nshRsp);
 
-        // Store the list of flows created at this point
-        Map<Long, Map<String, List<SfcOfFlowWriterImpl.FlowDetails>>> rspToFlowsMap4 = Whitebox.
-                getInternalState(sfcFlowWriterTestMock, "rspNameToFlowsMap");
         verify(sfcFlowWriterTestMock, times(2)).deleteFlowSet();
 
         // get the list of deleted flows belonging to RSP1
-        Set<SfcOfFlowWriterImpl.FlowDetails> allDeletedFlows = Whitebox
-                .getInternalState(sfcFlowWriterTestMock, "setOfFlowsToDelete");
+        Set<RegisteredFlow> allDeletedFlows = getFlowsToDelete();
 
         LOG.debug("testMultiRSPDeletionSymmetrical: After deletion of RSP2: "
                 + "RSP: {} RSPs and {} flows stored internally by the flow writer",
-                rspToFlowsMap4.keySet().size(),
+                theRegistry.getRspIds().size(),
                 allDeletedFlows.size());
 
         // assure that we have the right number of flows
         Assert.assertEquals(0, allFlowsAfterRsp2.size() - allDeletedFlows.size());
 
         // assure that the SFFs don't have any initialization flows
-        Assert.assertTrue(areSffsFreeOfInitializationFlows(rspToFlowsMap4));
+        Assert.assertTrue(areSffsFreeOfInitializationFlows(theRegistry));
     }
 
     /*
@@ -320,24 +315,18 @@ public class SfcOfRspTransactionalProcessorTest {
         this.nshRsp = rspBuilder.createRspFromSfTypes(serviceFunctionChain1, VxlanGpe.class, Nsh.class);
         this.nshRsp2 = rspBuilder.createRspFromSfTypes(serviceFunctionChain2, VxlanGpe.class, Nsh.class);
 
+        SfcOfFlowRegistry theRegistry =
+                Whitebox.getInternalState(sfcFlowWriterTestMock, "flowRegistry");
+
         // ---------------------------------------------------------------------------------------------------------
         // Step 0(Preparation): first create RSP2, store info of created flows. Then delete RSP2.
         // This is done in order to have the set of flows for RSP 2 only, so that we can compare
         // with the set of flows after C:RSP1-C:RSP2-D:RSP1 (end of Step 3)
         // ---------------------------------------------------------------------------------------------------------
         this.sfcOfRspProcessor.processRenderedServicePath(nshRsp2);
-        Map<Long, Map<String, List<SfcOfFlowWriterImpl.FlowDetails>>> currentRspCache = Whitebox.
-                getInternalState(sfcFlowWriterTestMock, "rspNameToFlowsMap");
 
-        Map<Long, Map<String, List<SfcOfFlowWriterImpl.FlowDetails>>> theRspToFlowsMapWithRSP2Only =
-                new HashMap<>(currentRspCache);
-
-        Set<SfcOfFlowWriterImpl.FlowDetails> allFlowsAfterCreatingRSP2Only = new HashSet<>();
-        for (Map<String, List<SfcOfFlowWriterImpl.FlowDetails>> flowsInRsp: theRspToFlowsMapWithRSP2Only.values()) {
-            flowsInRsp.values().forEach(theFlows -> {
-                allFlowsAfterCreatingRSP2Only.addAll(theFlows);
-            });
-        }
+        Set<Long> rspIdsWithRSP2Only = theRegistry.getRspIds();
+        Set<RegisteredFlow> allFlowsAfterCreatingRSP2Only = getAllFlows(theRegistry);
 
         LOG.debug("  Preparation: added {} flows to reference flow list (for RSP2)",
                 allFlowsAfterCreatingRSP2Only.size());
@@ -347,51 +336,34 @@ public class SfcOfRspTransactionalProcessorTest {
 
         // got to reset the internal buffer of the writer
         sfcFlowWriterTestMock.purgeFlows();
-        currentRspCache.clear();
+        theRegistry.clear();
 
         // ---------------------
         // Step 1. Create RSP 1
         // ---------------------
         this.sfcOfRspProcessor.processRenderedServicePath(nshRsp);
 
-        // Store the list of flows created at this point
-        Map<Long, Map<String, List<SfcOfFlowWriterImpl.FlowDetails>>> rspToFlowsMap1 =
-                Whitebox.getInternalState(sfcFlowWriterTestMock, "rspNameToFlowsMap");
-
         verify(sfcFlowWriterTestMock, times(2)).flushFlows();
 
-        Set<SfcOfFlowWriterImpl.FlowDetails> allFlowsAfterRsp1 = new HashSet<>();
-        for (Map<String, List<SfcOfFlowWriterImpl.FlowDetails>> flowsInRsp: rspToFlowsMap1.values()) {
-            flowsInRsp.values().forEach(theFlows -> {
-                allFlowsAfterRsp1.addAll(theFlows);
-            });
-            LOG.debug("  Step 1: added {} flows to flow list",  flowsInRsp.size());
-        }
+        // Store the list of flows created at this point
+        Set<RegisteredFlow> allFlowsAfterRsp1 = getAllFlows(theRegistry);
         LOG.debug("testMultiRSPDeletionASymmetrical: After creation of first "
                 + "RSP: {} RSPs and {} flows stored internally by the flow writer",
-                rspToFlowsMap1.keySet().size(),
+                theRegistry.getRspIds().size(),
                 allFlowsAfterRsp1.size());
 
         // ---------------------
         // Step 2. Create RSP2
         // ---------------------
         this.sfcOfRspProcessor.processRenderedServicePath(nshRsp2);
-        // Store the list of flows created at this point
-        Map<Long, Map<String, List<SfcOfFlowWriterImpl.FlowDetails>>> rspToFlowsMap2 = Whitebox
-                .getInternalState(sfcFlowWriterTestMock, "rspNameToFlowsMap");
         verify(sfcFlowWriterTestMock, times(3)).flushFlows();
 
-        Set<SfcOfFlowWriterImpl.FlowDetails> allFlowsAfterRsp2 = new HashSet<>();
-        for (Map<String, List<SfcOfFlowWriterImpl.FlowDetails>> flowsInRsp: rspToFlowsMap1.values()) {
-            flowsInRsp.values().forEach(theFlows -> {
-                allFlowsAfterRsp2.addAll(theFlows);
-            });
-            LOG.debug("  Step 1: added {} flows to flow list",  flowsInRsp.size());
-        }
+        // Store the list of flows created at this point
+        Set<RegisteredFlow> allFlowsAfterRsp2 = getAllFlows(theRegistry);
 
         LOG.debug("testMultiRSPDeletionASymmetrical: After creation of second "
                 + "RSP: {} RSPs and {} flows stored internally by the flow writer",
-                rspToFlowsMap2.keySet().size(),
+                theRegistry.getRspIds().size(),
                 allFlowsAfterRsp2.size());
 
         // ---------------------
@@ -399,27 +371,24 @@ public class SfcOfRspTransactionalProcessorTest {
         // ---------------------
         this.sfcOfRspProcessor.deleteRenderedServicePath(nshRsp);
 
-        // Store the list of flows created at this point
-        Map<Long, Map<String, List<SfcOfFlowWriterImpl.FlowDetails>>> rspToFlowsMap3 = Whitebox.
-                getInternalState(sfcFlowWriterTestMock, "rspNameToFlowsMap");
         verify(sfcFlowWriterTestMock, times(2)).deleteFlowSet();
 
-        Set<SfcOfFlowWriterImpl.FlowDetails> deletedFlowsRsp1 = Whitebox
-                .getInternalState(sfcFlowWriterTestMock, "setOfFlowsToDelete");
+        Set<RegisteredFlow> deletedFlowsRsp1 = getFlowsToDelete();
 
         LOG.debug("testMultiRSPDeletionSymmetrical: After deletion of RSP2: "
                         + "RSP: {} RSPs and {} flows stored internally by the flow writer",
-                rspToFlowsMap3.keySet().size(),
+                theRegistry.getRspIds().size(),
                 allFlowsAfterRsp2.size() - deletedFlowsRsp1.size());
 
         // Flows after C:RSP1-C:RSP2-D-RSP1 should be the same than after C:RSP2
-        Assert.assertEquals(2, rspToFlowsMap3.size());
-        Assert.assertEquals(rspToFlowsMap3, rspToFlowsMap1);
+        Assert.assertEquals(2, theRegistry.getRspIds().size());
+        Assert.assertEquals(rspIdsWithRSP2Only, theRegistry.getRspIds());
         Assert.assertEquals(allFlowsAfterCreatingRSP2Only.size(), allFlowsAfterRsp2.size() - deletedFlowsRsp1.size());
+        Assert.assertEquals(allFlowsAfterCreatingRSP2Only.size(), getAllFlows(theRegistry).size());
 
         LOG.debug("testMultiRSPDeletionASymmetrical: After deletion of RSP2: "
                 + "RSP: {} RSPs and {} flows stored internally by the flow writer",
-                rspToFlowsMap3.keySet().size(),
+                theRegistry.getRspIds().size(),
                 deletedFlowsRsp1.size());
 
         // ---------------------
@@ -427,23 +396,69 @@ public class SfcOfRspTransactionalProcessorTest {
         // ---------------------
         this.sfcOfRspProcessor.deleteRenderedServicePath(nshRsp2);
 
-        // Store the list of flows created at this point
-        Map<Long, Map<String, List<SfcOfFlowWriterImpl.FlowDetails>>> rspToFlowsMap4 = Whitebox
-                .getInternalState(sfcFlowWriterTestMock, "rspNameToFlowsMap");
         verify(sfcFlowWriterTestMock, times(3)).deleteFlowSet();
 
-        Set<SfcOfFlowWriterImpl.FlowDetails> deleteAllFlows =
-                Whitebox.getInternalState(sfcFlowWriterTestMock, "setOfFlowsToDelete");
+        Set<RegisteredFlow> deleteAllFlows = getFlowsToDelete();
 
         LOG.debug("testMultiRSPDeletionASymmetrical: After deletion of RSP2: "
                 + "RSP: {} RSPs and {} flows stored internally by the flow writer",
-                rspToFlowsMap4.keySet().size(),
+                theRegistry.getRspIds().size(),
                 deleteAllFlows.size());
 
         // assure we have deleted the right number of flows
         Assert.assertEquals(0, allFlowsAfterRsp2.size() - deleteAllFlows.size());
 
         // assure that the SFFs don't have any initialization flows
-        Assert.assertTrue(areSffsFreeOfInitializationFlows(rspToFlowsMap4));
+        Assert.assertTrue(areSffsFreeOfInitializationFlows(theRegistry));
+    }
+
+    /*
+     * Create RSP, then update it, first without any change, then removing its last hop.
+     *   - Check that an unchanged RSP does not write nor delete any flow
+     *   - Check that only the flows of the removed hop are deleted
+     */
+    @Test
+    public void testRspUpdateDelta() throws Exception {
+        LOG.info("testRspUpdateDelta");
+
+        final SfcOfFlowWriterImpl flowWriter = Mockito.spy(new SfcOfFlowWriterImpl(true));
+        final List<Integer> writtenFlowCounts = new ArrayList<>();
+        final List<Integer> deletedFlowCounts = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            Set<?> flowsToAdd = Whitebox.getInternalState(flowWriter, "setOfFlowsToAdd");
+            writtenFlowCounts.add(flowsToAdd.size());
+            flowsToAdd.clear();
+            return null;
+        }).when(flowWriter).flushFlows();
+        Mockito.doAnswer(invocation -> {
+            Set<?> flowsToDelete = Whitebox.getInternalState(flowWriter, "setOfFlowsToDelete");
+            deletedFlowCounts.add(flowsToDelete.size());
+            flowsToDelete.clear();
+            return null;
+        }).when(flowWriter).deleteFlowSet();
+        SfcOfRspProcessor rspProcessor = new SfcOfRspProcessor(
+                new SfcOfFlowProgrammerImpl(flowWriter), this.sfcUtilsTestMock, new SfcSynchronizer(), null);
+        SfcOfFlowRegistry theRegistry = flowWriter.getFlowRegistry();
+
+        this.nshRsp = rspBuilder.createRspFromSfTypes(serviceFunctionChain1, VxlanGpe.class, Nsh.class);
+        rspProcessor.processRenderedServicePath(nshRsp);
+        Set<RegisteredFlow> flowsAfterCreation = getAllFlows(theRegistry);
+        int rspFlowsAfterCreation = theRegistry.getFlows(nshRsp.getPathId()).size();
+        Assert.assertTrue(writtenFlowCounts.get(0) > 0);
+
+        // Same RSP: nothing to write or delete
+        rspProcessor.updateRenderedServicePath(nshRsp, nshRsp);
+        Assert.assertEquals(0, (int) writtenFlowCounts.get(1));
+        Assert.assertEquals(0, (int) deletedFlowCounts.get(0));
+        Assert.assertEquals(flowsAfterCreation, getAllFlows(theRegistry));
+
+        // Last hop removed: its flows are deleted, the flows of the remaining hop are kept
+        RenderedServicePath shorterRsp = new RenderedServicePathBuilder(nshRsp)
+                .setRenderedServicePathHop(nshRsp.getRenderedServicePathHop().subList(0, 1))
+                .build();
+        rspProcessor.updateRenderedServicePath(nshRsp, shorterRsp);
+        Assert.assertTrue(deletedFlowCounts.get(1) > 0);
+        Assert.assertTrue(writtenFlowCounts.get(2) < rspFlowsAfterCreation);
+        Assert.assertTrue(theRegistry.getFlows(nshRsp.getPathId()).size() < rspFlowsAfterCreation);
     }
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2014, 2015 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.listeners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowProgrammerInterface;
+import org.opendaylight.sfc.ofrenderer.utils.SfcOfBaseProviderUtils;
+import org.opendaylight.sfc.ofrenderer.utils.SfcSynchronizer;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePathBuilder;
+
+/**
+ * Concurrent rendering of the RSPs by the SfcOfRspDataListener executors,
+ * the RSP processing being replaced by tasks locking the SFFs of the RSP.
+ */
+public class SfcOfRspDataListenerTest {
+
+    private static final int RENDERING_THREADS = 2;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private SfcSynchronizer sfcSynchronizer;
+    private SfcOfRspDataListener sfcOfRspDataListener;
+
+    @Before
+    public void setUp() {
+        sfcSynchronizer = new SfcSynchronizer();
+        sfcOfRspDataListener = new SfcOfRspDataListener(
+                mock(DataBroker.class),
+                mock(SfcOfFlowProgrammerInterface.class),
+                mock(SfcOfBaseProviderUtils.class),
+                sfcSynchronizer,
+                null,
+                RENDERING_THREADS);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        sfcOfRspDataListener.shutdown();
+    }
+
+    private static int getExecutorIndex(RenderedServicePath rsp) {
+        return (int) (rsp.getPathId() % RENDERING_THREADS);
+    }
+
+    private static RenderedServicePath buildRsp(String rspName, long pathId) {
+        return new RenderedServicePathBuilder().setName(new RspName(rspName)).setPathId(pathId).build();
+    }
+
+    /*
+     * Two RSPs processed by different executors
+     */
+    private static List<RenderedServicePath> buildRspsOnDifferentExecutors() {
+        RenderedServicePath rsp1 = buildRsp("RSP-0", 0);
+        for (int i = 1;; i++) {
+            RenderedServicePath rsp2 = buildRsp("RSP-" + i, i);
+            if (getExecutorIndex(rsp2) != getExecutorIndex(rsp1)) {
+                return Arrays.asList(rsp1, rsp2);
+            }
+        }
+    }
+
+    @Test
+    public void rspsOnDisjointSffsAreRenderedConcurrently() throws Exception {
+        List<RenderedServicePath> rsps = buildRspsOnDifferentExecutors();
+        List<Collection<SffName>> sffNames = Arrays.asList(
+                Arrays.asList(new SffName("sff1"), new SffName("sff2")),
+                Collections.singletonList(new SffName("sff3")));
+
+        // Both renderings must hold their SFF locks at the same time to pass the barrier
+        CyclicBarrier barrier = new CyclicBarrier(rsps.size());
+        CountDownLatch done = new CountDownLatch(rsps.size());
+        for (int i = 0; i < rsps.size(); i++) {
+            Collection<SffName> rspSffNames = sffNames.get(i);
+            sfcOfRspDataListener.execute(rsps.get(i), () -> {
+                sfcSynchronizer.lockSffs(rspSffNames);
+                try {
+                    barrier.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                    done.countDown();
+                } catch (Exception e) {
+                    // the latch is not counted down, failing the test
+                } finally {
+                    sfcSynchronizer.unlockSffs(rspSffNames);
+                }
+            });
+        }
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void rspsOnOverlappingSffsAreRenderedOneAtATime() throws Exception {
+        List<RenderedServicePath> rsps = buildRspsOnDifferentExecutors();
+        List<Collection<SffName>> sffNames = Arrays.asList(
+                Arrays.asList(new SffName("sff1"), new SffName("sff2")),
+                Arrays.asList(new SffName("sff2"), new SffName("sff3")));
+        int changesPerRsp = 200;
+
+        AtomicInteger renderingSff2 = new AtomicInteger();
+        AtomicInteger maxRenderingSff2 = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(rsps.size() * changesPerRsp);
+        for (int change = 0; change < changesPerRsp; change++) {
+            for (int i = 0; i < rsps.size(); i++) {
+                Collection<SffName> rspSffNames = sffNames.get(i);
+                sfcOfRspDataListener.execute(rsps.get(i), () -> {
+                    sfcSynchronizer.lockSffs(rspSffNames);
+                    try {
+                        int rendering = renderingSff2.incrementAndGet();
+                        maxRenderingSff2.accumulateAndGet(rendering, Math::max);
+                        Thread.yield();
+                        renderingSff2.decrementAndGet();
+                    } finally {
+                        sfcSynchronizer.unlockSffs(rspSffNames);
+                    }
+                    done.countDown();
+                });
+            }
+        }
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, maxRenderingSff2.get());
+    }
+
+    @Test
+    public void changesOfAnRspAreRenderedInOrder() throws Exception {
+        RenderedServicePath rsp = buildRsp("RSP-ordered", 7);
+        int changes = 500;
+        List<Integer> renderedChanges = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(changes);
+        for (int change = 0; change < changes; change++) {
+            int renderedChange = change;
+            sfcOfRspDataListener.execute(rsp, () -> {
+                renderedChanges.add(renderedChange);
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (int change = 0; change < changes; change++) {
+            assertEquals(Integer.valueOf(change), renderedChanges.get(change));
+        }
+    }
+
+    @Test
+    public void rspsWithTheSamePathIdAreRenderedInOrder() throws Exception {
+        // An RSP deleted, and another one created with the freed path id
+        List<RenderedServicePath> rsps = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rsps.add(buildRsp("RSP-reusing-" + i, 3));
+        }
+        List<String> renderedRsps = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(rsps.size());
+        for (RenderedServicePath rsp : rsps) {
+            sfcOfRspDataListener.execute(rsp, () -> {
+                renderedRsps.add(rsp.getName().getValue());
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (int i = 0; i < rsps.size(); i++) {
+            assertEquals(rsps.get(i).getName().getValue(), renderedRsps.get(i));
+        }
+    }
+
+    @Test
+    public void exclusiveLockStopsTheRendering() throws Exception {
+        List<RenderedServicePath> rsps = buildRspsOnDifferentExecutors();
+        assertNotEquals(getExecutorIndex(rsps.get(0)), getExecutorIndex(rsps.get(1)));
+        CountDownLatch done = new CountDownLatch(rsps.size());
+
+        sfcSynchronizer.lock();
+        try {
+            for (RenderedServicePath rsp : rsps) {
+                Collection<SffName> rspSffNames = Collections.singletonList(new SffName(rsp.getName().getValue()));
+                sfcOfRspDataListener.execute(rsp, () -> {
+                    sfcSynchronizer.lockSffs(rspSffNames);
+                    sfcSynchronizer.unlockSffs(rspSffNames);
+                    done.countDown();
+                });
+            }
+            // Like an RSP deletion, the exclusive lock holder runs alone
+            assertEquals(rsps.size(), done.getCount());
+        } finally {
+            sfcSynchronizer.unlock();
+        }
+        assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+}
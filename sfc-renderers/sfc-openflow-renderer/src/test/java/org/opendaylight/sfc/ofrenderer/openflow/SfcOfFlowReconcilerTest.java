@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowRegistry.RegisteredFlow;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterImpl.FlowDetails;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+
+/**
+ * Unit tests for the reconciliation of the rendered flows with the flows
+ * found in the data store at startup.
+ */
+public class SfcOfFlowReconcilerTest {
+
+    private static final short TABLE_ID = 1;
+
+    private SfcOfFlowWriterImpl flowWriter;
+    private SfcOfFlowRegistry flowRegistry;
+    private SfcOfFlowReconciler reconciler;
+
+    @Before
+    public void setUp() {
+        flowWriter = new SfcOfFlowWriterImpl();
+        flowRegistry = new SfcOfFlowRegistry(0L);
+
+        Map<RegisteredFlow, Flow> existingFlows = new HashMap<>();
+        existingFlows.put(registeredFlow("openflow:1", "sfc-1-a"), createFlow("sfc-1-a", 10));
+        existingFlows.put(registeredFlow("openflow:1", "sfc-1-b"), createFlow("sfc-1-b", 10));
+        existingFlows.put(registeredFlow("openflow:2", "sfc-1-c"), createFlow("sfc-1-c", 10));
+        reconciler = new SfcOfFlowReconciler(existingFlows, Arrays.asList(1L, 2L));
+    }
+
+    @Test
+    public void unchangedFlowsAreNotWritten() {
+        Collection<FlowDetails> flowsToWrite = reconciler.filterWrites(Arrays.asList(
+                flowDetails("openflow:1", "sfc-1-a", 10),
+                flowDetails("openflow:1", "sfc-1-b", 20),
+                flowDetails("openflow:1", "sfc-1-d", 10)));
+
+        assertEquals(2, flowsToWrite.size());
+        assertEquals(1, reconciler.getSkippedWrites());
+        for (FlowDetails flow : flowsToWrite) {
+            assertFalse(flow.flowKey.getId().getValue().equals("sfc-1-a"));
+        }
+    }
+
+    @Test
+    public void remainingFlowsAreStale() {
+        reconciler.filterWrites(Collections.singletonList(flowDetails("openflow:1", "sfc-1-a", 10)));
+        reconciler.deleted(Collections.singletonList(flowDetails("openflow:1", "sfc-1-b", 10)));
+
+        List<RegisteredFlow> staleFlows = reconciler.finish();
+        assertEquals(Collections.singletonList(registeredFlow("openflow:2", "sfc-1-c")), staleFlows);
+        assertTrue(reconciler.isFinished());
+        assertTrue(reconciler.finish().isEmpty());
+    }
+
+    @Test
+    public void completeWhenAllRspsAreRendered() {
+        flowRegistry.register(1L, "openflow:1", TABLE_ID, new FlowKey(new FlowId("sfc-1-a")));
+        assertFalse(reconciler.isComplete(flowRegistry));
+
+        flowRegistry.register(2L, "openflow:2", TABLE_ID, new FlowKey(new FlowId("sfc-1-c")));
+        assertTrue(reconciler.isComplete(flowRegistry));
+    }
+
+    @Test
+    public void nothingIsFilteredOnceFinished() {
+        reconciler.finish();
+        Collection<FlowDetails> flowsToWrite =
+                reconciler.filterWrites(Collections.singletonList(flowDetails("openflow:1", "sfc-1-a", 10)));
+        assertEquals(1, flowsToWrite.size());
+    }
+
+    private static RegisteredFlow registeredFlow(String sffNodeName, String flowId) {
+        return new RegisteredFlow(sffNodeName, new TableKey(TABLE_ID), new FlowKey(new FlowId(flowId)));
+    }
+
+    private FlowDetails flowDetails(String sffNodeName, String flowId, int priority) {
+        return flowWriter.new FlowDetails(sffNodeName, new FlowKey(new FlowId(flowId)), new TableKey(TABLE_ID),
+                createFlow(flowId, priority));
+    }
+
+    private static Flow createFlow(String flowId, int priority) {
+        return new FlowBuilder().setId(new FlowId(flowId))
+            .setKey(new FlowKey(new FlowId(flowId)))
+            .setTableId(TABLE_ID)
+            .setPriority(priority)
+            .build();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowRegistry.RegisteredFlow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+
+/**
+ * Unit tests for the registry of flows per RSP and SFF.
+ */
+public class SfcOfFlowRegistryTest {
+
+    private static final long SHARED_FLOWS = 0xdeadbeef;
+
+    private SfcOfFlowRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new SfcOfFlowRegistry(SHARED_FLOWS);
+    }
+
+    @Test
+    public void flowsAreReturnedOnUnregister() {
+        for (int i = 0; i < 20; i++) {
+            registry.register(1, "openflow:1", (short) (i % 3), flowKey("f" + i));
+        }
+        registry.register(1, "openflow:2", (short) 4, flowKey("g"));
+
+        List<RegisteredFlow> flows = registry.unregisterRsp(1);
+
+        assertEquals(21, flows.size());
+        assertTrue(flows.contains(new RegisteredFlow("openflow:1", new TableKey((short) 1), flowKey("f19"))));
+        assertTrue(flows.contains(new RegisteredFlow("openflow:2", new TableKey((short) 4), flowKey("g"))));
+        assertFalse(registry.containsRsp(1));
+        assertNull(registry.unregisterRsp(1));
+    }
+
+    @Test
+    public void rspsAreCountedPerSff() {
+        registry.register(SHARED_FLOWS, "openflow:1", (short) 0, flowKey("init"));
+        registry.register(1, "openflow:1", (short) 1, flowKey("f1"));
+        registry.register(1, "openflow:1", (short) 1, flowKey("f2"));
+        registry.register(2, "openflow:1", (short) 1, flowKey("f3"));
+
+        assertEquals(2, registry.getRspCount("openflow:1"));
+        registry.unregisterRsp(2);
+        assertEquals(1, registry.getRspCount("openflow:1"));
+        registry.unregisterRsp(1);
+        assertEquals(0, registry.getRspCount("openflow:1"));
+    }
+
+    @Test
+    public void orphanSffsAreUnregistered() {
+        registry.register(SHARED_FLOWS, "openflow:1", (short) 0, flowKey("init1"));
+        registry.register(SHARED_FLOWS, "openflow:2", (short) 0, flowKey("init2"));
+        registry.register(1, "openflow:1", (short) 1, flowKey("f1"));
+        registry.register(1, "openflow:2", (short) 1, flowKey("f2"));
+        registry.register(2, "openflow:2", (short) 1, flowKey("f3"));
+
+        assertTrue(registry.unregisterOrphanSffs().isEmpty());
+
+        registry.unregisterRsp(1);
+        Map<String, List<RegisteredFlow>> orphans = registry.unregisterOrphanSffs();
+
+        assertEquals(Collections.singleton("openflow:1"), orphans.keySet());
+        assertEquals(Collections.singletonList(
+                new RegisteredFlow("openflow:1", new TableKey((short) 0), flowKey("init1"))),
+                orphans.get("openflow:1"));
+        assertEquals(Collections.singletonList(
+                new RegisteredFlow("openflow:2", new TableKey((short) 0), flowKey("init2"))),
+                registry.getFlows(SHARED_FLOWS));
+
+        registry.unregisterRsp(2);
+        assertEquals(Collections.singleton("openflow:2"), registry.unregisterOrphanSffs().keySet());
+        assertTrue(registry.getFlows(SHARED_FLOWS).isEmpty());
+        assertTrue(registry.containsRsp(SHARED_FLOWS));
+    }
+
+    @Test
+    public void sffReusedBeforeCleanupIsNotOrphan() {
+        registry.register(SHARED_FLOWS, "openflow:1", (short) 0, flowKey("init"));
+        registry.register(1, "openflow:1", (short) 1, flowKey("f1"));
+        registry.unregisterRsp(1);
+        registry.register(2, "openflow:1", (short) 1, flowKey("f2"));
+
+        assertTrue(registry.unregisterOrphanSffs().isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList(SHARED_FLOWS, 2L)), registry.getRspIds());
+    }
+
+    @Test
+    public void replacedRspKeepsSharedSffs() {
+        registry.register(SHARED_FLOWS, "openflow:1", (short) 0, flowKey("init1"));
+        registry.register(SHARED_FLOWS, "openflow:2", (short) 0, flowKey("init2"));
+        registry.register(1, "openflow:1", (short) 1, flowKey("f1"), flow("f1", 11));
+        registry.register(1, "openflow:2", (short) 1, flowKey("f2"), flow("f2", 12));
+
+        List<RegisteredFlow> previousFlows = registry.replaceRsp(1, Collections.singletonList(
+                new RegisteredFlow("openflow:1", new TableKey((short) 1), flowKey("f1"), flow("f1", 13))));
+
+        assertEquals(2, previousFlows.size());
+        RegisteredFlow previousFlow = previousFlows.get(previousFlows.indexOf(
+                new RegisteredFlow("openflow:1", new TableKey((short) 1), flowKey("f1"))));
+        assertTrue(previousFlow.hasSameContent(registeredFlow("f1", flow("f1", 11))));
+        assertFalse(previousFlow.hasSameContent(registeredFlow("f1", flow("f1", 13))));
+        assertEquals(1, registry.getRspCount("openflow:1"));
+        assertEquals(0, registry.getRspCount("openflow:2"));
+
+        // Only the given SFFs are considered
+        assertTrue(registry.unregisterOrphanSffs(Collections.singleton("openflow:1")).isEmpty());
+        assertEquals(Collections.singleton("openflow:2"),
+                registry.unregisterOrphanSffs(Collections.singleton("openflow:2")).keySet());
+    }
+
+    @Test
+    public void singleFlowIsUnregistered() {
+        registry.register(1, "openflow:1", (short) 3, flowKey("acl1"));
+        registry.register(1, "openflow:1", (short) 3, flowKey("acl2"));
+        registry.register(1, "openflow:1", (short) 4, flowKey("acl1"));
+
+        assertTrue(registry.unregister(1, "openflow:1", (short) 3, flowKey("acl1")));
+        assertFalse(registry.unregister(1, "openflow:1", (short) 3, flowKey("acl1")));
+        assertFalse(registry.unregister(2, "openflow:1", (short) 3, flowKey("acl2")));
+
+        assertEquals(2, registry.getFlows(1).size());
+        assertTrue(registry.unregister(1, "openflow:1", (short) 3, flowKey("acl2")));
+        assertTrue(registry.unregister(1, "openflow:1", (short) 4, flowKey("acl1")));
+        assertTrue(registry.getFlows(1).isEmpty());
+        // The SFF is still counted for the RSP
+        assertEquals(1, registry.getRspCount("openflow:1"));
+    }
+
+    @Test
+    public void contentIsComparedByDigest() {
+        RegisteredFlow registeredFlow = registeredFlow("f1", flow("f1", 11));
+
+        // Flows built separately with the same content have the same digest
+        assertTrue(registeredFlow.hasSameContent(registeredFlow("f1", flow("f1", 11))));
+        assertEquals(RegisteredFlow.getContentDigest(flow("f1", 11)), registeredFlow.getContentDigest());
+        assertFalse(registeredFlow.hasSameContent(registeredFlow("f1", flow("f1", 12))));
+
+        // Flows registered without content never have the same content
+        RegisteredFlow unknownFlow = new RegisteredFlow("openflow:1", new TableKey((short) 1), flowKey("f1"));
+        assertEquals(RegisteredFlow.UNKNOWN_CONTENT_DIGEST, unknownFlow.getContentDigest());
+        assertFalse(unknownFlow.hasSameContent(unknownFlow));
+        assertFalse(registeredFlow.hasSameContent(unknownFlow));
+    }
+
+    @Test
+    public void digestIsKeptOnRegister() {
+        registry.register(1, "openflow:1", (short) 1, flowKey("f1"), flow("f1", 11));
+        registry.register(1, "openflow:1", (short) 1, flowKey("f2"));
+
+        List<RegisteredFlow> flows = registry.getFlows(1);
+        RegisteredFlow flow1 = flows.get(flows.indexOf(registeredFlow("f1", null)));
+        RegisteredFlow flow2 = flows.get(flows.indexOf(registeredFlow("f2", null)));
+        assertEquals(RegisteredFlow.getContentDigest(flow("f1", 11)), flow1.getContentDigest());
+        assertEquals(RegisteredFlow.UNKNOWN_CONTENT_DIGEST, flow2.getContentDigest());
+    }
+
+    private static Flow flow(String flowId, int priority) {
+        return new FlowBuilder().setKey(flowKey(flowId)).setPriority(priority).build();
+    }
+
+    private static RegisteredFlow registeredFlow(String flowId, Flow content) {
+        return new RegisteredFlow("openflow:1", new TableKey((short) 1), flowKey(flowId), content);
+    }
+
+    private static FlowKey flowKey(String flowId) {
+        return new FlowKey(new FlowId(flowId));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.CheckedFuture;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterImpl.FlowDetails;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+/**
+ * Unit tests for the pipelined flow transaction submission.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest(OpendaylightSfc.class)
+public class SfcOfFlowTransactionPipelineTest {
+
+    private static final long WAIT_TIME_MS = 2000;
+
+    private SfcOfFlowWriterImpl flowWriter;
+    private SfcOfFlowTransactionPipeline pipeline;
+    private DataBroker dataBroker;
+    private WriteTransaction writeTransaction;
+
+    @Before
+    public void setUp() {
+        flowWriter = new SfcOfFlowWriterImpl();
+        dataBroker = mock(DataBroker.class);
+        writeTransaction = mock(WriteTransaction.class);
+        when(dataBroker.newWriteOnlyTransaction()).thenReturn(writeTransaction);
+
+        OpendaylightSfc odlSfc = mock(OpendaylightSfc.class);
+        when(odlSfc.getDataProvider()).thenReturn(dataBroker);
+        PowerMockito.mockStatic(OpendaylightSfc.class);
+        PowerMockito.when(OpendaylightSfc.getOpendaylightSfcObj()).thenReturn(odlSfc);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void largeBatchIsSplit() throws InterruptedException {
+        when(writeTransaction.submit()).thenReturn(Futures.immediateCheckedFuture(null));
+        pipeline = new SfcOfFlowTransactionPipeline(10, 2);
+
+        pipeline.submitWrites(createFlows("openflow:1", 5));
+
+        waitForCompletion(3);
+        verify(dataBroker, times(3)).newWriteOnlyTransaction();
+        assertEquals(0, pipeline.getQueueDepth());
+        assertEquals(0, pipeline.getInFlightCount());
+        assertEquals(0, pipeline.getFailedTransactions());
+    }
+
+    @Test
+    public void pipelineDepthPerSff() throws InterruptedException {
+        SettableFuture<Void> firstCommit = SettableFuture.create();
+        SettableFuture<Void> secondCommit = SettableFuture.create();
+        when(writeTransaction.submit()).thenReturn(
+                makeChecked(firstCommit),
+                makeChecked(secondCommit),
+                Futures.immediateCheckedFuture(null));
+        pipeline = new SfcOfFlowTransactionPipeline(1, 1);
+
+        // Two transactions towards the first SFF, one towards the second one:
+        // the second SFF must not wait for the first SFF to be committed
+        pipeline.submitWrites(createFlows("openflow:1", 2));
+        pipeline.submitDeletes(createFlows("openflow:2", 1));
+        assertEquals(2, pipeline.getInFlightCount());
+        assertEquals(1, pipeline.getQueueDepth());
+
+        firstCommit.set(null);
+        secondCommit.set(null);
+        waitForCompletion(3);
+        assertEquals(0, pipeline.getQueueDepth());
+        assertEquals(0, pipeline.getInFlightCount());
+    }
+
+    @Test
+    public void writerInPipelinedMode() throws InterruptedException {
+        when(writeTransaction.submit()).thenReturn(Futures.immediateCheckedFuture(null));
+        SfcOfFlowWriterImpl pipelinedWriter = new SfcOfFlowWriterImpl(2, 0);
+        pipeline = pipelinedWriter.getTransactionPipeline();
+
+        pipelinedWriter.writeFlow(1L, "openflow:1", createFlowBuilder("f1"));
+        pipelinedWriter.writeFlow(1L, "openflow:2", createFlowBuilder("f2"));
+        pipelinedWriter.flushFlows();
+
+        // One transaction per SFF
+        waitForCompletion(2);
+        verify(dataBroker, times(2)).newWriteOnlyTransaction();
+    }
+
+    private List<FlowDetails> createFlows(String sffNodeName, int count) {
+        List<FlowDetails> flows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            FlowKey flowKey = new FlowKey(new FlowId(sffNodeName + "-" + i));
+            flows.add(flowWriter.new FlowDetails(sffNodeName, flowKey, new TableKey((short) 1), mock(Flow.class)));
+        }
+        return flows;
+    }
+
+    private static FlowBuilder createFlowBuilder(String flowId) {
+        return new FlowBuilder()
+                .setId(new FlowId(flowId))
+                .setKey(new FlowKey(new FlowId(flowId)))
+                .setTableId((short) 1);
+    }
+
+    private static CheckedFuture<Void, TransactionCommitFailedException> makeChecked(SettableFuture<Void> future) {
+        return Futures.makeChecked(future, e -> new TransactionCommitFailedException("commit failed", e));
+    }
+
+    private void waitForCompletion(long transactions) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_TIME_MS;
+        while (pipeline.getCommittedTransactions() + pipeline.getFailedTransactions() < transactions
+                && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(transactions, pipeline.getCommittedTransactions() + pipeline.getFailedTransactions());
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collection;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterImpl.FlowDetails;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.Flow;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+
+/**
+ * Unit tests for the coalescing of flow operations in the write-behind buffer.
+ */
+public class SfcOfFlowWriteBehindBufferTest {
+
+    // Long enough so that the buffer is never flushed by the timer during a test
+    private static final long WINDOW_MS = 60000;
+    private static final int MAX_FLOWS = 3;
+
+    private SfcOfFlowWriterImpl flowWriter;
+    private SfcOfFlowTransactionPipeline pipeline;
+    private SfcOfFlowWriteBehindBuffer buffer;
+
+    @Before
+    public void setUp() {
+        flowWriter = new SfcOfFlowWriterImpl();
+        pipeline = mock(SfcOfFlowTransactionPipeline.class);
+        buffer = new SfcOfFlowWriteBehindBuffer(pipeline, WINDOW_MS, MAX_FLOWS);
+    }
+
+    @After
+    public void tearDown() {
+        buffer.shutdown();
+    }
+
+    @Test
+    public void writeThenDeleteIsCancelled() {
+        FlowDetails flow = createFlow("openflow:1", "f1");
+        buffer.write(Collections.singleton(flow));
+        buffer.delete(Collections.singleton(createFlow("openflow:1", "f1")));
+
+        assertEquals(0, buffer.getBufferedFlowCount());
+        assertEquals(2, buffer.getCancelledOperations());
+        buffer.flush();
+        verify(pipeline, never()).submit(anyCollectionOf(FlowDetails.class), anyCollectionOf(FlowDetails.class));
+    }
+
+    @Test
+    public void writeThenDeleteIsKeptWithContentDerivedKeys() {
+        SfcOfFlowWriteBehindBuffer stableKeysBuffer =
+                new SfcOfFlowWriteBehindBuffer(pipeline, WINDOW_MS, MAX_FLOWS, false);
+        try {
+            // The write may target a flow already committed with the same key
+            stableKeysBuffer.write(Collections.singleton(createFlow("openflow:1", "f1")));
+            stableKeysBuffer.delete(Collections.singleton(createFlow("openflow:1", "f1")));
+
+            assertEquals(1, stableKeysBuffer.getBufferedFlowCount());
+            assertEquals(0, stableKeysBuffer.getCancelledOperations());
+        } finally {
+            stableKeysBuffer.shutdown();
+        }
+    }
+
+    @Test
+    public void deleteThenWriteThenDeleteIsKept() {
+        buffer.delete(Collections.singleton(createFlow("openflow:1", "f1")));
+        buffer.write(Collections.singleton(createFlow("openflow:1", "f1")));
+        buffer.delete(Collections.singleton(createFlow("openflow:1", "f1")));
+
+        assertEquals(1, buffer.getBufferedFlowCount());
+        assertEquals(0, buffer.getCancelledOperations());
+        assertFlushed(0, 1);
+    }
+
+    @Test
+    public void sameFlowOnDifferentSffsIsNotMerged() {
+        buffer.write(Collections.singleton(createFlow("openflow:1", "f1")));
+        buffer.delete(Collections.singleton(createFlow("openflow:2", "f1")));
+
+        assertEquals(2, buffer.getBufferedFlowCount());
+        assertFlushed(1, 1);
+    }
+
+    @Test
+    public void flushedWhenFull() {
+        buffer.write(Collections.singleton(createFlow("openflow:1", "f1")));
+        buffer.write(Collections.singleton(createFlow("openflow:1", "f2")));
+        verify(pipeline, never()).submit(anyCollectionOf(FlowDetails.class), anyCollectionOf(FlowDetails.class));
+
+        buffer.write(Collections.singleton(createFlow("openflow:2", "f3")));
+        assertEquals(0, buffer.getBufferedFlowCount());
+        assertEquals(1, buffer.getFlushes());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertFlushed(int writes, int deletes) {
+        buffer.flush();
+        ArgumentCaptor<Collection> writeCaptor = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Collection> deleteCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(pipeline).submit(writeCaptor.capture(), deleteCaptor.capture());
+        assertEquals(writes, writeCaptor.getValue().size());
+        assertEquals(deletes, deleteCaptor.getValue().size());
+        assertTrue(buffer.getBufferedFlowCount() == 0);
+    }
+
+    private FlowDetails createFlow(String sffNodeName, String flowId) {
+        return flowWriter.new FlowDetails(sffNodeName, new FlowKey(new FlowId(flowId)),
+                new TableKey((short) 1), mock(Flow.class));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterImpl.FlowDetails;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcOfFlowWriterImpl.ThreadConfinedFlowSet;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.TableKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+
+/**
+ * Unit tests for the per thread sets of flows pending in the flow writer.
+ */
+public class SfcOfFlowWriterThreadConfinementTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private SfcOfFlowWriterImpl flowWriter;
+    private ThreadConfinedFlowSet flowSet;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        flowWriter = new SfcOfFlowWriterImpl();
+        flowSet = new ThreadConfinedFlowSet();
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private FlowDetails buildFlowDetails(String sffNodeName, String flowId) {
+        return flowWriter.new FlowDetails(sffNodeName, new FlowKey(new FlowId(flowId)), new TableKey((short) 0));
+    }
+
+    @Test
+    public void flowsAreOnlyVisibleToTheirThread() throws Exception {
+        FlowDetails mainFlow = buildFlowDetails("openflow:1", "main");
+        assertTrue(flowSet.add(mainFlow));
+
+        FlowDetails otherFlow = buildFlowDetails("openflow:2", "other");
+        Future<?> future = executor.submit(() -> {
+            assertTrue(flowSet.isEmpty());
+            assertFalse(flowSet.contains(mainFlow));
+            assertTrue(flowSet.add(otherFlow));
+            assertEquals(1, flowSet.size());
+        });
+        future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(1, flowSet.size());
+        assertTrue(flowSet.contains(mainFlow));
+        assertFalse(flowSet.contains(otherFlow));
+        assertSame(mainFlow, flowSet.iterator().next());
+    }
+
+    @Test
+    public void clearOnlyAffectsTheCallingThread() throws Exception {
+        FlowDetails mainFlow = buildFlowDetails("openflow:1", "main");
+        flowSet.add(mainFlow);
+
+        FlowDetails otherFlow = buildFlowDetails("openflow:2", "other");
+        executor.submit(() -> flowSet.add(otherFlow)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        flowSet.clear();
+        assertTrue(flowSet.isEmpty());
+
+        // A single thread pool would run both tasks in the same thread, which kept its flow
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            singleThread.submit(() -> flowSet.add(otherFlow)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            singleThread.submit(() -> {
+                assertTrue(flowSet.contains(otherFlow));
+                flowSet.clear();
+                assertTrue(flowSet.isEmpty());
+            }).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentThreadsKeepTheirOwnFlows() throws Exception {
+        int flowsPerThread = 1000;
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 2; thread++) {
+            String sffNodeName = "openflow:" + thread;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < flowsPerThread; i++) {
+                    flowSet.add(buildFlowDetails(sffNodeName, "flow" + i));
+                }
+                int ownFlows = 0;
+                for (FlowDetails flowDetails : flowSet) {
+                    if (sffNodeName.equals(flowDetails.sffNodeName)) {
+                        ownFlows++;
+                    }
+                }
+                int size = flowSet.size();
+                flowSet.clear();
+                return size == ownFlows ? size : -1;
+            }));
+        }
+        for (Future<Integer> future : futures) {
+            assertEquals(Integer.valueOf(flowsPerThread), future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertTrue(flowSet.isEmpty());
+    }
+}
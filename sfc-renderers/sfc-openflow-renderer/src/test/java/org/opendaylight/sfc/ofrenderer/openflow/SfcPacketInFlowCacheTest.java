@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SfcPacketInFlowCacheTest {
+
+    private static final int SRC_IP = 0x0a0a0001; // 10.10.0.1
+    private static final int DST_IP = 0x0b0b0001; // 11.11.0.1
+
+    @Test
+    public void flowKeyKeepsDirection() {
+        long key = SfcPacketInFlowCache.flowKey(SRC_IP, DST_IP);
+        assertEquals(0x0a0a00010b0b0001L, key);
+        assertFalse(key == SfcPacketInFlowCache.flowKey(DST_IP, SRC_IP));
+        assertEquals(0xc0a80001c0a80002L, SfcPacketInFlowCache.flowKey(0xc0a80001, 0xc0a80002));
+    }
+
+    @Test
+    public void duplicatesWithinTimeToLive() {
+        SfcPacketInFlowCache cache = new SfcPacketInFlowCache(1000, 64);
+        long key = SfcPacketInFlowCache.flowKey(SRC_IP, DST_IP);
+
+        assertFalse(cache.checkAndAdd(key, 10000));
+        assertTrue(cache.checkAndAdd(key, 10500));
+        assertTrue(cache.checkAndAdd(key, 11000));
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getHits());
+
+        // Expired, recorded again
+        assertFalse(cache.checkAndAdd(key, 11001));
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getInsertions());
+    }
+
+    @Test
+    public void expiredFlowsAreSwept() {
+        SfcPacketInFlowCache cache = new SfcPacketInFlowCache(1000, 1024);
+        for (int i = 0; i < 100; i++) {
+            cache.checkAndAdd(SfcPacketInFlowCache.flowKey(SRC_IP + i, DST_IP), 10000);
+        }
+        cache.checkAndAdd(SfcPacketInFlowCache.flowKey(SRC_IP, DST_IP + 1), 10900);
+        assertEquals(101, cache.size());
+
+        cache.expire(10999);
+        assertEquals(101, cache.size());
+
+        cache.expire(11100);
+        assertEquals(1, cache.size());
+        assertEquals(100, cache.getExpirations());
+
+        cache.expire(20000);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void refreshedFlowIsNotSwept() {
+        SfcPacketInFlowCache cache = new SfcPacketInFlowCache(1000, 64);
+        long key = SfcPacketInFlowCache.flowKey(SRC_IP, DST_IP);
+        cache.checkAndAdd(key, 10000);
+        // Expired and refreshed before its slot is swept
+        assertFalse(cache.checkAndAdd(key, 11010));
+
+        cache.expire(11100);
+        assertEquals(1, cache.size());
+        assertTrue(cache.checkAndAdd(key, 11500));
+    }
+
+    @Test
+    public void removedFlowIsRecordedAgain() {
+        SfcPacketInFlowCache cache = new SfcPacketInFlowCache(1000, 64);
+        long key = SfcPacketInFlowCache.flowKey(SRC_IP, DST_IP);
+        cache.checkAndAdd(key, 10000);
+
+        assertTrue(cache.remove(key));
+        assertFalse(cache.remove(key));
+        assertEquals(0, cache.size());
+        assertFalse(cache.checkAndAdd(key, 10100));
+        assertTrue(cache.checkAndAdd(key, 10200));
+
+        // The stale wheel entry of the first insertion does not remove it
+        cache.expire(11050);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void oldestFlowsAreEvictedWhenFull() {
+        // One entry per segment
+        SfcPacketInFlowCache cache = new SfcPacketInFlowCache(60000, 16);
+        int flows = 1000;
+        for (int i = 0; i < flows; i++) {
+            cache.checkAndAdd(SfcPacketInFlowCache.flowKey(SRC_IP, DST_IP + i), 10000 + i);
+        }
+        assertTrue(cache.size() <= 16);
+        assertEquals(flows - cache.size(), cache.getEvictions());
+
+        // The last flow is still there
+        assertTrue(cache.checkAndAdd(SfcPacketInFlowCache.flowKey(SRC_IP, DST_IP + flows - 1), 10000 + flows));
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.openflow;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyShort;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.sfc.ofrenderer.openflow.SfcPacketInFlowLearner.OverflowPolicy;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Prefix;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.tables.table.FlowKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.service.rev130819.SwitchFlowRemoved;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.NodeRef;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.Nodes;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.Node;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.inventory.rev130819.nodes.NodeKey;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.model.match.types.rev131026.match.layer._3.match.Ipv4MatchBuilder;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+public class SfcPacketInFlowLearnerTest {
+
+    private static final String SFF1 = "openflow:1";
+    private static final String SFF2 = "openflow:2";
+    private static final int SRC_IP = 0x0a0a0001; // 10.10.0.1
+    private static final int DST_IP = 0x0b0b0001; // 11.11.0.1
+    private static final short UL_PATH_ID = 100;
+    private static final short DL_PATH_ID = 101;
+    private static final FlowKey FLOW_KEY = new FlowKey(new FlowId("sfc-3-flow"));
+    private static final short PATH_MAPPER_ACL_TABLE = 3;
+
+    private SfcOfFlowProgrammerImpl flowProgrammer;
+    private List<Long> forgottenFlows;
+
+    @Before
+    public void setUp() {
+        flowProgrammer = mock(SfcOfFlowProgrammerImpl.class);
+        when(flowProgrammer.configurePathMapperAclFlow(anyString(), anyString(), anyString(), anyShort()))
+            .thenReturn(FLOW_KEY);
+        when(flowProgrammer.getPathMapperAclTableId()).thenReturn(PATH_MAPPER_ACL_TABLE);
+        forgottenFlows = new ArrayList<>();
+    }
+
+    private SfcPacketInFlowLearner createLearner(int maxFlowsPerSecond, int maxQueuedFlows,
+            OverflowPolicy overflowPolicy) {
+        // The time slices are run by the test
+        SfcPacketInFlowLearner learner = new SfcPacketInFlowLearner(flowProgrammer, 100, maxFlowsPerSecond,
+                maxQueuedFlows, overflowPolicy, mock(ScheduledExecutorService.class));
+        learner.setForgottenFlowListener(forgottenFlows::add);
+        return learner;
+    }
+
+    @Test
+    public void flowsAreBatchedPerSwitch() {
+        SfcPacketInFlowLearner learner = createLearner(1000, 100, OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(learner.learn(SFF1, SRC_IP + i, DST_IP, UL_PATH_ID, DL_PATH_ID));
+        }
+        for (int i = 0; i < 2; i++) {
+            assertTrue(learner.learn(SFF2, SRC_IP + i, DST_IP, UL_PATH_ID, DL_PATH_ID));
+        }
+        verify(flowProgrammer, never()).flushFlows();
+
+        learner.runTimeSlice(System.currentTimeMillis());
+
+        verify(flowProgrammer, times(6)).configurePathMapperAclFlow(eq(SFF1), anyString(), anyString(), anyShort());
+        verify(flowProgrammer, times(4)).configurePathMapperAclFlow(eq(SFF2), anyString(), anyString(), anyShort());
+        verify(flowProgrammer).configurePathMapperAclFlow(SFF1, "10.10.0.1", "11.11.0.1", UL_PATH_ID);
+        verify(flowProgrammer).configurePathMapperAclFlow(SFF1, "11.11.0.1", "10.10.0.1", DL_PATH_ID);
+        verify(flowProgrammer, times(2)).flushFlows();
+        assertEquals(2, learner.getBatches());
+        assertEquals(5, learner.getInstalledFlows());
+        assertEquals(0, learner.getQueuedFlows(SFF1));
+    }
+
+    @Test
+    public void installationIsRateLimited() {
+        // 10 flows per second, so 1 flow per slice, with a burst of 2
+        SfcPacketInFlowLearner learner = createLearner(10, 100, OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 5; i++) {
+            learner.learn(SFF1, SRC_IP + i, DST_IP, UL_PATH_ID, DL_PATH_ID);
+        }
+
+        long now = System.currentTimeMillis();
+        learner.runTimeSlice(now);
+        assertEquals(2, learner.getInstalledFlows());
+        assertEquals(3, learner.getQueuedFlows(SFF1));
+
+        learner.runTimeSlice(now + 100);
+        assertEquals(3, learner.getInstalledFlows());
+
+        learner.runTimeSlice(now + 1000);
+        assertEquals(5, learner.getInstalledFlows());
+        assertEquals(0, learner.getQueuedFlows(SFF1));
+        assertTrue(forgottenFlows.isEmpty());
+    }
+
+    @Test
+    public void newestFlowIsDroppedWhenFull() {
+        SfcPacketInFlowLearner learner = createLearner(10, 2, OverflowPolicy.DROP_NEWEST);
+        assertTrue(learner.learn(SFF1, SRC_IP, DST_IP, UL_PATH_ID, DL_PATH_ID));
+        assertTrue(learner.learn(SFF1, SRC_IP + 1, DST_IP, UL_PATH_ID, DL_PATH_ID));
+        assertFalse(learner.learn(SFF1, SRC_IP + 2, DST_IP, UL_PATH_ID, DL_PATH_ID));
+
+        assertEquals(1, learner.getDroppedFlows());
+        assertEquals(2, learner.getQueuedFlows(SFF1));
+        assertEquals(1, forgottenFlows.size());
+        assertEquals(SfcPacketInFlowCache.flowKey(SRC_IP + 2, DST_IP), (long) forgottenFlows.get(0));
+        // Other switches have their own queue
+        assertTrue(learner.learn(SFF2, SRC_IP, DST_IP, UL_PATH_ID, DL_PATH_ID));
+    }
+
+    @Test
+    public void oldestFlowIsDroppedWhenFull() {
+        SfcPacketInFlowLearner learner = createLearner(10, 2, OverflowPolicy.DROP_OLDEST);
+        assertTrue(learner.learn(SFF1, SRC_IP, DST_IP, UL_PATH_ID, DL_PATH_ID));
+        assertTrue(learner.learn(SFF1, SRC_IP + 1, DST_IP, UL_PATH_ID, DL_PATH_ID));
+        assertTrue(learner.learn(SFF1, SRC_IP + 2, DST_IP, UL_PATH_ID, DL_PATH_ID));
+
+        assertEquals(1, learner.getDroppedFlows());
+        assertEquals(2, learner.getQueuedFlows(SFF1));
+        assertEquals(SfcPacketInFlowCache.flowKey(SRC_IP, DST_IP), (long) forgottenFlows.get(0));
+    }
+
+    private static SwitchFlowRemoved flowRemoved(String nodeName, short tableId, String srcIp, String dstIp) {
+        SwitchFlowRemoved notification = mock(SwitchFlowRemoved.class, RETURNS_DEEP_STUBS);
+        when(notification.getNode()).thenReturn(new NodeRef(InstanceIdentifier.builder(Nodes.class)
+            .child(Node.class, new NodeKey(new NodeId(nodeName)))
+            .build()));
+        when(notification.getTableId()).thenReturn(tableId);
+        when(notification.getPriority()).thenReturn(SfcOfFlowProgrammerImpl.FLOW_PRIORITY_PATH_MAPPER_ACL);
+        when(notification.getMatch().getLayer3Match()).thenReturn(new Ipv4MatchBuilder()
+            .setIpv4Source(new Ipv4Prefix(srcIp + "/32"))
+            .setIpv4Destination(new Ipv4Prefix(dstIp + "/32"))
+            .build());
+        return notification;
+    }
+
+    @Test
+    public void idleFlowsExpire() {
+        SfcPacketInFlowLearner learner = createLearner(1000, 100, OverflowPolicy.DROP_NEWEST);
+        learner.learn(SFF1, SRC_IP, DST_IP, UL_PATH_ID, DL_PATH_ID);
+        long now = System.currentTimeMillis();
+        learner.runTimeSlice(now);
+
+        // Active flows stay installed, however long
+        learner.runTimeSlice(now + 3600000);
+        verify(flowProgrammer, never()).removePathMapperAclFlow(anyString(), anyShort(), any(FlowKey.class));
+        verify(flowProgrammer, never()).deleteFlowSet();
+
+        // Other tables, switches and flows are ignored
+        learner.onSwitchFlowRemoved(flowRemoved(SFF1, (short) 4, "10.10.0.1", "11.11.0.1"));
+        learner.onSwitchFlowRemoved(flowRemoved(SFF2, PATH_MAPPER_ACL_TABLE, "10.10.0.1", "11.11.0.1"));
+        learner.onSwitchFlowRemoved(flowRemoved(SFF1, PATH_MAPPER_ACL_TABLE, "10.10.0.2", "11.11.0.1"));
+        learner.runTimeSlice(now + 3600100);
+        verify(flowProgrammer, never()).removePathMapperAclFlow(anyString(), anyShort(), any(FlowKey.class));
+
+        // The downlink flow idles out on the switch
+        learner.onSwitchFlowRemoved(flowRemoved(SFF1, PATH_MAPPER_ACL_TABLE, "11.11.0.1", "10.10.0.1"));
+        verify(flowProgrammer, never()).removePathMapperAclFlow(anyString(), anyShort(), any(FlowKey.class));
+        learner.runTimeSlice(now + 3600200);
+        verify(flowProgrammer).removePathMapperAclFlow(SFF1, DL_PATH_ID, FLOW_KEY);
+        verify(flowProgrammer, never()).removePathMapperAclFlow(SFF1, UL_PATH_ID, FLOW_KEY);
+        verify(flowProgrammer, times(1)).deleteFlowSet();
+        assertEquals(1, learner.getExpiredFlows());
+        assertEquals(1, forgottenFlows.size());
+        assertEquals(SfcPacketInFlowCache.flowKey(SRC_IP, DST_IP), (long) forgottenFlows.get(0));
+
+        // Then the uplink one, a repeated notification is ignored
+        learner.onSwitchFlowRemoved(flowRemoved(SFF1, PATH_MAPPER_ACL_TABLE, "10.10.0.1", "11.11.0.1"));
+        learner.onSwitchFlowRemoved(flowRemoved(SFF1, PATH_MAPPER_ACL_TABLE, "10.10.0.1", "11.11.0.1"));
+        learner.runTimeSlice(now + 3600300);
+        verify(flowProgrammer).removePathMapperAclFlow(SFF1, UL_PATH_ID, FLOW_KEY);
+        verify(flowProgrammer, times(2)).deleteFlowSet();
+        assertEquals(2, learner.getExpiredFlows());
+    }
+
+    @Test
+    public void addressesAreParsed() {
+        assertEquals(SRC_IP, SfcPacketInFlowLearner.toIp("10.10.0.1/32"));
+        assertEquals(0xffffffff, SfcPacketInFlowLearner.toIp("255.255.255.255"));
+    }
+}
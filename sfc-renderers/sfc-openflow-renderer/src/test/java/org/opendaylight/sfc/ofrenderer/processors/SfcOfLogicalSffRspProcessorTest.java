@@ -198,7 +198,9 @@ public class SfcOfLogicalSffRspProcessorTest {
         int nHops = sfTypes.size() + 1;
 
 
-        verify(interfaceManagerRpcService, times(nHops))
+        // The egress actions are cached: both SFs are reached through the same
+        // logical interface, plus the tunnel interface between the SFFs
+        verify(interfaceManagerRpcService, times(2))
                 .getEgressActionsForInterface(any(GetEgressActionsForInterfaceInput.class));
 
         // 2 SFFs, meaning 1 hop between SFFs, must get the logical interface between them just once
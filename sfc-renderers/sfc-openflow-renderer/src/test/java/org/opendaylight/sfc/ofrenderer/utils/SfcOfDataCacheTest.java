@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.DataObjectModification;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeChangeListener;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeIdentifier;
+import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.sfc.provider.api.SfcProviderServiceForwarderAPI;
+import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
+import org.opendaylight.sfc.sfc_ovs.provider.SfcOvsUtil;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.ServiceFunctions;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunction;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.ovs.rev140701.SffOvsBridgeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.ovs.rev140701.SffOvsBridgeAugmentationBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.ovs.rev140701.bridge.OvsBridgeBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.DatapathId;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentation;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeAugmentationBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.ovsdb.rev150105.OvsdbBridgeName;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.NodeId;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.Node;
+import org.opendaylight.yang.gen.v1.urn.tbd.params.xml.ns.yang.network.topology.rev131021.network.topology.topology.NodeBuilder;
+import org.opendaylight.yangtools.concepts.ListenerRegistration;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+/**
+ * Unit tests for the SF/SFF/SFG cache shared by the RSPs.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({SfcProviderServiceFunctionAPI.class, SfcProviderServiceForwarderAPI.class, SfcOvsUtil.class})
+public class SfcOfDataCacheTest {
+
+    private static final int MAX_ENTRIES = 2;
+
+    private DataBroker dataBroker;
+    private SfcOfDataCache dataCache;
+
+    @Before
+    public void setUp() {
+        dataBroker = mock(DataBroker.class);
+        doReturn(mock(ListenerRegistration.class)).when(dataBroker)
+                .registerDataTreeChangeListener(any(DataTreeIdentifier.class), any(DataTreeChangeListener.class));
+        dataCache = new SfcOfDataCache(dataBroker, MAX_ENTRIES);
+
+        PowerMockito.mockStatic(SfcProviderServiceFunctionAPI.class);
+        PowerMockito.mockStatic(SfcProviderServiceForwarderAPI.class);
+        PowerMockito.mockStatic(SfcOvsUtil.class);
+    }
+
+    @After
+    public void tearDown() {
+        dataCache.close();
+    }
+
+    @Test
+    public void sfIsReadOnce() {
+        ServiceFunction sf = createSf("sf1");
+        when(SfcProviderServiceFunctionAPI.readServiceFunction(new SfName("sf1"))).thenReturn(sf);
+
+        assertSame(sf, dataCache.getServiceFunction(new SfName("sf1")));
+        assertSame(sf, dataCache.getServiceFunction(new SfName("sf1")));
+
+        PowerMockito.verifyStatic(times(1));
+        SfcProviderServiceFunctionAPI.readServiceFunction(new SfName("sf1"));
+        assertEquals(1, dataCache.getHits());
+        assertEquals(1, dataCache.getMisses());
+    }
+
+    @Test
+    public void sfIsInvalidatedOnChange() {
+        ServiceFunction sf = createSf("sf1");
+        ServiceFunction updatedSf = createSf("sf1");
+        when(SfcProviderServiceFunctionAPI.readServiceFunction(new SfName("sf1"))).thenReturn(sf, updatedSf);
+
+        assertSame(sf, dataCache.getServiceFunction(new SfName("sf1")));
+        notifySfChanged("sf1");
+        assertSame(updatedSf, dataCache.getServiceFunction(new SfName("sf1")));
+        assertSame(updatedSf, dataCache.getServiceFunction(new SfName("sf1")));
+
+        assertEquals(1, dataCache.getInvalidations());
+        assertEquals(1, dataCache.getHits());
+        assertEquals(2, dataCache.getMisses());
+    }
+
+    @Test
+    public void cacheIsBounded() {
+        for (int i = 0; i < MAX_ENTRIES + 1; i++) {
+            ServiceFunction sf = createSf("sf" + i);
+            when(SfcProviderServiceFunctionAPI.readServiceFunction(new SfName("sf" + i))).thenReturn(sf);
+            dataCache.getServiceFunction(new SfName("sf" + i));
+        }
+
+        assertEquals(MAX_ENTRIES, dataCache.getSize());
+        assertEquals(1, dataCache.getEvictions());
+    }
+
+    @Test
+    public void sffWithoutOpenFlowNodeIsNotCached() {
+        ServiceFunctionForwarder sff = new ServiceFunctionForwarderBuilder().setName(new SffName("sff1")).build();
+        when(SfcProviderServiceForwarderAPI.readServiceFunctionForwarder(new SffName("sff1"))).thenReturn(sff);
+        when(SfcOvsUtil.augmentSffWithOpenFlowNodeId(sff)).thenReturn(sff);
+
+        assertSame(sff, dataCache.getServiceFunctionForwarder(new SffName("sff1")));
+        assertEquals(0, dataCache.getSize());
+
+        ServiceFunctionForwarder augmentedSff = new ServiceFunctionForwarderBuilder(sff)
+                .addAugmentation(SffOvsBridgeAugmentation.class, new SffOvsBridgeAugmentationBuilder()
+                        .setOvsBridge(new OvsBridgeBuilder().setOpenflowNodeId("openflow:1").build()).build())
+                .build();
+        when(SfcOvsUtil.augmentSffWithOpenFlowNodeId(sff)).thenReturn(augmentedSff);
+
+        assertSame(augmentedSff, dataCache.getServiceFunctionForwarder(new SffName("sff1")));
+        assertSame(augmentedSff, dataCache.getServiceFunctionForwarder(new SffName("sff1")));
+        assertEquals(1, dataCache.getSize());
+    }
+
+    @Test
+    public void sffIsInvalidatedOnDatapathChange() {
+        Node bridge1 = createBridge("00:00:00:00:00:00:00:01");
+        Node bridge1Updated = createBridge("00:00:00:00:00:00:00:01");
+        Node bridge2 = createBridge("00:00:00:00:00:00:00:02");
+        when(SfcOvsUtil.getOpenFlowNodeIdFromDpid(new DatapathId("00:00:00:00:00:00:00:01"))).thenReturn("openflow:1");
+        when(SfcOvsUtil.getOpenFlowNodeIdFromDpid(new DatapathId("00:00:00:00:00:00:00:02"))).thenReturn("openflow:2");
+        cacheSff("sff1", "openflow:1");
+        cacheSff("sff2", "openflow:3");
+        assertEquals(2, dataCache.getSize());
+
+        // Port changes keep the datapath id
+        notifyBridgeChanged(bridge1, bridge1Updated);
+        assertEquals(2, dataCache.getSize());
+        assertEquals(0, dataCache.getInvalidations());
+
+        // The bridge of sff1 was recreated with another datapath id
+        notifyBridgeChanged(bridge1, bridge2);
+        assertEquals(1, dataCache.getSize());
+        assertEquals(1, dataCache.getInvalidations());
+        dataCache.getServiceFunctionForwarder(new SffName("sff2"));
+        assertEquals(1, dataCache.getHits());
+
+        cacheSff("sff1", "openflow:2");
+        notifyBridgeChanged(bridge2, null);
+        assertEquals(1, dataCache.getSize());
+        assertEquals(2, dataCache.getInvalidations());
+    }
+
+    @Test
+    public void unknownSfIsNotCached() {
+        assertNull(dataCache.getServiceFunction(new SfName("sf1")));
+        assertNull(dataCache.getServiceFunction(new SfName("sf1")));
+        assertEquals(0, dataCache.getSize());
+        assertEquals(2, dataCache.getMisses());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifySfChanged(String sfName) {
+        InstanceIdentifier<ServiceFunction> sfIid = InstanceIdentifier.create(ServiceFunctions.class)
+                .child(ServiceFunction.class, new ServiceFunctionKey(new SfName(sfName)));
+        DataTreeModification<ServiceFunction> modification = mock(DataTreeModification.class);
+        when(modification.getRootPath()).thenReturn(
+                new DataTreeIdentifier<>(LogicalDatastoreType.CONFIGURATION, sfIid));
+
+        getListener(ServiceFunction.class).onDataTreeChanged(Collections.singletonList(modification));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void notifyBridgeChanged(Node before, Node after) {
+        DataObjectModification<Node> rootNode = mock(DataObjectModification.class);
+        when(rootNode.getDataBefore()).thenReturn(before);
+        when(rootNode.getDataAfter()).thenReturn(after);
+        DataTreeModification<Node> modification = mock(DataTreeModification.class);
+        when(modification.getRootNode()).thenReturn(rootNode);
+
+        getListener(Node.class).onDataTreeChanged(Collections.singletonList(modification));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private DataTreeChangeListener getListener(Class<?> targetType) {
+        ArgumentCaptor<DataTreeIdentifier> treeIdCaptor = ArgumentCaptor.forClass(DataTreeIdentifier.class);
+        ArgumentCaptor<DataTreeChangeListener> listenerCaptor = ArgumentCaptor.forClass(DataTreeChangeListener.class);
+        verify(dataBroker, times(4)).registerDataTreeChangeListener(treeIdCaptor.capture(),
+                listenerCaptor.capture());
+
+        List<DataTreeIdentifier> treeIds = treeIdCaptor.getAllValues();
+        for (int i = 0; i < treeIds.size(); i++) {
+            if (treeIds.get(i).getRootIdentifier().getTargetType() == targetType) {
+                return listenerCaptor.getAllValues().get(i);
+            }
+        }
+        throw new AssertionError("No listener for " + targetType);
+    }
+
+    private static Node createBridge(String datapathId) {
+        return new NodeBuilder().setNodeId(new NodeId("ovsdb://uuid/bridge/br-int"))
+                .addAugmentation(OvsdbBridgeAugmentation.class, new OvsdbBridgeAugmentationBuilder()
+                        .setBridgeName(new OvsdbBridgeName("br-int"))
+                        .setDatapathId(new DatapathId(datapathId))
+                        .build())
+                .build();
+    }
+
+    private ServiceFunctionForwarder cacheSff(String sffName, String ofNodeId) {
+        ServiceFunctionForwarder sff = new ServiceFunctionForwarderBuilder().setName(new SffName(sffName)).build();
+        ServiceFunctionForwarder augmentedSff = new ServiceFunctionForwarderBuilder(sff)
+                .addAugmentation(SffOvsBridgeAugmentation.class, new SffOvsBridgeAugmentationBuilder()
+                        .setOvsBridge(new OvsBridgeBuilder().setOpenflowNodeId(ofNodeId).build()).build())
+                .build();
+        when(SfcProviderServiceForwarderAPI.readServiceFunctionForwarder(new SffName(sffName))).thenReturn(sff);
+        when(SfcOvsUtil.augmentSffWithOpenFlowNodeId(sff)).thenReturn(augmentedSff);
+        assertSame(augmentedSff, dataCache.getServiceFunctionForwarder(new SffName(sffName)));
+        return augmentedSff;
+    }
+
+    private static ServiceFunction createSf(String sfName) {
+        return new ServiceFunctionBuilder().setName(new SfName(sfName)).build();
+    }
+}
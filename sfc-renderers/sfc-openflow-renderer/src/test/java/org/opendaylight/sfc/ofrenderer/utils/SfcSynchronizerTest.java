@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2014, 2015 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.ofrenderer.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+
+public class SfcSynchronizerTest {
+
+    // Long enough for an unblocked thread to get its locks, short enough to
+    // keep the test fast when checking that a thread is blocked
+    private static final long BLOCKED_MILLIS = 200;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    // sff1 to sff3 are on different stripes, their hash codes being consecutive
+    private static final SffName SFF1 = new SffName("sff1");
+    private static final SffName SFF2 = new SffName("sff2");
+    private static final SffName SFF3 = new SffName("sff3");
+
+    private SfcSynchronizer sfcSynchronizer;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        sfcSynchronizer = new SfcSynchronizer();
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private Future<?> lockSffsInOtherThread(List<SffName> sffNames) {
+        return executor.submit(() -> {
+            sfcSynchronizer.lockSffs(sffNames);
+            sfcSynchronizer.unlockSffs(sffNames);
+        });
+    }
+
+    private static void assertBlocked(Future<?> future) throws Exception {
+        try {
+            future.get(BLOCKED_MILLIS, TimeUnit.MILLISECONDS);
+            fail("The locks were acquired while held by another thread");
+        } catch (TimeoutException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void disjointSffsAreLockedConcurrently() throws Exception {
+        sfcSynchronizer.lockSffs(Arrays.asList(SFF1, SFF2));
+        try {
+            lockSffsInOtherThread(Collections.singletonList(SFF3)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            sfcSynchronizer.unlockSffs(Arrays.asList(SFF1, SFF2));
+        }
+    }
+
+    @Test
+    public void overlappingSffsAreLockedExclusively() throws Exception {
+        sfcSynchronizer.lockSffs(Arrays.asList(SFF1, SFF2));
+        Future<?> future = lockSffsInOtherThread(Arrays.asList(SFF2, SFF3));
+        try {
+            assertBlocked(future);
+        } finally {
+            sfcSynchronizer.unlockSffs(Arrays.asList(SFF1, SFF2));
+        }
+        future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void exclusiveLockExcludesSffLocks() throws Exception {
+        sfcSynchronizer.lockSffs(Collections.singletonList(SFF1));
+        Future<?> lockFuture = executor.submit(() -> {
+            sfcSynchronizer.lock();
+            sfcSynchronizer.unlock();
+        });
+        try {
+            assertBlocked(lockFuture);
+            assertFalse(sfcSynchronizer.isLocked());
+        } finally {
+            sfcSynchronizer.unlockSffs(Collections.singletonList(SFF1));
+        }
+        lockFuture.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        sfcSynchronizer.lock();
+        Future<?> sffFuture = lockSffsInOtherThread(Collections.singletonList(SFF2));
+        try {
+            assertTrue(sfcSynchronizer.isLocked());
+            assertBlocked(sffFuture);
+        } finally {
+            sfcSynchronizer.unlock();
+        }
+        sffFuture.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void lockOrderDoesNotDependOnSffOrder() throws Exception {
+        // Two threads locking the same SFFs in opposite orders would deadlock
+        // if the stripes were not acquired in ascending order
+        Future<?> forward = executor.submit(() -> {
+            for (int i = 0; i < 10000; i++) {
+                sfcSynchronizer.lockSffs(Arrays.asList(SFF1, SFF2, SFF3));
+                sfcSynchronizer.unlockSffs(Arrays.asList(SFF1, SFF2, SFF3));
+            }
+        });
+        Future<?> backward = executor.submit(() -> {
+            for (int i = 0; i < 10000; i++) {
+                sfcSynchronizer.lockSffs(Arrays.asList(SFF3, SFF2, SFF1));
+                sfcSynchronizer.unlockSffs(Arrays.asList(SFF3, SFF2, SFF1));
+            }
+        });
+        forward.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        backward.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void sffNamesSharingAStripeAreLockedOnce() throws Exception {
+        // With a single stripe all the SFFs share the same lock, which must
+        // only be taken once per lockSffs() call
+        sfcSynchronizer = new SfcSynchronizer(1);
+        sfcSynchronizer.lockSffs(Arrays.asList(SFF1, SFF2));
+        sfcSynchronizer.unlockSffs(Arrays.asList(SFF1, SFF2));
+        lockSffsInOtherThread(Collections.singletonList(SFF3)).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+}
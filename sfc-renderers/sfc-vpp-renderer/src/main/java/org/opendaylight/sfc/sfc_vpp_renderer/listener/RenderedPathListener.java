@@ -8,7 +8,9 @@
 
 package org.opendaylight.sfc.sfc_vpp_renderer.listener;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import javax.annotation.Nonnull;
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
 import org.opendaylight.controller.md.sal.binding.api.DataObjectModification;
@@ -18,6 +20,7 @@ import org.opendaylight.controller.md.sal.binding.api.DataTreeModification;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.sfc.sfc_vpp_renderer.renderer.VppRspProcessor;
 import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.RenderedServicePaths;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
 import org.opendaylight.yangtools.concepts.ListenerRegistration;
 import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
 
@@ -37,6 +40,9 @@ public class RenderedPathListener implements DataTreeChangeListener<RenderedServ
 
     @Override
     public void onDataTreeChanged(@Nonnull Collection<DataTreeModification<RenderedServicePaths>> changes) {
+        // The RSPs of a notification are rendered together, one transaction per VPP node
+        List<RenderedServicePath> updatedRsps = new ArrayList<>();
+        List<RenderedServicePath> deletedRsps = new ArrayList<>();
         for (DataTreeModification<RenderedServicePaths> modification : changes) {
             DataObjectModification<RenderedServicePaths> rootNode = modification.getRootNode();
 
@@ -44,16 +50,21 @@ public class RenderedPathListener implements DataTreeChangeListener<RenderedServ
                 case WRITE:
                 case SUBTREE_MODIFIED:
                     if (rootNode.getDataAfter() != null && rootNode.getDataAfter().getRenderedServicePath() != null) {
-                        rootNode.getDataAfter().getRenderedServicePath().forEach(rspProcessor::updateRsp);
+                        rootNode.getDataAfter().getRenderedServicePath().forEach(updatedRsps::add);
                     }
                     break;
                 case DELETE:
                     if (rootNode.getDataBefore() != null && rootNode.getDataBefore().getRenderedServicePath() != null) {
-                        rootNode.getDataBefore().getRenderedServicePath().forEach(rspProcessor::deleteRsp);
+                        rootNode.getDataBefore().getRenderedServicePath().forEach(deletedRsps::add);
                     }
                     break;
             }
         }
+
+        // The removals are written before the updates on each VPP node
+        if (!deletedRsps.isEmpty() || !updatedRsps.isEmpty()) {
+            rspProcessor.renderRsps(deletedRsps, updatedRsps);
+        }
     }
 
     public ListenerRegistration getRegistrationObject() {
@@ -10,15 +10,18 @@ package org.opendaylight.sfc.sfc_vpp_renderer.renderer;
 import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.opendaylight.controller.md.sal.binding.api.DataBroker;
-import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
-import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceForwarderAPI;
 import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
 import org.opendaylight.sfc.sfc_vpp_renderer.listener.RenderedPathListener;
@@ -92,7 +95,9 @@ public class VppRspProcessor {
     private final VppNodeManager nodeManager;
     private final RenderedPathListener rspListener;
     private static final String SFC_BD_NAME = new String("SFCVPP");
-    private final Map<String, String> bridgeDomainCreated = new HashMap<>();
+    // Bridge domain of the VPP nodes: BRIDGE_DOMAIN_CREATED, or the pending batch creating it
+    private static final Object BRIDGE_DOMAIN_CREATED = new Object();
+    private final ConcurrentMap<String, Object> bridgeDomains = new ConcurrentHashMap<>();
 
     public VppRspProcessor(DataBroker dataBroker, VppNodeManager nodeManager) {
         this.dataBroker = Preconditions.checkNotNull(dataBroker);
@@ -102,6 +107,114 @@ public class VppRspProcessor {
     }
 
     public void updateRsp(RenderedServicePath renderedServicePath) {
+        updateRsps(Collections.singletonList(Preconditions.checkNotNull(renderedServicePath)));
+    }
+
+    /**
+     * Render a group of RSPs. The configuration of all the RSPs is sent
+     * with a single transaction per VPP node, the nodes being configured in
+     * parallel. A RSP that cannot be resolved is skipped as a whole.
+     *
+     * @param renderedServicePaths - the RSPs to render
+     * @return a future completing once all the VPP nodes have acknowledged
+     * their configuration
+     */
+    public ListenableFuture<Void> updateRsps(Collection<RenderedServicePath> renderedServicePaths) {
+        return renderRsps(Collections.emptyList(), renderedServicePaths);
+    }
+
+    public void deleteRsp(RenderedServicePath renderedServicePath) {
+        deleteRsps(Collections.singletonList(Preconditions.checkNotNull(renderedServicePath)));
+    }
+
+    /**
+     * Remove a group of RSPs, with a single transaction per VPP node, the
+     * nodes being configured in parallel.
+     *
+     * @param renderedServicePaths - the RSPs to remove
+     * @return a future completing once all the VPP nodes have acknowledged
+     * the removal
+     */
+    public ListenableFuture<Void> deleteRsps(Collection<RenderedServicePath> renderedServicePaths) {
+        return renderRsps(renderedServicePaths, Collections.emptyList());
+    }
+
+    /**
+     * Remove a group of RSPs and render another one, with a single
+     * transaction per VPP node. The removals are written first, so that
+     * a RSP removed and rendered again ends up configured on its nodes.
+     *
+     * @param deletedRsps - the RSPs to remove
+     * @param updatedRsps - the RSPs to render
+     * @return a future completing once all the VPP nodes have acknowledged
+     * their configuration
+     */
+    public ListenableFuture<Void> renderRsps(Collection<RenderedServicePath> deletedRsps,
+                                             Collection<RenderedServicePath> updatedRsps) {
+        final VppWriteBatch batch = new VppWriteBatch();
+        final Set<String> newBridgeDomains = new HashSet<>();
+        int rspCount = 0;
+
+        for (RenderedServicePath renderedServicePath : deletedRsps) {
+            VppWriteBatch rspBatch = new VppWriteBatch();
+            if (stageRspDelete(rspBatch, renderedServicePath)) {
+                batch.merge(rspBatch);
+                rspCount++;
+            }
+        }
+
+        for (RenderedServicePath renderedServicePath : updatedRsps) {
+            // Stage every RSP on its own, to leave no partial configuration if it cannot be resolved
+            VppWriteBatch rspBatch = new VppWriteBatch();
+            Set<String> rspBridgeDomains = new HashSet<>();
+            if (stageRspUpdate(rspBatch, rspBridgeDomains, newBridgeDomains, renderedServicePath)) {
+                batch.merge(rspBatch);
+                newBridgeDomains.addAll(rspBridgeDomains);
+                rspCount++;
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return Futures.immediateFuture(null);
+        }
+        // The batch owns the bridge domains it creates until it completes, unless a later batch takes them over
+        newBridgeDomains.forEach(vppNode -> bridgeDomains.compute(vppNode,
+                (node, state) -> state == BRIDGE_DOMAIN_CREATED ? state : batch));
+        return submitBatch(batch, rspCount, newBridgeDomains);
+    }
+
+    private ListenableFuture<Void> submitBatch(final VppWriteBatch batch, final int rspCount,
+                                               final Set<String> newBridgeDomains) {
+        final Set<String> vppNodes = batch.getNodeNames();
+        ListenableFuture<Void> future = batch.submit();
+        Futures.addCallback(future, new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(@Nullable Void result) {
+                LOG.info("{} RSPs rendered on VPP nodes {}", rspCount, vppNodes);
+                newBridgeDomains.forEach(vppNode -> bridgeDomains.put(vppNode, BRIDGE_DOMAIN_CREATED));
+            }
+
+            @Override
+            public void onFailure(@Nonnull Throwable t) {
+                LOG.warn("Rendering of {} RSPs on VPP nodes {} failed", rspCount, vppNodes, t);
+                // Create the bridge domains again on the next attempt, unless a later batch is creating them
+                newBridgeDomains.forEach(vppNode -> bridgeDomains.remove(vppNode, batch));
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Stage the configuration of a RSP on its VPP nodes.
+     *
+     * @param batch - the batch to stage the writes to
+     * @param rspBridgeDomains - the VPP nodes whose bridge domain has been staged for the RSP
+     * @param stagedBridgeDomains - the VPP nodes whose bridge domain is already staged in the current batch
+     * @param renderedServicePath - the RSP
+     * @return true if the RSP has been resolved and staged completely
+     */
+    private boolean stageRspUpdate(final VppWriteBatch batch, final Set<String> rspBridgeDomains,
+                                   final Set<String> stagedBridgeDomains, RenderedServicePath renderedServicePath) {
         Preconditions.checkNotNull(renderedServicePath);
         Long pathId = renderedServicePath.getPathId();
         Short serviceIndex = renderedServicePath.getStartingIndex();
@@ -119,7 +232,7 @@ public class VppRspProcessor {
         if (renderedServicePath.getRenderedServicePathHop() == null ||
                 renderedServicePath.getRenderedServicePathHop().isEmpty()) {
             LOG.warn("Rendered path {} does not contain any hop", renderedServicePath.getName().getValue());
-            return;
+            return false;
         }
         Iterator<RenderedServicePathHop> rspHopIterator = renderedServicePath.getRenderedServicePathHop()
                 .iterator();
@@ -134,7 +247,7 @@ public class VppRspProcessor {
             if (currentMountpoint == null) {
                 LOG.error("Resolving of RSP {} failed, mountpoint for SFF {} is null", renderedServicePath.getName()
                     .getValue(), currentSffName.getValue());
-                return;
+                return false;
             }
 
             sfName = hop.getServiceFunctionName();
@@ -142,29 +255,30 @@ public class VppRspProcessor {
             ServiceFunction serviceFunction = SfcProviderServiceFunctionAPI.readServiceFunction(sfName);
             if (serviceFunction == null) {
                 LOG.error("Service function {} not present in datastore", sfName.getValue());
-                return;
+                return false;
             }
             ipList = getSffSfIps(currentSffName, sfName);
             if ((ipList == null) || ipList.isEmpty()) {
                 LOG.error("failed to get IP for DPL for SFF {} in RSP {}", currentSffName.getValue(), renderedServicePath.getName().getValue());
-                return;
+                return false;
             }
             localIp = ipList.get(0);
             remoteIp = ipList.get(1);
 
             /* Create BridgeDomain */
-            if (!bridgeDomainCreated.containsKey(currentSffName.getValue())) {
-                addBridgeDomain(currentMountpoint, SFC_BD_NAME, currentSffName.getValue());
-                bridgeDomainCreated.put(currentSffName.getValue(), SFC_BD_NAME);
+            if (bridgeDomains.get(currentSffName.getValue()) != BRIDGE_DOMAIN_CREATED
+                    && !stagedBridgeDomains.contains(currentSffName.getValue())
+                    && rspBridgeDomains.add(currentSffName.getValue())) {
+                addBridgeDomain(batch, currentMountpoint, SFC_BD_NAME, currentSffName.getValue());
             }
 
             SfLocatorProxyAugmentation sfDplProxyAug = getSfDplProxyAugmentation(serviceFunction, currentSffName);
             if (sfDplProxyAug == null) {
                 /* NSH-aware SF */
-                ret = configureVxlanGpeNsh(currentMountpoint, currentSffName, localIp, remoteIp, pathId, serviceIndex);
+                ret = configureVxlanGpeNsh(batch, currentMountpoint, currentSffName, localIp, remoteIp, pathId, serviceIndex);
                 if (!ret) {
                     LOG.error("failed to configure VxLAN-gpe and NSH for RSP {} in SFF {} for SF hop", renderedServicePath.getName().getValue(), currentSffName.getValue());
-                    return;
+                    return false;
                 }
             } else {
                 /* SF has NSH Proxy, i.e. NSH-unaware SF,
@@ -173,29 +287,37 @@ public class VppRspProcessor {
                 remoteIp = getSfProxyDplIp(sfDplProxyAug);
                 if (remoteIp == null) {
                     LOG.error("failed to get IP for SF DPL for SF {} in RSP {}", sfName.getValue(), renderedServicePath.getName().getValue());
-                    return;
+                    return false;
                 }
-                ret = configureVxlanNsh(currentMountpoint, currentSffName, localIp, remoteIp, pathId, serviceIndex);
+                ret = configureVxlanNsh(batch, currentMountpoint, currentSffName, localIp, remoteIp, pathId, serviceIndex);
                 if (!ret) {
                     LOG.error("failed to configure VxLAN and NSH for RSP {} in SFF {} for SF hop", renderedServicePath.getName().getValue(), currentSffName.getValue());
-                    return;
+                    return false;
                 }
             }
 
             if ((previousSffName != null) && (!previousSffName.equals(currentSffName))) {
                 //previous SFF <-> current SFF
-                ret = configureVxlanGpeNsh(previousMountPoint, previousSffName, preLocalIp, localIp, pathId, serviceIndex);
+                ret = configureVxlanGpeNsh(batch, previousMountPoint, previousSffName, preLocalIp, localIp, pathId, serviceIndex);
                 if (!ret) {
                     LOG.error("failed to configure VxLAN-gpe and NSH for RSP {} in SFF {} for SFF hop", renderedServicePath.getName().getValue(), previousSffName.getValue());
-                    return;
+                    return false;
                 }
             }
         }
 
         /* TODO: Configure VxlanGpeNsh for last hop to classifier */
+        return true;
     }
 
-    public void deleteRsp(RenderedServicePath renderedServicePath) {
+    /**
+     * Stage the removal of a RSP from its VPP nodes.
+     *
+     * @param batch - the batch to stage the deletes to
+     * @param renderedServicePath - the RSP
+     * @return true if the RSP has been resolved and staged completely
+     */
+    private boolean stageRspDelete(final VppWriteBatch batch, RenderedServicePath renderedServicePath) {
         boolean ret = false;
         Preconditions.checkNotNull(renderedServicePath);
         Long pathId = renderedServicePath.getPathId();
@@ -213,7 +335,7 @@ public class VppRspProcessor {
         if (renderedServicePath.getRenderedServicePathHop() == null ||
                 renderedServicePath.getRenderedServicePathHop().isEmpty()) {
             LOG.warn("Rendered path {} does not contain any hop", renderedServicePath.getName().getValue());
-            return;
+            return false;
         }
         Iterator<RenderedServicePathHop> rspHopIterator = renderedServicePath.getRenderedServicePathHop()
                 .iterator();
@@ -228,7 +350,7 @@ public class VppRspProcessor {
             if (currentMountpoint == null) {
                 LOG.error("Resolving of RSP {} failed, mountpoint for SFF {} is null", renderedServicePath.getName()
                     .getValue(), currentSffName.getValue());
-                return;
+                return false;
             }
 
             sfName = hop.getServiceFunctionName();
@@ -236,41 +358,42 @@ public class VppRspProcessor {
             ServiceFunction serviceFunction = SfcProviderServiceFunctionAPI.readServiceFunction(sfName);
             if (serviceFunction == null) {
                 LOG.error("Service function {} not present in datastore", sfName.getValue());
-                return;
+                return false;
             }
             ipList = getSffSfIps(currentSffName, sfName);
             if ((ipList == null) || ipList.isEmpty()) {
                 LOG.error("failed to get IP for DPL for SFF {} in RSP {}", currentSffName.getValue(), renderedServicePath.getName().getValue());
-                return;
+                return false;
             }
             localIp = ipList.get(0);
             remoteIp = ipList.get(1);
 
             SfLocatorProxyAugmentation sfDplProxyAug = getSfDplProxyAugmentation(serviceFunction, currentSffName);
             if (sfDplProxyAug == null) {
-                ret = removeVxlanGpeNsh(currentMountpoint, currentSffName, localIp, remoteIp, pathId, serviceIndex);
+                ret = removeVxlanGpeNsh(batch, currentMountpoint, currentSffName, localIp, remoteIp, pathId, serviceIndex);
                 if (!ret) {
                     LOG.error("failed to remove VxLAN-gpe and NSH for RSP {} in SFF {}", renderedServicePath.getName().getValue(), currentSffName.getValue());
-                    return;
+                    return false;
                 }
             } else {
                 remoteIp = getSfProxyDplIp(sfDplProxyAug);
                 if (remoteIp == null) {
                     LOG.error("failed to get IP for SF DPL for SFF {} in RSP {}", currentSffName.getValue(), renderedServicePath.getName().getValue());
-                    return;
+                    return false;
                 }
-                ret = removeVxlanNsh(currentMountpoint, currentSffName, localIp, remoteIp, pathId, serviceIndex);
+                ret = removeVxlanNsh(batch, currentMountpoint, currentSffName, localIp, remoteIp, pathId, serviceIndex);
                 if (!ret) {
                     LOG.error("failed to remove VxLAN and NSH for RSP {} in SFF {}", renderedServicePath.getName().getValue(), currentSffName.getValue());
-                    return;
+                    return false;
                 }
             }
 
             if ((previousSffName != null) && (!previousSffName.equals(currentSffName))) {
-                removeVxlanGpePort(previousMountPoint, preLocalIp, localIp, Long.valueOf(0), previousSffName.getValue()); //previous SFF <-> current SFF
-                removeVxlanGpePort(currentMountpoint, localIp, preLocalIp, Long.valueOf(0), currentSffName.getValue());  //current SFF <-> previous SFF
+                removeVxlanGpePort(batch, previousMountPoint, preLocalIp, localIp, Long.valueOf(0), previousSffName.getValue()); //previous SFF <-> current SFF
+                removeVxlanGpePort(batch, currentMountpoint, localIp, preLocalIp, Long.valueOf(0), currentSffName.getValue());  //current SFF <-> previous SFF
             }
         }
+        return true;
     }
 
     private DataBroker getSffMountpoint(SffName sffName) {
@@ -438,7 +561,7 @@ public class VppRspProcessor {
         return ip;
     }
 
-    private void addBridgeDomain(final DataBroker dataBroker, String bridgeDomainName, String vppNode) {
+    private void addBridgeDomain(final VppWriteBatch batch, final DataBroker dataBroker, String bridgeDomainName, String vppNode) {
         InstanceIdentifier<BridgeDomain> bridgeDomainIId =
             InstanceIdentifier.create(Vpp.class)
                 .child(BridgeDomains.class)
@@ -452,30 +575,15 @@ public class VppRspProcessor {
         bdBuilder.setUnknownUnicastFlood(true);
         bdBuilder.setArpTermination(false);
 
-        final DataBroker vppDataBroker = dataBroker;
-        final WriteTransaction wTx = vppDataBroker.newWriteOnlyTransaction();
-        wTx.put(LogicalDatastoreType.CONFIGURATION, bridgeDomainIId, bdBuilder.build());
-
-        LOG.debug("Submitting new bridge domain {} to config store...", bridgeDomainName);
-
-        Futures.addCallback(wTx.submit(), new FutureCallback<Void>() {
-            @Override
-            public void onSuccess(@Nullable Void result) {
-                LOG.debug("Writing bridge domain {} to {} finished successfully.", bridgeDomainName, vppNode);
-            }
-
-            @Override
-            public void onFailure(@Nonnull Throwable t) {
-                LOG.warn("Writing bridge domain {} to {} failed: {}", bridgeDomainName, vppNode, t);
-            }
-        });
+        LOG.debug("Adding new bridge domain {} to {}", bridgeDomainName, vppNode);
+        batch.put(dataBroker, vppNode, bridgeDomainIId, bdBuilder.build());
     }
 
     private String buildVxlanGpePortKey(final IpAddress remote) {
         return new String("vxlanGpeTun" + "_" + remote.getIpv4Address().getValue());
     }
 
-    private void addVxlanGpePort(final DataBroker dataBroker, final IpAddress local, final IpAddress remote, Long vni, String vppNode)
+    private void addVxlanGpePort(final VppWriteBatch batch, final DataBroker dataBroker, final IpAddress local, final IpAddress remote, Long vni, String vppNode)
     {
         final VxlanGpeBuilder vxlanGpeBuilder = new VxlanGpeBuilder();
 
@@ -510,54 +618,24 @@ public class VppRspProcessor {
         interfaceBuilder.setEnabled(true);
         interfaceBuilder.setLinkUpDownTrapEnable(Interface.LinkUpDownTrapEnable.Enabled);
 
-        final DataBroker vppDataBroker = dataBroker;
-        final WriteTransaction wTx = vppDataBroker.newWriteOnlyTransaction();
         final KeyedInstanceIdentifier<Interface, InterfaceKey> interfaceIid
                     = InstanceIdentifier.create(Interfaces.class).child(Interface.class, new InterfaceKey(interfaceBuilder.getName()));
-        wTx.put(LogicalDatastoreType.CONFIGURATION, interfaceIid, interfaceBuilder.build());
-
-        LOG.debug("Submitting new interface to config store...");
-
-        Futures.addCallback(wTx.submit(), new FutureCallback<Void>() {
-            @Override
-            public void onSuccess(@Nullable Void result) {
-                LOG.debug("Writing vxlangpe virtual interface to {} finished successfully.", vppNode);
-            }
-
-            @Override
-            public void onFailure(@Nonnull Throwable t) {
-                LOG.warn("Writing vxlangpe virtual interface to {} failed.", vppNode, t);
-            }
-        });
+        LOG.debug("Adding vxlangpe virtual interface {} to {}", interfaceBuilder.getName(), vppNode);
+        batch.put(dataBroker, vppNode, interfaceIid, interfaceBuilder.build());
     }
 
-    private void removeVxlanGpePort(final DataBroker dataBroker, final IpAddress local, final IpAddress remote, Long vni, String vppNode) {
-        final DataBroker vppDataBroker = dataBroker;
-        final WriteTransaction wTx = vppDataBroker.newWriteOnlyTransaction();
+    private void removeVxlanGpePort(final VppWriteBatch batch, final DataBroker dataBroker, final IpAddress local, final IpAddress remote, Long vni, String vppNode) {
         final KeyedInstanceIdentifier<Interface, InterfaceKey> interfaceIid
                     = InstanceIdentifier.create(Interfaces.class).child(Interface.class, new InterfaceKey(buildVxlanGpePortKey(remote)));
-        wTx.delete(LogicalDatastoreType.CONFIGURATION, interfaceIid);
-
-        LOG.debug("Removing vxlangpe interface from config store...");
-
-        Futures.addCallback(wTx.submit(), new FutureCallback<Void>() {
-            @Override
-            public void onSuccess(@Nullable Void result) {
-                LOG.debug("Removing vxlangpe virtual interface from {} finished successfully.", vppNode);
-            }
-
-            @Override
-            public void onFailure(@Nonnull Throwable t) {
-                LOG.warn("Removing vxlangpe virtual interface from {} failed.", vppNode, t);
-            }
-        });
+        LOG.debug("Removing vxlangpe virtual interface {} from {}", buildVxlanGpePortKey(remote), vppNode);
+        batch.delete(dataBroker, vppNode, interfaceIid);
     }
 
     private String buildVxlanPortKey(final IpAddress dstIp) {
         return new String("vxlanTun" + "_" + dstIp.getIpv4Address().getValue());
     }
 
-    private void addVxlanPort(final DataBroker dataBroker, final IpAddress srcIp, final IpAddress dstIp, Long vni, String vppNode)
+    private void addVxlanPort(final VppWriteBatch batch, final DataBroker dataBroker, final IpAddress srcIp, final IpAddress dstIp, Long vni, String vppNode)
     {
         final VxlanBuilder vxlanBuilder = new VxlanBuilder();
 
@@ -585,54 +663,24 @@ public class VppRspProcessor {
         interfaceBuilder.addAugmentation(VppInterfaceAugmentation.class, vppInterfaceAugmentationBuilder.build());
         interfaceBuilder.setEnabled(true);
 
-        final DataBroker vppDataBroker = dataBroker;
-        final WriteTransaction wTx = vppDataBroker.newWriteOnlyTransaction();
         final KeyedInstanceIdentifier<Interface, InterfaceKey> interfaceIid
                     = InstanceIdentifier.create(Interfaces.class).child(Interface.class, new InterfaceKey(interfaceBuilder.getName()));
-        wTx.put(LogicalDatastoreType.CONFIGURATION, interfaceIid, interfaceBuilder.build());
-
-        LOG.debug("Submitting new interface to config store...");
-
-        Futures.addCallback(wTx.submit(), new FutureCallback<Void>() {
-            @Override
-            public void onSuccess(@Nullable Void result) {
-                LOG.debug("Writing vxlan virtual interface to {} finished successfully.", vppNode);
-            }
-
-            @Override
-            public void onFailure(@Nonnull Throwable t) {
-                LOG.warn("Writing vxlan virtual interface to {} failed.", vppNode, t);
-            }
-        });
+        LOG.debug("Adding vxlan virtual interface {} to {}", interfaceBuilder.getName(), vppNode);
+        batch.put(dataBroker, vppNode, interfaceIid, interfaceBuilder.build());
     }
 
-    private void removeVxlanPort(final DataBroker dataBroker, final IpAddress srcIp, final IpAddress dstIp, Long vni, String vppNode) {
-        final DataBroker vppDataBroker = dataBroker;
-        final WriteTransaction wTx = vppDataBroker.newWriteOnlyTransaction();
+    private void removeVxlanPort(final VppWriteBatch batch, final DataBroker dataBroker, final IpAddress srcIp, final IpAddress dstIp, Long vni, String vppNode) {
         final KeyedInstanceIdentifier<Interface, InterfaceKey> interfaceIid
                     = InstanceIdentifier.create(Interfaces.class).child(Interface.class, new InterfaceKey(buildVxlanPortKey(dstIp)));
-        wTx.delete(LogicalDatastoreType.CONFIGURATION, interfaceIid);
-
-        LOG.debug("Removing vxlan interface from config store...");
-
-        Futures.addCallback(wTx.submit(), new FutureCallback<Void>() {
-            @Override
-            public void onSuccess(@Nullable Void result) {
-                LOG.debug("Removing vxlan virtual interface from {} finished successfully.", vppNode);
-            }
-
-            @Override
-            public void onFailure(@Nonnull Throwable t) {
-                LOG.warn("Removing vxlan virtual interface from {} failed.", vppNode, t);
-            }
-        });
+        LOG.debug("Removing vxlan virtual interface {} from {}", buildVxlanPortKey(dstIp), vppNode);
+        batch.delete(dataBroker, vppNode, interfaceIid);
     }
 
     private String buildNshEntryKey(final Long nsp, final Short nsi) {
         return new String("nsh_entry_" + nsp.toString() + "_" + nsi.toString());
     }
 
-    private void addNshEntry(final DataBroker dataBroker, final Long nsp, final Short nsi, String vppNode)
+    private void addNshEntry(final VppWriteBatch batch, final DataBroker dataBroker, final Long nsp, final Short nsi, String vppNode)
     {
         NshEntryBuilder nshEntryBuilder = new NshEntryBuilder();
         nshEntryBuilder.setVersion(Short.valueOf("0"));
@@ -655,54 +703,24 @@ public class VppRspProcessor {
         nshEntryBuilder.addAugmentation(NshMdType1Augment.class, nshMdType1AugmentBuilder.build());
         NshEntry nshEntry = nshEntryBuilder.build();
 
-        final DataBroker vppDataBroker = dataBroker;
-        final WriteTransaction wTx = vppDataBroker.newWriteOnlyTransaction();
         final InstanceIdentifier<NshEntry> nshEntryIid
                     = InstanceIdentifier.create(VppNsh.class).child(NshEntries.class).child(NshEntry.class, nshEntry.getKey());
-        wTx.put(LogicalDatastoreType.CONFIGURATION, nshEntryIid, nshEntry);
-
-        LOG.debug("Submitting new nsh entry to config store...");
-
-        Futures.addCallback(wTx.submit(), new FutureCallback<Void>() {
-            @Override
-            public void onSuccess(@Nullable Void result) {
-                LOG.debug("Writing nsh entry to {} finished successfully.", vppNode);
-            }
-
-            @Override
-            public void onFailure(@Nonnull Throwable t) {
-                LOG.warn("Writing nsh entry to {} failed.", vppNode, t);
-            }
-        });
+        LOG.debug("Adding nsh entry {} to {}", nshEntry.getName(), vppNode);
+        batch.put(dataBroker, vppNode, nshEntryIid, nshEntry);
     }
 
-    private void removeNshEntry(final DataBroker dataBroker, final Long nsp, final Short nsi, String vppNode) {
-        final DataBroker vppDataBroker = dataBroker;
-        final WriteTransaction wTx = vppDataBroker.newWriteOnlyTransaction();
+    private void removeNshEntry(final VppWriteBatch batch, final DataBroker dataBroker, final Long nsp, final Short nsi, String vppNode) {
         final InstanceIdentifier<NshEntry> nshEntryIid
-                    = InstanceIdentifier.create(NshEntries.class).child(NshEntry.class, new NshEntryKey(buildNshEntryKey(nsp, nsi)));
-        wTx.delete(LogicalDatastoreType.CONFIGURATION, nshEntryIid);
-
-        LOG.debug("Removing nsh entry from config store...");
-
-        Futures.addCallback(wTx.submit(), new FutureCallback<Void>() {
-            @Override
-            public void onSuccess(@Nullable Void result) {
-                LOG.debug("Removing nsh entry from {} finished successfully.", vppNode);
-            }
-
-            @Override
-            public void onFailure(@Nonnull Throwable t) {
-                LOG.warn("Removing nsh entry from {} failed.", vppNode, t);
-            }
-        });
+                    = InstanceIdentifier.create(VppNsh.class).child(NshEntries.class).child(NshEntry.class, new NshEntryKey(buildNshEntryKey(nsp, nsi)));
+        LOG.debug("Removing nsh entry {} from {}", buildNshEntryKey(nsp, nsi), vppNode);
+        batch.delete(dataBroker, vppNode, nshEntryIid);
     }
 
     private String buildNshMapKey(final Long nsp, final Short nsi, final Long mappedNsp, final Short mappedNsi) {
         return new String("nsh_map_" + nsp.toString() + "_" + nsi.toString() + "_to_" + mappedNsp.toString() + "_" + mappedNsi.toString());
     }
 
-    private void addNshMap(final DataBroker dataBroker, final Long nsp, final Short nsi, final Long mappedNsp, final Short mappedNsi, String encapIfName, String vppNode)
+    private void addNshMap(final VppWriteBatch batch, final DataBroker dataBroker, final Long nsp, final Short nsi, final Long mappedNsp, final Short mappedNsi, String encapIfName, String vppNode)
     {
         final NshMapBuilder nshMapBuilder = new NshMapBuilder();
         nshMapBuilder.setNsp(nsp);
@@ -715,88 +733,58 @@ public class VppRspProcessor {
         nshMapBuilder.setEncapIfName(encapIfName);
         NshMap nshMap = nshMapBuilder.build();
 
-        final DataBroker vppDataBroker = dataBroker;
-        final WriteTransaction wTx = vppDataBroker.newWriteOnlyTransaction();
         final InstanceIdentifier<NshMap> nshMapIid
                     = InstanceIdentifier.create(VppNsh.class).child(NshMaps.class).child(NshMap.class, nshMap.getKey());
-        wTx.put(LogicalDatastoreType.CONFIGURATION, nshMapIid, nshMap);
-
-        LOG.debug("Submitting new nsh map to config store...");
-
-        Futures.addCallback(wTx.submit(), new FutureCallback<Void>() {
-            @Override
-            public void onSuccess(@Nullable Void result) {
-                LOG.debug("Writing nsh map to {} finished successfully.", vppNode);
-            }
-
-            @Override
-            public void onFailure(@Nonnull Throwable t) {
-                LOG.warn("Writing nsh map to {} failed.", vppNode, t);
-            }
-        });
+        LOG.debug("Adding nsh map {} to {}", nshMap.getName(), vppNode);
+        batch.put(dataBroker, vppNode, nshMapIid, nshMap);
     }
 
-    private void removeNshMap(final DataBroker dataBroker, final Long nsp, final Short nsi, final Long mappedNsp, final Short mappedNsi, String vppNode) {
-        final DataBroker vppDataBroker = dataBroker;
-        final WriteTransaction wTx = vppDataBroker.newWriteOnlyTransaction();
+    private void removeNshMap(final VppWriteBatch batch, final DataBroker dataBroker, final Long nsp, final Short nsi, final Long mappedNsp, final Short mappedNsi, String vppNode) {
         final InstanceIdentifier<NshMap> nshMapIid
-                    = InstanceIdentifier.create(NshMaps.class).child(NshMap.class, new NshMapKey(buildNshMapKey(nsp, nsi, mappedNsp, mappedNsi)));
-        wTx.delete(LogicalDatastoreType.CONFIGURATION, nshMapIid);
-
-        LOG.debug("Removing nsh map from config store...");
-
-        Futures.addCallback(wTx.submit(), new FutureCallback<Void>() {
-            @Override
-            public void onSuccess(@Nullable Void result) {
-                LOG.debug("Removing nsh map from {} finished successfully.", vppNode);
-            }
-
-            @Override
-            public void onFailure(@Nonnull Throwable t) {
-                LOG.warn("Removing nsh map from {} failed.", vppNode, t);
-            }
-        });
+                    = InstanceIdentifier.create(VppNsh.class).child(NshMaps.class).child(NshMap.class, new NshMapKey(buildNshMapKey(nsp, nsi, mappedNsp, mappedNsi)));
+        LOG.debug("Removing nsh map {} from {}", buildNshMapKey(nsp, nsi, mappedNsp, mappedNsi), vppNode);
+        batch.delete(dataBroker, vppNode, nshMapIid);
     }
 
-    private boolean configureVxlanGpeNsh(final DataBroker dataBroker, final SffName sffName, final IpAddress localIp, final IpAddress remoteIp, final Long nsp, final Short nsi) {
+    private boolean configureVxlanGpeNsh(final VppWriteBatch batch, final DataBroker dataBroker, final SffName sffName, final IpAddress localIp, final IpAddress remoteIp, final Long nsp, final Short nsi) {
         Long vni = Long.valueOf(0); // SFC classifier set it to 0, so always use 0
 
-        addVxlanGpePort(dataBroker, localIp, remoteIp, vni, sffName.getValue()); //SFF<->SF
-        addNshEntry(dataBroker, nsp, nsi, sffName.getValue()); //To Next Hop
-        addNshMap(dataBroker, nsp, nsi, nsp, nsi, buildVxlanGpePortKey(remoteIp), sffName.getValue());
+        addVxlanGpePort(batch, dataBroker, localIp, remoteIp, vni, sffName.getValue()); //SFF<->SF
+        addNshEntry(batch, dataBroker, nsp, nsi, sffName.getValue()); //To Next Hop
+        addNshMap(batch, dataBroker, nsp, nsi, nsp, nsi, buildVxlanGpePortKey(remoteIp), sffName.getValue());
 
         return true;
     }
 
-    private boolean removeVxlanGpeNsh(final DataBroker dataBroker, final SffName sffName, final IpAddress localIp, final IpAddress remoteIp, final Long nsp, final Short nsi) {
+    private boolean removeVxlanGpeNsh(final VppWriteBatch batch, final DataBroker dataBroker, final SffName sffName, final IpAddress localIp, final IpAddress remoteIp, final Long nsp, final Short nsi) {
         Short nextNsi = nsi;
         nextNsi--;
         Long vni = Long.valueOf(0); // SFC classifier set it to 0, so always use 0
-        removeVxlanGpePort(dataBroker, localIp, remoteIp, vni, sffName.getValue()); //SFF<->SF
-        removeNshEntry(dataBroker, nsp, nsi, sffName.getValue()); //To SF
-        removeNshEntry(dataBroker, nsp, nextNsi, sffName.getValue()); //From SF
-        removeNshMap(dataBroker, nsp, nsi, nsp, nextNsi, sffName.getValue());
+        removeVxlanGpePort(batch, dataBroker, localIp, remoteIp, vni, sffName.getValue()); //SFF<->SF
+        removeNshEntry(batch, dataBroker, nsp, nsi, sffName.getValue()); //To SF
+        removeNshEntry(batch, dataBroker, nsp, nextNsi, sffName.getValue()); //From SF
+        removeNshMap(batch, dataBroker, nsp, nsi, nsp, nextNsi, sffName.getValue());
         return true;
     }
 
-    private boolean configureVxlanNsh(final DataBroker dataBroker, final SffName sffName, final IpAddress srcIp, final IpAddress dstIp, final Long nsp, final Short nsi) {
+    private boolean configureVxlanNsh(final VppWriteBatch batch, final DataBroker dataBroker, final SffName sffName, final IpAddress srcIp, final IpAddress dstIp, final Long nsp, final Short nsi) {
         Long vni = Long.valueOf(0); // SFC classifier set it to 0, so always use 0
 
-        addVxlanPort(dataBroker, srcIp, dstIp, vni, sffName.getValue()); //SFF<->SF
-        addNshEntry(dataBroker, nsp, nsi, sffName.getValue()); //To Next Hop
-        addNshMap(dataBroker, nsp, nsi, nsp, nsi, buildVxlanPortKey(dstIp), sffName.getValue());
+        addVxlanPort(batch, dataBroker, srcIp, dstIp, vni, sffName.getValue()); //SFF<->SF
+        addNshEntry(batch, dataBroker, nsp, nsi, sffName.getValue()); //To Next Hop
+        addNshMap(batch, dataBroker, nsp, nsi, nsp, nsi, buildVxlanPortKey(dstIp), sffName.getValue());
 
         return true;
     }
 
-    private boolean removeVxlanNsh(final DataBroker dataBroker, final SffName sffName, final IpAddress srcIp, final IpAddress dstIp, final Long nsp, final Short nsi) {
+    private boolean removeVxlanNsh(final VppWriteBatch batch, final DataBroker dataBroker, final SffName sffName, final IpAddress srcIp, final IpAddress dstIp, final Long nsp, final Short nsi) {
         Short nextNsi = nsi;
         nextNsi--;
         Long vni = Long.valueOf(0); // SFC classifier set it to 0, so always use 0
-        removeVxlanPort(dataBroker, srcIp, dstIp, vni, sffName.getValue()); //SFF<->SF
-        removeNshEntry(dataBroker, nsp, nsi, sffName.getValue()); //To SF
-        removeNshEntry(dataBroker, nsp, nextNsi, sffName.getValue()); //From SF
-        removeNshMap(dataBroker, nsp, nsi, nsp, nextNsi, sffName.getValue());
+        removeVxlanPort(batch, dataBroker, srcIp, dstIp, vni, sffName.getValue()); //SFF<->SF
+        removeNshEntry(batch, dataBroker, nsp, nsi, sffName.getValue()); //To SF
+        removeNshEntry(batch, dataBroker, nsp, nextNsi, sffName.getValue()); //From SF
+        removeNshMap(batch, dataBroker, nsp, nsi, nsp, nextNsi, sffName.getValue());
         return true;
     }
 
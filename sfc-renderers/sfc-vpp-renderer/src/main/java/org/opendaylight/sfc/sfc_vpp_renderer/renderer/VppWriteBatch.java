@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.opendaylight.sfc.sfc_vpp_renderer.renderer;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the configuration writes destined to VPP nodes, so that all the
+ * objects of a node are sent in a single transaction, i.e. a single NETCONF
+ * edit-config round-trip, instead of one transaction per object.
+ * <p>
+ * Nothing is sent until the batch is submitted; the transactions of the
+ * different nodes are then submitted in parallel. A batch can be merged
+ * into another one, so that the writes of a RSP are only added to the
+ * batch of a group of RSPs once the RSP has been fully resolved.
+ */
+class VppWriteBatch {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VppWriteBatch.class);
+
+    // Mount points are compared by identity, one per VPP node
+    private final Map<DataBroker, NodeWrites> nodeWrites = new IdentityHashMap<>();
+
+    /**
+     * Add a put of a configuration object to the batch.
+     *
+     * @param mountPoint - the mount point of the VPP node
+     * @param vppNode - the VPP node name, for logging
+     * @param iid - the object path
+     * @param data - the object
+     * @param <T> - the object type
+     */
+    <T extends DataObject> void put(DataBroker mountPoint, String vppNode, InstanceIdentifier<T> iid, T data) {
+        getNodeWrites(mountPoint, vppNode).writes.add(wTx -> wTx.put(LogicalDatastoreType.CONFIGURATION, iid, data));
+    }
+
+    /**
+     * Add a delete of a configuration object to the batch.
+     *
+     * @param mountPoint - the mount point of the VPP node
+     * @param vppNode - the VPP node name, for logging
+     * @param iid - the object path
+     */
+    void delete(DataBroker mountPoint, String vppNode, InstanceIdentifier<?> iid) {
+        getNodeWrites(mountPoint, vppNode).writes.add(wTx -> wTx.delete(LogicalDatastoreType.CONFIGURATION, iid));
+    }
+
+    /**
+     * Move the writes of another batch to the end of this one.
+     *
+     * @param other - the batch to merge, empty afterwards
+     */
+    void merge(VppWriteBatch other) {
+        other.nodeWrites.forEach((mountPoint, writes) ->
+                getNodeWrites(mountPoint, writes.vppNode).writes.addAll(writes.writes));
+        other.nodeWrites.clear();
+    }
+
+    boolean isEmpty() {
+        return nodeWrites.isEmpty();
+    }
+
+    /**
+     * @return the names of the VPP nodes written by the batch
+     */
+    Set<String> getNodeNames() {
+        Set<String> vppNodes = new HashSet<>();
+        nodeWrites.values().forEach(writes -> vppNodes.add(writes.vppNode));
+        return vppNodes;
+    }
+
+    /**
+     * Submit a transaction per VPP node, all in parallel.
+     *
+     * @return a future completing when all the nodes have acknowledged their
+     * transaction, failing if any of them fails
+     */
+    ListenableFuture<Void> submit() {
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        nodeWrites.forEach((mountPoint, writes) -> {
+            final WriteTransaction wTx = mountPoint.newWriteOnlyTransaction();
+            writes.writes.forEach(write -> write.accept(wTx));
+
+            LOG.debug("Submitting {} configuration changes to {}...", writes.writes.size(), writes.vppNode);
+            ListenableFuture<Void> future = wTx.submit();
+            Futures.addCallback(future, new FutureCallback<Void>() {
+                @Override
+                public void onSuccess(@Nullable Void result) {
+                    LOG.debug("Writing {} configuration changes to {} finished successfully.",
+                            writes.writes.size(), writes.vppNode);
+                }
+
+                @Override
+                public void onFailure(@Nonnull Throwable t) {
+                    LOG.warn("Writing configuration changes to {} failed.", writes.vppNode, t);
+                }
+            });
+            futures.add(future);
+        });
+        nodeWrites.clear();
+        return Futures.transform(Futures.allAsList(futures), (Function<List<Void>, Void>) results -> null);
+    }
+
+    private NodeWrites getNodeWrites(DataBroker mountPoint, String vppNode) {
+        return nodeWrites.computeIfAbsent(mountPoint, k -> new NodeWrites(vppNode));
+    }
+
+    private static final class NodeWrites {
+        private final String vppNode;
+        private final List<Consumer<WriteTransaction>> writes = new ArrayList<>();
+
+        NodeWrites(String vppNode) {
+            this.vppNode = vppNode;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sfc_vpp_renderer.renderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.binding.test.AbstractDataBrokerTest;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.sfc.provider.OpendaylightSfc;
+import org.opendaylight.sfc.provider.api.SfcProviderServiceForwarderAPI;
+import org.opendaylight.sfc.provider.api.SfcProviderServiceFunctionAPI;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.RspName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfDataPlaneLocatorName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SfName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffDataPlaneLocatorName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.common.rev151017.SffName;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePath;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePathBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.RenderedServicePathKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.rendered.service.path.RenderedServicePathHop;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.rsp.rev140701.rendered.service.paths.rendered.service.path.RenderedServicePathHopBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.function.base.SfDataPlaneLocatorBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sf.rev140701.service.functions.ServiceFunctionKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarder.base.SffDataPlaneLocatorBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarder.base.SffDataPlaneLocatorKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarder.base.sff.data.plane.locator.DataPlaneLocatorBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.ServiceFunctionForwarderKey;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.ServiceFunctionDictionaryBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sff.rev140701.service.function.forwarders.service.function.forwarder.service.function.dictionary.SffSfDataPlaneLocatorBuilder;
+import org.opendaylight.yang.gen.v1.urn.cisco.params.xml.ns.yang.sfc.sl.rev140701.data.plane.locator.locator.type.IpBuilder;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.IpAddress;
+import org.opendaylight.yang.gen.v1.urn.ietf.params.xml.ns.yang.ietf.inet.types.rev130715.Ipv4Address;
+import org.opendaylight.yangtools.yang.binding.DataObject;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+public class VppRspProcessorTest extends AbstractDataBrokerTest {
+
+    private static final String BRIDGE_DOMAIN_PUT = "put BridgeDomain";
+
+    private final OpendaylightSfc odl = new OpendaylightSfc();
+    private final SffName firstForwarderName = new SffName("firstForwarder");
+    private final SffName secondForwarderName = new SffName("secondForwarder");
+    private final SfName firstFunctionName = new SfName("firstFunction");
+    private final SfName secondFunctionName = new SfName("secondFunction");
+    private MountPoint firstMountPoint;
+    private MountPoint secondMountPoint;
+    private VppRspProcessor processor;
+
+    @Before
+    public void init() {
+        DataBroker dataBroker = getDataBroker();
+        odl.setDataProvider(dataBroker);
+        firstMountPoint = new MountPoint();
+        secondMountPoint = new MountPoint();
+        VppNodeManager nodeManager = mock(VppNodeManager.class);
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address("10.0.0.1"))))
+                .thenReturn(firstMountPoint.dataBroker);
+        when(nodeManager.getMountpointFromIpAddress(new IpAddress(new Ipv4Address("10.0.0.2"))))
+                .thenReturn(secondMountPoint.dataBroker);
+        prepareSfcEntities();
+        processor = new VppRspProcessor(dataBroker, nodeManager);
+    }
+
+    @Test
+    public void updateRspsWithOneTransactionPerNode() throws Exception {
+        ListenableFuture<Void> future = processor.updateRsps(Arrays.asList(
+                createRenderedServicePath(10L, firstFunctionName, secondFunctionName),
+                createRenderedServicePath(11L, firstFunctionName)));
+
+        assertEquals(1, firstMountPoint.submits.size());
+        assertEquals(1, secondMountPoint.submits.size());
+        // The bridge domain of a node is created once per batch
+        assertEquals(1, firstMountPoint.count(BRIDGE_DOMAIN_PUT));
+        assertEquals(1, secondMountPoint.count(BRIDGE_DOMAIN_PUT));
+        assertFalse(firstMountPoint.writes.stream().anyMatch(write -> write.startsWith("delete")));
+
+        assertFalse(future.isDone());
+        firstMountPoint.complete(0);
+        assertFalse(future.isDone());
+        secondMountPoint.complete(0);
+        assertNull(future.get());
+    }
+
+    @Test
+    public void deleteRspsWithOneTransactionPerNode() throws Exception {
+        ListenableFuture<Void> future = processor.deleteRsps(Arrays.asList(
+                createRenderedServicePath(10L, firstFunctionName, secondFunctionName),
+                createRenderedServicePath(11L, firstFunctionName)));
+
+        assertEquals(1, firstMountPoint.submits.size());
+        assertEquals(1, secondMountPoint.submits.size());
+        assertTrue(firstMountPoint.writes.stream().allMatch(write -> write.startsWith("delete")));
+        assertTrue(secondMountPoint.writes.stream().allMatch(write -> write.startsWith("delete")));
+
+        firstMountPoint.complete(0);
+        secondMountPoint.complete(0);
+        assertNull(future.get());
+    }
+
+    @Test
+    public void deletesAreWrittenBeforeUpdates() throws Exception {
+        processor.renderRsps(Collections.singletonList(createRenderedServicePath(10L, firstFunctionName)),
+                Collections.singletonList(createRenderedServicePath(11L, firstFunctionName)));
+
+        assertEquals(1, firstMountPoint.submits.size());
+        int lastDelete = -1;
+        int firstPut = -1;
+        for (int i = 0; i < firstMountPoint.writes.size(); i++) {
+            if (firstMountPoint.writes.get(i).startsWith("delete")) {
+                lastDelete = i;
+            } else if (firstPut < 0) {
+                firstPut = i;
+            }
+        }
+        assertTrue(lastDelete >= 0);
+        assertTrue(lastDelete < firstPut);
+    }
+
+    @Test
+    public void bridgeDomainIsCreatedAgainAfterFailure() {
+        processor.updateRsps(Collections.singletonList(createRenderedServicePath(10L, firstFunctionName)));
+        firstMountPoint.fail(0);
+
+        processor.updateRsps(Collections.singletonList(createRenderedServicePath(11L, firstFunctionName)));
+        assertEquals(2, firstMountPoint.count(BRIDGE_DOMAIN_PUT));
+        firstMountPoint.complete(1);
+
+        processor.updateRsps(Collections.singletonList(createRenderedServicePath(12L, firstFunctionName)));
+        assertEquals(2, firstMountPoint.count(BRIDGE_DOMAIN_PUT));
+    }
+
+    @Test
+    public void failureDoesNotUnmarkBridgeDomainOfLaterBatch() {
+        // Both batches create the bridge domain while the first one is pending
+        processor.updateRsps(Collections.singletonList(createRenderedServicePath(10L, firstFunctionName)));
+        processor.updateRsps(Collections.singletonList(createRenderedServicePath(11L, firstFunctionName)));
+        assertEquals(2, firstMountPoint.count(BRIDGE_DOMAIN_PUT));
+
+        firstMountPoint.fail(0);
+        firstMountPoint.complete(1);
+        processor.updateRsps(Collections.singletonList(createRenderedServicePath(12L, firstFunctionName)));
+        assertEquals(2, firstMountPoint.count(BRIDGE_DOMAIN_PUT));
+    }
+
+    @Test
+    public void failureDoesNotUnmarkCreatedBridgeDomain() {
+        processor.updateRsps(Collections.singletonList(createRenderedServicePath(10L, firstFunctionName)));
+        processor.updateRsps(Collections.singletonList(createRenderedServicePath(11L, firstFunctionName)));
+
+        firstMountPoint.complete(1);
+        firstMountPoint.fail(0);
+        processor.updateRsps(Collections.singletonList(createRenderedServicePath(12L, firstFunctionName)));
+        assertEquals(2, firstMountPoint.count(BRIDGE_DOMAIN_PUT));
+    }
+
+    private RenderedServicePath createRenderedServicePath(long pathId, SfName... sfNames) {
+        List<RenderedServicePathHop> hops = new ArrayList<>();
+        short serviceIndex = 255;
+        for (SfName sfName : sfNames) {
+            hops.add(new RenderedServicePathHopBuilder().setHopNumber((short) hops.size())
+                    .setServiceIndex(serviceIndex--)
+                    .setServiceFunctionName(sfName)
+                    .setServiceFunctionForwarder(
+                            sfName.equals(firstFunctionName) ? firstForwarderName : secondForwarderName)
+                    .build());
+        }
+        RspName rspName = new RspName("testRsp" + pathId);
+        return new RenderedServicePathBuilder().setName(rspName)
+                .setKey(new RenderedServicePathKey(rspName))
+                .setPathId(pathId)
+                .setStartingIndex((short) 255)
+                .setRenderedServicePathHop(hops)
+                .build();
+    }
+
+    private void prepareSfcEntities() {
+        putServiceFunctionForwarder(firstForwarderName, "10.0.0.1", "100.0.0.1", firstFunctionName);
+        putServiceFunctionForwarder(secondForwarderName, "10.0.0.2", "100.0.0.2", secondFunctionName);
+        putServiceFunction(firstFunctionName, "200.0.0.1");
+        putServiceFunction(secondFunctionName, "200.0.0.2");
+    }
+
+    private static void putServiceFunctionForwarder(SffName sffName, String mgmtIp, String dplIp, SfName sfName) {
+        SffDataPlaneLocatorName sffDplName = new SffDataPlaneLocatorName(sffName.getValue() + "Dpl");
+        ServiceFunctionForwarderBuilder serviceForwarderBuilder = new ServiceFunctionForwarderBuilder();
+        serviceForwarderBuilder.setName(sffName)
+                .setKey(new ServiceFunctionForwarderKey(sffName))
+                .setIpMgmtAddress(new IpAddress(new Ipv4Address(mgmtIp)))
+                .setSffDataPlaneLocator(Collections.singletonList(new SffDataPlaneLocatorBuilder()
+                        .setName(sffDplName)
+                        .setKey(new SffDataPlaneLocatorKey(sffDplName))
+                        .setDataPlaneLocator(new DataPlaneLocatorBuilder()
+                                .setLocatorType(new IpBuilder().setIp(new IpAddress(new Ipv4Address(dplIp))).build())
+                                .build())
+                        .build()))
+                .setServiceFunctionDictionary(Collections.singletonList(new ServiceFunctionDictionaryBuilder()
+                        .setName(sfName)
+                        .setSffSfDataPlaneLocator(new SffSfDataPlaneLocatorBuilder()
+                                .setSfDplName(new SfDataPlaneLocatorName(sfName.getValue() + "Dpl"))
+                                .setSffDplName(sffDplName)
+                                .build())
+                        .build()));
+        assertTrue(SfcProviderServiceForwarderAPI.putServiceFunctionForwarder(serviceForwarderBuilder.build()));
+    }
+
+    private static void putServiceFunction(SfName sfName, String dplIp) {
+        ServiceFunctionBuilder serviceFunctionBuilder = new ServiceFunctionBuilder();
+        serviceFunctionBuilder.setName(sfName)
+                .setKey(new ServiceFunctionKey(sfName))
+                .setSfDataPlaneLocator(Collections.singletonList(new SfDataPlaneLocatorBuilder()
+                        .setName(new SfDataPlaneLocatorName(sfName.getValue() + "Dpl"))
+                        .setLocatorType(new IpBuilder().setIp(new IpAddress(new Ipv4Address(dplIp))).build())
+                        .build()));
+        assertTrue(SfcProviderServiceFunctionAPI.putServiceFunction(serviceFunctionBuilder.build()));
+    }
+
+    /*
+     * Mount point of a VPP node recording its writes, the submits of its
+     * transactions being completed by the tests
+     */
+    private static final class MountPoint {
+        private final DataBroker dataBroker = mock(DataBroker.class);
+        // The writes as "put" or "delete" followed by the object type, in order
+        private final List<String> writes = new ArrayList<>();
+        private final List<SettableFuture<Void>> submits = new ArrayList<>();
+
+        MountPoint() {
+            when(dataBroker.newWriteOnlyTransaction()).thenAnswer(invocation -> newTransaction());
+        }
+
+        private WriteTransaction newTransaction() {
+            WriteTransaction writeTransaction = mock(WriteTransaction.class);
+            doAnswer(invocation -> {
+                writes.add("put " + getTargetType(invocation.getArguments()[1]));
+                return null;
+            }).when(writeTransaction).put(any(LogicalDatastoreType.class), any(InstanceIdentifier.class),
+                    any(DataObject.class));
+            doAnswer(invocation -> {
+                writes.add("delete " + getTargetType(invocation.getArguments()[1]));
+                return null;
+            }).when(writeTransaction).delete(any(LogicalDatastoreType.class), any(InstanceIdentifier.class));
+            when(writeTransaction.submit()).thenAnswer(invocation -> {
+                SettableFuture<Void> submit = SettableFuture.create();
+                submits.add(submit);
+                return Futures.makeChecked(submit, e -> new TransactionCommitFailedException("test failure", e));
+            });
+            return writeTransaction;
+        }
+
+        private static String getTargetType(Object iid) {
+            return ((InstanceIdentifier<?>) iid).getTargetType().getSimpleName();
+        }
+
+        long count(String write) {
+            return writes.stream().filter(write::equals).count();
+        }
+
+        void complete(int submit) {
+            submits.get(submit).set(null);
+        }
+
+        void fail(int submit) {
+            submits.get(submit).setException(new IllegalStateException("test failure"));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 Cisco Systems, Inc. and others.  All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sfc_vpp_renderer.renderer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import java.util.concurrent.ExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.opendaylight.controller.md.sal.binding.api.DataBroker;
+import org.opendaylight.controller.md.sal.binding.api.WriteTransaction;
+import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
+import org.opendaylight.controller.md.sal.common.api.data.TransactionCommitFailedException;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.v3po.rev150105.Vpp;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.v3po.rev150105.vpp.BridgeDomains;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.v3po.rev150105.vpp.bridge.domains.BridgeDomain;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.v3po.rev150105.vpp.bridge.domains.BridgeDomainBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.params.xml.ns.yang.v3po.rev150105.vpp.bridge.domains.BridgeDomainKey;
+import org.opendaylight.yangtools.yang.binding.InstanceIdentifier;
+
+public class VppWriteBatchTest {
+
+    private DataBroker firstMountPoint;
+    private DataBroker secondMountPoint;
+    private WriteTransaction firstTransaction;
+    private WriteTransaction secondTransaction;
+
+    @Before
+    public void init() {
+        firstMountPoint = mock(DataBroker.class);
+        secondMountPoint = mock(DataBroker.class);
+        firstTransaction = mock(WriteTransaction.class);
+        secondTransaction = mock(WriteTransaction.class);
+        when(firstMountPoint.newWriteOnlyTransaction()).thenReturn(firstTransaction);
+        when(secondMountPoint.newWriteOnlyTransaction()).thenReturn(secondTransaction);
+        when(firstTransaction.submit()).thenReturn(Futures.immediateCheckedFuture(null));
+        when(secondTransaction.submit()).thenReturn(Futures.immediateCheckedFuture(null));
+    }
+
+    @Test
+    public void writesAreGroupedPerNode() throws Exception {
+        VppWriteBatch batch = new VppWriteBatch();
+        assertTrue(batch.isEmpty());
+
+        batch.put(firstMountPoint, "node1", getBridgeDomainIid("bd1"), buildBridgeDomain("bd1"));
+        batch.delete(secondMountPoint, "node2", getBridgeDomainIid("bd2"));
+        batch.delete(firstMountPoint, "node1", getBridgeDomainIid("bd3"));
+        batch.put(firstMountPoint, "node1", getBridgeDomainIid("bd4"), buildBridgeDomain("bd4"));
+        assertFalse(batch.isEmpty());
+        assertEquals(Sets.newHashSet("node1", "node2"), batch.getNodeNames());
+
+        assertNull(batch.submit().get());
+        assertTrue(batch.isEmpty());
+
+        // One transaction per node, with the writes of the node in order
+        verify(firstMountPoint, times(1)).newWriteOnlyTransaction();
+        verify(secondMountPoint, times(1)).newWriteOnlyTransaction();
+        InOrder inOrder = inOrder(firstTransaction);
+        inOrder.verify(firstTransaction).put(LogicalDatastoreType.CONFIGURATION, getBridgeDomainIid("bd1"),
+                buildBridgeDomain("bd1"));
+        inOrder.verify(firstTransaction).delete(LogicalDatastoreType.CONFIGURATION, getBridgeDomainIid("bd3"));
+        inOrder.verify(firstTransaction).put(LogicalDatastoreType.CONFIGURATION, getBridgeDomainIid("bd4"),
+                buildBridgeDomain("bd4"));
+        inOrder.verify(firstTransaction).submit();
+        verify(secondTransaction).delete(LogicalDatastoreType.CONFIGURATION, getBridgeDomainIid("bd2"));
+        verify(secondTransaction).submit();
+    }
+
+    @Test
+    public void mergeAppendsTheWrites() throws Exception {
+        VppWriteBatch batch = new VppWriteBatch();
+        batch.put(firstMountPoint, "node1", getBridgeDomainIid("bd1"), buildBridgeDomain("bd1"));
+        VppWriteBatch other = new VppWriteBatch();
+        other.delete(firstMountPoint, "node1", getBridgeDomainIid("bd1"));
+        other.delete(secondMountPoint, "node2", getBridgeDomainIid("bd2"));
+
+        batch.merge(other);
+        assertTrue(other.isEmpty());
+        assertEquals(Sets.newHashSet("node1", "node2"), batch.getNodeNames());
+
+        assertNull(batch.submit().get());
+        verify(firstMountPoint, times(1)).newWriteOnlyTransaction();
+        InOrder inOrder = inOrder(firstTransaction);
+        inOrder.verify(firstTransaction).put(LogicalDatastoreType.CONFIGURATION, getBridgeDomainIid("bd1"),
+                buildBridgeDomain("bd1"));
+        inOrder.verify(firstTransaction).delete(LogicalDatastoreType.CONFIGURATION, getBridgeDomainIid("bd1"));
+        verify(secondTransaction).delete(LogicalDatastoreType.CONFIGURATION, getBridgeDomainIid("bd2"));
+    }
+
+    @Test
+    public void failureOfOneNodeFailsTheBatch() throws Exception {
+        when(secondTransaction.submit()).thenReturn(
+                Futures.immediateFailedCheckedFuture(new TransactionCommitFailedException("test failure")));
+        VppWriteBatch batch = new VppWriteBatch();
+        batch.put(firstMountPoint, "node1", getBridgeDomainIid("bd1"), buildBridgeDomain("bd1"));
+        batch.put(secondMountPoint, "node2", getBridgeDomainIid("bd1"), buildBridgeDomain("bd1"));
+
+        try {
+            batch.submit().get();
+            fail("The batch should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TransactionCommitFailedException);
+        }
+        // The other node is still written
+        verify(firstTransaction).submit();
+    }
+
+    private static InstanceIdentifier<BridgeDomain> getBridgeDomainIid(String name) {
+        return InstanceIdentifier.create(Vpp.class)
+                .child(BridgeDomains.class)
+                .child(BridgeDomain.class, new BridgeDomainKey(name));
+    }
+
+    private static BridgeDomain buildBridgeDomain(String name) {
+        return new BridgeDomainBuilder().setName(name).build();
+    }
+}
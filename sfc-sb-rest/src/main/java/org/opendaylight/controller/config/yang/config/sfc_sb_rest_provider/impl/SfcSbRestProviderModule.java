@@ -11,6 +11,8 @@ import java.util.concurrent.ExecutionException;
 
 import org.opendaylight.sfc.provider.OpendaylightSfc;
 import org.opendaylight.sfc.sbrest.provider.keepalive.SbRestKeepAliveSocket;
+import org.opendaylight.sfc.sbrest.provider.task.SbRestClient;
+import org.opendaylight.sfc.sbrest.provider.task.SbRestDeliveryQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,6 +22,34 @@ public class SfcSbRestProviderModule implements AutoCloseable{
     private static final Logger LOG = LoggerFactory.getLogger(SfcSbRestProviderModule.class);
     private static OpendaylightSfc opendaylightSfc;
 
+    /**
+     * @param maxRequestsPerEndpoint - maximum number of REST requests in flight per agent
+     */
+    public void setMaxRequestsPerEndpoint(int maxRequestsPerEndpoint) {
+        SbRestClient.getInstance().setMaxRequestsPerEndpoint(maxRequestsPerEndpoint);
+    }
+
+    /**
+     * @param maxQueuedRequestsPerEndpoint - maximum number of REST requests waiting per agent
+     */
+    public void setMaxQueuedRequestsPerEndpoint(int maxQueuedRequestsPerEndpoint) {
+        SbRestClient.getInstance().setMaxQueuedRequestsPerEndpoint(maxQueuedRequestsPerEndpoint);
+    }
+
+    /**
+     * @param endpointLimits - per agent limits overriding the default ones
+     */
+    public void setEndpointLimits(String endpointLimits) {
+        SbRestClient.getInstance().setEndpointLimits(endpointLimits);
+    }
+
+    /**
+     * @param bulkEndpoints - agents accepting bulk documents
+     */
+    public void setBulkEndpoints(String bulkEndpoints) {
+        SbRestDeliveryQueue.getInstance().setBulkSupported(bulkEndpoints);
+    }
+
     public void startSbRestKeepAliveSocket() {
         opendaylightSfc = OpendaylightSfc.getOpendaylightSfcObj();
         opendaylightSfc.getExecutor().execute(new SbRestKeepAliveSocket());
@@ -27,6 +57,8 @@ public class SfcSbRestProviderModule implements AutoCloseable{
 
     @Override
     public void close() throws Exception {
+        SbRestDeliveryQueue.closeInstance();
+        SbRestClient.closeInstance();
         try {
             opendaylightSfc.close();
         } catch (ExecutionException | InterruptedException e) {
@@ -9,15 +9,13 @@ package org.opendaylight.sfc.sbrest.provider.task;
 
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import org.opendaylight.sfc.sbrest.json.ExporterFactory;
 import org.opendaylight.yangtools.yang.binding.DataObject;
 
 
 abstract public class SbRestAbstractTask implements Runnable {
 
-    protected static final int THREAD_POOL_SIZE = 50;
-    protected ExecutorService taskExecutor;
+    protected SbRestDeliveryQueue deliveryQueue;
     protected ExecutorService odlExecutor;
 
     protected RestOperation restOperation;
@@ -29,20 +27,19 @@ abstract public class SbRestAbstractTask implements Runnable {
     public SbRestAbstractTask(RestOperation restOperation, ExecutorService odlExecutor) {
 
         this.restOperation = restOperation;
-        this.taskExecutor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+        this.deliveryQueue = SbRestDeliveryQueue.getInstance();
         this.odlExecutor = odlExecutor;
     }
 
     @Override
     public void run() {
         submitTasks(jsonObject);
-        taskExecutor.shutdown();
     }
 
     private void submitTasks(String json) {
         if (this.restUriList != null && this.restUriList.size() > 0) {
             for (String restUri : this.restUriList) {
-                taskExecutor.submit(new WsTask(restUri, restOperation, json));
+                deliveryQueue.enqueue(restUri, restOperation, json);
             }
         }
     }
@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sbrest.provider.task;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Southbound REST client shared by all the REST tasks.
+ * <p>
+ * A single Jersey client is used for all the requests. Its HTTP connections
+ * are kept alive and reused per endpoint (scheme, host and port), as long as
+ * the responses are closed, which {@link WsTask} always does. The idle
+ * connections are pooled by the JDK keep-alive cache, whose size per endpoint
+ * is set to the number of threads unless {@code http.maxConnections} is
+ * already set. The JDK reads it once, so it only applies if no HTTP
+ * connection was opened in the JVM before.
+ * <p>
+ * The requests run on a bounded executor. At most a configurable number of
+ * requests are in flight per endpoint; the others wait in a queue of the
+ * endpoint, so that a slow endpoint does not take all the threads. The
+ * executor queue thus holds at most that number of requests per endpoint.
+ * When an endpoint queue is full, the caller waits for room in the queue,
+ * which slows down the producers instead of piling up work, and keeps the
+ * requests of a producer in order.
+ * <p>
+ * The limits apply to every endpoint, unless overridden for an endpoint.
+ * <p>
+ * Latency and failure metrics are kept per endpoint.
+ */
+public class SbRestClient {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SbRestClient.class);
+
+    public static final int DEFAULT_THREAD_POOL_SIZE = 16;
+    public static final int DEFAULT_MAX_REQUESTS_PER_ENDPOINT = 4;
+    public static final int DEFAULT_MAX_QUEUED_REQUESTS_PER_ENDPOINT = 1024;
+    public static final int CONNECT_TIMEOUT_MS = 5000;
+    public static final int READ_TIMEOUT_MS = 10000;
+    // Maximum number of idle connections kept alive per destination by the JDK
+    static final String MAX_CONNECTIONS_PROPERTY = "http.maxConnections";
+    private static final int HTTP_DEFAULT_PORT = 80;
+    private static final int HTTPS_DEFAULT_PORT = 443;
+
+    private static SbRestClient instance;
+
+    private final Client client;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    // Endpoint name -> limits of the endpoint, when they differ from the default ones
+    private final Map<String, Limits> endpointLimits = new ConcurrentHashMap<>();
+    private volatile Limits defaultLimits =
+            new Limits(DEFAULT_MAX_REQUESTS_PER_ENDPOINT, DEFAULT_MAX_QUEUED_REQUESTS_PER_ENDPOINT);
+
+    SbRestClient(int threadPoolSize) {
+        if (System.getProperty(MAX_CONNECTIONS_PROPERTY) == null) {
+            System.setProperty(MAX_CONNECTIONS_PROPERTY, Integer.toString(threadPoolSize));
+        }
+        ClientConfig clientConfig = new DefaultClientConfig();
+        this.client = Client.create(clientConfig);
+        this.client.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        this.client.setReadTimeout(READ_TIMEOUT_MS);
+        this.executor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("SfcSbRest-%d").setDaemon(true).build());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return the shared client, created on first use
+     */
+    public static synchronized SbRestClient getInstance() {
+        if (instance == null) {
+            instance = new SbRestClient(DEFAULT_THREAD_POOL_SIZE);
+        }
+        return instance;
+    }
+
+    /**
+     * Close the shared client, if it was created
+     */
+    public static synchronized void closeInstance() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    Client getClient() {
+        return client;
+    }
+
+    /**
+     * Set the maximum number of requests in flight per endpoint, for the
+     * endpoints without limits of their own
+     *
+     * @param maxRequestsPerEndpoint - the maximum number of requests, at least 1
+     */
+    public void setMaxRequestsPerEndpoint(int maxRequestsPerEndpoint) {
+        defaultLimits = new Limits(maxRequestsPerEndpoint, defaultLimits.maxQueuedRequests);
+        applyLimits();
+    }
+
+    /**
+     * Set the maximum number of requests waiting per endpoint, beyond which
+     * the callers wait, for the endpoints without limits of their own
+     *
+     * @param maxQueuedRequestsPerEndpoint - the maximum number of waiting requests, at least 1
+     */
+    public void setMaxQueuedRequestsPerEndpoint(int maxQueuedRequestsPerEndpoint) {
+        defaultLimits = new Limits(defaultLimits.maxRequests, maxQueuedRequestsPerEndpoint);
+        applyLimits();
+    }
+
+    /**
+     * Set the limits of an endpoint, overriding the default ones
+     *
+     * @param endpointUri - any URI of the endpoint
+     * @param maxRequests - the maximum number of requests in flight, at least 1
+     * @param maxQueuedRequests - the maximum number of waiting requests, at least 1
+     */
+    public void setEndpointLimits(String endpointUri, int maxRequests, int maxQueuedRequests) {
+        endpointLimits.put(getEndpointName(endpointUri), new Limits(maxRequests, maxQueuedRequests));
+        applyLimits();
+    }
+
+    /**
+     * Set the limits of several endpoints, overriding the default ones
+     *
+     * @param endpointLimitsConfig - comma separated list of
+     *        {@code <endpoint URI>=<max requests>/<max queued requests>},
+     *        the maximum number of queued requests being optional
+     */
+    public void setEndpointLimits(String endpointLimitsConfig) {
+        if (endpointLimitsConfig == null) {
+            return;
+        }
+        for (String endpointConfig : endpointLimitsConfig.split(",")) {
+            endpointConfig = endpointConfig.trim();
+            int separator = endpointConfig.lastIndexOf('=');
+            if (separator <= 0) {
+                if (!endpointConfig.isEmpty()) {
+                    LOG.warn("setEndpointLimits: invalid endpoint limits [{}]", endpointConfig);
+                }
+                continue;
+            }
+            String[] limits = endpointConfig.substring(separator + 1).split("/");
+            try {
+                int maxRequests = Integer.parseInt(limits[0].trim());
+                int maxQueuedRequests = limits.length > 1
+                        ? Integer.parseInt(limits[1].trim()) : defaultLimits.maxQueuedRequests;
+                setEndpointLimits(endpointConfig.substring(0, separator).trim(), maxRequests, maxQueuedRequests);
+            } catch (IllegalArgumentException e) {
+                LOG.warn("setEndpointLimits: invalid endpoint limits [{}]", endpointConfig, e);
+            }
+        }
+    }
+
+    private Limits getLimits(String endpointName) {
+        Limits limits = endpointLimits.get(endpointName);
+        return limits != null ? limits : defaultLimits;
+    }
+
+    private void applyLimits() {
+        for (Endpoint endpoint : endpoints.values()) {
+            endpoint.setLimits(getLimits(endpoint.name));
+            schedule(endpoint);
+        }
+    }
+
+    /**
+     * Submit a REST request, waiting for room in the queue of its endpoint
+     * if needed
+     *
+     * @param wsTask - the request to run
+     */
+    public void submit(WsTask wsTask) {
+        Endpoint endpoint = getEndpoint(wsTask.url);
+        try {
+            endpoint.awaitQueueSlot();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("submit: interrupted while waiting for [{}], request to [{}] dropped", endpoint.name,
+                    wsTask.url);
+            endpoint.metrics.record(0, false);
+            return;
+        }
+        endpoint.pending.add(wsTask);
+        schedule(endpoint);
+    }
+
+    /*
+     * Hand the waiting requests of an endpoint to the executor, up to the
+     * endpoint limit. The executor queue is not bounded, so this never runs
+     * a request itself: a completed request schedules the next one from the
+     * executor thread, without nesting.
+     */
+    private void schedule(final Endpoint endpoint) {
+        while (!endpoint.pending.isEmpty() && endpoint.tryAcquire()) {
+            final WsTask wsTask = endpoint.pending.poll();
+            if (wsTask == null) {
+                endpoint.release();
+                continue;
+            }
+            endpoint.releaseQueueSlot();
+            try {
+                executor.execute(() -> {
+                    try {
+                        wsTask.run();
+                    } catch (RuntimeException e) {
+                        LOG.error("schedule: REST request to [{}] failed", wsTask.url, e);
+                    } finally {
+                        endpoint.release();
+                        schedule(endpoint);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Only once closed
+                endpoint.release();
+                LOG.warn("schedule: REST client closed, request to [{}] dropped", wsTask.url);
+            }
+        }
+    }
+
+    private Endpoint getEndpoint(String url) {
+        String name = getEndpointName(url);
+        return endpoints.computeIfAbsent(name, endpointName -> new Endpoint(endpointName, getLimits(endpointName)));
+    }
+
+    static String getEndpointName(String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getHost() != null) {
+                String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+                int port = uri.getPort();
+                if (port < 0) {
+                    port = "https".equals(scheme) ? HTTPS_DEFAULT_PORT : HTTP_DEFAULT_PORT;
+                }
+                return scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT) + ":" + port;
+            }
+        } catch (IllegalArgumentException e) {
+            LOG.debug("getEndpointName: invalid REST URI [{}]", url);
+        }
+        return url;
+    }
+
+    /**
+     * Record the outcome of a request
+     *
+     * @param url - the request URL
+     * @param latencyNanos - the time taken by the request
+     * @param success - whether the request succeeded
+     */
+    void record(String url, long latencyNanos, boolean success) {
+        getEndpoint(url).metrics.record(latencyNanos, success);
+    }
+
+    /**
+     * @param url - any URL of the endpoint
+     * @return the metrics of the endpoint
+     */
+    public Metrics getMetrics(String url) {
+        return getEndpoint(url).metrics;
+    }
+
+    /**
+     * Stop the executor, letting the submitted requests complete
+     */
+    public void close() {
+        for (Endpoint endpoint : endpoints.values()) {
+            LOG.info("close: [{}] {}", endpoint.name, endpoint.metrics);
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        client.destroy();
+    }
+
+    private static class Endpoint {
+        final String name;
+        final Queue<WsTask> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final Metrics metrics = new Metrics();
+        volatile Limits limits;
+        // Requests waiting in the pending queue, or about to be added to it
+        private int queued;
+
+        Endpoint(String name, Limits limits) {
+            this.name = name;
+            this.limits = limits;
+        }
+
+        boolean tryAcquire() {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current >= limits.maxRequests) {
+                    return false;
+                }
+            } while (!inFlight.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void release() {
+            inFlight.decrementAndGet();
+        }
+
+        synchronized void awaitQueueSlot() throws InterruptedException {
+            while (queued >= limits.maxQueuedRequests) {
+                wait();
+            }
+            queued++;
+        }
+
+        synchronized void releaseQueueSlot() {
+            queued--;
+            notifyAll();
+        }
+
+        synchronized void setLimits(Limits newLimits) {
+            limits = newLimits;
+            notifyAll();
+        }
+    }
+
+    private static final class Limits {
+        final int maxRequests;
+        final int maxQueuedRequests;
+
+        Limits(int maxRequests, int maxQueuedRequests) {
+            if (maxRequests < 1) {
+                throw new IllegalArgumentException("At least one request per endpoint is required");
+            }
+            if (maxQueuedRequests < 1) {
+                throw new IllegalArgumentException("At least one waiting request per endpoint is required");
+            }
+            this.maxRequests = maxRequests;
+            this.maxQueuedRequests = maxQueuedRequests;
+        }
+    }
+
+    /**
+     * Request counters and latencies of an endpoint.
+     */
+    public static final class Metrics {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalLatencyNanos = new LongAdder();
+        private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+        void record(long latencyNanos, boolean success) {
+            requests.increment();
+            if (!success) {
+                failures.increment();
+            }
+            totalLatencyNanos.add(latencyNanos);
+            maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        }
+
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        public long getAverageLatencyMillis() {
+            long count = requests.sum();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.sum() / count);
+        }
+
+        public long getMaxLatencyMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+        }
+
+        @Override
+        public String toString() {
+            return "requests=" + getRequests() + ", failures=" + getFailures() + ", averageLatencyMs="
+                    + getAverageLatencyMillis() + ", maxLatencyMs=" + getMaxLatencyMillis();
+        }
+    }
+}
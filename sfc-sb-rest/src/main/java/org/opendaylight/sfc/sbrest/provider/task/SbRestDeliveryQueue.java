@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sbrest.provider.task;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivery queue of the southbound REST requests, per REST agent.
+ * <p>
+ * The requests are held for a short delay before being sent. Within that
+ * delay, successive requests on the same object (the same URL) are collapsed
+ * so that only the latest state is sent:
+ * <ul>
+ * <li>a create or update followed by an update sends the latest state, with
+ * the first operation;</li>
+ * <li>a create followed by a delete sends nothing;</li>
+ * <li>an update followed by a delete sends the delete;</li>
+ * <li>a delete followed by a create or update sends an update.</li>
+ * </ul>
+ * For the agents which support it, the creates and updates with the same
+ * operation on the same list are sent as a single bulk document, to the list
+ * URL, with all the objects in the list array. The deletes are always sent
+ * one per object URL, as a delete of the list URL would delete the whole list.
+ */
+public class SbRestDeliveryQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SbRestDeliveryQueue.class);
+
+    public static final long DEFAULT_FLUSH_DELAY_MS = 50;
+
+    private static SbRestDeliveryQueue instance;
+
+    private final SbRestClient sbRestClient;
+    private final long flushDelayMs;
+    private final ScheduledExecutorService scheduler;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, AgentQueue> agentQueues = new ConcurrentHashMap<>();
+    private final Set<String> bulkAgents = ConcurrentHashMap.newKeySet();
+    private final AtomicLong collapsedRequests = new AtomicLong();
+    private final AtomicLong bulkRequests = new AtomicLong();
+
+    SbRestDeliveryQueue(SbRestClient sbRestClient, long flushDelayMs) {
+        this.sbRestClient = sbRestClient;
+        this.flushDelayMs = flushDelayMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("SfcSbRestDelivery-%d").setDaemon(true).build());
+    }
+
+    /**
+     * @return the shared delivery queue, created on first use
+     */
+    public static synchronized SbRestDeliveryQueue getInstance() {
+        if (instance == null) {
+            instance = new SbRestDeliveryQueue(SbRestClient.getInstance(), DEFAULT_FLUSH_DELAY_MS);
+        }
+        return instance;
+    }
+
+    /**
+     * Send the queued requests and close the shared delivery queue, if it
+     * was created
+     */
+    public static synchronized void closeInstance() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Set whether a REST agent accepts bulk documents
+     *
+     * @param agentUri - any URI of the agent
+     * @param bulkSupported - true if the agent accepts bulk documents
+     */
+    public void setBulkSupported(String agentUri, boolean bulkSupported) {
+        String agent = SbRestClient.getEndpointName(agentUri);
+        if (bulkSupported) {
+            bulkAgents.add(agent);
+        } else {
+            bulkAgents.remove(agent);
+        }
+    }
+
+    /**
+     * Set the REST agents which accept bulk documents
+     *
+     * @param agentUris - comma separated list of any URI of the agents
+     */
+    public void setBulkSupported(String agentUris) {
+        if (agentUris == null) {
+            return;
+        }
+        for (String agentUri : agentUris.split(",")) {
+            if (!agentUri.trim().isEmpty()) {
+                setBulkSupported(agentUri.trim(), true);
+            }
+        }
+    }
+
+    /**
+     * Queue a request to a REST agent
+     *
+     * @param url - the URL of the object
+     * @param restOperation - the operation on the object
+     * @param json - the JSON document of the object
+     */
+    public void enqueue(String url, RestOperation restOperation, String json) {
+        AgentQueue agentQueue = agentQueues.computeIfAbsent(SbRestClient.getEndpointName(url), AgentQueue::new);
+        boolean schedule;
+        synchronized (agentQueue) {
+            Request previous = agentQueue.pending.remove(url);
+            Request request = new Request(url, restOperation, json);
+            if (previous != null) {
+                collapsedRequests.incrementAndGet();
+                request = collapse(previous, request);
+            }
+            if (request != null) {
+                agentQueue.pending.put(url, request);
+            }
+            schedule = !agentQueue.flushScheduled && !agentQueue.pending.isEmpty();
+            agentQueue.flushScheduled |= schedule;
+        }
+        if (schedule) {
+            scheduler.schedule(() -> flush(agentQueue), flushDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Collapse two successive requests on the same object
+     *
+     * @param previous - the request queued first
+     * @param next - the request queued last
+     * @return the request with the same effect, or null if none is needed
+     */
+    static Request collapse(Request previous, Request next) {
+        switch (next.restOperation) {
+            case DELETE:
+                // a create followed by a delete cancel each other
+                return previous.restOperation == RestOperation.POST ? null : next;
+            case PUT:
+            case POST:
+                if (previous.restOperation == RestOperation.DELETE) {
+                    // the object is on the agent and has to be replaced
+                    return new Request(next.url, RestOperation.PUT, next.json);
+                }
+                return new Request(next.url, previous.restOperation, next.json);
+            default:
+                return next;
+        }
+    }
+
+    void flushAll() {
+        for (AgentQueue agentQueue : agentQueues.values()) {
+            flush(agentQueue);
+        }
+    }
+
+    private void flush(AgentQueue agentQueue) {
+        List<Request> requests;
+        synchronized (agentQueue) {
+            requests = new ArrayList<>(agentQueue.pending.values());
+            agentQueue.pending.clear();
+            agentQueue.flushScheduled = false;
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+        if (requests.size() > 1 && bulkAgents.contains(agentQueue.name)) {
+            requests = toBulkRequests(requests);
+        }
+        for (Request request : requests) {
+            sbRestClient.submit(new WsTask(request.url, request.restOperation, request.json, sbRestClient));
+        }
+    }
+
+    /**
+     * Merge the creates and updates with the same operation on the same list
+     * into bulk requests to the list URL. The deletes and the requests which
+     * are not on a list are kept as they are.
+     */
+    private List<Request> toBulkRequests(List<Request> requests) {
+        // operation + list URL + list name -> list array
+        Map<String, BulkRequest> bulks = new LinkedHashMap<>();
+        List<Request> bulkedRequests = new ArrayList<>();
+        for (Request request : requests) {
+            if (request.restOperation == RestOperation.DELETE) {
+                bulkedRequests.add(request);
+                continue;
+            }
+            int nameIndex = request.url.lastIndexOf('/');
+            JsonNode document = readJson(request.json);
+            String listName = getListName(document);
+            if (nameIndex < 0 || listName == null) {
+                bulkedRequests.add(request);
+                continue;
+            }
+            String listUrl = request.url.substring(0, nameIndex);
+            String key = request.restOperation + " " + listUrl + " " + listName;
+            BulkRequest bulk = bulks.get(key);
+            if (bulk == null) {
+                bulk = new BulkRequest(request, listUrl, listName, mapper.createArrayNode());
+                bulks.put(key, bulk);
+            }
+            bulk.add((ArrayNode) document.get(listName));
+        }
+
+        for (BulkRequest bulk : bulks.values()) {
+            if (bulk.count == 1) {
+                bulkedRequests.add(bulk.first);
+                continue;
+            }
+            ObjectNode document = mapper.createObjectNode();
+            document.set(bulk.listName, bulk.objects);
+            bulkRequests.incrementAndGet();
+            bulkedRequests.add(new Request(bulk.listUrl, bulk.first.restOperation, document.toString()));
+        }
+        return bulkedRequests;
+    }
+
+    private JsonNode readJson(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return mapper.readTree(json);
+        } catch (IOException e) {
+            LOG.debug("readJson: invalid JSON document", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the name of the list of a single list document, null otherwise
+     */
+    private static String getListName(JsonNode document) {
+        if (document != null && document.size() == 1) {
+            String listName = document.fieldNames().next();
+            return document.get(listName).isArray() ? listName : null;
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of requests collapsed with a previous one
+     */
+    public long getCollapsedRequests() {
+        return collapsedRequests.get();
+    }
+
+    /**
+     * @return the number of bulk requests sent
+     */
+    public long getBulkRequests() {
+        return bulkRequests.get();
+    }
+
+    /**
+     * Send the queued requests and stop the scheduler
+     */
+    public void close() {
+        scheduler.shutdownNow();
+        flushAll();
+        LOG.info("close: collapsed requests [{}], bulk requests [{}]", collapsedRequests.get(), bulkRequests.get());
+    }
+
+    private static class AgentQueue {
+        final String name;
+        // Guarded by this
+        final Map<String, Request> pending = new LinkedHashMap<>();
+        boolean flushScheduled = false;
+
+        AgentQueue(String name) {
+            this.name = name;
+        }
+    }
+
+    static final class Request {
+        final String url;
+        final RestOperation restOperation;
+        final String json;
+
+        Request(String url, RestOperation restOperation, String json) {
+            this.url = url;
+            this.restOperation = restOperation;
+            this.json = json;
+        }
+    }
+
+    private static final class BulkRequest {
+        final Request first;
+        final String listUrl;
+        final String listName;
+        final ArrayNode objects;
+        int count = 0;
+
+        BulkRequest(Request first, String listUrl, String listName, ArrayNode objects) {
+            this.first = first;
+            this.listUrl = listUrl;
+            this.listName = listName;
+            this.objects = objects;
+        }
+
+        void add(ArrayNode listArray) {
+            objects.addAll(listArray);
+            count++;
+        }
+    }
+}
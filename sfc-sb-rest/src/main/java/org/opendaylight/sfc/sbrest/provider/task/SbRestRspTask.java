@@ -54,8 +54,11 @@ public class SbRestRspTask extends SbRestAbstractTask {
                     RspName rspName = obj.getName();
                     if (rspName != null) {
                         String restUri = sff.getRestUri().getValue() + RSP_REST_URI + rspName.getValue();
-                        this.restUriList.add(restUri);
-                        LOG.info("RSP will be send to REST URI {}", restUri);
+                        // an SFF with several hops in the RSP gets the RSP once
+                        if (!this.restUriList.contains(restUri)) {
+                            this.restUriList.add(restUri);
+                            LOG.info("RSP will be send to REST URI {}", restUri);
+                        }
                     }
                 }
             }
@@ -7,17 +7,18 @@
  */
 package org.opendaylight.sfc.sbrest.provider.task;
 
-import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientHandlerException;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.UniformInterfaceException;
 import com.sun.jersey.api.client.WebResource;
-import com.sun.jersey.api.client.config.ClientConfig;
-import com.sun.jersey.api.client.config.DefaultClientConfig;
 import java.net.ConnectException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A REST request to a southbound REST server, sent with the shared
+ * {@link SbRestClient}.
+ */
 public class WsTask implements Runnable {
 
     protected static final String APPLICATION_JSON = "application/json";
@@ -28,96 +29,69 @@ public class WsTask implements Runnable {
     String url;
     RestOperation restOperation;
     String json;
+    private final SbRestClient sbRestClient;
 
     public WsTask(String url, RestOperation restOperation, String json) {
+        this(url, restOperation, json, SbRestClient.getInstance());
+    }
+
+    public WsTask(String url, RestOperation restOperation, String json, SbRestClient sbRestClient) {
 
         this.url = url;
         this.restOperation = restOperation;
         this.json = json;
+        this.sbRestClient = sbRestClient;
     }
 
     @Override
     public void run() {
-        ClientConfig clientConfig = new DefaultClientConfig();
-        Client client = Client.create(clientConfig);
-        ClientResponse clientRemoteResponse = null;
-        WebResource wr = null;
-        WebResource.Builder wrb = null;
+        WebResource.Builder wrb;
         try {
-            wrb = client.resource(url).type(APPLICATION_JSON);
-        } catch (Exception e) {
-            e.printStackTrace();
+            wrb = sbRestClient.getClient().resource(url).type(APPLICATION_JSON);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            LOG.error("Invalid REST URI {}: {}", url, e.getMessage());
+            sbRestClient.record(url, 0, false);
+            return;
         }
 
-        if (wrb != null) {
+        boolean success = false;
+        long startTime = System.nanoTime();
+        ClientResponse clientRemoteResponse = null;
+        try {
             switch (restOperation) {
                 case PUT:
-                    try {
-                        clientRemoteResponse = wrb.put(ClientResponse.class, json);
-                    } catch (UniformInterfaceException e) {
-                        // http://stackoverflow.com/questions/12502233/jersey-uniforminterfaceexception-trying-to-proxy-to-rest-post-service
-                        LOG.error("REST Server error. Message: {}", e.getMessage());
-                    } catch (ClientHandlerException e) {
-                        if (e.getCause() instanceof ConnectException) {
-                            LOG.error("Failed to communicate with REST Server: {} ", this.url);
-                        } else {
-                            LOG.error("ClientHandlerException on {}: {}", Thread.currentThread().getStackTrace()[1],
-                                    e.getMessage());
-                        }
-                    } finally {
-                        if (clientRemoteResponse != null) {
-                            if (clientRemoteResponse.getStatus() != HTTP_OK) {
-                                throw new UniformInterfaceException(HTTP_ERROR_MSG + clientRemoteResponse.getStatus(),
-                                        clientRemoteResponse);
-                            }
-                            clientRemoteResponse.close();
-                        }
-                    }
+                    clientRemoteResponse = wrb.put(ClientResponse.class, json);
                     break;
                 case POST:
-                    try {
-                        clientRemoteResponse = wrb.post(ClientResponse.class, json);
-                    } catch (UniformInterfaceException e) {
-                        LOG.error("REST Server error. Message: {}", e.getMessage());
-                    } catch (ClientHandlerException e) {
-                        if (e.getCause() instanceof ConnectException) {
-                            LOG.error("Failed to communicate with REST Server: {} ", this.url);
-                        } else {
-                            LOG.error("ClientHandlerException on {}: {}", Thread.currentThread().getStackTrace()[1],
-                                    e.getMessage());
-                        }
-                    } finally {
-                        if (clientRemoteResponse != null) {
-                            if (clientRemoteResponse.getStatus() != HTTP_OK) {
-                                throw new UniformInterfaceException(HTTP_ERROR_MSG + clientRemoteResponse.getStatus(),
-                                        clientRemoteResponse);
-                            }
-                            clientRemoteResponse.close();
-                        }
-                    }
+                    clientRemoteResponse = wrb.post(ClientResponse.class, json);
                     break;
                 case DELETE:
-                    try {
-                        clientRemoteResponse = wrb.delete(ClientResponse.class);
-                    } catch (UniformInterfaceException e) {
-                        LOG.error("REST Server error. Message: {}", e.getMessage());
-                    } catch (ClientHandlerException e) {
-                        if (e.getCause() instanceof ConnectException) {
-                            LOG.error("Failed to communicate with REST Server: {} ", this.url);
-                        } else {
-                            LOG.error("ClientHandlerException on {}: {}", Thread.currentThread().getStackTrace()[1],
-                                    e.getMessage());
-                        }
-                    } finally {
-                        if (clientRemoteResponse != null) {
-                            if (clientRemoteResponse.getStatus() != HTTP_OK) {
-                                throw new UniformInterfaceException(HTTP_ERROR_MSG + clientRemoteResponse.getStatus(),
-                                        clientRemoteResponse);
-                            }
-                            clientRemoteResponse.close();
-                        }
-                    }
+                    clientRemoteResponse = wrb.delete(ClientResponse.class);
+                    break;
+                default:
+                    LOG.error("Unsupported REST operation {}", restOperation);
+                    return;
+            }
+            if (clientRemoteResponse.getStatus() == HTTP_OK) {
+                success = true;
+            } else {
+                LOG.error("REST Server {} error. {}{}", url, HTTP_ERROR_MSG, clientRemoteResponse.getStatus());
+            }
+        } catch (UniformInterfaceException e) {
+            // http://stackoverflow.com/questions/12502233/jersey-uniforminterfaceexception-trying-to-proxy-to-rest-post-service
+            LOG.error("REST Server error. Message: {}", e.getMessage());
+        } catch (ClientHandlerException e) {
+            if (e.getCause() instanceof ConnectException) {
+                LOG.error("Failed to communicate with REST Server: {} ", this.url);
+            } else {
+                LOG.error("ClientHandlerException on {}: {}", this.url, e.getMessage());
+            }
+        } finally {
+            // closing the response returns the connection to the keep-alive pool
+            if (clientRemoteResponse != null) {
+                clientRemoteResponse.close();
             }
+            sbRestClient.record(url, System.nanoTime() - startTime, success);
         }
     }
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sbrest.provider.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the shared southbound REST client.
+ */
+public class SbRestClientTest {
+
+    private SbRestClient sbRestClient;
+
+    @Before
+    public void setUp() {
+        sbRestClient = new SbRestClient(8);
+    }
+
+    @After
+    public void tearDown() {
+        sbRestClient.close();
+    }
+
+    @Test
+    public void requestsPerEndpointAreLimited() throws Exception {
+        sbRestClient.setMaxRequestsPerEndpoint(2);
+        final int numTasks = 20;
+        final CountDownLatch done = new CountDownLatch(numTasks);
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        for (int i = 0; i < numTasks; i++) {
+            sbRestClient.submit(new WsTask("http://localhost:5000/config/sf" + i, RestOperation.PUT, "{}",
+                    sbRestClient) {
+                @Override
+                public void run() {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    inFlight.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(maxInFlight.get() <= 2);
+    }
+
+    @Test
+    public void endpointLimitsOverrideTheDefaultOnes() throws Exception {
+        sbRestClient.setMaxRequestsPerEndpoint(1);
+        sbRestClient.setEndpointLimits("http://localhost:6000=3/16, invalid, http://localhost:7000/config=x");
+        final int numTasks = 12;
+        final CountDownLatch done = new CountDownLatch(2 * numTasks);
+        final AtomicInteger maxInFlight5000 = new AtomicInteger();
+        final AtomicInteger maxInFlight6000 = new AtomicInteger();
+        submitTasks("http://localhost:5000", numTasks, maxInFlight5000, done);
+        submitTasks("http://localhost:6000", numTasks, maxInFlight6000, done);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, maxInFlight5000.get());
+        assertTrue(maxInFlight6000.get() <= 3);
+    }
+
+    @Test
+    public void completedRequestsDoNotNestTheNextOnes() throws Exception {
+        sbRestClient.close();
+        sbRestClient = new SbRestClient(1);
+        sbRestClient.setMaxRequestsPerEndpoint(1);
+        final int numTasks = 200;
+        final CountDownLatch done = new CountDownLatch(numTasks);
+        final AtomicInteger minStackDepth = new AtomicInteger(Integer.MAX_VALUE);
+        final AtomicInteger maxStackDepth = new AtomicInteger();
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger callerRuns = new AtomicInteger();
+
+        for (int i = 0; i < numTasks; i++) {
+            sbRestClient.submit(new WsTask("http://localhost:5000/config/sf" + i, RestOperation.PUT, "{}",
+                    sbRestClient) {
+                @Override
+                public void run() {
+                    int stackDepth = Thread.currentThread().getStackTrace().length;
+                    minStackDepth.accumulateAndGet(stackDepth, Math::min);
+                    maxStackDepth.accumulateAndGet(stackDepth, Math::max);
+                    if (Thread.currentThread() == caller) {
+                        callerRuns.incrementAndGet();
+                    }
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, callerRuns.get());
+        // Each request would add several frames if it ran from the completion of the previous one
+        assertTrue(maxStackDepth.get() - minStackDepth.get() < 10);
+    }
+
+    @Test
+    public void callersWaitBeyondTheQueueLimit() throws Exception {
+        sbRestClient.setEndpointLimits("http://localhost:5000", 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(3);
+        final List<Integer> runOrder = Collections.synchronizedList(new ArrayList<>());
+        Thread caller = new Thread(() -> {
+            for (int i = 0; i < 3; i++) {
+                final int index = i;
+                sbRestClient.submit(new WsTask("http://localhost:5000/config/sf" + i, RestOperation.PUT, "{}",
+                        sbRestClient) {
+                    @Override
+                    public void run() {
+                        runOrder.add(index);
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        done.countDown();
+                    }
+                });
+            }
+        });
+        caller.start();
+
+        // The first one is in flight, the second one waits, the caller waits to queue the third one
+        caller.join(200);
+        assertTrue(caller.isAlive());
+        assertEquals(Collections.singletonList(0), runOrder);
+        release.countDown();
+        caller.join(10000);
+        assertFalse(caller.isAlive());
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2), runOrder);
+    }
+
+    @Test
+    public void endpointsUseTheDefaultPortOfTheirScheme() {
+        assertEquals("http://localhost:80", SbRestClient.getEndpointName("http://localhost/config/sf"));
+        assertEquals("http://localhost:80", SbRestClient.getEndpointName("HTTP://LocalHost:80/config/sf"));
+        assertEquals("https://localhost:443", SbRestClient.getEndpointName("https://localhost/config/sf"));
+        assertEquals("http://localhost:5000", SbRestClient.getEndpointName("http://localhost:5000/config/sf"));
+    }
+
+    private void submitTasks(String endpoint, int numTasks, final AtomicInteger maxInFlight,
+            final CountDownLatch done) {
+        final AtomicInteger inFlight = new AtomicInteger();
+        for (int i = 0; i < numTasks; i++) {
+            sbRestClient.submit(new WsTask(endpoint + "/config/sf" + i, RestOperation.PUT, "{}", sbRestClient) {
+                @Override
+                public void run() {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    inFlight.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void failuresAreRecordedPerEndpoint() {
+        sbRestClient.record("http://localhost:5000/config/a", TimeUnit.MILLISECONDS.toNanos(10), true);
+        sbRestClient.record("http://localhost:5000/config/b", TimeUnit.MILLISECONDS.toNanos(30), false);
+        sbRestClient.record("http://localhost:6000/config/a", TimeUnit.MILLISECONDS.toNanos(5), true);
+
+        SbRestClient.Metrics metrics = sbRestClient.getMetrics("http://localhost:5000");
+        assertEquals(2, metrics.getRequests());
+        assertEquals(1, metrics.getFailures());
+        assertEquals(20, metrics.getAverageLatencyMillis());
+        assertEquals(30, metrics.getMaxLatencyMillis());
+        assertEquals(1, sbRestClient.getMetrics("http://localhost:6000/").getRequests());
+    }
+}
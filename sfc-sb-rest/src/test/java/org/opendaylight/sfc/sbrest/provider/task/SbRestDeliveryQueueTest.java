@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2016 Ericsson Inc. and others. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package org.opendaylight.sfc.sbrest.provider.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the southbound REST delivery queue.
+ */
+public class SbRestDeliveryQueueTest {
+
+    private static final String AGENT = "http://localhost:5000";
+    private static final String SF_LIST = AGENT + "/config/service-function:service-functions/service-function";
+
+    private final List<WsTask> sentTasks = Collections.synchronizedList(new ArrayList<>());
+    private SbRestClient sbRestClient;
+    private SbRestDeliveryQueue deliveryQueue;
+
+    @Before
+    public void setUp() {
+        sbRestClient = new SbRestClient(1) {
+            @Override
+            public void submit(WsTask wsTask) {
+                sentTasks.add(wsTask);
+            }
+        };
+        // flushed explicitly by the tests
+        deliveryQueue = new SbRestDeliveryQueue(sbRestClient, 60000);
+    }
+
+    @After
+    public void tearDown() {
+        deliveryQueue.close();
+        sbRestClient.close();
+    }
+
+    @Test
+    public void updatesAreCollapsed() {
+        deliveryQueue.enqueue(SF_LIST + "/sf1", RestOperation.POST, sfJson("sf1", "v1"));
+        deliveryQueue.enqueue(SF_LIST + "/sf1", RestOperation.PUT, sfJson("sf1", "v2"));
+        deliveryQueue.enqueue(SF_LIST + "/sf1", RestOperation.PUT, sfJson("sf1", "v3"));
+        deliveryQueue.enqueue(SF_LIST + "/sf2", RestOperation.PUT, sfJson("sf2", "v1"));
+        deliveryQueue.enqueue(SF_LIST + "/sf2", RestOperation.DELETE, sfJson("sf2", null));
+        deliveryQueue.flushAll();
+
+        assertEquals(2, sentTasks.size());
+        assertEquals(RestOperation.POST, sentTasks.get(0).restOperation);
+        assertEquals(sfJson("sf1", "v3"), sentTasks.get(0).json);
+        assertEquals(RestOperation.DELETE, sentTasks.get(1).restOperation);
+        assertEquals(3, deliveryQueue.getCollapsedRequests());
+    }
+
+    @Test
+    public void createAndDeleteCancelEachOther() {
+        deliveryQueue.enqueue(SF_LIST + "/sf1", RestOperation.POST, sfJson("sf1", "v1"));
+        deliveryQueue.enqueue(SF_LIST + "/sf1", RestOperation.DELETE, sfJson("sf1", null));
+        deliveryQueue.flushAll();
+        assertTrue(sentTasks.isEmpty());
+
+        deliveryQueue.enqueue(SF_LIST + "/sf1", RestOperation.DELETE, sfJson("sf1", null));
+        deliveryQueue.enqueue(SF_LIST + "/sf1", RestOperation.POST, sfJson("sf1", "v2"));
+        deliveryQueue.flushAll();
+        assertEquals(1, sentTasks.size());
+        assertEquals(RestOperation.PUT, sentTasks.get(0).restOperation);
+    }
+
+    @Test
+    public void objectsAreSentInBulk() throws Exception {
+        deliveryQueue.setBulkSupported("http://localhost:6000, " + AGENT + "/config");
+        deliveryQueue.enqueue(SF_LIST + "/sf1", RestOperation.PUT, sfJson("sf1", "v1"));
+        deliveryQueue.enqueue(SF_LIST + "/sf2", RestOperation.PUT, sfJson("sf2", "v1"));
+        deliveryQueue.enqueue(SF_LIST + "/sf3", RestOperation.DELETE, sfJson("sf3", null));
+        deliveryQueue.enqueue(SF_LIST + "/sf4", RestOperation.DELETE, sfJson("sf4", null));
+        deliveryQueue.flushAll();
+
+        // The deletes are sent one by one, to the object URLs
+        assertEquals(3, sentTasks.size());
+        assertEquals(SF_LIST + "/sf3", sentTasks.get(0).url);
+        assertEquals(RestOperation.DELETE, sentTasks.get(0).restOperation);
+        assertEquals(SF_LIST + "/sf4", sentTasks.get(1).url);
+        assertEquals(RestOperation.DELETE, sentTasks.get(1).restOperation);
+        WsTask bulkTask = sentTasks.get(2);
+        assertEquals(SF_LIST, bulkTask.url);
+        assertEquals(RestOperation.PUT, bulkTask.restOperation);
+        JsonNode document = new ObjectMapper().readTree(bulkTask.json);
+        assertEquals(2, document.get("service-function").size());
+        assertEquals(1, deliveryQueue.getBulkRequests());
+    }
+
+    @Test
+    public void objectsAreNotSentInBulkByDefault() {
+        deliveryQueue.enqueue(SF_LIST + "/sf1", RestOperation.PUT, sfJson("sf1", "v1"));
+        deliveryQueue.enqueue(SF_LIST + "/sf2", RestOperation.PUT, sfJson("sf2", "v1"));
+        deliveryQueue.flushAll();
+
+        assertEquals(2, sentTasks.size());
+        assertEquals(SF_LIST + "/sf1", sentTasks.get(0).url);
+        assertEquals(SF_LIST + "/sf2", sentTasks.get(1).url);
+        assertEquals(0, deliveryQueue.getBulkRequests());
+    }
+
+    private static String sfJson(String name, String type) {
+        return type == null
+                ? "{\"service-function\":[{\"name\":\"" + name + "\"}]}"
+                : "{\"service-function\":[{\"name\":\"" + name + "\",\"type\":\"" + type + "\"}]}";
+    }
+}
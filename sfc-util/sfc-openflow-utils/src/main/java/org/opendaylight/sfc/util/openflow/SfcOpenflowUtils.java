@@ -8,10 +8,16 @@
 package org.opendaylight.sfc.util.openflow;
 
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.net.InetAddresses;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.opendaylight.controller.md.sal.common.api.data.LogicalDatastoreType;
 import org.opendaylight.openflowplugin.extension.api.path.ActionPath;
@@ -61,6 +67,7 @@ import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.FlowCo
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.FlowModFlags;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.OutputPortValues;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.InstructionsBuilder;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.Match;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.MatchBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.ApplyActionsCaseBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.instruction.instruction.GoToTableCaseBuilder;
@@ -210,6 +217,8 @@ public class SfcOpenflowUtils {
 
     private static final int COOKIE_BIGINT_INT_RADIX = 10;
     private static AtomicLong flowIdInc = new AtomicLong();
+    // Prefix of the flow ids derived from the flow content, see createDeterministicFlowId()
+    public static final String DETERMINISTIC_FLOW_ID_PREFIX = "sfc-";
 
     public static FlowBuilder createFlowBuilder(
             final short table, final int priority, final BigInteger cookieValue,
@@ -242,6 +251,92 @@ public class SfcOpenflowUtils {
         return createFlowBuilder(table, priority, new BigInteger("20", COOKIE_BIGINT_INT_RADIX), flowName, match, isb);
     }
 
+    /**
+     * Derive a flow id from the identity of a flow: its table, the RSP and
+     * SFF it is written for, its priority and its match. Rendering the same
+     * flow again, even after a controller restart, produces the same flow id,
+     * so the flows already in the data store can be addressed again.
+     * <p>
+     * The match fields are hashed one by one, by value: unlike its hash code,
+     * they do not change between JVM runs. The match extensions are hashed in
+     * the order of their keys, whatever the order they were added in.
+     *
+     * @param table - the table of the flow
+     * @param rspId - the RSP the flow is written for
+     * @param sffNodeName - the SFF the flow is written to
+     * @param priority - the priority of the flow
+     * @param match - the match of the flow
+     * @return the flow id, starting with {@link #DETERMINISTIC_FLOW_ID_PREFIX}
+     */
+    public static FlowId createDeterministicFlowId(final short table, final Long rspId, final String sffNodeName,
+            final Integer priority, final Match match) {
+        Hasher hasher = Hashing.murmur3_128().newHasher()
+                .putString(String.valueOf(rspId), StandardCharsets.UTF_8)
+                .putChar('|')
+                .putString(String.valueOf(sffNodeName), StandardCharsets.UTF_8)
+                .putChar('|')
+                .putString(String.valueOf(priority), StandardCharsets.UTF_8)
+                .putChar('|');
+        putMatchFields(hasher, match);
+        return new FlowId(DETERMINISTIC_FLOW_ID_PREFIX + table + "-" + hasher.hash().toString());
+    }
+
+    private static void putMatchFields(Hasher hasher, Match match) {
+        if (match == null) {
+            return;
+        }
+        putMatchField(hasher, "in-port", match.getInPort() == null ? null : match.getInPort().getValue());
+        putMatchField(hasher, "in-phy-port", match.getInPhyPort() == null ? null : match.getInPhyPort().getValue());
+        putMatchField(hasher, "metadata", match.getMetadata());
+        putMatchField(hasher, "tunnel", match.getTunnel());
+        putMatchField(hasher, "ethernet-match", match.getEthernetMatch());
+        putMatchField(hasher, "vlan-match", match.getVlanMatch());
+        putMatchField(hasher, "ip-match", match.getIpMatch());
+        putMatchField(hasher, "layer-3-match", match.getLayer3Match());
+        putMatchField(hasher, "layer-4-match", match.getLayer4Match());
+        putMatchField(hasher, "icmpv4-match", match.getIcmpv4Match());
+        putMatchField(hasher, "icmpv6-match", match.getIcmpv6Match());
+        putMatchField(hasher, "protocol-match-fields", match.getProtocolMatchFields());
+        putMatchField(hasher, "tcp-flags-match", match.getTcpFlagsMatch());
+
+        GeneralAugMatchNodesNodeTableFlow extensions = match.getAugmentation(GeneralAugMatchNodesNodeTableFlow.class);
+        if (extensions == null || extensions.getExtensionList() == null) {
+            return;
+        }
+        SortedMap<String, NxAugMatchNodesNodeTableFlow> nxMatches = new TreeMap<>();
+        for (ExtensionList extension : extensions.getExtensionList()) {
+            if (extension.getExtensionKey() != null && extension.getExtension() != null) {
+                nxMatches.put(extension.getExtensionKey().getName(),
+                        extension.getExtension().getAugmentation(NxAugMatchNodesNodeTableFlow.class));
+            }
+        }
+        for (Map.Entry<String, NxAugMatchNodesNodeTableFlow> nxMatch : nxMatches.entrySet()) {
+            putMatchField(hasher, nxMatch.getKey(), nxMatch.getValue());
+        }
+    }
+
+    private static void putMatchField(Hasher hasher, String name, Object value) {
+        if (value != null) {
+            hasher.putString(name, StandardCharsets.UTF_8)
+                .putChar('=')
+                .putString(value.toString(), StandardCharsets.UTF_8)
+                .putChar('|');
+        }
+    }
+
+    /**
+     * Set a flow id, and the corresponding key, on a flow builder
+     *
+     * @param flow - the flow builder
+     * @param flowId - the flow id
+     * @return the flow builder
+     */
+    public static FlowBuilder setFlowId(FlowBuilder flow, final FlowId flowId) {
+        flow.setId(flowId);
+        flow.setKey(new FlowKey(flowId));
+        return flow;
+    }
+
 
     //
     // Add Match methods
@@ -18,6 +18,7 @@ import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.action.types.rev131112.action.Action;
+import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.inventory.rev130819.FlowId;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.flow.types.rev131026.flow.MatchBuilder;
 import org.opendaylight.yang.gen.v1.urn.opendaylight.model.match.types.rev131026.match.VlanMatch;
 
@@ -26,6 +27,7 @@ import org.junit.Assert;
 import static com.fasterxml.uuid.EthernetAddress.constructMulticastAddress;
 import static junitparams.JUnitParamsRunner.$;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createActionOutPort;
 import static org.opendaylight.sfc.util.openflow.SfcOpenflowUtils.createActionPopVlan;
@@ -305,4 +307,41 @@ public class SfcOpenflowUtilsTest{
             {MAX_MAC, "ff:ff:ff:ff:ff:ff"}
         };
     }
+
+    @Test
+    public void testCreateDeterministicFlowId() {
+        MatchBuilder match = new MatchBuilder();
+        addMatchVlan(match, 100);
+        MatchBuilder sameMatch = new MatchBuilder();
+        addMatchVlan(sameMatch, 100);
+        MatchBuilder otherMatch = new MatchBuilder();
+        addMatchVlan(otherMatch, 200);
+
+        FlowId flowId = SfcOpenflowUtils.createDeterministicFlowId((short) 3, 1L, "openflow:1", 300, match.build());
+        assertTrue(flowId.getValue().startsWith(SfcOpenflowUtils.DETERMINISTIC_FLOW_ID_PREFIX + "3-"));
+        assertEquals(flowId,
+                SfcOpenflowUtils.createDeterministicFlowId((short) 3, 1L, "openflow:1", 300, sameMatch.build()));
+        assertNotEquals(flowId,
+                SfcOpenflowUtils.createDeterministicFlowId((short) 3, 1L, "openflow:1", 300, otherMatch.build()));
+        assertNotEquals(flowId,
+                SfcOpenflowUtils.createDeterministicFlowId((short) 3, 2L, "openflow:1", 300, match.build()));
+        assertNotEquals(flowId,
+                SfcOpenflowUtils.createDeterministicFlowId((short) 3, 1L, "openflow:2", 300, match.build()));
+
+        // The match extensions are hashed whatever the order they were added in
+        MatchBuilder nshMatch = new MatchBuilder();
+        SfcOpenflowUtils.addMatchNshNsp(nshMatch, 10L);
+        SfcOpenflowUtils.addMatchNshNsi(nshMatch, (short) 255);
+        MatchBuilder reversedNshMatch = new MatchBuilder();
+        SfcOpenflowUtils.addMatchNshNsi(reversedNshMatch, (short) 255);
+        SfcOpenflowUtils.addMatchNshNsp(reversedNshMatch, 10L);
+        MatchBuilder otherNshMatch = new MatchBuilder();
+        SfcOpenflowUtils.addMatchNshNsp(otherNshMatch, 10L);
+        SfcOpenflowUtils.addMatchNshNsi(otherNshMatch, (short) 254);
+        flowId = SfcOpenflowUtils.createDeterministicFlowId((short) 3, 1L, "openflow:1", 300, nshMatch.build());
+        assertEquals(flowId, SfcOpenflowUtils.createDeterministicFlowId((short) 3, 1L, "openflow:1", 300,
+                reversedNshMatch.build()));
+        assertNotEquals(flowId, SfcOpenflowUtils.createDeterministicFlowId((short) 3, 1L, "openflow:1", 300,
+                otherNshMatch.build()));
+    }
 }